@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang;
+import java.util.Arrays;
+
+/**
+ * A {@link ThreadLocal} whose per-thread values are stored in an array
+ * attached to each thread, at an index assigned to the variable when it
+ * is constructed.  {@link #get} and {@link #set} therefore cost a single
+ * array access instead of a hash table probe, and never need to
+ * expunge entries for thread-locals that have been garbage collected.
+ * This suits frameworks that keep many thread-local variables per
+ * thread and access them on latency-sensitive paths.
+ *
+ * <p>Unlike an ordinary <tt>ThreadLocal</tt>, which is referenced
+ * weakly by the threads holding values for it, an
+ * <tt>IndexedThreadLocal</tt> is referenced strongly from each thread
+ * that has a value for it, and its index stays allocated until it is
+ * explicitly {@linkplain #release released}.  It is best used as a
+ * long-lived, typically <tt>static</tt>, variable; one that is
+ * discarded should be released so that its index can be reused by a
+ * variable created later.  The values of a thread are reclaimed when the
+ * thread terminates, as for other thread-local variables.
+ *
+ * <p>Values of an <tt>IndexedThreadLocal</tt> are not inherited by child
+ * threads.
+ *
+ * @see     ThreadLocal
+ * @since   1.8
+ */
+public class IndexedThreadLocal<T> extends ThreadLocal<T> {
+    /*
+     * Each thread's Thread.indexedThreadLocals array holds, for the
+     * variable with index i, the variable itself at 2 * i and its value
+     * at 2 * i + 1.  The owner check keeps a recycled index from
+     * exposing the value another thread-local left in a thread, at the
+     * price of one more load from the same cache line.  Arrays grow
+     * on demand by the thread that owns them, so no synchronization
+     * is needed except to allocate and free indices.
+     */
+
+    /** The position of this variable in per-thread arrays (2 * index) */
+    private final int slot;
+
+    /** True once released; guarded by IndexedThreadLocal.class */
+    private boolean released;
+
+    /** The next never-used index; guarded by IndexedThreadLocal.class */
+    private static int nextIndex;
+
+    /** Released indices available for reuse; guarded by IndexedThreadLocal.class */
+    private static int[] freeIndices = new int[16];
+
+    /** Number of entries in freeIndices */
+    private static int freeCount;
+
+    /**
+     * The largest index that can be assigned, keeping slots and array
+     * lengths positive ints.
+     */
+    private static final int MAX_INDEX = (Integer.MAX_VALUE - 8) / 2 - 1;
+
+    private static synchronized int allocateIndex() {
+        if (freeCount > 0)
+            return freeIndices[--freeCount];
+        if (nextIndex > MAX_INDEX)
+            throw new IllegalStateException("Too many IndexedThreadLocals");
+        return nextIndex++;
+    }
+
+    /**
+     * Creates an indexed thread local variable.
+     *
+     * @throws IllegalStateException if all indices are in use
+     */
+    public IndexedThreadLocal() {
+        slot = allocateIndex() << 1;
+    }
+
+    /**
+     * Returns the value in the current thread's copy of this
+     * thread-local variable.  If the variable has no value for the
+     * current thread, it is first initialized to the value returned
+     * by an invocation of the {@link #initialValue} method.
+     *
+     * @return the current thread's value of this thread-local
+     * @throws IllegalStateException if this variable has been released
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        Object[] a = Thread.currentThread().indexedThreadLocals;
+        int j = slot;
+        if (a != null && j < a.length && a[j] == this)
+            return (T) a[j + 1];
+        return setInitialValue();
+    }
+
+    /**
+     * Variant of set() to establish initialValue. Used instead
+     * of set() in case user has overridden the set() method.
+     *
+     * @return the initial value
+     */
+    private T setInitialValue() {
+        checkNotReleased();
+        T value = initialValue();
+        store(Thread.currentThread(), value);
+        return value;
+    }
+
+    /**
+     * Sets the current thread's copy of this thread-local variable
+     * to the specified value.
+     *
+     * @param value the value to be stored in the current thread's copy of
+     *        this thread-local.
+     * @throws IllegalStateException if this variable has been released
+     */
+    public void set(T value) {
+        Thread t = Thread.currentThread();
+        Object[] a = t.indexedThreadLocals;
+        int j = slot;
+        if (a != null && j < a.length && a[j] == this)
+            a[j + 1] = value;
+        else {
+            checkNotReleased();
+            store(t, value);
+        }
+    }
+
+    /**
+     * Removes the current thread's value for this thread-local
+     * variable.  If this thread-local variable is subsequently
+     * {@linkplain #get read} by the current thread, its value will be
+     * reinitialized by invoking its {@link #initialValue} method,
+     * unless its value is {@linkplain #set set} by the current thread
+     * in the interim.
+     */
+    public void remove() {
+        Object[] a = Thread.currentThread().indexedThreadLocals;
+        int j = slot;
+        if (a != null && j < a.length && a[j] == this) {
+            a[j] = null;
+            a[j + 1] = null;
+        }
+    }
+
+    /**
+     * Removes the current thread's value for this variable and frees
+     * its index for reuse by thread-local variables created later.
+     * Values that other threads hold for this variable become
+     * unreachable through it, and are dropped when those threads
+     * terminate or reuse the index.  Once released, this variable
+     * must no longer be used; its methods may throw
+     * {@code IllegalStateException} or return stale values.  Releasing
+     * a variable more than once has no further effect.
+     */
+    public void release() {
+        remove();
+        synchronized (IndexedThreadLocal.class) {
+            if (released)
+                return;
+            released = true;
+            if (freeCount == freeIndices.length)
+                freeIndices = Arrays.copyOf(freeIndices, freeCount << 1);
+            freeIndices[freeCount++] = slot >>> 1;
+        }
+    }
+
+    private void checkNotReleased() {
+        boolean r;
+        synchronized (IndexedThreadLocal.class) {
+            r = released;
+        }
+        if (r)
+            throw new IllegalStateException("IndexedThreadLocal released");
+    }
+
+    /**
+     * Stores value for this variable in t's array, claiming the slot
+     * and growing the array if necessary.
+     */
+    private void store(Thread t, Object value) {
+        Object[] a = t.indexedThreadLocals;
+        int j = slot;
+        if (a == null)
+            a = t.indexedThreadLocals = new Object[Math.max(32, j + 2)];
+        else if (j >= a.length) {
+            int n = a.length;
+            int newLen = (n <= (Integer.MAX_VALUE >>> 1)) ? n << 1 : j + 2;
+            a = t.indexedThreadLocals =
+                Arrays.copyOf(a, Math.max(newLen, j + 2));
+        }
+        a[j] = this;
+        a[j + 1] = value;
+    }
+}
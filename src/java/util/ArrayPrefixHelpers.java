@@ -0,0 +1,433 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * ForkJoin tasks to perform Arrays.parallelPrefix operations.
+ *
+ * Each cumulation is performed in two passes over a tree of tasks
+ * whose leaves cover consecutive segments of the array.  The first
+ * (up-sweep) pass computes, bottom-up, the reduction ("out") of each
+ * subtree.  The second (down-sweep) pass pushes incoming prefixes
+ * ("in") top-down: a left child receives its parent's prefix, and a
+ * right child receives the combination of that prefix with its
+ * left sibling's reduction.  Each leaf then cumulates its segment
+ * in place, starting from its prefix.  Because the leftmost leaf
+ * has no incoming prefix, it cumulates in place during the first
+ * pass and is skipped in the second.
+ *
+ * The same task objects are used for both passes, re-armed using
+ * ForkJoinTask.reinitialize, so each tree node also serves to carry
+ * the values exchanged between passes.  Tasks are only ever run
+ * through method cumulate, which falls back to a sequential loop
+ * for small ranges or when the common pool has no parallelism to
+ * offer.
+ *
+ * @since 1.8
+ */
+class ArrayPrefixHelpers {
+    private ArrayPrefixHelpers() {} // non-instantiable
+
+    /** The smallest subtask array partition size to use as threshold */
+    static final int MIN_PARTITION = 16;
+
+    /**
+     * Returns the leaf segment size for a cumulation of n elements,
+     * or zero if the cumulation should be performed sequentially.
+     */
+    static int thresholdFor(int n) {
+        int p, th;
+        if (n <= MIN_PARTITION ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) <= 1)
+            return 0;
+        return ((th = n / (p << 3)) <= MIN_PARTITION) ? MIN_PARTITION : th;
+    }
+
+    /**
+     * Cumulates the range [lo, hi) of the given array in place.
+     * Callers perform argument checks.
+     */
+    static <T> void cumulate(T[] array, BinaryOperator<T> function,
+                             int lo, int hi) {
+        int th;
+        if ((th = thresholdFor(hi - lo)) == 0) {
+            if (lo < hi) {
+                T x = array[lo];
+                for (int i = lo + 1; i < hi; ++i)
+                    array[i] = x = function.apply(x, array[i]);
+            }
+        }
+        else {
+            CumulateTask<T> root =
+                new CumulateTask<T>(array, function, lo, hi, th, true);
+            root.invoke();          // up-sweep
+            root.down = true;
+            root.reinitialize();
+            root.invoke();          // down-sweep
+        }
+    }
+
+    static final class CumulateTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 5293554502939613543L;
+        final T[] array;
+        final BinaryOperator<T> function;
+        final int lo, hi, threshold;
+        final boolean first;            // true if leftmost; no incoming prefix
+        CumulateTask<T> left, right;    // null if leaf
+        T in, out;                      // incoming prefix, subtree reduction
+        boolean down;                   // true during down-sweep
+
+        CumulateTask(T[] array, BinaryOperator<T> function,
+                     int lo, int hi, int threshold, boolean first) {
+            this.array = array; this.function = function;
+            this.lo = lo; this.hi = hi; this.threshold = threshold;
+            this.first = first;
+        }
+
+        protected void compute() {
+            final BinaryOperator<T> fn;
+            final T[] a;
+            if ((fn = this.function) == null || (a = this.array) == null)
+                throw new NullPointerException();    // hoist checks
+            int l = lo, h = hi;
+            CumulateTask<T> lt = left, rt = right;
+            if (!down) {                             // up-sweep
+                if (h - l > threshold) {
+                    int mid = (l + h) >>> 1;
+                    left = lt = new CumulateTask<T>
+                        (a, fn, l, mid, threshold, first);
+                    right = rt = new CumulateTask<T>
+                        (a, fn, mid, h, threshold, false);
+                    invokeAll(lt, rt);
+                    out = fn.apply(lt.out, rt.out);
+                }
+                else if (first) {                    // cumulate now
+                    T x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        a[i] = x = fn.apply(x, a[i]);
+                    out = x;
+                }
+                else {                               // reduce only
+                    T x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        x = fn.apply(x, a[i]);
+                    out = x;
+                }
+            }
+            else if (lt != null) {                   // down-sweep
+                lt.in = in;
+                rt.in = first ? lt.out : fn.apply(in, lt.out);
+                lt.down = rt.down = true;
+                lt.reinitialize();
+                rt.reinitialize();
+                invokeAll(lt, rt);
+            }
+            else if (!first) {                       // leftmost already done
+                T x = in;
+                for (int i = l; i < h; ++i)
+                    a[i] = x = fn.apply(x, a[i]);
+            }
+        }
+    }
+
+    /**
+     * Cumulates the range [lo, hi) of the given array in place.
+     * Callers perform argument checks.
+     */
+    static void cumulate(long[] array, LongBinaryOperator function,
+                         int lo, int hi) {
+        int th;
+        if ((th = thresholdFor(hi - lo)) == 0) {
+            if (lo < hi) {
+                long x = array[lo];
+                for (int i = lo + 1; i < hi; ++i)
+                    array[i] = x = function.applyAsLong(x, array[i]);
+            }
+        }
+        else {
+            LongCumulateTask root =
+                new LongCumulateTask(array, function, lo, hi, th, true);
+            root.invoke();          // up-sweep
+            root.down = true;
+            root.reinitialize();
+            root.invoke();          // down-sweep
+        }
+    }
+
+    static final class LongCumulateTask extends RecursiveAction {
+        private static final long serialVersionUID = -5074099945909284273L;
+        final long[] array;
+        final LongBinaryOperator function;
+        final int lo, hi, threshold;
+        final boolean first;            // true if leftmost; no incoming prefix
+        LongCumulateTask left, right;   // null if leaf
+        long in, out;                   // incoming prefix, subtree reduction
+        boolean down;                   // true during down-sweep
+
+        LongCumulateTask(long[] array, LongBinaryOperator function,
+                         int lo, int hi, int threshold, boolean first) {
+            this.array = array; this.function = function;
+            this.lo = lo; this.hi = hi; this.threshold = threshold;
+            this.first = first;
+        }
+
+        protected void compute() {
+            final LongBinaryOperator fn;
+            final long[] a;
+            if ((fn = this.function) == null || (a = this.array) == null)
+                throw new NullPointerException();    // hoist checks
+            int l = lo, h = hi;
+            LongCumulateTask lt = left, rt = right;
+            if (!down) {                             // up-sweep
+                if (h - l > threshold) {
+                    int mid = (l + h) >>> 1;
+                    left = lt = new LongCumulateTask
+                        (a, fn, l, mid, threshold, first);
+                    right = rt = new LongCumulateTask
+                        (a, fn, mid, h, threshold, false);
+                    invokeAll(lt, rt);
+                    out = fn.applyAsLong(lt.out, rt.out);
+                }
+                else if (first) {                    // cumulate now
+                    long x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        a[i] = x = fn.applyAsLong(x, a[i]);
+                    out = x;
+                }
+                else {                               // reduce only
+                    long x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        x = fn.applyAsLong(x, a[i]);
+                    out = x;
+                }
+            }
+            else if (lt != null) {                   // down-sweep
+                lt.in = in;
+                rt.in = first ? lt.out : fn.applyAsLong(in, lt.out);
+                lt.down = rt.down = true;
+                lt.reinitialize();
+                rt.reinitialize();
+                invokeAll(lt, rt);
+            }
+            else if (!first) {                       // leftmost already done
+                long x = in;
+                for (int i = l; i < h; ++i)
+                    a[i] = x = fn.applyAsLong(x, a[i]);
+            }
+        }
+    }
+
+    /**
+     * Cumulates the range [lo, hi) of the given array in place.
+     * Callers perform argument checks.
+     */
+    static void cumulate(double[] array, DoubleBinaryOperator function,
+                         int lo, int hi) {
+        int th;
+        if ((th = thresholdFor(hi - lo)) == 0) {
+            if (lo < hi) {
+                double x = array[lo];
+                for (int i = lo + 1; i < hi; ++i)
+                    array[i] = x = function.applyAsDouble(x, array[i]);
+            }
+        }
+        else {
+            DoubleCumulateTask root =
+                new DoubleCumulateTask(array, function, lo, hi, th, true);
+            root.invoke();          // up-sweep
+            root.down = true;
+            root.reinitialize();
+            root.invoke();          // down-sweep
+        }
+    }
+
+    static final class DoubleCumulateTask extends RecursiveAction {
+        private static final long serialVersionUID = -586947823794232033L;
+        final double[] array;
+        final DoubleBinaryOperator function;
+        final int lo, hi, threshold;
+        final boolean first;            // true if leftmost; no incoming prefix
+        DoubleCumulateTask left, right; // null if leaf
+        double in, out;                 // incoming prefix, subtree reduction
+        boolean down;                   // true during down-sweep
+
+        DoubleCumulateTask(double[] array, DoubleBinaryOperator function,
+                           int lo, int hi, int threshold, boolean first) {
+            this.array = array; this.function = function;
+            this.lo = lo; this.hi = hi; this.threshold = threshold;
+            this.first = first;
+        }
+
+        protected void compute() {
+            final DoubleBinaryOperator fn;
+            final double[] a;
+            if ((fn = this.function) == null || (a = this.array) == null)
+                throw new NullPointerException();    // hoist checks
+            int l = lo, h = hi;
+            DoubleCumulateTask lt = left, rt = right;
+            if (!down) {                             // up-sweep
+                if (h - l > threshold) {
+                    int mid = (l + h) >>> 1;
+                    left = lt = new DoubleCumulateTask
+                        (a, fn, l, mid, threshold, first);
+                    right = rt = new DoubleCumulateTask
+                        (a, fn, mid, h, threshold, false);
+                    invokeAll(lt, rt);
+                    out = fn.applyAsDouble(lt.out, rt.out);
+                }
+                else if (first) {                    // cumulate now
+                    double x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        a[i] = x = fn.applyAsDouble(x, a[i]);
+                    out = x;
+                }
+                else {                               // reduce only
+                    double x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        x = fn.applyAsDouble(x, a[i]);
+                    out = x;
+                }
+            }
+            else if (lt != null) {                   // down-sweep
+                lt.in = in;
+                rt.in = first ? lt.out : fn.applyAsDouble(in, lt.out);
+                lt.down = rt.down = true;
+                lt.reinitialize();
+                rt.reinitialize();
+                invokeAll(lt, rt);
+            }
+            else if (!first) {                       // leftmost already done
+                double x = in;
+                for (int i = l; i < h; ++i)
+                    a[i] = x = fn.applyAsDouble(x, a[i]);
+            }
+        }
+    }
+
+    /**
+     * Cumulates the range [lo, hi) of the given array in place.
+     * Callers perform argument checks.
+     */
+    static void cumulate(int[] array, IntBinaryOperator function,
+                         int lo, int hi) {
+        int th;
+        if ((th = thresholdFor(hi - lo)) == 0) {
+            if (lo < hi) {
+                int x = array[lo];
+                for (int i = lo + 1; i < hi; ++i)
+                    array[i] = x = function.applyAsInt(x, array[i]);
+            }
+        }
+        else {
+            IntCumulateTask root =
+                new IntCumulateTask(array, function, lo, hi, th, true);
+            root.invoke();          // up-sweep
+            root.down = true;
+            root.reinitialize();
+            root.invoke();          // down-sweep
+        }
+    }
+
+    static final class IntCumulateTask extends RecursiveAction {
+        private static final long serialVersionUID = 3731755594596840961L;
+        final int[] array;
+        final IntBinaryOperator function;
+        final int lo, hi, threshold;
+        final boolean first;            // true if leftmost; no incoming prefix
+        IntCumulateTask left, right;    // null if leaf
+        int in, out;                    // incoming prefix, subtree reduction
+        boolean down;                   // true during down-sweep
+
+        IntCumulateTask(int[] array, IntBinaryOperator function,
+                        int lo, int hi, int threshold, boolean first) {
+            this.array = array; this.function = function;
+            this.lo = lo; this.hi = hi; this.threshold = threshold;
+            this.first = first;
+        }
+
+        protected void compute() {
+            final IntBinaryOperator fn;
+            final int[] a;
+            if ((fn = this.function) == null || (a = this.array) == null)
+                throw new NullPointerException();    // hoist checks
+            int l = lo, h = hi;
+            IntCumulateTask lt = left, rt = right;
+            if (!down) {                             // up-sweep
+                if (h - l > threshold) {
+                    int mid = (l + h) >>> 1;
+                    left = lt = new IntCumulateTask
+                        (a, fn, l, mid, threshold, first);
+                    right = rt = new IntCumulateTask
+                        (a, fn, mid, h, threshold, false);
+                    invokeAll(lt, rt);
+                    out = fn.applyAsInt(lt.out, rt.out);
+                }
+                else if (first) {                    // cumulate now
+                    int x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        a[i] = x = fn.applyAsInt(x, a[i]);
+                    out = x;
+                }
+                else {                               // reduce only
+                    int x = a[l];
+                    for (int i = l + 1; i < h; ++i)
+                        x = fn.applyAsInt(x, a[i]);
+                    out = x;
+                }
+            }
+            else if (lt != null) {                   // down-sweep
+                lt.in = in;
+                rt.in = first ? lt.out : fn.applyAsInt(in, lt.out);
+                lt.down = rt.down = true;
+                lt.reinitialize();
+                rt.reinitialize();
+                invokeAll(lt, rt);
+            }
+            else if (!first) {                       // leftmost already done
+                int x = in;
+                for (int i = l; i < h; ++i)
+                    a[i] = x = fn.applyAsInt(x, a[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,943 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helper utilities for the parallel sort methods in Arrays.parallelSort.
+ *
+ * For each primitive type, plus Object, we define a static class to
+ * contain the Sorter and Merger implementations for that type:
+ *
+ * Sorter classes based mainly on CilkSort
+ * <A href="http://supertech.lcs.mit.edu/cilk/"> Cilk</A>:
+ * Basic algorithm:
+ * if array size is small, just use a sequential quicksort (via Arrays.sort)
+ *         Otherwise:
+ *         1. Break array in half.
+ *         2. For each half,
+ *             a. break the half in half (i.e., quarters),
+ *             b. sort the quarters
+ *             c. merge them together
+ *         3. merge together the two halves.
+ *
+ * One reason for splitting in quarters is that this guarantees that
+ * the final sort is in the main array, not the workspace array.
+ * (workspace and main swap roles on each subsort step.)  Leaf-level
+ * sorts use the associated sequential sort (DualPivotQuicksort for
+ * primitives, TimSort for Objects).
+ *
+ * Merger classes perform merging for Sorter.  They are structured
+ * such that if the underlying sort is stable (as is true for
+ * TimSort), then so is the full sort.  If big enough, they split the
+ * largest of the two partitions in half, find the greatest point in
+ * smaller partition less than the beginning of the second half of
+ * larger via binary search; and then merge in parallel the two
+ * partitions.  In part to ensure tasks are triggered in
+ * stability-preserving order, the current task forks off the upper
+ * part of each split, and keeps the lower part, joining the forked
+ * tasks (in reverse order of creation) once its own sequential merge
+ * completes.
+ *
+ * Floating-point merges compare using Float.compare/Double.compare,
+ * so that the total order used by the sequential sorts (in which
+ * -0.0 precedes 0.0 and NaNs sort last) is preserved across merged
+ * partitions.
+ *
+ * Tasks are plain RecursiveActions, so a parallel sort invoked from
+ * outside of any ForkJoinPool runs its root task in the caller, and
+ * forks subtasks to the ForkJoinPool common pool.
+ *
+ * @since 1.8
+ */
+/*package*/ class ArraysParallelSortHelpers {
+
+    /** Object support class */
+    static final class FJObject {
+        static final class Sorter<T> extends RecursiveAction {
+            private static final long serialVersionUID = 2446542900576103244L;
+            final T[] a, w;
+            final int base, size, wbase, gran;
+            final Comparator<? super T> comparator;
+            Sorter(T[] a, T[] w, int base, int size, int wbase, int gran,
+                   Comparator<? super T> comparator) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+                this.comparator = comparator;
+            }
+            protected void compute() {
+                T[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                Comparator<? super T> c = this.comparator;
+                if (n <= g) {
+                    TimSort.sort(a, b, b + n, c);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter<T>(a, w, b, q, wb, g, c),
+                          new Sorter<T>(a, w, b + q, h - q, wb + q, g, c),
+                          new Sorter<T>(a, w, b + h, q, wb + h, g, c),
+                          new Sorter<T>(a, w, b + u, n - u, wb + u, g, c));
+                invokeAll(new Merger<T>(a, w, b, q, b + q, h - q, wb, g, c),
+                          new Merger<T>(a, w, b + h, q, b + u, n - u, wb + h, g, c));
+                new Merger<T>(w, a, wb, h, wb + h, n - h, b, g, c).compute();
+            }
+        }
+
+        static final class Merger<T> extends RecursiveAction {
+            private static final long serialVersionUID = 2446542900576103244L;
+            final T[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            final Comparator<? super T> comparator;
+            Merger<T> next; // forked siblings, joined in reverse order
+            Merger(T[] a, T[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran,
+                   Comparator<? super T> comparator) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+                this.comparator = comparator;
+            }
+
+            protected void compute() {
+                Comparator<? super T> c = this.comparator;
+                T[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0 ||
+                    c == null)
+                    throw new IllegalStateException(); // hoist checks
+                Merger<T> forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        T split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (c.compare(split, a[rm + rb]) <= 0)
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        T split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (c.compare(split, a[lm + lb]) < 0)
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger<T> m = new Merger<T>(a, w, lb + lh, ln - lh,
+                                                rb + rh, rn - rh,
+                                                k + lh + rh, g, c);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    T t, al, ar;
+                    if (c.compare((al = a[lb]), (ar = a[rb])) <= 0) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJObject
+
+    /** byte support class */
+    static final class FJByte {
+        static final class Sorter extends RecursiveAction {
+            private static final long serialVersionUID = 213765686075115810L;
+            final byte[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(byte[] a, byte[] w, int base, int size, int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                byte[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    DualPivotQuicksort.sort(a, b, b + n - 1);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            private static final long serialVersionUID = 213765686075115810L;
+            final byte[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger next; // forked siblings, joined in reverse order
+            Merger(byte[] a, byte[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            protected void compute() {
+                byte[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                Merger forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        byte split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        byte split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    byte t, al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJByte
+
+    /** char support class */
+    static final class FJChar {
+        static final class Sorter extends RecursiveAction {
+            private static final long serialVersionUID = 2729047168575390053L;
+            final char[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(char[] a, char[] w, int base, int size, int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                char[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    DualPivotQuicksort.sort(a, b, b + n - 1);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            private static final long serialVersionUID = 2729047168575390053L;
+            final char[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger next; // forked siblings, joined in reverse order
+            Merger(char[] a, char[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            protected void compute() {
+                char[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                Merger forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        char split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        char split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    char t, al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJChar
+
+    /** short support class */
+    static final class FJShort {
+        static final class Sorter extends RecursiveAction {
+            private static final long serialVersionUID = 2101393649780135078L;
+            final short[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(short[] a, short[] w, int base, int size, int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                short[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    DualPivotQuicksort.sort(a, b, b + n - 1);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            private static final long serialVersionUID = 2101393649780135078L;
+            final short[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger next; // forked siblings, joined in reverse order
+            Merger(short[] a, short[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            protected void compute() {
+                short[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                Merger forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        short split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        short split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    short t, al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJShort
+
+    /** int support class */
+    static final class FJInt {
+        static final class Sorter extends RecursiveAction {
+            private static final long serialVersionUID = 996668585430238834L;
+            final int[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(int[] a, int[] w, int base, int size, int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    DualPivotQuicksort.sort(a, b, b + n - 1);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            private static final long serialVersionUID = 996668585430238834L;
+            final int[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger next; // forked siblings, joined in reverse order
+            Merger(int[] a, int[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            protected void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                Merger forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        int split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        int split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    int t, al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJInt
+
+    /** long support class */
+    static final class FJLong {
+        static final class Sorter extends RecursiveAction {
+            private static final long serialVersionUID = 3827625500599576348L;
+            final long[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(long[] a, long[] w, int base, int size, int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    DualPivotQuicksort.sort(a, b, b + n - 1);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            private static final long serialVersionUID = 3827625500599576348L;
+            final long[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger next; // forked siblings, joined in reverse order
+            Merger(long[] a, long[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            protected void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                Merger forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        long split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        long split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    long t, al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJLong
+
+    /** float support class */
+    static final class FJFloat {
+        static final class Sorter extends RecursiveAction {
+            private static final long serialVersionUID = 2532767522193881473L;
+            final float[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(float[] a, float[] w, int base, int size, int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                float[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    DualPivotQuicksort.sort(a, b, b + n - 1);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            private static final long serialVersionUID = 2532767522193881473L;
+            final float[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger next; // forked siblings, joined in reverse order
+            Merger(float[] a, float[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            protected void compute() {
+                float[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                Merger forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        float split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (Float.compare(split, a[rm + rb]) <= 0)
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        float split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (Float.compare(split, a[lm + lb]) < 0)
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    float t, al, ar;
+                    if (Float.compare((al = a[lb]), (ar = a[rb])) <= 0) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJFloat
+
+    /** double support class */
+    static final class FJDouble {
+        static final class Sorter extends RecursiveAction {
+            private static final long serialVersionUID = 3676721741493549484L;
+            final double[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(double[] a, double[] w, int base, int size, int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                double[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    DualPivotQuicksort.sort(a, b, b + n - 1);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            private static final long serialVersionUID = 3676721741493549484L;
+            final double[] a, w; // main and workspace arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger next; // forked siblings, joined in reverse order
+            Merger(double[] a, double[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            protected void compute() {
+                double[] a = this.a, w = this.w; // localize all params
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                Merger forked = null;
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        double split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (Double.compare(split, a[rm + rb]) <= 0)
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        double split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) {
+                            int lm = (lo + lh) >>> 1;
+                            if (Double.compare(split, a[lm + lb]) < 0)
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    m.next = forked;
+                    forked = m;
+                    m.fork();
+                    rn = rh;
+                    ln = lh;
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    double t, al, ar;
+                    if (Double.compare((al = a[lb]), (ar = a[rb])) <= 0) {
+                        lb++; t = al;
+                    }
+                    else {
+                        rb++; t = ar;
+                    }
+                    w[k++] = t;
+                }
+                if (rb < rf)
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                else if (lb < lf)
+                    System.arraycopy(a, lb, w, k, lf - lb);
+
+                for (; forked != null; forked = forked.next)
+                    forked.join();
+            }
+        }
+    } // FJDouble
+}
@@ -28,6 +28,11 @@ import java.io.Serializable;
 import java.io.ObjectOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class consists exclusively of static methods that operate on or return
@@ -135,11 +140,14 @@ public class Collections {
      * Fourth Annual ACM-SIAM Symposium on Discrete Algorithms, pp 467-474,
      * January 1993.
      *
-     * <p>This implementation dumps the specified list into an array, sorts
-     * the array, and iterates over the list resetting each element
-     * from the corresponding position in the array.  This avoids the
-     * n<sup>2</sup> log(n) performance that would result from attempting
-     * to sort a linked list in place.
+     * <p>If the list is an {@link ArrayList}, a {@link Vector} or a
+     * {@link CopyOnWriteArrayList}, this
+     * implementation calls the list's own {@code sort} method, which sorts
+     * the backing array directly.  Otherwise it dumps the specified list
+     * into an array, sorts the array, and iterates over the list resetting
+     * each element from the corresponding position in the array.  This
+     * avoids the n<sup>2</sup> log(n) performance that would result from
+     * attempting to sort a linked list in place.
      *
      * @param  list the list to be sorted.
      * @throws ClassCastException if the list contains elements that are not
@@ -151,6 +159,8 @@ public class Collections {
      *         found to violate the {@link Comparable} contract
      */
     public static <T extends Comparable<? super T>> void sort(List<T> list) {
+        if (sortInPlace(list, null))
+            return;
         Object[] a = list.toArray();
         Arrays.sort(a);
         ListIterator<T> i = list.listIterator();
@@ -195,11 +205,14 @@ public class Collections {
      * Fourth Annual ACM-SIAM Symposium on Discrete Algorithms, pp 467-474,
      * January 1993.
      *
-     * <p>This implementation dumps the specified list into an array, sorts
-     * the array, and iterates over the list resetting each element
-     * from the corresponding position in the array.  This avoids the
-     * n<sup>2</sup> log(n) performance that would result from attempting
-     * to sort a linked list in place.
+     * <p>If the list is an {@link ArrayList}, a {@link Vector} or a
+     * {@link CopyOnWriteArrayList}, this
+     * implementation calls the list's own {@code sort} method, which sorts
+     * the backing array directly.  Otherwise it dumps the specified list
+     * into an array, sorts the array, and iterates over the list resetting
+     * each element from the corresponding position in the array.  This
+     * avoids the n<sup>2</sup> log(n) performance that would result from
+     * attempting to sort a linked list in place.
      *
      * @param  list the list to be sorted.
      * @param  c the comparator to determine the order of the list.  A
@@ -213,6 +226,8 @@ public class Collections {
      *         found to violate the {@link Comparator} contract
      */
     public static <T> void sort(List<T> list, Comparator<? super T> c) {
+        if (sortInPlace(list, c))
+            return;
         Object[] a = list.toArray();
         Arrays.sort(a, (Comparator)c);
         ListIterator i = list.listIterator();
@@ -222,6 +237,23 @@ public class Collections {
         }
     }
 
+    /**
+     * Sorts the list by its own {@code sort} method, if it is one of the
+     * platform lists that sort their backing array in place.  Returns
+     * false, leaving the list unchanged, for any other list.
+     */
+    private static <T> boolean sortInPlace(List<T> list, Comparator<? super T> c) {
+        if (list instanceof ArrayList)
+            ((ArrayList<T>) list).sort(c);
+        else if (list instanceof Vector)
+            ((Vector<T>) list).sort(c);
+        else if (list instanceof CopyOnWriteArrayList)
+            ((CopyOnWriteArrayList<T>) list).sort(c);
+        else
+            return false;
+        return true;
+    }
+
 
     /**
      * Searches the specified list for the specified object using the binary
@@ -3442,6 +3474,96 @@ public class Collections {
 
     }
 
+    // Streams
+
+    /**
+     * Creates a {@link Spliterator} over the elements in the specified
+     * collection.
+     *
+     * <p>Where the collection is one of the platform implementations that
+     * provide their own {@code spliterator()} method ({@link ArrayList},
+     * {@link ArrayDeque}, {@link HashSet}, {@link TreeSet}, the collection
+     * views of {@link HashMap}, {@link TreeMap} and
+     * {@link java.util.concurrent.ConcurrentHashMap}, and
+     * {@link java.util.concurrent.LinkedBlockingQueue}), that spliterator
+     * is returned; it splits the backing structure in place and reports
+     * the characteristics documented by the implementation.
+     *
+     * <p>Otherwise the spliterator is <em>late-binding</em> and
+     * <em>fail-fast</em> to the extent of the collection's iterator.  It
+     * reports {@link Spliterator#SIZED} and {@link Spliterator#SUBSIZED},
+     * together with {@link Spliterator#ORDERED} if the collection is a
+     * {@code List}, or {@link Spliterator#DISTINCT} if it is a {@code Set}.
+     *
+     * @param <T> the class of the objects in the collection
+     * @param c the collection
+     * @return a {@code Spliterator} over the elements in the collection
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Spliterator<T> spliterator(Collection<T> c) {
+        if (c instanceof ArrayList)
+            return ((ArrayList<T>) c).spliterator();
+        if (c instanceof ArrayDeque)
+            return ((ArrayDeque<T>) c).spliterator();
+        if (c instanceof HashSet)
+            return ((HashSet<T>) c).spliterator();
+        if (c instanceof TreeSet)
+            return ((TreeSet<T>) c).spliterator();
+        if (c instanceof HashMap.KeySet)
+            return ((HashMap.KeySet) c).spliterator();
+        if (c instanceof HashMap.Values)
+            return ((HashMap.Values) c).spliterator();
+        if (c instanceof HashMap.EntrySet)
+            return ((HashMap.EntrySet) c).spliterator();
+        if (c instanceof TreeMap.KeySet)
+            return ((TreeMap.KeySet<T>) c).spliterator();
+        if (c instanceof TreeMap.Values)
+            return ((TreeMap.Values) c).spliterator();
+        if (c instanceof TreeMap.EntrySet)
+            return ((TreeMap.EntrySet) c).spliterator();
+        if (c instanceof ConcurrentHashMap.CollectionView)
+            return ((ConcurrentHashMap.CollectionView<?, ?, T>) c).spliterator();
+        if (c instanceof LinkedBlockingQueue)
+            return ((LinkedBlockingQueue<T>) c).spliterator();
+        int characteristics = (c instanceof List) ? Spliterator.ORDERED
+                            : (c instanceof Set) ? Spliterator.DISTINCT
+                            : 0;
+        return Spliterators.spliterator(c, characteristics);
+    }
+
+    /**
+     * Returns a sequential {@code Stream} with the specified collection as its
+     * source.  The collection is not traversed until the terminal operation
+     * of the stream pipeline commences.
+     *
+     * @param <T> the class of the objects in the collection
+     * @param c the collection
+     * @return a sequential {@code Stream} over the elements in the collection
+     * @see #spliterator(Collection)
+     * @since 1.8
+     */
+    public static <T> Stream<T> stream(Collection<T> c) {
+        return StreamSupport.stream(spliterator(c), false);
+    }
+
+    /**
+     * Returns a possibly parallel {@code Stream} with the specified
+     * collection as its source.  The collection is split for parallel
+     * evaluation by its spliterator; a collection whose spliterator splits
+     * poorly yields little parallelism.
+     *
+     * @param <T> the class of the objects in the collection
+     * @param c the collection
+     * @return a possibly parallel {@code Stream} over the elements in the
+     *         collection
+     * @see #spliterator(Collection)
+     * @since 1.8
+     */
+    public static <T> Stream<T> parallelStream(Collection<T> c) {
+        return StreamSupport.stream(spliterator(c), true);
+    }
+
     // Miscellaneous
 
     /**
@@ -0,0 +1,1997 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed vector of bits, indexed by nonnegative integers, with the
+ * operations of {@link BitSet}.  Where a {@code BitSet} keeps one word for
+ * every 64 indices up to its highest set bit, this class splits the index
+ * space into chunks of 2<sup>16</sup> indices and keeps only the chunks
+ * that hold set bits.  Each chunk is stored in the smallest of three
+ * forms:
+ *
+ * <ul>
+ * <li>a sorted array of 16-bit offsets, for up to 4096 set bits,
+ * <li>a bitmap of 1024 words, for denser chunks, or
+ * <li>a sorted list of runs of consecutive set bits, for clustered
+ *     chunks, chosen by {@link #runOptimize} and by range operations.
+ * </ul>
+ *
+ * <p>A sparse set of a few million ids spread over the whole {@code int}
+ * range therefore takes a few bytes per member rather than a quarter of
+ * a gigabyte, and a run of consecutive ids takes a few bytes in all.  The
+ * logical operations {@link #and}, {@link #or}, {@link #xor} and
+ * {@link #andNot} walk the two sorted chunk lists together, so chunks
+ * present in only one operand are skipped or copied without looking at
+ * their bits, and pairs of chunks are combined by the algorithm suited to
+ * their forms.
+ *
+ * <p>The contents convert to and from the word layout of {@code BitSet}
+ * with {@link #valueOf(long[])}, {@link #valueOf(BitSet)},
+ * {@link #toLongArray} and {@link #toBitSet}.  They may also be written
+ * with {@link #serialize} in a compact little-endian form that starts
+ * with an index of the chunks; {@link #wrap} reads that form from a
+ * buffer, for example a {@link java.nio.MappedByteBuffer}, decoding each
+ * chunk only when it is first accessed.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code CompressedBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code CompressedBitSet} is not safe for multithreaded use without
+ * external synchronization.  This includes read operations on a set
+ * obtained from {@link #wrap}, which decode chunks on demand.
+ *
+ * @see BitSet
+ * @since 1.8
+ */
+public class CompressedBitSet implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -6174263812207495306L;
+
+    /*
+     * Index i is stored in the chunk with key i >>> 16, as the offset
+     * i & 0xFFFF within that chunk.  The keys of the chunks in use are
+     * kept sorted in keys[0..chunks), and containers[k] holds the
+     * offsets for keys[k].  No container is ever empty: a chunk whose
+     * last bit is cleared is removed.
+     *
+     * A set obtained from wrap() leaves each container null until it is
+     * first needed; mapped[k] then locates it in the source buffer.  All
+     * access to containers goes through container(k).
+     */
+
+    /** Number of index bits addressed within a chunk */
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** Largest chunk key; indices are nonnegative ints */
+    private static final int MAX_KEY = Integer.MAX_VALUE >>> CHUNK_BITS;
+
+    /** Words in a bitmap container */
+    private static final int BITMAP_WORDS = CHUNK_SIZE >>> 6;
+
+    /** Largest cardinality kept in an array container */
+    private static final int ARRAY_MAX = 4096;
+
+    /* Container forms, as recorded in the serialized form */
+    private static final int TYPE_ARRAY  = 0;
+    private static final int TYPE_BITMAP = 1;
+    private static final int TYPE_RUN    = 2;
+
+    /** First int of the serialized form */
+    private static final int SERIAL_COOKIE = 0x3B3A0001;
+
+    /** Size of the fixed part of the serialized form */
+    private static final int HEADER_BYTES = 8;
+
+    /** Size of the per-chunk descriptor and offset in the serialized form */
+    private static final int DESCRIPTOR_BYTES = 12;
+
+    private transient char[] keys;
+    private transient Container[] containers;
+    private transient int chunks;
+
+    /** For a wrapped set: (offset << 32) | (cardinality << 2) | type */
+    private transient long[] mapped;
+
+    /** For a wrapped set: the serialized form, in little-endian order */
+    private transient ByteBuffer source;
+
+    /**
+     * Creates a new, empty compressed bit set.
+     */
+    public CompressedBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private CompressedBitSet(char[] keys, Container[] containers, int chunks) {
+        this.keys = keys;
+        this.containers = containers;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Returns a new compressed bit set containing all the bits in the
+     * given long array, laid out as for {@link BitSet#valueOf(long[])}.
+     *
+     * @param longs a long array containing a little-endian representation
+     *        of a sequence of bits to be used as the initial bits of the
+     *        new bit set
+     * @return a {@code CompressedBitSet} containing all the bits in the
+     *         long array
+     * @throws IllegalArgumentException if a bit at an index greater than
+     *         {@code Integer.MAX_VALUE} is set
+     */
+    public static CompressedBitSet valueOf(long[] longs) {
+        int n = longs.length;
+        while (n > 0 && longs[n - 1] == 0)
+            n--;
+        if (n > (MAX_KEY + 1) * BITMAP_WORDS)
+            throw new IllegalArgumentException("Bit index exceeds Integer.MAX_VALUE");
+        int nchunks = (n + BITMAP_WORDS - 1) / BITMAP_WORDS;
+        char[] keys = new char[Math.max(nchunks, 1)];
+        Container[] containers = new Container[keys.length];
+        int k = 0;
+        for (int c = 0; c < nchunks; c++) {
+            int from = c * BITMAP_WORDS;
+            long[] w = Arrays.copyOfRange(longs, from, from + BITMAP_WORDS);
+            Container r = fromWords(w);
+            if (r != null) {
+                keys[k] = (char) c;
+                containers[k++] = r;
+            }
+        }
+        return new CompressedBitSet(keys, containers, k);
+    }
+
+    /**
+     * Returns a new compressed bit set containing the same bits as the
+     * given bit set.
+     *
+     * @param set a bit set
+     * @return a {@code CompressedBitSet} containing the bits of {@code set}
+     */
+    public static CompressedBitSet valueOf(BitSet set) {
+        return valueOf(set.toLongArray());
+    }
+
+    /**
+     * Returns a new long array containing all the bits in this set, laid
+     * out as by {@link BitSet#toLongArray}, so that
+     * {@code BitSet.valueOf(s.toLongArray())} has the same bits as
+     * {@code s}.
+     *
+     * @return a long array containing a little-endian representation
+     *         of all the bits in this set
+     */
+    public long[] toLongArray() {
+        int len = length();
+        long[] words = new long[(len + 63) >>> 6];
+        for (int k = 0; k < chunks; k++)
+            container(k).orInto(words, keys[k] * BITMAP_WORDS);
+        return words;
+    }
+
+    /**
+     * Returns a new {@link BitSet} containing the same bits as this set.
+     *
+     * @return a {@code BitSet} containing the bits of this set
+     */
+    public BitSet toBitSet() {
+        return BitSet.valueOf(toLongArray());
+    }
+
+    // Chunk table
+
+    /**
+     * Returns the container at position k, decoding it from the source
+     * buffer if it has not been used yet.
+     */
+    private Container container(int k) {
+        Container c = containers[k];
+        if (c == null)
+            containers[k] = c = load(mapped[k]);
+        return c;
+    }
+
+    /**
+     * Returns the cardinality of the container at position k, without
+     * decoding it.
+     */
+    private int cardinality(int k) {
+        Container c = containers[k];
+        return (c != null) ? c.cardinality() : (int) (mapped[k] >>> 2) & 0x1FFFF;
+    }
+
+    /**
+     * Returns the position of the chunk with the given key, or
+     * {@code -(insertion point) - 1} if there is none.
+     */
+    private int indexOfKey(int key) {
+        int lo = 0, hi = chunks - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int k = keys[mid];
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void insertChunk(int k, int key, Container c) {
+        if (chunks == keys.length) {
+            int newLength = Math.max(4, chunks + (chunks >> 1));
+            keys = Arrays.copyOf(keys, newLength);
+            containers = Arrays.copyOf(containers, newLength);
+            if (mapped != null)
+                mapped = Arrays.copyOf(mapped, newLength);
+        }
+        int moved = chunks - k;
+        System.arraycopy(keys, k, keys, k + 1, moved);
+        System.arraycopy(containers, k, containers, k + 1, moved);
+        if (mapped != null)
+            System.arraycopy(mapped, k, mapped, k + 1, moved);
+        keys[k] = (char) key;
+        containers[k] = c;
+        chunks++;
+    }
+
+    private void removeChunk(int k) {
+        int moved = chunks - k - 1;
+        System.arraycopy(keys, k + 1, keys, k, moved);
+        System.arraycopy(containers, k + 1, containers, k, moved);
+        if (mapped != null)
+            System.arraycopy(mapped, k + 1, mapped, k, moved);
+        containers[--chunks] = null;
+    }
+
+    /**
+     * Installs c as the container at position k, or removes the chunk if
+     * c is null.
+     */
+    private void setChunk(int k, Container c) {
+        if (c == null)
+            removeChunk(k);
+        else
+            containers[k] = c;
+    }
+
+    /**
+     * Copies the chunk at position from to position to, which is not
+     * after it, leaving the source buffer location with it.
+     */
+    private void moveChunk(int from, int to) {
+        keys[to] = keys[from];
+        containers[to] = containers[from];
+        if (mapped != null)
+            mapped[to] = mapped[from];
+    }
+
+    /**
+     * Shrinks the chunk table to its first n chunks.
+     */
+    private void truncate(int n) {
+        for (int k = n; k < chunks; k++)
+            containers[k] = null;
+        chunks = n;
+    }
+
+    /**
+     * Checks that fromIndex ... toIndex is a valid range of bit indices.
+     */
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    // Single bits
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int key = bitIndex >>> CHUNK_BITS, k = indexOfKey(key);
+        if (k >= 0)
+            containers[k] = container(k).add(bitIndex & CHUNK_MASK);
+        else
+            insertChunk(-k - 1, key, new ArrayContainer(bitIndex & CHUNK_MASK));
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void clear(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int k = indexOfKey(bitIndex >>> CHUNK_BITS);
+        if (k >= 0)
+            setChunk(k, container(k).remove(bitIndex & CHUNK_MASK));
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void flip(int bitIndex) {
+        if (get(bitIndex))
+            clear(bitIndex);
+        else
+            set(bitIndex);
+    }
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int k = indexOfKey(bitIndex >>> CHUNK_BITS);
+        return k >= 0 && container(k).contains(bitIndex & CHUNK_MASK);
+    }
+
+    // Ranges
+
+    private static final int OP_SET = 0, OP_CLEAR = 1, OP_FLIP = 2;
+
+    /**
+     * Applies a range operation chunk by chunk.  Each chunk's share of the
+     * range is combined with the chunk as a single run, so that whole
+     * chunks set by a range end up as one run.
+     */
+    private void applyRange(int fromIndex, int toIndex, int op) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int last = toIndex - 1;
+        for (int key = fromIndex >>> CHUNK_BITS; key <= last >>> CHUNK_BITS; key++) {
+            int base = key << CHUNK_BITS;
+            int lo = Math.max(fromIndex, base) - base;
+            int hi = Math.min(last, base + CHUNK_MASK) - base + 1;
+            RunContainer r = RunContainer.range(lo, hi);
+            int k = indexOfKey(key);
+            if (k < 0) {
+                if (op != OP_CLEAR)
+                    insertChunk(-k - 1, key, r);
+            } else {
+                Container c = container(k);
+                setChunk(k, (op == OP_SET)   ? c.or(r) :
+                            (op == OP_CLEAR) ? c.andNot(r) : c.xor(r));
+            }
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex) {
+        applyRange(fromIndex, toIndex, OP_SET);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the specified value.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @param  value value to set the selected bits to
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex, boolean value) {
+        applyRange(fromIndex, toIndex, value ? OP_SET : OP_CLEAR);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void clear(int fromIndex, int toIndex) {
+        applyRange(fromIndex, toIndex, OP_CLEAR);
+    }
+
+    /**
+     * Sets each bit from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the complement of its current
+     * value.
+     *
+     * @param  fromIndex index of the first bit to flip
+     * @param  toIndex index after the last bit to flip
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void flip(int fromIndex, int toIndex) {
+        applyRange(fromIndex, toIndex, OP_FLIP);
+    }
+
+    /**
+     * Sets all of the bits in this set to {@code false}.
+     */
+    public void clear() {
+        truncate(0);
+        mapped = null;
+        source = null;
+    }
+
+    // Searching
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @see BitSet#nextSetBit
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> CHUNK_BITS, k = indexOfKey(key);
+        if (k >= 0) {
+            int r = container(k).next(fromIndex & CHUNK_MASK);
+            if (r >= 0)
+                return (key << CHUNK_BITS) | r;
+            k++;
+        } else
+            k = -k - 1;
+        return (k < chunks) ? (keys[k] << CHUNK_BITS) | container(k).first() : -1;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @see BitSet#nextClearBit
+     */
+    public int nextClearBit(int fromIndex) {
+        // Neither spec nor implementation handle bitsets of maximal length.
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int i = fromIndex;
+        for (int k = indexOfKey(i >>> CHUNK_BITS); ; k++) {
+            if (k < 0 || k >= chunks || keys[k] != i >>> CHUNK_BITS)
+                return i;
+            int r = container(k).nextClear(i & CHUNK_MASK);
+            if (r < CHUNK_SIZE)
+                return (keys[k] << CHUNK_BITS) | r;
+            i = (keys[k] + 1) << CHUNK_BITS;
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     * @see BitSet#previousSetBit
+     */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException("fromIndex < -1: " + fromIndex);
+        }
+        int key = fromIndex >>> CHUNK_BITS, k = indexOfKey(key);
+        if (k >= 0) {
+            int r = container(k).previous(fromIndex & CHUNK_MASK);
+            if (r >= 0)
+                return (key << CHUNK_BITS) | r;
+            k--;
+        } else
+            k = -k - 2;
+        return (k >= 0) ? (keys[k] << CHUNK_BITS) | container(k).last() : -1;
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code false}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous clear bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     * @see BitSet#previousClearBit
+     */
+    public int previousClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException("fromIndex < -1: " + fromIndex);
+        }
+        int i = fromIndex;
+        for (int k = indexOfKey(i >>> CHUNK_BITS); ; k--) {
+            if (k < 0 || keys[k] != i >>> CHUNK_BITS)
+                return i;
+            int r = container(k).previousClear(i & CHUNK_MASK);
+            if (r >= 0)
+                return (keys[k] << CHUNK_BITS) | r;
+            if (keys[k] == 0)
+                return -1;
+            i = (keys[k] << CHUNK_BITS) - 1;
+        }
+    }
+
+    /**
+     * Returns the "logical size" of this set: the index of the highest set
+     * bit in the set plus one.  Returns zero if the set contains no set
+     * bits.
+     *
+     * @return the logical size of this set
+     */
+    public int length() {
+        if (chunks == 0)
+            return 0;
+        int k = chunks - 1;
+        return ((keys[k] << CHUNK_BITS) | container(k).last()) + 1;
+    }
+
+    /**
+     * Returns true if this set contains no bits that are set to
+     * {@code true}.
+     *
+     * @return boolean indicating whether this set is empty
+     */
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this set.  Chunks
+     * of a wrapped set are counted from its index, without decoding them.
+     *
+     * @return the number of bits set to {@code true} in this set
+     */
+    public int cardinality() {
+        int sum = 0;
+        for (int k = 0; k < chunks; k++)
+            sum += cardinality(k);
+        return sum;
+    }
+
+    /**
+     * Performs the given action for the index of each set bit, in
+     * increasing order.
+     *
+     * @param action the action to be performed for each set bit
+     */
+    public void forEach(IntConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        for (int k = 0; k < chunks; k++)
+            container(k).forEach(keys[k] << CHUNK_BITS, action);
+    }
+
+    // Logical operations
+
+    /**
+     * Returns true if the specified set has any bits set to {@code true}
+     * that are also set to {@code true} in this set.
+     *
+     * @param  set {@code CompressedBitSet} to intersect with
+     * @return boolean indicating whether this set intersects the specified
+     *         set
+     */
+    public boolean intersects(CompressedBitSet set) {
+        for (int i = 0, j = 0; i < chunks && j < set.chunks; ) {
+            int ki = keys[i], kj = set.keys[j];
+            if (ki < kj)
+                i++;
+            else if (ki > kj)
+                j++;
+            else if (container(i++).intersects(set.container(j++)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target bit set with the
+     * argument bit set. This bit set is modified so that each bit in it
+     * has the value {@code true} if and only if it both initially
+     * had the value {@code true} and the corresponding bit in the
+     * bit set argument also had the value {@code true}.
+     *
+     * @param set a compressed bit set
+     */
+    public void and(CompressedBitSet set) {
+        if (this == set)
+            return;
+        int n = 0;
+        for (int i = 0, j = 0; i < chunks && j < set.chunks; ) {
+            int ki = keys[i], kj = set.keys[j];
+            if (ki < kj)
+                i++;
+            else if (ki > kj)
+                j++;
+            else {
+                Container c = container(i++).and(set.container(j++));
+                if (c != null) {
+                    keys[n] = (char) ki;
+                    containers[n++] = c;
+                }
+            }
+        }
+        truncate(n);
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this bit set with the bit set
+     * argument. This bit set is modified so that a bit in it has the
+     * value {@code true} if and only if it either already had the
+     * value {@code true} or the corresponding bit in the bit set
+     * argument has the value {@code true}.
+     *
+     * @param set a compressed bit set
+     */
+    public void or(CompressedBitSet set) {
+        if (this != set)
+            merge(set, false);
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this bit set with the bit set
+     * argument. This bit set is modified so that a bit in it has the
+     * value {@code true} if and only if one of the following
+     * statements holds:
+     * <ul>
+     * <li>The bit initially has the value {@code true}, and the
+     *     corresponding bit in the argument has the value {@code false}.
+     * <li>The bit initially has the value {@code false}, and the
+     *     corresponding bit in the argument has the value {@code true}.
+     * </ul>
+     *
+     * @param  set a compressed bit set
+     */
+    public void xor(CompressedBitSet set) {
+        if (this == set)
+            clear();
+        else
+            merge(set, true);
+    }
+
+    /**
+     * Merges the chunks of set into this one, for or and xor.  Chunks
+     * present only in this set keep their place, still undecoded if they
+     * have not been used; chunks present only in the argument are
+     * copied.
+     */
+    private void merge(CompressedBitSet set, boolean xor) {
+        int n1 = chunks, n2 = set.chunks;
+        char[] nk = new char[Math.max(n1 + n2, 4)];
+        Container[] nc = new Container[nk.length];
+        long[] nm = (mapped == null) ? null : new long[nk.length];
+        int n = 0, i = 0, j = 0;
+        while (i < n1 || j < n2) {
+            int ki = (i < n1) ? keys[i] : Integer.MAX_VALUE;
+            int kj = (j < n2) ? set.keys[j] : Integer.MAX_VALUE;
+            if (ki < kj) {
+                nk[n] = (char) ki;
+                nc[n] = containers[i];
+                if (nm != null)
+                    nm[n] = mapped[i];
+                n++;
+                i++;
+            } else if (ki > kj) {
+                nk[n] = (char) kj;
+                nc[n++] = set.container(j++).copy();
+            } else {
+                Container a = container(i++), b = set.container(j++);
+                Container c = xor ? a.xor(b) : a.or(b);
+                if (c != null) {
+                    nk[n] = (char) ki;
+                    nc[n++] = c;
+                }
+            }
+        }
+        keys = nk;
+        containers = nc;
+        mapped = nm;
+        chunks = n;
+    }
+
+    /**
+     * Clears all of the bits in this set whose corresponding bit is set
+     * in the specified set.
+     *
+     * @param  set the compressed bit set with which to mask this set
+     */
+    public void andNot(CompressedBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        int n = 0, j = 0;
+        for (int i = 0; i < chunks; i++) {
+            int ki = keys[i];
+            while (j < set.chunks && set.keys[j] < ki)
+                j++;
+            if (j < set.chunks && set.keys[j] == ki) {
+                Container c = container(i).andNot(set.container(j++));
+                if (c != null) {
+                    keys[n] = (char) ki;
+                    containers[n++] = c;
+                }
+            } else
+                moveChunk(i, n++);
+        }
+        truncate(n);
+    }
+
+    /**
+     * Converts each chunk to the smallest of its three forms, which
+     * mostly means storing clustered chunks as runs.  Chunks of a wrapped
+     * set that have not been used are left in the buffer.
+     *
+     * @return {@code true} if any chunk changed form
+     */
+    public boolean runOptimize() {
+        boolean changed = false;
+        for (int k = 0; k < chunks; k++) {
+            Container c = containers[k];
+            if (c != null) {
+                Container o = c.optimize();
+                if (o != c) {
+                    containers[k] = o;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Object methods
+
+    /**
+     * Returns the hash code value for this set, computed as by
+     * {@link BitSet#hashCode}, so that a {@code CompressedBitSet} and a
+     * {@code BitSet} with the same bits have the same hash code.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        long h = 1234;
+        for (int k = 0; k < chunks; k++) {
+            long[] w = container(k).toWords();
+            long base = (long) keys[k] * BITMAP_WORDS + 1;
+            for (int j = 0; j < BITMAP_WORDS; j++)
+                if (w[j] != 0)
+                    h ^= w[j] * (base + j);
+        }
+        return (int)((h >> 32) ^ h);
+    }
+
+    /**
+     * Compares this object against the specified object.  The result is
+     * {@code true} if and only if the argument is a
+     * {@code CompressedBitSet} with exactly the same bits set to
+     * {@code true}, whatever the forms in which they are stored.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same;
+     *         {@code false} otherwise
+     */
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof CompressedBitSet))
+            return false;
+        CompressedBitSet set = (CompressedBitSet) obj;
+        if (chunks != set.chunks)
+            return false;
+        for (int k = 0; k < chunks; k++)
+            if (keys[k] != set.keys[k] || cardinality(k) != set.cardinality(k))
+                return false;
+        for (int k = 0; k < chunks; k++)
+            if (!container(k).sameBits(set.container(k)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Cloning this {@code CompressedBitSet} produces a new
+     * {@code CompressedBitSet} that is equal to it.  A clone of a wrapped
+     * set shares its source buffer.
+     *
+     * @return a clone of this compressed bit set
+     */
+    public Object clone() {
+        try {
+            CompressedBitSet result = (CompressedBitSet) super.clone();
+            result.keys = keys.clone();
+            result.containers = containers.clone();
+            for (int k = 0; k < chunks; k++)
+                if (containers[k] != null)
+                    result.containers[k] = containers[k].copy();
+            if (mapped != null)
+                result.mapped = mapped.clone();
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Returns a string representation of this set, in the format of
+     * {@link BitSet#toString}.
+     *
+     * @return a string representation of this compressed bit set
+     */
+    public String toString() {
+        final StringBuilder b = new StringBuilder("{");
+        forEach(new IntConsumer() {
+            public void accept(int i) {
+                if (b.length() > 1)
+                    b.append(", ");
+                b.append(i);
+            }
+        });
+        return b.append('}').toString();
+    }
+
+    // Serialized form
+
+    /**
+     * Returns the number of bytes that {@link #serialize} writes.
+     *
+     * @return the size of the serialized form of this set
+     */
+    public int serializedSize() {
+        long size = HEADER_BYTES + (long) DESCRIPTOR_BYTES * chunks;
+        for (int k = 0; k < chunks; k++) {
+            Container c = container(k);
+            if (c.type() == TYPE_BITMAP)
+                size = (size + 7) & ~7L;
+            size += c.serializedBytes();
+        }
+        return (int) size;
+    }
+
+    /**
+     * Writes this set to the given buffer, starting at its position, in a
+     * form that {@link #wrap} reads back.  The buffer's position is
+     * advanced by {@link #serializedSize}; its byte order is not used.
+     *
+     * <p>The form is little-endian.  It consists of the int
+     * {@code 0x3B3A0001}, the number of chunks <i>n</i> as an int, and
+     * <i>n</i> chunk descriptors of a char key, a char form (0 for an
+     * array, 1 for a bitmap, 2 for runs) and an int cardinality, followed
+     * by <i>n</i> int offsets of the chunk data from the start of the
+     * form.  An array chunk holds its cardinality of char offsets in
+     * increasing order; a bitmap chunk holds 1024 longs and starts at a
+     * multiple of eight bytes; a run chunk holds the char number of runs
+     * followed by the char first and last offset of each run.
+     *
+     * @param  bb the buffer to write to
+     * @throws BufferOverflowException if there are fewer than
+     *         {@link #serializedSize} bytes remaining in the buffer
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
+     */
+    public void serialize(ByteBuffer bb) {
+        int size = serializedSize();
+        if (bb.remaining() < size)
+            throw new BufferOverflowException();
+        ByteBuffer d = bb.slice().order(ByteOrder.LITTLE_ENDIAN);
+        d.putInt(SERIAL_COOKIE);
+        d.putInt(chunks);
+        for (int k = 0; k < chunks; k++) {
+            Container c = container(k);
+            d.putChar(keys[k]);
+            d.putChar((char) c.type());
+            d.putInt(c.cardinality());
+        }
+        int offset = HEADER_BYTES + DESCRIPTOR_BYTES * chunks;
+        for (int k = 0; k < chunks; k++) {
+            Container c = containers[k];
+            if (c.type() == TYPE_BITMAP)
+                offset = (offset + 7) & ~7;
+            d.putInt(offset);
+            offset += c.serializedBytes();
+        }
+        for (int k = 0; k < chunks; k++) {
+            Container c = containers[k];
+            if (c.type() == TYPE_BITMAP)
+                while ((d.position() & 7) != 0)
+                    d.put((byte) 0);
+            c.writeTo(d);
+        }
+        bb.position(bb.position() + size);
+    }
+
+    /**
+     * Returns a compressed bit set backed by the form written by
+     * {@link #serialize} starting at the position of the given buffer.
+     * Only the chunk index is read here; the bits of each chunk are
+     * decoded from the buffer when the chunk is first accessed, so a
+     * memory-mapped file of bitmaps can be opened without reading it,
+     * and a query touches only the pages of the chunks it needs.
+     * Cardinality is answered from the index alone.
+     *
+     * <p>The returned set may be modified; modified chunks are held on
+     * the heap and the buffer is never written.  The buffer's contents
+     * must not change while the set refers to it.  The buffer's position
+     * and byte order are not changed.
+     *
+     * @param  bb a buffer holding a serialized compressed bit set
+     * @return a {@code CompressedBitSet} backed by the buffer
+     * @throws IllegalArgumentException if the buffer does not start with a
+     *         valid chunk index
+     */
+    public static CompressedBitSet wrap(ByteBuffer bb) {
+        ByteBuffer d = bb.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int limit = d.limit();
+        if (limit < HEADER_BYTES || d.getInt(0) != SERIAL_COOKIE)
+            throw new IllegalArgumentException("Not a serialized CompressedBitSet");
+        int n = d.getInt(4);
+        if (n < 0 || n > MAX_KEY + 1 ||
+            HEADER_BYTES + (long) DESCRIPTOR_BYTES * n > limit)
+            throw new IllegalArgumentException("Bad chunk count: " + n);
+        char[] keys = new char[Math.max(n, 4)];
+        long[] mapped = new long[keys.length];
+        int prev = -1;
+        for (int k = 0; k < n; k++) {
+            int at = HEADER_BYTES + 8 * k;
+            int key = d.getChar(at), type = d.getChar(at + 2);
+            int card = d.getInt(at + 4);
+            int off = d.getInt(HEADER_BYTES + 8 * n + 4 * k);
+            long end;
+            if (type == TYPE_ARRAY)
+                end = off + 2L * card;
+            else if (type == TYPE_BITMAP)
+                end = ((off & 7) == 0) ? off + 8L * BITMAP_WORDS : -1;
+            else if (type == TYPE_RUN && off >= 0 && off + 2L <= limit)
+                end = off + 2 + 4L * d.getChar(off);
+            else
+                end = -1;
+            if (key <= prev || key > MAX_KEY || card <= 0 || card > CHUNK_SIZE ||
+                off < HEADER_BYTES || end < 0 || end > limit)
+                throw new IllegalArgumentException("Bad chunk descriptor: " + k);
+            keys[k] = (char) key;
+            mapped[k] = ((long) off << 32) | ((long) card << 2) | type;
+            prev = key;
+        }
+        CompressedBitSet set =
+            new CompressedBitSet(keys, new Container[keys.length], n);
+        set.mapped = mapped;
+        set.source = d;
+        return set;
+    }
+
+    /**
+     * Decodes a container from the source buffer.
+     */
+    private Container load(long m) {
+        int off = (int) (m >>> 32), card = (int) (m >>> 2) & 0x1FFFF;
+        ByteBuffer d = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        d.position(off);
+        switch ((int) m & 3) {
+        case TYPE_ARRAY: {
+            char[] values = new char[card];
+            d.asCharBuffer().get(values);
+            return new ArrayContainer(values, card);
+        }
+        case TYPE_BITMAP: {
+            long[] words = new long[BITMAP_WORDS];
+            d.asLongBuffer().get(words);
+            return new BitmapContainer(words, card);
+        }
+        default: {
+            int nruns = d.getChar();
+            char[] runs = new char[2 * nruns];
+            d.asCharBuffer().get(runs);
+            return new RunContainer(runs, nruns);
+        }
+        }
+    }
+
+    /**
+     * Save the state of the {@code CompressedBitSet} instance to a stream
+     * (i.e., serialize it).
+     *
+     * @serialData The size in bytes of the form written by
+     *             {@link #serialize} (int), followed by that form.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        byte[] form = new byte[serializedSize()];
+        serialize(ByteBuffer.wrap(form));
+        s.writeInt(form.length);
+        s.write(form);
+    }
+
+    /**
+     * Reconstitute the {@code CompressedBitSet} instance from a stream
+     * (i.e., deserialize it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int length = s.readInt();
+        if (length < HEADER_BYTES)
+            throw new InvalidObjectException("Bad serialized size: " + length);
+        byte[] form = new byte[length];
+        s.readFully(form);
+        CompressedBitSet set;
+        try {
+            set = wrap(ByteBuffer.wrap(form));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+        for (int k = 0; k < set.chunks; k++)
+            set.container(k);
+        keys = set.keys;
+        containers = set.containers;
+        chunks = set.chunks;
+    }
+
+    // Containers
+
+    /**
+     * Returns the smallest container holding the bits of the given
+     * bitmap words, or null if none is set.  The array may be adopted.
+     */
+    static Container fromWords(long[] w) {
+        int card = 0;
+        for (long word : w)
+            card += Long.bitCount(word);
+        if (card == 0)
+            return null;
+        if (card == CHUNK_SIZE)
+            return RunContainer.range(0, CHUNK_SIZE);
+        BitmapContainer b = new BitmapContainer(w, card);
+        return (card <= ARRAY_MAX) ? b.toArrayContainer() : b;
+    }
+
+    /*
+     * Helpers setting, clearing and flipping the bits [lo, hi) of a
+     * chunk held as bitmap words starting at w[off].
+     */
+
+    static void setRange(long[] w, int off, int lo, int hi) {
+        if (lo >= hi)
+            return;
+        int a = off + (lo >>> 6), b = off + ((hi - 1) >>> 6);
+        long first = -1L << lo, last = -1L >>> -hi;
+        if (a == b) {
+            w[a] |= first & last;
+        } else {
+            w[a] |= first;
+            for (int j = a + 1; j < b; j++)
+                w[j] = -1L;
+            w[b] |= last;
+        }
+    }
+
+    static void clearRange(long[] w, int lo, int hi) {
+        if (lo >= hi)
+            return;
+        int a = lo >>> 6, b = (hi - 1) >>> 6;
+        long first = -1L << lo, last = -1L >>> -hi;
+        if (a == b) {
+            w[a] &= ~(first & last);
+        } else {
+            w[a] &= ~first;
+            for (int j = a + 1; j < b; j++)
+                w[j] = 0L;
+            w[b] &= ~last;
+        }
+    }
+
+    static void flipRange(long[] w, int lo, int hi) {
+        if (lo >= hi)
+            return;
+        int a = lo >>> 6, b = (hi - 1) >>> 6;
+        long first = -1L << lo, last = -1L >>> -hi;
+        if (a == b) {
+            w[a] ^= first & last;
+        } else {
+            w[a] ^= first;
+            for (int j = a + 1; j < b; j++)
+                w[j] = ~w[j];
+            w[b] ^= last;
+        }
+    }
+
+    /**
+     * The set bits of one chunk, as offsets 0 ... 65535.  Mutators return
+     * the container to use from then on, which may be of another form,
+     * or null once no bit is set.  The binary operations leave both
+     * operands unchanged.
+     */
+    abstract static class Container {
+        abstract int cardinality();
+        abstract boolean contains(int x);
+        abstract Container add(int x);
+        abstract Container remove(int x);
+
+        /** Returns the least member at or after x, or -1 */
+        abstract int next(int x);
+
+        /** Returns the least non-member at or after x, or CHUNK_SIZE */
+        abstract int nextClear(int x);
+
+        /** Returns the greatest member at or before x, or -1 */
+        abstract int previous(int x);
+
+        /** Returns the greatest non-member at or before x, or -1 */
+        abstract int previousClear(int x);
+
+        /** Sets the member bits in the words w[off ... off+1023] */
+        abstract void orInto(long[] w, int off);
+
+        /** Flips the member bits in the chunk words w */
+        abstract void xorInto(long[] w);
+
+        /** Clears the member bits in the chunk words w */
+        abstract void andNotFrom(long[] w);
+
+        abstract void forEach(int base, IntConsumer action);
+        abstract int runCount();
+        abstract int type();
+        abstract int serializedBytes();
+        abstract void writeTo(ByteBuffer d);
+        abstract Container copy();
+
+        /** Clears the non-member bits in the chunk words w */
+        void andInto(long[] w) {
+            long[] m = toWords();
+            for (int j = 0; j < BITMAP_WORDS; j++)
+                w[j] &= m[j];
+        }
+
+        final int first() {
+            return next(0);
+        }
+
+        final int last() {
+            return previous(CHUNK_MASK);
+        }
+
+        final long[] toWords() {
+            long[] w = new long[BITMAP_WORDS];
+            orInto(w, 0);
+            return w;
+        }
+
+        final Container and(Container o) {
+            if (this instanceof ArrayContainer)
+                return ((ArrayContainer) this).filter(o, true);
+            if (o instanceof ArrayContainer)
+                return ((ArrayContainer) o).filter(this, true);
+            if (this instanceof RunContainer && o instanceof RunContainer)
+                return ((RunContainer) this).and((RunContainer) o);
+            long[] w = toWords();
+            o.andInto(w);
+            return fromWords(w);
+        }
+
+        final Container or(Container o) {
+            if (this instanceof ArrayContainer && o instanceof ArrayContainer)
+                return ((ArrayContainer) this).or((ArrayContainer) o);
+            if (this instanceof RunContainer && o instanceof RunContainer)
+                return ((RunContainer) this).or((RunContainer) o);
+            long[] w = toWords();
+            o.orInto(w, 0);
+            return fromWords(w);
+        }
+
+        final Container xor(Container o) {
+            if (this instanceof ArrayContainer && o instanceof ArrayContainer)
+                return ((ArrayContainer) this).xor((ArrayContainer) o);
+            long[] w = toWords();
+            o.xorInto(w);
+            return fromWords(w);
+        }
+
+        final Container andNot(Container o) {
+            if (this instanceof ArrayContainer)
+                return ((ArrayContainer) this).filter(o, false);
+            if (this instanceof RunContainer && o instanceof RunContainer)
+                return ((RunContainer) this).andNot((RunContainer) o);
+            long[] w = toWords();
+            o.andNotFrom(w);
+            return fromWords(w);
+        }
+
+        final boolean intersects(Container o) {
+            if (o instanceof ArrayContainer || o instanceof RunContainer)
+                return o.intersectsMembers(this);
+            return intersectsMembers(o);
+        }
+
+        /**
+         * Returns true if some member of this container is in o.  The
+         * bitmap form overrides this for a bitmap argument.
+         */
+        boolean intersectsMembers(Container o) {
+            for (int x = next(0); x >= 0; ) {
+                int y = o.next(x);
+                if (y < 0)
+                    return false;
+                if (contains(y))
+                    return true;
+                x = (y < CHUNK_MASK) ? next(y + 1) : -1;
+            }
+            return false;
+        }
+
+        final boolean sameBits(Container o) {
+            if (this instanceof ArrayContainer && o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) this, b = (ArrayContainer) o;
+                for (int i = 0; i < a.card; i++)
+                    if (a.values[i] != b.values[i])
+                        return false;
+                return true;
+            }
+            return Arrays.equals(toWords(), o.toWords());
+        }
+
+        /**
+         * Returns the smallest form of this container, which may be this
+         * container itself.
+         */
+        final Container optimize() {
+            int card = cardinality();
+            long runBytes = 2 + 4L * runCount();
+            long arrayBytes = (card <= ARRAY_MAX) ? 2L * card : Long.MAX_VALUE;
+            long bitmapBytes = 8L * BITMAP_WORDS;
+            long best = Math.min(runBytes, Math.min(arrayBytes, bitmapBytes));
+            if (best == serializedBytes())
+                return this;
+            if (best == runBytes)
+                return toRunContainer();
+            BitmapContainer b = new BitmapContainer(toWords(), card);
+            return (best == arrayBytes) ? b.toArrayContainer() : b;
+        }
+
+        final RunContainer toRunContainer() {
+            char[] runs = new char[2 * runCount()];
+            int n = 0;
+            for (int x = next(0); x >= 0; ) {
+                int end = nextClear(x);
+                runs[2 * n] = (char) x;
+                runs[2 * n + 1] = (char) (end - 1);
+                n++;
+                x = (end < CHUNK_SIZE) ? next(end) : -1;
+            }
+            return new RunContainer(runs, n);
+        }
+    }
+
+    /**
+     * A container of up to ARRAY_MAX members held as sorted offsets.
+     */
+    static final class ArrayContainer extends Container {
+        char[] values;
+        int card;
+
+        ArrayContainer(int x) {
+            values = new char[4];
+            values[0] = (char) x;
+            card = 1;
+        }
+
+        ArrayContainer(char[] values, int card) {
+            this.values = values;
+            this.card = card;
+        }
+
+        private int search(int x) {
+            return Arrays.binarySearch(values, 0, card, (char) x);
+        }
+
+        int cardinality() {
+            return card;
+        }
+
+        boolean contains(int x) {
+            return search(x) >= 0;
+        }
+
+        Container add(int x) {
+            int i = search(x);
+            if (i >= 0)
+                return this;
+            if (card >= ARRAY_MAX) {
+                long[] w = toWords();
+                w[x >>> 6] |= 1L << x;
+                return new BitmapContainer(w, card + 1);
+            }
+            i = -i - 1;
+            if (card == values.length)
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX,
+                                                        card < 64 ? card * 2
+                                                        : card + (card >> 1)));
+            System.arraycopy(values, i, values, i + 1, card - i);
+            values[i] = (char) x;
+            card++;
+            return this;
+        }
+
+        Container remove(int x) {
+            int i = search(x);
+            if (i < 0)
+                return this;
+            System.arraycopy(values, i + 1, values, i, card - i - 1);
+            return (--card == 0) ? null : this;
+        }
+
+        int next(int x) {
+            int i = search(x);
+            if (i < 0)
+                i = -i - 1;
+            return (i < card) ? values[i] : -1;
+        }
+
+        int nextClear(int x) {
+            for (int i = search(x); i >= 0 && i < card && values[i] == x; i++)
+                x++;
+            return x;
+        }
+
+        int previous(int x) {
+            int i = search(x);
+            if (i >= 0)
+                return x;
+            i = -i - 2;
+            return (i >= 0) ? values[i] : -1;
+        }
+
+        int previousClear(int x) {
+            for (int i = search(x); i >= 0 && values[i] == x; i--)
+                x--;
+            return x;
+        }
+
+        void orInto(long[] w, int off) {
+            for (int i = 0; i < card; i++) {
+                int v = values[i];
+                w[off + (v >>> 6)] |= 1L << v;
+            }
+        }
+
+        void xorInto(long[] w) {
+            for (int i = 0; i < card; i++) {
+                int v = values[i];
+                w[v >>> 6] ^= 1L << v;
+            }
+        }
+
+        void andNotFrom(long[] w) {
+            for (int i = 0; i < card; i++) {
+                int v = values[i];
+                w[v >>> 6] &= ~(1L << v);
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < card; i++)
+                action.accept(base | values[i]);
+        }
+
+        int runCount() {
+            int runs = 0;
+            for (int i = 0; i < card; i++)
+                if (i == 0 || values[i] != values[i - 1] + 1)
+                    runs++;
+            return runs;
+        }
+
+        int type() {
+            return TYPE_ARRAY;
+        }
+
+        int serializedBytes() {
+            return 2 * card;
+        }
+
+        void writeTo(ByteBuffer d) {
+            for (int i = 0; i < card; i++)
+                d.putChar(values[i]);
+        }
+
+        ArrayContainer copy() {
+            return new ArrayContainer(Arrays.copyOf(values, card), card);
+        }
+
+        /**
+         * Returns the members that are (keep) or are not (!keep) in o.
+         */
+        Container filter(Container o, boolean keep) {
+            char[] r = new char[card];
+            int n = 0;
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                for (int i = 0, j = 0; i < card; i++) {
+                    char v = values[i];
+                    while (j < a.card && a.values[j] < v)
+                        j++;
+                    if ((j < a.card && a.values[j] == v) == keep)
+                        r[n++] = v;
+                }
+            } else {
+                for (int i = 0; i < card; i++)
+                    if (o.contains(values[i]) == keep)
+                        r[n++] = values[i];
+            }
+            return (n == 0) ? null : new ArrayContainer(r, n);
+        }
+
+        Container or(ArrayContainer o) {
+            if (card + o.card > ARRAY_MAX) {
+                long[] w = toWords();
+                o.orInto(w, 0);
+                return fromWords(w);
+            }
+            char[] r = new char[card + o.card];
+            int n = 0, i = 0, j = 0;
+            while (i < card && j < o.card) {
+                char a = values[i], b = o.values[j];
+                if (a <= b) {
+                    r[n++] = a;
+                    i++;
+                    if (a == b)
+                        j++;
+                } else {
+                    r[n++] = b;
+                    j++;
+                }
+            }
+            while (i < card)
+                r[n++] = values[i++];
+            while (j < o.card)
+                r[n++] = o.values[j++];
+            return new ArrayContainer(r, n);
+        }
+
+        Container xor(ArrayContainer o) {
+            if (card + o.card > ARRAY_MAX) {
+                long[] w = toWords();
+                o.xorInto(w);
+                return fromWords(w);
+            }
+            char[] r = new char[card + o.card];
+            int n = 0, i = 0, j = 0;
+            while (i < card && j < o.card) {
+                char a = values[i], b = o.values[j];
+                if (a < b) {
+                    r[n++] = a;
+                    i++;
+                } else if (a > b) {
+                    r[n++] = b;
+                    j++;
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            while (i < card)
+                r[n++] = values[i++];
+            while (j < o.card)
+                r[n++] = o.values[j++];
+            return (n == 0) ? null : new ArrayContainer(r, n);
+        }
+    }
+
+    /**
+     * A container held as a bitmap of 1024 words.
+     */
+    static final class BitmapContainer extends Container {
+        final long[] words;
+        int card;
+
+        BitmapContainer(long[] words, int card) {
+            this.words = words;
+            this.card = card;
+        }
+
+        int cardinality() {
+            return card;
+        }
+
+        boolean contains(int x) {
+            return (words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        Container add(int x) {
+            long bit = 1L << x;
+            if ((words[x >>> 6] & bit) == 0) {
+                words[x >>> 6] |= bit;
+                card++;
+            }
+            return this;
+        }
+
+        Container remove(int x) {
+            long bit = 1L << x;
+            if ((words[x >>> 6] & bit) != 0) {
+                words[x >>> 6] &= ~bit;
+                if (--card <= ARRAY_MAX)
+                    return toArrayContainer();
+            }
+            return this;
+        }
+
+        ArrayContainer toArrayContainer() {
+            char[] values = new char[card];
+            int n = 0;
+            for (int j = 0; j < BITMAP_WORDS; j++) {
+                for (long word = words[j]; word != 0; word &= word - 1)
+                    values[n++] = (char) ((j << 6) + Long.numberOfTrailingZeros(word));
+            }
+            return new ArrayContainer(values, n);
+        }
+
+        int next(int x) {
+            int u = x >>> 6;
+            long word = words[u] & (-1L << x);
+            while (true) {
+                if (word != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(word);
+                if (++u == BITMAP_WORDS)
+                    return -1;
+                word = words[u];
+            }
+        }
+
+        int nextClear(int x) {
+            int u = x >>> 6;
+            long word = ~words[u] & (-1L << x);
+            while (true) {
+                if (word != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(word);
+                if (++u == BITMAP_WORDS)
+                    return CHUNK_SIZE;
+                word = ~words[u];
+            }
+        }
+
+        int previous(int x) {
+            int u = x >>> 6;
+            long word = words[u] & (-1L >>> -(x + 1));
+            while (true) {
+                if (word != 0)
+                    return ((u + 1) << 6) - 1 - Long.numberOfLeadingZeros(word);
+                if (u-- == 0)
+                    return -1;
+                word = words[u];
+            }
+        }
+
+        int previousClear(int x) {
+            int u = x >>> 6;
+            long word = ~words[u] & (-1L >>> -(x + 1));
+            while (true) {
+                if (word != 0)
+                    return ((u + 1) << 6) - 1 - Long.numberOfLeadingZeros(word);
+                if (u-- == 0)
+                    return -1;
+                word = ~words[u];
+            }
+        }
+
+        void orInto(long[] w, int off) {
+            int n = Math.min(BITMAP_WORDS, w.length - off);
+            for (int j = 0; j < n; j++)
+                w[off + j] |= words[j];
+        }
+
+        void andInto(long[] w) {
+            for (int j = 0; j < BITMAP_WORDS; j++)
+                w[j] &= words[j];
+        }
+
+        void xorInto(long[] w) {
+            for (int j = 0; j < BITMAP_WORDS; j++)
+                w[j] ^= words[j];
+        }
+
+        void andNotFrom(long[] w) {
+            for (int j = 0; j < BITMAP_WORDS; j++)
+                w[j] &= ~words[j];
+        }
+
+        boolean intersectsMembers(Container o) {
+            if (!(o instanceof BitmapContainer))
+                return super.intersectsMembers(o);
+            long[] ow = ((BitmapContainer) o).words;
+            for (int j = 0; j < BITMAP_WORDS; j++)
+                if ((words[j] & ow[j]) != 0)
+                    return true;
+            return false;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int j = 0; j < BITMAP_WORDS; j++) {
+                for (long word = words[j]; word != 0; word &= word - 1)
+                    action.accept(base | ((j << 6) + Long.numberOfTrailingZeros(word)));
+            }
+        }
+
+        int runCount() {
+            int runs = 0;
+            long prev = 0;
+            for (int j = 0; j < BITMAP_WORDS; j++) {
+                long word = words[j];
+                runs += Long.bitCount(word & ~((word << 1) | (prev >>> 63)));
+                prev = word;
+            }
+            return runs;
+        }
+
+        int type() {
+            return TYPE_BITMAP;
+        }
+
+        int serializedBytes() {
+            return 8 * BITMAP_WORDS;
+        }
+
+        void writeTo(ByteBuffer d) {
+            for (int j = 0; j < BITMAP_WORDS; j++)
+                d.putLong(words[j]);
+        }
+
+        BitmapContainer copy() {
+            return new BitmapContainer(words.clone(), card);
+        }
+    }
+
+    /**
+     * A container held as sorted, disjoint and non-adjacent runs, each a
+     * first and last offset.
+     */
+    static final class RunContainer extends Container {
+        char[] runs;  // first and last offset of each run, in pairs
+        int n;        // number of runs
+
+        RunContainer(char[] runs, int n) {
+            this.runs = runs;
+            this.n = n;
+        }
+
+        /** Returns a container of the single run [lo, hi), hi > lo */
+        static RunContainer range(int lo, int hi) {
+            return new RunContainer(new char[] { (char) lo, (char) (hi - 1) }, 1);
+        }
+
+        private int start(int k) {
+            return runs[2 * k];
+        }
+
+        private int end(int k) {
+            return runs[2 * k + 1];
+        }
+
+        /** Returns the last run starting at or before x, or -1 */
+        private int find(int x) {
+            int lo = 0, hi = n - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (runs[2 * mid] <= x)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        private void insertRun(int k, int first, int last) {
+            if (2 * n == runs.length)
+                runs = Arrays.copyOf(runs, Math.max(4, runs.length * 2));
+            System.arraycopy(runs, 2 * k, runs, 2 * k + 2, 2 * (n - k));
+            runs[2 * k] = (char) first;
+            runs[2 * k + 1] = (char) last;
+            n++;
+        }
+
+        private void removeRun(int k) {
+            System.arraycopy(runs, 2 * k + 2, runs, 2 * k, 2 * (n - k - 1));
+            n--;
+        }
+
+        int cardinality() {
+            int card = 0;
+            for (int k = 0; k < n; k++)
+                card += end(k) - start(k) + 1;
+            return card;
+        }
+
+        boolean contains(int x) {
+            int k = find(x);
+            return k >= 0 && x <= end(k);
+        }
+
+        Container add(int x) {
+            int k = find(x);
+            if (k >= 0 && x <= end(k))
+                return this;
+            boolean joinPrevious = k >= 0 && end(k) + 1 == x;
+            boolean joinNext = k + 1 < n && start(k + 1) == x + 1;
+            if (joinPrevious && joinNext) {
+                runs[2 * k + 1] = runs[2 * k + 3];
+                removeRun(k + 1);
+            } else if (joinPrevious)
+                runs[2 * k + 1] = (char) x;
+            else if (joinNext)
+                runs[2 * k + 2] = (char) x;
+            else
+                insertRun(k + 1, x, x);
+            return this;
+        }
+
+        Container remove(int x) {
+            int k = find(x);
+            if (k < 0 || x > end(k))
+                return this;
+            int first = start(k), last = end(k);
+            if (first == last) {
+                removeRun(k);
+                return (n == 0) ? null : this;
+            }
+            if (x == first)
+                runs[2 * k] = (char) (x + 1);
+            else if (x == last)
+                runs[2 * k + 1] = (char) (x - 1);
+            else {
+                runs[2 * k + 1] = (char) (x - 1);
+                insertRun(k + 1, x + 1, last);
+            }
+            return this;
+        }
+
+        int next(int x) {
+            int k = find(x);
+            if (k >= 0 && x <= end(k))
+                return x;
+            return (++k < n) ? start(k) : -1;
+        }
+
+        int nextClear(int x) {
+            int k = find(x);
+            return (k >= 0 && x <= end(k)) ? end(k) + 1 : x;
+        }
+
+        int previous(int x) {
+            int k = find(x);
+            return (k < 0) ? -1 : Math.min(x, end(k));
+        }
+
+        int previousClear(int x) {
+            int k = find(x);
+            return (k >= 0 && x <= end(k)) ? start(k) - 1 : x;
+        }
+
+        void orInto(long[] w, int off) {
+            for (int k = 0; k < n; k++)
+                setRange(w, off, start(k), end(k) + 1);
+        }
+
+        void andInto(long[] w) {
+            int from = 0;
+            for (int k = 0; k < n; k++) {
+                clearRange(w, from, start(k));
+                from = end(k) + 1;
+            }
+            clearRange(w, from, CHUNK_SIZE);
+        }
+
+        void xorInto(long[] w) {
+            for (int k = 0; k < n; k++)
+                flipRange(w, start(k), end(k) + 1);
+        }
+
+        void andNotFrom(long[] w) {
+            for (int k = 0; k < n; k++)
+                clearRange(w, start(k), end(k) + 1);
+        }
+
+        boolean intersectsMembers(Container o) {
+            for (int k = 0; k < n; k++) {
+                int y = o.next(start(k));
+                if (y < 0)
+                    return false;
+                if (y <= end(k))
+                    return true;
+            }
+            return false;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int k = 0; k < n; k++)
+                for (int x = start(k), last = end(k); x <= last; x++)
+                    action.accept(base | x);
+        }
+
+        int runCount() {
+            return n;
+        }
+
+        int type() {
+            return TYPE_RUN;
+        }
+
+        int serializedBytes() {
+            return 2 + 4 * n;
+        }
+
+        void writeTo(ByteBuffer d) {
+            d.putChar((char) n);
+            for (int i = 0; i < 2 * n; i++)
+                d.putChar(runs[i]);
+        }
+
+        RunContainer copy() {
+            return new RunContainer(Arrays.copyOf(runs, 2 * n), n);
+        }
+
+        /**
+         * Appends the run [first, last] to r, which holds m runs, merging
+         * it with the last run when they overlap or touch; returns the
+         * new number of runs.
+         */
+        private static int append(char[] r, int m, int first, int last) {
+            if (m > 0 && first <= r[2 * m - 1] + 1) {
+                if (last > r[2 * m - 1])
+                    r[2 * m - 1] = (char) last;
+                return m;
+            }
+            r[2 * m] = (char) first;
+            r[2 * m + 1] = (char) last;
+            return m + 1;
+        }
+
+        Container or(RunContainer o) {
+            char[] r = new char[2 * (n + o.n)];
+            int m = 0, i = 0, j = 0;
+            while (i < n || j < o.n) {
+                if (j >= o.n || (i < n && start(i) <= o.start(j))) {
+                    m = append(r, m, start(i), end(i));
+                    i++;
+                } else {
+                    m = append(r, m, o.start(j), o.end(j));
+                    j++;
+                }
+            }
+            return new RunContainer(r, m);
+        }
+
+        Container and(RunContainer o) {
+            char[] r = new char[2 * (n + o.n)];
+            int m = 0, i = 0, j = 0;
+            while (i < n && j < o.n) {
+                int first = Math.max(start(i), o.start(j));
+                int last = Math.min(end(i), o.end(j));
+                if (first <= last)
+                    m = append(r, m, first, last);
+                if (end(i) < o.end(j))
+                    i++;
+                else
+                    j++;
+            }
+            return (m == 0) ? null : new RunContainer(r, m).optimize();
+        }
+
+        Container andNot(RunContainer o) {
+            char[] r = new char[2 * (n + o.n)];
+            int m = 0, j = 0;
+            for (int i = 0; i < n; i++) {
+                int first = start(i), last = end(i);
+                while (j < o.n && o.end(j) < first)
+                    j++;
+                for (int t = j; first <= last; t++) {
+                    if (t >= o.n || o.start(t) > last) {
+                        m = append(r, m, first, last);
+                        break;
+                    }
+                    if (o.start(t) > first)
+                        m = append(r, m, first, o.start(t) - 1);
+                    first = o.end(t) + 1;
+                }
+            }
+            return (m == 0) ? null : new RunContainer(r, m).optimize();
+        }
+    }
+}
@@ -1872,9 +1872,13 @@ public final class Formatter implements Closeable, Flushable {
 
     /* Private constructors */
     private Formatter(Locale l, Appendable a) {
+        this(l, a, getZero(l));
+    }
+
+    private Formatter(Locale l, Appendable a, char zero) {
         this.a = a;
         this.l = l;
-        this.zero = getZero(l);
+        this.zero = zero;
     }
 
     private Formatter(Charset charset, Locale l, File file)
@@ -2501,6 +2505,55 @@ public final class Formatter implements Closeable, Flushable {
         return this;
     }
 
+    /**
+     * Compiles the given format string into a {@link Template} using the
+     * {@linkplain Locale#getDefault(Locale.Category) default locale} for
+     * {@linkplain Locale.Category#FORMAT formatting}, as it is at the time
+     * of this call.
+     *
+     * @param  format
+     *         A format string as described in <a href="#syntax">Format string
+     *         syntax</a>
+     *
+     * @throws  IllegalFormatException
+     *          If the format string contains an illegal syntax or a format
+     *          specifier with an illegal combination of flags, width,
+     *          precision and conversion
+     *
+     * @return  The compiled template
+     *
+     * @since 1.8
+     */
+    public static Template compile(String format) {
+        return new Template(Locale.getDefault(Locale.Category.FORMAT), format);
+    }
+
+    /**
+     * Compiles the given format string into a {@link Template} that
+     * formats using the specified locale.
+     *
+     * @param  l
+     *         The {@linkplain java.util.Locale locale} to apply during
+     *         formatting.  If {@code l} is {@code null} then no localization
+     *         is applied.
+     *
+     * @param  format
+     *         A format string as described in <a href="#syntax">Format string
+     *         syntax</a>
+     *
+     * @throws  IllegalFormatException
+     *          If the format string contains an illegal syntax or a format
+     *          specifier with an illegal combination of flags, width,
+     *          precision and conversion
+     *
+     * @return  The compiled template
+     *
+     * @since 1.8
+     */
+    public static Template compile(Locale l, String format) {
+        return new Template(l, format);
+    }
+
     // %[argument_index$][flags][width][.precision][t]conversion
     private static final String formatSpecifier
         = "%(\\d+\\$)?([-#+ 0,(\\<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])";
@@ -2564,6 +2617,310 @@ public final class Formatter implements Closeable, Flushable {
         public String toString() { return s; }
     }
 
+    /**
+     * A compiled format string.
+     *
+     * <p> {@link String#format(Locale,String,Object...) String.format} and
+     * {@link Formatter#format(Locale,String,Object...) Formatter.format}
+     * parse their format string on every call.  A template is parsed, and
+     * its format specifiers checked, once, by {@link Formatter#compile
+     * Formatter.compile}; formatting with it then produces the same output
+     * as those methods would for the same locale, format string and
+     * arguments, and throws the same exceptions for arguments that do not
+     * match the format specifiers.
+     *
+     * <p> The conversions {@code 'd'}, {@code 'x'} and {@code 's'} with
+     * no flags other than {@code '-'}, and no precision other than that of
+     * {@code 's'}, are written directly to the destination when their
+     * argument is a {@link Byte}, {@link Short}, {@link Integer} or {@link
+     * Long}, or for {@code 's'}, not {@link Formattable}.  Other conversions
+     * are printed as a {@code Formatter} would print them.
+     *
+     * <p> Templates are immutable and safe for use by multiple concurrent
+     * threads.
+     *
+     * @see Formatter#compile(Locale,String)
+     * @since 1.8
+     */
+    public static final class Template {
+
+        // Kinds of parts
+        private static final int FIXED   = 0;  // literal text
+        private static final int GENERAL = 1;  // printed by a Formatter
+        private static final int DECIMAL = 2;  // %d
+        private static final int HEX     = 3;  // %x
+        private static final int STRING  = 4;  // %s
+
+        private final String format;
+        private final Locale l;
+        private final char zero;
+        private final FormatString[] parts;
+        private final int[] kinds;
+
+        Template(Locale l, String format) {
+            this.format = format;
+            this.l = l;
+            this.zero = getZero(l);
+
+            // The prototype is never printed to; it only owns the
+            // parsed specifiers, which are copied to print elsewhere.
+            Formatter proto = new Formatter(l, null, zero);
+            FormatString[] fsa = proto.parse(format);
+
+            // Fold "%n", "%%" and literal text into single fixed strings
+            ArrayList<FormatString> al = new ArrayList<>(fsa.length);
+            StringBuilder text = new StringBuilder();
+            for (FormatString fs : fsa) {
+                if (fs instanceof FixedString) {
+                    text.append(((FixedString) fs).s);
+                    continue;
+                }
+                FormatSpecifier sp = (FormatSpecifier) fs;
+                if (sp.index == -2 && sp.width == -1) {
+                    text.append(sp.c == Conversion.LINE_SEPARATOR
+                                ? System.lineSeparator() : "%");
+                    continue;
+                }
+                if (text.length() > 0) {
+                    al.add(proto.new FixedString(text.toString()));
+                    text.setLength(0);
+                }
+                al.add(sp);
+            }
+            if (text.length() > 0)
+                al.add(proto.new FixedString(text.toString()));
+
+            parts = al.toArray(new FormatString[al.size()]);
+            kinds = new int[parts.length];
+            for (int i = 0; i < parts.length; i++)
+                kinds[i] = kindOf(parts[i]);
+        }
+
+        private static int kindOf(FormatString fs) {
+            if (fs instanceof FixedString)
+                return FIXED;
+            FormatSpecifier sp = (FormatSpecifier) fs;
+            int f = sp.f.valueOf() & ~Flags.PREVIOUS.valueOf();
+            if (sp.dt || (f != Flags.NONE.valueOf()
+                          && f != Flags.LEFT_JUSTIFY.valueOf()))
+                return GENERAL;
+            switch (sp.c) {
+            case Conversion.DECIMAL_INTEGER:
+                return DECIMAL;
+            case Conversion.HEXADECIMAL_INTEGER:
+                return HEX;
+            case Conversion.STRING:
+                return STRING;
+            default:
+                return GENERAL;
+            }
+        }
+
+        /**
+         * Returns the locale this template formats with.
+         *
+         * @return  The locale, or {@code null} if no localization is applied
+         */
+        public Locale locale() {
+            return l;
+        }
+
+        /**
+         * Returns a formatted string using this template and the given
+         * arguments.
+         *
+         * @param  args
+         *         Arguments referenced by the format specifiers in the
+         *         format string.  If there are more arguments than format
+         *         specifiers, the extra arguments are ignored.
+         *
+         * @throws  IllegalFormatException
+         *          If a format specifier is incompatible with the given
+         *          arguments, or there are insufficient arguments
+         *
+         * @return  A formatted string
+         */
+        public String format(Object ... args) {
+            return print(new StringBuilder(), args).toString();
+        }
+
+        /**
+         * Appends a formatted string to the given string builder, using
+         * this template and the given arguments.
+         *
+         * @param  sb
+         *         The destination for the formatted output
+         *
+         * @param  args
+         *         Arguments referenced by the format specifiers in the
+         *         format string.  If there are more arguments than format
+         *         specifiers, the extra arguments are ignored.
+         *
+         * @throws  IllegalFormatException
+         *          If a format specifier is incompatible with the given
+         *          arguments, or there are insufficient arguments.  The
+         *          output that precedes the failing specifier will have
+         *          been appended.
+         *
+         * @return  The string builder
+         */
+        public StringBuilder formatTo(StringBuilder sb, Object ... args) {
+            return print(Objects.requireNonNull(sb), args);
+        }
+
+        /**
+         * Appends a formatted string to the given destination, using this
+         * template and the given arguments.  Unless the destination is a
+         * {@link StringBuilder}, the output is appended in a single call
+         * once it is complete.
+         *
+         * @param  a
+         *         The destination for the formatted output
+         *
+         * @param  args
+         *         Arguments referenced by the format specifiers in the
+         *         format string.  If there are more arguments than format
+         *         specifiers, the extra arguments are ignored.
+         *
+         * @throws  IllegalFormatException
+         *          If a format specifier is incompatible with the given
+         *          arguments, or there are insufficient arguments
+         *
+         * @throws  IOException
+         *          If the destination throws one
+         */
+        public void formatTo(Appendable a, Object ... args)
+            throws IOException
+        {
+            if (a instanceof StringBuilder)
+                print((StringBuilder) a, args);
+            else
+                a.append(print(new StringBuilder(), args));
+        }
+
+        private StringBuilder print(StringBuilder sb, Object[] args) {
+            // index of last argument referenced
+            int last = -1;
+            // last ordinary index
+            int lasto = -1;
+            // prints general conversions to sb, created on demand
+            Formatter fmt = null;
+
+            for (int i = 0; i < parts.length; i++) {
+                FormatString fs = parts[i];
+                int kind = kinds[i];
+                if (kind == FIXED) {
+                    sb.append(((FixedString) fs).s);
+                    continue;
+                }
+                Object arg;
+                int index = fs.index();
+                switch (index) {
+                case -2:  // "%n" or "%%" with a width
+                    arg = null;
+                    break;
+                case -1:  // relative index
+                    if (last < 0 || (args != null && last > args.length - 1))
+                        throw new MissingFormatArgumentException(fs.toString());
+                    arg = (args == null ? null : args[last]);
+                    break;
+                case 0:  // ordinary index
+                    lasto++;
+                    last = lasto;
+                    if (args != null && lasto > args.length - 1)
+                        throw new MissingFormatArgumentException(fs.toString());
+                    arg = (args == null ? null : args[lasto]);
+                    break;
+                default:  // explicit index
+                    last = index - 1;
+                    if (args != null && last > args.length - 1)
+                        throw new MissingFormatArgumentException(fs.toString());
+                    arg = (args == null ? null : args[last]);
+                    break;
+                }
+                FormatSpecifier sp = (FormatSpecifier) fs;
+                if (kind != GENERAL && print(sb, kind, sp, arg))
+                    continue;
+                if (fmt == null)
+                    fmt = new Formatter(l, sb, zero);
+                try {
+                    fmt.new FormatSpecifier(sp).print(arg, l);
+                } catch (IOException x) {
+                    throw new AssertionError(x); // StringBuilder does not throw
+                }
+            }
+            return sb;
+        }
+
+        /**
+         * Prints a 'd', 'x' or 's' conversion without a Formatter, or
+         * returns false if the argument needs one.
+         */
+        private boolean print(StringBuilder sb, int kind,
+                              FormatSpecifier sp, Object arg) {
+            int begin = sb.length();
+            switch (kind) {
+            case DECIMAL:
+                if (!(arg instanceof Integer || arg instanceof Long
+                      || arg instanceof Short || arg instanceof Byte))
+                    return false;
+                sb.append(((Number) arg).longValue());
+                if (zero != '0') {
+                    for (int j = begin, len = sb.length(); j < len; j++) {
+                        char c = sb.charAt(j);
+                        if (c != '-')
+                            sb.setCharAt(j, (char) ((c - '0') + zero));
+                    }
+                }
+                break;
+            case HEX:
+                if (arg instanceof Integer)
+                    sb.append(Integer.toHexString((Integer) arg));
+                else if (arg instanceof Long)
+                    sb.append(Long.toHexString((Long) arg));
+                else if (arg instanceof Short)
+                    sb.append(Integer.toHexString((Short) arg & 0xffff));
+                else if (arg instanceof Byte)
+                    sb.append(Integer.toHexString((Byte) arg & 0xff));
+                else
+                    return false;
+                break;
+            default:  // STRING
+                if (arg instanceof Formattable)
+                    return false;
+                String s = String.valueOf(arg);
+                int precision = sp.precision;
+                if (precision != -1 && precision < s.length())
+                    sb.append(s, 0, precision);
+                else
+                    sb.append(s);
+                break;
+            }
+
+            // justify based on width
+            int n = sp.width - (sb.length() - begin);
+            if (n > 0) {
+                if (sp.f.contains(Flags.LEFT_JUSTIFY)) {
+                    for (int j = 0; j < n; j++) sb.append(' ');
+                } else {
+                    char[] pad = new char[n];
+                    Arrays.fill(pad, ' ');
+                    sb.insert(begin, pad);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the format string this template was compiled from.
+         *
+         * @return  The format string
+         */
+        public String toString() {
+            return format;
+        }
+    }
+
     public enum BigDecimalLayoutForm { SCIENTIFIC, DECIMAL_FLOAT };
 
     private class FormatSpecifier implements FormatString {
@@ -2657,6 +3014,19 @@ public final class Formatter implements Closeable, Flushable {
             return c;
         }
 
+        /**
+         * Creates a copy of a specifier parsed by another formatter,
+         * printing to this one.
+         */
+        FormatSpecifier(FormatSpecifier fs) {
+            index = fs.index;
+            f = fs.f;
+            width = fs.width;
+            precision = fs.precision;
+            dt = fs.dt;
+            c = fs.c;
+        }
+
         FormatSpecifier(Matcher m) {
             int idx = 1;
 
@@ -25,6 +25,7 @@
 
 package java.util;
 import java.io.*;
+import java.util.function.Consumer;
 
 /**
  * Hash table based implementation of the <tt>Map</tt> interface.  This
@@ -154,6 +155,55 @@ public class HashMap<K,V>
     implements Map<K,V>, Cloneable, Serializable
 {
 
+    /*
+     * Implementation notes.
+     *
+     * This map usually acts as a binned (bucketed) hash table, but
+     * when a bucket gets too large, it is additionally indexed by a
+     * TreeBin, a red-black tree over the entries of that bucket.  Most
+     * methods try to use normal chains, but relay to TreeBin methods
+     * when applicable (simply by checking treeBins[i]).  Tree bins can
+     * be traversed and used like any others, but additionally support
+     * faster lookup when overpopulated.  However, since the vast
+     * majority of buckets in normal use are not overpopulated, checking
+     * for the existence of tree bins may be delayed in the course of
+     * table methods.
+     *
+     * Tree bins are primarily ordered by hash code, but in the case of
+     * ties, if two elements are of the same "class C implements
+     * Comparable<C>" type then their compareTo method is used for
+     * ordering.  (We conservatively check generic types via reflection
+     * to validate this -- see method comparableClassFor).  The added
+     * complexity of tree bins is worthwhile in providing worst-case
+     * O(log n) operations when keys either have distinct hashes or are
+     * orderable.  Thus, performance degrades gracefully under
+     * accidental or malicious usages in which hashCode() methods return
+     * values that are poorly distributed, as well as those in which
+     * many keys share a hashCode, so long as they are also Comparable.
+     * (If neither of these apply, we may waste about a factor of two in
+     * time and space compared to taking no precautions.  But the only
+     * known cases stem from poor user programming practices that are
+     * already so slow that this makes little difference.)
+     *
+     * Unlike a design that replaces the chain by tree nodes, a TreeBin
+     * only points at the existing Entry objects of its bucket, and its
+     * nodes are doubly linked in chain order so that an entry can be
+     * unlinked from its singly linked chain without a linear search for
+     * the predecessor.  New entries are always linked at the head of a
+     * chain (see createEntry), so the tree bin mirrors that by adding a
+     * node at the head of its list.  Because the chains themselves are
+     * untouched, dropping a tree bin (upon shrinkage, clear, or resize)
+     * is just a matter of clearing its slot in treeBins, and
+     * LinkedHashMap and HashSet inherit the tree bins without any change
+     * in their ordering or iteration.
+     *
+     * Tree bins are rebuilt from the new chains after each resize rather
+     * than split, since transfer (and LinkedHashMap's override of it)
+     * may reverse or rehash chains.  While the table is smaller than
+     * MIN_TREEIFY_CAPACITY, an overpopulated bucket triggers a resize
+     * instead of treeification.
+     */
+
     /**
      * The default initial capacity - MUST be a power of two.
      */
@@ -176,11 +226,47 @@ public class HashMap<K,V>
      */
     static final Entry<?,?>[] EMPTY_TABLE = {};
 
+    /**
+     * The bin count threshold for using a tree rather than a plain chain
+     * for a bucket.  A bucket is converted to a tree bin when a new entry
+     * is added to a chain that already holds at least this many entries
+     * minus one.  The value must be greater than 2 and should be at least
+     * 8 to mesh with assumptions in tree removal about conversion back to
+     * plain chains upon shrinkage.
+     */
+    static final int TREEIFY_THRESHOLD = 8;
+
+    /**
+     * The bin count threshold below which a tree bin is dropped (its
+     * chain is then searched linearly again) during a remove operation.
+     * Should be less than TREEIFY_THRESHOLD, and at most 6 to mesh with
+     * shrinkage detection under removal.
+     */
+    static final int UNTREEIFY_THRESHOLD = 6;
+
+    /**
+     * The smallest table capacity for which buckets may be treeified.
+     * (Otherwise the table is resized if a bucket has too many entries.)
+     * Should be at least 4 * TREEIFY_THRESHOLD to avoid conflicts
+     * between resizing and treeification thresholds.
+     */
+    static final int MIN_TREEIFY_CAPACITY = 64;
+
     /**
      * The table, resized as necessary. Length MUST Always be a power of two.
      */
     transient Entry<K,V>[] table = (Entry<K,V>[]) EMPTY_TABLE;
 
+    /**
+     * Tree indexes for overpopulated buckets, parallel to {@link #table}.
+     * Null until the first bucket is treeified; afterwards an element is
+     * non-null only for the buckets that currently have a tree bin.  The
+     * entry chains in {@code table} are always kept intact, so iteration,
+     * cloning, serialization and the LinkedHashMap ordering never need to
+     * know about tree bins.
+     */
+    transient TreeBin<K,V>[] treeBins;
+
     /**
      * The number of key-value mappings contained in this map.
      */
@@ -342,6 +428,7 @@ public class HashMap<K,V>
 
         threshold = (int) Math.min(capacity * loadFactor, MAXIMUM_CAPACITY + 1);
         table = new Entry[capacity];
+        treeBins = null;
         initHashSeedAsNeeded(capacity);
     }
 
@@ -458,6 +545,11 @@ public class HashMap<K,V>
         if (size == 0) {
             return null;
         }
+        TreeBin<K,V> bin = treeBinAt(0);
+        if (bin != null) {
+            Entry<K,V> e = bin.getEntry(0, null);
+            return (e == null) ? null : e.value;
+        }
         for (Entry<K,V> e = table[0]; e != null; e = e.next) {
             if (e.key == null)
                 return e.value;
@@ -488,7 +580,11 @@ public class HashMap<K,V>
         }
 
         int hash = (key == null) ? 0 : hash(key);
-        for (Entry<K,V> e = table[indexFor(hash, table.length)];
+        int i = indexFor(hash, table.length);
+        TreeBin<K,V> bin = treeBinAt(i);
+        if (bin != null)
+            return bin.getEntry(hash, key);
+        for (Entry<K,V> e = table[i];
              e != null;
              e = e.next) {
             Object k;
@@ -519,18 +615,30 @@ public class HashMap<K,V>
             return putForNullKey(value);
         int hash = hash(key);
         int i = indexFor(hash, table.length);
-        for (Entry<K,V> e = table[i]; e != null; e = e.next) {
-            Object k;
-            if (e.hash == hash && ((k = e.key) == key || key.equals(k))) {
-                V oldValue = e.value;
-                e.value = value;
-                e.recordAccess(this);
-                return oldValue;
+        int binCount = 0;
+        Entry<K,V> e;
+        TreeBin<K,V> bin = treeBinAt(i);
+        if (bin != null)
+            e = bin.getEntry(hash, key);
+        else {
+            for (e = table[i]; e != null; e = e.next) {
+                Object k;
+                if (e.hash == hash && ((k = e.key) == key || key.equals(k)))
+                    break;
+                ++binCount;
             }
         }
+        if (e != null) {
+            V oldValue = e.value;
+            e.value = value;
+            e.recordAccess(this);
+            return oldValue;
+        }
 
         modCount++;
         addEntry(hash, key, value, i);
+        if (binCount >= TREEIFY_THRESHOLD - 1)
+            treeifyBin(hash);
         return null;
     }
 
@@ -538,16 +646,28 @@ public class HashMap<K,V>
      * Offloaded version of put for null keys
      */
     private V putForNullKey(V value) {
-        for (Entry<K,V> e = table[0]; e != null; e = e.next) {
-            if (e.key == null) {
-                V oldValue = e.value;
-                e.value = value;
-                e.recordAccess(this);
-                return oldValue;
+        int binCount = 0;
+        Entry<K,V> e;
+        TreeBin<K,V> bin = treeBinAt(0);
+        if (bin != null)
+            e = bin.getEntry(0, null);
+        else {
+            for (e = table[0]; e != null; e = e.next) {
+                if (e.key == null)
+                    break;
+                ++binCount;
             }
         }
+        if (e != null) {
+            V oldValue = e.value;
+            e.value = value;
+            e.recordAccess(this);
+            return oldValue;
+        }
         modCount++;
         addEntry(0, null, value, 0);
+        if (binCount >= TREEIFY_THRESHOLD - 1)
+            treeifyBin(0);
         return null;
     }
 
@@ -566,6 +686,19 @@ public class HashMap<K,V>
          * clone or deserialize.  It will only happen for construction if the
          * input Map is a sorted map whose ordering is inconsistent w/ equals.
          */
+        TreeBin<K,V> bin = treeBinAt(i);
+        if (bin != null) {
+            Entry<K,V> e = bin.getEntry(hash, key);
+            if (e != null) {
+                e.value = value;
+                return;
+            }
+            createEntry(hash, key, value, i);
+            bin.addFirst(table[i]);
+            return;
+        }
+
+        int binCount = 0;
         for (Entry<K,V> e = table[i]; e != null; e = e.next) {
             Object k;
             if (e.hash == hash &&
@@ -573,9 +706,12 @@ public class HashMap<K,V>
                 e.value = value;
                 return;
             }
+            ++binCount;
         }
 
         createEntry(hash, key, value, i);
+        if (binCount >= TREEIFY_THRESHOLD - 1)
+            treeifyBucket(i);
     }
 
     private void putAllForCreate(Map<? extends K, ? extends V> m) {
@@ -609,6 +745,90 @@ public class HashMap<K,V>
         transfer(newTable, initHashSeedAsNeeded(newCapacity));
         table = newTable;
         threshold = (int)Math.min(newCapacity * loadFactor, MAXIMUM_CAPACITY + 1);
+        if (treeBins != null)
+            rebuildTreeBins();
+    }
+
+    /**
+     * Rebuilds the tree bins after the entries have been transferred to
+     * a new table.  Chains are split (and possibly reversed or rehashed)
+     * by transfer, so every bucket that still holds at least
+     * TREEIFY_THRESHOLD entries gets a fresh TreeBin.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuildTreeBins() {
+        Entry<K,V>[] tab = table;
+        TreeBin<K,V>[] bins = null;
+        for (int i = 0; i < tab.length; ++i) {
+            int n = 0;
+            for (Entry<K,V> e = tab[i];
+                 e != null && n < TREEIFY_THRESHOLD;
+                 e = e.next)
+                ++n;
+            if (n >= TREEIFY_THRESHOLD) {
+                if (bins == null)
+                    bins = (TreeBin<K,V>[]) new TreeBin<?,?>[tab.length];
+                bins[i] = new TreeBin<>(tab[i]);
+            }
+        }
+        treeBins = bins;
+    }
+
+    /**
+     * Returns the tree bin for the given bucket, or null if the bucket
+     * is a plain chain.
+     */
+    private TreeBin<K,V> treeBinAt(int i) {
+        TreeBin<K,V>[] bins = treeBins;
+        return (bins == null) ? null : bins[i];
+    }
+
+    /**
+     * Called after a put has added an entry to a bucket that already
+     * held TREEIFY_THRESHOLD - 1 or more entries.  Replaces the plain
+     * chain by a tree bin, unless the table is too small, in which case
+     * it resizes instead.
+     */
+    final void treeifyBin(int hash) {
+        if (table.length < MIN_TREEIFY_CAPACITY)
+            resize(2 * table.length);
+        else
+            treeifyBucket(indexFor(hash, table.length));
+    }
+
+    /**
+     * Builds a tree bin for bucket i if its chain still holds at least
+     * TREEIFY_THRESHOLD entries and it is not already a tree bin.
+     */
+    @SuppressWarnings("unchecked")
+    private void treeifyBucket(int i) {
+        Entry<K,V>[] tab = table;
+        if (treeBinAt(i) != null)
+            return;
+        int n = 0;
+        for (Entry<K,V> e = tab[i]; e != null && n < TREEIFY_THRESHOLD;
+             e = e.next)
+            ++n;
+        if (n < TREEIFY_THRESHOLD)
+            return;
+        if (treeBins == null)
+            treeBins = (TreeBin<K,V>[]) new TreeBin<?,?>[tab.length];
+        treeBins[i] = new TreeBin<>(tab[i]);
+    }
+
+    /**
+     * Unlinks the entry of tree node p from the chain of bucket i and
+     * from its tree bin, dropping the tree bin if it became too small.
+     */
+    private void removeTreeEntry(TreeBin<K,V> bin, TreeNode<K,V> p, int i) {
+        Entry<K,V> e = p.entry;
+        if (p.prev == null)
+            table[i] = e.next;
+        else
+            p.prev.entry.next = e.next;
+        bin.removeTreeNode(p);
+        if (bin.size < UNTREEIFY_THRESHOLD)
+            treeBins[i] = null;
     }
 
     /**
@@ -696,6 +916,17 @@ public class HashMap<K,V>
         }
         int hash = (key == null) ? 0 : hash(key);
         int i = indexFor(hash, table.length);
+        TreeBin<K,V> bin = treeBinAt(i);
+        if (bin != null) {
+            TreeNode<K,V> p = bin.find(hash, key);
+            if (p == null)
+                return null;
+            modCount++;
+            size--;
+            removeTreeEntry(bin, p, i);
+            p.entry.recordRemoval(this);
+            return p.entry;
+        }
         Entry<K,V> prev = table[i];
         Entry<K,V> e = prev;
 
@@ -732,6 +963,17 @@ public class HashMap<K,V>
         Object key = entry.getKey();
         int hash = (key == null) ? 0 : hash(key);
         int i = indexFor(hash, table.length);
+        TreeBin<K,V> bin = treeBinAt(i);
+        if (bin != null) {
+            TreeNode<K,V> p = bin.find(hash, key);
+            if (p == null || !p.entry.equals(entry))
+                return null;
+            modCount++;
+            size--;
+            removeTreeEntry(bin, p, i);
+            p.entry.recordRemoval(this);
+            return p.entry;
+        }
         Entry<K,V> prev = table[i];
         Entry<K,V> e = prev;
 
@@ -761,6 +1003,7 @@ public class HashMap<K,V>
     public void clear() {
         modCount++;
         Arrays.fill(table, null);
+        treeBins = null;
         size = 0;
     }
 
@@ -818,6 +1061,7 @@ public class HashMap<K,V>
                table.length));
         }
         result.entrySet = null;
+        result.treeBins = null;
         result.modCount = 0;
         result.size = 0;
         result.init();
@@ -910,6 +1154,9 @@ public class HashMap<K,V>
         }
 
         createEntry(hash, key, value, bucketIndex);
+        TreeBin<K,V> bin = treeBinAt(bucketIndex);
+        if (bin != null)
+            bin.addFirst(table[bucketIndex]);
     }
 
     /**
@@ -1002,6 +1249,17 @@ public class HashMap<K,V>
         return new EntryIterator();
     }
 
+    // Subclass overrides these to alter behavior of views' spliterator() method
+    Spliterator<K> newKeySpliterator() {
+        return new KeySpliterator<K,V>(this, 0, -1, 0, 0);
+    }
+    Spliterator<V> newValueSpliterator() {
+        return new ValueSpliterator<K,V>(this, 0, -1, 0, 0);
+    }
+    Spliterator<Map.Entry<K,V>> newEntrySpliterator() {
+        return new EntrySpliterator<K,V>(this, 0, -1, 0, 0);
+    }
+
 
     // Views
 
@@ -1025,10 +1283,13 @@ public class HashMap<K,V>
         return (ks != null ? ks : (keySet = new KeySet()));
     }
 
-    private final class KeySet extends AbstractSet<K> {
+    final class KeySet extends AbstractSet<K> {
         public Iterator<K> iterator() {
             return newKeyIterator();
         }
+        public Spliterator<K> spliterator() {
+            return newKeySpliterator();
+        }
         public int size() {
             return size;
         }
@@ -1061,10 +1322,13 @@ public class HashMap<K,V>
         return (vs != null ? vs : (values = new Values()));
     }
 
-    private final class Values extends AbstractCollection<V> {
+    final class Values extends AbstractCollection<V> {
         public Iterator<V> iterator() {
             return newValueIterator();
         }
+        public Spliterator<V> spliterator() {
+            return newValueSpliterator();
+        }
         public int size() {
             return size;
         }
@@ -1101,10 +1365,13 @@ public class HashMap<K,V>
         return es != null ? es : (entrySet = new EntrySet());
     }
 
-    private final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
         public Iterator<Map.Entry<K,V>> iterator() {
             return newEntryIterator();
         }
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return newEntrySpliterator();
+        }
         public boolean contains(Object o) {
             if (!(o instanceof Map.Entry))
                 return false;
@@ -1123,6 +1390,263 @@ public class HashMap<K,V>
         }
     }
 
+    /* ------------------------------------------------------------ */
+    // Spliterators
+
+    /**
+     * Base of the view spliterators.  Traversal walks the bucket range
+     * [index, fence) of the table and the chain hanging off each bucket;
+     * splitting halves the remaining bucket range, so no entries are
+     * copied.  The fence and the expected modCount are bound on first use.
+     */
+    abstract static class HashMapSpliterator<K,V,T>
+            extends Spliterators.AbstractSpliterator<T> {
+        final HashMap<K,V> map;
+        Entry<K,V> current;         // current entry
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        HashMapSpliterator(HashMap<K,V> m, int origin,
+                           int fence, int est, int expectedModCount) {
+            super(0, 0);
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                HashMap<K,V> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.table.length;
+            }
+            return hi;
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+    }
+
+    static final class KeySpliterator<K,V>
+            extends HashMapSpliterator<K,V,K> {
+        KeySpliterator(HashMap<K,V> m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator<K,V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid || current != null) ? null :
+                new KeySpliterator<K,V>(map, lo, index = mid, est >>>= 1,
+                                        expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super K> action) {
+            int i, hi, mc;
+            if (action == null)
+                throw new NullPointerException();
+            HashMap<K,V> m = map;
+            Entry<K,V>[] tab = m.table;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = m.modCount;
+                hi = fence = tab.length;
+            }
+            else
+                mc = expectedModCount;
+            if (tab.length >= hi && (i = index) >= 0 &&
+                (i < (index = hi) || current != null)) {
+                Entry<K,V> p = current;
+                current = null;
+                do {
+                    if (p == null)
+                        p = tab[i++];
+                    else {
+                        action.accept(p.key);
+                        p = p.next;
+                    }
+                } while (p != null || i < hi);
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super K> action) {
+            int hi;
+            if (action == null)
+                throw new NullPointerException();
+            Entry<K,V>[] tab = map.table;
+            if (tab.length >= (hi = getFence()) && index >= 0) {
+                while (current != null || index < hi) {
+                    if (current == null)
+                        current = tab[index++];
+                    else {
+                        K k = current.key;
+                        current = current.next;
+                        action.accept(k);
+                        if (map.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+
+    static final class ValueSpliterator<K,V>
+            extends HashMapSpliterator<K,V,V> {
+        ValueSpliterator(HashMap<K,V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator<K,V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid || current != null) ? null :
+                new ValueSpliterator<K,V>(map, lo, index = mid, est >>>= 1,
+                                          expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super V> action) {
+            int i, hi, mc;
+            if (action == null)
+                throw new NullPointerException();
+            HashMap<K,V> m = map;
+            Entry<K,V>[] tab = m.table;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = m.modCount;
+                hi = fence = tab.length;
+            }
+            else
+                mc = expectedModCount;
+            if (tab.length >= hi && (i = index) >= 0 &&
+                (i < (index = hi) || current != null)) {
+                Entry<K,V> p = current;
+                current = null;
+                do {
+                    if (p == null)
+                        p = tab[i++];
+                    else {
+                        action.accept(p.value);
+                        p = p.next;
+                    }
+                } while (p != null || i < hi);
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super V> action) {
+            int hi;
+            if (action == null)
+                throw new NullPointerException();
+            Entry<K,V>[] tab = map.table;
+            if (tab.length >= (hi = getFence()) && index >= 0) {
+                while (current != null || index < hi) {
+                    if (current == null)
+                        current = tab[index++];
+                    else {
+                        V v = current.value;
+                        current = current.next;
+                        action.accept(v);
+                        if (map.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0);
+        }
+    }
+
+    static final class EntrySpliterator<K,V>
+            extends HashMapSpliterator<K,V,Map.Entry<K,V>> {
+        EntrySpliterator(HashMap<K,V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public EntrySpliterator<K,V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid || current != null) ? null :
+                new EntrySpliterator<K,V>(map, lo, index = mid, est >>>= 1,
+                                          expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<K,V>> action) {
+            int i, hi, mc;
+            if (action == null)
+                throw new NullPointerException();
+            HashMap<K,V> m = map;
+            Entry<K,V>[] tab = m.table;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = m.modCount;
+                hi = fence = tab.length;
+            }
+            else
+                mc = expectedModCount;
+            if (tab.length >= hi && (i = index) >= 0 &&
+                (i < (index = hi) || current != null)) {
+                Entry<K,V> p = current;
+                current = null;
+                do {
+                    if (p == null)
+                        p = tab[i++];
+                    else {
+                        action.accept(p);
+                        p = p.next;
+                    }
+                } while (p != null || i < hi);
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K,V>> action) {
+            int hi;
+            if (action == null)
+                throw new NullPointerException();
+            Entry<K,V>[] tab = map.table;
+            if (tab.length >= (hi = getFence()) && index >= 0) {
+                while (current != null || index < hi) {
+                    if (current == null)
+                        current = tab[index++];
+                    else {
+                        Entry<K,V> e = current;
+                        current = current.next;
+                        action.accept(e);
+                        if (map.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+
     /**
      * Save the state of the <tt>HashMap</tt> instance to a stream (i.e.,
      * serialize it).
@@ -1213,4 +1737,483 @@ public class HashMap<K,V>
     // These methods are used when serializing HashSets
     int   capacity()     { return table.length; }
     float loadFactor()   { return loadFactor;   }
+
+    /* ---------------- Tree bins -------------- */
+
+    /**
+     * Returns x's Class if it is of the form "class C implements
+     * Comparable<C>", else null.
+     */
+    static Class<?> comparableClassFor(Object x) {
+        if (x instanceof Comparable) {
+            Class<?> c; java.lang.reflect.Type[] ts, as;
+            java.lang.reflect.Type t;
+            java.lang.reflect.ParameterizedType p;
+            if ((c = x.getClass()) == String.class) // bypass checks
+                return c;
+            if ((ts = c.getGenericInterfaces()) != null) {
+                for (int i = 0; i < ts.length; ++i) {
+                    if (((t = ts[i]) instanceof
+                         java.lang.reflect.ParameterizedType) &&
+                        ((p = (java.lang.reflect.ParameterizedType)t)
+                         .getRawType() == Comparable.class) &&
+                        (as = p.getActualTypeArguments()) != null &&
+                        as.length == 1 && as[0] == c) // type arg is c
+                        return c;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns k.compareTo(x) if x matches kc (k's screened comparable
+     * class), else 0.
+     */
+    @SuppressWarnings({"rawtypes","unchecked"}) // for cast to Comparable
+    static int compareComparables(Class<?> kc, Object k, Object x) {
+        return (x == null || x.getClass() != kc ? 0 :
+                ((Comparable)k).compareTo(x));
+    }
+
+    /**
+     * Tie-breaking utility for ordering insertions when equal
+     * hashCodes and non-comparable.  We don't require a total order,
+     * just a consistent insertion rule to maintain equivalence across
+     * rebalancings.  Tie-breaking further than necessary simplifies
+     * testing a bit.
+     */
+    static int tieBreakOrder(Object a, Object b) {
+        int d;
+        if (a == null || b == null ||
+            (d = a.getClass().getName().
+             compareTo(b.getClass().getName())) == 0)
+            d = (System.identityHashCode(a) <= System.identityHashCode(b) ?
+                 -1 : 1);
+        return d;
+    }
+
+    /**
+     * Node of a TreeBin.  Besides the red-black links, nodes are doubly
+     * linked in the same order as the entries of the bucket chain, so
+     * that the predecessor of an entry is available in constant time
+     * upon removal.
+     */
+    static final class TreeNode<K,V> {
+        final Entry<K,V> entry;
+        final int hash;         // cached from entry; bins are rebuilt
+        final K key;            // whenever entry hashes may change
+        TreeNode<K,V> parent;   // red-black tree links
+        TreeNode<K,V> left;
+        TreeNode<K,V> right;
+        TreeNode<K,V> prev;     // node of the previous entry in the chain
+        TreeNode<K,V> next;     // node of the next entry in the chain
+        boolean red;
+
+        TreeNode(Entry<K,V> entry) {
+            this.entry = entry;
+            this.hash = entry.hash;
+            this.key = entry.key;
+        }
+
+        /**
+         * Finds the node starting at root p with the given hash and key.
+         * The kc argument caches comparableClassFor(key) upon first use
+         * comparing keys.
+         */
+        final TreeNode<K,V> find(int h, Object k, Class<?> kc) {
+            TreeNode<K,V> p = this;
+            do {
+                int ph, dir; K pk;
+                TreeNode<K,V> pl = p.left, pr = p.right, q;
+                if ((ph = p.hash) > h)
+                    p = pl;
+                else if (ph < h)
+                    p = pr;
+                else if ((pk = p.key) == k || (k != null && k.equals(pk)))
+                    return p;
+                else if (pl == null)
+                    p = pr;
+                else if (pr == null)
+                    p = pl;
+                else if ((kc != null ||
+                          (kc = comparableClassFor(k)) != null) &&
+                         (dir = compareComparables(kc, k, pk)) != 0)
+                    p = (dir < 0) ? pl : pr;
+                else if ((q = pr.find(h, k, kc)) != null)
+                    return q;
+                else
+                    p = pl;
+            } while (p != null);
+            return null;
+        }
+    }
+
+    /**
+     * A red-black tree indexing the entries of one overpopulated bucket.
+     * The red-black code is adapted from the CLR algorithms as used in
+     * TreeMap, but the nodes are ordered by hash, then by compareTo when
+     * the keys share a Comparable class, then by tieBreakOrder.
+     */
+    static final class TreeBin<K,V> {
+        TreeNode<K,V> root;
+        TreeNode<K,V> first;    // node of the head entry of the chain
+        int size;
+
+        /**
+         * Creates a bin indexing the chain starting at entry b.
+         */
+        TreeBin(Entry<K,V> b) {
+            TreeNode<K,V> tail = null;
+            for (Entry<K,V> e = b; e != null; e = e.next) {
+                TreeNode<K,V> x = new TreeNode<>(e);
+                if ((x.prev = tail) == null)
+                    first = x;
+                else
+                    tail.next = x;
+                tail = x;
+                insert(x);
+            }
+        }
+
+        /**
+         * Returns the entry with the given hash and key, or null if none.
+         */
+        final Entry<K,V> getEntry(int h, Object k) {
+            TreeNode<K,V> p = find(h, k);
+            return (p == null) ? null : p.entry;
+        }
+
+        /**
+         * Returns the node with the given hash and key, or null if none.
+         */
+        final TreeNode<K,V> find(int h, Object k) {
+            TreeNode<K,V> r = root;
+            return (r == null) ? null : r.find(h, k, null);
+        }
+
+        /**
+         * Indexes entry e, which has just been linked at the head of the
+         * bucket chain and whose key is known not to be present.
+         */
+        final void addFirst(Entry<K,V> e) {
+            TreeNode<K,V> x = new TreeNode<>(e), f = first;
+            if ((x.next = f) != null)
+                f.prev = x;
+            first = x;
+            insert(x);
+        }
+
+        /**
+         * Links x into the tree.  Keys in a bin are distinct, so no
+         * equality check is needed here.
+         */
+        private void insert(TreeNode<K,V> x) {
+            ++size;
+            TreeNode<K,V> p = root;
+            if (p == null) {
+                x.red = false;
+                root = x;
+                return;
+            }
+            K k = x.key;
+            int h = x.hash;
+            Class<?> kc = null;
+            for (;;) {
+                int dir, ph;
+                if ((ph = p.hash) > h)
+                    dir = -1;
+                else if (ph < h)
+                    dir = 1;
+                else if ((kc == null &&
+                          (kc = comparableClassFor(k)) == null) ||
+                         (dir = compareComparables(kc, k, p.key)) == 0)
+                    dir = tieBreakOrder(k, p.key);
+                TreeNode<K,V> xp = p;
+                if ((p = (dir <= 0) ? p.left : p.right) == null) {
+                    x.parent = xp;
+                    if (dir <= 0)
+                        xp.left = x;
+                    else
+                        xp.right = x;
+                    root = balanceInsertion(root, x);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Removes node p, which must be present, from both the tree and
+         * the chain-ordered node list.  The caller is responsible for
+         * unlinking p's entry from the bucket chain itself.
+         *
+         * If p has two children, it is swapped (by relinking, not by
+         * exchanging entries, since the list links are positional) with
+         * its successor before being detached.
+         */
+        final void removeTreeNode(TreeNode<K,V> p) {
+            --size;
+            TreeNode<K,V> pred = p.prev, succ = p.next;
+            if (pred == null)
+                first = succ;
+            else
+                pred.next = succ;
+            if (succ != null)
+                succ.prev = pred;
+            p.prev = p.next = null;
+
+            TreeNode<K,V> pl = p.left, pr = p.right, replacement;
+            if (pl != null && pr != null) {
+                TreeNode<K,V> s = pr, sl;
+                while ((sl = s.left) != null) // find successor
+                    s = sl;
+                boolean c = s.red; s.red = p.red; p.red = c; // swap colors
+                TreeNode<K,V> sr = s.right;
+                TreeNode<K,V> pp = p.parent;
+                if (s == pr) { // p was s's direct parent
+                    p.parent = s;
+                    s.right = p;
+                }
+                else {
+                    TreeNode<K,V> sp = s.parent;
+                    if ((p.parent = sp) != null) {
+                        if (s == sp.left)
+                            sp.left = p;
+                        else
+                            sp.right = p;
+                    }
+                    if ((s.right = pr) != null)
+                        pr.parent = s;
+                }
+                p.left = null;
+                if ((p.right = sr) != null)
+                    sr.parent = p;
+                if ((s.left = pl) != null)
+                    pl.parent = s;
+                if ((s.parent = pp) == null)
+                    root = s;
+                else if (p == pp.left)
+                    pp.left = s;
+                else
+                    pp.right = s;
+                replacement = (sr != null) ? sr : p;
+            }
+            else if (pl != null)
+                replacement = pl;
+            else if (pr != null)
+                replacement = pr;
+            else
+                replacement = p;
+            if (replacement != p) {
+                TreeNode<K,V> pp = replacement.parent = p.parent;
+                if (pp == null)
+                    root = replacement;
+                else if (p == pp.left)
+                    pp.left = replacement;
+                else
+                    pp.right = replacement;
+                p.left = p.right = p.parent = null;
+            }
+
+            TreeNode<K,V> r = p.red ? root : balanceDeletion(root, replacement);
+
+            if (replacement == p) {  // detach
+                TreeNode<K,V> pp = p.parent;
+                p.parent = null;
+                if (pp != null) {
+                    if (p == pp.left)
+                        pp.left = null;
+                    else if (p == pp.right)
+                        pp.right = null;
+                }
+            }
+            root = r;
+        }
+
+        /* ------------------------------------------------------------ */
+        // Red-black tree methods, all adapted from CLR
+
+        static <K,V> TreeNode<K,V> rotateLeft(TreeNode<K,V> root,
+                                              TreeNode<K,V> p) {
+            TreeNode<K,V> r, pp, rl;
+            if (p != null && (r = p.right) != null) {
+                if ((rl = p.right = r.left) != null)
+                    rl.parent = p;
+                if ((pp = r.parent = p.parent) == null)
+                    (root = r).red = false;
+                else if (pp.left == p)
+                    pp.left = r;
+                else
+                    pp.right = r;
+                r.left = p;
+                p.parent = r;
+            }
+            return root;
+        }
+
+        static <K,V> TreeNode<K,V> rotateRight(TreeNode<K,V> root,
+                                               TreeNode<K,V> p) {
+            TreeNode<K,V> l, pp, lr;
+            if (p != null && (l = p.left) != null) {
+                if ((lr = p.left = l.right) != null)
+                    lr.parent = p;
+                if ((pp = l.parent = p.parent) == null)
+                    (root = l).red = false;
+                else if (pp.right == p)
+                    pp.right = l;
+                else
+                    pp.left = l;
+                l.right = p;
+                p.parent = l;
+            }
+            return root;
+        }
+
+        static <K,V> TreeNode<K,V> balanceInsertion(TreeNode<K,V> root,
+                                                    TreeNode<K,V> x) {
+            x.red = true;
+            for (TreeNode<K,V> xp, xpp, xppl, xppr;;) {
+                if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (!xp.red || (xpp = xp.parent) == null)
+                    return root;
+                if (xp == (xppl = xpp.left)) {
+                    if ((xppr = xpp.right) != null && xppr.red) {
+                        xppr.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.right) {
+                            root = rotateLeft(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateRight(root, xpp);
+                            }
+                        }
+                    }
+                }
+                else {
+                    if (xppl != null && xppl.red) {
+                        xppl.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.left) {
+                            root = rotateRight(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateLeft(root, xpp);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        static <K,V> TreeNode<K,V> balanceDeletion(TreeNode<K,V> root,
+                                                   TreeNode<K,V> x) {
+            for (TreeNode<K,V> xp, xpl, xpr;;)  {
+                if (x == null || x == root)
+                    return root;
+                else if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (x.red) {
+                    x.red = false;
+                    return root;
+                }
+                else if ((xpl = xp.left) == x) {
+                    if ((xpr = xp.right) != null && xpr.red) {
+                        xpr.red = false;
+                        xp.red = true;
+                        root = rotateLeft(root, xp);
+                        xpr = (xp = x.parent) == null ? null : xp.right;
+                    }
+                    if (xpr == null)
+                        x = xp;
+                    else {
+                        TreeNode<K,V> sl = xpr.left, sr = xpr.right;
+                        if ((sr == null || !sr.red) &&
+                            (sl == null || !sl.red)) {
+                            xpr.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sr == null || !sr.red) {
+                                if (sl != null)
+                                    sl.red = false;
+                                xpr.red = true;
+                                root = rotateRight(root, xpr);
+                                xpr = (xp = x.parent) == null ?
+                                    null : xp.right;
+                            }
+                            if (xpr != null) {
+                                xpr.red = (xp == null) ? false : xp.red;
+                                if ((sr = xpr.right) != null)
+                                    sr.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateLeft(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+                else { // symmetric
+                    if (xpl != null && xpl.red) {
+                        xpl.red = false;
+                        xp.red = true;
+                        root = rotateRight(root, xp);
+                        xpl = (xp = x.parent) == null ? null : xp.left;
+                    }
+                    if (xpl == null)
+                        x = xp;
+                    else {
+                        TreeNode<K,V> sl = xpl.left, sr = xpl.right;
+                        if ((sl == null || !sl.red) &&
+                            (sr == null || !sr.red)) {
+                            xpl.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sl == null || !sl.red) {
+                                if (sr != null)
+                                    sr.red = false;
+                                xpl.red = true;
+                                root = rotateLeft(root, xpl);
+                                xpl = (xp = x.parent) == null ?
+                                    null : xp.left;
+                            }
+                            if (xpl != null) {
+                                xpl.red = (xp == null) ? false : xp.red;
+                                if ((sl = xpl.left) != null)
+                                    sl.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateRight(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
@@ -170,6 +170,23 @@ public class HashSet<E>
         return map.keySet().iterator();
     }
 
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * set.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#DISTINCT}, and splits over the bucket ranges of the
+     * backing map.  A {@link LinkedHashSet} instead reports
+     * {@link Spliterator#ORDERED} and traverses in insertion order.
+     *
+     * @return a {@code Spliterator} over the elements in this set
+     * @since 1.8
+     */
+    public Spliterator<E> spliterator() {
+        return map.newKeySpliterator();
+    }
+
     /**
      * Returns the number of elements in this set (its cardinality).
      *
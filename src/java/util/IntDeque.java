@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.IntBuffer;
+import java.util.function.IntConsumer;
+
+/**
+ * A resizable circular array of primitive {@code int} values, usable as
+ * a queue or a stack.  Where an {@code ArrayDeque<Integer>} holds a
+ * reference to a boxed object for each element, an <tt>IntDeque</tt>
+ * stores its elements directly in a {@code int[]}.
+ *
+ * <p>Capacity is managed as in {@link ArrayDeque}: it is always a power
+ * of two, at least eight, and doubles whenever the deque becomes full.
+ * Runs of elements can be appended from arrays and {@link IntBuffer}s, and
+ * removed from the head into them, with at most two array copies per
+ * operation whatever the position of the head.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access an <tt>IntDeque</tt> concurrently, and at
+ * least one of the threads modifies the deque, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>{@link #forEach} is <i>fail-fast</i>, on the same best-effort
+ * basis as the iterators of {@link ArrayDeque}.
+ *
+ * @see ArrayDeque
+ * @see IntList
+ * @since 1.8
+ */
+public class IntDeque implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 6198542712847051377L;
+
+    /**
+     * The array in which the elements of the deque are stored.
+     * The capacity of the deque is the length of this array, which is
+     * always a power of two. The array is never allowed to become
+     * full, except transiently within an addX method where it is
+     * resized (see doubleCapacity) immediately upon becoming full,
+     * thus avoiding head and tail wrapping around to equal each
+     * other.
+     */
+    private transient int[] elements;
+
+    /**
+     * The index of the element at the head of the deque; or an
+     * arbitrary number equal to tail if the deque is empty.
+     */
+    private transient int head;
+
+    /**
+     * The index at which the next element would be added to the tail
+     * of the deque.
+     */
+    private transient int tail;
+
+    /**
+     * The minimum capacity that we'll use for a newly created deque.
+     * Must be a power of 2.
+     */
+    private static final int MIN_INITIAL_CAPACITY = 8;
+
+    // ******  Array allocation and resizing utilities ******
+
+    /**
+     * Returns the smallest power of two that holds the given number of
+     * elements with a cell to spare.
+     */
+    private static int capacityFor(int numElements) {
+        int initialCapacity = MIN_INITIAL_CAPACITY;
+        // Find the best power of two to hold elements.
+        // Tests "<=" because arrays aren't kept full.
+        if (numElements >= initialCapacity) {
+            initialCapacity = numElements;
+            initialCapacity |= (initialCapacity >>>  1);
+            initialCapacity |= (initialCapacity >>>  2);
+            initialCapacity |= (initialCapacity >>>  4);
+            initialCapacity |= (initialCapacity >>>  8);
+            initialCapacity |= (initialCapacity >>> 16);
+            initialCapacity++;
+
+            if (initialCapacity < 0)   // Too many elements, must back off
+                initialCapacity >>>= 1;// Good luck allocating 2 ^ 30 elements
+        }
+        return initialCapacity;
+    }
+
+    /**
+     * Double the capacity of this deque.  Call only when full, i.e.,
+     * when head and tail have wrapped around to become equal.
+     */
+    private void doubleCapacity() {
+        assert head == tail;
+        int p = head;
+        int n = elements.length;
+        int r = n - p; // number of elements to the right of p
+        int newCapacity = n << 1;
+        if (newCapacity < 0)
+            throw new IllegalStateException("Sorry, deque too big");
+        int[] a = new int[newCapacity];
+        System.arraycopy(elements, p, a, 0, r);
+        System.arraycopy(elements, 0, a, r, p);
+        elements = a;
+        head = 0;
+        tail = n;
+    }
+
+    /**
+     * Ensures room for numNew more elements, reallocating at most
+     * once, to the smallest sufficient power of two.
+     */
+    private void ensureRoomFor(int numNew) {
+        int n = size();
+        int need = n + numNew;
+        if (need < 0 || need == Integer.MAX_VALUE)
+            throw new IllegalStateException("Sorry, deque too big");
+        if (need < elements.length)
+            return;
+        int newCapacity = capacityFor(need);
+        if (newCapacity <= need)
+            throw new IllegalStateException("Sorry, deque too big");
+        int[] a = new int[newCapacity];
+        copyElements(a, 0, n);
+        elements = a;
+        head = 0;
+        tail = n;
+    }
+
+    /**
+     * Copies the first len elements of this deque into the specified
+     * array, in order, starting at off.
+     */
+    private void copyElements(int[] a, int off, int len) {
+        int h = head;
+        int r = Math.min(len, elements.length - h);
+        System.arraycopy(elements, h, a, off, r);
+        System.arraycopy(elements, 0, a, off + r, len - r);
+    }
+
+    /**
+     * Constructs an empty deque with an initial capacity sufficient to
+     * hold 16 elements.
+     */
+    public IntDeque() {
+        elements = new int[16];
+    }
+
+    /**
+     * Constructs an empty deque with an initial capacity sufficient to
+     * hold the specified number of elements.
+     *
+     * @param numElements  lower bound on initial capacity of the deque
+     */
+    public IntDeque(int numElements) {
+        elements = new int[capacityFor(numElements)];
+    }
+
+    /**
+     * Constructs a deque containing the elements of the specified
+     * array, the first element of the array being the first element of
+     * the deque.
+     *
+     * @param a the array whose elements are to be placed into the deque
+     * @throws NullPointerException if the specified array is null
+     */
+    public IntDeque(int[] a) {
+        elements = new int[capacityFor(a.length)];
+        addAll(a, 0, a.length);
+    }
+
+    // The main insertion and extraction methods are addFirst,
+    // addLast, removeFirst, removeLast. The other methods are defined
+    // in terms of these.
+
+    /**
+     * Inserts the specified element at the front of this deque.
+     *
+     * @param e the element to add
+     */
+    public void addFirst(int e) {
+        elements[head = (head - 1) & (elements.length - 1)] = e;
+        if (head == tail)
+            doubleCapacity();
+    }
+
+    /**
+     * Inserts the specified element at the end of this deque.
+     *
+     * @param e the element to add
+     */
+    public void addLast(int e) {
+        elements[tail] = e;
+        if ( (tail = (tail + 1) & (elements.length - 1)) == head)
+            doubleCapacity();
+    }
+
+    /**
+     * Retrieves and removes the first element of this deque.
+     *
+     * @return the head of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int removeFirst() {
+        int h = head;
+        if (h == tail)
+            throw new NoSuchElementException();
+        head = (h + 1) & (elements.length - 1);
+        return elements[h];
+    }
+
+    /**
+     * Retrieves and removes the last element of this deque.
+     *
+     * @return the tail of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int removeLast() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        int t = (tail - 1) & (elements.length - 1);
+        tail = t;
+        return elements[t];
+    }
+
+    /**
+     * Retrieves, but does not remove, the first element of this deque.
+     *
+     * @return the head of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int getFirst() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        return elements[head];
+    }
+
+    /**
+     * Retrieves, but does not remove, the last element of this deque.
+     *
+     * @return the tail of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int getLast() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        return elements[(tail - 1) & (elements.length - 1)];
+    }
+
+    /**
+     * Returns the element at the specified position in this deque,
+     * counting from the head.
+     *
+     * @param index index of the element to return
+     * @return the element at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException(
+                "Index: "+index+", Size: "+size());
+        return elements[(head + index) & (elements.length - 1)];
+    }
+
+    /**
+     * Appends all of the elements of the specified array to the end of
+     * this deque, in order.
+     *
+     * @param a array containing elements to be added to this deque
+     * @throws NullPointerException if the specified array is null
+     */
+    public void addAll(int[] a) {
+        addAll(a, 0, a.length);
+    }
+
+    /**
+     * Appends <tt>len</tt> elements of the specified array, starting at
+     * <tt>off</tt>, to the end of this deque, in order.
+     *
+     * @param a array containing elements to be added to this deque
+     * @param off the index in <tt>a</tt> of the first element to add
+     * @param len the number of elements to add
+     * @throws NullPointerException if the specified array is null
+     * @throws IndexOutOfBoundsException if <tt>off</tt> or <tt>len</tt>
+     *         is negative, or <tt>off + len</tt> is greater than
+     *         <tt>a.length</tt>
+     */
+    public void addAll(int[] a, int off, int len) {
+        checkFromIndexSize(off, len, a.length);
+        ensureRoomFor(len);
+        int t = tail;
+        int r = Math.min(len, elements.length - t);
+        System.arraycopy(a, off, elements, t, r);
+        System.arraycopy(a, off + r, elements, 0, len - r);
+        tail = (t + len) & (elements.length - 1);
+    }
+
+    /**
+     * Appends the remaining elements of the specified buffer to the end
+     * of this deque, in order, advancing the buffer's position to its
+     * limit.
+     *
+     * @param src buffer containing elements to be added to this deque
+     * @throws NullPointerException if the specified buffer is null
+     */
+    public void addAll(IntBuffer src) {
+        int len = src.remaining();
+        ensureRoomFor(len);
+        int t = tail;
+        int r = Math.min(len, elements.length - t);
+        src.get(elements, t, r);
+        src.get(elements, 0, len - r);
+        tail = (t + len) & (elements.length - 1);
+    }
+
+    /**
+     * Removes up to <tt>len</tt> elements from the head of this deque
+     * and stores them, in order, into the specified array starting at
+     * <tt>off</tt>.
+     *
+     * @param dst the array into which to store the elements
+     * @param off the index in <tt>dst</tt> of the first element stored
+     * @param len the maximum number of elements to remove
+     * @return the number of elements removed, which is the lesser of
+     *         <tt>len</tt> and the size of this deque
+     * @throws NullPointerException if the specified array is null
+     * @throws IndexOutOfBoundsException if <tt>off</tt> or <tt>len</tt>
+     *         is negative, or <tt>off + len</tt> is greater than
+     *         <tt>dst.length</tt>
+     */
+    public int drainTo(int[] dst, int off, int len) {
+        checkFromIndexSize(off, len, dst.length);
+        int n = Math.min(len, size());
+        copyElements(dst, off, n);
+        head = (head + n) & (elements.length - 1);
+        return n;
+    }
+
+    /**
+     * Removes as many elements from the head of this deque as fit in
+     * the remaining space of the specified buffer, and puts them into
+     * the buffer in order, advancing its position.
+     *
+     * @param dst the buffer into which to put the elements
+     * @return the number of elements removed
+     * @throws NullPointerException if the specified buffer is null
+     * @throws java.nio.ReadOnlyBufferException if the buffer is
+     *         read-only and this deque is not empty
+     */
+    public int drainTo(IntBuffer dst) {
+        int n = Math.min(dst.remaining(), size());
+        int h = head;
+        int r = Math.min(n, elements.length - h);
+        dst.put(elements, h, r);
+        dst.put(elements, 0, n - r);
+        head = (h + n) & (elements.length - 1);
+        return n;
+    }
+
+    /**
+     * Returns the number of elements in this deque.
+     *
+     * @return the number of elements in this deque
+     */
+    public int size() {
+        return (tail - head) & (elements.length - 1);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this deque contains no elements.
+     *
+     * @return <tt>true</tt> if this deque contains no elements
+     */
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this deque contains the specified element.
+     *
+     * @param e element whose presence in this deque is to be tested
+     * @return <tt>true</tt> if this deque contains the specified element
+     */
+    public boolean contains(int e) {
+        int mask = elements.length - 1;
+        for (int i = head; i != tail; i = (i + 1) & mask)
+            if (elements[i] == e)
+                return true;
+        return false;
+    }
+
+    /**
+     * Removes all of the elements from this deque.  The capacity of the
+     * deque is unchanged.
+     */
+    public void clear() {
+        head = tail = 0;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this deque in
+     * proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this deque
+     */
+    public int[] toArray() {
+        int n = size();
+        int[] a = new int[n];
+        copyElements(a, 0, n);
+        return a;
+    }
+
+    /**
+     * Performs the given action for each element of this deque, from
+     * first to last.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the deque is modified
+     *         while the action is performed
+     */
+    public void forEach(IntConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        final int[] a = elements;
+        final int h = head, t = tail, mask = a.length - 1;
+        for (int i = h; i != t; i = (i + 1) & mask) {
+            action.accept(a[i]);
+            if (elements != a || head != h || tail != t)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns a string representation of this deque, in the format of
+     * {@link AbstractCollection#toString}.
+     *
+     * @return a string representation of this deque
+     */
+    public String toString() {
+        if (head == tail)
+            return "[]";
+        int mask = elements.length - 1;
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = head; ; ) {
+            sb.append(elements[i]);
+            if ((i = (i + 1) & mask) == tail)
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Returns a copy of this deque.
+     *
+     * @return a copy of this deque
+     */
+    public IntDeque clone() {
+        try {
+            IntDeque result = (IntDeque) super.clone();
+            result.elements = elements.clone();
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError();
+        }
+    }
+
+    private static void checkFromIndexSize(int off, int len, int length) {
+        if ((off | len | (length - off - len)) < 0)
+            throw new IndexOutOfBoundsException(
+                "off: " + off + ", len: " + len + ", length: " + length);
+    }
+
+    /**
+     * Serialize this deque.
+     *
+     * @serialData The current size (<tt>int</tt>) of the deque,
+     * followed by all of its elements (each a <tt>int</tt>) in
+     * first-to-last order.
+     */
+    private void writeObject(ObjectOutputStream s)
+            throws IOException {
+        s.defaultWriteObject();
+
+        // Write out size
+        s.writeInt(size());
+
+        // Write out elements in order.
+        int mask = elements.length - 1;
+        for (int i = head; i != tail; i = (i + 1) & mask)
+            s.writeInt(elements[i]);
+    }
+
+    /**
+     * Deserialize this deque.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        // Read in size and allocate array
+        int size = s.readInt();
+        if (size < 0)
+            throw new InvalidObjectException("Illegal size: " + size);
+        elements = new int[capacityFor(size)];
+        head = 0;
+        tail = size;
+
+        // Read in all elements in the proper order.
+        for (int i = 0; i < size; i++)
+            elements[i] = s.readInt();
+    }
+}
@@ -0,0 +1,700 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.IntBuffer;
+import java.util.function.IntConsumer;
+
+/**
+ * A resizable array of primitive {@code int} values.  Where an
+ * {@code ArrayList<Integer>} holds a reference to a boxed object for
+ * each element, an <tt>IntList</tt> stores its elements directly in a
+ * {@code int[]}, and never allocates on {@link #get} or {@link #add}
+ * unless it must grow.
+ *
+ * <p>Capacity is managed as in {@link ArrayList}: a list created with
+ * the default constructor allocates ten slots on its first insertion,
+ * and a full list grows by half of its current capacity.  Elements
+ * can be added and copied out in bulk from arrays and
+ * {@link IntBuffer}s, sorted in place with {@link #sort()}, and viewed
+ * without copying through {@link #asIntBuffer}.
+ *
+ * <p>Because {@code remove(int)} would be ambiguous between an index
+ * and an element, removal is by position only, through
+ * {@link #removeAt} and {@link #removeRange}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access an <tt>IntList</tt> concurrently, and at
+ * least one of the threads modifies the list structurally, it
+ * <i>must</i> be synchronized externally.
+ *
+ * <p>{@link #forEach} is <i>fail-fast</i>: if the list is structurally
+ * modified while it runs, other than by the action itself completing
+ * normally, it throws a {@link ConcurrentModificationException}.  As
+ * with the iterators of {@link ArrayList}, this check is made on a
+ * best-effort basis and should be used only to detect bugs.
+ *
+ * @see ArrayList
+ * @see IntDeque
+ * @since 1.8
+ */
+public class IntList implements RandomAccess, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 4726910348917265541L;
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Shared empty array instance used for empty instances.
+     */
+    private static final int[] EMPTY_ELEMENTDATA = {};
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The array buffer into which the elements are stored.  The
+     * capacity of the list is the length of this array.  A list whose
+     * elementData is EMPTY_ELEMENTDATA is expanded to DEFAULT_CAPACITY
+     * when the first element is added.
+     */
+    private transient int[] elementData;
+
+    /**
+     * The number of elements in the list.
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * The number of times this list has been structurally modified.
+     */
+    private transient int modCount;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public IntList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        this.elementData = new int[initialCapacity];
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public IntList() {
+        this.elementData = EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * array, in order.
+     *
+     * @param a the array whose elements are to be placed into this list
+     * @throws NullPointerException if the specified array is null
+     */
+    public IntList(int[] a) {
+        elementData = a.clone();
+        size = a.length;
+    }
+
+    /**
+     * Trims the capacity of this list to be the list's current size.
+     * An application can use this operation to minimize the storage
+     * of a list.  Buffers previously returned by {@link #asIntBuffer}
+     * no longer reflect this list afterwards.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length)
+            elementData = Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to ensure
+     * that it can hold at least the number of elements specified by
+     * the minimum capacity argument.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        int minExpand = (elementData != EMPTY_ELEMENTDATA)
+            // any size if real element table
+            ? 0
+            // larger than default for empty table. It's already supposed to be
+            // at default size.
+            : DEFAULT_CAPACITY;
+
+        if (minCapacity > minExpand)
+            ensureExplicitCapacity(minCapacity);
+    }
+
+    private void ensureCapacityInternal(int minCapacity) {
+        if (elementData == EMPTY_ELEMENTDATA)
+            minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);
+        ensureExplicitCapacity(minCapacity);
+    }
+
+    private void ensureExplicitCapacity(int minCapacity) {
+        modCount++;
+
+        // overflow-conscious code
+        if (minCapacity - elementData.length > 0)
+            grow(minCapacity);
+    }
+
+    /**
+     * Increases the capacity to ensure that it can hold at least the
+     * number of elements specified by the minimum capacity argument.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    private void grow(int minCapacity) {
+        // overflow-conscious code
+        int oldCapacity = elementData.length;
+        int newCapacity = oldCapacity + (oldCapacity >> 1);
+        if (newCapacity - minCapacity < 0)
+            newCapacity = minCapacity;
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        elementData = Arrays.copyOf(elementData, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains no elements.
+     *
+     * @return <tt>true</tt> if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains the specified element.
+     *
+     * @param e element whose presence in this list is to be tested
+     * @return <tt>true</tt> if this list contains the specified element
+     */
+    public boolean contains(int e) {
+        return indexOf(e) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the first occurrence, or -1 if none
+     */
+    public int indexOf(int e) {
+        int[] a = elementData;
+        for (int i = 0; i < size; i++)
+            if (a[i] == e)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the last occurrence, or -1 if none
+     */
+    public int lastIndexOf(int e) {
+        int[] a = elementData;
+        for (int i = size - 1; i >= 0; i--)
+            if (a[i] == e)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     */
+    public int get(int index) {
+        rangeCheck(index);
+        return elementData[index];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param e element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     */
+    public int set(int index, int e) {
+        rangeCheck(index);
+        int oldValue = elementData[index];
+        elementData[index] = e;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     */
+    public void add(int e) {
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        elementData[size++] = e;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list.  Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param e element to be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt; size()</tt>)
+     */
+    public void add(int index, int e) {
+        rangeCheckForAdd(index);
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        System.arraycopy(elementData, index, elementData, index + 1,
+                         size - index);
+        elementData[index] = e;
+        size++;
+    }
+
+    /**
+     * Appends all of the elements of the specified array to the end of
+     * this list, in order.
+     *
+     * @param a array containing elements to be added to this list
+     * @throws NullPointerException if the specified array is null
+     */
+    public void addAll(int[] a) {
+        addAll(a, 0, a.length);
+    }
+
+    /**
+     * Appends <tt>len</tt> elements of the specified array, starting at
+     * <tt>off</tt>, to the end of this list, in order.
+     *
+     * @param a array containing elements to be added to this list
+     * @param off the index in <tt>a</tt> of the first element to add
+     * @param len the number of elements to add
+     * @throws NullPointerException if the specified array is null
+     * @throws IndexOutOfBoundsException if <tt>off</tt> or <tt>len</tt>
+     *         is negative, or <tt>off + len</tt> is greater than
+     *         <tt>a.length</tt>
+     */
+    public void addAll(int[] a, int off, int len) {
+        checkFromIndexSize(off, len, a.length);
+        ensureCapacityInternal(size + len);  // Increments modCount
+        System.arraycopy(a, off, elementData, size, len);
+        size += len;
+    }
+
+    /**
+     * Inserts all of the elements of the specified array into this list,
+     * starting at the specified position.  Shifts the element currently
+     * at that position (if any) and any subsequent elements to the right.
+     *
+     * @param index index at which to insert the first element
+     * @param a array containing elements to be added to this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt; size()</tt>)
+     * @throws NullPointerException if the specified array is null
+     */
+    public void addAll(int index, int[] a) {
+        rangeCheckForAdd(index);
+        int numNew = a.length;
+        ensureCapacityInternal(size + numNew);  // Increments modCount
+        int numMoved = size - index;
+        if (numMoved > 0)
+            System.arraycopy(elementData, index, elementData, index + numNew,
+                             numMoved);
+        System.arraycopy(a, 0, elementData, index, numNew);
+        size += numNew;
+    }
+
+    /**
+     * Appends all of the elements of the specified list to the end of
+     * this list, in order.  The list may be this list.
+     *
+     * @param l list containing elements to be added to this list
+     * @throws NullPointerException if the specified list is null
+     */
+    public void addAll(IntList l) {
+        addAll(l.elementData, 0, l.size);
+    }
+
+    /**
+     * Appends the remaining elements of the specified buffer to the end
+     * of this list, in order, advancing the buffer's position to its
+     * limit.
+     *
+     * @param src buffer containing elements to be added to this list
+     * @throws NullPointerException if the specified buffer is null
+     */
+    public void addAll(IntBuffer src) {
+        int len = src.remaining();
+        ensureCapacityInternal(size + len);  // Increments modCount
+        src.get(elementData, size, len);
+        size += len;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from
+     * their indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     */
+    public int removeAt(int index) {
+        rangeCheck(index);
+        modCount++;
+        int oldValue = elementData[index];
+        int numMoved = size - index - 1;
+        if (numMoved > 0)
+            System.arraycopy(elementData, index+1, elementData, index,
+                             numMoved);
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * <tt>fromIndex</tt>, inclusive, and <tt>toIndex</tt>, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex index after last element to be removed
+     * @throws IndexOutOfBoundsException if <tt>fromIndex</tt> or
+     *         <tt>toIndex</tt> is out of range
+     *         (<tt>fromIndex &lt; 0 || fromIndex &gt; toIndex ||
+     *         toIndex &gt; size()</tt>)
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        checkFromToIndex(fromIndex, toIndex, size);
+        modCount++;
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,
+                         size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The capacity of the
+     * list is unchanged.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * Copies the elements of this list between <tt>srcBegin</tt>,
+     * inclusive, and <tt>srcEnd</tt>, exclusive, into the destination
+     * array, starting at <tt>dstBegin</tt>.
+     *
+     * @param srcBegin index of the first element to copy
+     * @param srcEnd index after the last element to copy
+     * @param dst the destination array
+     * @param dstBegin the start offset in the destination array
+     * @throws IndexOutOfBoundsException if <tt>srcBegin</tt> or
+     *         <tt>srcEnd</tt> is out of range, or the elements do not
+     *         fit in <tt>dst</tt> at <tt>dstBegin</tt>
+     * @throws NullPointerException if <tt>dst</tt> is null
+     */
+    public void getElements(int srcBegin, int srcEnd, int[] dst, int dstBegin) {
+        checkFromToIndex(srcBegin, srcEnd, size);
+        System.arraycopy(elementData, srcBegin, dst, dstBegin,
+                         srcEnd - srcBegin);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in
+     * proper sequence.  The returned array is newly allocated, so the
+     * caller is free to modify it.
+     *
+     * @return an array containing all of the elements in this list
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * Sorts this list into ascending numerical order.
+     */
+    public void sort() {
+        sort(0, size);
+    }
+
+    /**
+     * Sorts the elements of this list between <tt>fromIndex</tt>,
+     * inclusive, and <tt>toIndex</tt>, exclusive, into ascending
+     * numerical order.  The sort is the tuned quicksort used by
+     * {@link Arrays#sort(int[])}, applied directly to the backing array.
+     *
+     * @param fromIndex the index of the first element to sort
+     * @param toIndex the index after the last element to sort
+     * @throws IndexOutOfBoundsException if <tt>fromIndex</tt> or
+     *         <tt>toIndex</tt> is out of range
+     */
+    public void sort(int fromIndex, int toIndex) {
+        checkFromToIndex(fromIndex, toIndex, size);
+        if (toIndex - fromIndex > 1)
+            DualPivotQuicksort.sort(elementData, fromIndex, toIndex - 1);
+    }
+
+    /**
+     * Returns a {@link IntBuffer} view of the elements of this list.  The
+     * buffer's position is zero and its capacity and limit are the size
+     * of this list; it shares this list's backing array, so a value
+     * written through either is visible through the other.
+     *
+     * <p>The view is valid only until this list reallocates its backing
+     * array, which may happen on any operation that adds elements, and
+     * always happens on {@link #trimToSize} when the capacity exceeds the
+     * size.  Elements added later lie outside the view.
+     *
+     * @return a buffer view of this list
+     */
+    public IntBuffer asIntBuffer() {
+        return IntBuffer.wrap(elementData, 0, size).slice();
+    }
+
+    /**
+     * Performs the given action for each element of this list, in
+     * order.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the list is
+     *         structurally modified while the action is performed
+     */
+    public void forEach(IntConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        final int expectedModCount = modCount;
+        final int[] a = elementData;
+        final int n = size;
+        for (int i = 0; modCount == expectedModCount && i < n; i++)
+            action.accept(a[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Compares the specified object with this list for equality.
+     * Returns <tt>true</tt> if the specified object is also an
+     * <tt>IntList</tt> holding the same elements in the same order.
+     *
+     * @param o the object to be compared for equality with this list
+     * @return <tt>true</tt> if the specified object is equal to this list
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntList))
+            return false;
+        IntList l = (IntList) o;
+        if (l.size != size)
+            return false;
+        int[] a = elementData, b = l.elementData;
+        for (int i = 0; i < size; i++)
+            if (a[i] != b[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this list.  It is the value
+     * {@link List#hashCode} would return for a list of the same elements
+     * in boxed form.
+     *
+     * @return the hash code value for this list
+     */
+    public int hashCode() {
+        int[] a = elementData;
+        int hashCode = 1;
+        for (int i = 0; i < size; i++) {
+            int e = a[i];
+            hashCode = 31*hashCode + e;
+        }
+        return hashCode;
+    }
+
+    /**
+     * Returns a string representation of this list, in the format of
+     * {@link AbstractCollection#toString}.
+     *
+     * @return a string representation of this list
+     */
+    public String toString() {
+        if (size == 0)
+            return "[]";
+        int[] a = elementData;
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; ; i++) {
+            sb.append(a[i]);
+            if (i == size - 1)
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>IntList</tt> instance, with a
+     * backing array trimmed to its size.
+     *
+     * @return a clone of this list
+     */
+    public IntList clone() {
+        try {
+            IntList v = (IntList) super.clone();
+            v.elementData = Arrays.copyOf(elementData, size);
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Checks that the given index is in range.
+     */
+    private void rangeCheck(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * A version of rangeCheck used by add and addAll.
+     */
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * Constructs an IndexOutOfBoundsException detail message.
+     */
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    private static void checkFromToIndex(int fromIndex, int toIndex, int length) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > length)
+            throw new IndexOutOfBoundsException(
+                "fromIndex: " + fromIndex + ", toIndex: " + toIndex +
+                ", length: " + length);
+    }
+
+    private static void checkFromIndexSize(int off, int len, int length) {
+        if ((off | len | (length - off - len)) < 0)
+            throw new IndexOutOfBoundsException(
+                "off: " + off + ", len: " + len + ", length: " + length);
+    }
+
+    /**
+     * Saves the state of this <tt>IntList</tt> instance to a stream
+     * (that is, serializes it).
+     *
+     * @serialData The size of the list is emitted (int), followed by
+     *             all of its elements (each a <tt>int</tt>) in order.
+     */
+    private void writeObject(ObjectOutputStream s)
+        throws IOException {
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+        for (int i = 0; i < size; i++)
+            s.writeInt(elementData[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Reconstitutes the <tt>IntList</tt> instance from a stream (that is,
+     * deserializes it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (size < 0)
+            throw new InvalidObjectException("Illegal size: " + size);
+        int[] a = (size == 0) ? EMPTY_ELEMENTDATA : new int[size];
+        for (int i = 0; i < size; i++)
+            a[i] = s.readInt();
+        elementData = a;
+    }
+}
@@ -0,0 +1,787 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * A hash map from primitive {@code int} keys to {@code long} values, stored by
+ * open addressing in flat arrays.  Unlike a {@code HashMap<Integer, Long>},
+ * it allocates no entry objects and boxes neither keys nor values: each
+ * mapping occupies one slot in a key array and one in a parallel value
+ * array.  A mapping for the key {@code 0}, which marks empty slots, is
+ * held in a dedicated field.
+ *
+ * <p>This class follows the sizing contract of {@link HashMap}.  An
+ * instance has a <i>capacity</i>, the number of slots, always a power of
+ * two, and a <i>load factor</i>; when the number of mappings exceeds the
+ * product of the two the table is doubled and rehashed.  The load factor
+ * must be less than one, since every mapping takes a slot of its own;
+ * the default of .75 keeps probe sequences short.  Slots are probed
+ * linearly from a hash of the key, and removal shifts later entries of
+ * the probe run back instead of leaving deleted markers, so lookups never
+ * degrade as mappings come and go.
+ *
+ * <p>Methods that return a value report {@code 0L} for an absent key;
+ * {@link #containsKey} or {@link #getOrDefault} distinguish that case.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.  (A structural modification is any operation
+ * that adds or deletes one or more mappings; merely changing the value
+ * associated with a key that an instance already contains is not a
+ * structural modification.)
+ *
+ * <p>The mappings are traversed with a {@link Cursor}, which reads keys
+ * and values in place.  Cursors are <i>fail-fast</i>: if the map is
+ * structurally modified at any time after the cursor is created, in any
+ * way except through the cursor's own {@code remove} method, the cursor
+ * throws a {@link ConcurrentModificationException}.  As with the
+ * iterators of {@code HashMap}, this behavior cannot be guaranteed in
+ * the presence of unsynchronized concurrent modification and should be
+ * used only to detect bugs.
+ *
+ * @see HashMap
+ * @since 1.8
+ */
+public class IntLongMap implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 540002147204035813L;
+
+    /**
+     * Shared empty table, installed until the map is first written.
+     */
+    private static final int[] EMPTY_KEYS = {};
+
+    /**
+     * The keys, indexed by slot; {@code 0} marks an empty slot.  The
+     * length is zero until the table is inflated, and a power of two
+     * after.
+     */
+    private transient int[] keys = EMPTY_KEYS;
+
+    /**
+     * The values, parallel to {@link #keys}.
+     */
+    private transient long[] vals;
+
+    /**
+     * Whether the key {@code 0} is mapped, and its value.
+     */
+    private transient boolean hasZeroKey;
+    private transient long zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    private transient int size;
+
+    /**
+     * The next size value at which to resize; before the table is
+     * inflated, the capacity it will be inflated to.
+     */
+    private transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    private final float loadFactor;
+
+    /**
+     * The number of times this map has been structurally modified, used
+     * to make cursors fail-fast.
+     */
+    transient int modCount;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not between zero and one, exclusive
+     */
+    public IntLongMap(int initialCapacity, float loadFactor) {
+        OpenHashing.checkArguments(initialCapacity, loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = OpenHashing.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntLongMap(int initialCapacity) {
+        this(initialCapacity, OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public IntLongMap() {
+        this(OpenHashing.DEFAULT_INITIAL_CAPACITY,
+             OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings and load factor as the
+     * specified map, sized to hold them without rehashing.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public IntLongMap(IntLongMap m) {
+        this(0, m.loadFactor);
+        threshold = OpenHashing.tableSizeForEntries(m.size, loadFactor);
+        putAll(m);
+    }
+
+    /**
+     * Inflates the table to the given power-of-two size.
+     */
+    private void inflateTable(int capacity) {
+        keys = new int[capacity];
+        vals = new long[capacity];
+        threshold = OpenHashing.threshold(capacity, loadFactor);
+    }
+
+    /**
+     * Returns the slot holding the given nonzero key, or -1 if absent.
+     */
+    private int indexOf(int key) {
+        int[] tab = keys;
+        int mask = tab.length - 1;
+        if (mask < 0)
+            return -1;
+        for (int i = OpenHashing.mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = tab[i];
+            if (k == key)
+                return i;
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code 0L} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code 0L} if this map contains no mapping for the key
+     */
+    public long get(int key) {
+        return getOrDefault(key, 0L);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is absent
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for
+     *         the key
+     */
+    public long getOrDefault(int key, long defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : vals[i];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param  key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the
+     *         specified key
+     */
+    public boolean containsKey(int key) {
+        return (key == 0) ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This scans the whole table.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(long value) {
+        if (hasZeroKey && value == zeroValue)
+            return true;
+        int[] tab = keys;
+        long[] vs = vals;
+        for (int i = 0; i < tab.length; i++)
+            if (tab[i] != 0 && value == vs[i])
+                return true;
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0L} if there was no mapping for {@code key}
+     * @throws IllegalStateException if the table has reached its maximum
+     *         capacity
+     */
+    public long put(int key, long value) {
+        if (key == 0) {
+            long old = zeroValue;
+            zeroValue = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                modCount++;
+                if (++size > threshold && keys.length > 0)
+                    resize(2 * keys.length);
+            }
+            return old;
+        }
+        if (keys.length == 0)
+            inflateTable(threshold);
+        int[] tab = keys;
+        int mask = tab.length - 1;
+        int i = OpenHashing.mix(key) & mask;
+        for (int k; (k = tab[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                long old = vals[i];
+                vals[i] = value;
+                return old;
+            }
+        }
+        OpenHashing.checkFull(size);
+        tab[i] = key;
+        vals[i] = value;
+        modCount++;
+        if (++size > threshold)
+            resize(2 * tab.length);
+        return 0L;
+    }
+
+    /**
+     * Adds the given increment to the value mapped to the specified key,
+     * treating an absent key as mapped to {@code 0L}.  This takes
+     * a single probe, unlike a {@code get} followed by a {@code put}.
+     *
+     * @param key the key whose value is to be incremented
+     * @param increment the amount to add
+     * @return the new value associated with {@code key}
+     * @throws IllegalStateException if the table has reached its maximum
+     *         capacity
+     */
+    public long addTo(int key, long increment) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                put(0, increment);
+            else
+                zeroValue += increment;
+            return zeroValue;
+        }
+        if (keys.length == 0)
+            inflateTable(threshold);
+        int[] tab = keys;
+        int mask = tab.length - 1;
+        int i = OpenHashing.mix(key) & mask;
+        for (int k; (k = tab[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return vals[i] += increment;
+        }
+        OpenHashing.checkFull(size);
+        tab[i] = key;
+        vals[i] = increment;
+        modCount++;
+        if (++size > threshold)
+            resize(2 * tab.length);
+        return increment;
+    }
+
+    /**
+     * Rehashes the contents of this map into a new table with the given
+     * capacity.  If the current capacity is MAXIMUM_CAPACITY, this method
+     * does not resize the map, but sets the threshold so that the table
+     * may fill up to its last empty slot.
+     *
+     * @param newCapacity the new capacity, MUST be a power of two
+     */
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        long[] oldVals = vals;
+        if (oldKeys.length >= OpenHashing.MAXIMUM_CAPACITY) {
+            threshold = OpenHashing.MAXIMUM_CAPACITY - 1;
+            return;
+        }
+        int[] tab = new int[newCapacity];
+        long[] vs = new long[newCapacity];
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int k = oldKeys[j];
+            if (k != 0) {
+                int i = OpenHashing.mix(k) & mask;
+                while (tab[i] != 0)
+                    i = (i + 1) & mask;
+                tab[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+        keys = tab;
+        vals = vs;
+        threshold = OpenHashing.threshold(newCapacity, loadFactor);
+        modCount++;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings replace any mappings that this map had for any of
+     * the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(IntLongMap m) {
+        int n = m.size;
+        if (n == 0)
+            return;
+        if (keys.length == 0)
+            threshold = Math.max(threshold,
+                                 OpenHashing.tableSizeForEntries(n, loadFactor));
+        else if (size + n > threshold) {
+            int cap = OpenHashing.tableSizeForEntries(size + n, loadFactor);
+            if (cap > keys.length)
+                resize(cap);
+        }
+        if (m.hasZeroKey)
+            put(0, m.zeroValue);
+        int[] tab = m.keys;
+        long[] vs = m.vals;
+        for (int i = 0; i < tab.length; i++)
+            if (tab[i] != 0)
+                put(tab[i], vs[i]);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0L} if there was no mapping for {@code key}
+     */
+    public long remove(int key) {
+        if (key == 0) {
+            long old = zeroValue;
+            if (hasZeroKey)
+                removeZeroKey();
+            return old;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return 0L;
+        long old = vals[i];
+        removeAt(i);
+        return old;
+    }
+
+    private void removeZeroKey() {
+        hasZeroKey = false;
+        zeroValue = 0L;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Removes the entry in slot i, shifting later entries of its probe
+     * run back so that no lookup passes over an empty slot.
+     */
+    private void removeAt(int i) {
+        int[] tab = keys;
+        long[] vs = vals;
+        int mask = tab.length - 1;
+        for (int j = i; ; ) {
+            j = (j + 1) & mask;
+            int k = tab[j];
+            if (k == 0)
+                break;
+            if (OpenHashing.canShift(OpenHashing.mix(k) & mask, i, j)) {
+                tab[i] = k;
+                vs[i] = vs[j];
+                i = j;
+            }
+        }
+        tab[i] = 0;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The capacity of the
+     * table is retained.
+     */
+    public void clear() {
+        modCount++;
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        zeroValue = 0L;
+        size = 0;
+    }
+
+    /**
+     * Returns a new array holding the keys of this map, in the order in
+     * which a {@link Cursor} would return them.
+     *
+     * @return an array of the keys of this map
+     */
+    public int[] keys() {
+        int[] a = new int[size];
+        int n = 0;
+        for (Cursor c = cursor(); c.advance(); )
+            a[n++] = c.key();
+        return a;
+    }
+
+    /**
+     * Returns a new array holding the values of this map, in the order in
+     * which a {@link Cursor} would return them.
+     *
+     * @return an array of the values of this map
+     */
+    public long[] values() {
+        long[] a = new long[size];
+        int n = 0;
+        for (Cursor c = cursor(); c.advance(); )
+            a[n++] = c.value();
+        return a;
+    }
+
+    /**
+     * Returns a new fail-fast {@link Cursor} over the mappings of this
+     * map.
+     *
+     * @return a cursor positioned before the first mapping
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A fail-fast traversal of the mappings of the enclosing map, which
+     * reads keys and values in place rather than producing entry objects.
+     * A cursor starts before the first mapping; each successful call to
+     * {@link #advance} moves it onto the next one.  Mappings are returned
+     * in no particular order, but a cursor returns every mapping exactly
+     * once even when mappings are removed through {@link #remove}.
+     */
+    public final class Cursor {
+        /** Slot of the current mapping, ZERO, or NONE */
+        private int current = NONE;
+        /** Offset from start of the next slot to examine */
+        private int offset = 1;
+        /** An empty slot; probe runs never wrap past it */
+        private final int start;
+        /** Whether the key {@code 0} has been considered */
+        private boolean zeroDone;
+        private int expectedModCount = modCount;
+
+        Cursor() {
+            int[] tab = keys;
+            int s = 0;
+            while (s < tab.length && tab[s] != 0)
+                s++;
+            start = s;
+        }
+
+        /**
+         * Moves to the next mapping.
+         *
+         * @return {@code true} if the cursor is on a mapping, or
+         *         {@code false} if all mappings have been traversed
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified other than through this cursor
+         */
+        public boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!zeroDone) {
+                zeroDone = true;
+                if (hasZeroKey) {
+                    current = ZERO;
+                    return true;
+                }
+            }
+            int[] tab = keys;
+            int mask = tab.length - 1;
+            while (offset < tab.length) {
+                int i = (start + offset++) & mask;
+                if (tab[i] != 0) {
+                    current = i;
+                    return true;
+                }
+            }
+            current = NONE;
+            return false;
+        }
+
+        /**
+         * Returns the key of the current mapping.
+         *
+         * @return the key of the current mapping
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        public int key() {
+            int i = current;
+            if (i == NONE)
+                throw new IllegalStateException();
+            return (i == ZERO) ? 0 : keys[i];
+        }
+
+        /**
+         * Returns the value of the current mapping.
+         *
+         * @return the value of the current mapping
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        public long value() {
+            int i = current;
+            if (i == NONE)
+                throw new IllegalStateException();
+            return (i == ZERO) ? zeroValue : vals[i];
+        }
+
+        /**
+         * Replaces the value of the current mapping, writing through to
+         * the map.  This is not a structural modification.
+         *
+         * @param value the new value
+         * @return the previous value
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        public long setValue(long value) {
+            int i = current;
+            if (i == NONE)
+                throw new IllegalStateException();
+            long old;
+            if (i == ZERO) {
+                old = zeroValue;
+                zeroValue = value;
+            } else {
+                old = vals[i];
+                vals[i] = value;
+            }
+            return old;
+        }
+
+        /**
+         * Removes the current mapping from the map.  The cursor is left
+         * between mappings, so that {@link #advance} must be called before
+         * the next access.
+         *
+         * @throws IllegalStateException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified other than through this cursor
+         */
+        public void remove() {
+            int i = current;
+            if (i == NONE)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = NONE;
+            if (i == ZERO)
+                removeZeroKey();
+            else {
+                removeAt(i);
+                offset--; // an entry may have shifted into the slot
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    private static final int ZERO = -1;
+    private static final int NONE = -2;
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also a {@code IntLongMap} and the
+     * two maps contain the same mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntLongMap))
+            return false;
+        IntLongMap m = (IntLongMap) o;
+        if (m.size != size)
+            return false;
+        for (Cursor c = cursor(); c.advance(); ) {
+            int k = c.key();
+            long v = c.value();
+            if (!m.containsKey(k) || v != m.get(k))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as for
+     * {@link Map#hashCode}, with each key and value hashed as its boxed
+     * form would be.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        for (Cursor c = cursor(); c.advance(); ) {
+            int k = c.key();
+            long v = c.value();
+            h += k ^ (int)(v ^ (v >>> 32));
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the format of
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        Cursor c = cursor();
+        if (!c.advance())
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (;;) {
+            sb.append(c.key()).append('=').append(c.value());
+            if (!c.advance())
+                return sb.append('}').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    public IntLongMap clone() {
+        IntLongMap result;
+        try {
+            result = (IntLongMap) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+        if (keys.length > 0) {
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+        }
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Save the state of the map to a stream (i.e., serialize it).
+     *
+     * @serialData The <i>capacity</i> of the map (the length of the key
+     *             array) is emitted (int), followed by the <i>size</i>
+     *             (an int, the number of key-value mappings), followed by
+     *             the key (int) and value (long) for each key-value
+     *             mapping.  The key-value mappings are emitted in no
+     *             particular order.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(keys.length == 0 ? threshold : keys.length);
+        s.writeInt(size);
+        for (Cursor c = cursor(); c.advance(); ) {
+            s.writeInt(c.key());
+            s.writeLong(c.value());
+        }
+    }
+
+    /**
+     * Reconstitute the map from a stream (i.e., deserialize it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException
+    {
+        s.defaultReadObject();
+        if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        s.readInt(); // ignore the capacity; size the table for the mappings
+        int n = s.readInt();
+        if (n < 0)
+            throw new InvalidObjectException("Illegal mappings count: " + n);
+        keys = EMPTY_KEYS;
+        threshold = OpenHashing.tableSizeForEntries(n, loadFactor);
+        for (int i = 0; i < n; i++) {
+            int k = s.readInt();
+            put(k, s.readLong());
+        }
+    }
+}
@@ -466,6 +466,19 @@ public class LinkedHashMap<K,V>
     Iterator<V> newValueIterator() { return new ValueIterator(); }
     Iterator<Map.Entry<K,V>> newEntryIterator() { return new EntryIterator(); }
 
+    // Spliterators follow the linked order rather than the bucket order
+    Spliterator<K> newKeySpliterator() {
+        return Spliterators.spliterator(keySet(), Spliterator.ORDERED |
+                                        Spliterator.DISTINCT);
+    }
+    Spliterator<V> newValueSpliterator() {
+        return Spliterators.spliterator(values(), Spliterator.ORDERED);
+    }
+    Spliterator<Map.Entry<K,V>> newEntrySpliterator() {
+        return Spliterators.spliterator(entrySet(), Spliterator.ORDERED |
+                                        Spliterator.DISTINCT);
+    }
+
     /**
      * This override alters behavior of superclass put method. It causes newly
      * allocated entry to get inserted at the end of the linked list and
@@ -0,0 +1,639 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.function.LongConsumer;
+
+/**
+ * A hash set of primitive {@code long} values, stored by open addressing
+ * in a flat array.  Unlike a {@code HashSet<Long>}, which keeps a boxed
+ * element and a map entry per member, each member occupies one slot of a
+ * {@code long} array.  The value {@code 0L}, which marks empty slots, is
+ * tracked by a dedicated flag.
+ *
+ * <p>This class follows the sizing contract of {@link HashSet}: the
+ * table has a power-of-two <i>capacity</i> and a <i>load factor</i>, and
+ * is doubled and rehashed when the number of members exceeds their
+ * product.  The load factor must be less than one; the default is .75.
+ * Slots are probed linearly, and removal shifts later members of the
+ * probe run back rather than leaving deleted markers.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a set concurrently, and at least one of
+ * the threads modifies the set, it <i>must</i> be synchronized
+ * externally.
+ *
+ * <p>The members are traversed with a {@link Cursor} or with
+ * {@link #forEach}.  Both are <i>fail-fast</i>: if the set is modified
+ * during traversal, in any way except through the cursor's own
+ * {@code remove} method, they throw a
+ * {@link ConcurrentModificationException}, on a best-effort basis as for
+ * the iterators of {@code HashSet}.
+ *
+ * @see HashSet
+ * @see LongObjectMap
+ * @since 1.8
+ */
+public class LongSet implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 7362839440516427812L;
+
+    /**
+     * Shared empty table, installed until the set is first written.
+     */
+    private static final long[] EMPTY_TABLE = {};
+
+    /**
+     * The members, indexed by slot; {@code 0L} marks an empty slot.  The
+     * length is zero until the table is inflated, and a power of two
+     * after.
+     */
+    private transient long[] table = EMPTY_TABLE;
+
+    /**
+     * Whether {@code 0L} is a member.
+     */
+    private transient boolean hasZero;
+
+    /**
+     * The number of members of this set.
+     */
+    private transient int size;
+
+    /**
+     * The next size value at which to resize; before the table is
+     * inflated, the capacity it will be inflated to.
+     */
+    private transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    private final float loadFactor;
+
+    /**
+     * The number of times this set has been modified, used to make
+     * traversals fail-fast.
+     */
+    transient int modCount;
+
+    /**
+     * Constructs an empty set with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not between zero and one, exclusive
+     */
+    public LongSet(int initialCapacity, float loadFactor) {
+        OpenHashing.checkArguments(initialCapacity, loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = OpenHashing.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty set with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public LongSet(int initialCapacity) {
+        this(initialCapacity, OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public LongSet() {
+        this(OpenHashing.DEFAULT_INITIAL_CAPACITY,
+             OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new set containing the values in the specified array,
+     * sized to hold them without rehashing.
+     *
+     * @param  a the values to be placed into this set
+     * @throws NullPointerException if the specified array is null
+     */
+    public LongSet(long[] a) {
+        this(0, OpenHashing.DEFAULT_LOAD_FACTOR);
+        threshold = OpenHashing.tableSizeForEntries(a.length, loadFactor);
+        for (long e : a)
+            add(e);
+    }
+
+    /**
+     * Constructs a new set with the same members and load factor as the
+     * specified set.
+     *
+     * @param  s the set whose members are to be placed into this set
+     * @throws NullPointerException if the specified set is null
+     */
+    public LongSet(LongSet s) {
+        this(0, s.loadFactor);
+        threshold = OpenHashing.tableSizeForEntries(s.size, loadFactor);
+        addAll(s);
+    }
+
+    /**
+     * Returns the slot holding the given nonzero value, or -1 if absent.
+     */
+    private int indexOf(long e) {
+        long[] tab = table;
+        int mask = tab.length - 1;
+        if (mask < 0)
+            return -1;
+        for (int i = OpenHashing.mix(e) & mask; ; i = (i + 1) & mask) {
+            long k = tab[i];
+            if (k == e)
+                return i;
+            if (k == 0L)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the number of members of this set.
+     *
+     * @return the number of members of this set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this set has no members.
+     *
+     * @return {@code true} if this set has no members
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified value.
+     *
+     * @param e value whose presence in this set is to be tested
+     * @return {@code true} if this set contains the specified value
+     */
+    public boolean contains(long e) {
+        return (e == 0L) ? hasZero : indexOf(e) >= 0;
+    }
+
+    /**
+     * Adds the specified value to this set if it is not already present.
+     *
+     * @param e value to be added to this set
+     * @return {@code true} if this set did not already contain the value
+     * @throws IllegalStateException if the table has reached its maximum
+     *         capacity
+     */
+    public boolean add(long e) {
+        if (e == 0L) {
+            if (hasZero)
+                return false;
+            hasZero = true;
+            modCount++;
+            if (++size > threshold && table.length > 0)
+                resize(2 * table.length);
+            return true;
+        }
+        if (table.length == 0) {
+            int capacity = threshold;
+            table = new long[capacity];
+            threshold = OpenHashing.threshold(capacity, loadFactor);
+        }
+        long[] tab = table;
+        int mask = tab.length - 1;
+        int i = OpenHashing.mix(e) & mask;
+        for (long k; (k = tab[i]) != 0L; i = (i + 1) & mask) {
+            if (k == e)
+                return false;
+        }
+        OpenHashing.checkFull(size);
+        tab[i] = e;
+        modCount++;
+        if (++size > threshold)
+            resize(2 * tab.length);
+        return true;
+    }
+
+    /**
+     * Adds all of the members of the specified set to this set.
+     *
+     * @param s set whose members are to be added to this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws NullPointerException if the specified set is null
+     */
+    public boolean addAll(LongSet s) {
+        int n = s.size;
+        if (n == 0)
+            return false;
+        if (table.length == 0)
+            threshold = Math.max(threshold,
+                                 OpenHashing.tableSizeForEntries(n, loadFactor));
+        else if (size + n > threshold) {
+            int cap = OpenHashing.tableSizeForEntries(size + n, loadFactor);
+            if (cap > table.length)
+                resize(cap);
+        }
+        boolean modified = false;
+        if (s.hasZero)
+            modified = add(0L);
+        long[] tab = s.table;
+        for (int i = 0; i < tab.length; i++)
+            if (tab[i] != 0L && add(tab[i]))
+                modified = true;
+        return modified;
+    }
+
+    /**
+     * Rehashes the members of this set into a new table with the given
+     * capacity.  If the current capacity is MAXIMUM_CAPACITY, this method
+     * does not resize the set, but sets the threshold so that the table
+     * may fill up to its last empty slot.
+     *
+     * @param newCapacity the new capacity, MUST be a power of two
+     */
+    private void resize(int newCapacity) {
+        long[] old = table;
+        if (old.length >= OpenHashing.MAXIMUM_CAPACITY) {
+            threshold = OpenHashing.MAXIMUM_CAPACITY - 1;
+            return;
+        }
+        long[] tab = new long[newCapacity];
+        int mask = newCapacity - 1;
+        for (int j = 0; j < old.length; j++) {
+            long k = old[j];
+            if (k != 0L) {
+                int i = OpenHashing.mix(k) & mask;
+                while (tab[i] != 0L)
+                    i = (i + 1) & mask;
+                tab[i] = k;
+            }
+        }
+        table = tab;
+        threshold = OpenHashing.threshold(newCapacity, loadFactor);
+        modCount++;
+    }
+
+    /**
+     * Removes the specified value from this set if it is present.
+     *
+     * @param e value to be removed from this set, if present
+     * @return {@code true} if the set contained the specified value
+     */
+    public boolean remove(long e) {
+        if (e == 0L) {
+            if (!hasZero)
+                return false;
+            removeZero();
+            return true;
+        }
+        int i = indexOf(e);
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    private void removeZero() {
+        hasZero = false;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Removes the member in slot i, shifting later members of its probe
+     * run back so that no lookup passes over an empty slot.
+     */
+    private void removeAt(int i) {
+        long[] tab = table;
+        int mask = tab.length - 1;
+        for (int j = i; ; ) {
+            j = (j + 1) & mask;
+            long k = tab[j];
+            if (k == 0L)
+                break;
+            if (OpenHashing.canShift(OpenHashing.mix(k) & mask, i, j)) {
+                tab[i] = k;
+                i = j;
+            }
+        }
+        tab[i] = 0L;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Removes all of the members of this set.  The capacity of the table
+     * is retained.
+     */
+    public void clear() {
+        modCount++;
+        Arrays.fill(table, 0L);
+        hasZero = false;
+        size = 0;
+    }
+
+    /**
+     * Returns a new array holding the members of this set, in the order
+     * in which a {@link Cursor} would return them.
+     *
+     * @return an array of the members of this set
+     */
+    public long[] toArray() {
+        long[] a = new long[size];
+        int n = 0;
+        if (hasZero)
+            a[n++] = 0L;
+        long[] tab = table;
+        int start = emptySlot(tab), mask = tab.length - 1;
+        for (int off = 1; off < tab.length; off++) {
+            long k = tab[(start + off) & mask];
+            if (k != 0L)
+                a[n++] = k;
+        }
+        return a;
+    }
+
+    /**
+     * Performs the given action for each member of this set.
+     *
+     * @param action the action to be performed for each member
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the set is modified
+     *         during the traversal
+     */
+    public void forEach(LongConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZero)
+            action.accept(0L);
+        long[] tab = table;
+        for (int i = 0; i < tab.length && modCount == mc; i++) {
+            long k = tab[i];
+            if (k != 0L)
+                action.accept(k);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns the index of an empty slot of the given table; traversals
+     * start there, since no probe run wraps past it.
+     */
+    private static int emptySlot(long[] tab) {
+        int s = 0;
+        while (s < tab.length && tab[s] != 0L)
+            s++;
+        return s;
+    }
+
+    /**
+     * Returns a new fail-fast {@link Cursor} over the members of this set.
+     *
+     * @return a cursor positioned before the first member
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A fail-fast traversal of the members of the enclosing set.  A
+     * cursor starts before the first member; each successful call to
+     * {@link #advance} moves it onto the next one.  Members are returned
+     * in no particular order, but a cursor returns every member exactly
+     * once even when members are removed through {@link #remove}.
+     */
+    public final class Cursor {
+        /** Slot of the current member, ZERO, or NONE */
+        private int current = NONE;
+        /** Offset from start of the next slot to examine */
+        private int offset = 1;
+        /** An empty slot; probe runs never wrap past it */
+        private final int start = emptySlot(table);
+        /** Whether {@code 0L} has been considered */
+        private boolean zeroDone;
+        private int expectedModCount = modCount;
+
+        Cursor() {}
+
+        /**
+         * Moves to the next member.
+         *
+         * @return {@code true} if the cursor is on a member, or
+         *         {@code false} if all members have been traversed
+         * @throws ConcurrentModificationException if the set was modified
+         *         other than through this cursor
+         */
+        public boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!zeroDone) {
+                zeroDone = true;
+                if (hasZero) {
+                    current = ZERO;
+                    return true;
+                }
+            }
+            long[] tab = table;
+            int mask = tab.length - 1;
+            while (offset < tab.length) {
+                int i = (start + offset++) & mask;
+                if (tab[i] != 0L) {
+                    current = i;
+                    return true;
+                }
+            }
+            current = NONE;
+            return false;
+        }
+
+        /**
+         * Returns the current member.
+         *
+         * @return the current member
+         * @throws IllegalStateException if the cursor is not on a member
+         */
+        public long element() {
+            int i = current;
+            if (i == NONE)
+                throw new IllegalStateException();
+            return (i == ZERO) ? 0L : table[i];
+        }
+
+        /**
+         * Removes the current member from the set.  The cursor is left
+         * between members, so that {@link #advance} must be called before
+         * the next access.
+         *
+         * @throws IllegalStateException if the cursor is not on a member
+         * @throws ConcurrentModificationException if the set was modified
+         *         other than through this cursor
+         */
+        public void remove() {
+            int i = current;
+            if (i == NONE)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = NONE;
+            if (i == ZERO)
+                removeZero();
+            else {
+                removeAt(i);
+                offset--; // a member may have shifted into the slot
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    private static final int ZERO = -1;
+    private static final int NONE = -2;
+
+    /**
+     * Compares the specified object with this set for equality.  Returns
+     * {@code true} if the given object is also a {@code LongSet} and the
+     * two sets have the same members.
+     *
+     * @param o object to be compared for equality with this set
+     * @return {@code true} if the specified object is equal to this set
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongSet))
+            return false;
+        LongSet s = (LongSet) o;
+        if (s.size != size || s.hasZero != hasZero)
+            return false;
+        long[] tab = table;
+        for (int i = 0; i < tab.length; i++)
+            if (tab[i] != 0L && !s.contains(tab[i]))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this set, defined as for
+     * {@link Set#hashCode}, with each member hashed as its boxed form
+     * would be.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int h = 0;
+        long[] tab = table;
+        for (int i = 0; i < tab.length; i++) {
+            long k = tab[i];
+            h += (int)(k ^ (k >>> 32));
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this set, in the format of
+     * {@link AbstractCollection#toString}.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Returns a shallow copy of this set.
+     *
+     * @return a copy of this set
+     */
+    public LongSet clone() {
+        LongSet result;
+        try {
+            result = (LongSet) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+        if (table.length > 0)
+            result.table = table.clone();
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Save the state of the set to a stream (i.e., serialize it).
+     *
+     * @serialData The <i>capacity</i> of the set (the length of the
+     *             table) is emitted (int), followed by its <i>size</i>
+     *             (an int, the number of members), followed by all of its
+     *             members (each a long) in no particular order.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(table.length == 0 ? threshold : table.length);
+        s.writeInt(size);
+        if (hasZero)
+            s.writeLong(0L);
+        long[] tab = table;
+        for (int i = 0; i < tab.length; i++)
+            if (tab[i] != 0L)
+                s.writeLong(tab[i]);
+    }
+
+    /**
+     * Reconstitute the set from a stream (i.e., deserialize it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException
+    {
+        s.defaultReadObject();
+        if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        s.readInt(); // ignore the capacity; size the table for the members
+        int n = s.readInt();
+        if (n < 0)
+            throw new InvalidObjectException("Illegal size: " + n);
+        table = EMPTY_TABLE;
+        threshold = OpenHashing.tableSizeForEntries(n, loadFactor);
+        for (int i = 0; i < n; i++)
+            add(s.readLong());
+    }
+}
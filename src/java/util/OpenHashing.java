@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+/**
+ * Sizing and hashing helpers shared by the primitive open-addressing
+ * maps and sets ({@link IntIntMap}, {@link LongObjectMap}, {@link IntSet}
+ * and the like).
+ *
+ * <p>The tables are power-of-two sized arrays probed linearly.  Because a
+ * probe sequence is a run of adjacent slots, keys must be spread over the
+ * whole table, not only over its low bits; {@link #mix(int)} and
+ * {@link #mix(long)} multiply by the golden ratio and fold the high bits
+ * down so that sequential ids do not form long clustered runs.
+ *
+ * <p>A table always keeps at least one empty slot, so that every probe for
+ * an absent key terminates; the thresholds computed here never exceed
+ * {@code capacity - 1}.
+ */
+final class OpenHashing {
+
+    private OpenHashing() {}
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum capacity, used if a higher value is implicitly specified
+     * by either of the constructors with arguments.
+     * MUST be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /**
+     * Spreads an int key over all bits of the result.
+     */
+    static int mix(int k) {
+        int h = k * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Spreads a long key over all bits of the result.
+     */
+    static int mix(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int)(h ^ (h >>> 16));
+    }
+
+    /**
+     * Checks the arguments common to all constructors, throwing
+     * IllegalArgumentException as HashMap does.  Load factors must lie
+     * strictly between 0 and 1, since an open table cannot hold more
+     * entries than it has slots.
+     */
+    static void checkArguments(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+    }
+
+    /**
+     * Returns the power-of-two table size for the given capacity.
+     */
+    static int tableSizeFor(int capacity) {
+        // assert capacity >= 0 : "capacity must be non-negative";
+        return capacity >= MAXIMUM_CAPACITY
+                ? MAXIMUM_CAPACITY
+                : (capacity > 1) ? Integer.highestOneBit((capacity - 1) << 1) : 1;
+    }
+
+    /**
+     * Returns the table size needed to hold the given number of entries
+     * without resizing.
+     */
+    static int tableSizeForEntries(int entries, float loadFactor) {
+        long needed = (long) Math.ceil(entries / (double) loadFactor) + 1;
+        return tableSizeFor((int) Math.min(needed, MAXIMUM_CAPACITY));
+    }
+
+    /**
+     * Returns the number of entries above which a table of the given
+     * size must grow.
+     */
+    static int threshold(int tableSize, float loadFactor) {
+        return (int) Math.min(tableSize * loadFactor, tableSize - 1);
+    }
+
+    /**
+     * Throws if a table of the maximum size cannot take another entry.
+     */
+    static void checkFull(int size) {
+        if (size >= MAXIMUM_CAPACITY - 1)
+            throw new IllegalStateException("Table is full");
+    }
+
+    /**
+     * Returns true if the entry in slot j, whose home slot is h, may be
+     * moved back into the emptied slot i; that is, unless h lies
+     * cyclically within (i, j].  This is the test made by backward-shift
+     * deletion, which keeps probe runs contiguous without tombstones.
+     */
+    static boolean canShift(int h, int i, int j) {
+        return (j > i) ? (h <= i || h > j) : (h <= i && h > j);
+    }
+}
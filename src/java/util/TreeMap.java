@@ -25,6 +25,8 @@
 
 package java.util;
 
+import java.util.function.Consumer;
+
 /**
  * A Red-Black tree based {@link NavigableMap} implementation.
  * The map is sorted according to the {@linkplain Comparable natural
@@ -947,6 +949,10 @@ public class TreeMap<K,V>
             return new ValueIterator(getFirstEntry());
         }
 
+        public Spliterator<V> spliterator() {
+            return new ValueSpliterator<K,V>(TreeMap.this, null, null, 0, -1, 0);
+        }
+
         public int size() {
             return TreeMap.this.size();
         }
@@ -975,6 +981,10 @@ public class TreeMap<K,V>
             return new EntryIterator(getFirstEntry());
         }
 
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return new EntrySpliterator<K,V>(TreeMap.this, null, null, 0, -1, 0);
+        }
+
         public boolean contains(Object o) {
             if (!(o instanceof Map.Entry))
                 return false;
@@ -1022,6 +1032,26 @@ public class TreeMap<K,V>
         return new DescendingKeyIterator(getLastEntry());
     }
 
+    Spliterator<K> keySpliterator() {
+        return new KeySpliterator<K,V>(this, null, null, 0, -1, 0);
+    }
+
+    /**
+     * Returns a spliterator over the keys of the given map, splitting the
+     * tree in place when the map is a TreeMap and falling back to an
+     * iterator-based spliterator for submaps.
+     */
+    static <K> Spliterator<K> keySpliteratorFor(NavigableMap<K,?> m) {
+        if (m instanceof TreeMap) {
+            @SuppressWarnings("unchecked") TreeMap<K,Object> t =
+                (TreeMap<K,Object>) m;
+            return t.keySpliterator();
+        }
+        return Spliterators.spliterator(m.navigableKeySet(),
+                                        Spliterator.DISTINCT |
+                                        Spliterator.ORDERED);
+    }
+
     static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
         private final NavigableMap<E, Object> m;
         KeySet(NavigableMap<E,Object> map) { m = map; }
@@ -1040,6 +1070,10 @@ public class TreeMap<K,V>
                 return (Iterator<E>)(((TreeMap.NavigableSubMap)m).descendingKeyIterator());
         }
 
+        public Spliterator<E> spliterator() {
+            return keySpliteratorFor(m);
+        }
+
         public int size() { return m.size(); }
         public boolean isEmpty() { return m.isEmpty(); }
         public boolean contains(Object o) { return m.containsKey(o); }
@@ -2424,6 +2458,254 @@ public class TreeMap<K,V>
         return middle;
     }
 
+    /**
+     * Base class for the spliterators of the TreeMap views.  Iteration
+     * follows successor links from {@code current} up to but excluding
+     * {@code fence}.  Splitting hands off the range up to the root (for
+     * a top-level spliterator), or up to the subtree root on the side
+     * that was not yet split, so a split costs a constant number of
+     * pointer reads and never copies anything.  The resulting balance
+     * follows the balance of the red-black tree.  Only the top-level
+     * spliterator reports an exact size; split halves estimate.
+     */
+    abstract static class TreeMapSpliterator<K,V,T>
+            extends Spliterators.AbstractSpliterator<T> {
+        final TreeMap<K,V> tree;
+        TreeMap.Entry<K,V> current; // traverser; initially first node in range
+        TreeMap.Entry<K,V> fence;   // one past last, or null
+        int side;                   // 0: top, -1: is a left split, +1: right
+        int est;                    // size estimate (exact only for top-level)
+        int expectedModCount;       // for CME checks
+
+        TreeMapSpliterator(TreeMap<K,V> tree,
+                           TreeMap.Entry<K,V> origin, TreeMap.Entry<K,V> fence,
+                           int side, int est, int expectedModCount) {
+            super(0, 0);
+            this.tree = tree;
+            this.current = origin;
+            this.fence = fence;
+            this.side = side;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getEstimate() { // force initialization
+            int s; TreeMap<K,V> t;
+            if ((s = est) < 0) {
+                if ((t = tree) != null) {
+                    current = (s == -1) ? t.getFirstEntry() : t.getLastEntry();
+                    s = est = t.size;
+                    expectedModCount = t.modCount;
+                }
+                else
+                    s = est = 0;
+            }
+            return s;
+        }
+
+        public final long estimateSize() {
+            return (long)getEstimate();
+        }
+
+        /**
+         * Returns the node at which the remaining range may be split, or
+         * null if it cannot be split further.
+         */
+        final TreeMap.Entry<K,V> splitPoint() {
+            if (est < 0)
+                getEstimate(); // force initialization
+            int d = side;
+            TreeMap.Entry<K,V> e = current, f = fence,
+                s = ((e == null || e == f) ? null :      // empty
+                     (d == 0)              ? tree.root : // was top
+                     (d >  0)              ? e.right :   // was right
+                     (d <  0 && f != null) ? f.left :    // was left
+                     null);
+            if (s != null && s != e && s != f &&
+                tree.compare(e.key, s.key) < 0) {        // e not already past s
+                side = 1;
+                return s;
+            }
+            return null;
+        }
+
+        /**
+         * Advances over the remaining range, returning its first node and
+         * leaving the traverser at the successor, or returns null when the
+         * range is exhausted.
+         */
+        final TreeMap.Entry<K,V> nextEntry() {
+            TreeMap.Entry<K,V> e;
+            if (est < 0)
+                getEstimate(); // force initialization
+            if ((e = current) == null || e == fence)
+                return null;
+            current = successor(e);
+            return e;
+        }
+
+        /**
+         * Claims the remaining range, returning its first node, or null
+         * if it is empty; the traverser is left exhausted.
+         */
+        final TreeMap.Entry<K,V> claimRemaining() {
+            TreeMap.Entry<K,V> e;
+            if (est < 0)
+                getEstimate(); // force initialization
+            if ((e = current) == null || e == fence)
+                return null;
+            current = fence;
+            return e;
+        }
+
+        final void checkForComodification() {
+            if (tree.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    static final class KeySpliterator<K,V>
+            extends TreeMapSpliterator<K,V,K> {
+        KeySpliterator(TreeMap<K,V> tree,
+                       TreeMap.Entry<K,V> origin, TreeMap.Entry<K,V> fence,
+                       int side, int est, int expectedModCount) {
+            super(tree, origin, fence, side, est, expectedModCount);
+        }
+
+        public KeySpliterator<K,V> trySplit() {
+            TreeMap.Entry<K,V> s = splitPoint();
+            if (s == null)
+                return null;
+            return new KeySpliterator<K,V>(tree, current, current = s, -1,
+                                           est >>>= 1, expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            TreeMap.Entry<K,V> f = fence;
+            for (TreeMap.Entry<K,V> e = claimRemaining(); e != null && e != f;
+                 e = successor(e))
+                action.accept(e.key);
+            checkForComodification();
+        }
+
+        public boolean tryAdvance(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            TreeMap.Entry<K,V> e = nextEntry();
+            if (e == null)
+                return false;
+            action.accept(e.key);
+            checkForComodification();
+            return true;
+        }
+
+        public int characteristics() {
+            return (side == 0 ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED;
+        }
+
+        public Comparator<? super K> getComparator() {
+            return tree.comparator;
+        }
+    }
+
+    static final class ValueSpliterator<K,V>
+            extends TreeMapSpliterator<K,V,V> {
+        ValueSpliterator(TreeMap<K,V> tree,
+                         TreeMap.Entry<K,V> origin, TreeMap.Entry<K,V> fence,
+                         int side, int est, int expectedModCount) {
+            super(tree, origin, fence, side, est, expectedModCount);
+        }
+
+        public ValueSpliterator<K,V> trySplit() {
+            TreeMap.Entry<K,V> s = splitPoint();
+            if (s == null)
+                return null;
+            return new ValueSpliterator<K,V>(tree, current, current = s, -1,
+                                             est >>>= 1, expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            TreeMap.Entry<K,V> f = fence;
+            for (TreeMap.Entry<K,V> e = claimRemaining(); e != null && e != f;
+                 e = successor(e))
+                action.accept(e.value);
+            checkForComodification();
+        }
+
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            TreeMap.Entry<K,V> e = nextEntry();
+            if (e == null)
+                return false;
+            action.accept(e.value);
+            checkForComodification();
+            return true;
+        }
+
+        public int characteristics() {
+            return (side == 0 ? Spliterator.SIZED : 0) | Spliterator.ORDERED;
+        }
+    }
+
+    static final class EntrySpliterator<K,V>
+            extends TreeMapSpliterator<K,V,Map.Entry<K,V>> {
+        EntrySpliterator(TreeMap<K,V> tree,
+                         TreeMap.Entry<K,V> origin, TreeMap.Entry<K,V> fence,
+                         int side, int est, int expectedModCount) {
+            super(tree, origin, fence, side, est, expectedModCount);
+        }
+
+        public EntrySpliterator<K,V> trySplit() {
+            TreeMap.Entry<K,V> s = splitPoint();
+            if (s == null)
+                return null;
+            return new EntrySpliterator<K,V>(tree, current, current = s, -1,
+                                             est >>>= 1, expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            TreeMap.Entry<K,V> f = fence;
+            for (TreeMap.Entry<K,V> e = claimRemaining(); e != null && e != f;
+                 e = successor(e))
+                action.accept(e);
+            checkForComodification();
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            TreeMap.Entry<K,V> e = nextEntry();
+            if (e == null)
+                return false;
+            action.accept(e);
+            checkForComodification();
+            return true;
+        }
+
+        public int characteristics() {
+            return (side == 0 ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED;
+        }
+
+        public Comparator<? super Map.Entry<K,V>> getComparator() {
+            // Entries are sorted by key, under the tree's own ordering
+            final TreeMap<K,V> t = tree;
+            return new Comparator<Map.Entry<K,V>>() {
+                public int compare(Map.Entry<K,V> e1, Map.Entry<K,V> e2) {
+                    return t.compare(e1.getKey(), e2.getKey());
+                }
+            };
+        }
+    }
+
     /**
      * Find the level down to which to assign all nodes BLACK.  This is the
      * last `full' level of the complete binary tree produced by
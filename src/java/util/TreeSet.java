@@ -181,6 +181,24 @@ public class TreeSet<E> extends AbstractSet<E>
         return m.navigableKeySet().iterator();
     }
 
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * set.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#DISTINCT}, {@link Spliterator#SORTED} and
+     * {@link Spliterator#ORDERED}, and splits the backing tree in place.
+     * Its comparator is the set's comparator, or {@code null} if the set
+     * uses natural ordering.
+     *
+     * @return a {@code Spliterator} over the elements in this set
+     * @since 1.8
+     */
+    public Spliterator<E> spliterator() {
+        return TreeMap.keySpliteratorFor(m);
+    }
+
     /**
      * Returns an iterator over the elements in this set in descending order.
      *
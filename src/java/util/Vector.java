@@ -965,6 +965,29 @@ public class Vector<E>
         return numNew != 0;
     }
 
+    /**
+     * Sorts this Vector according to the order induced by the specified
+     * comparator, as by {@link Collections#sort(List, Comparator)}.
+     *
+     * <p>The backing array is sorted in place, while holding this
+     * Vector's lock, with the same stable merge sort as
+     * {@link Arrays#sort(Object[], int, int, Comparator)}.
+     *
+     * @param c the comparator to determine the order of the Vector.  A
+     *        {@code null} value indicates that the elements' <i>natural
+     *        ordering</i> should be used.
+     * @throws ClassCastException if the Vector contains elements that are
+     *         not <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException (optional) if the comparator is
+     *         found to violate the {@link Comparator} contract
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void sort(Comparator<? super E> c) {
+        Arrays.sort((E[]) elementData, 0, elementCount, c);
+        modCount++;
+    }
+
     /**
      * Compares the specified Object with this Vector for equality.  Returns
      * true if and only if the specified Object is also a List, both Lists
@@ -356,6 +356,112 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * tail of this queue, in the order they are returned by the
+     * collection's iterator, waiting if necessary for space to become
+     * available.  The lock is held across the whole operation, except
+     * while waiting, and waiting takers are woken once per batch of
+     * elements inserted rather than once per element.
+     *
+     * <p>If interrupted while waiting, the elements inserted before the
+     * interruption remain in this queue.
+     *
+     * @param c the collection of elements to insert
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        insertAll(toInsertArray(c), false, 0L);
+    }
+
+    /**
+     * Inserts the elements of the specified collection at the tail of
+     * this queue, in the order they are returned by the collection's
+     * iterator, waiting if necessary up to the specified wait time for
+     * space to become available.  Elements are inserted in batches as
+     * in {@link #putAll}.
+     *
+     * <p>If interrupted while waiting, the elements inserted before the
+     * interruption remain in this queue.
+     *
+     * @param c the collection of elements to insert
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of leading elements of the collection that were
+     *         inserted, which is less than its size only if the waiting
+     *         time elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return insertAll(toInsertArray(c), true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Returns the elements of c for bulk insertion, checking them first
+     * so that a null element inserts nothing.
+     */
+    private Object[] toInsertArray(Collection<? extends E> c) {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object e : a)
+            checkNotNull(e);
+        return a;
+    }
+
+    /**
+     * Inserts the elements of a, as many per wake-up as fit.
+     *
+     * @return the number of elements inserted
+     */
+    private int insertAll(Object[] a, boolean timed, long nanos)
+        throws InterruptedException {
+        final Object[] items = this.items;
+        final int len = a.length;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int n = 0;
+            while (n < len) {
+                while (count == items.length) {
+                    if (!timed)
+                        notFull.await();
+                    else if (nanos <= 0)
+                        return n;
+                    else
+                        nanos = notFull.awaitNanos(nanos);
+                }
+                int k = Math.min(len - n, items.length - count);
+                for (int i = 0; i < k; ++i) {
+                    items[putIndex] = a[n++];
+                    putIndex = inc(putIndex);
+                }
+                count += k;
+                if (k == 1)
+                    notEmpty.signal();
+                else
+                    notEmpty.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public E poll() {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -700,6 +806,83 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Removes elements from this queue and adds them to the given
+     * collection, waiting if necessary up to the specified wait time
+     * until at least {@code minElements} have been transferred.  All
+     * elements available when the lock is acquired are transferred
+     * together, up to {@code maxElements} in total; once at least
+     * {@code minElements} have been transferred, this method returns
+     * without waiting for more.
+     *
+     * <p>If interrupted while waiting, the elements transferred before
+     * the interruption remain in the given collection.  Failure
+     * behavior when adding to the collection is as for {@link
+     * #drainTo(Collection, int)}.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        long nanos = unit.toNanos(timeout);
+        final Object[] items = this.items;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int n = 0;
+            while (n < maxElements) {
+                if (count == 0) {
+                    if (n >= minElements || nanos <= 0)
+                        break;
+                    nanos = notEmpty.awaitNanos(nanos);
+                    continue;
+                }
+                int i = takeIndex;
+                int k = Math.min(maxElements - n, count);
+                int j = 0;
+                try {
+                    while (j < k) {
+                        c.add(ArrayBlockingQueue.<E>cast(items[i]));
+                        items[i] = null;
+                        i = inc(i);
+                        ++j;
+                    }
+                } finally {
+                    // Restore invariants even if c.add() threw
+                    if (j > 0) {
+                        count -= j;
+                        takeIndex = i;
+                        n += j;
+                        notFull.signalAll();
+                    }
+                }
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
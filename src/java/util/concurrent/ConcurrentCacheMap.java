@@ -0,0 +1,1273 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link ConcurrentMap} that holds at most a bounded number, or
+ * total weight, of mappings, evicting others as needed, and that may
+ * optionally expire mappings a fixed time after they were last
+ * written or accessed.  Retrievals, including {@link #get get}, do
+ * not block and do not write to shared state other than a per-thread
+ * buffer, so a cache that is read far more often than it is written
+ * scales like a {@link ConcurrentHashMap}, which this class uses to
+ * hold its mappings.
+ *
+ * <p>Mappings are chosen for eviction by an admission-aware policy
+ * that approximates both recency and frequency of use.  New mappings
+ * first enter a small window ordered by recency.  A mapping leaving
+ * the window is admitted to the main space only if it has been used
+ * more often, by a compact estimate of recent frequencies, than the
+ * mapping it would displace there; otherwise it is itself evicted.
+ * The main space is an LRU split into probationary and protected
+ * parts: a mapping is protected once used again after admission.
+ * This keeps a burst of mappings that are used only once from flushing
+ * more popular ones, as happens with plain LRU, while still letting
+ * mappings that become popular displace others, as plain LFU does
+ * not.
+ *
+ * <p>Bounds are enforced by work done in batches by whichever thread
+ * next finds the policy unlocked, so the map may briefly hold more
+ * than its maximum size or weight while under heavy update.  Accesses
+ * are recorded in lossy buffers: when one is full, further accesses
+ * by threads sharing it are dropped until it is drained, which only
+ * makes the recency and frequency estimates noisier.  Expired
+ * mappings are never returned, but they may still be counted by
+ * {@link #size} until removed by that same work.  Method {@link
+ * #cleanUp} performs it immediately.
+ *
+ * <p>Method {@link #computeIfAbsent computeIfAbsent} loads a missing
+ * value at most once at a time per key: other threads asking for the
+ * same key wait for the loading thread's result, while threads using
+ * other keys proceed.
+ *
+ * <p>Iterators of the collection views are <i>weakly consistent</i>,
+ * never throw {@link java.util.ConcurrentModificationException
+ * ConcurrentModificationException}, and do not count as accesses.
+ * Like {@link ConcurrentHashMap}, this class does not allow
+ * {@code null} to be used as a key or value.  Keys and values must
+ * not be changed in ways that affect their weight while mapped.
+ *
+ * <p>This class and its views and iterators implement all of the
+ * <em>optional</em> methods of the {@link Map} and {@link Iterator}
+ * interfaces.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentCacheMap<K,V> extends AbstractMap<K,V>
+        implements ConcurrentMap<K,V> {
+
+    /*
+     * Overview:
+     *
+     * Mappings are held as Nodes in a ConcurrentHashMap, and all
+     * eviction policy state (the orderings, weights and frequency
+     * sketch) is guarded by evictionLock.  Threads never wait for
+     * that lock when reading and only rarely when writing.  Instead
+     * they record what they did in buffers that are replayed against
+     * the policy ("maintenance") by a thread that manages to tryLock
+     * it, as in the buffered LRU designs of "BP-Wrapper: A System
+     * Framework Making Any Replacement Algorithms (Almost) Lock
+     * Contention Free" (Ding, Jiang and Zhang, ICDE 2009).
+     *
+     * Reads go to one of a few striped ring buffers selected by
+     * thread.  Each accepts an entry with a single CAS of its tail,
+     * and rejects it if full or if the CAS fails: recording accesses
+     * need not be exact.  A full buffer triggers maintenance.  Writes
+     * (adds, updates and removals) must not be lost, so they go to a
+     * ConcurrentLinkedQueue of tasks and always trigger maintenance.
+     * When the lock is busy, the holder notices the new task after
+     * unlocking and drains again.  If tasks pile up regardless,
+     * writers block on the lock to apply them, which bounds the
+     * buffer.
+     *
+     * A Node is in the map exactly while it is not "retired".
+     * Retiring a node and removing it from the map are done together
+     * under the node's monitor, which writers of its value also hold,
+     * so that a write can never land on a node that is no longer
+     * mapped.  The policy links a node only when its add task runs,
+     * and only if it has not been retired by then; removal and update
+     * tasks act only on linked nodes.  This makes the tasks for a node
+     * commute however their threads race to enqueue them.
+     *
+     * The policy is Window TinyLFU, from "TinyLFU: A Highly Efficient
+     * Cache Admission Policy" (Einziger, Friedman and Manes, ACM TOS
+     * 2017).  Nodes are in one of three access-ordered lists: a
+     * window of about 1% of the maximum weight, and probation and
+     * protected lists sharing the remainder, with at most 80% of it
+     * protected.  New nodes enter the window.  Nodes overflowing the
+     * window move to the tail of probation as candidates.  While over
+     * the maximum, the candidate nearest the head of probation and
+     * the head of probation itself (the victim) are compared by
+     * estimated frequency and the less frequent is evicted, favoring
+     * the victim on ties.  An access to a probationary node moves it
+     * to protected, demoting the least recent protected nodes to
+     * probation if needed.  Frequencies are estimated by a count-min
+     * sketch of four-bit counters, halved once the number of recorded
+     * events reaches ten times its width, so that the estimate favors
+     * recent history.  The sketch grows with the number of mappings.
+     *
+     * Expiration times are kept in the nodes and checked on every
+     * read, so an expired mapping is never returned.  Maintenance
+     * removes expired nodes from the heads of the access-ordered
+     * lists (for expiry after access) and of a separate write-ordered
+     * list (for expiry after write).  Because accesses are recorded
+     * lossily the access order is approximate, so some expired nodes
+     * may linger until they reach a head.
+     */
+
+    /** The number of CPUs, for sizing read buffers */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of read buffers, a power of two.  More than NCPU
+     * helps avoid collisions among threads.
+     */
+    static final int READ_BUFFERS;
+    static {
+        int n = 1;
+        while (n < NCPU << 1 && n < 64)
+            n <<= 1;
+        READ_BUFFERS = n;
+    }
+
+    /** The number of entries in each read buffer, a power of two */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /**
+     * The number of pending write tasks beyond which writers block to
+     * apply them rather than leaving them for another thread.
+     */
+    static final int WRITE_BUFFER_MAX = 128 * READ_BUFFERS;
+
+    /** The largest number of longs in the frequency sketch */
+    static final int MAXIMUM_SKETCH = 1 << 24;
+
+    /* Values of Node.queue */
+    static final int NONE      = 0; // not linked
+    static final int WINDOW    = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    /**
+     * A mapping.  The policy fields are accessed only under
+     * evictionLock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long accessTime;
+        volatile long writeTime;
+        volatile boolean retired;     // set under monitor when unmapped
+
+        int queue;                    // NONE, WINDOW, PROBATION, PROTECTED
+        int policyWeight;             // weight as accounted by policy
+        Node<K,V> prev, next;         // access order
+        Node<K,V> prevWrite, nextWrite; // write order
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.accessTime = now;
+            this.writeTime = now;
+        }
+    }
+
+    /**
+     * A doubly-linked list of nodes, in access order or in write
+     * order.  Accessed only under evictionLock.
+     */
+    static final class NodeList<K,V> {
+        final boolean writeOrder;
+        Node<K,V> first, last;
+
+        NodeList(boolean writeOrder) {
+            this.writeOrder = writeOrder;
+        }
+
+        Node<K,V> prevOf(Node<K,V> n) {
+            return writeOrder ? n.prevWrite : n.prev;
+        }
+
+        Node<K,V> nextOf(Node<K,V> n) {
+            return writeOrder ? n.nextWrite : n.next;
+        }
+
+        void setPrev(Node<K,V> n, Node<K,V> p) {
+            if (writeOrder) n.prevWrite = p; else n.prev = p;
+        }
+
+        void setNext(Node<K,V> n, Node<K,V> s) {
+            if (writeOrder) n.nextWrite = s; else n.next = s;
+        }
+
+        void linkLast(Node<K,V> n) {
+            Node<K,V> l = last;
+            setPrev(n, l);
+            setNext(n, null);
+            last = n;
+            if (l == null)
+                first = n;
+            else
+                setNext(l, n);
+        }
+
+        void unlink(Node<K,V> n) {
+            Node<K,V> p = prevOf(n), s = nextOf(n);
+            if (p == null)
+                first = s;
+            else
+                setNext(p, s);
+            if (s == null)
+                last = p;
+            else
+                setPrev(s, p);
+            setPrev(n, null);
+            setNext(n, null);
+        }
+
+        void moveToLast(Node<K,V> n) {
+            if (n != last) {
+                unlink(n);
+                linkLast(n);
+            }
+        }
+    }
+
+    /**
+     * A lossy buffer of accessed nodes.  Any thread may offer; only
+     * the holder of evictionLock drains.
+     */
+    static final class ReadBuffer<K,V> {
+        final AtomicReferenceArray<Node<K,V>> slots =
+            new AtomicReferenceArray<Node<K,V>>(READ_BUFFER_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        volatile long reads;
+
+        /**
+         * Records n, unless full or contended.
+         *
+         * @return true if the buffer is full and should be drained
+         */
+        boolean offer(Node<K,V> n) {
+            long r = reads, w = writes.get();
+            if (w - r >= READ_BUFFER_SIZE)
+                return true;
+            if (writes.compareAndSet(w, w + 1))
+                slots.lazySet((int) w & (READ_BUFFER_SIZE - 1), n);
+            return false;
+        }
+
+        void drainTo(ConcurrentCacheMap<K,V> map) {
+            long r = reads, w = writes.get();
+            for (; r != w; ++r) {
+                int i = (int) r & (READ_BUFFER_SIZE - 1);
+                Node<K,V> n = slots.get(i);
+                if (n == null)
+                    break;                // not yet published
+                slots.lazySet(i, null);
+                map.onAccess(n);
+            }
+            reads = r;
+        }
+    }
+
+    /**
+     * A count-min sketch of four-bit counters estimating how often
+     * keys have been recently used.  Each long holds sixteen
+     * counters; a key uses one counter in each of four longs, all at
+     * positions chosen by one quarter of the long.  Accessed only
+     * under evictionLock.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL,
+            0x165667b19e3779f9L, 0xd6e8feb86659fd93L };
+        static final long HALVE_MASK = 0x7777777777777777L;
+        static final long LOW_MASK   = 0x1111111111111111L;
+
+        long[] table;
+        int mask;
+        int sampleSize;   // events between halvings
+        int additions;    // events since last halving
+
+        FrequencySketch() {
+            resize(16);
+        }
+
+        /**
+         * Grows to suit the given number of keys, forgetting all
+         * counts if resized.
+         */
+        void ensureCapacity(long keys) {
+            if (keys > table.length && table.length < MAXIMUM_SKETCH)
+                resize((int) Math.min(keys, MAXIMUM_SKETCH));
+        }
+
+        private void resize(int keys) {
+            int n = 1;
+            while (n < keys)
+                n <<= 1;
+            table = new long[n];
+            mask = n - 1;
+            sampleSize = (n <= Integer.MAX_VALUE / 10) ?
+                10 * n : Integer.MAX_VALUE;
+            additions = 0;
+        }
+
+        static int spread(int h) {
+            h = ((h >>> 16) ^ h) * 0x45d9f3b;
+            h = ((h >>> 16) ^ h) * 0x45d9f3b;
+            return (h >>> 16) ^ h;
+        }
+
+        int indexOf(int h, int i) {
+            long x = (h + SEEDS[i]) * SEEDS[i];
+            x += x >>> 32;
+            return (int) x & mask;
+        }
+
+        /** Returns the estimated frequency of key, at most 15 */
+        int frequency(Object key) {
+            int h = spread(key.hashCode());
+            int start = (h & 3) << 2, f = 15;
+            for (int i = 0; i < 4; ++i) {
+                int shift = (start + i) << 2;
+                int c = (int) (table[indexOf(h, i)] >>> shift) & 0xf;
+                if (c < f)
+                    f = c;
+            }
+            return f;
+        }
+
+        /** Records a use of key */
+        void increment(Object key) {
+            int h = spread(key.hashCode());
+            int start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int j = indexOf(h, i);
+                int shift = (start + i) << 2;
+                if (((table[j] >>> shift) & 0xf) != 0xf) {
+                    table[j] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize)
+                halve();
+        }
+
+        /** Halves all counters, aging the estimates */
+        void halve() {
+            int odd = 0;
+            for (int i = 0; i < table.length; ++i) {
+                long t = table[i];
+                odd += Long.bitCount(t & LOW_MASK);
+                table[i] = (t >>> 1) & HALVE_MASK;
+            }
+            additions = (additions >>> 1) - (odd >>> 2);
+        }
+    }
+
+    /** The mappings */
+    final ConcurrentHashMap<K,Node<K,V>> data;
+
+    /** Values being loaded by computeIfAbsent */
+    final ConcurrentHashMap<K,FutureTask<V>> loading;
+
+    /** The weigher, or null if each mapping weighs one */
+    final ToIntBiFunction<? super K, ? super V> weigher;
+
+    /** The maximum total weight */
+    final long maximum;
+
+    /** Nanoseconds from last write to expiry, or zero if none */
+    final long expireAfterWriteNanos;
+
+    /** Nanoseconds from last access to expiry, or zero if none */
+    final long expireAfterAccessNanos;
+
+    /** Lock guarding all policy state */
+    final ReentrantLock evictionLock = new ReentrantLock();
+
+    final ReadBuffer<K,V>[] readBuffers;
+    final ConcurrentLinkedQueue<Runnable> writeBuffer =
+        new ConcurrentLinkedQueue<Runnable>();
+    final AtomicInteger pendingWrites = new AtomicInteger();
+
+    // Policy state, guarded by evictionLock
+    final NodeList<K,V> windowQueue = new NodeList<K,V>(false);
+    final NodeList<K,V> probationQueue = new NodeList<K,V>(false);
+    final NodeList<K,V> protectedQueue = new NodeList<K,V>(false);
+    final NodeList<K,V> writeOrder = new NodeList<K,V>(true);
+    final FrequencySketch sketch = new FrequencySketch();
+    final long windowMaximum;
+    final long protectedMaximum;
+    long weightedSize;
+    long windowWeight;
+    long protectedWeight;
+    int linkedCount;
+
+    /**
+     * Creates a new, empty map holding at most the given number of
+     * mappings.
+     *
+     * @param maximumSize the maximum number of mappings
+     * @throws IllegalArgumentException if {@code maximumSize} is
+     *         negative
+     */
+    public ConcurrentCacheMap(long maximumSize) {
+        this(maximumSize, null, 0L, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new, empty map whose mappings have at most the given
+     * total weight.
+     *
+     * @param maximumWeight the maximum total weight of mappings
+     * @param weigher the function computing the weight of a mapping,
+     *        which must be non-negative, or {@code null} if each
+     *        mapping weighs one
+     * @throws IllegalArgumentException if {@code maximumWeight} is
+     *         negative
+     */
+    public ConcurrentCacheMap(long maximumWeight,
+                              ToIntBiFunction<? super K, ? super V> weigher) {
+        this(maximumWeight, weigher, 0L, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new, empty map whose mappings have at most the given
+     * total weight and expire after the given times.
+     *
+     * @param maximumWeight the maximum total weight of mappings
+     * @param weigher the function computing the weight of a mapping,
+     *        which must be non-negative, or {@code null} if each
+     *        mapping weighs one
+     * @param expireAfterWrite the time after a mapping is created or
+     *        its value replaced at which it expires, or zero if never
+     * @param expireAfterAccess the time after a mapping is created,
+     *        replaced or read at which it expires, or zero if never
+     * @param unit the time unit of the {@code expireAfterWrite} and
+     *        {@code expireAfterAccess} arguments
+     * @throws IllegalArgumentException if {@code maximumWeight},
+     *         {@code expireAfterWrite} or {@code expireAfterAccess} is
+     *         negative
+     * @throws NullPointerException if {@code unit} is null
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentCacheMap(long maximumWeight,
+                              ToIntBiFunction<? super K, ? super V> weigher,
+                              long expireAfterWrite, long expireAfterAccess,
+                              TimeUnit unit) {
+        if (maximumWeight < 0L || expireAfterWrite < 0L ||
+            expireAfterAccess < 0L)
+            throw new IllegalArgumentException();
+        if (unit == null)
+            throw new NullPointerException();
+        this.maximum = maximumWeight;
+        this.weigher = weigher;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+        this.windowMaximum = maximumWeight / 100L +
+            ((maximumWeight % 100L == 0L) ? 0L : 1L);
+        this.protectedMaximum = (maximumWeight - windowMaximum) / 5L * 4L;
+        int cap = (int) Math.min(maximumWeight, 1 << 16);
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(Math.max(cap, 16));
+        this.loading = new ConcurrentHashMap<K,FutureTask<V>>();
+        ReadBuffer<K,V>[] bs = (ReadBuffer<K,V>[]) new ReadBuffer<?,?>[READ_BUFFERS];
+        for (int i = 0; i < bs.length; ++i)
+            bs[i] = new ReadBuffer<K,V>();
+        this.readBuffers = bs;
+    }
+
+    /* ---------------- Expiration support -------------- */
+
+    /**
+     * Returns the current time for expiry checks, or zero if mappings
+     * never expire.
+     */
+    final long now() {
+        return (expireAfterWriteNanos != 0L || expireAfterAccessNanos != 0L) ?
+            System.nanoTime() : 0L;
+    }
+
+    final boolean isExpired(Node<K,V> n, long now) {
+        return ((expireAfterAccessNanos != 0L &&
+                 now - n.accessTime >= expireAfterAccessNanos) ||
+                (expireAfterWriteNanos != 0L &&
+                 now - n.writeTime >= expireAfterWriteNanos));
+    }
+
+    final int weigh(K key, V value) {
+        if (weigher == null)
+            return 1;
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException();
+        return w;
+    }
+
+    /* ---------------- Buffering -------------- */
+
+    /**
+     * Records a read of n, running maintenance if its buffer is full.
+     */
+    final void afterRead(Node<K,V> n, long now) {
+        if (expireAfterAccessNanos != 0L)
+            n.accessTime = now;
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+        ReadBuffer<K,V> b = readBuffers[(h >>> 16) & (READ_BUFFERS - 1)];
+        if (b.offer(n))
+            tryToMaintain();
+    }
+
+    /**
+     * Records a write task and runs maintenance, blocking to do so if
+     * too many writes are pending.
+     */
+    final void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        if (pendingWrites.incrementAndGet() <= WRITE_BUFFER_MAX)
+            tryToMaintain();
+        else {
+            final ReentrantLock lock = evictionLock;
+            lock.lock();
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs maintenance unless another thread is doing so, rechecking
+     * after unlocking for writes buffered meanwhile.
+     */
+    final void tryToMaintain() {
+        final ReentrantLock lock = evictionLock;
+        while (lock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+            if (writeBuffer.isEmpty())
+                break;
+        }
+    }
+
+    /**
+     * Replays buffered reads and writes against the policy, then
+     * removes expired mappings and evicts to within the maximum.
+     * Called only while holding evictionLock.
+     */
+    final void maintenance() {
+        for (ReadBuffer<K,V> b : readBuffers)
+            b.drainTo(this);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            pendingWrites.decrementAndGet();
+            task.run();
+        }
+        expire();
+        evict();
+    }
+
+    /* ---------------- Policy -------------- */
+
+    /** Adds a newly mapped node to the window */
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> n = node;
+            if (n.retired || n.queue != NONE)
+                return;
+            int w = n.policyWeight = n.weight;
+            weightedSize += w;
+            windowWeight += w;
+            n.queue = WINDOW;
+            windowQueue.linkLast(n);
+            if (expireAfterWriteNanos != 0L)
+                writeOrder.linkLast(n);
+            sketch.ensureCapacity(++linkedCount);
+            sketch.increment(n.key);
+        }
+    }
+
+    /** Accounts for a replaced value */
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> n = node;
+            int q = n.queue;
+            if (q == NONE)
+                return;
+            int w = n.weight, d = w - n.policyWeight;
+            n.policyWeight = w;
+            weightedSize += d;
+            if (q == WINDOW)
+                windowWeight += d;
+            else if (q == PROTECTED)
+                protectedWeight += d;
+            if (expireAfterWriteNanos != 0L)
+                writeOrder.moveToLast(n);
+            onAccess(n);
+        }
+    }
+
+    /** Unlinks a node unmapped by a caller */
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            if (node.queue != NONE)
+                unlink(node);
+        }
+    }
+
+    /**
+     * Records an access to n, if linked.
+     */
+    final void onAccess(Node<K,V> n) {
+        int q = n.queue;
+        if (q == NONE)
+            return;
+        sketch.increment(n.key);
+        if (q == WINDOW)
+            windowQueue.moveToLast(n);
+        else if (q == PROTECTED)
+            protectedQueue.moveToLast(n);
+        else {                            // promote from probation
+            probationQueue.unlink(n);
+            n.queue = PROTECTED;
+            protectedQueue.linkLast(n);
+            protectedWeight += n.policyWeight;
+            Node<K,V> p;
+            while (protectedWeight > protectedMaximum &&
+                   (p = protectedQueue.first) != null && p != n) {
+                protectedQueue.unlink(p);
+                protectedWeight -= p.policyWeight;
+                p.queue = PROBATION;
+                probationQueue.linkLast(p);
+            }
+        }
+    }
+
+    /**
+     * Unlinks n from all lists and discounts its weight.
+     */
+    final void unlink(Node<K,V> n) {
+        int q = n.queue, w = n.policyWeight;
+        if (q == WINDOW) {
+            windowQueue.unlink(n);
+            windowWeight -= w;
+        } else if (q == PROBATION)
+            probationQueue.unlink(n);
+        else {
+            protectedQueue.unlink(n);
+            protectedWeight -= w;
+        }
+        if (expireAfterWriteNanos != 0L)
+            writeOrder.unlink(n);
+        weightedSize -= w;
+        --linkedCount;
+        n.queue = NONE;
+    }
+
+    /**
+     * Unmaps and unlinks n, if still linked.
+     */
+    final void evictNode(Node<K,V> n) {
+        synchronized (n) {
+            if (!n.retired) {
+                n.retired = true;
+                data.remove(n.key, n);
+            }
+        }
+        if (n.queue != NONE)
+            unlink(n);
+    }
+
+    /**
+     * Evicts expired nodes from the heads of the lists.
+     */
+    final void expire() {
+        long now = now();
+        if (expireAfterAccessNanos != 0L) {
+            expireHead(windowQueue, now);
+            expireHead(probationQueue, now);
+            expireHead(protectedQueue, now);
+        }
+        if (expireAfterWriteNanos != 0L)
+            expireHead(writeOrder, now);
+    }
+
+    private void expireHead(NodeList<K,V> list, long now) {
+        Node<K,V> n;
+        while ((n = list.first) != null && isExpired(n, now))
+            evictNode(n);
+    }
+
+    /**
+     * Moves nodes overflowing the window to probation, then evicts
+     * until within the maximum.  See above for explanation.
+     */
+    final void evict() {
+        Node<K,V> candidate = null;       // first node moved this time
+        Node<K,V> w;
+        while (windowWeight > windowMaximum && (w = windowQueue.first) != null) {
+            windowQueue.unlink(w);
+            windowWeight -= w.policyWeight;
+            w.queue = PROBATION;
+            probationQueue.linkLast(w);
+            if (candidate == null)
+                candidate = w;
+        }
+        while (weightedSize > maximum) {
+            Node<K,V> victim = probationQueue.first;
+            if (victim == null &&
+                (victim = protectedQueue.first) == null &&
+                (victim = windowQueue.first) == null)
+                break;
+            if (candidate != null && candidate.queue != PROBATION)
+                candidate = null;
+            if (candidate == null || candidate == victim) {
+                if (victim == candidate)
+                    candidate = candidate.next;
+                evictNode(victim);
+            }
+            else if (sketch.frequency(candidate.key) >
+                     sketch.frequency(victim.key))
+                evictNode(victim);
+            else {
+                Node<K,V> c = candidate;
+                candidate = c.next;
+                evictNode(c);
+            }
+        }
+    }
+
+    /* ---------------- Map operations -------------- */
+
+    /**
+     * Returns the node mapped for key, if present and unexpired.
+     */
+    final Node<K,V> getNode(Object key, long now) {
+        Node<K,V> n = data.get(key);
+        return (n == null || isExpired(n, now)) ? null : n;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key,
+     * and records an access to the mapping.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        long now = now();
+        Node<K,V> n = getNode(key, now);
+        if (n == null)
+            return null;
+        V v = n.value;
+        afterRead(n, now);
+        return v;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key, without
+     * recording an access.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getQuietly(Object key) {
+        Node<K,V> n = getNode(key, now());
+        return (n == null) ? null : n.value;
+    }
+
+    /**
+     * Tests if the specified object is a key in this map, without
+     * recording an access.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return getNode(key, now()) != null;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  Note: This method requires a full traversal.
+     *
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        long now = now();
+        for (Node<K,V> n : data.values()) {
+            if (!isExpired(n, now) && value.equals(n.value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of mappings, which may include expired
+     * mappings not yet removed.
+     */
+    public int size() {
+        return data.size();
+    }
+
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns the total weight of mappings as last accounted by the
+     * eviction policy.
+     *
+     * @return the total weight
+     */
+    public long weightedSize() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum total weight of mappings.
+     *
+     * @return the maximum total weight
+     */
+    public long maximumWeight() {
+        return maximum;
+    }
+
+    /**
+     * Performs any pending eviction, expiration and recording of
+     * accesses now, rather than leaving it for a later operation.
+     */
+    public void cleanUp() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Main insertion method.
+     *
+     * @param key the key
+     * @param value the value
+     * @param onlyIfAbsent if true, leaves an unexpired mapping as is
+     * @return the previous unexpired value, or null if none
+     */
+    final V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int w = weigh(key, value);
+        for (;;) {
+            long now = now();
+            Node<K,V> n = data.get(key);
+            if (n == null) {
+                n = new Node<K,V>(key, value, w, now);
+                if (data.putIfAbsent(key, n) == null) {
+                    afterWrite(new AddTask(n));
+                    return null;
+                }
+                continue;
+            }
+            if (onlyIfAbsent && !isExpired(n, now)) {
+                V v = n.value;
+                afterRead(n, now);
+                return v;
+            }
+            V old;
+            boolean expired;
+            synchronized (n) {
+                if (n.retired)
+                    continue;
+                expired = isExpired(n, now);
+                if (onlyIfAbsent && !expired)
+                    continue;             // recheck under lock
+                old = n.value;
+                n.value = value;
+                n.weight = w;
+                n.writeTime = now;
+                n.accessTime = now;
+            }
+            afterWrite(new UpdateTask(n));
+            return expired ? null : old;
+        }
+    }
+
+    /**
+     * Maps the specified key to the specified value in this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * Main replacement method.
+     *
+     * @param key the key
+     * @param oldValue if non-null, the value that must be mapped
+     * @param value the new value
+     * @return the previous value, or null if not replaced
+     */
+    final V doReplace(Object key, Object oldValue, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        @SuppressWarnings("unchecked") K k = (K) key;
+        int w = weigh(k, value);
+        for (;;) {
+            long now = now();
+            Node<K,V> n = getNode(key, now);
+            if (n == null)
+                return null;
+            V old;
+            synchronized (n) {
+                if (n.retired)
+                    continue;
+                old = n.value;
+                if (isExpired(n, now) ||
+                    (oldValue != null && !oldValue.equals(old)))
+                    return null;
+                n.value = value;
+                n.weight = w;
+                n.writeTime = now;
+                n.accessTime = now;
+            }
+            afterWrite(new UpdateTask(n));
+            return old;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null)
+            throw new NullPointerException();
+        return doReplace(key, oldValue, newValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public V replace(K key, V value) {
+        return doReplace(key, null, value);
+    }
+
+    /**
+     * Main removal method.
+     *
+     * @param key the key
+     * @param value if non-null, the value that must be mapped
+     * @return the removed unexpired value, or null if none
+     */
+    final V doRemove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<K,V> n = data.get(key);
+            if (n == null)
+                return null;
+            V old;
+            boolean expired;
+            synchronized (n) {
+                if (n.retired)
+                    continue;
+                old = n.value;
+                expired = isExpired(n, now());
+                if (value != null && (expired || !value.equals(old)))
+                    return null;
+                n.retired = true;
+                data.remove(key, n);
+            }
+            afterWrite(new RemovalTask(n));
+            return expired ? null : old;
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param  key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (K k : data.keySet())
+            doRemove(k, null);
+    }
+
+    /**
+     * If the specified key is not already associated with an
+     * unexpired value, attempts to compute its value using the given
+     * function and enters it into this map unless {@code null}.  While
+     * the function runs, other threads calling this method for the
+     * same key wait for its result; calls for other keys, and other
+     * operations, do not wait.  The function should be short and
+     * simple, and must not attempt to load the same key.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the specified key or
+     *         mappingFunction is null
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished, and
+     *         the same exception is thrown to threads waiting for it
+     */
+    public V computeIfAbsent(final K key,
+                             final Function<? super K, ? extends V> mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        V v = get(key);
+        if (v != null)
+            return v;
+        FutureTask<V> f = new FutureTask<V>(new Callable<V>() {
+            public V call() {
+                V v = get(key);
+                if (v == null && (v = mappingFunction.apply(key)) != null) {
+                    V p = doPut(key, v, true);
+                    if (p != null)
+                        v = p;
+                }
+                return v;
+            }});
+        FutureTask<V> p = loading.putIfAbsent(key, f);
+        if (p == null) {
+            try {
+                f.run();
+            } finally {
+                loading.remove(key, f);
+            }
+        }
+        else
+            f = p;
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    return f.get();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                } catch (ExecutionException ee) {
+                    Throwable ex = ee.getCause();
+                    if (ex instanceof RuntimeException)
+                        throw (RuntimeException) ex;
+                    if (ex instanceof Error)
+                        throw (Error) ex;
+                    throw new CompletionException(ex);
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    /** Lazily initialized entry set */
+    private transient EntrySet entrySet;
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this
+     * map.  The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, but not {@code add}.  Its entries are snapshots that
+     * do not support {@code setValue}.  Expired mappings are skipped.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        final Iterator<Node<K,V>> it = data.values().iterator();
+        final long now = now();
+        Node<K,V> next, lastReturned;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            Node<K,V> n = null;
+            while (it.hasNext()) {
+                if (!isExpired(n = it.next(), now))
+                    break;
+                n = null;
+            }
+            next = n;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Map.Entry<K,V> next() {
+            Node<K,V> n = next;
+            if (n == null)
+                throw new NoSuchElementException();
+            lastReturned = n;
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<K,V>(n.key, n.value);
+        }
+
+        public void remove() {
+            Node<K,V> n = lastReturned;
+            if (n == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            doRemove(n.key, null);
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey(), v = e.getValue();
+            if (k == null || v == null)
+                return false;
+            Node<K,V> n = getNode(k, now());
+            return n != null && v.equals(n.value);
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey(), v = e.getValue();
+            return k != null && v != null &&
+                ConcurrentCacheMap.this.remove(k, v);
+        }
+        public int size() {
+            return ConcurrentCacheMap.this.size();
+        }
+        public boolean isEmpty() {
+            return ConcurrentCacheMap.this.isEmpty();
+        }
+        public void clear() {
+            ConcurrentCacheMap.this.clear();
+        }
+    }
+}
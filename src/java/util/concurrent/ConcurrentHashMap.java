@@ -35,17 +35,32 @@
 
 package java.util.concurrent;
 
-import java.util.concurrent.locks.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToLongBiFunction;
 import java.io.Serializable;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamField;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 
 /**
  * A hash table supporting full concurrency of retrievals and
- * adjustable expected concurrency for updates. This class obeys the
+ * high expected concurrency for updates. This class obeys the
  * same functional specification as {@link java.util.Hashtable}, and
  * includes versions of methods corresponding to each method of
  * <tt>Hashtable</tt>. However, even though all operations are
@@ -66,24 +81,52 @@ import java.io.ObjectStreamField;
  * at some point at or since the creation of the iterator/enumeration.
  * They do <em>not</em> throw {@link ConcurrentModificationException}.
  * However, iterators are designed to be used by only one thread at a time.
+ * Bear in mind that the results of aggregate status methods including
+ * <tt>size</tt>, <tt>isEmpty</tt>, and <tt>containsValue</tt> are
+ * typically useful only when a map is not undergoing concurrent
+ * updates in other threads.  Otherwise the results of these methods
+ * reflect transient states that may be adequate for monitoring or
+ * estimation purposes, but not for program control.
  * <p>
- * <p> The allowed concurrency among update operations is guided by
- * the optional <tt>concurrencyLevel</tt> constructor argument
- * (default <tt>16</tt>), which is used as a hint for internal sizing.  The
- * table is internally partitioned to try to permit the indicated
- * number of concurrent updates without contention. Because placement
- * in hash tables is essentially random, the actual concurrency will
- * vary.  Ideally, you should choose a value to accommodate as many
- * threads as will ever concurrently modify the table. Using a
- * significantly higher value than you need can waste space and time,
- * and a significantly lower value can lead to thread contention. But
- * overestimates and underestimates within an order of magnitude do
- * not usually have much noticeable impact. A value of one is
- * appropriate when it is known that only one thread will modify and
- * all others will only read. Also, resizing this or any other kind of
- * hash table is a relatively slow operation, so, when possible, it is
- * a good idea to provide estimates of expected table sizes in
- * constructors.
+ * <p> The table is dynamically expanded when there are too many
+ * collisions (i.e., keys that have distinct hash codes but fall into
+ * the same slot modulo the table size), with the expected average
+ * effect of maintaining roughly two bins per mapping (corresponding
+ * to a 0.75 load factor threshold for resizing).  There may be much
+ * variance around this average as mappings are added and removed,
+ * but overall, this maintains a commonly accepted time/space tradeoff
+ * for hash tables.  However, resizing this or any other kind of hash
+ * table may be a relatively slow operation.  When possible, it is a
+ * good idea to provide a size estimate as an optional
+ * <tt>initialCapacity</tt> constructor argument.  An additional
+ * optional <tt>loadFactor</tt> constructor argument provides a
+ * further means of customizing initial table capacity by specifying
+ * the table density to be used in calculating the amount of space to
+ * allocate for the given number of elements.  Also, for compatibility
+ * with previous versions of this class, constructors may optionally
+ * specify an expected <tt>concurrencyLevel</tt> as an additional hint
+ * for internal sizing.  Note that using many keys with exactly the
+ * same <tt>hashCode()</tt> is a sure way to slow down performance of
+ * any hash table.  To ameliorate impact, when keys are
+ * {@link Comparable}, this class may use comparison order among keys
+ * to help break ties.
+ * <p>
+ * <p> 与旧版本按 Segment 分段加锁不同，本实现不再预先划分 Segment：
+ * 空桶通过 CAS 直接放入节点，只有发生冲突时才对桶的头节点加锁；
+ * 扩容由多个线程协作完成；元素个数由分散的计数单元 (CounterCell) 统计，
+ * 见 {@link #mappingCount}。
+ * <p>
+ * <p> ConcurrentHashMaps support a set of parallel bulk operations
+ * ({@code forEach}, {@code search}, {@code reduce} and the primitive
+ * {@code reduceToLong}, {@code reduceToInt} and {@code reduceToDouble})
+ * that split the table into {@link ForkJoinTask}s.  Each takes a
+ * {@code parallelismThreshold}: the operation runs sequentially if the
+ * current map size is estimated to be less than the threshold, so
+ * {@code Long.MAX_VALUE} suppresses all parallelism and {@code 1}
+ * partitions into enough subtasks to fully utilize the pool.  Like
+ * iterators, these operations reflect the map state at some point
+ * during their execution, and the supplied functions should not
+ * depend on element ordering.
  * <p>
  * <p>This class and its views and iterators implement all of the
  * <em>optional</em> methods of the {@link Map} and {@link Iterator}
@@ -107,791 +150,520 @@ public class ConcurrentHashMap<K, V> extends AbstractMap<K, V>
     private static final long serialVersionUID = 7249069246763182397L;
 
     /*
-     * The basic strategy is to subdivide the table among Segments,
-     * each of which itself is a concurrently readable hash table.  To
-     * reduce footprint, all but one segments are constructed only
-     * when first needed (see ensureSegment). To maintain visibility
-     * in the presence of lazy construction, accesses to segments as
-     * well as elements of segment's table must use volatile access,
-     * which is done via Unsafe within methods segmentAt etc
-     * below. These provide the functionality of AtomicReferenceArrays
-     * but reduce the levels of indirection. Additionally,
-     * volatile-writes of table elements and entry "next" fields
-     * within locked operations use the cheaper "lazySet" forms of
-     * writes (via putOrderedObject) because these writes are always
-     * followed by lock releases that maintain sequential consistency
-     * of table updates.
-     *
-     * Historical note: The previous version of this class relied
-     * heavily on "final" fields, which avoided some volatile reads at
-     * the expense of a large initial footprint.  Some remnants of
-     * that design (including forced construction of segment 0) exist
-     * to ensure serialization compatibility.
+     * Overview:
+     *
+     * The primary design goal of this hash table is to maintain
+     * concurrent readability (typically method get(), but also
+     * iterators and related methods) while minimizing update
+     * contention. Secondary goals are to keep space consumption about
+     * the same or better than java.util.HashMap, and to support high
+     * initial insertion rates on an empty table by many threads.
+     *
+     * This map usually acts as a binned (bucketed) hash table.  Each
+     * key-value mapping is held in a Node.  Most nodes are instances
+     * of the basic Node class with hash, key, value, and next
+     * fields. However, various subclasses exist: TreeNodes are
+     * arranged in balanced trees, not lists.  TreeBins hold the roots
+     * of sets of TreeNodes. ForwardingNodes are placed at the heads
+     * of bins during resizing.  The TreeBin and ForwardingNode types
+     * have negative hash fields and null key and value fields.
+     *
+     * The table is lazily initialized to a power-of-two size upon the
+     * first insertion.  Each bin in the table normally contains a
+     * list of Nodes (most often, the list has only zero or one Node).
+     * Table accesses require volatile/atomic reads, writes, and
+     * CASes, performed via sun.misc.Unsafe.
+     *
+     * Insertion (via put or its variants) of the first node in an
+     * empty bin is performed by just CASing it to the bin.  This is
+     * by far the most common case for put operations under most
+     * key/hash distributions.  Other update operations (insert,
+     * delete, and replace) require locks.  We do not want to waste
+     * the space required to associate a distinct lock object with
+     * each bin, so instead use the first node of a bin list itself as
+     * a lock, via builtin "synchronized" monitors.  When a node is
+     * locked, any update must first validate that it is still the
+     * first node after locking it, and retry if not.  Because new
+     * nodes are always appended to lists, once a node is first in a
+     * bin, it remains first until deleted or the bin becomes
+     * invalidated (upon resizing).
+     *
+     * Under random hash codes, the frequency of nodes in bins follows
+     * a Poisson distribution with a parameter of about 0.5 on
+     * average, so lock contention between two threads accessing
+     * distinct elements is roughly 1 / (8 * #elements).  For the
+     * cases where hash codes collide heavily, a bin holding more than
+     * TREEIFY_THRESHOLD nodes is converted to a TreeBin, a balanced
+     * tree ordered by hash and then (when keys are Comparable) by
+     * compareTo, bounding search time to O(log N).  TreeNodes keep
+     * the same "next" pointers as regular nodes so they can be
+     * traversed by iterators in the same way.
+     *
+     * The table is resized when occupancy exceeds a percentage
+     * threshold (nominally, 0.75).  Any thread noticing an overfull
+     * bin may assist in resizing after the initiating thread
+     * allocates and sets up the replacement array.  Threads claim
+     * small blocks of indices to transfer (via field transferIndex),
+     * reducing contention, and a generation stamp in field sizeCtl
+     * ensures that resizings do not overlap.  Because we are using
+     * power-of-two expansion, the elements from each bin must either
+     * stay at same index, or move with a power of two offset, and
+     * trailing runs of nodes that stay together are reused rather
+     * than cloned.  Upon transfer, the old table bin contains only a
+     * special forwarding node (with hash field "MOVED") that contains
+     * the next table as its key.  On encountering a forwarding node,
+     * access and update operations restart, using the new table.
+     * Transfers proceed from the last bin towards the first, and
+     * traversals (see class Traverser) keep a small stack of tables
+     * (TableStack) so that no node is skipped or visited twice while
+     * a resize is in progress.
+     *
+     * The element count is maintained using a specialization of
+     * LongAdder-style striping: an uncontended base count updated by
+     * CAS, plus an array of padded CounterCells that is created and
+     * grown only when CASes on the base fail.  Each thread picks a
+     * counter cell by a per-thread hash code (see CounterHashCode)
+     * that is rehashed upon contention.  To avoid reading the counter
+     * cells too often, resizing under contention is attempted only
+     * upon adding to a bin already holding two or more nodes.
+     *
+     * TreeBins also require an additional locking mechanism.  While
+     * list traversal is always possible by readers even during
+     * updates, tree traversal is not, mainly because of tree-rotations
+     * that may change the root node and/or its linkages.  TreeBins
+     * include a simple read-write lock mechanism parasitic on the
+     * main bin-synchronization strategy: structural adjustments are
+     * already bin-locked but must wait for ongoing readers to
+     * finish.  Readers never block; if the root lock is held, they
+     * proceed along the slow traversal path via next-pointers.
+     *
+     * Maintaining API and serialization compatibility with previous
+     * versions of this class introduces several oddities. Mainly: We
+     * leave untouched but unused constructor arguments referring to
+     * concurrencyLevel. We accept a loadFactor constructor argument,
+     * but apply it only to initial table capacity (which is the only
+     * time that we can guarantee to honor it.) We also declare an
+     * unused "Segment" class that is instantiated in minimal form
+     * only when serializing.
      */
 
     /* ---------------- Constants -------------- */
 
     /**
-     * segments 数组的默认容量
+     * 最大容量
+     *
+     * The largest possible table capacity.  This value must be
+     * exactly 1<<30 to stay within Java array allocation and indexing
+     * bounds for power of two table sizes, and is further required
+     * because the top two bits of 32bit hash fields are used for
+     * control purposes.
      */
-    static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
 
     /**
-     * 默认加载因子
+     * table 数组的默认容量
+     *
+     * The default initial table capacity.  Must be a power of 2
+     * (i.e., at least 1) and at most MAXIMUM_CAPACITY.
      */
-    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int DEFAULT_CAPACITY = 16;
 
     /**
-     * 默认的 Segment数量, 也可以说是并发级别
+     * The largest possible (non-power of two) array size.
+     * Needed by toArray and related methods.
      */
-    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
     /**
-     * 最大容量
+     * 默认的并发级别, 仅为兼容旧版本的序列化格式而保留
+     *
+     * The default concurrency level for this table. Unused but
+     * defined for compatibility with previous versions of this class.
      */
-    static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
 
     /**
-     * Segment 的最小个数
+     * 默认加载因子
+     *
+     * The load factor for this table. Overrides of this value in
+     * constructors affect only the initial table capacity.  The
+     * actual floating point value isn't normally used -- it is
+     * simpler to use expressions such as {@code n - (n >>> 2)} for
+     * the associated resizing threshold.
      */
-    static final int MIN_SEGMENT_TABLE_CAPACITY = 2;
+    private static final float LOAD_FACTOR = 0.75f;
 
     /**
-     * Segment 的最大个数：1 << 16
+     * The bin count threshold for using a tree rather than list for a
+     * bin.  Bins are converted to trees when adding an element to a
+     * bin with at least this many nodes. The value must be greater
+     * than 2, and should be at least 8 to mesh with assumptions in
+     * tree removal about conversion back to plain bins upon
+     * shrinkage.
      */
-    static final int MAX_SEGMENTS = 1 << 16; // slightly conservative
+    static final int TREEIFY_THRESHOLD = 8;
 
     /**
-     * 在获取锁之前，size 和 containsValue方法中的非同步重试次数.
-     *
-     * 如果表经过连续的修改, 调用 size 和 containsValue 方法的时候
-     * 而无法获得准确的结果，则使用此选项可避免无限制的重试.
+     * The bin count threshold for untreeifying a (split) bin during a
+     * resize operation. Should be less than TREEIFY_THRESHOLD, and at
+     * most 6 to mesh with shrinkage detection under removal.
      */
-    static final int RETRIES_BEFORE_LOCK = 2;
+    static final int UNTREEIFY_THRESHOLD = 6;
 
     /**
-     * holds values which can't be initialized until after VM is booted.
+     * The smallest table capacity for which bins may be treeified.
+     * (Otherwise the table is resized if too many nodes in a bin.)
+     * The value should be at least 4 * TREEIFY_THRESHOLD to avoid
+     * conflicts between resizing and treeification thresholds.
      */
-    private static class Holder {
-
-        /**
-         * Enable alternative hashing of String keys?
-         * <p>
-         * <p>Unlike the other hash map implementations we do not implement a
-         * threshold for regulating whether alternative hashing is used for
-         * String keys. Alternative hashing is either enabled for all instances
-         * or disabled for all instances.
-         */
-        static final boolean ALTERNATIVE_HASHING;
-
-        static {
-            // Use the "threshold" system property even though our threshold
-            // behaviour is "ON" or "OFF".
-            String altThreshold = java.security.AccessController.doPrivileged(
-                    new sun.security.action.GetPropertyAction(
-                            "jdk.map.althashing.threshold"));
-
-            int threshold;
-            try {
-                threshold = (null != altThreshold)
-                        ? Integer.parseInt(altThreshold)
-                        : Integer.MAX_VALUE;
-
-                // disable alternative hashing if -1
-                if (threshold == -1) {
-                    threshold = Integer.MAX_VALUE;
-                }
-
-                if (threshold < 0) {
-                    throw new IllegalArgumentException("value must be positive integer.");
-                }
-            } catch (IllegalArgumentException failed) {
-                throw new Error("Illegal value for 'jdk.map.althashing.threshold'", failed);
-            }
-            ALTERNATIVE_HASHING = threshold <= MAXIMUM_CAPACITY;
-        }
-    }
+    static final int MIN_TREEIFY_CAPACITY = 64;
 
     /**
-     * A randomizing value associated with this instance that is applied to
-     * hash code of keys to make hash collisions harder to find.
+     * Minimum number of rebinnings per transfer step. Ranges are
+     * subdivided to allow multiple resizer threads.  This value
+     * serves as a lower bound to avoid resizers encountering
+     * excessive memory contention.  The value should be at least
+     * DEFAULT_CAPACITY.
      */
-    private transient final int hashSeed = randomHashSeed(this);
+    private static final int MIN_TRANSFER_STRIDE = 16;
 
-    private static int randomHashSeed(ConcurrentHashMap instance) {
-        if (sun.misc.VM.isBooted() && Holder.ALTERNATIVE_HASHING) {
-            return sun.misc.Hashing.randomHashSeed(instance);
-        }
+    /**
+     * The number of bits used for generation stamp in sizeCtl.
+     * Must be at least 6 for 32bit arrays.
+     */
+    private static final int RESIZE_STAMP_BITS = 16;
 
-        return 0;
-    }
+    /**
+     * The maximum number of threads that can help resize.
+     * Must fit in 32 - RESIZE_STAMP_BITS bits.
+     */
+    private static final int MAX_RESIZERS = (1 << (32 - RESIZE_STAMP_BITS)) - 1;
 
     /**
-     * 分段索引的掩码值.
-     * key 的hash值的高位用于匹配 segment 位置.
+     * The bit shift for recording size stamp in sizeCtl.
+     */
+    private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
+
+    /*
+     * Encodings for Node hash fields. See above for explanation.
      */
-    final int segmentMask;
+    static final int MOVED     = -1; // hash for forwarding nodes
+    static final int TREEBIN   = -2; // hash for roots of trees
+    static final int RESERVED  = -3; // hash for transient reservations
+    static final int HASH_BITS = 0x7fffffff; // usable bits of normal node hash
 
     /**
-     * 段内索引的移位值
+     * Number of CPUS, to place bounds on some sizings
      */
-    final int segmentShift;
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
 
     /**
-     * Segments 数组，每一个元素都是一个hash表
+     * For serialization compatibility.
      */
-    final Segment<K, V>[] segments;
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("segments", Segment[].class),
+        new ObjectStreamField("segmentMask", Integer.TYPE),
+        new ObjectStreamField("segmentShift", Integer.TYPE)
+    };
 
-    transient Set<K> keySet;
-    transient Set<Map.Entry<K, V>> entrySet;
-    transient Collection<V> values;
+    /* ---------------- Nodes -------------- */
 
     /**
-     * ConcurrentHashMap list entry. Note that this is never exported
-     * out as a user-visible Map.Entry.
-     *
-     * ConcurrentHashMap列表项。请注意，这永远不会作为用户可见的Map.Entry导出。
+     * Key-value entry.  This class is never exported out as a
+     * user-mutable Map.Entry (i.e., one supporting setValue; see
+     * MapEntry below), but can be used for read-only traversals used
+     * in bulk tasks.  Subclasses of Node with a negative hash field
+     * are special, and contain null keys and values (but are never
+     * exported).  Otherwise, keys and vals are never null.
      */
-    static final class HashEntry<K, V> {
+    static class Node<K, V> implements Map.Entry<K, V> {
         final int hash;
         final K key;
-        volatile V value;
-        volatile HashEntry<K, V> next;
+        volatile V val;
+        volatile Node<K, V> next;
 
-        HashEntry(int hash, K key, V value, HashEntry<K, V> next) {
+        Node(int hash, K key, V val, Node<K, V> next) {
             this.hash = hash;
             this.key = key;
-            this.value = value;
+            this.val = val;
             this.next = next;
         }
 
-        /**
-         * Sets next field with volatile write semantics.  (See above
-         * about use of putOrderedObject.)
-         */
-        final void setNext(HashEntry<K, V> n) {
-            UNSAFE.putOrderedObject(this, nextOffset, n);
+        public final K getKey()        { return key; }
+        public final V getValue()      { return val; }
+        public final int hashCode()    { return key.hashCode() ^ val.hashCode(); }
+        public final String toString() { return key + "=" + val; }
+        public final V setValue(V value) {
+            throw new UnsupportedOperationException();
         }
 
-        // Unsafe mechanics
-        static final sun.misc.Unsafe UNSAFE;
-        static final long nextOffset;
+        public final boolean equals(Object o) {
+            Object k, v, u; Map.Entry<?, ?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?, ?>) o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (k == key || k.equals(key)) &&
+                    (v == (u = val) || v.equals(u)));
+        }
 
-        static {
-            try {
-                UNSAFE = sun.misc.Unsafe.getUnsafe();
-                Class k = HashEntry.class;
-                nextOffset = UNSAFE.objectFieldOffset
-                        (k.getDeclaredField("next"));
-            } catch (Exception e) {
-                throw new Error(e);
+        /**
+         * Virtualized support for map.get(); overridden in subclasses.
+         */
+        Node<K, V> find(int h, Object k) {
+            Node<K, V> e = this;
+            if (k != null) {
+                do {
+                    K ek;
+                    if (e.hash == h &&
+                        ((ek = e.key) == k || (ek != null && k.equals(ek))))
+                        return e;
+                } while ((e = e.next) != null);
             }
+            return null;
         }
     }
 
+    /* ---------------- Static utilities -------------- */
+
     /**
-     * Gets the ith element of given table (if nonnull) with volatile
-     * read semantics. Note: This is manually integrated into a few
-     * performance-sensitive methods to reduce call overhead.
+     * Spreads (XORs) higher bits of hash to lower and also forces top
+     * bit to 0. Because the table uses power-of-two masking, sets of
+     * hashes that vary only in bits above the current mask will
+     * always collide.  We just XOR some shifted bits in the cheapest
+     * possible way to reduce systematic lossage, relying on tree bins
+     * to handle large sets of collisions.
      */
-    @SuppressWarnings("unchecked")
-    static final <K, V> HashEntry<K, V> entryAt(HashEntry<K, V>[] tab, int i) {
-        return (tab == null) ? null :
-                (HashEntry<K, V>) UNSAFE.getObjectVolatile
-                        (tab, ((long) i << TSHIFT) + TBASE);
+    static final int spread(int h) {
+        return (h ^ (h >>> 16)) & HASH_BITS;
     }
 
     /**
-     * Sets the ith element of given table, with volatile write
-     * semantics. (See above about use of putOrderedObject.)
+     * Returns a power of two table size for the given desired capacity.
+     * See Hackers Delight, sec 3.2
      */
-    static final <K, V> void setEntryAt(HashEntry<K, V>[] tab, int i,
-                                        HashEntry<K, V> e) {
-        UNSAFE.putOrderedObject(tab, ((long) i << TSHIFT) + TBASE, e);
+    private static final int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
     }
 
     /**
-     * 对给定的 hashCode 使用补充的 hash 函数, 防止用户重写的 hashCode 函数质量差.
-     *
-     * 这一个函数很关键，因为 ConcurrentHashMap 使用了 2 次幂的长度, 否则会遇到没有差别的哈希冲突
+     * Returns x's Class if it is of the form "class C implements
+     * Comparable<C>", else null.
      */
-    private int hash(Object k) {
-        int h = hashSeed;
-
-        if ((0 != h) && (k instanceof String)) {
-            return sun.misc.Hashing.stringHash32((String) k);
+    static Class<?> comparableClassFor(Object x) {
+        if (x instanceof Comparable) {
+            Class<?> c; Type[] ts, as; Type t; ParameterizedType p;
+            if ((c = x.getClass()) == String.class) // bypass checks
+                return c;
+            if ((ts = c.getGenericInterfaces()) != null) {
+                for (int i = 0; i < ts.length; ++i) {
+                    if (((t = ts[i]) instanceof ParameterizedType) &&
+                        ((p = (ParameterizedType) t).getRawType() ==
+                         Comparable.class) &&
+                        (as = p.getActualTypeArguments()) != null &&
+                        as.length == 1 && as[0] == c) // type arg is c
+                        return c;
+                }
+            }
         }
-
-        h ^= k.hashCode();
-
-        // Spread bits to regularize both segment and index locations,
-        // using variant of single-word Wang/Jenkins hash.
-        h += (h << 15) ^ 0xffffcd7d;
-        h ^= (h >>> 10);
-        h += (h << 3);
-        h ^= (h >>> 6);
-        h += (h << 2) + (h << 14);
-        return h ^ (h >>> 16);
+        return null;
     }
 
     /**
-     * Segments分段是hash table的专门的版本.
-     * 是ReentrantLock的派生子类，只是为了简化一些锁定操作并避免单独的构造
+     * Returns k.compareTo(x) if x matches kc (k's screened comparable
+     * class), else 0.
      */
-    static final class Segment<K, V> extends ReentrantLock implements Serializable {
-        /*
-         * Segments maintain a table of entry lists that are always
-         * kept in a consistent state, so can be read (via volatile
-         * reads of segments and tables) without locking.  This
-         * requires replicating nodes when necessary during table
-         * resizing, so the old lists can be traversed by readers
-         * still using old version of table.
-         *
-         * This class defines only mutative methods requiring locking.
-         * Except as noted, the methods of this class perform the
-         * per-segment versions of ConcurrentHashMap methods.  (Other
-         * methods are integrated directly into ConcurrentHashMap
-         * methods.) These mutative methods use a form of controlled
-         * spinning on contention via methods scanAndLock and
-         * scanAndLockForPut. These intersperse tryLocks with
-         * traversals to locate nodes.  The main benefit is to absorb
-         * cache misses (which are very common for hash tables) while
-         * obtaining locks so that traversal is faster once
-         * acquired. We do not actually use the found nodes since they
-         * must be re-acquired under lock anyway to ensure sequential
-         * consistency of updates (and in any case may be undetectably
-         * stale), but they will normally be much faster to re-locate.
-         * Also, scanAndLockForPut speculatively creates a fresh node
-         * to use in put if no node is found.
-         */
-
-        private static final long serialVersionUID = 2249069246763182397L;
-
-        /**
-         * The maximum number of times to tryLock in a prescan before
-         * possibly blocking on acquire in preparation for a locked
-         * segment operation. On multiprocessors, using a bounded
-         * number of retries maintains cache acquired while locating
-         * nodes.
-         */
-        static final int MAX_SCAN_RETRIES =
-                Runtime.getRuntime().availableProcessors() > 1 ? 64 : 1;
-
-        /**
-         * The per-segment table. Elements are accessed via
-         * entryAt/setEntryAt providing volatile semantics.
-         */
-        transient volatile HashEntry<K, V>[] table;
-
-        /**
-         * The number of elements. Accessed only either within locks
-         * or among other volatile reads that maintain visibility.
-         */
-        transient int count;
-
-        /**
-         * The total number of mutative operations in this segment.
-         * Even though this may overflows 32 bits, it provides
-         * sufficient accuracy for stability checks in CHM isEmpty()
-         * and size() methods.  Accessed only either within locks or
-         * among other volatile reads that maintain visibility.
-         */
-        transient int modCount;
-
-        /**
-         * The table is rehashed when its size exceeds this threshold.
-         * (The value of this field is always <tt>(int)(capacity *
-         * loadFactor)</tt>.)
-         */
-        transient int threshold;
-
-        /**
-         * The load factor for the hash table.  Even though this value
-         * is same for all segments, it is replicated to avoid needing
-         * links to outer object.
-         *
-         * @serial
-         */
-        final float loadFactor;
-
-        Segment(float lf, int threshold, HashEntry<K, V>[] tab) {
-            this.loadFactor = lf;
-            this.threshold = threshold;
-            this.table = tab;
-        }
-
-        final V put(K key, int hash, V value, boolean onlyIfAbsent) {
-            // 不公平获取重入锁,
-            // 如果获取不到锁，就根据 hash值 定位到链表指定的下标,
-            // 如果超过重试次数还没获取到锁, 那么, 那么直接使用同步获取锁
-            HashEntry<K, V> node = tryLock() ? null : scanAndLockForPut(key, hash, value);
-            V oldValue;
-            try {
-                HashEntry<K, V>[] tab = table;
-                // 对哈希值取余, 找出 HashEntry 数组的下标
-                int index = (tab.length - 1) & hash;
-                HashEntry<K, V> first = entryAt(tab, index);
-                for (HashEntry<K, V> e = first; ; ) {
-                    // 如果没有遍历到尾部
-                    if (e != null) {
-                        K k;
-                        // 如果遇到相同的节点
-                        if ((k = e.key) == key ||
-                                (e.hash == hash && key.equals(k))) {
-                            oldValue = e.value;
-                            // 是否覆盖旧值, 在 ConcurrentHashMap是不覆盖的
-                            if (!onlyIfAbsent) {
-                                e.value = value;
-                                ++modCount;
-                            }
-                            break;
-                        }
-                        e = e.next;
-                    } else {
-                        // 如果遍历到尾部, 就开始添加节点
-                        // 使用头插法
-                        if (node != null) {
-                            node.setNext(first);
-                        } else {
-                            node = new HashEntry<K, V>(hash, key, value, first);
-                        }
-                        int c = count + 1;
-                        // 如果 HashEntry 超过门限, 那么就开始扩容
-                        if (c > threshold && tab.length < MAXIMUM_CAPACITY) {
-                            rehash(node);
-                        } else {
-                            // 否则就把节点设置到tab 数组的指定下标
-                            setEntryAt(tab, index, node);
-                        }
-                        ++modCount;
-                        count = c;
-                        oldValue = null;
-                        break;
-                    }
-                }
-            } finally {
-                // 最后释放锁
-                unlock();
-            }
-            return oldValue;
-        }
+    static int compareComparables(Class<?> kc, Object k, Object x) {
+        return (x == null || x.getClass() != kc ? 0 :
+                ((Comparable) k).compareTo(x));
+    }
 
-        /**
-         * 两倍扩容
-         *
-         * Doubles size of table and repacks entries, also adding the
-         * given node to new table
-         */
-        private void rehash(HashEntry<K, V> node) {
-            /*
-             * 将链表中的每个节点重新编排到新的 table
-             * 因为我们使用的是 2次幂的扩容方式,
-             * 所以链表的元素要么在原位, 要么在原数组的 2 倍数组下标的位置
-             *
-             * 并通过旧节点的重用情况, 来清除不必要的节点创建.
-             * 据统计，只有 1/6 的节点需要克隆.
-             *
-             */
-            HashEntry<K, V>[] oldTable = table;
-            int oldCapacity = oldTable.length;
-            int newCapacity = oldCapacity << 1;
-            threshold = (int) (newCapacity * loadFactor);
-            HashEntry<K, V>[] newTable = (HashEntry<K, V>[]) new HashEntry[newCapacity];
-            int sizeMask = newCapacity - 1;
-            // 开始迁移数组数据
-            for (int i = 0; i < oldCapacity; i++) {
-                HashEntry<K, V> e = oldTable[i];
-                if (e != null) {
-                    HashEntry<K, V> next = e.next;
-                    int idx = e.hash & sizeMask;
-                    if (next == null)   //  Single node on list
-                    {
-                        // 如果是一个单独的节点
-                        // 直接设置到新数组中
-                        newTable[idx] = e;
-                    } else { // Reuse consecutive sequence at same slot
-                        HashEntry<K, V> lastRun = e;
-                        int lastIdx = idx;
-                        for (HashEntry<K, V> last = next; last != null; last = last.next) {
-                            // 对每个节点重新计算位置
-                            int k = last.hash & sizeMask;
-                            if (k != lastIdx) {
-                                lastIdx = k;
-                                lastRun = last;
-                            }
-                        }
-                        newTable[lastIdx] = lastRun;
-                        // Clone remaining nodes
-                        for (HashEntry<K, V> p = e; p != lastRun; p = p.next) {
-                            V v = p.value;
-                            int h = p.hash;
-                            int k = h & sizeMask;
-                            HashEntry<K, V> n = newTable[k];
-                            newTable[k] = new HashEntry<K, V>(h, p.key, v, n);
-                        }
-                    }
-                }
-            }
-            int nodeIndex = node.hash & sizeMask; // add the new node
-            node.setNext(newTable[nodeIndex]);
-            newTable[nodeIndex] = node;
-            table = newTable;
-        }
+    /* ---------------- Table element access -------------- */
 
-        /**
-         * 在尝试获取锁的时候，扫描一个包含指定 key 的节点
-         * 如果没有找到，创建并返回一个节点.
-         *
-         * 在返回的时候，保证锁被持有.
-         *
-         * 不像大多数的方法那样, 调用 equals 方法不会被屏蔽
-         * 因为遍历速度无关紧要.
-         *
-         *
-         * @return a new node if key not found, else null
-         */
-        private HashEntry<K, V> scanAndLockForPut(K key, int hash, V value) {
-            HashEntry<K, V> first = entryForHash(this, hash);
-            HashEntry<K, V> e = first;
-            HashEntry<K, V> node = null;
-            int retries = -1; // negative while locating node
-            while (!tryLock()) {
-                HashEntry<K, V> f; // to recheck first below
-                if (retries < 0) {
-                    if (e == null) {
-                        if (node == null) // speculatively create node
-                        {
-                            node = new HashEntry<K, V>(hash, key, value, null);
-                        }
-                        retries = 0;
-                    } else if (key.equals(e.key)) {
-                        retries = 0;
-                    } else {
-                        e = e.next;
-                    }
-                } else if (++retries > MAX_SCAN_RETRIES) {
-                    // 如果超过重试次数, 就使用同步的方式获取锁
-                    lock();
-                    break;
-                } else if ((retries & 1) == 0 && (f = entryForHash(this, hash)) != first) {
-                    // 如果有其他线程修改了链表，则重头开始遍历
-                    e = first = f;
-                    retries = -1;
-                }
-            }
-            return node;
-        }
+    /*
+     * Volatile access methods are used for table elements as well as
+     * elements of in-progress next table while resizing.  All uses of
+     * the tab arguments must be null checked by callers.  All callers
+     * also paranoically precheck that tab's length is not zero (or an
+     * equivalent check), thus ensuring that any index argument taking
+     * the form of a hash value anded with (length - 1) is a valid
+     * index.  Note that calls to setTabAt always occur within locked
+     * regions.
+     */
 
-        /**
-         * Scans for a node containing the given key while trying to
-         * acquire lock for a remove or replace operation. Upon
-         * return, guarantees that lock is held.  Note that we must
-         * lock even if the key is not found, to ensure sequential
-         * consistency of updates.
-         */
-        private void scanAndLock(Object key, int hash) {
-            // similar to but simpler than scanAndLockForPut
-            HashEntry<K, V> first = entryForHash(this, hash);
-            HashEntry<K, V> e = first;
-            int retries = -1;
-            while (!tryLock()) {
-                HashEntry<K, V> f;
-                if (retries < 0) {
-                    if (e == null || key.equals(e.key)) {
-                        retries = 0;
-                    } else {
-                        e = e.next;
-                    }
-                } else if (++retries > MAX_SCAN_RETRIES) {
-                    lock();
-                    break;
-                } else if ((retries & 1) == 0 &&
-                        (f = entryForHash(this, hash)) != first) {
-                    e = first = f;
-                    retries = -1;
-                }
-            }
-        }
+    static final <K, V> Node<K, V> tabAt(Node<K, V>[] tab, int i) {
+        return (Node<K, V>) U.getObjectVolatile(tab, ((long) i << ASHIFT) + ABASE);
+    }
 
-        /**
-         * Remove; match on key only if value null, else match both.
-         */
-        final V remove(Object key, int hash, Object value) {
-            if (!tryLock()) {
-                scanAndLock(key, hash);
-            }
-            V oldValue = null;
-            try {
-                HashEntry<K, V>[] tab = table;
-                int index = (tab.length - 1) & hash;
-                HashEntry<K, V> e = entryAt(tab, index);
-                HashEntry<K, V> pred = null;
-                while (e != null) {
-                    K k;
-                    HashEntry<K, V> next = e.next;
-                    if ((k = e.key) == key ||
-                            (e.hash == hash && key.equals(k))) {
-                        V v = e.value;
-                        if (value == null || value == v || value.equals(v)) {
-                            if (pred == null) {
-                                setEntryAt(tab, index, next);
-                            } else {
-                                pred.setNext(next);
-                            }
-                            ++modCount;
-                            --count;
-                            oldValue = v;
-                        }
-                        break;
-                    }
-                    pred = e;
-                    e = next;
-                }
-            } finally {
-                unlock();
-            }
-            return oldValue;
-        }
+    static final <K, V> boolean casTabAt(Node<K, V>[] tab, int i,
+                                         Node<K, V> c, Node<K, V> v) {
+        return U.compareAndSwapObject(tab, ((long) i << ASHIFT) + ABASE, c, v);
+    }
 
-        final boolean replace(K key, int hash, V oldValue, V newValue) {
-            if (!tryLock())
-                scanAndLock(key, hash);
-            boolean replaced = false;
-            try {
-                HashEntry<K, V> e;
-                for (e = entryForHash(this, hash); e != null; e = e.next) {
-                    K k;
-                    if ((k = e.key) == key ||
-                            (e.hash == hash && key.equals(k))) {
-                        if (oldValue.equals(e.value)) {
-                            e.value = newValue;
-                            ++modCount;
-                            replaced = true;
-                        }
-                        break;
-                    }
-                }
-            } finally {
-                unlock();
-            }
-            return replaced;
-        }
+    static final <K, V> void setTabAt(Node<K, V>[] tab, int i, Node<K, V> v) {
+        U.putObjectVolatile(tab, ((long) i << ASHIFT) + ABASE, v);
+    }
 
-        final V replace(K key, int hash, V value) {
-            if (!tryLock())
-                scanAndLock(key, hash);
-            V oldValue = null;
-            try {
-                HashEntry<K, V> e;
-                for (e = entryForHash(this, hash); e != null; e = e.next) {
-                    K k;
-                    if ((k = e.key) == key ||
-                            (e.hash == hash && key.equals(k))) {
-                        oldValue = e.value;
-                        e.value = value;
-                        ++modCount;
-                        break;
-                    }
-                }
-            } finally {
-                unlock();
-            }
-            return oldValue;
-        }
+    /* ---------------- Fields -------------- */
 
-        final void clear() {
-            lock();
-            try {
-                HashEntry<K, V>[] tab = table;
-                for (int i = 0; i < tab.length; i++)
-                    setEntryAt(tab, i, null);
-                ++modCount;
-                count = 0;
-            } finally {
-                unlock();
-            }
-        }
-    }
+    /**
+     * 桶数组, 第一次插入时才延迟初始化, 长度总是 2 的幂
+     *
+     * The array of bins. Lazily initialized upon first insertion.
+     * Size is always a power of two. Accessed directly by iterators.
+     */
+    transient volatile Node<K, V>[] table;
 
-    // Accessing segments
+    /**
+     * The next table to use; non-null only while resizing.
+     */
+    private transient volatile Node<K, V>[] nextTable;
 
     /**
-     * Gets the jth element of given segment array (if nonnull) with
-     * volatile element access semantics via Unsafe. (The null check
-     * can trigger harmlessly only during deserialization.) Note:
-     * because each element of segments array is set only once (using
-     * fully ordered writes), some performance-sensitive methods rely
-     * on this method only as a recheck upon null reads.
+     * Base counter value, used mainly when there is no contention,
+     * but also as a fallback during table initialization
+     * races. Updated via CAS.
      */
-    @SuppressWarnings("unchecked")
-    static final <K, V> Segment<K, V> segmentAt(Segment<K, V>[] ss, int j) {
-        long u = (j << SSHIFT) + SBASE;
-        return ss == null ? null :
-                (Segment<K, V>) UNSAFE.getObjectVolatile(ss, u);
-    }
+    private transient volatile long baseCount;
 
     /**
-     * 返回给定下标的 segment, 如果不存在, 使用 CAS 创建并记录到 segment 数组中
+     * Table initialization and resizing control.  When negative, the
+     * table is being initialized or resized: -1 for initialization,
+     * else -(1 + the number of active resizing threads).  Otherwise,
+     * when table is null, holds the initial table size to use upon
+     * creation, or 0 for default. After initialization, holds the
+     * next element count value upon which to resize the table.
      */
-    private Segment<K, V> ensureSegment(int k) {
-        final Segment<K, V>[] ss = this.segments;
-        long u = (k << SSHIFT) + SBASE; // raw offset
-        Segment<K, V> seg;
-        if ((seg = (Segment<K, V>) UNSAFE.getObjectVolatile(ss, u)) == null) {
-            Segment<K, V> proto = ss[0]; // use segment 0 as prototype
-            int cap = proto.table.length;
-            float lf = proto.loadFactor;
-            int threshold = (int) (cap * lf);
-            HashEntry<K, V>[] tab = (HashEntry<K, V>[]) new HashEntry[cap];
-            if ((seg = (Segment<K, V>) UNSAFE.getObjectVolatile(ss, u)) == null) { // recheck
-                Segment<K, V> s = new Segment<K, V>(lf, threshold, tab);
-                while ((seg = (Segment<K, V>) UNSAFE.getObjectVolatile(ss, u)) == null) {
-                    if (UNSAFE.compareAndSwapObject(ss, u, null, seg = s)) {
-                        break;
-                    }
-                }
-            }
-        }
-        return seg;
-    }
+    private transient volatile int sizeCtl;
 
-    // Hash-based segment and entry accesses
+    /**
+     * The next table index (plus one) to split while resizing.
+     */
+    private transient volatile int transferIndex;
 
     /**
-     * Get the segment for the given hash
+     * Spinlock (locked via CAS) used when resizing and/or creating CounterCells.
      */
-    @SuppressWarnings("unchecked")
-    private Segment<K, V> segmentForHash(int h) {
-        long u = (((h >>> segmentShift) & segmentMask) << SSHIFT) + SBASE;
-        return (Segment<K, V>) UNSAFE.getObjectVolatile(segments, u);
-    }
+    private transient volatile int cellsBusy;
 
     /**
-     * Gets the table entry for the given segment and hash
+     * Table of counter cells. When non-null, size is a power of 2.
      */
-    @SuppressWarnings("unchecked")
-    static final <K, V> HashEntry<K, V> entryForHash(Segment<K, V> seg, int h) {
-        HashEntry<K, V>[] tab;
-        return (seg == null || (tab = seg.table) == null) ? null :
-                (HashEntry<K, V>) UNSAFE.getObjectVolatile
-                        (tab, ((long) (((tab.length - 1) & h)) << TSHIFT) + TBASE);
-    }
+    private transient volatile CounterCell[] counterCells;
+
+    // views
+    private transient KeySetView<K, V> keySet;
+    private transient ValuesView<K, V> values;
+    private transient EntrySetView<K, V> entrySet;
+
 
     /* ---------------- Public operations -------------- */
 
     /**
-     * Creates a new, empty map with the specified initial
-     * capacity, load factor and concurrency level.
-     *
-     * @param initialCapacity  the initial capacity. The implementation
-     *                         performs internal sizing to accommodate this many elements.
-     * @param loadFactor       the load factor threshold, used to control resizing.
-     *                         Resizing may be performed when the average number of elements per
-     *                         bin exceeds this threshold.
-     * @param concurrencyLevel the estimated number of concurrently
-     *                         updating threads. The implementation performs internal sizing
-     *                         to try to accommodate this many threads.
-     * @throws IllegalArgumentException if the initial capacity is
-     *                                  negative or the load factor or concurrencyLevel are
-     *                                  nonpositive.
+     * Creates a new, empty map with the default initial table size (16).
      */
-    public ConcurrentHashMap(int initialCapacity, float loadFactor, int concurrencyLevel) {
-        // 如果参数非法，那么就抛出非法参数异常
-        if (!(loadFactor > 0) || initialCapacity < 0 || concurrencyLevel <= 0) {
-            throw new IllegalArgumentException();
-        }
-        // 如果Segment数量大于最大 Segment数量, 就不再扩容
-        if (concurrencyLevel > MAX_SEGMENTS) {
-            concurrencyLevel = MAX_SEGMENTS;
-        }
-        // 2 的 sshift 次方 = ssize
-        // 如果 ssize = 16, sshift = 4
-        // 如果 concurrencyLevel = 17, ssize = 32
-        int sshift = 0;
-        int ssize = 1;
-        while (ssize < concurrencyLevel) {
-            ++sshift;
-            ssize <<= 1;
-        }
-        // 后面会讲到, 这两个值对于定位 segment 的索引有帮助
-        this.segmentShift = 32 - sshift;
-        this.segmentMask = ssize - 1;
-        if (initialCapacity > MAXIMUM_CAPACITY) {
-            initialCapacity = MAXIMUM_CAPACITY;
-        }
-        // 如果给定的容量为 17, 那么c = 0
-        // 然后 0 * 1 < 17, ++c
-        // 反正无论如何都会给你整到 2 的 n 次幂
-        int c = initialCapacity / ssize;
-        if (c * ssize < initialCapacity) {
-            ++c;
-        }
-        // Segment 中 HashEntry 数组的长度, 也帮你整到 2 的 n 次幂
-        // 为了方便地进行位运算的散列算法来定位 Segment 的下标
-        int cap = MIN_SEGMENT_TABLE_CAPACITY;
-        while (cap < c) {
-            cap <<= 1;
-        }
-        // 创建 Segments 数组并初始化第一个 Segment
-        Segment<K, V> s0 =
-                new Segment<K, V>(loadFactor, (int) (cap * loadFactor),
-                        (HashEntry<K, V>[]) new HashEntry[cap]);
-        Segment<K, V>[] ss = (Segment<K, V>[]) new Segment[ssize];
-        UNSAFE.putOrderedObject(ss, SBASE, s0); // ordered write of segments[0]
-        this.segments = ss;
+    public ConcurrentHashMap() {
     }
 
     /**
-     * Creates a new, empty map with the specified initial capacity
-     * and load factor and with the default concurrencyLevel (16).
+     * Creates a new, empty map with an initial table size
+     * accommodating the specified number of elements without the need
+     * to dynamically resize.
      *
      * @param initialCapacity The implementation performs internal
      *                        sizing to accommodate this many elements.
-     * @param loadFactor      the load factor threshold, used to control resizing.
-     *                        Resizing may be performed when the average number of elements per
-     *                        bin exceeds this threshold.
      * @throws IllegalArgumentException if the initial capacity of
-     *                                  elements is negative or the load factor is nonpositive
-     * @since 1.6
+     *                                  elements is negative
      */
-    public ConcurrentHashMap(int initialCapacity, float loadFactor) {
-        this(initialCapacity, loadFactor, DEFAULT_CONCURRENCY_LEVEL);
+    public ConcurrentHashMap(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException();
+        int cap = ((initialCapacity >= (MAXIMUM_CAPACITY >>> 1)) ?
+                   MAXIMUM_CAPACITY :
+                   tableSizeFor(initialCapacity + (initialCapacity >>> 1) + 1));
+        this.sizeCtl = cap;
+    }
+
+    /**
+     * Creates a new map with the same mappings as the given map.
+     *
+     * @param m the map
+     */
+    public ConcurrentHashMap(Map<? extends K, ? extends V> m) {
+        this.sizeCtl = DEFAULT_CAPACITY;
+        putAll(m);
     }
 
     /**
-     * Creates a new, empty map with the specified initial capacity,
-     * and with default load factor (0.75) and concurrencyLevel (16).
+     * Creates a new, empty map with an initial table size based on
+     * the given number of elements ({@code initialCapacity}) and
+     * initial table density ({@code loadFactor}).
      *
      * @param initialCapacity the initial capacity. The implementation
-     *                        performs internal sizing to accommodate this many elements.
+     *                        performs internal sizing to accommodate this many elements,
+     *                        given the specified load factor.
+     * @param loadFactor      the load factor (table density) for
+     *                        establishing the initial table size
      * @throws IllegalArgumentException if the initial capacity of
-     *                                  elements is negative.
+     *                                  elements is negative or the load factor is nonpositive
+     * @since 1.6
      */
-    public ConcurrentHashMap(int initialCapacity) {
-        this(initialCapacity, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    public ConcurrentHashMap(int initialCapacity, float loadFactor) {
+        this(initialCapacity, loadFactor, 1);
     }
 
     /**
-     * Creates a new, empty map with a default initial capacity (16),
-     * load factor (0.75) and concurrencyLevel (16).
+     * Creates a new, empty map with an initial table size based on
+     * the given number of elements ({@code initialCapacity}), table
+     * density ({@code loadFactor}), and number of concurrently
+     * updating threads ({@code concurrencyLevel}).
+     *
+     * @param initialCapacity  the initial capacity. The implementation
+     *                         performs internal sizing to accommodate this many elements,
+     *                         given the specified load factor.
+     * @param loadFactor       the load factor (table density) for
+     *                         establishing the initial table size
+     * @param concurrencyLevel the estimated number of concurrently
+     *                         updating threads. The implementation may use this value as
+     *                         a sizing hint.
+     * @throws IllegalArgumentException if the initial capacity is
+     *                                  negative or the load factor or concurrencyLevel are
+     *                                  nonpositive
      */
-    public ConcurrentHashMap() {
-        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    public ConcurrentHashMap(int initialCapacity,
+                             float loadFactor, int concurrencyLevel) {
+        if (!(loadFactor > 0.0f) || initialCapacity < 0 || concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+        if (initialCapacity < concurrencyLevel)   // Use at least as many bins
+            initialCapacity = concurrencyLevel;   // as estimated threads
+        long size = (long) (1.0 + (long) initialCapacity / loadFactor);
+        int cap = (size >= (long) MAXIMUM_CAPACITY) ?
+            MAXIMUM_CAPACITY : tableSizeFor((int) size);
+        this.sizeCtl = cap;
     }
 
+    // Original (since JDK1.2) Map methods
+
     /**
-     * Creates a new map with the same mappings as the given map.
-     * The map is created with a capacity of 1.5 times the number
-     * of mappings in the given map or 16 (whichever is greater),
-     * and a default load factor (0.75) and concurrencyLevel (16).
+     * Returns the number of key-value mappings in this map.  If the
+     * map contains more than <tt>Integer.MAX_VALUE</tt> elements, returns
+     * <tt>Integer.MAX_VALUE</tt>.
      *
-     * @param m the map
+     * @return the number of key-value mappings in this map
+     * @see #mappingCount()
      */
-    public ConcurrentHashMap(Map<? extends K, ? extends V> m) {
-        this(Math.max((int) (m.size() / DEFAULT_LOAD_FACTOR) + 1,
-                DEFAULT_INITIAL_CAPACITY),
-                DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
-        putAll(m);
+    @Override
+    public int size() {
+        // 直接累加 baseCount 与各个 CounterCell, 不再需要像分段版本那样加锁重试
+        long n = sumCount();
+        return ((n < 0L) ? 0 :
+                (n > (long) Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                (int) n);
     }
 
     /**
@@ -901,93 +673,7 @@ public class ConcurrentHashMap<K, V> extends AbstractMap<K, V>
      */
     @Override
     public boolean isEmpty() {
-        /*
-         * Sum per-segment modCounts to avoid mis-reporting when
-         * elements are concurrently added and removed in one segment
-         * while checking another, in which case the table was never
-         * actually empty at any point. (The sum ensures accuracy up
-         * through at least 1<<31 per-segment modifications before
-         * recheck.)  Methods size() and containsValue() use similar
-         * constructions for stability checks.
-         */
-        long sum = 0L;
-        final Segment<K, V>[] segments = this.segments;
-        for (int j = 0; j < segments.length; ++j) {
-            Segment<K, V> seg = segmentAt(segments, j);
-            if (seg != null) {
-                if (seg.count != 0) {
-                    return false;
-                }
-                sum += seg.modCount;
-            }
-        }
-        if (sum != 0L) { // recheck unless no modifications
-            for (int j = 0; j < segments.length; ++j) {
-                Segment<K, V> seg = segmentAt(segments, j);
-                if (seg != null) {
-                    if (seg.count != 0)
-                        return false;
-                    sum -= seg.modCount;
-                }
-            }
-            if (sum != 0L)
-                return false;
-        }
-        return true;
-    }
-
-    /**
-     * Returns the number of key-value mappings in this map.  If the
-     * map contains more than <tt>Integer.MAX_VALUE</tt> elements, returns
-     * <tt>Integer.MAX_VALUE</tt>.
-     *
-     * @return the number of key-value mappings in this map
-     */
-    @Override
-    public int size() {
-        // 通过多次尝试获取准确的数量, 由于 table 会被多次异步修改, 请直接锁住 table
-        final Segment<K, V>[] segments = this.segments;
-        int size;
-        boolean overflow; // true if size overflows 32 bits
-        long sum;         // sum of modCounts
-        long last = 0L;   // previous sum
-        int retries = -1; // first iteration isn't retry
-        try {
-            for (; ; ) {
-                // 如果尝试次数 == 2
-                // 那么锁定所有的 Segment
-                if (retries++ == RETRIES_BEFORE_LOCK) {
-                    for (int j = 0; j < segments.length; ++j) {
-                        ensureSegment(j).lock(); // force creation
-                    }
-                }
-                sum = 0L;
-                size = 0;
-                overflow = false;
-                for (int j = 0; j < segments.length; ++j) {
-                    Segment<K, V> seg = segmentAt(segments, j);
-                    if (seg != null) {
-                        sum += seg.modCount;
-                        int c = seg.count;
-                        if (c < 0 || (size += c) < 0) {
-                            overflow = true;
-                        }
-                    }
-                }
-                if (sum == last) {
-                    break;
-                }
-                last = sum;
-            }
-        } finally {
-            // 解锁所有 Segment
-            if (retries > RETRIES_BEFORE_LOCK) {
-                for (int j = 0; j < segments.length; ++j) {
-                    segmentAt(segments, j).unlock();
-                }
-            }
-        }
-        return overflow ? Integer.MAX_VALUE : size;
+        return sumCount() <= 0L; // ignore transient negative values
     }
 
     /**
@@ -1003,20 +689,20 @@ public class ConcurrentHashMap<K, V> extends AbstractMap<K, V>
      */
     @Override
     public V get(Object key) {
-        Segment<K, V> s; // manually integrate access methods to reduce overhead
-        HashEntry<K, V>[] tab;
-        int h = hash(key);
-        long u = (((h >>> segmentShift) & segmentMask) << SSHIFT) + SBASE;
-        if ((s = (Segment<K, V>) UNSAFE.getObjectVolatile(segments, u)) != null &&
-                (tab = s.table) != null) {
-
-            for (HashEntry<K, V> e = (HashEntry<K, V>) UNSAFE.getObjectVolatile
-                    (tab, ((long) (((tab.length - 1) & h)) << TSHIFT) + TBASE);
-                 e != null; e = e.next) {
-                K k;
-                if ((k = e.key) == key || (e.hash == h && key.equals(k))) {
-                    return e.value;
-                }
+        Node<K, V>[] tab; Node<K, V> e, p; int n, eh; K ek;
+        int h = spread(key.hashCode());
+        if ((tab = table) != null && (n = tab.length) > 0 &&
+            (e = tabAt(tab, (n - 1) & h)) != null) {
+            if ((eh = e.hash) == h) {
+                if ((ek = e.key) == key || (ek != null && key.equals(ek)))
+                    return e.val;
+            }
+            else if (eh < 0)
+                return (p = e.find(h, key)) != null ? p.val : null;
+            while ((e = e.next) != null) {
+                if (e.hash == h &&
+                    ((ek = e.key) == key || (ek != null && key.equals(ek))))
+                    return e.val;
             }
         }
         return null;
@@ -1031,641 +717,4045 @@ public class ConcurrentHashMap<K, V> extends AbstractMap<K, V>
      * <tt>equals</tt> method; <tt>false</tt> otherwise.
      * @throws NullPointerException if the specified key is null
      */
-    @SuppressWarnings("unchecked")
+    @Override
     public boolean containsKey(Object key) {
-        Segment<K, V> s; // same as get() except no need for volatile value read
-        HashEntry<K, V>[] tab;
-        int h = hash(key);
-        long u = (((h >>> segmentShift) & segmentMask) << SSHIFT) + SBASE;
-        if ((s = (Segment<K, V>) UNSAFE.getObjectVolatile(segments, u)) != null &&
-                (tab = s.table) != null) {
-            for (HashEntry<K, V> e = (HashEntry<K, V>) UNSAFE.getObjectVolatile
-                    (tab, ((long) (((tab.length - 1) & h)) << TSHIFT) + TBASE);
-                 e != null; e = e.next) {
-                K k;
-                if ((k = e.key) == key || (e.hash == h && key.equals(k)))
+        return get(key) != null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value. Note: This method may require a full traversal
+     * of the map, and is much slower than method <tt>containsKey</tt>.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     * specified value
+     * @throws NullPointerException if the specified value is null
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        Node<K, V>[] t;
+        if ((t = table) != null) {
+            Traverser<K, V> it = new Traverser<K, V>(t, t.length, 0, t.length);
+            for (Node<K, V> p; (p = it.advance()) != null; ) {
+                V v;
+                if ((v = p.val) == value || (v != null && value.equals(v)))
                     return true;
             }
         }
-        return false;
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     * Neither the key nor the value can be null.
+     * <p>
+     * <p> The value can be retrieved by calling the <tt>get</tt> method
+     * with a key that is equal to the original key.
+     *
+     * @param key   key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     * <tt>null</tt> if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key or value is null
+     */
+    @Override
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * Implementation for put and putIfAbsent
+     */
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) throw new NullPointerException();
+        int hash = spread(key.hashCode());
+        int binCount = 0;
+        for (Node<K, V>[] tab = table; ; ) {
+            Node<K, V> f; int n, i, fh;
+            if (tab == null || (n = tab.length) == 0)
+                tab = initTable();
+            else if ((f = tabAt(tab, i = (n - 1) & hash)) == null) {
+                // 空桶: 直接 CAS 放入, 无需加锁
+                if (casTabAt(tab, i, null,
+                             new Node<K, V>(hash, key, value, null)))
+                    break;
+            }
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                V oldVal = null;
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        if (fh >= 0) {
+                            binCount = 1;
+                            for (Node<K, V> e = f; ; ++binCount) {
+                                K ek;
+                                if (e.hash == hash &&
+                                    ((ek = e.key) == key ||
+                                     (ek != null && key.equals(ek)))) {
+                                    oldVal = e.val;
+                                    if (!onlyIfAbsent)
+                                        e.val = value;
+                                    break;
+                                }
+                                Node<K, V> pred = e;
+                                if ((e = e.next) == null) {
+                                    pred.next = new Node<K, V>(hash, key,
+                                                               value, null);
+                                    break;
+                                }
+                            }
+                        }
+                        else if (f instanceof TreeBin) {
+                            Node<K, V> p;
+                            binCount = 2;
+                            if ((p = ((TreeBin<K, V>) f).putTreeVal(hash, key,
+                                                                    value)) != null) {
+                                oldVal = p.val;
+                                if (!onlyIfAbsent)
+                                    p.val = value;
+                            }
+                        }
+                    }
+                }
+                if (binCount != 0) {
+                    if (binCount >= TREEIFY_THRESHOLD)
+                        treeifyBin(tab, i);
+                    if (oldVal != null)
+                        return oldVal;
+                    break;
+                }
+            }
+        }
+        addCount(1L, binCount);
+        return null;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this one.
+     * These mappings replace any mappings that this map had for any of the
+     * keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        tryPresize(m.size());
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            putVal(e.getKey(), e.getValue(), false);
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param key the key that needs to be removed
+     * @return the previous value associated with <tt>key</tt>, or
+     * <tt>null</tt> if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public V remove(Object key) {
+        return replaceNode(key, null, null);
+    }
+
+    /**
+     * Implementation for the four public remove/replace methods:
+     * Replaces node value with v, conditional upon match of cv if
+     * non-null.  If resulting value is null, delete.
+     */
+    final V replaceNode(Object key, V value, Object cv) {
+        int hash = spread(key.hashCode());
+        for (Node<K, V>[] tab = table; ; ) {
+            Node<K, V> f; int n, i, fh;
+            if (tab == null || (n = tab.length) == 0 ||
+                (f = tabAt(tab, i = (n - 1) & hash)) == null)
+                break;
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                V oldVal = null;
+                boolean validated = false;
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        if (fh >= 0) {
+                            validated = true;
+                            for (Node<K, V> e = f, pred = null; ; ) {
+                                K ek;
+                                if (e.hash == hash &&
+                                    ((ek = e.key) == key ||
+                                     (ek != null && key.equals(ek)))) {
+                                    V ev = e.val;
+                                    if (cv == null || cv == ev ||
+                                        (ev != null && cv.equals(ev))) {
+                                        oldVal = ev;
+                                        if (value != null)
+                                            e.val = value;
+                                        else if (pred != null)
+                                            pred.next = e.next;
+                                        else
+                                            setTabAt(tab, i, e.next);
+                                    }
+                                    break;
+                                }
+                                pred = e;
+                                if ((e = e.next) == null)
+                                    break;
+                            }
+                        }
+                        else if (f instanceof TreeBin) {
+                            validated = true;
+                            TreeBin<K, V> t = (TreeBin<K, V>) f;
+                            TreeNode<K, V> r, p;
+                            if ((r = t.root) != null &&
+                                (p = r.findTreeNode(hash, key, null)) != null) {
+                                V pv = p.val;
+                                if (cv == null || cv == pv ||
+                                    (pv != null && cv.equals(pv))) {
+                                    oldVal = pv;
+                                    if (value != null)
+                                        p.val = value;
+                                    else if (t.removeTreeNode(p))
+                                        setTabAt(tab, i, untreeify(t.first));
+                                }
+                            }
+                        }
+                    }
+                }
+                if (validated) {
+                    if (oldVal != null) {
+                        if (value == null)
+                            addCount(-1L, -1);
+                        return oldVal;
+                    }
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    @Override
+    public void clear() {
+        long delta = 0L; // negative number of deletions
+        int i = 0;
+        Node<K, V>[] tab = table;
+        while (tab != null && i < tab.length) {
+            int fh;
+            Node<K, V> f = tabAt(tab, i);
+            if (f == null)
+                ++i;
+            else if ((fh = f.hash) == MOVED) {
+                tab = helpTransfer(tab, f);
+                i = 0; // restart
+            }
+            else {
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        Node<K, V> p = (fh >= 0 ? f :
+                                        (f instanceof TreeBin) ?
+                                        ((TreeBin<K, V>) f).first : null);
+                        while (p != null) {
+                            --delta;
+                            p = p.next;
+                        }
+                        setTabAt(tab, i++, null);
+                    }
+                }
+            }
+        }
+        if (delta != 0L)
+            addCount(delta, -1);
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, which removes the corresponding mapping from this map,
+     * via the <tt>Iterator.remove</tt>, <tt>Set.remove</tt>,
+     * <tt>removeAll</tt>, <tt>retainAll</tt>, and <tt>clear</tt>
+     * operations.  It does not support the <tt>add</tt> or
+     * <tt>addAll</tt> operations.
+     * <p>
+     * <p>The view's <tt>iterator</tt> is a "weakly consistent" iterator
+     * that will never throw {@link ConcurrentModificationException},
+     * and guarantees to traverse elements as they existed upon
+     * construction of the iterator, and may (but is not guaranteed to)
+     * reflect any modifications subsequent to construction.
+     */
+    @Override
+    public KeySetView<K, V> keySet() {
+        KeySetView<K, V> ks;
+        return (ks = keySet) != null ? ks : (keySet = new KeySetView<K, V>(this, null));
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  The collection
+     * supports element removal, which removes the corresponding
+     * mapping from this map, via the <tt>Iterator.remove</tt>,
+     * <tt>Collection.remove</tt>, <tt>removeAll</tt>,
+     * <tt>retainAll</tt>, and <tt>clear</tt> operations.  It does not
+     * support the <tt>add</tt> or <tt>addAll</tt> operations.
+     * <p>
+     * <p>The view's <tt>iterator</tt> is a "weakly consistent" iterator
+     * that will never throw {@link ConcurrentModificationException},
+     * and guarantees to traverse elements as they existed upon
+     * construction of the iterator, and may (but is not guaranteed to)
+     * reflect any modifications subsequent to construction.
+     */
+    @Override
+    public Collection<V> values() {
+        ValuesView<K, V> vs;
+        return (vs = values) != null ? vs : (values = new ValuesView<K, V>(this));
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, which removes the corresponding mapping from the map,
+     * via the <tt>Iterator.remove</tt>, <tt>Set.remove</tt>,
+     * <tt>removeAll</tt>, <tt>retainAll</tt>, and <tt>clear</tt>
+     * operations.  It does not support the <tt>add</tt> or
+     * <tt>addAll</tt> operations.
+     * <p>
+     * <p>The view's <tt>iterator</tt> is a "weakly consistent" iterator
+     * that will never throw {@link ConcurrentModificationException},
+     * and guarantees to traverse elements as they existed upon
+     * construction of the iterator, and may (but is not guaranteed to)
+     * reflect any modifications subsequent to construction.
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        EntrySetView<K, V> es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySetView<K, V>(this));
+    }
+
+    /**
+     * Returns the hash code value for this {@link Map}, i.e.,
+     * the sum of, for each key-value pair in the map,
+     * {@code key.hashCode() ^ value.hashCode()}.
+     *
+     * @return the hash code value for this map
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        Node<K, V>[] t;
+        if ((t = table) != null) {
+            Traverser<K, V> it = new Traverser<K, V>(t, t.length, 0, t.length);
+            for (Node<K, V> p; (p = it.advance()) != null; )
+                h += p.key.hashCode() ^ p.val.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map.  The string
+     * representation consists of a list of key-value mappings (in no
+     * particular order) enclosed in braces ("{@code {}}").  Adjacent
+     * mappings are separated by the characters {@code ", "} (comma
+     * and space).  Each key-value mapping is rendered as the key
+     * followed by an equals sign ("{@code =}") followed by the
+     * associated value.
+     *
+     * @return a string representation of this map
+     */
+    @Override
+    public String toString() {
+        Node<K, V>[] t;
+        int f = (t = table) == null ? 0 : t.length;
+        Traverser<K, V> it = new Traverser<K, V>(t, f, 0, f);
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        Node<K, V> p;
+        if ((p = it.advance()) != null) {
+            for (; ; ) {
+                K k = p.key;
+                V v = p.val;
+                sb.append(k == this ? "(this Map)" : k);
+                sb.append('=');
+                sb.append(v == this ? "(this Map)" : v);
+                if ((p = it.advance()) == null)
+                    break;
+                sb.append(',').append(' ');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Compares the specified object with this map for equality.
+     * Returns {@code true} if the given object is a map with the same
+     * mappings as this map.  This operation may return misleading
+     * results if either map is concurrently modified during execution
+     * of this method.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o != this) {
+            if (!(o instanceof Map))
+                return false;
+            Map<?, ?> m = (Map<?, ?>) o;
+            Node<K, V>[] t;
+            int f = (t = table) == null ? 0 : t.length;
+            Traverser<K, V> it = new Traverser<K, V>(t, f, 0, f);
+            for (Node<K, V> p; (p = it.advance()) != null; ) {
+                V val = p.val;
+                Object v = m.get(p.key);
+                if (v == null || (v != val && !v.equals(val)))
+                    return false;
+            }
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                Object mk, mv, v;
+                if ((mk = e.getKey()) == null ||
+                    (mv = e.getValue()) == null ||
+                    (v = get(mk)) == null ||
+                    (mv != v && !mv.equals(v)))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stripped-down version of helper class used in previous version,
+     * declared for the sake of serialization compatibility
+     */
+    static class Segment<K, V> extends ReentrantLock implements Serializable {
+        private static final long serialVersionUID = 2249069246763182397L;
+        final float loadFactor;
+
+        Segment(float lf) {
+            this.loadFactor = lf;
+        }
+    }
+
+    /**
+     * Saves the state of the <tt>ConcurrentHashMap</tt> instance to a
+     * stream (i.e., serializes it).
+     *
+     * @param s the stream
+     * @serialData the key (Object) and value (Object)
+     * for each key-value mapping, followed by a null pair.
+     * The key-value mappings are emitted in no particular order.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        // For serialization compatibility
+        // Emulate segment calculation from previous version of this class
+        int sshift = 0;
+        int ssize = 1;
+        while (ssize < DEFAULT_CONCURRENCY_LEVEL) {
+            ++sshift;
+            ssize <<= 1;
+        }
+        int segmentShift = 32 - sshift;
+        int segmentMask = ssize - 1;
+        Segment<K, V>[] segments = (Segment<K, V>[])
+            new Segment<?, ?>[DEFAULT_CONCURRENCY_LEVEL];
+        for (int i = 0; i < segments.length; ++i)
+            segments[i] = new Segment<K, V>(LOAD_FACTOR);
+        ObjectOutputStream.PutField streamFields = s.putFields();
+        streamFields.put("segments", segments);
+        streamFields.put("segmentShift", segmentShift);
+        streamFields.put("segmentMask", segmentMask);
+        s.writeFields();
+
+        Node<K, V>[] t;
+        if ((t = table) != null) {
+            Traverser<K, V> it = new Traverser<K, V>(t, t.length, 0, t.length);
+            for (Node<K, V> p; (p = it.advance()) != null; ) {
+                s.writeObject(p.key);
+                s.writeObject(p.val);
+            }
+        }
+        s.writeObject(null);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes the <tt>ConcurrentHashMap</tt> instance from a
+     * stream (i.e., deserializes it).
+     *
+     * @param s the stream
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        /*
+         * To improve performance in typical cases, we create nodes
+         * while reading, then place in table once size is known.
+         * However, we must also validate uniqueness and deal with
+         * overpopulated bins while doing so, which requires
+         * specialized versions of putVal mechanics.
+         */
+        sizeCtl = -1; // force exclusion for table construction
+        s.defaultReadObject();
+        long size = 0L;
+        Node<K, V> p = null;
+        for (; ; ) {
+            K k = (K) s.readObject();
+            V v = (V) s.readObject();
+            if (k != null && v != null) {
+                p = new Node<K, V>(spread(k.hashCode()), k, v, p);
+                ++size;
+            }
+            else
+                break;
+        }
+        if (size == 0L)
+            sizeCtl = 0;
+        else {
+            int n;
+            if (size >= (long) (MAXIMUM_CAPACITY >>> 1))
+                n = MAXIMUM_CAPACITY;
+            else {
+                int sz = (int) size;
+                n = tableSizeFor(sz + (sz >>> 1) + 1);
+            }
+            Node<K, V>[] tab = (Node<K, V>[]) new Node<?, ?>[n];
+            int mask = n - 1;
+            long added = 0L;
+            while (p != null) {
+                boolean insertAtFront;
+                Node<K, V> next = p.next, first;
+                int h = p.hash, j = h & mask;
+                if ((first = tabAt(tab, j)) == null)
+                    insertAtFront = true;
+                else {
+                    K k = p.key;
+                    if (first.hash < 0) {
+                        TreeBin<K, V> t = (TreeBin<K, V>) first;
+                        if (t.putTreeVal(h, k, p.val) == null)
+                            ++added;
+                        insertAtFront = false;
+                    }
+                    else {
+                        int binCount = 0;
+                        insertAtFront = true;
+                        Node<K, V> q; K qk;
+                        for (q = first; q != null; q = q.next) {
+                            if (q.hash == h &&
+                                ((qk = q.key) == k ||
+                                 (qk != null && k.equals(qk)))) {
+                                insertAtFront = false;
+                                break;
+                            }
+                            ++binCount;
+                        }
+                        if (insertAtFront && binCount >= TREEIFY_THRESHOLD) {
+                            insertAtFront = false;
+                            ++added;
+                            p.next = first;
+                            TreeNode<K, V> hd = null, tl = null;
+                            for (q = p; q != null; q = q.next) {
+                                TreeNode<K, V> t = new TreeNode<K, V>
+                                    (q.hash, q.key, q.val, null, null);
+                                if ((t.prev = tl) == null)
+                                    hd = t;
+                                else
+                                    tl.next = t;
+                                tl = t;
+                            }
+                            setTabAt(tab, j, new TreeBin<K, V>(hd));
+                        }
+                    }
+                }
+                if (insertAtFront) {
+                    ++added;
+                    p.next = first;
+                    setTabAt(tab, j, p);
+                }
+                p = next;
+            }
+            table = tab;
+            sizeCtl = n - (n >>> 2);
+            baseCount = added;
+        }
+    }
+
+    // ConcurrentMap methods
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     * or <tt>null</tt> if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && replaceNode(key, null, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        return replaceNode(key, newValue, oldValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     * or <tt>null</tt> if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    @Override
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return replaceNode(key, value, null);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map unless {@code null}.  The entire
+     * method invocation is performed atomically, so the function is
+     * applied at most once per key.  Some attempted update operations
+     * on this map by other threads may be blocked while computation
+     * is in progress, so the computation should be short and simple,
+     * and must not attempt to update any other mappings of this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     * the specified key, or null if the computed value is null
+     * @throws NullPointerException if the specified key or mappingFunction
+     * is null
+     * @throws IllegalStateException if the computation detectably
+     * attempts a recursive update to this map that would
+     * otherwise never complete
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     * in which case the mapping is left unestablished
+     * @since 1.8
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        V val = null;
+        int binCount = 0;
+        for (Node<K, V>[] tab = table; ; ) {
+            Node<K, V> f; int n, i, fh; K fk; V fv;
+            if (tab == null || (n = tab.length) == 0)
+                tab = initTable();
+            else if ((f = tabAt(tab, i = (n - 1) & h)) == null) {
+                // 空桶: 放入已加锁的占位节点, 计算完成后替换
+                Node<K, V> r = new ReservationNode<K, V>();
+                synchronized (r) {
+                    if (casTabAt(tab, i, null, r)) {
+                        binCount = 1;
+                        Node<K, V> node = null;
+                        try {
+                            if ((val = mappingFunction.apply(key)) != null)
+                                node = new Node<K, V>(h, key, val, null);
+                        } finally {
+                            setTabAt(tab, i, node);
+                        }
+                    }
+                }
+                if (binCount != 0)
+                    break;
+            }
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else if (fh == h &&                  // check first node
+                     ((fk = f.key) == key || (fk != null && key.equals(fk))) &&
+                     (fv = f.val) != null)
+                return fv;
+            else {
+                boolean added = false;
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        if (fh >= 0) {
+                            binCount = 1;
+                            for (Node<K, V> e = f; ; ++binCount) {
+                                K ek;
+                                if (e.hash == h &&
+                                    ((ek = e.key) == key ||
+                                     (ek != null && key.equals(ek)))) {
+                                    val = e.val;
+                                    break;
+                                }
+                                Node<K, V> pred = e;
+                                if ((e = e.next) == null) {
+                                    if ((val = mappingFunction.apply(key)) != null) {
+                                        if (pred.next != null)
+                                            throw new IllegalStateException("Recursive update");
+                                        added = true;
+                                        pred.next = new Node<K, V>(h, key, val, null);
+                                    }
+                                    break;
+                                }
+                            }
+                        }
+                        else if (f instanceof TreeBin) {
+                            binCount = 2;
+                            TreeBin<K, V> t = (TreeBin<K, V>) f;
+                            TreeNode<K, V> r, p;
+                            if ((r = t.root) != null &&
+                                (p = r.findTreeNode(h, key, null)) != null)
+                                val = p.val;
+                            else if ((val = mappingFunction.apply(key)) != null) {
+                                added = true;
+                                t.putTreeVal(h, key, val);
+                            }
+                        }
+                        else if (f instanceof ReservationNode)
+                            throw new IllegalStateException("Recursive update");
+                    }
+                }
+                if (binCount != 0) {
+                    if (binCount >= TREEIFY_THRESHOLD)
+                        treeifyBin(tab, i);
+                    if (!added)
+                        return val;
+                    break;
+                }
+            }
+        }
+        if (val != null)
+            addCount(1L, binCount);
+        return val;
+    }
+
+    /**
+     * If the value for the specified key is present, attempts to
+     * compute a new mapping given the key and its current mapped
+     * value.  The entire method invocation is performed atomically.
+     * Some attempted update operations on this map by other threads
+     * may be blocked while computation is in progress, so the
+     * computation should be short and simple, and must not attempt to
+     * update any other mappings of this map.
+     *
+     * @param key key with which a value may be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or null if none
+     * @throws NullPointerException if the specified key or remappingFunction
+     * is null
+     * @throws IllegalStateException if the computation detectably
+     * attempts a recursive update to this map that would
+     * otherwise never complete
+     * @throws RuntimeException or Error if the remappingFunction does so,
+     * in which case the mapping is unchanged
+     * @since 1.8
+     */
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (key == null || remappingFunction == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        V val = null;
+        int delta = 0;
+        int binCount = 0;
+        for (Node<K, V>[] tab = table; ; ) {
+            Node<K, V> f; int n, i, fh;
+            if (tab == null || (n = tab.length) == 0)
+                tab = initTable();
+            else if ((f = tabAt(tab, i = (n - 1) & h)) == null)
+                break;
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        if (fh >= 0) {
+                            binCount = 1;
+                            for (Node<K, V> e = f, pred = null; ; ++binCount) {
+                                K ek;
+                                if (e.hash == h &&
+                                    ((ek = e.key) == key ||
+                                     (ek != null && key.equals(ek)))) {
+                                    val = remappingFunction.apply(key, e.val);
+                                    if (val != null)
+                                        e.val = val;
+                                    else {
+                                        delta = -1;
+                                        Node<K, V> en = e.next;
+                                        if (pred != null)
+                                            pred.next = en;
+                                        else
+                                            setTabAt(tab, i, en);
+                                    }
+                                    break;
+                                }
+                                pred = e;
+                                if ((e = e.next) == null)
+                                    break;
+                            }
+                        }
+                        else if (f instanceof TreeBin) {
+                            binCount = 2;
+                            TreeBin<K, V> t = (TreeBin<K, V>) f;
+                            TreeNode<K, V> r, p;
+                            if ((r = t.root) != null &&
+                                (p = r.findTreeNode(h, key, null)) != null) {
+                                val = remappingFunction.apply(key, p.val);
+                                if (val != null)
+                                    p.val = val;
+                                else {
+                                    delta = -1;
+                                    if (t.removeTreeNode(p))
+                                        setTabAt(tab, i, untreeify(t.first));
+                                }
+                            }
+                        }
+                        else if (f instanceof ReservationNode)
+                            throw new IllegalStateException("Recursive update");
+                    }
+                }
+                if (binCount != 0)
+                    break;
+            }
+        }
+        if (delta != 0)
+            addCount((long) delta, binCount);
+        return val;
+    }
+
+    /**
+     * Attempts to compute a mapping for the specified key and its
+     * current mapped value (or {@code null} if there is no current
+     * mapping).  The entire method invocation is performed atomically.
+     * Some attempted update operations on this map by other threads
+     * may be blocked while computation is in progress, so the
+     * computation should be short and simple, and must not attempt to
+     * update any other mappings of this Map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or null if none
+     * @throws NullPointerException if the specified key or remappingFunction
+     * is null
+     * @throws IllegalStateException if the computation detectably
+     * attempts a recursive update to this map that would
+     * otherwise never complete
+     * @throws RuntimeException or Error if the remappingFunction does so,
+     * in which case the mapping is unchanged
+     * @since 1.8
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (key == null || remappingFunction == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        V val = null;
+        int delta = 0;
+        int binCount = 0;
+        for (Node<K, V>[] tab = table; ; ) {
+            Node<K, V> f; int n, i, fh;
+            if (tab == null || (n = tab.length) == 0)
+                tab = initTable();
+            else if ((f = tabAt(tab, i = (n - 1) & h)) == null) {
+                Node<K, V> r = new ReservationNode<K, V>();
+                synchronized (r) {
+                    if (casTabAt(tab, i, null, r)) {
+                        binCount = 1;
+                        Node<K, V> node = null;
+                        try {
+                            if ((val = remappingFunction.apply(key, null)) != null) {
+                                delta = 1;
+                                node = new Node<K, V>(h, key, val, null);
+                            }
+                        } finally {
+                            setTabAt(tab, i, node);
+                        }
+                    }
+                }
+                if (binCount != 0)
+                    break;
+            }
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        if (fh >= 0) {
+                            binCount = 1;
+                            for (Node<K, V> e = f, pred = null; ; ++binCount) {
+                                K ek;
+                                if (e.hash == h &&
+                                    ((ek = e.key) == key ||
+                                     (ek != null && key.equals(ek)))) {
+                                    val = remappingFunction.apply(key, e.val);
+                                    if (val != null)
+                                        e.val = val;
+                                    else {
+                                        delta = -1;
+                                        Node<K, V> en = e.next;
+                                        if (pred != null)
+                                            pred.next = en;
+                                        else
+                                            setTabAt(tab, i, en);
+                                    }
+                                    break;
+                                }
+                                pred = e;
+                                if ((e = e.next) == null) {
+                                    val = remappingFunction.apply(key, null);
+                                    if (val != null) {
+                                        if (pred.next != null)
+                                            throw new IllegalStateException("Recursive update");
+                                        delta = 1;
+                                        pred.next = new Node<K, V>(h, key, val, null);
+                                    }
+                                    break;
+                                }
+                            }
+                        }
+                        else if (f instanceof TreeBin) {
+                            binCount = 1;
+                            TreeBin<K, V> t = (TreeBin<K, V>) f;
+                            TreeNode<K, V> r, p;
+                            if ((r = t.root) != null)
+                                p = r.findTreeNode(h, key, null);
+                            else
+                                p = null;
+                            V pv = (p == null) ? null : p.val;
+                            val = remappingFunction.apply(key, pv);
+                            if (val != null) {
+                                if (p != null)
+                                    p.val = val;
+                                else {
+                                    delta = 1;
+                                    t.putTreeVal(h, key, val);
+                                }
+                            }
+                            else if (p != null) {
+                                delta = -1;
+                                if (t.removeTreeNode(p))
+                                    setTabAt(tab, i, untreeify(t.first));
+                            }
+                        }
+                        else if (f instanceof ReservationNode)
+                            throw new IllegalStateException("Recursive update");
+                    }
+                }
+                if (binCount != 0) {
+                    if (binCount >= TREEIFY_THRESHOLD)
+                        treeifyBin(tab, i);
+                    break;
+                }
+            }
+        }
+        if (delta != 0)
+            addCount((long) delta, binCount);
+        return val;
+    }
+
+    /**
+     * If the specified key is not already associated with a
+     * (non-null) value, associates it with the given value.
+     * Otherwise, replaces the value with the results of the given
+     * remapping function, or removes if {@code null}.  The entire
+     * method invocation is performed atomically.  Some attempted
+     * update operations on this map by other threads may be blocked
+     * while computation is in progress, so the computation should be
+     * short and simple, and must not attempt to update any other
+     * mappings of this Map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value the value to use if absent
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key, or null if none
+     * @throws NullPointerException if the specified key or the
+     * remappingFunction is null
+     * @throws RuntimeException or Error if the remappingFunction does so,
+     * in which case the mapping is unchanged
+     * @since 1.8
+     */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (key == null || value == null || remappingFunction == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        V val = null;
+        int delta = 0;
+        int binCount = 0;
+        for (Node<K, V>[] tab = table; ; ) {
+            Node<K, V> f; int n, i, fh;
+            if (tab == null || (n = tab.length) == 0)
+                tab = initTable();
+            else if ((f = tabAt(tab, i = (n - 1) & h)) == null) {
+                if (casTabAt(tab, i, null, new Node<K, V>(h, key, value, null))) {
+                    delta = 1;
+                    val = value;
+                    break;
+                }
+            }
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        if (fh >= 0) {
+                            binCount = 1;
+                            for (Node<K, V> e = f, pred = null; ; ++binCount) {
+                                K ek;
+                                if (e.hash == h &&
+                                    ((ek = e.key) == key ||
+                                     (ek != null && key.equals(ek)))) {
+                                    val = remappingFunction.apply(e.val, value);
+                                    if (val != null)
+                                        e.val = val;
+                                    else {
+                                        delta = -1;
+                                        Node<K, V> en = e.next;
+                                        if (pred != null)
+                                            pred.next = en;
+                                        else
+                                            setTabAt(tab, i, en);
+                                    }
+                                    break;
+                                }
+                                pred = e;
+                                if ((e = e.next) == null) {
+                                    delta = 1;
+                                    val = value;
+                                    pred.next = new Node<K, V>(h, key, val, null);
+                                    break;
+                                }
+                            }
+                        }
+                        else if (f instanceof TreeBin) {
+                            binCount = 2;
+                            TreeBin<K, V> t = (TreeBin<K, V>) f;
+                            TreeNode<K, V> r = t.root;
+                            TreeNode<K, V> p = (r == null) ? null :
+                                r.findTreeNode(h, key, null);
+                            val = (p == null) ? value :
+                                remappingFunction.apply(p.val, value);
+                            if (val != null) {
+                                if (p != null)
+                                    p.val = val;
+                                else {
+                                    delta = 1;
+                                    t.putTreeVal(h, key, val);
+                                }
+                            }
+                            else if (p != null) {
+                                delta = -1;
+                                if (t.removeTreeNode(p))
+                                    setTabAt(tab, i, untreeify(t.first));
+                            }
+                        }
+                        else if (f instanceof ReservationNode)
+                            throw new IllegalStateException("Recursive update");
+                    }
+                }
+                if (binCount != 0) {
+                    if (binCount >= TREEIFY_THRESHOLD)
+                        treeifyBin(tab, i);
+                    break;
+                }
+            }
+        }
+        if (delta != 0)
+            addCount((long) delta, binCount);
+        return val;
+    }
+
+    // Hashtable legacy methods
+
+    /**
+     * Legacy method testing if some key maps into the specified value
+     * in this table.  This method is identical in functionality to
+     * {@link #containsValue}, and exists solely to ensure
+     * full compatibility with class {@link java.util.Hashtable},
+     * which supported this method prior to introduction of the
+     * Java Collections framework.
+     *
+     * @param value a value to search for
+     * @return <tt>true</tt> if and only if some key maps to the
+     * <tt>value</tt> argument in this table as
+     * determined by the <tt>equals</tt> method;
+     * <tt>false</tt> otherwise
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean contains(Object value) {
+        return containsValue(value);
+    }
+
+    /**
+     * Returns an enumeration of the keys in this table.
+     *
+     * @return an enumeration of the keys in this table
+     * @see #keySet()
+     */
+    public Enumeration<K> keys() {
+        Node<K, V>[] t;
+        int f = (t = table) == null ? 0 : t.length;
+        return new KeyIterator<K, V>(t, f, 0, f, this);
+    }
+
+    /**
+     * Returns an enumeration of the values in this table.
+     *
+     * @return an enumeration of the values in this table
+     * @see #values()
+     */
+    public Enumeration<V> elements() {
+        Node<K, V>[] t;
+        int f = (t = table) == null ? 0 : t.length;
+        return new ValueIterator<K, V>(t, f, 0, f, this);
+    }
+
+    // ConcurrentHashMap-only methods
+
+    /**
+     * Returns the number of mappings. This method should be used
+     * instead of {@link #size} because a ConcurrentHashMap may
+     * contain more mappings than can be represented as an int. The
+     * value returned is an estimate; the actual count may differ if
+     * there are concurrent insertions or removals.
+     *
+     * @return the number of mappings
+     * @since 1.8
+     */
+    public long mappingCount() {
+        long n = sumCount();
+        return (n < 0L) ? 0L : n; // ignore transient negative values
+    }
+
+    /**
+     * Creates a new {@link Set} backed by a ConcurrentHashMap
+     * from the given type to {@code Boolean.TRUE}.
+     *
+     * @param <K> the element type of the returned set
+     * @return the new set
+     * @since 1.8
+     */
+    public static <K> KeySetView<K, Boolean> newKeySet() {
+        return new KeySetView<K, Boolean>
+            (new ConcurrentHashMap<K, Boolean>(), Boolean.TRUE);
+    }
+
+    /**
+     * Creates a new {@link Set} backed by a ConcurrentHashMap
+     * from the given type to {@code Boolean.TRUE}.
+     *
+     * @param initialCapacity The implementation performs internal
+     *                        sizing to accommodate this many elements.
+     * @param <K>             the element type of the returned set
+     * @return the new set
+     * @throws IllegalArgumentException if the initial capacity of
+     *                                  elements is negative
+     * @since 1.8
+     */
+    public static <K> KeySetView<K, Boolean> newKeySet(int initialCapacity) {
+        return new KeySetView<K, Boolean>
+            (new ConcurrentHashMap<K, Boolean>(initialCapacity), Boolean.TRUE);
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys in this map, using the
+     * given common mapped value for any additions (i.e., {@link
+     * Collection#add} and {@link Collection#addAll(Collection)}).
+     * This is of course only appropriate if it is acceptable to use
+     * the same value for all additions from this view.
+     *
+     * @param mappedValue the mapped value to use for any additions
+     * @return the set view
+     * @throws NullPointerException if the mappedValue is null
+     * @since 1.8
+     */
+    public KeySetView<K, V> keySet(V mappedValue) {
+        if (mappedValue == null)
+            throw new NullPointerException();
+        return new KeySetView<K, V>(this, mappedValue);
+    }
+
+    /* ---------------- Special Nodes -------------- */
+
+    /**
+     * A node inserted at head of bins during transfer operations.
+     */
+    static final class ForwardingNode<K, V> extends Node<K, V> {
+        final Node<K, V>[] nextTable;
+
+        ForwardingNode(Node<K, V>[] tab) {
+            super(MOVED, null, null, null);
+            this.nextTable = tab;
+        }
+
+        Node<K, V> find(int h, Object k) {
+            // loop to avoid arbitrarily deep recursion on forwarding nodes
+            outer:
+            for (Node<K, V>[] tab = nextTable; ; ) {
+                Node<K, V> e; int n;
+                if (k == null || tab == null || (n = tab.length) == 0 ||
+                    (e = tabAt(tab, (n - 1) & h)) == null)
+                    return null;
+                for (; ; ) {
+                    int eh; K ek;
+                    if ((eh = e.hash) == h &&
+                        ((ek = e.key) == k || (ek != null && k.equals(ek))))
+                        return e;
+                    if (eh < 0) {
+                        if (e instanceof ForwardingNode) {
+                            tab = ((ForwardingNode<K, V>) e).nextTable;
+                            continue outer;
+                        }
+                        else
+                            return e.find(h, k);
+                    }
+                    if ((e = e.next) == null)
+                        return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * A place-holder node used in computeIfAbsent and compute.
+     */
+    static final class ReservationNode<K, V> extends Node<K, V> {
+        ReservationNode() {
+            super(RESERVED, null, null, null);
+        }
+
+        Node<K, V> find(int h, Object k) {
+            return null;
+        }
+    }
+
+    /* ---------------- Table Initialization and Resizing -------------- */
+
+    /**
+     * Returns the stamp bits for resizing a table of size n.
+     * Must be negative when shifted left by RESIZE_STAMP_SHIFT.
+     */
+    static final int resizeStamp(int n) {
+        return Integer.numberOfLeadingZeros(n) | (1 << (RESIZE_STAMP_BITS - 1));
+    }
+
+    /**
+     * Initializes table, using the size recorded in sizeCtl.
+     */
+    private final Node<K, V>[] initTable() {
+        Node<K, V>[] tab; int sc;
+        while ((tab = table) == null || tab.length == 0) {
+            if ((sc = sizeCtl) < 0)
+                Thread.yield(); // lost initialization race; just spin
+            else if (U.compareAndSwapInt(this, SIZECTL, sc, -1)) {
+                try {
+                    if ((tab = table) == null || tab.length == 0) {
+                        int n = (sc > 0) ? sc : DEFAULT_CAPACITY;
+                        Node<K, V>[] nt = (Node<K, V>[]) new Node<?, ?>[n];
+                        table = tab = nt;
+                        sc = n - (n >>> 2);
+                    }
+                } finally {
+                    sizeCtl = sc;
+                }
+                break;
+            }
+        }
+        return tab;
+    }
+
+    /**
+     * Adds to count, and if table is too small and not already
+     * resizing, initiates transfer. If already resizing, helps
+     * perform transfer if work is available.  Rechecks occupancy
+     * after a transfer to see if another resize is already needed
+     * because resizings are lagging additions.
+     *
+     * @param x     the count to add
+     * @param check if <0, don't check resize, if <= 1 only check if uncontended
+     */
+    private final void addCount(long x, int check) {
+        CounterCell[] as; long b, s;
+        if ((as = counterCells) != null ||
+            !U.compareAndSwapLong(this, BASECOUNT, b = baseCount, s = b + x)) {
+            CounterHashCode hc; CounterCell a; long v; int m;
+            boolean uncontended = true;
+            if ((hc = threadCounterHashCode.get()) == null ||
+                as == null || (m = as.length - 1) < 0 ||
+                (a = as[m & hc.code]) == null ||
+                !(uncontended =
+                  U.compareAndSwapLong(a, CELLVALUE, v = a.value, v + x))) {
+                fullAddCount(x, hc, uncontended);
+                return;
+            }
+            if (check <= 1)
+                return;
+            s = sumCount();
+        }
+        if (check >= 0) {
+            Node<K, V>[] tab, nt; int n, sc;
+            while (s >= (long) (sc = sizeCtl) && (tab = table) != null &&
+                   (n = tab.length) < MAXIMUM_CAPACITY) {
+                int rs = resizeStamp(n) << RESIZE_STAMP_SHIFT;
+                if (sc < 0) {
+                    if (sc == rs + MAX_RESIZERS || sc == rs + 1 ||
+                        (nt = nextTable) == null || transferIndex <= 0)
+                        break;
+                    if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1))
+                        transfer(tab, nt);
+                }
+                else if (U.compareAndSwapInt(this, SIZECTL, sc, rs + 2))
+                    transfer(tab, null);
+                s = sumCount();
+            }
+        }
+    }
+
+    /**
+     * Helps transfer if a resize is in progress.
+     */
+    final Node<K, V>[] helpTransfer(Node<K, V>[] tab, Node<K, V> f) {
+        Node<K, V>[] nextTab; int sc;
+        if (tab != null && (f instanceof ForwardingNode) &&
+            (nextTab = ((ForwardingNode<K, V>) f).nextTable) != null) {
+            int rs = resizeStamp(tab.length) << RESIZE_STAMP_SHIFT;
+            while (nextTab == nextTable && table == tab &&
+                   (sc = sizeCtl) < 0) {
+                if (sc == rs + MAX_RESIZERS || sc == rs + 1 ||
+                    transferIndex <= 0)
+                    break;
+                if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1)) {
+                    transfer(tab, nextTab);
+                    break;
+                }
+            }
+            return nextTab;
+        }
+        return table;
+    }
+
+    /**
+     * Tries to presize table to accommodate the given number of elements.
+     *
+     * @param size number of elements (doesn't need to be perfectly accurate)
+     */
+    private final void tryPresize(int size) {
+        int c = (size >= (MAXIMUM_CAPACITY >>> 1)) ? MAXIMUM_CAPACITY :
+            tableSizeFor(size + (size >>> 1) + 1);
+        int sc;
+        while ((sc = sizeCtl) >= 0) {
+            Node<K, V>[] tab = table; int n;
+            if (tab == null || (n = tab.length) == 0) {
+                n = (sc > c) ? sc : c;
+                if (U.compareAndSwapInt(this, SIZECTL, sc, -1)) {
+                    try {
+                        if (table == tab) {
+                            Node<K, V>[] nt = (Node<K, V>[]) new Node<?, ?>[n];
+                            table = nt;
+                            sc = n - (n >>> 2);
+                        }
+                    } finally {
+                        sizeCtl = sc;
+                    }
+                }
+            }
+            else if (c <= sc || n >= MAXIMUM_CAPACITY)
+                break;
+            else if (tab == table) {
+                int rs = resizeStamp(n);
+                if (U.compareAndSwapInt(this, SIZECTL, sc,
+                                        (rs << RESIZE_STAMP_SHIFT) + 2))
+                    transfer(tab, null);
+            }
+        }
+    }
+
+    /**
+     * Moves and/or copies the nodes in each bin to new table. See
+     * above for explanation.
+     */
+    private final void transfer(Node<K, V>[] tab, Node<K, V>[] nextTab) {
+        int n = tab.length, stride;
+        if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)
+            stride = MIN_TRANSFER_STRIDE; // subdivide range
+        if (nextTab == null) {            // initiating
+            try {
+                Node<K, V>[] nt = (Node<K, V>[]) new Node<?, ?>[n << 1];
+                nextTab = nt;
+            } catch (Throwable ex) {      // try to cope with OOME
+                sizeCtl = Integer.MAX_VALUE;
+                return;
+            }
+            nextTable = nextTab;
+            transferIndex = n;
+        }
+        int nextn = nextTab.length;
+        ForwardingNode<K, V> fwd = new ForwardingNode<K, V>(nextTab);
+        boolean advance = true;
+        boolean finishing = false; // to ensure sweep before committing nextTab
+        for (int i = 0, bound = 0; ; ) {
+            Node<K, V> f; int fh;
+            while (advance) {
+                int nextIndex, nextBound;
+                if (--i >= bound || finishing)
+                    advance = false;
+                else if ((nextIndex = transferIndex) <= 0) {
+                    i = -1;
+                    advance = false;
+                }
+                else if (U.compareAndSwapInt
+                         (this, TRANSFERINDEX, nextIndex,
+                          nextBound = (nextIndex > stride ?
+                                       nextIndex - stride : 0))) {
+                    bound = nextBound;
+                    i = nextIndex - 1;
+                    advance = false;
+                }
+            }
+            if (i < 0 || i >= n || i + n >= nextn) {
+                int sc;
+                if (finishing) {
+                    nextTable = null;
+                    table = nextTab;
+                    sizeCtl = (n << 1) - (n >>> 1);
+                    return;
+                }
+                if (U.compareAndSwapInt(this, SIZECTL, sc = sizeCtl, sc - 1)) {
+                    if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT)
+                        return;
+                    finishing = advance = true;
+                    i = n; // recheck before commit
+                }
+            }
+            else if ((f = tabAt(tab, i)) == null)
+                advance = casTabAt(tab, i, null, fwd);
+            else if ((fh = f.hash) == MOVED)
+                advance = true; // already processed
+            else {
+                synchronized (f) {
+                    if (tabAt(tab, i) == f) {
+                        Node<K, V> ln, hn;
+                        if (fh >= 0) {
+                            int runBit = fh & n;
+                            Node<K, V> lastRun = f;
+                            for (Node<K, V> p = f.next; p != null; p = p.next) {
+                                int b = p.hash & n;
+                                if (b != runBit) {
+                                    runBit = b;
+                                    lastRun = p;
+                                }
+                            }
+                            if (runBit == 0) {
+                                ln = lastRun;
+                                hn = null;
+                            }
+                            else {
+                                hn = lastRun;
+                                ln = null;
+                            }
+                            for (Node<K, V> p = f; p != lastRun; p = p.next) {
+                                int ph = p.hash; K pk = p.key; V pv = p.val;
+                                if ((ph & n) == 0)
+                                    ln = new Node<K, V>(ph, pk, pv, ln);
+                                else
+                                    hn = new Node<K, V>(ph, pk, pv, hn);
+                            }
+                            setTabAt(nextTab, i, ln);
+                            setTabAt(nextTab, i + n, hn);
+                            setTabAt(tab, i, fwd);
+                            advance = true;
+                        }
+                        else if (f instanceof TreeBin) {
+                            TreeBin<K, V> t = (TreeBin<K, V>) f;
+                            TreeNode<K, V> lo = null, loTail = null;
+                            TreeNode<K, V> hi = null, hiTail = null;
+                            int lc = 0, hc = 0;
+                            for (Node<K, V> e = t.first; e != null; e = e.next) {
+                                int h = e.hash;
+                                TreeNode<K, V> p = new TreeNode<K, V>
+                                    (h, e.key, e.val, null, null);
+                                if ((h & n) == 0) {
+                                    if ((p.prev = loTail) == null)
+                                        lo = p;
+                                    else
+                                        loTail.next = p;
+                                    loTail = p;
+                                    ++lc;
+                                }
+                                else {
+                                    if ((p.prev = hiTail) == null)
+                                        hi = p;
+                                    else
+                                        hiTail.next = p;
+                                    hiTail = p;
+                                    ++hc;
+                                }
+                            }
+                            ln = (lc <= UNTREEIFY_THRESHOLD) ? untreeify(lo) :
+                                (hc != 0) ? new TreeBin<K, V>(lo) : t;
+                            hn = (hc <= UNTREEIFY_THRESHOLD) ? untreeify(hi) :
+                                (lc != 0) ? new TreeBin<K, V>(hi) : t;
+                            setTabAt(nextTab, i, ln);
+                            setTabAt(nextTab, i + n, hn);
+                            setTabAt(tab, i, fwd);
+                            advance = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* ---------------- Counter support -------------- */
+
+    /**
+     * A padded cell for distributing counts.  The padding fields keep
+     * each cell's value on its own cache line so that threads updating
+     * different cells do not contend.
+     */
+    static final class CounterCell {
+        volatile long p0, p1, p2, p3, p4, p5, p6;
+        volatile long value;
+        volatile long q0, q1, q2, q3, q4, q5, q6;
+
+        CounterCell(long x) {
+            value = x;
+        }
+    }
+
+    /**
+     * Holder for the thread-local hash code determining which
+     * CounterCell to use. The code is initialized via the
+     * counterHashCodeGenerator, but may be moved upon collisions.
+     */
+    static final class CounterHashCode {
+        int code;
+    }
+
+    /**
+     * Generates initial value for per-thread CounterHashCodes.
+     */
+    static final AtomicInteger counterHashCodeGenerator = new AtomicInteger();
+
+    /**
+     * Increment for counterHashCodeGenerator. See class ThreadLocal
+     * for explanation.
+     */
+    static final int SEED_INCREMENT = 0x61c88647;
+
+    /**
+     * Per-thread counter hash codes. Shared across all instances.
+     */
+    static final ThreadLocal<CounterHashCode> threadCounterHashCode =
+        new ThreadLocal<CounterHashCode>();
+
+    final long sumCount() {
+        CounterCell[] as = counterCells; CounterCell a;
+        long sum = baseCount;
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    sum += a.value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Handles the contended cases of addCount: creating the per-thread
+     * hash code, initializing or growing the cell table, and rehashing
+     * to another cell after a failed CAS.
+     */
+    private final void fullAddCount(long x, CounterHashCode hc,
+                                    boolean wasUncontended) {
+        int h;
+        if (hc == null) {
+            hc = new CounterHashCode();
+            int s = counterHashCodeGenerator.addAndGet(SEED_INCREMENT);
+            h = hc.code = (s == 0) ? 1 : s; // Avoid zero
+            threadCounterHashCode.set(hc);
+        }
+        else
+            h = hc.code;
+        boolean collide = false;                // True if last slot nonempty
+        for (; ; ) {
+            CounterCell[] as; CounterCell a; int n; long v;
+            if ((as = counterCells) != null && (n = as.length) > 0) {
+                if ((a = as[(n - 1) & h]) == null) {
+                    if (cellsBusy == 0) {            // Try to attach new Cell
+                        CounterCell r = new CounterCell(x); // Optimistic create
+                        if (cellsBusy == 0 &&
+                            U.compareAndSwapInt(this, CELLSBUSY, 0, 1)) {
+                            boolean created = false;
+                            try {               // Recheck under lock
+                                CounterCell[] rs; int m, j;
+                                if ((rs = counterCells) != null &&
+                                    (m = rs.length) > 0 &&
+                                    rs[j = (m - 1) & h] == null) {
+                                    rs[j] = r;
+                                    created = true;
+                                }
+                            } finally {
+                                cellsBusy = 0;
+                            }
+                            if (created)
+                                break;
+                            continue;           // Slot is now non-empty
+                        }
+                    }
+                    collide = false;
+                }
+                else if (!wasUncontended)       // CAS already known to fail
+                    wasUncontended = true;      // Continue after rehash
+                else if (U.compareAndSwapLong(a, CELLVALUE, v = a.value, v + x))
+                    break;
+                else if (counterCells != as || n >= NCPU)
+                    collide = false;            // At max size or stale
+                else if (!collide)
+                    collide = true;
+                else if (cellsBusy == 0 &&
+                         U.compareAndSwapInt(this, CELLSBUSY, 0, 1)) {
+                    try {
+                        if (counterCells == as) {// Expand table unless stale
+                            CounterCell[] rs = new CounterCell[n << 1];
+                            for (int i = 0; i < n; ++i)
+                                rs[i] = as[i];
+                            counterCells = rs;
+                        }
+                    } finally {
+                        cellsBusy = 0;
+                    }
+                    collide = false;
+                    continue;                   // Retry with expanded table
+                }
+                h ^= h << 13;                   // Rehash
+                h ^= h >>> 17;
+                h ^= h << 5;
+            }
+            else if (cellsBusy == 0 && counterCells == as &&
+                     U.compareAndSwapInt(this, CELLSBUSY, 0, 1)) {
+                boolean init = false;
+                try {                           // Initialize table
+                    if (counterCells == as) {
+                        CounterCell[] rs = new CounterCell[2];
+                        rs[h & 1] = new CounterCell(x);
+                        counterCells = rs;
+                        init = true;
+                    }
+                } finally {
+                    cellsBusy = 0;
+                }
+                if (init)
+                    break;
+            }
+            else if (U.compareAndSwapLong(this, BASECOUNT, v = baseCount, v + x))
+                break;                          // Fall back on using base
+        }
+        hc.code = h;                            // Record index for next time
+    }
+
+    /* ---------------- Conversion from/to TreeBins -------------- */
+
+    /**
+     * Replaces all linked nodes in bin at given index unless table is
+     * too small, in which case resizes instead.
+     */
+    private final void treeifyBin(Node<K, V>[] tab, int index) {
+        Node<K, V> b; int n;
+        if (tab != null) {
+            if ((n = tab.length) < MIN_TREEIFY_CAPACITY)
+                tryPresize(n << 1);
+            else if ((b = tabAt(tab, index)) != null && b.hash >= 0) {
+                synchronized (b) {
+                    if (tabAt(tab, index) == b) {
+                        TreeNode<K, V> hd = null, tl = null;
+                        for (Node<K, V> e = b; e != null; e = e.next) {
+                            TreeNode<K, V> p =
+                                new TreeNode<K, V>(e.hash, e.key, e.val,
+                                                   null, null);
+                            if ((p.prev = tl) == null)
+                                hd = p;
+                            else
+                                tl.next = p;
+                            tl = p;
+                        }
+                        setTabAt(tab, index, new TreeBin<K, V>(hd));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a list of non-TreeNodes replacing those in given list.
+     */
+    static <K, V> Node<K, V> untreeify(Node<K, V> b) {
+        Node<K, V> hd = null, tl = null;
+        for (Node<K, V> q = b; q != null; q = q.next) {
+            Node<K, V> p = new Node<K, V>(q.hash, q.key, q.val, null);
+            if (tl == null)
+                hd = p;
+            else
+                tl.next = p;
+            tl = p;
+        }
+        return hd;
+    }
+
+    /* ---------------- TreeNodes -------------- */
+
+    /**
+     * Nodes for use in TreeBins
+     */
+    static final class TreeNode<K, V> extends Node<K, V> {
+        TreeNode<K, V> parent;  // red-black tree links
+        TreeNode<K, V> left;
+        TreeNode<K, V> right;
+        TreeNode<K, V> prev;    // needed to unlink next upon deletion
+        boolean red;
+
+        TreeNode(int hash, K key, V val, Node<K, V> next,
+                 TreeNode<K, V> parent) {
+            super(hash, key, val, next);
+            this.parent = parent;
+        }
+
+        Node<K, V> find(int h, Object k) {
+            return findTreeNode(h, k, null);
+        }
+
+        /**
+         * Returns the TreeNode (or null if not found) for the given key
+         * starting at given root.
+         */
+        final TreeNode<K, V> findTreeNode(int h, Object k, Class<?> kc) {
+            if (k != null) {
+                TreeNode<K, V> p = this;
+                do {
+                    int ph, dir; K pk; TreeNode<K, V> q;
+                    TreeNode<K, V> pl = p.left, pr = p.right;
+                    if ((ph = p.hash) > h)
+                        p = pl;
+                    else if (ph < h)
+                        p = pr;
+                    else if ((pk = p.key) == k || (pk != null && k.equals(pk)))
+                        return p;
+                    else if (pl == null)
+                        p = pr;
+                    else if (pr == null)
+                        p = pl;
+                    else if ((kc != null ||
+                              (kc = comparableClassFor(k)) != null) &&
+                             (dir = compareComparables(kc, k, pk)) != 0)
+                        p = (dir < 0) ? pl : pr;
+                    else if ((q = pr.findTreeNode(h, k, kc)) != null)
+                        return q;
+                    else
+                        p = pl;
+                } while (p != null);
+            }
+            return null;
+        }
+    }
+
+    /* ---------------- TreeBins -------------- */
+
+    /**
+     * TreeNodes used at the heads of bins. TreeBins do not hold user
+     * keys or values, but instead point to list of TreeNodes and
+     * their root. They also maintain a parasitic read-write lock
+     * forcing writers (who hold bin lock) to wait for readers (who do
+     * not) to complete before tree restructuring operations.
+     */
+    static final class TreeBin<K, V> extends Node<K, V> {
+        TreeNode<K, V> root;
+        volatile TreeNode<K, V> first;
+        volatile Thread waiter;
+        volatile int lockState;
+        // values for lockState
+        static final int WRITER = 1; // set while holding write lock
+        static final int WAITER = 2; // set when waiting for write lock
+        static final int READER = 4; // increment value for setting read lock
+
+        /**
+         * Tie-breaking utility for ordering insertions when equal
+         * hashCodes and non-comparable. We don't require a total
+         * order, just a consistent insertion rule to maintain
+         * equivalence across rebalancings.
+         */
+        static int tieBreakOrder(Object a, Object b) {
+            int d;
+            if (a == null || b == null ||
+                (d = a.getClass().getName().
+                 compareTo(b.getClass().getName())) == 0)
+                d = (System.identityHashCode(a) <= System.identityHashCode(b) ?
+                     -1 : 1);
+            return d;
+        }
+
+        /**
+         * Creates bin with initial set of nodes headed by b.
+         */
+        TreeBin(TreeNode<K, V> b) {
+            super(TREEBIN, null, null, null);
+            this.first = b;
+            TreeNode<K, V> r = null;
+            for (TreeNode<K, V> x = b, next; x != null; x = next) {
+                next = (TreeNode<K, V>) x.next;
+                x.left = x.right = null;
+                if (r == null) {
+                    x.parent = null;
+                    x.red = false;
+                    r = x;
+                }
+                else {
+                    K k = x.key;
+                    int h = x.hash;
+                    Class<?> kc = null;
+                    for (TreeNode<K, V> p = r; ; ) {
+                        int dir, ph;
+                        K pk = p.key;
+                        if ((ph = p.hash) > h)
+                            dir = -1;
+                        else if (ph < h)
+                            dir = 1;
+                        else if ((kc == null &&
+                                  (kc = comparableClassFor(k)) == null) ||
+                                 (dir = compareComparables(kc, k, pk)) == 0)
+                            dir = tieBreakOrder(k, pk);
+                        TreeNode<K, V> xp = p;
+                        if ((p = (dir <= 0) ? p.left : p.right) == null) {
+                            x.parent = xp;
+                            if (dir <= 0)
+                                xp.left = x;
+                            else
+                                xp.right = x;
+                            r = balanceInsertion(r, x);
+                            break;
+                        }
+                    }
+                }
+            }
+            this.root = r;
+        }
+
+        /**
+         * Acquires write lock for tree restructuring.
+         */
+        private final void lockRoot() {
+            if (!U.compareAndSwapInt(this, LOCKSTATE, 0, WRITER))
+                contendedLock(); // offload to separate method
+        }
+
+        /**
+         * Releases write lock for tree restructuring.
+         */
+        private final void unlockRoot() {
+            lockState = 0;
+        }
+
+        /**
+         * Possibly blocks awaiting root lock.
+         */
+        private final void contendedLock() {
+            boolean waiting = false;
+            for (int s; ; ) {
+                if (((s = lockState) & ~WAITER) == 0) {
+                    if (U.compareAndSwapInt(this, LOCKSTATE, s, WRITER)) {
+                        if (waiting)
+                            waiter = null;
+                        return;
+                    }
+                }
+                else if ((s & WAITER) == 0) {
+                    if (U.compareAndSwapInt(this, LOCKSTATE, s, s | WAITER)) {
+                        waiting = true;
+                        waiter = Thread.currentThread();
+                    }
+                }
+                else if (waiting)
+                    LockSupport.park(this);
+            }
+        }
+
+        /**
+         * Releases a read lock, waking up a waiting writer if this was
+         * the last reader.
+         */
+        private final void releaseReadLock() {
+            for (int s; ; ) {
+                if (U.compareAndSwapInt(this, LOCKSTATE, s = lockState,
+                                        s - READER)) {
+                    Thread w;
+                    if (s == (READER | WAITER) && (w = waiter) != null)
+                        LockSupport.unpark(w);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns matching node or null if none. Tries to search
+         * using tree comparisons from root, but continues linear
+         * search when lock not available.
+         */
+        final Node<K, V> find(int h, Object k) {
+            if (k != null) {
+                for (Node<K, V> e = first; e != null; ) {
+                    int s; K ek;
+                    if (((s = lockState) & (WAITER | WRITER)) != 0) {
+                        if (e.hash == h &&
+                            ((ek = e.key) == k || (ek != null && k.equals(ek))))
+                            return e;
+                        e = e.next;
+                    }
+                    else if (U.compareAndSwapInt(this, LOCKSTATE, s,
+                                                 s + READER)) {
+                        TreeNode<K, V> r, p;
+                        try {
+                            p = ((r = root) == null ? null :
+                                 r.findTreeNode(h, k, null));
+                        } finally {
+                            releaseReadLock();
+                        }
+                        return p;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Finds or adds a node.
+         *
+         * @return null if added
+         */
+        final TreeNode<K, V> putTreeVal(int h, K k, V v) {
+            Class<?> kc = null;
+            boolean searched = false;
+            for (TreeNode<K, V> p = root; ; ) {
+                int dir, ph; K pk;
+                if (p == null) {
+                    first = root = new TreeNode<K, V>(h, k, v, null, null);
+                    break;
+                }
+                else if ((ph = p.hash) > h)
+                    dir = -1;
+                else if (ph < h)
+                    dir = 1;
+                else if ((pk = p.key) == k || (pk != null && k.equals(pk)))
+                    return p;
+                else if ((kc == null &&
+                          (kc = comparableClassFor(k)) == null) ||
+                         (dir = compareComparables(kc, k, pk)) == 0) {
+                    if (!searched) {
+                        TreeNode<K, V> q, ch;
+                        searched = true;
+                        if (((ch = p.left) != null &&
+                             (q = ch.findTreeNode(h, k, kc)) != null) ||
+                            ((ch = p.right) != null &&
+                             (q = ch.findTreeNode(h, k, kc)) != null))
+                            return q;
+                    }
+                    dir = tieBreakOrder(k, pk);
+                }
+
+                TreeNode<K, V> xp = p;
+                if ((p = (dir <= 0) ? p.left : p.right) == null) {
+                    TreeNode<K, V> x, f = first;
+                    first = x = new TreeNode<K, V>(h, k, v, f, xp);
+                    if (f != null)
+                        f.prev = x;
+                    if (dir <= 0)
+                        xp.left = x;
+                    else
+                        xp.right = x;
+                    if (!xp.red)
+                        x.red = true;
+                    else {
+                        lockRoot();
+                        try {
+                            root = balanceInsertion(root, x);
+                        } finally {
+                            unlockRoot();
+                        }
+                    }
+                    break;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Removes the given node, that must be present before this
+         * call.  This is messier than typical red-black deletion code
+         * because we cannot swap the contents of an interior node
+         * with a leaf successor that is pinned by "next" pointers
+         * that are accessible independently of lock. So instead we
+         * swap the tree linkages.
+         *
+         * @return true if now too small, so should be untreeified
+         */
+        final boolean removeTreeNode(TreeNode<K, V> p) {
+            TreeNode<K, V> next = (TreeNode<K, V>) p.next;
+            TreeNode<K, V> pred = p.prev;  // unlink traversal pointers
+            TreeNode<K, V> r, rl;
+            if (pred == null)
+                first = next;
+            else
+                pred.next = next;
+            if (next != null)
+                next.prev = pred;
+            if (first == null) {
+                root = null;
+                return true;
+            }
+            if ((r = root) == null || r.right == null || // too small
+                (rl = r.left) == null || rl.left == null)
+                return true;
+            lockRoot();
+            try {
+                TreeNode<K, V> replacement;
+                TreeNode<K, V> pl = p.left;
+                TreeNode<K, V> pr = p.right;
+                if (pl != null && pr != null) {
+                    TreeNode<K, V> s = pr, sl;
+                    while ((sl = s.left) != null) // find successor
+                        s = sl;
+                    boolean c = s.red; s.red = p.red; p.red = c; // swap colors
+                    TreeNode<K, V> sr = s.right;
+                    TreeNode<K, V> pp = p.parent;
+                    if (s == pr) { // p was s's direct parent
+                        p.parent = s;
+                        s.right = p;
+                    }
+                    else {
+                        TreeNode<K, V> sp = s.parent;
+                        if ((p.parent = sp) != null) {
+                            if (s == sp.left)
+                                sp.left = p;
+                            else
+                                sp.right = p;
+                        }
+                        if ((s.right = pr) != null)
+                            pr.parent = s;
+                    }
+                    p.left = null;
+                    if ((p.right = sr) != null)
+                        sr.parent = p;
+                    if ((s.left = pl) != null)
+                        pl.parent = s;
+                    if ((s.parent = pp) == null)
+                        r = s;
+                    else if (p == pp.left)
+                        pp.left = s;
+                    else
+                        pp.right = s;
+                    if (sr != null)
+                        replacement = sr;
+                    else
+                        replacement = p;
+                }
+                else if (pl != null)
+                    replacement = pl;
+                else if (pr != null)
+                    replacement = pr;
+                else
+                    replacement = p;
+                if (replacement != p) {
+                    TreeNode<K, V> pp = replacement.parent = p.parent;
+                    if (pp == null)
+                        r = replacement;
+                    else if (p == pp.left)
+                        pp.left = replacement;
+                    else
+                        pp.right = replacement;
+                    p.left = p.right = p.parent = null;
+                }
+
+                root = (p.red) ? r : balanceDeletion(r, replacement);
+
+                if (p == replacement) {  // detach pointers
+                    TreeNode<K, V> pp;
+                    if ((pp = p.parent) != null) {
+                        if (p == pp.left)
+                            pp.left = null;
+                        else if (p == pp.right)
+                            pp.right = null;
+                        p.parent = null;
+                    }
+                }
+            } finally {
+                unlockRoot();
+            }
+            return false;
+        }
+
+        /* ------------------------------------------------------------ */
+        // Red-black tree methods, all adapted from CLR
+
+        static <K, V> TreeNode<K, V> rotateLeft(TreeNode<K, V> root,
+                                                TreeNode<K, V> p) {
+            TreeNode<K, V> r, pp, rl;
+            if (p != null && (r = p.right) != null) {
+                if ((rl = p.right = r.left) != null)
+                    rl.parent = p;
+                if ((pp = r.parent = p.parent) == null)
+                    (root = r).red = false;
+                else if (pp.left == p)
+                    pp.left = r;
+                else
+                    pp.right = r;
+                r.left = p;
+                p.parent = r;
+            }
+            return root;
+        }
+
+        static <K, V> TreeNode<K, V> rotateRight(TreeNode<K, V> root,
+                                                 TreeNode<K, V> p) {
+            TreeNode<K, V> l, pp, lr;
+            if (p != null && (l = p.left) != null) {
+                if ((lr = p.left = l.right) != null)
+                    lr.parent = p;
+                if ((pp = l.parent = p.parent) == null)
+                    (root = l).red = false;
+                else if (pp.right == p)
+                    pp.right = l;
+                else
+                    pp.left = l;
+                l.right = p;
+                p.parent = l;
+            }
+            return root;
+        }
+
+        static <K, V> TreeNode<K, V> balanceInsertion(TreeNode<K, V> root,
+                                                      TreeNode<K, V> x) {
+            x.red = true;
+            for (TreeNode<K, V> xp, xpp, xppl, xppr; ; ) {
+                if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (!xp.red || (xpp = xp.parent) == null)
+                    return root;
+                if (xp == (xppl = xpp.left)) {
+                    if ((xppr = xpp.right) != null && xppr.red) {
+                        xppr.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.right) {
+                            root = rotateLeft(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateRight(root, xpp);
+                            }
+                        }
+                    }
+                }
+                else {
+                    if (xppl != null && xppl.red) {
+                        xppl.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.left) {
+                            root = rotateRight(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateLeft(root, xpp);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        static <K, V> TreeNode<K, V> balanceDeletion(TreeNode<K, V> root,
+                                                     TreeNode<K, V> x) {
+            for (TreeNode<K, V> xp, xpl, xpr; ; ) {
+                if (x == null || x == root)
+                    return root;
+                else if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (x.red) {
+                    x.red = false;
+                    return root;
+                }
+                else if ((xpl = xp.left) == x) {
+                    if ((xpr = xp.right) != null && xpr.red) {
+                        xpr.red = false;
+                        xp.red = true;
+                        root = rotateLeft(root, xp);
+                        xpr = (xp = x.parent) == null ? null : xp.right;
+                    }
+                    if (xpr == null)
+                        x = xp;
+                    else {
+                        TreeNode<K, V> sl = xpr.left, sr = xpr.right;
+                        if ((sr == null || !sr.red) &&
+                            (sl == null || !sl.red)) {
+                            xpr.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sr == null || !sr.red) {
+                                if (sl != null)
+                                    sl.red = false;
+                                xpr.red = true;
+                                root = rotateRight(root, xpr);
+                                xpr = (xp = x.parent) == null ?
+                                    null : xp.right;
+                            }
+                            if (xpr != null) {
+                                xpr.red = (xp == null) ? false : xp.red;
+                                if ((sr = xpr.right) != null)
+                                    sr.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateLeft(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+                else { // symmetric
+                    if (xpl != null && xpl.red) {
+                        xpl.red = false;
+                        xp.red = true;
+                        root = rotateRight(root, xp);
+                        xpl = (xp = x.parent) == null ? null : xp.left;
+                    }
+                    if (xpl == null)
+                        x = xp;
+                    else {
+                        TreeNode<K, V> sl = xpl.left, sr = xpl.right;
+                        if ((sl == null || !sl.red) &&
+                            (sr == null || !sr.red)) {
+                            xpl.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sl == null || !sl.red) {
+                                if (sr != null)
+                                    sr.red = false;
+                                xpl.red = true;
+                                root = rotateLeft(root, xpl);
+                                xpl = (xp = x.parent) == null ?
+                                    null : xp.left;
+                            }
+                            if (xpl != null) {
+                                xpl.red = (xp == null) ? false : xp.red;
+                                if ((sl = xpl.left) != null)
+                                    sl.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateRight(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+            }
+        }
+
+        private static final sun.misc.Unsafe U;
+        private static final long LOCKSTATE;
+
+        static {
+            try {
+                U = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = TreeBin.class;
+                LOCKSTATE = U.objectFieldOffset
+                    (k.getDeclaredField("lockState"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /* ---------------- Table Traversal -------------- */
+
+    /**
+     * Records the table, its length, and current traversal index for a
+     * traverser that must process a region of a forwarded table before
+     * proceeding with current table.
+     */
+    static final class TableStack<K, V> {
+        int length;
+        int index;
+        Node<K, V>[] tab;
+        TableStack<K, V> next;
+    }
+
+    /**
+     * Encapsulates traversal for methods such as containsValue; also
+     * serves as a base class for other iterators.
+     * <p>
+     * Method advance visits once each still-valid node that was
+     * reachable upon iterator construction. It might miss some that
+     * were added to a bin after the bin was visited, which is OK wrt
+     * consistency guarantees.  Normally, iteration proceeds bin-by-bin
+     * traversing lists.  However, if the table has been resized, then
+     * all future steps must traverse both the bin at the current index
+     * as well as at (index + baseSize); and so on for further
+     * resizings.  To paranoically cope with potential sharing by users
+     * of iterators across threads, iteration terminates if a bounds
+     * checks fails for a table read.
+     */
+    static class Traverser<K, V> {
+        Node<K, V>[] tab;        // current table; updated if resized
+        Node<K, V> next;         // the next entry to use
+        TableStack<K, V> stack, spare; // to save/restore on ForwardingNodes
+        int index;               // index of bin to use next
+        int baseIndex;           // current index of initial table
+        int baseLimit;           // index bound for initial table
+        final int baseSize;      // initial table size
+
+        Traverser(Node<K, V>[] tab, int size, int index, int limit) {
+            this.tab = tab;
+            this.baseSize = size;
+            this.baseIndex = this.index = index;
+            this.baseLimit = limit;
+            this.next = null;
+        }
+
+        /**
+         * Advances if possible, returning next valid node, or null if none.
+         */
+        final Node<K, V> advance() {
+            Node<K, V> e;
+            if ((e = next) != null)
+                e = e.next;
+            for (; ; ) {
+                Node<K, V>[] t; int i, n;  // must use locals in checks
+                if (e != null)
+                    return next = e;
+                if (baseIndex >= baseLimit || (t = tab) == null ||
+                    (n = t.length) <= (i = index) || i < 0)
+                    return next = null;
+                if ((e = tabAt(t, i)) != null && e.hash < 0) {
+                    if (e instanceof ForwardingNode) {
+                        tab = ((ForwardingNode<K, V>) e).nextTable;
+                        e = null;
+                        pushState(t, i, n);
+                        continue;
+                    }
+                    else if (e instanceof TreeBin)
+                        e = ((TreeBin<K, V>) e).first;
+                    else
+                        e = null;
+                }
+                if (stack != null)
+                    recoverState(n);
+                else if ((index = i + baseSize) >= n)
+                    index = ++baseIndex; // visit upper slots if present
+            }
+        }
+
+        /**
+         * Saves traversal state upon encountering a forwarding node.
+         */
+        private void pushState(Node<K, V>[] t, int i, int n) {
+            TableStack<K, V> s = spare;  // reuse if possible
+            if (s != null)
+                spare = s.next;
+            else
+                s = new TableStack<K, V>();
+            s.tab = t;
+            s.length = n;
+            s.index = i;
+            s.next = stack;
+            stack = s;
+        }
+
+        /**
+         * Possibly pops traversal state.
+         *
+         * @param n length of current table
+         */
+        private void recoverState(int n) {
+            TableStack<K, V> s; int len;
+            while ((s = stack) != null && (index += (len = s.length)) >= n) {
+                n = len;
+                index = s.index;
+                tab = s.tab;
+                s.tab = null;
+                TableStack<K, V> next = s.next;
+                s.next = spare; // save for reuse
+                stack = next;
+                spare = s;
+            }
+            if (s == null && (index += baseSize) >= n)
+                index = ++baseIndex;
+        }
+    }
+
+    /**
+     * Base of key, value, and entry Iterators. Adds fields to
+     * Traverser to support iterator.remove.
+     */
+    static class BaseIterator<K, V> extends Traverser<K, V> {
+        final ConcurrentHashMap<K, V> map;
+        Node<K, V> lastReturned;
+
+        BaseIterator(Node<K, V>[] tab, int size, int index, int limit,
+                     ConcurrentHashMap<K, V> map) {
+            super(tab, size, index, limit);
+            this.map = map;
+            advance();
+        }
+
+        public final boolean hasNext() {
+            return next != null;
+        }
+
+        public final boolean hasMoreElements() {
+            return next != null;
+        }
+
+        public final void remove() {
+            Node<K, V> p;
+            if ((p = lastReturned) == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            map.replaceNode(p.key, null, null);
+        }
+    }
+
+    static final class KeyIterator<K, V> extends BaseIterator<K, V>
+            implements Iterator<K>, Enumeration<K> {
+        KeyIterator(Node<K, V>[] tab, int size, int index, int limit,
+                    ConcurrentHashMap<K, V> map) {
+            super(tab, size, index, limit, map);
+        }
+
+        public final K next() {
+            Node<K, V> p;
+            if ((p = next) == null)
+                throw new NoSuchElementException();
+            K k = p.key;
+            lastReturned = p;
+            advance();
+            return k;
+        }
+
+        public final K nextElement() {
+            return next();
+        }
+    }
+
+    static final class ValueIterator<K, V> extends BaseIterator<K, V>
+            implements Iterator<V>, Enumeration<V> {
+        ValueIterator(Node<K, V>[] tab, int size, int index, int limit,
+                      ConcurrentHashMap<K, V> map) {
+            super(tab, size, index, limit, map);
+        }
+
+        public final V next() {
+            Node<K, V> p;
+            if ((p = next) == null)
+                throw new NoSuchElementException();
+            V v = p.val;
+            lastReturned = p;
+            advance();
+            return v;
+        }
+
+        public final V nextElement() {
+            return next();
+        }
+    }
+
+    static final class EntryIterator<K, V> extends BaseIterator<K, V>
+            implements Iterator<Map.Entry<K, V>> {
+        EntryIterator(Node<K, V>[] tab, int size, int index, int limit,
+                      ConcurrentHashMap<K, V> map) {
+            super(tab, size, index, limit, map);
+        }
+
+        public final Map.Entry<K, V> next() {
+            Node<K, V> p;
+            if ((p = next) == null)
+                throw new NoSuchElementException();
+            K k = p.key;
+            V v = p.val;
+            lastReturned = p;
+            advance();
+            return new MapEntry<K, V>(k, v, map);
+        }
+    }
+
+    /**
+     * Base of key, value, and entry Spliterators.  Splitting hands off
+     * the upper half of the remaining range of bins of the initial
+     * table; each part then traverses like an iterator, following any
+     * forwarding nodes it meets on its own.
+     */
+    abstract static class BaseSpliterator<K, V, T> extends Traverser<K, V>
+            implements Spliterator<T> {
+        long est;               // size estimate
+
+        BaseSpliterator(Node<K, V>[] tab, int size, int index, int limit,
+                        long est) {
+            super(tab, size, index, limit);
+            this.est = est;
+        }
+
+        public final long estimateSize() {
+            return est;
+        }
+
+        public final long getExactSizeIfKnown() {
+            return -1L;
+        }
+
+        public final boolean hasCharacteristics(int characteristics) {
+            return (characteristics() & characteristics) == characteristics;
+        }
+
+        public final Comparator<? super T> getComparator() {
+            throw new IllegalStateException();
+        }
+    }
+
+    static final class KeySpliterator<K, V> extends BaseSpliterator<K, V, K> {
+        KeySpliterator(Node<K, V>[] tab, int size, int index, int limit,
+                       long est) {
+            super(tab, size, index, limit, est);
+        }
+
+        public Spliterator<K> trySplit() {
+            int i, f, h;
+            return (h = ((i = baseIndex) + (f = baseLimit)) >>> 1) <= i ? null :
+                new KeySpliterator<K, V>(tab, baseSize, baseLimit = h,
+                                         f, est >>>= 1);
+        }
+
+        public void forEachRemaining(Consumer<? super K> action) {
+            if (action == null) throw new NullPointerException();
+            for (Node<K, V> p; (p = advance()) != null; )
+                action.accept(p.key);
+        }
+
+        public boolean tryAdvance(Consumer<? super K> action) {
+            if (action == null) throw new NullPointerException();
+            Node<K, V> p;
+            if ((p = advance()) == null)
+                return false;
+            action.accept(p.key);
+            return true;
+        }
+
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.CONCURRENT |
+                Spliterator.NONNULL;
+        }
+    }
+
+    static final class ValueSpliterator<K, V> extends BaseSpliterator<K, V, V> {
+        ValueSpliterator(Node<K, V>[] tab, int size, int index, int limit,
+                         long est) {
+            super(tab, size, index, limit, est);
+        }
+
+        public Spliterator<V> trySplit() {
+            int i, f, h;
+            return (h = ((i = baseIndex) + (f = baseLimit)) >>> 1) <= i ? null :
+                new ValueSpliterator<K, V>(tab, baseSize, baseLimit = h,
+                                           f, est >>>= 1);
+        }
+
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null) throw new NullPointerException();
+            for (Node<K, V> p; (p = advance()) != null; )
+                action.accept(p.val);
+        }
+
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null) throw new NullPointerException();
+            Node<K, V> p;
+            if ((p = advance()) == null)
+                return false;
+            action.accept(p.val);
+            return true;
+        }
+
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.NONNULL;
+        }
+    }
+
+    static final class EntrySpliterator<K, V>
+            extends BaseSpliterator<K, V, Map.Entry<K, V>> {
+        final ConcurrentHashMap<K, V> map; // To export MapEntry
+
+        EntrySpliterator(Node<K, V>[] tab, int size, int index, int limit,
+                         long est, ConcurrentHashMap<K, V> map) {
+            super(tab, size, index, limit, est);
+            this.map = map;
+        }
+
+        public Spliterator<Map.Entry<K, V>> trySplit() {
+            int i, f, h;
+            return (h = ((i = baseIndex) + (f = baseLimit)) >>> 1) <= i ? null :
+                new EntrySpliterator<K, V>(tab, baseSize, baseLimit = h,
+                                           f, est >>>= 1, map);
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<K, V>> action) {
+            if (action == null) throw new NullPointerException();
+            for (Node<K, V> p; (p = advance()) != null; )
+                action.accept(new MapEntry<K, V>(p.key, p.val, map));
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K, V>> action) {
+            if (action == null) throw new NullPointerException();
+            Node<K, V> p;
+            if ((p = advance()) == null)
+                return false;
+            action.accept(new MapEntry<K, V>(p.key, p.val, map));
+            return true;
+        }
+
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.CONCURRENT |
+                Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * Exported Entry for EntryIterator
+     */
+    static final class MapEntry<K, V> implements Map.Entry<K, V> {
+        final K key; // non-null
+        V val;       // non-null
+        final ConcurrentHashMap<K, V> map;
+
+        MapEntry(K key, V val, ConcurrentHashMap<K, V> map) {
+            this.key = key;
+            this.val = val;
+            this.map = map;
+        }
+
+        public K getKey()        { return key; }
+        public V getValue()      { return val; }
+        public int hashCode()    { return key.hashCode() ^ val.hashCode(); }
+        public String toString() { return key + "=" + val; }
+
+        public boolean equals(Object o) {
+            Object k, v; Map.Entry<?, ?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?, ?>) o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (k == key || k.equals(key)) &&
+                    (v == val || v.equals(val)));
+        }
+
+        /**
+         * Sets our entry's value and writes through to the map. The
+         * value to return is somewhat arbitrary here. Since we do not
+         * necessarily track asynchronous changes, the most recent
+         * "previous" value could be different from what we return (or
+         * could even have been removed, in which case the put will
+         * re-establish). We do not and cannot guarantee more.
+         */
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = val;
+            val = value;
+            map.put(key, value);
+            return v;
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Base class for views.
+     */
+    public abstract static class CollectionView<K, V, E>
+            implements Collection<E>, Serializable {
+        private static final long serialVersionUID = 7249069246763182397L;
+        final ConcurrentHashMap<K, V> map;
+
+        CollectionView(ConcurrentHashMap<K, V> map) {
+            this.map = map;
+        }
+
+        /**
+         * Returns the map backing this view.
+         *
+         * @return the map backing this view
+         */
+        public ConcurrentHashMap<K, V> getMap() {
+            return map;
+        }
+
+        /**
+         * Removes all of the elements from this view, by removing all
+         * the mappings from the map backing this view.
+         */
+        public final void clear()      { map.clear(); }
+        public final int size()        { return map.size(); }
+        public final boolean isEmpty() { return map.isEmpty(); }
+
+        // implementations below rely on concrete classes supplying these
+        // abstract methods
+
+        /**
+         * Returns an iterator over the elements in this collection.
+         * <p>
+         * <p>The returned iterator is "weakly consistent": it will
+         * never throw {@link ConcurrentModificationException}, and
+         * guarantees to traverse elements as they existed upon
+         * construction of the iterator, and may (but is not
+         * guaranteed to) reflect any modifications subsequent to
+         * construction.
+         *
+         * @return an iterator over the elements in this collection
+         */
+        public abstract Iterator<E> iterator();
+
+        /**
+         * Returns a {@link Spliterator} over the elements in this
+         * collection.
+         *
+         * <p>The returned spliterator is weakly consistent in the same
+         * sense as {@link #iterator}, and reports
+         * {@link Spliterator#CONCURRENT} and {@link Spliterator#NONNULL}.
+         * It splits by halving the range of bins of the table, so
+         * traversal of each part proceeds without coordination.
+         *
+         * @return a {@code Spliterator} over the elements in this collection
+         * @since 1.8
+         */
+        public abstract Spliterator<E> spliterator();
+
+        public abstract boolean contains(Object o);
+
+        public abstract boolean remove(Object o);
+
+        private static final String oomeMsg = "Required array size too large";
+
+        public final Object[] toArray() {
+            long sz = map.mappingCount();
+            if (sz > MAX_ARRAY_SIZE)
+                throw new OutOfMemoryError(oomeMsg);
+            int n = (int) sz;
+            Object[] r = new Object[n];
+            int i = 0;
+            for (E e : this) {
+                if (i == n) {
+                    if (n >= MAX_ARRAY_SIZE)
+                        throw new OutOfMemoryError(oomeMsg);
+                    if (n >= MAX_ARRAY_SIZE - (MAX_ARRAY_SIZE >>> 1) - 1)
+                        n = MAX_ARRAY_SIZE;
+                    else
+                        n += (n >>> 1) + 1;
+                    r = Arrays.copyOf(r, n);
+                }
+                r[i++] = e;
+            }
+            return (i == n) ? r : Arrays.copyOf(r, i);
+        }
+
+        public final <T> T[] toArray(T[] a) {
+            long sz = map.mappingCount();
+            if (sz > MAX_ARRAY_SIZE)
+                throw new OutOfMemoryError(oomeMsg);
+            int m = (int) sz;
+            T[] r = (a.length >= m) ? a :
+                (T[]) java.lang.reflect.Array
+                    .newInstance(a.getClass().getComponentType(), m);
+            int n = r.length;
+            int i = 0;
+            for (E e : this) {
+                if (i == n) {
+                    if (n >= MAX_ARRAY_SIZE)
+                        throw new OutOfMemoryError(oomeMsg);
+                    if (n >= MAX_ARRAY_SIZE - (MAX_ARRAY_SIZE >>> 1) - 1)
+                        n = MAX_ARRAY_SIZE;
+                    else
+                        n += (n >>> 1) + 1;
+                    r = Arrays.copyOf(r, n);
+                }
+                r[i++] = (T) e;
+            }
+            if (a == r && i < n) {
+                r[i] = null; // null-terminate
+                return r;
+            }
+            return (i == n) ? r : Arrays.copyOf(r, i);
+        }
+
+        /**
+         * Returns a string representation of this collection.
+         * The string representation consists of the string representations
+         * of the collection's elements in the order they are returned by
+         * its iterator, enclosed in square brackets ({@code "[]"}).
+         * Adjacent elements are separated by the characters {@code ", "}
+         * (comma and space).  Elements are converted to strings as by
+         * {@link String#valueOf(Object)}.
+         *
+         * @return a string representation of this collection
+         */
+        public final String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append('[');
+            Iterator<E> it = iterator();
+            if (it.hasNext()) {
+                for (; ; ) {
+                    Object e = it.next();
+                    sb.append(e == this ? "(this Collection)" : e);
+                    if (!it.hasNext())
+                        break;
+                    sb.append(',').append(' ');
+                }
+            }
+            return sb.append(']').toString();
+        }
+
+        public final boolean containsAll(Collection<?> c) {
+            if (c != this) {
+                for (Object e : c) {
+                    if (e == null || !contains(e))
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        public final boolean removeAll(Collection<?> c) {
+            if (c == null) throw new NullPointerException();
+            boolean modified = false;
+            for (Iterator<E> it = iterator(); it.hasNext(); ) {
+                if (c.contains(it.next())) {
+                    it.remove();
+                    modified = true;
+                }
+            }
+            return modified;
+        }
+
+        public final boolean retainAll(Collection<?> c) {
+            if (c == null) throw new NullPointerException();
+            boolean modified = false;
+            for (Iterator<E> it = iterator(); it.hasNext(); ) {
+                if (!c.contains(it.next())) {
+                    it.remove();
+                    modified = true;
+                }
+            }
+            return modified;
+        }
+    }
+
+    /**
+     * A view of a ConcurrentHashMap as a {@link Set} of keys, in
+     * which additions may optionally be enabled by mapping to a
+     * common value.  This class cannot be directly instantiated.
+     * See {@link #keySet() keySet()},
+     * {@link #keySet(Object) keySet(V)},
+     * {@link #newKeySet() newKeySet()},
+     * {@link #newKeySet(int) newKeySet(int)}.
+     *
+     * @since 1.8
+     */
+    public static class KeySetView<K, V> extends CollectionView<K, V, K>
+            implements Set<K>, Serializable {
+        private static final long serialVersionUID = 7249069246763182397L;
+        private final V value;
+
+        KeySetView(ConcurrentHashMap<K, V> map, V value) {  // non-public
+            super(map);
+            this.value = value;
+        }
+
+        /**
+         * Returns the default mapped value for additions,
+         * or {@code null} if additions are not supported.
+         *
+         * @return the default mapped value for additions, or {@code null}
+         * if not supported
+         */
+        public V getMappedValue() {
+            return value;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws NullPointerException if the specified key is null
+         */
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        /**
+         * Removes the key from this map view, by removing the key (and its
+         * corresponding value) from the backing map.  This method does
+         * nothing if the key is not in the map.
+         *
+         * @param o the key to be removed from the backing map
+         * @return {@code true} if the backing map contained the specified key
+         * @throws NullPointerException if the specified key is null
+         */
+        public boolean remove(Object o) {
+            return map.remove(o) != null;
+        }
+
+        /**
+         * @return an iterator over the keys of the backing map
+         */
+        public Iterator<K> iterator() {
+            Node<K, V>[] t;
+            ConcurrentHashMap<K, V> m = map;
+            int f = (t = m.table) == null ? 0 : t.length;
+            return new KeyIterator<K, V>(t, f, 0, f, m);
+        }
+
+        public Spliterator<K> spliterator() {
+            Node<K, V>[] t;
+            ConcurrentHashMap<K, V> m = map;
+            long n = m.sumCount();
+            int f = (t = m.table) == null ? 0 : t.length;
+            return new KeySpliterator<K, V>(t, f, 0, f, n < 0L ? 0L : n);
+        }
+
+        /**
+         * Adds the specified key to this set view by mapping the key to
+         * the default mapped value in the backing map, if defined.
+         *
+         * @param e key to be added
+         * @return {@code true} if this set changed as a result of the call
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if no default mapped value
+         *                                       for additions was provided
+         */
+        public boolean add(K e) {
+            V v;
+            if ((v = value) == null)
+                throw new UnsupportedOperationException();
+            return map.putVal(e, v, true) == null;
+        }
+
+        /**
+         * Adds all of the elements in the specified collection to this set,
+         * as if by calling {@link #add} on each one.
+         *
+         * @param c the elements to be inserted into this set
+         * @return {@code true} if this set changed as a result of the call
+         * @throws NullPointerException          if the collection or any of its
+         *                                       elements are {@code null}
+         * @throws UnsupportedOperationException if no default mapped value
+         *                                       for additions was provided
+         */
+        public boolean addAll(Collection<? extends K> c) {
+            boolean added = false;
+            V v;
+            if ((v = value) == null)
+                throw new UnsupportedOperationException();
+            for (K e : c) {
+                if (map.putVal(e, v, true) == null)
+                    added = true;
+            }
+            return added;
+        }
+
+        public int hashCode() {
+            int h = 0;
+            for (K e : this)
+                h += e.hashCode();
+            return h;
+        }
+
+        public boolean equals(Object o) {
+            Set<?> c;
+            return ((o instanceof Set) &&
+                    ((c = (Set<?>) o) == this ||
+                     (containsAll(c) && c.containsAll(this))));
+        }
+    }
+
+    /**
+     * A view of a ConcurrentHashMap as a {@link Collection} of
+     * values, in which additions are disabled. This class cannot be
+     * directly instantiated. See {@link #values()}.
+     */
+    static final class ValuesView<K, V> extends CollectionView<K, V, V>
+            implements Collection<V>, Serializable {
+        private static final long serialVersionUID = 2249069246763182397L;
+
+        ValuesView(ConcurrentHashMap<K, V> map) {
+            super(map);
+        }
+
+        public final boolean contains(Object o) {
+            return map.containsValue(o);
+        }
+
+        public final boolean remove(Object o) {
+            if (o != null) {
+                for (Iterator<V> it = iterator(); it.hasNext(); ) {
+                    if (o.equals(it.next())) {
+                        it.remove();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public final Iterator<V> iterator() {
+            ConcurrentHashMap<K, V> m = map;
+            Node<K, V>[] t;
+            int f = (t = m.table) == null ? 0 : t.length;
+            return new ValueIterator<K, V>(t, f, 0, f, m);
+        }
+
+        public final Spliterator<V> spliterator() {
+            Node<K, V>[] t;
+            ConcurrentHashMap<K, V> m = map;
+            long n = m.sumCount();
+            int f = (t = m.table) == null ? 0 : t.length;
+            return new ValueSpliterator<K, V>(t, f, 0, f, n < 0L ? 0L : n);
+        }
+
+        public final boolean add(V e) {
+            throw new UnsupportedOperationException();
+        }
+
+        public final boolean addAll(Collection<? extends V> c) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A view of a ConcurrentHashMap as a {@link Set} of (key, value)
+     * entries.  This class cannot be directly instantiated. See
+     * {@link #entrySet()}.
+     */
+    static final class EntrySetView<K, V> extends CollectionView<K, V, Map.Entry<K, V>>
+            implements Set<Map.Entry<K, V>>, Serializable {
+        private static final long serialVersionUID = 2249069246763182397L;
+
+        EntrySetView(ConcurrentHashMap<K, V> map) {
+            super(map);
+        }
+
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?, ?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?, ?>) o).getKey()) != null &&
+                    (r = map.get(k)) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?, ?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?, ?>) o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    map.remove(k, v));
+        }
+
+        /**
+         * @return an iterator over the entries of the backing map
+         */
+        public Iterator<Map.Entry<K, V>> iterator() {
+            ConcurrentHashMap<K, V> m = map;
+            Node<K, V>[] t;
+            int f = (t = m.table) == null ? 0 : t.length;
+            return new EntryIterator<K, V>(t, f, 0, f, m);
+        }
+
+        public Spliterator<Map.Entry<K, V>> spliterator() {
+            Node<K, V>[] t;
+            ConcurrentHashMap<K, V> m = map;
+            long n = m.sumCount();
+            int f = (t = m.table) == null ? 0 : t.length;
+            return new EntrySpliterator<K, V>(t, f, 0, f, n < 0L ? 0L : n, m);
+        }
+
+        public boolean add(Entry<K, V> e) {
+            return map.putVal(e.getKey(), e.getValue(), false) == null;
+        }
+
+        public boolean addAll(Collection<? extends Entry<K, V>> c) {
+            boolean added = false;
+            for (Entry<K, V> e : c) {
+                if (add(e))
+                    added = true;
+            }
+            return added;
+        }
+
+        public final int hashCode() {
+            int h = 0;
+            Node<K, V>[] t;
+            if ((t = map.table) != null) {
+                Traverser<K, V> it = new Traverser<K, V>(t, t.length, 0, t.length);
+                for (Node<K, V> p; (p = it.advance()) != null; ) {
+                    h += p.hashCode();
+                }
+            }
+            return h;
+        }
+
+        public final boolean equals(Object o) {
+            Set<?> c;
+            return ((o instanceof Set) &&
+                    ((c = (Set<?>) o) == this ||
+                     (containsAll(c) && c.containsAll(this))));
+        }
     }
 
-    /**
-     * Returns <tt>true</tt> if this map maps one or more keys to the
-     * specified value. Note: This method requires a full internal
-     * traversal of the hash table, and so is much slower than
-     * method <tt>containsKey</tt>.
+    /* ---------------- Parallel bulk operations -------------- */
+
+    /*
+     * The bulk operations below split the table into ranges of bins
+     * that are processed by ForkJoinTasks.  Each task halves its range
+     * (forking the upper half) until its batch count runs out, then
+     * traverses the remaining bins with a Traverser, so the usual
+     * weakly consistent traversal guarantees apply to each range.
+     * Forked subtasks are kept in a "rights" list and joined in
+     * reverse order of forking, combining their results for
+     * reductions.
      *
-     * @param value value whose presence in this map is to be tested
-     * @return <tt>true</tt> if this map maps one or more keys to the
-     * specified value
-     * @throws NullPointerException if the specified value is null
+     * Each method takes a parallelismThreshold.  If the estimated map
+     * size is less than the threshold the operation runs sequentially
+     * in the caller; Long.MAX_VALUE suppresses all parallelism, and a
+     * value of 1 results in maximal parallelism by partitioning into
+     * enough subtasks to fully utilize the pool.
+     *
+     * When called from a thread that is not a ForkJoinWorkerThread,
+     * the root task is submitted to the {@link
+     * ForkJoinPool#commonPool()}; otherwise it is invoked directly in
+     * the caller's pool.  Functions passed in must not depend on any
+     * ordering, and should not rely on state that might change
+     * during the computation.  Methods returning a reference return
+     * null if there were no results; null is never a valid result of
+     * a search or reduction function.
      */
-    public boolean containsValue(Object value) {
-        // Same idea as size()
-        if (value == null)
-            throw new NullPointerException();
-        final Segment<K, V>[] segments = this.segments;
-        boolean found = false;
-        long last = 0;
-        int retries = -1;
-        try {
-            outer:
-            for (; ; ) {
-                if (retries++ == RETRIES_BEFORE_LOCK) {
-                    for (int j = 0; j < segments.length; ++j)
-                        ensureSegment(j).lock(); // force creation
-                }
-                long hashSum = 0L;
-                int sum = 0;
-                for (int j = 0; j < segments.length; ++j) {
-                    HashEntry<K, V>[] tab;
-                    Segment<K, V> seg = segmentAt(segments, j);
-                    if (seg != null && (tab = seg.table) != null) {
-                        for (int i = 0; i < tab.length; i++) {
-                            HashEntry<K, V> e;
-                            for (e = entryAt(tab, i); e != null; e = e.next) {
-                                V v = e.value;
-                                if (v != null && value.equals(v)) {
-                                    found = true;
-                                    break outer;
-                                }
-                            }
-                        }
-                        sum += seg.modCount;
-                    }
-                }
-                if (retries > 0 && sum == last)
-                    break;
-                last = sum;
-            }
-        } finally {
-            if (retries > RETRIES_BEFORE_LOCK) {
-                for (int j = 0; j < segments.length; ++j)
-                    segmentAt(segments, j).unlock();
-            }
-        }
-        return found;
+
+    /**
+     * Runs the given root task, in the current pool if the caller is
+     * a ForkJoinWorkerThread, else in the common pool.
+     */
+    static <T> T invokeBulk(ForkJoinTask<T> task) {
+        return ForkJoinTask.inForkJoinPool() ? task.invoke() :
+            ForkJoinPool.commonPool().invoke(task);
     }
 
     /**
-     * Legacy method testing if some key maps into the specified value
-     * in this table.  This method is identical in functionality to
-     * {@link #containsValue}, and exists solely to ensure
-     * full compatibility with class {@link java.util.Hashtable},
-     * which supported this method prior to introduction of the
-     * Java Collections framework.
-     *
-     * @param value a value to search for
-     * @return <tt>true</tt> if and only if some key maps to the
-     * <tt>value</tt> argument in this table as
-     * determined by the <tt>equals</tt> method;
-     * <tt>false</tt> otherwise
-     * @throws NullPointerException if the specified value is null
+     * Computes initial batch value for bulk tasks. The returned value
+     * is approximately exp2 of the number of times (minus one) to
+     * split task by two before executing leaf action. This value is
+     * faster to compute and more convenient to use as a guide to
+     * splitting than is the depth, since it is used while dividing by
+     * two anyway.
      */
-    public boolean contains(Object value) {
-        return containsValue(value);
+    final int batchFor(long b) {
+        long n;
+        if (b == Long.MAX_VALUE || (n = sumCount()) <= 1L || n < b)
+            return 0;
+        int sp = ForkJoinPool.getCommonPoolParallelism() << 2; // slack of 4
+        return (b <= 0L || (n /= b) >= sp) ? sp : (int) n;
     }
 
     /**
-     * 将指定的 key 映射到指定的 value 中,
-     * key 或 value 都不能是 null
+     * Performs the given action for each (key, value).
      *
-     * 可以通过与原始键相等的 key 检索到 value
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param action               the action
+     * @since 1.8
      */
-    @Override
-    public V put(K key, V value) {
-        Segment<K, V> s;
-        if (value == null) {
-            throw new NullPointerException();
-        }
-        // 计算 key 的 hash值，不相信用户重写的 hashCode 函数
-        int hash = hash(key);
-        // 根据 hash值 计算出在 segments 数组中的位置
-        int j = (hash >>> segmentShift) & segmentMask;
-        // 判断该位置是否为 null
-        // 如果为 null, 使用 CAS 的方式, 初始化该位置的 segment
-        if ((s = (Segment<K, V>) UNSAFE.getObject          // nonvolatile; recheck
-                (segments, (j << SSHIFT) + SBASE)) == null) //  in ensureSegment
-        {
-            s = ensureSegment(j);
-        }
-        // 最后设置到 segment
-        return s.put(key, hash, value, false);
+    public void forEach(long parallelismThreshold,
+                        BiConsumer<? super K, ? super V> action) {
+        if (action == null) throw new NullPointerException();
+        invokeBulk(new ForEachMappingTask<K, V>
+                   (null, batchFor(parallelismThreshold), 0, 0, table,
+                    action, null));
     }
 
     /**
-     * {@inheritDoc}
+     * Performs the given action for each non-null transformation
+     * of each (key, value).
      *
-     * @return the previous value associated with the specified key,
-     * or <tt>null</tt> if there was no mapping for the key
-     * @throws NullPointerException if the specified key or value is null
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param transformer          a function returning the transformation
+     *                             for an element, or null if there is no transformation (in
+     *                             which case the action is not applied)
+     * @param action               the action
+     * @param <U>                  the return type of the transformer
+     * @since 1.8
      */
-    @Override
-    @SuppressWarnings("unchecked")
-    public V putIfAbsent(K key, V value) {
-        Segment<K, V> s;
-        if (value == null) {
+    public <U> void forEach(long parallelismThreshold,
+                            BiFunction<? super K, ? super V, ? extends U> transformer,
+                            Consumer<? super U> action) {
+        if (transformer == null || action == null)
             throw new NullPointerException();
-        }
-        int hash = hash(key);
-        int j = (hash >>> segmentShift) & segmentMask;
-        if ((s = (Segment<K, V>) UNSAFE.getObject
-                (segments, (j << SSHIFT) + SBASE)) == null) {
-            s = ensureSegment(j);
-        }
-        return s.put(key, hash, value, true);
+        invokeBulk(new ForEachTransformedMappingTask<K, V, U>
+                   (null, batchFor(parallelismThreshold), 0, 0, table,
+                    transformer, action, null));
     }
 
     /**
-     * Copies all of the mappings from the specified map to this one.
-     * These mappings replace any mappings that this map had for any of the
-     * keys currently in the specified map.
+     * Returns a non-null result from applying the given search
+     * function on each (key, value), or null if none.  Upon
+     * success, further element processing is suppressed and the
+     * results of any other parallel invocations of the search
+     * function are ignored.
      *
-     * @param m mappings to be stored in this map
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param searchFunction       a function returning a non-null
+     *                             result on success, else null
+     * @param <U>                  the return type of the search function
+     * @return a non-null result from applying the given search
+     * function on each (key, value), or null if none
+     * @since 1.8
      */
-    public void putAll(Map<? extends K, ? extends V> m) {
-        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
-            put(e.getKey(), e.getValue());
+    public <U> U search(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) throw new NullPointerException();
+        AtomicReference<U> result = new AtomicReference<U>();
+        invokeBulk(new SearchMappingsTask<K, V, U>
+                   (null, batchFor(parallelismThreshold), 0, 0, table,
+                    searchFunction, result, null));
+        return result.get();
     }
 
     /**
-     * Removes the key (and its corresponding value) from this map.
-     * This method does nothing if the key is not in the map.
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, or null if none.
      *
-     * @param key the key that needs to be removed
-     * @return the previous value associated with <tt>key</tt>, or
-     * <tt>null</tt> if there was no mapping for <tt>key</tt>
-     * @throws NullPointerException if the specified key is null
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param transformer          a function returning the transformation
+     *                             for an element, or null if there is no transformation (in
+     *                             which case it is not combined)
+     * @param reducer              a commutative associative combining function
+     * @param <U>                  the return type of the transformer
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs
+     * @since 1.8
      */
-    @Override
-    public V remove(Object key) {
-        int hash = hash(key);
-        Segment<K, V> s = segmentForHash(hash);
-        return s == null ? null : s.remove(key, hash, null);
+    public <U> U reduce(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return invokeBulk(new MapReduceMappingsTask<K, V, U>
+                          (null, batchFor(parallelismThreshold), 0, 0, table,
+                           transformer, reducer, null));
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, and the given basis as an identity value.
+     * Values are accumulated as primitives within each subtask, so
+     * only one boxed partial result is produced per subtask.
      *
-     * @throws NullPointerException if the specified key is null
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param transformer          a function returning the transformation
+     *                             for an element
+     * @param basis                the identity (initial default value) for the reduction
+     * @param reducer              a commutative associative combining function
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs
+     * @since 1.8
      */
-    public boolean remove(Object key, Object value) {
-        int hash = hash(key);
-        Segment<K, V> s;
-        return value != null && (s = segmentForHash(hash)) != null &&
-                s.remove(key, hash, value) != null;
+    public double reduceToDouble(long parallelismThreshold,
+                                 ToDoubleBiFunction<? super K, ? super V> transformer,
+                                 double basis,
+                                 DoubleBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return invokeBulk(new MapReduceMappingsToDoubleTask<K, V>
+                          (null, batchFor(parallelismThreshold), 0, 0, table,
+                           transformer, basis, reducer, null)).doubleValue();
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, and the given basis as an identity value.
+     * Values are accumulated as primitives within each subtask, so
+     * only one boxed partial result is produced per subtask.
      *
-     * @throws NullPointerException if any of the arguments are null
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param transformer          a function returning the transformation
+     *                             for an element
+     * @param basis                the identity (initial default value) for the reduction
+     * @param reducer              a commutative associative combining function
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs
+     * @since 1.8
      */
-    public boolean replace(K key, V oldValue, V newValue) {
-        int hash = hash(key);
-        if (oldValue == null || newValue == null)
+    public long reduceToLong(long parallelismThreshold,
+                             ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis,
+                             LongBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
             throw new NullPointerException();
-        Segment<K, V> s = segmentForHash(hash);
-        return s != null && s.replace(key, hash, oldValue, newValue);
+        return invokeBulk(new MapReduceMappingsToLongTask<K, V>
+                          (null, batchFor(parallelismThreshold), 0, 0, table,
+                           transformer, basis, reducer, null)).longValue();
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, and the given basis as an identity value.
+     * Values are accumulated as primitives within each subtask, so
+     * only one boxed partial result is produced per subtask.
      *
-     * @return the previous value associated with the specified key,
-     * or <tt>null</tt> if there was no mapping for the key
-     * @throws NullPointerException if the specified key or value is null
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param transformer          a function returning the transformation
+     *                             for an element
+     * @param basis                the identity (initial default value) for the reduction
+     * @param reducer              a commutative associative combining function
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs
+     * @since 1.8
      */
-    public V replace(K key, V value) {
-        int hash = hash(key);
-        if (value == null)
+    public int reduceToInt(long parallelismThreshold,
+                           ToIntBiFunction<? super K, ? super V> transformer,
+                           int basis,
+                           IntBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
             throw new NullPointerException();
-        Segment<K, V> s = segmentForHash(hash);
-        return s == null ? null : s.replace(key, hash, value);
+        return invokeBulk(new MapReduceMappingsToIntTask<K, V>
+                          (null, batchFor(parallelismThreshold), 0, 0, table,
+                           transformer, basis, reducer, null)).intValue();
     }
 
     /**
-     * Removes all of the mappings from this map.
+     * Performs the given action for each key.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param action               the action
+     * @since 1.8
      */
-    public void clear() {
-        final Segment<K, V>[] segments = this.segments;
-        for (int j = 0; j < segments.length; ++j) {
-            Segment<K, V> s = segmentAt(segments, j);
-            if (s != null)
-                s.clear();
-        }
+    public void forEachKey(long parallelismThreshold,
+                           Consumer<? super K> action) {
+        if (action == null) throw new NullPointerException();
+        invokeBulk(new ForEachKeyTask<K, V>
+                   (null, batchFor(parallelismThreshold), 0, 0, table,
+                    action, null));
     }
 
     /**
-     * Returns a {@link Set} view of the keys contained in this map.
-     * The set is backed by the map, so changes to the map are
-     * reflected in the set, and vice-versa.  The set supports element
-     * removal, which removes the corresponding mapping from this map,
-     * via the <tt>Iterator.remove</tt>, <tt>Set.remove</tt>,
-     * <tt>removeAll</tt>, <tt>retainAll</tt>, and <tt>clear</tt>
-     * operations.  It does not support the <tt>add</tt> or
-     * <tt>addAll</tt> operations.
-     * <p>
-     * <p>The view's <tt>iterator</tt> is a "weakly consistent" iterator
-     * that will never throw {@link ConcurrentModificationException},
-     * and guarantees to traverse elements as they existed upon
-     * construction of the iterator, and may (but is not guaranteed to)
-     * reflect any modifications subsequent to construction.
+     * Returns a non-null result from applying the given search
+     * function on each key, or null if none. Upon success,
+     * further element processing is suppressed and the results of
+     * any other parallel invocations of the search function are
+     * ignored.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param searchFunction       a function returning a non-null
+     *                             result on success, else null
+     * @param <U>                  the return type of the search function
+     * @return a non-null result from applying the given search
+     * function on each key, or null if none
+     * @since 1.8
      */
-    public Set<K> keySet() {
-        Set<K> ks = keySet;
-        return (ks != null) ? ks : (keySet = new KeySet());
+    public <U> U searchKeys(long parallelismThreshold,
+                            Function<? super K, ? extends U> searchFunction) {
+        if (searchFunction == null) throw new NullPointerException();
+        AtomicReference<U> result = new AtomicReference<U>();
+        invokeBulk(new SearchKeysTask<K, V, U>
+                   (null, batchFor(parallelismThreshold), 0, 0, table,
+                    searchFunction, result, null));
+        return result.get();
     }
 
     /**
-     * Returns a {@link Collection} view of the values contained in this map.
-     * The collection is backed by the map, so changes to the map are
-     * reflected in the collection, and vice-versa.  The collection
-     * supports element removal, which removes the corresponding
-     * mapping from this map, via the <tt>Iterator.remove</tt>,
-     * <tt>Collection.remove</tt>, <tt>removeAll</tt>,
-     * <tt>retainAll</tt>, and <tt>clear</tt> operations.  It does not
-     * support the <tt>add</tt> or <tt>addAll</tt> operations.
-     * <p>
-     * <p>The view's <tt>iterator</tt> is a "weakly consistent" iterator
-     * that will never throw {@link ConcurrentModificationException},
-     * and guarantees to traverse elements as they existed upon
-     * construction of the iterator, and may (but is not guaranteed to)
-     * reflect any modifications subsequent to construction.
+     * Returns the result of accumulating all keys using the given
+     * reducer to combine values, or null if none.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param reducer              a commutative associative combining function
+     * @return the result of accumulating all keys using the given
+     * reducer to combine values, or null if none
+     * @since 1.8
      */
-    public Collection<V> values() {
-        Collection<V> vs = values;
-        return (vs != null) ? vs : (values = new Values());
+    public K reduceKeys(long parallelismThreshold,
+                        BiFunction<? super K, ? super K, ? extends K> reducer) {
+        if (reducer == null) throw new NullPointerException();
+        return invokeBulk(new ReduceKeysTask<K, V>
+                          (null, batchFor(parallelismThreshold), 0, 0, table,
+                           reducer, null));
     }
 
     /**
-     * Returns a {@link Set} view of the mappings contained in this map.
-     * The set is backed by the map, so changes to the map are
-     * reflected in the set, and vice-versa.  The set supports element
-     * removal, which removes the corresponding mapping from the map,
-     * via the <tt>Iterator.remove</tt>, <tt>Set.remove</tt>,
-     * <tt>removeAll</tt>, <tt>retainAll</tt>, and <tt>clear</tt>
-     * operations.  It does not support the <tt>add</tt> or
-     * <tt>addAll</tt> operations.
-     * <p>
-     * <p>The view's <tt>iterator</tt> is a "weakly consistent" iterator
-     * that will never throw {@link ConcurrentModificationException},
-     * and guarantees to traverse elements as they existed upon
-     * construction of the iterator, and may (but is not guaranteed to)
-     * reflect any modifications subsequent to construction.
+     * Performs the given action for each value.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param action               the action
+     * @since 1.8
      */
-    public Set<Map.Entry<K, V>> entrySet() {
-        Set<Map.Entry<K, V>> es = entrySet;
-        return (es != null) ? es : (entrySet = new EntrySet());
+    public void forEachValue(long parallelismThreshold,
+                             Consumer<? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        invokeBulk(new ForEachValueTask<K, V>
+                   (null, batchFor(parallelismThreshold), 0, 0, table,
+                    action, null));
     }
 
     /**
-     * Returns an enumeration of the keys in this table.
+     * Returns a non-null result from applying the given search
+     * function on each value, or null if none.  Upon success,
+     * further element processing is suppressed and the results of
+     * any other parallel invocations of the search function are
+     * ignored.
      *
-     * @return an enumeration of the keys in this table
-     * @see #keySet()
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param searchFunction       a function returning a non-null
+     *                             result on success, else null
+     * @param <U>                  the return type of the search function
+     * @return a non-null result from applying the given search
+     * function on each value, or null if none
+     * @since 1.8
      */
-    public Enumeration<K> keys() {
-        return new KeyIterator();
+    public <U> U searchValues(long parallelismThreshold,
+                              Function<? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) throw new NullPointerException();
+        AtomicReference<U> result = new AtomicReference<U>();
+        invokeBulk(new SearchValuesTask<K, V, U>
+                   (null, batchFor(parallelismThreshold), 0, 0, table,
+                    searchFunction, result, null));
+        return result.get();
     }
 
     /**
-     * Returns an enumeration of the values in this table.
+     * Returns the result of accumulating all values using the
+     * given reducer to combine values, or null if none.
      *
-     * @return an enumeration of the values in this table
-     * @see #values()
+     * @param parallelismThreshold the (estimated) number of elements
+     *                             needed for this operation to be executed in parallel
+     * @param reducer              a commutative associative combining function
+     * @return the result of accumulating all values
+     * @since 1.8
      */
-    public Enumeration<V> elements() {
-        return new ValueIterator();
+    public V reduceValues(long parallelismThreshold,
+                          BiFunction<? super V, ? super V, ? extends V> reducer) {
+        if (reducer == null) throw new NullPointerException();
+        return invokeBulk(new ReduceValuesTask<K, V>
+                          (null, batchFor(parallelismThreshold), 0, 0, table,
+                           reducer, null));
     }
 
-    /* ---------------- Iterator Support -------------- */
+    /* ---------------- Bulk tasks -------------- */
 
-    abstract class HashIterator {
-        int nextSegmentIndex;
-        int nextTableIndex;
-        HashEntry<K, V>[] currentTable;
-        HashEntry<K, V> nextEntry;
-        HashEntry<K, V> lastReturned;
-
-        HashIterator() {
-            nextSegmentIndex = segments.length - 1;
-            nextTableIndex = -1;
-            advance();
+    /**
+     * Base class for bulk tasks. Holds the bin range [baseIndex,
+     * baseLimit) of the table this task is responsible for, and the
+     * remaining number of times it may split.
+     */
+    @SuppressWarnings("serial")
+    abstract static class BulkTask<K, V, R> extends RecursiveTask<R> {
+        final Node<K, V>[] tab;     // table at construction of root
+        final int baseSize;         // initial table size
+        int baseIndex;              // first bin of this task's range
+        int baseLimit;              // index bound of this task's range
+        int batch;                  // split control
+        final BulkTask<K, V, R> nextRight; // next forked sibling to join
+
+        BulkTask(BulkTask<K, V, ?> par, int b, int i, int f, Node<K, V>[] t,
+                 BulkTask<K, V, R> nextRight) {
+            this.batch = b;
+            this.baseIndex = i;
+            this.tab = t;
+            this.nextRight = nextRight;
+            if (t == null)
+                this.baseSize = this.baseLimit = 0;
+            else if (par == null)
+                this.baseSize = this.baseLimit = t.length;
+            else {
+                this.baseLimit = f;
+                this.baseSize = par.baseSize;
+            }
         }
 
         /**
-         * Set nextEntry to first node of next non-empty table
-         * (in backwards order, to simplify checks).
+         * Returns the index at which to split off the upper half of
+         * this task's range, updating baseLimit and batch, or -1 if
+         * the remaining range should be processed directly.
          */
-        final void advance() {
-            for (; ; ) {
-                if (nextTableIndex >= 0) {
-                    if ((nextEntry = entryAt(currentTable,
-                            nextTableIndex--)) != null)
-                        break;
-                } else if (nextSegmentIndex >= 0) {
-                    Segment<K, V> seg = segmentAt(segments, nextSegmentIndex--);
-                    if (seg != null && (currentTable = seg.table) != null)
-                        nextTableIndex = currentTable.length - 1;
-                } else
-                    break;
+        final int split() {
+            int i = baseIndex, h;
+            if (batch > 0 && (h = (baseLimit + i) >>> 1) > i) {
+                batch >>>= 1;
+                return h;
             }
+            return -1;
         }
 
-        final HashEntry<K, V> nextEntry() {
-            HashEntry<K, V> e = nextEntry;
-            if (e == null)
-                throw new NoSuchElementException();
-            lastReturned = e; // cannot assign until after null check
-            if ((nextEntry = e.next) == null)
-                advance();
-            return e;
-        }
-
-        public final boolean hasNext() {
-            return nextEntry != null;
+        /**
+         * Returns a traverser over the (unsplit) remainder of this
+         * task's range.
+         */
+        final Traverser<K, V> traverser() {
+            return new Traverser<K, V>(tab, baseSize, baseIndex, baseLimit);
         }
+    }
 
-        public final boolean hasMoreElements() {
-            return nextEntry != null;
-        }
+    /*
+     * Task classes. Coded in a regular but ugly format/style to
+     * simplify checks that each variant differs in the right way from
+     * others. Each compute() first forks the upper halves of its
+     * range, then processes what is left, then joins the forks.
+     */
 
-        public final void remove() {
-            if (lastReturned == null)
-                throw new IllegalStateException();
-            ConcurrentHashMap.this.remove(lastReturned.key);
-            lastReturned = null;
-        }
-    }
+    @SuppressWarnings("serial")
+    static final class ForEachKeyTask<K, V>
+            extends BulkTask<K, V, Void> {
+        final Consumer<? super K> action;
 
-    final class KeyIterator
-            extends HashIterator
-            implements Iterator<K>, Enumeration<K> {
-        public final K next() {
-            return super.nextEntry().key;
+        ForEachKeyTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                       Consumer<? super K> action, ForEachKeyTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.action = action;
         }
 
-        public final K nextElement() {
-            return super.nextEntry().key;
+        protected final Void compute() {
+            final Consumer<? super K> action = this.action;
+            ForEachKeyTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new ForEachKeyTask<K, V>
+                 (this, batch, h, f, tab, action, rights)).fork();
+            }
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; )
+                action.accept(p.key);
+            for (BulkTask<K, V, Void> t = rights; t != null; t = t.nextRight)
+                t.join();
+            return null;
         }
     }
 
-    final class ValueIterator
-            extends HashIterator
-            implements Iterator<V>, Enumeration<V> {
-        public final V next() {
-            return super.nextEntry().value;
+    @SuppressWarnings("serial")
+    static final class ForEachValueTask<K, V>
+            extends BulkTask<K, V, Void> {
+        final Consumer<? super V> action;
+
+        ForEachValueTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                         Consumer<? super V> action, ForEachValueTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.action = action;
         }
 
-        public final V nextElement() {
-            return super.nextEntry().value;
+        protected final Void compute() {
+            final Consumer<? super V> action = this.action;
+            ForEachValueTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new ForEachValueTask<K, V>
+                 (this, batch, h, f, tab, action, rights)).fork();
+            }
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; )
+                action.accept(p.val);
+            for (BulkTask<K, V, Void> t = rights; t != null; t = t.nextRight)
+                t.join();
+            return null;
         }
     }
 
-    /**
-     * Custom Entry class used by EntryIterator.next(), that relays
-     * setValue changes to the underlying map.
-     */
-    final class WriteThroughEntry
-            extends AbstractMap.SimpleEntry<K, V> {
-        WriteThroughEntry(K k, V v) {
-            super(k, v);
-        }
+    @SuppressWarnings("serial")
+    static final class ForEachMappingTask<K, V>
+            extends BulkTask<K, V, Void> {
+        final BiConsumer<? super K, ? super V> action;
 
-        /**
-         * Set our entry's value and write through to the map. The
-         * value to return is somewhat arbitrary here. Since a
-         * WriteThroughEntry does not necessarily track asynchronous
-         * changes, the most recent "previous" value could be
-         * different from what we return (or could even have been
-         * removed in which case the put will re-establish). We do not
-         * and cannot guarantee more.
-         */
-        public V setValue(V value) {
-            if (value == null) throw new NullPointerException();
-            V v = super.setValue(value);
-            ConcurrentHashMap.this.put(getKey(), value);
-            return v;
+        ForEachMappingTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                           BiConsumer<? super K, ? super V> action,
+                           ForEachMappingTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.action = action;
         }
-    }
 
-    final class EntryIterator
-            extends HashIterator
-            implements Iterator<Entry<K, V>> {
-        public Map.Entry<K, V> next() {
-            HashEntry<K, V> e = super.nextEntry();
-            return new WriteThroughEntry(e.key, e.value);
+        protected final Void compute() {
+            final BiConsumer<? super K, ? super V> action = this.action;
+            ForEachMappingTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new ForEachMappingTask<K, V>
+                 (this, batch, h, f, tab, action, rights)).fork();
+            }
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; )
+                action.accept(p.key, p.val);
+            for (BulkTask<K, V, Void> t = rights; t != null; t = t.nextRight)
+                t.join();
+            return null;
         }
     }
 
-    final class KeySet extends AbstractSet<K> {
-        public Iterator<K> iterator() {
-            return new KeyIterator();
+    @SuppressWarnings("serial")
+    static final class ForEachTransformedMappingTask<K, V, U>
+            extends BulkTask<K, V, Void> {
+        final BiFunction<? super K, ? super V, ? extends U> transformer;
+        final Consumer<? super U> action;
+
+        ForEachTransformedMappingTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                                      BiFunction<? super K, ? super V, ? extends U> transformer,
+                                      Consumer<? super U> action,
+                                      ForEachTransformedMappingTask<K, V, U> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.transformer = transformer;
+            this.action = action;
         }
 
-        public int size() {
-            return ConcurrentHashMap.this.size();
+        protected final Void compute() {
+            final BiFunction<? super K, ? super V, ? extends U> transformer = this.transformer;
+            final Consumer<? super U> action = this.action;
+            ForEachTransformedMappingTask<K, V, U> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new ForEachTransformedMappingTask<K, V, U>
+                 (this, batch, h, f, tab, transformer, action, rights)).fork();
+            }
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; ) {
+                U u;
+                if ((u = transformer.apply(p.key, p.val)) != null)
+                    action.accept(u);
+            }
+            for (BulkTask<K, V, Void> t = rights; t != null; t = t.nextRight)
+                t.join();
+            return null;
         }
+    }
 
-        public boolean isEmpty() {
-            return ConcurrentHashMap.this.isEmpty();
+    @SuppressWarnings("serial")
+    static final class SearchKeysTask<K, V, U>
+            extends BulkTask<K, V, Void> {
+        final Function<? super K, ? extends U> searchFunction;
+        final AtomicReference<U> result;
+
+        SearchKeysTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                       Function<? super K, ? extends U> searchFunction,
+                       AtomicReference<U> result, SearchKeysTask<K, V, U> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.searchFunction = searchFunction;
+            this.result = result;
         }
 
-        public boolean contains(Object o) {
-            return ConcurrentHashMap.this.containsKey(o);
+        protected final Void compute() {
+            final Function<? super K, ? extends U> searchFunction = this.searchFunction;
+            final AtomicReference<U> result = this.result;
+            SearchKeysTask<K, V, U> rights = null;
+            for (int h, f; result.get() == null && (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new SearchKeysTask<K, V, U>
+                 (this, batch, h, f, tab, searchFunction, result, rights)).fork();
+            }
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; result.get() == null && (p = it.advance()) != null; ) {
+                U u;
+                if ((u = searchFunction.apply(p.key)) != null) {
+                    result.compareAndSet(null, u);
+                    break;
+                }
+            }
+            for (BulkTask<K, V, Void> t = rights; t != null; t = t.nextRight)
+                t.join();
+            return null;
         }
+    }
 
-        public boolean remove(Object o) {
-            return ConcurrentHashMap.this.remove(o) != null;
+    @SuppressWarnings("serial")
+    static final class SearchValuesTask<K, V, U>
+            extends BulkTask<K, V, Void> {
+        final Function<? super V, ? extends U> searchFunction;
+        final AtomicReference<U> result;
+
+        SearchValuesTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                         Function<? super V, ? extends U> searchFunction,
+                         AtomicReference<U> result, SearchValuesTask<K, V, U> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.searchFunction = searchFunction;
+            this.result = result;
         }
 
-        public void clear() {
-            ConcurrentHashMap.this.clear();
+        protected final Void compute() {
+            final Function<? super V, ? extends U> searchFunction = this.searchFunction;
+            final AtomicReference<U> result = this.result;
+            SearchValuesTask<K, V, U> rights = null;
+            for (int h, f; result.get() == null && (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new SearchValuesTask<K, V, U>
+                 (this, batch, h, f, tab, searchFunction, result, rights)).fork();
+            }
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; result.get() == null && (p = it.advance()) != null; ) {
+                U u;
+                if ((u = searchFunction.apply(p.val)) != null) {
+                    result.compareAndSet(null, u);
+                    break;
+                }
+            }
+            for (BulkTask<K, V, Void> t = rights; t != null; t = t.nextRight)
+                t.join();
+            return null;
         }
     }
 
-    final class Values extends AbstractCollection<V> {
-        public Iterator<V> iterator() {
-            return new ValueIterator();
+    @SuppressWarnings("serial")
+    static final class SearchMappingsTask<K, V, U>
+            extends BulkTask<K, V, Void> {
+        final BiFunction<? super K, ? super V, ? extends U> searchFunction;
+        final AtomicReference<U> result;
+
+        SearchMappingsTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                           BiFunction<? super K, ? super V, ? extends U> searchFunction,
+                           AtomicReference<U> result, SearchMappingsTask<K, V, U> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.searchFunction = searchFunction;
+            this.result = result;
         }
 
-        public int size() {
-            return ConcurrentHashMap.this.size();
+        protected final Void compute() {
+            final BiFunction<? super K, ? super V, ? extends U> searchFunction = this.searchFunction;
+            final AtomicReference<U> result = this.result;
+            SearchMappingsTask<K, V, U> rights = null;
+            for (int h, f; result.get() == null && (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new SearchMappingsTask<K, V, U>
+                 (this, batch, h, f, tab, searchFunction, result, rights)).fork();
+            }
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; result.get() == null && (p = it.advance()) != null; ) {
+                U u;
+                if ((u = searchFunction.apply(p.key, p.val)) != null) {
+                    result.compareAndSet(null, u);
+                    break;
+                }
+            }
+            for (BulkTask<K, V, Void> t = rights; t != null; t = t.nextRight)
+                t.join();
+            return null;
         }
+    }
 
-        public boolean isEmpty() {
-            return ConcurrentHashMap.this.isEmpty();
-        }
+    @SuppressWarnings("serial")
+    static final class ReduceKeysTask<K, V>
+            extends BulkTask<K, V, K> {
+        final BiFunction<? super K, ? super K, ? extends K> reducer;
 
-        public boolean contains(Object o) {
-            return ConcurrentHashMap.this.containsValue(o);
+        ReduceKeysTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                       BiFunction<? super K, ? super K, ? extends K> reducer,
+                       ReduceKeysTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.reducer = reducer;
         }
 
-        public void clear() {
-            ConcurrentHashMap.this.clear();
+        protected final K compute() {
+            final BiFunction<? super K, ? super K, ? extends K> reducer = this.reducer;
+            ReduceKeysTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new ReduceKeysTask<K, V>
+                 (this, batch, h, f, tab, reducer, rights)).fork();
+            }
+            K r = null;
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; ) {
+                K u = p.key;
+                r = (r == null) ? u : reducer.apply(r, u);
+            }
+            for (BulkTask<K, V, K> t = rights; t != null; t = t.nextRight) {
+                K tr;
+                if ((tr = t.join()) != null)
+                    r = (r == null) ? tr : reducer.apply(r, tr);
+            }
+            return r;
         }
     }
 
-    final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
-        public Iterator<Map.Entry<K, V>> iterator() {
-            return new EntryIterator();
+    @SuppressWarnings("serial")
+    static final class ReduceValuesTask<K, V>
+            extends BulkTask<K, V, V> {
+        final BiFunction<? super V, ? super V, ? extends V> reducer;
+
+        ReduceValuesTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                         BiFunction<? super V, ? super V, ? extends V> reducer,
+                         ReduceValuesTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.reducer = reducer;
         }
 
-        public boolean contains(Object o) {
-            if (!(o instanceof Map.Entry))
-                return false;
-            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
-            V v = ConcurrentHashMap.this.get(e.getKey());
-            return v != null && v.equals(e.getValue());
+        protected final V compute() {
+            final BiFunction<? super V, ? super V, ? extends V> reducer = this.reducer;
+            ReduceValuesTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new ReduceValuesTask<K, V>
+                 (this, batch, h, f, tab, reducer, rights)).fork();
+            }
+            V r = null;
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; ) {
+                V v = p.val;
+                r = (r == null) ? v : reducer.apply(r, v);
+            }
+            for (BulkTask<K, V, V> t = rights; t != null; t = t.nextRight) {
+                V tr;
+                if ((tr = t.join()) != null)
+                    r = (r == null) ? tr : reducer.apply(r, tr);
+            }
+            return r;
         }
+    }
 
-        public boolean remove(Object o) {
-            if (!(o instanceof Map.Entry))
-                return false;
-            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
-            return ConcurrentHashMap.this.remove(e.getKey(), e.getValue());
+    @SuppressWarnings("serial")
+    static final class MapReduceMappingsTask<K, V, U>
+            extends BulkTask<K, V, U> {
+        final BiFunction<? super K, ? super V, ? extends U> transformer;
+        final BiFunction<? super U, ? super U, ? extends U> reducer;
+
+        MapReduceMappingsTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                              BiFunction<? super K, ? super V, ? extends U> transformer,
+                              BiFunction<? super U, ? super U, ? extends U> reducer,
+                              MapReduceMappingsTask<K, V, U> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.transformer = transformer;
+            this.reducer = reducer;
         }
 
-        public int size() {
-            return ConcurrentHashMap.this.size();
+        protected final U compute() {
+            final BiFunction<? super K, ? super V, ? extends U> transformer = this.transformer;
+            final BiFunction<? super U, ? super U, ? extends U> reducer = this.reducer;
+            MapReduceMappingsTask<K, V, U> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new MapReduceMappingsTask<K, V, U>
+                 (this, batch, h, f, tab, transformer, reducer, rights)).fork();
+            }
+            U r = null;
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; ) {
+                U u;
+                if ((u = transformer.apply(p.key, p.val)) != null)
+                    r = (r == null) ? u : reducer.apply(r, u);
+            }
+            for (BulkTask<K, V, U> t = rights; t != null; t = t.nextRight) {
+                U tr;
+                if ((tr = t.join()) != null)
+                    r = (r == null) ? tr : reducer.apply(r, tr);
+            }
+            return r;
         }
+    }
 
-        public boolean isEmpty() {
-            return ConcurrentHashMap.this.isEmpty();
+    @SuppressWarnings("serial")
+    static final class MapReduceMappingsToDoubleTask<K, V>
+            extends BulkTask<K, V, Double> {
+        final ToDoubleBiFunction<? super K, ? super V> transformer;
+        final DoubleBinaryOperator reducer;
+        final double basis;
+
+        MapReduceMappingsToDoubleTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                                      ToDoubleBiFunction<? super K, ? super V> transformer,
+                                      double basis, DoubleBinaryOperator reducer,
+                                      MapReduceMappingsToDoubleTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.transformer = transformer;
+            this.basis = basis;
+            this.reducer = reducer;
         }
 
-        public void clear() {
-            ConcurrentHashMap.this.clear();
+        protected final Double compute() {
+            final ToDoubleBiFunction<? super K, ? super V> transformer = this.transformer;
+            final DoubleBinaryOperator reducer = this.reducer;
+            MapReduceMappingsToDoubleTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new MapReduceMappingsToDoubleTask<K, V>
+                 (this, batch, h, f, tab, transformer, basis, reducer, rights)).fork();
+            }
+            double r = basis;
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; )
+                r = reducer.applyAsDouble(r, transformer.applyAsDouble(p.key, p.val));
+            for (BulkTask<K, V, Double> t = rights; t != null; t = t.nextRight)
+                r = reducer.applyAsDouble(r, t.join().doubleValue());
+            return Double.valueOf(r);
         }
     }
 
-    /* ---------------- Serialization Support -------------- */
-
-    /**
-     * Save the state of the <tt>ConcurrentHashMap</tt> instance to a
-     * stream (i.e., serialize it).
-     *
-     * @param s the stream
-     * @serialData the key (Object) and value (Object)
-     * for each key-value mapping, followed by a null pair.
-     * The key-value mappings are emitted in no particular order.
-     */
-    private void writeObject(java.io.ObjectOutputStream s) throws IOException {
-        // force all segments for serialization compatibility
-        for (int k = 0; k < segments.length; ++k)
-            ensureSegment(k);
-        s.defaultWriteObject();
+    @SuppressWarnings("serial")
+    static final class MapReduceMappingsToLongTask<K, V>
+            extends BulkTask<K, V, Long> {
+        final ToLongBiFunction<? super K, ? super V> transformer;
+        final LongBinaryOperator reducer;
+        final long basis;
+
+        MapReduceMappingsToLongTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                                    ToLongBiFunction<? super K, ? super V> transformer,
+                                    long basis, LongBinaryOperator reducer,
+                                    MapReduceMappingsToLongTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.transformer = transformer;
+            this.basis = basis;
+            this.reducer = reducer;
+        }
 
-        final Segment<K, V>[] segments = this.segments;
-        for (int k = 0; k < segments.length; ++k) {
-            Segment<K, V> seg = segmentAt(segments, k);
-            seg.lock();
-            try {
-                HashEntry<K, V>[] tab = seg.table;
-                for (int i = 0; i < tab.length; ++i) {
-                    HashEntry<K, V> e;
-                    for (e = entryAt(tab, i); e != null; e = e.next) {
-                        s.writeObject(e.key);
-                        s.writeObject(e.value);
-                    }
-                }
-            } finally {
-                seg.unlock();
+        protected final Long compute() {
+            final ToLongBiFunction<? super K, ? super V> transformer = this.transformer;
+            final LongBinaryOperator reducer = this.reducer;
+            MapReduceMappingsToLongTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new MapReduceMappingsToLongTask<K, V>
+                 (this, batch, h, f, tab, transformer, basis, reducer, rights)).fork();
             }
+            long r = basis;
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; )
+                r = reducer.applyAsLong(r, transformer.applyAsLong(p.key, p.val));
+            for (BulkTask<K, V, Long> t = rights; t != null; t = t.nextRight)
+                r = reducer.applyAsLong(r, t.join().longValue());
+            return Long.valueOf(r);
         }
-        s.writeObject(null);
-        s.writeObject(null);
     }
 
-    /**
-     * Reconstitute the <tt>ConcurrentHashMap</tt> instance from a
-     * stream (i.e., deserialize it).
-     *
-     * @param s the stream
-     */
-    @SuppressWarnings("unchecked")
-    private void readObject(java.io.ObjectInputStream s)
-            throws IOException, ClassNotFoundException {
-        // Don't call defaultReadObject()
-        ObjectInputStream.GetField oisFields = s.readFields();
-        final Segment<K, V>[] oisSegments = (Segment<K, V>[]) oisFields.get("segments", null);
-
-        final int ssize = oisSegments.length;
-        if (ssize < 1 || ssize > MAX_SEGMENTS
-                || (ssize & (ssize - 1)) != 0)  // ssize not power of two
-            throw new java.io.InvalidObjectException("Bad number of segments:"
-                    + ssize);
-        int sshift = 0, ssizeTmp = ssize;
-        while (ssizeTmp > 1) {
-            ++sshift;
-            ssizeTmp >>>= 1;
+    @SuppressWarnings("serial")
+    static final class MapReduceMappingsToIntTask<K, V>
+            extends BulkTask<K, V, Integer> {
+        final ToIntBiFunction<? super K, ? super V> transformer;
+        final IntBinaryOperator reducer;
+        final int basis;
+
+        MapReduceMappingsToIntTask(BulkTask<K, V, ?> p, int b, int i, int f, Node<K, V>[] t,
+                                   ToIntBiFunction<? super K, ? super V> transformer,
+                                   int basis, IntBinaryOperator reducer,
+                                   MapReduceMappingsToIntTask<K, V> nextRight) {
+            super(p, b, i, f, t, nextRight);
+            this.transformer = transformer;
+            this.basis = basis;
+            this.reducer = reducer;
         }
-        UNSAFE.putIntVolatile(this, SEGSHIFT_OFFSET, 32 - sshift);
-        UNSAFE.putIntVolatile(this, SEGMASK_OFFSET, ssize - 1);
-        UNSAFE.putObjectVolatile(this, SEGMENTS_OFFSET, oisSegments);
 
-        // set hashMask
-        UNSAFE.putIntVolatile(this, HASHSEED_OFFSET, randomHashSeed(this));
-
-        // Re-initialize segments to be minimally sized, and let grow.
-        int cap = MIN_SEGMENT_TABLE_CAPACITY;
-        final Segment<K, V>[] segments = this.segments;
-        for (int k = 0; k < segments.length; ++k) {
-            Segment<K, V> seg = segments[k];
-            if (seg != null) {
-                seg.threshold = (int) (cap * seg.loadFactor);
-                seg.table = (HashEntry<K, V>[]) new HashEntry[cap];
+        protected final Integer compute() {
+            final ToIntBiFunction<? super K, ? super V> transformer = this.transformer;
+            final IntBinaryOperator reducer = this.reducer;
+            MapReduceMappingsToIntTask<K, V> rights = null;
+            for (int h, f; (h = split()) >= 0; ) {
+                f = baseLimit;
+                baseLimit = h;
+                (rights = new MapReduceMappingsToIntTask<K, V>
+                 (this, batch, h, f, tab, transformer, basis, reducer, rights)).fork();
             }
-        }
-
-        // Read the keys and values, and put the mappings in the table
-        for (; ; ) {
-            K key = (K) s.readObject();
-            V value = (V) s.readObject();
-            if (key == null)
-                break;
-            put(key, value);
+            int r = basis;
+            Traverser<K, V> it = traverser();
+            for (Node<K, V> p; (p = it.advance()) != null; )
+                r = reducer.applyAsInt(r, transformer.applyAsInt(p.key, p.val));
+            for (BulkTask<K, V, Integer> t = rights; t != null; t = t.nextRight)
+                r = reducer.applyAsInt(r, t.join().intValue());
+            return Integer.valueOf(r);
         }
     }
 
     // Unsafe mechanics
-    private static final sun.misc.Unsafe UNSAFE;
-    private static final long SBASE;
-    private static final int SSHIFT;
-    private static final long TBASE;
-    private static final int TSHIFT;
-    private static final long HASHSEED_OFFSET;
-    private static final long SEGSHIFT_OFFSET;
-    private static final long SEGMASK_OFFSET;
-    private static final long SEGMENTS_OFFSET;
+    private static final sun.misc.Unsafe U;
+    private static final long SIZECTL;
+    private static final long TRANSFERINDEX;
+    private static final long BASECOUNT;
+    private static final long CELLSBUSY;
+    private static final long CELLVALUE;
+    private static final long ABASE;
+    private static final int ASHIFT;
 
     static {
-        int ss, ts;
         try {
-            UNSAFE = sun.misc.Unsafe.getUnsafe();
-            Class tc = HashEntry[].class;
-            Class sc = Segment[].class;
-            TBASE = UNSAFE.arrayBaseOffset(tc);
-            SBASE = UNSAFE.arrayBaseOffset(sc);
-            ts = UNSAFE.arrayIndexScale(tc);
-            ss = UNSAFE.arrayIndexScale(sc);
-            HASHSEED_OFFSET = UNSAFE.objectFieldOffset(
-                    ConcurrentHashMap.class.getDeclaredField("hashSeed"));
-            SEGSHIFT_OFFSET = UNSAFE.objectFieldOffset(
-                    ConcurrentHashMap.class.getDeclaredField("segmentShift"));
-            SEGMASK_OFFSET = UNSAFE.objectFieldOffset(
-                    ConcurrentHashMap.class.getDeclaredField("segmentMask"));
-            SEGMENTS_OFFSET = UNSAFE.objectFieldOffset(
-                    ConcurrentHashMap.class.getDeclaredField("segments"));
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentHashMap.class;
+            SIZECTL = U.objectFieldOffset
+                (k.getDeclaredField("sizeCtl"));
+            TRANSFERINDEX = U.objectFieldOffset
+                (k.getDeclaredField("transferIndex"));
+            BASECOUNT = U.objectFieldOffset
+                (k.getDeclaredField("baseCount"));
+            CELLSBUSY = U.objectFieldOffset
+                (k.getDeclaredField("cellsBusy"));
+            Class<?> ck = CounterCell.class;
+            CELLVALUE = U.objectFieldOffset
+                (ck.getDeclaredField("value"));
+            Class<?> ak = Node[].class;
+            ABASE = U.arrayBaseOffset(ak);
+            int scale = U.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
         } catch (Exception e) {
             throw new Error(e);
         }
-        if ((ss & (ss - 1)) != 0 || (ts & (ts - 1)) != 0)
-            throw new Error("data type scale not a power of two");
-        SSHIFT = 31 - Integer.numberOfLeadingZeros(ss);
-        TSHIFT = 31 - Integer.numberOfLeadingZeros(ts);
     }
-
 }
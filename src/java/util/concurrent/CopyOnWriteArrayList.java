@@ -835,6 +835,38 @@ public class CopyOnWriteArrayList<E>
         }
     }
 
+    /**
+     * Sorts this list according to the order induced by the specified
+     * comparator, as by {@link Collections#sort(List, Comparator)}.
+     *
+     * <p>The sort is performed on a single fresh copy of the backing
+     * array, under the lock, which is then published in one step.
+     * Iterators already in progress continue over the unsorted
+     * snapshot, and no element-by-element write-back takes place.
+     *
+     * @param c the comparator to determine the order of the list.  A
+     *        {@code null} value indicates that the elements' <i>natural
+     *        ordering</i> should be used.
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException (optional) if the comparator is
+     *         found to violate the {@link Comparator} contract
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] elements = getArray();
+            Object[] newElements = Arrays.copyOf(elements, elements.length);
+            Arrays.sort((E[]) newElements, c);
+            setArray(newElements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Saves the state of the list to a stream (that is, serializes it).
      *
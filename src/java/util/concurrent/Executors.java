@@ -91,6 +91,51 @@ public class Executors {
                                       new LinkedBlockingQueue<Runnable>());
     }
 
+    /**
+     * Creates a thread pool that maintains enough threads to support
+     * the given parallelism level, and may use multiple queues to
+     * reduce contention.  Each worker thread has its own deque of
+     * tasks; submissions are spread over a set of submission queues
+     * rather than a single shared queue, and idle workers steal tasks
+     * from busy ones, so that submission and dispatch scale with the
+     * number of threads.  Tasks are processed in first-in-first-out
+     * order within each queue, but no overall ordering is guaranteed.
+     * The actual number of threads may grow and shrink dynamically.
+     *
+     * <p>The pool is a {@link ForkJoinPool} in asynchronous mode, and
+     * accepts plain {@link Runnable} and {@link Callable} tasks.  Its
+     * shutdown methods follow those of {@link ThreadPoolExecutor}:
+     * {@link ExecutorService#shutdown shutdown} runs tasks already
+     * submitted but accepts no new ones, and
+     * {@link ExecutorService#shutdownNow shutdownNow} removes and
+     * returns the tasks that never commenced execution, in the form in
+     * which they were queued.  Unlike {@code ThreadPoolExecutor}, tasks
+     * that are executing when {@code shutdownNow} is called are
+     * cancelled as well as interrupted.  The worker threads are daemon
+     * threads.
+     *
+     * @param parallelism the targeted parallelism level
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code parallelism <= 0}
+     * @since 1.8
+     */
+    public static ExecutorService newWorkStealingPool(int parallelism) {
+        return new WorkStealingPool(parallelism);
+    }
+
+    /**
+     * Creates a work-stealing thread pool using all
+     * {@link Runtime#availableProcessors available processors}
+     * as its target parallelism level.
+     *
+     * @return the newly created thread pool
+     * @see #newWorkStealingPool(int)
+     * @since 1.8
+     */
+    public static ExecutorService newWorkStealingPool() {
+        return new WorkStealingPool(Runtime.getRuntime().availableProcessors());
+    }
+
     /**
      * Creates a thread pool that reuses a fixed number of threads
      * operating off a shared unbounded queue, using the provided
@@ -663,6 +708,33 @@ public class Executors {
         }
     }
 
+    /**
+     * A ForkJoinPool in FIFO mode whose shutdownNow returns the tasks
+     * that were still queued, as ThreadPoolExecutor does, instead of
+     * cancelling them.
+     */
+    static final class WorkStealingPool extends ForkJoinPool {
+        WorkStealingPool(int parallelism) {
+            super(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                  null, true);
+        }
+
+        public List<Runnable> shutdownNow() {
+            shutdown(); // stop accepting before draining
+            List<ForkJoinTask<?>> queued = new ArrayList<ForkJoinTask<?>>();
+            drainTasksTo(queued);
+            super.shutdownNow();
+            List<Runnable> tasks = new ArrayList<Runnable>(queued.size());
+            for (ForkJoinTask<?> t : queued) {
+                if (t instanceof Runnable)
+                    tasks.add((Runnable) t);
+                else
+                    t.cancel(false); // as ForkJoinPool would
+            }
+            return tasks;
+        }
+    }
+
     static class FinalizableDelegatedExecutorService
         extends DelegatedExecutorService {
         FinalizableDelegatedExecutorService(ExecutorService executor) {
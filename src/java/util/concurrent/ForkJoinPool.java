@@ -70,7 +70,15 @@ import java.util.concurrent.locks.Condition;
  * constructors, {@code ForkJoinPool}s may also be appropriate for use
  * with event-style tasks that are never joined.
  *
- * <p>A {@code ForkJoinPool} is constructed with a given target
+ * <p>A static {@link #commonPool()} is available and appropriate for
+ * most applications. The common pool is used by any ForkJoinTask that
+ * is not explicitly submitted to a specified pool. Using the common
+ * pool normally reduces resource usage (its threads are slowly
+ * reclaimed during periods of non-use, and reinstated upon subsequent
+ * use).  The common pool is not constructed until it is first used.
+ *
+ * <p>For applications that require separate or custom pools, a {@code
+ * ForkJoinPool} may be constructed with a given target
  * parallelism level; by default, equal to the number of available
  * processors. The pool attempts to maintain enough active (or
  * available) threads by dynamically adding, suspending, or resuming
@@ -125,20 +133,38 @@ import java.util.concurrent.locks.Condition;
  * used for all parallel task execution in a program or subsystem.
  * Otherwise, use would not usually outweigh the construction and
  * bookkeeping overhead of creating a large set of threads. For
- * example, a common pool could be used for the {@code SortTasks}
+ * example, the common pool could be used for the {@code SortTasks}
  * illustrated in {@link RecursiveAction}. Because {@code
  * ForkJoinPool} uses threads in {@linkplain java.lang.Thread#isDaemon
  * daemon} mode, there is typically no need to explicitly {@link
  * #shutdown} such a pool upon program exit.
  *
  * <pre>
- * static final ForkJoinPool mainPool = new ForkJoinPool();
- * ...
  * public void sort(long[] array) {
- *   mainPool.invoke(new SortTask(array, 0, array.length));
+ *   ForkJoinPool.commonPool().invoke(new SortTask(array, 0, array.length));
  * }
  * </pre>
  *
+ * <p>The parameters used to construct the common pool may be controlled by
+ * setting the following {@linkplain System#getProperty system properties}:
+ * <ul>
+ * <li>{@code java.util.concurrent.ForkJoinPool.common.parallelism}
+ * - the parallelism level, a non-negative integer
+ * <li>{@code java.util.concurrent.ForkJoinPool.common.threadFactory}
+ * - the class name of a {@link ForkJoinWorkerThreadFactory}
+ * <li>{@code java.util.concurrent.ForkJoinPool.common.exceptionHandler}
+ * - the class name of a {@link Thread.UncaughtExceptionHandler}
+ * <li>{@code java.util.concurrent.ForkJoinPool.common.maximumSpares}
+ * - the maximum number of extra threads allowed to maintain target
+ * parallelism (default 256).
+ * </ul>
+ * The system class loader is used to load these classes.  Upon any
+ * error in establishing these settings, default parameters are used.
+ * It is possible to disable or limit the use of threads in the common
+ * pool by setting the parallelism property to zero, and/or using a
+ * factory that may return {@code null}. However doing so may cause
+ * unjoined tasks to never be executed.
+ *
  * <p><b>Implementation notes</b>: This implementation restricts the
  * maximum number of running threads to 32767. Attempts to create
  * pools with greater than the maximum number result in
@@ -419,6 +445,37 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     private static final AtomicInteger poolNumberGenerator;
 
+    /**
+     * Parallelism level requested for the common pool, as established
+     * from system properties (or the default) in the static
+     * initializer.  Zero if the common pool is not to be used for
+     * asynchronous execution; the pool itself still runs with at
+     * least one thread.
+     */
+    static final int commonParallelism;
+
+    /**
+     * Maximum number of spare threads the common pool may create to
+     * compensate for blocked joins and managed blockers.
+     */
+    static final int commonMaxSpares;
+
+    /**
+     * Default value for commonMaxSpares. Overflow and underflow are
+     * impossible to guard against in general, so this is just a
+     * sanity bound protecting against runaway thread creation when
+     * many tasks block at once.
+     */
+    private static final int DEFAULT_COMMON_MAX_SPARES = 256;
+
+    /**
+     * Holder for the common pool, which is constructed only on first
+     * use, and so never exists in programs that do not use it.
+     */
+    static final class CommonPoolHolder {
+        static final ForkJoinPool common = makeCommonPool();
+    }
+
     /**
      * Generator for initial random seeds for worker victim
      * selection. This is used only to create initial seeds. Random
@@ -581,6 +638,18 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     final boolean locallyFifo;
 
+    /**
+     * True for the common pool, which ignores shutdown requests.
+     */
+    final boolean isCommon;
+
+    /**
+     * Maximum number of threads beyond the target parallelism that
+     * may be created to compensate for blocked joins and managed
+     * blockers.  Unbounded (up to MAX_ID) except for the common pool.
+     */
+    final int maxSpares;
+
     /**
      * The number of threads in ForkJoinWorkerThreads.helpQuiescePool.
      * When non-zero, suppresses automatic shutdown when active
@@ -1003,13 +1072,18 @@ public class ForkJoinPool extends AbstractExecutorService {
                     if (UNSAFE.compareAndSwapLong(this, ctlOffset, c, nc))
                         return true;             // no compensation needed
                 }
-                else if (tc + pc < MAX_ID) {
+                else if (tc + pc < MAX_ID && tc < maxSpares) {
                     long nc = ((c + TC_UNIT) & TC_MASK) | (c & ~TC_MASK);
                     if (UNSAFE.compareAndSwapLong(this, ctlOffset, c, nc)) {
                         addWorker();
                         return true;            // create a replacement
                     }
                 }
+                else {                          // out of spares
+                    long nc = ((c - AC_UNIT) & AC_MASK) | (c & ~AC_MASK);
+                    if (UNSAFE.compareAndSwapLong(this, ctlOffset, c, nc))
+                        return true;            // block uncompensated
+                }
                 // try to back out on any failure and let caller retry
             } while (!UNSAFE.compareAndSwapInt(this, blockedCountOffset,
                                                b = blockedCount, b - 1));
@@ -1461,15 +1535,44 @@ public class ForkJoinPool extends AbstractExecutorService {
                         ForkJoinWorkerThreadFactory factory,
                         Thread.UncaughtExceptionHandler handler,
                         boolean asyncMode) {
+        this(checkParallelism(parallelism), checkFactory(factory), handler,
+             asyncMode, false, MAX_ID,
+             "ForkJoinPool-" + poolNumberGenerator.incrementAndGet() +
+             "-worker-");
+    }
+
+    private static int checkParallelism(int parallelism) {
         checkPermission();
-        if (factory == null)
-            throw new NullPointerException();
         if (parallelism <= 0 || parallelism > MAX_ID)
             throw new IllegalArgumentException();
+        return parallelism;
+    }
+
+    private static ForkJoinWorkerThreadFactory checkFactory
+        (ForkJoinWorkerThreadFactory factory) {
+        if (factory == null)
+            throw new NullPointerException();
+        return factory;
+    }
+
+    /**
+     * Creates a {@code ForkJoinPool} with the given parameters, without
+     * any security checks or parameter validation.  Invoked directly by
+     * makeCommonPool.
+     */
+    private ForkJoinPool(int parallelism,
+                         ForkJoinWorkerThreadFactory factory,
+                         Thread.UncaughtExceptionHandler handler,
+                         boolean asyncMode,
+                         boolean isCommon,
+                         int maxSpares,
+                         String workerNamePrefix) {
         this.parallelism = parallelism;
         this.factory = factory;
         this.ueh = handler;
         this.locallyFifo = asyncMode;
+        this.isCommon = isCommon;
+        this.maxSpares = maxSpares;
         long np = (long)(-parallelism); // offset ctl counts
         this.ctl = ((np << AC_SHIFT) & AC_MASK) | ((np << TC_SHIFT) & TC_MASK);
         this.submissionQueue = new ForkJoinTask<?>[INITIAL_QUEUE_CAPACITY];
@@ -1483,10 +1586,33 @@ public class ForkJoinPool extends AbstractExecutorService {
         workers = new ForkJoinWorkerThread[n + 1];
         this.submissionLock = new ReentrantLock();
         this.termination = submissionLock.newCondition();
-        StringBuilder sb = new StringBuilder("ForkJoinPool-");
-        sb.append(poolNumberGenerator.incrementAndGet());
-        sb.append("-worker-");
-        this.workerNamePrefix = sb.toString();
+        this.workerNamePrefix = workerNamePrefix;
+    }
+
+    /**
+     * Returns the common pool instance. This pool is statically
+     * constructed on first use; its run state is unaffected by
+     * attempts to {@link #shutdown} or {@link #shutdownNow}. However
+     * this pool and any ongoing processing are automatically
+     * terminated upon program {@link System#exit}.  Any program that
+     * relies on asynchronous task processing to complete before
+     * program termination should invoke {@code
+     * commonPool().}{@link #awaitQuiescence awaitQuiescence}, before
+     * exit.
+     *
+     * @return the common pool instance
+     */
+    public static ForkJoinPool commonPool() {
+        return CommonPoolHolder.common;
+    }
+
+    /**
+     * Returns the targeted parallelism level of the common pool.
+     *
+     * @return the targeted parallelism level of the common pool
+     */
+    public static int getCommonPoolParallelism() {
+        return commonParallelism;
     }
 
     // Execution methods
@@ -1538,6 +1664,17 @@ public class ForkJoinPool extends AbstractExecutorService {
             addSubmission(task);
     }
 
+    /**
+     * Submits a task forked by a thread that is not a worker of any
+     * pool.  Used by ForkJoinTask.fork for the common pool, which is
+     * never shut down, so there is no need to check run state.
+     *
+     * @param task the task
+     */
+    final void externalPush(ForkJoinTask<?> task) {
+        addSubmission(task);
+    }
+
     /**
      * Arranges for (asynchronous) execution of the given task.
      *
@@ -1898,11 +2035,13 @@ public class ForkJoinPool extends AbstractExecutorService {
     }
 
     /**
-     * Initiates an orderly shutdown in which previously submitted
-     * tasks are executed, but no new tasks will be accepted.
-     * Invocation has no additional effect if already shut down.
-     * Tasks that are in the process of being submitted concurrently
-     * during the course of this method may or may not be rejected.
+     * Possibly initiates an orderly shutdown in which previously
+     * submitted tasks are executed, but no new tasks will be
+     * accepted.  Invocation has no effect on execution state if this
+     * is the {@link #commonPool()}, and no additional effect if
+     * already shut down.  Tasks that are in the process of being
+     * submitted concurrently during the course of this method may or
+     * may not be rejected.
      *
      * @throws SecurityException if a security manager exists and
      *         the caller is not permitted to modify threads
@@ -1911,15 +2050,20 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     public void shutdown() {
         checkPermission();
+        if (isCommon)
+            return;
         shutdown = true;
         tryTerminate(false);
     }
 
     /**
-     * Attempts to cancel and/or stop all tasks, and reject all
-     * subsequently submitted tasks.  Tasks that are in the process of
-     * being submitted or executed concurrently during the course of
-     * this method may or may not be rejected. This method cancels
+     * Possibly attempts to cancel and/or stop all tasks, and reject
+     * all subsequently submitted tasks.  Invocation has no effect on
+     * execution state if this is the {@link #commonPool()}, and no
+     * additional effect if already shut down. Otherwise, tasks that
+     * are in the process of being submitted or executed concurrently
+     * during the course of this method may or may not be
+     * rejected. This method cancels
      * both existing and unexecuted tasks, in order to permit
      * termination in the presence of task dependencies. So the method
      * always returns an empty list (unlike the case for some other
@@ -1933,8 +2077,10 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     public List<Runnable> shutdownNow() {
         checkPermission();
-        shutdown = true;
-        tryTerminate(true);
+        if (!isCommon) {
+            shutdown = true;
+            tryTerminate(true);
+        }
         return Collections.emptyList();
     }
 
@@ -1985,9 +2131,12 @@ public class ForkJoinPool extends AbstractExecutorService {
     }
 
     /**
-     * Blocks until all tasks have completed execution after a shutdown
-     * request, or the timeout occurs, or the current thread is
-     * interrupted, whichever happens first.
+     * Blocks until all tasks have completed execution after a
+     * shutdown request, or the timeout occurs, or the current thread
+     * is interrupted, whichever happens first. Because the {@link
+     * #commonPool()} never terminates until program shutdown, when
+     * applied to the common pool, this method is equivalent to {@link
+     * #awaitQuiescence(long, TimeUnit)} but always returns {@code false}.
      *
      * @param timeout the maximum time to wait
      * @param unit the time unit of the timeout argument
@@ -1997,6 +2146,12 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     public boolean awaitTermination(long timeout, TimeUnit unit)
         throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (isCommon) {
+            awaitQuiescence(timeout, unit);
+            return false;
+        }
         long nanos = unit.toNanos(timeout);
         final ReentrantLock lock = this.submissionLock;
         lock.lock();
@@ -2013,6 +2168,39 @@ public class ForkJoinPool extends AbstractExecutorService {
         }
     }
 
+    /**
+     * If called by a ForkJoinTask operating in this pool, equivalent
+     * in effect to {@link ForkJoinTask#helpQuiesce}. Otherwise,
+     * waits and/or attempts to assist performing tasks until this
+     * pool {@link #isQuiescent} or the indicated timeout elapses.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return {@code true} if quiescent; {@code false} if the
+     * timeout elapsed.
+     */
+    public boolean awaitQuiescence(long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        Thread t = Thread.currentThread();
+        if ((t instanceof ForkJoinWorkerThread) &&
+            ((ForkJoinWorkerThread)t).pool == this) {
+            ForkJoinTask.helpQuiesce();
+            return true;
+        }
+        long deadline = System.nanoTime() + nanos;
+        for (;;) {
+            ForkJoinTask<?> task;
+            if (isQuiescent() && !hasQueuedSubmissions())
+                return true;
+            if (deadline - System.nanoTime() <= 0L)
+                return false;
+            if ((task = pollSubmission()) != null)
+                task.doExec();
+            else
+                Thread.yield();
+        }
+    }
+
     /**
      * Interface for extending managed parallelism for tasks running
      * in {@link ForkJoinPool}s.
@@ -2130,6 +2318,34 @@ public class ForkJoinPool extends AbstractExecutorService {
         return (RunnableFuture<T>) ForkJoinTask.adapt(callable);
     }
 
+    /**
+     * Creates and returns the common pool, respecting user settings
+     * specified via system properties.
+     */
+    private static ForkJoinPool makeCommonPool() {
+        ForkJoinWorkerThreadFactory factory = null;
+        Thread.UncaughtExceptionHandler handler = null;
+        try {  // ignore exceptions in accessing/parsing properties
+            String fp = System.getProperty
+                ("java.util.concurrent.ForkJoinPool.common.threadFactory");
+            String hp = System.getProperty
+                ("java.util.concurrent.ForkJoinPool.common.exceptionHandler");
+            if (fp != null)
+                factory = ((ForkJoinWorkerThreadFactory)ClassLoader.
+                           getSystemClassLoader().loadClass(fp).newInstance());
+            if (hp != null)
+                handler = ((Thread.UncaughtExceptionHandler)ClassLoader.
+                           getSystemClassLoader().loadClass(hp).newInstance());
+        } catch (Exception ignore) {
+        }
+        if (factory == null)
+            factory = defaultForkJoinWorkerThreadFactory;
+        int parallelism = (commonParallelism > 0) ? commonParallelism : 1;
+        return new ForkJoinPool(parallelism, factory, handler, false, true,
+                                commonMaxSpares,
+                                "ForkJoinPool.commonPool-worker-");
+    }
+
     // Unsafe mechanics
     private static final sun.misc.Unsafe UNSAFE;
     private static final long ctlOffset;
@@ -2172,6 +2388,28 @@ public class ForkJoinPool extends AbstractExecutorService {
         if ((s & (s-1)) != 0)
             throw new Error("data type scale not a power of two");
         ASHIFT = 31 - Integer.numberOfLeadingZeros(s);
+
+        int par = -1, spares = DEFAULT_COMMON_MAX_SPARES;
+        try {  // ignore exceptions in accessing/parsing properties
+            String pp = System.getProperty
+                ("java.util.concurrent.ForkJoinPool.common.parallelism");
+            String sp = System.getProperty
+                ("java.util.concurrent.ForkJoinPool.common.maximumSpares");
+            if (pp != null)
+                par = Integer.parseInt(pp);
+            if (sp != null)
+                spares = Integer.parseInt(sp);
+        } catch (Exception ignore) {
+        }
+        if (par < 0 && // default 1 less than #cores
+            (par = Runtime.getRuntime().availableProcessors() - 1) <= 0)
+            par = 1;
+        if (par > MAX_ID)
+            par = MAX_ID;
+        if (spares < 0)
+            spares = 0;
+        commonParallelism = par;
+        commonMaxSpares = spares;
     }
 
 }
@@ -656,6 +656,120 @@ public class LinkedBlockingDeque<E>
         return offerLast(e, timeout, unit);
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * end of this deque, in the order they are returned by the
+     * collection's iterator, waiting if necessary for space to become
+     * available.  The lock is acquired once for each batch of elements
+     * that fits, rather than once per element.
+     *
+     * <p>If interrupted while waiting, the elements inserted before the
+     * interruption remain in this deque.
+     *
+     * @param c the collection of elements to insert
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this deque
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        linkAllLast(toInsertArray(c), false, 0L);
+    }
+
+    /**
+     * Inserts the elements of the specified collection at the end of
+     * this deque, in the order they are returned by the collection's
+     * iterator, waiting if necessary up to the specified wait time for
+     * space to become available.  Elements are inserted in batches as
+     * in {@link #putAll}.
+     *
+     * <p>If interrupted while waiting, the elements inserted before the
+     * interruption remain in this deque.
+     *
+     * @param c the collection of elements to insert
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of leading elements of the collection that were
+     *         inserted, which is less than its size only if the waiting
+     *         time elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this deque
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return linkAllLast(toInsertArray(c), true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Returns the elements of c for bulk insertion, checking them first
+     * so that a null element inserts nothing.
+     */
+    private Object[] toInsertArray(Collection<? extends E> c) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object e : a)
+            if (e == null)
+                throw new NullPointerException();
+        return a;
+    }
+
+    /**
+     * Links the elements of a as last elements, as many per wake-up
+     * as fit, signalling takers once per run of inserts.
+     *
+     * @return the number of elements inserted
+     */
+    @SuppressWarnings("unchecked")
+    private int linkAllLast(Object[] a, boolean timed, long nanos)
+        throws InterruptedException {
+        final int len = a.length;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int n = 0;
+            while (n < len) {
+                while (count >= capacity) {
+                    if (!timed)
+                        notFull.await();
+                    else if (nanos <= 0)
+                        return n;
+                    else
+                        nanos = notFull.awaitNanos(nanos);
+                }
+                int k = Math.min(len - n, capacity - count);
+                for (int i = 0; i < k; ++i) {
+                    Node<E> node = new Node<E>((E) a[n++]);
+                    Node<E> l = last;
+                    node.prev = l;
+                    last = node;
+                    if (first == null)
+                        first = node;
+                    else
+                        l.next = node;
+                }
+                count += k;
+                if (k == 1)
+                    notEmpty.signal();
+                else
+                    notEmpty.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Retrieves and removes the head of the queue represented by this deque.
      * This method differs from {@link #poll poll} only in that it throws an
@@ -756,6 +870,69 @@ public class LinkedBlockingDeque<E>
         }
     }
 
+    /**
+     * Removes elements from this deque and adds them to the given
+     * collection, waiting if necessary up to the specified wait time
+     * until at least {@code minElements} have been transferred.  All
+     * elements available when the lock is acquired are transferred
+     * together, up to {@code maxElements} in total; once at least
+     * {@code minElements} have been transferred, this method returns
+     * without waiting for more.
+     *
+     * <p>If interrupted while waiting, the elements transferred before
+     * the interruption remain in the given collection.  Failure
+     * behavior when adding to the collection is as for {@link
+     * #drainTo(Collection, int)}.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this deque
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         deque, or some property of an element of this deque prevents
+     *         it from being added to the specified collection
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int n = 0;
+            while (n < maxElements) {
+                if (count == 0) {
+                    if (n >= minElements || nanos <= 0)
+                        break;
+                    nanos = notEmpty.awaitNanos(nanos);
+                    continue;
+                }
+                for (int k = Math.min(maxElements - n, count); k > 0; --k) {
+                    c.add(first.item);   // In this order, in case add() throws.
+                    unlinkFirst();
+                    ++n;
+                }
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     // Stack methods
 
     /**
@@ -42,6 +42,9 @@ import java.util.AbstractQueue;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 
 /**
  * An optionally-bounded {@linkplain BlockingQueue blocking queue} based on
@@ -430,6 +433,117 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         return c >= 0;
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * tail of this queue, in the order they are returned by the
+     * collection's iterator, waiting if necessary for space to become
+     * available.  Each acquisition of the lock, and each wake-up of
+     * waiting takers, covers as many elements as there is room for,
+     * not just one.
+     *
+     * <p>If interrupted while waiting, the elements inserted before the
+     * interruption remain in this queue.
+     *
+     * @param c the collection of elements to insert
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        enqueueAll(toInsertArray(c), false, 0L);
+    }
+
+    /**
+     * Inserts the elements of the specified collection at the tail of
+     * this queue, in the order they are returned by the collection's
+     * iterator, waiting if necessary up to the specified wait time for
+     * space to become available.  Elements are inserted in batches as
+     * in {@link #putAll}.
+     *
+     * <p>If interrupted while waiting, the elements inserted before the
+     * interruption remain in this queue.
+     *
+     * @param c the collection of elements to insert
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of leading elements of the collection that were
+     *         inserted, which is less than its size only if the waiting
+     *         time elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return enqueueAll(toInsertArray(c), true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Returns the elements of c for bulk insertion, checking them first
+     * so that a null element inserts nothing.
+     */
+    private Object[] toInsertArray(Collection<? extends E> c) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object e : a)
+            if (e == null)
+                throw new NullPointerException();
+        return a;
+    }
+
+    /**
+     * Inserts the elements of a, as many per putLock hold as fit.
+     *
+     * @return the number of elements inserted
+     */
+    @SuppressWarnings("unchecked")
+    private int enqueueAll(Object[] a, boolean timed, long nanos)
+        throws InterruptedException {
+        final int len = a.length;
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        int n = 0;
+        while (n < len) {
+            int c = -1;
+            int k = 0;
+            putLock.lockInterruptibly();
+            try {
+                while (count.get() == capacity) {
+                    if (!timed)
+                        notFull.await();
+                    else if (nanos <= 0)
+                        return n;
+                    else
+                        nanos = notFull.awaitNanos(nanos);
+                }
+                // count can only decrease while we hold putLock
+                k = Math.min(len - n, capacity - count.get());
+                for (int i = 0; i < k; ++i)
+                    enqueue(new Node<E>((E) a[n + i]));
+                c = count.getAndAdd(k);
+                if (c + k < capacity)
+                    notFull.signal();
+            } finally {
+                putLock.unlock();
+            }
+            n += k;
+            if (c == 0)
+                signalNotEmpty();
+        }
+        return n;
+    }
+
 
     public E take() throws InterruptedException {
         E x;
@@ -761,6 +875,90 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Removes elements from this queue and adds them to the given
+     * collection, waiting if necessary up to the specified wait time
+     * until at least {@code minElements} have been transferred.  All
+     * elements available when the lock is acquired are transferred
+     * together, up to {@code maxElements} in total; once at least
+     * {@code minElements} have been transferred, this method returns
+     * without waiting for more.
+     *
+     * <p>If interrupted while waiting, the elements transferred before
+     * the interruption remain in the given collection.  Failure
+     * behavior when adding to the collection is as for {@link
+     * #drainTo(Collection, int)}.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        long nanos = unit.toNanos(timeout);
+        final AtomicInteger count = this.count;
+        final ReentrantLock takeLock = this.takeLock;
+        int n = 0;
+        while (n < maxElements) {
+            boolean signalNotFull = false;
+            takeLock.lockInterruptibly();
+            try {
+                while (count.get() == 0) {
+                    if (n >= minElements || nanos <= 0)
+                        return n;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                int k = Math.min(maxElements - n, count.get());
+                Node<E> h = head;
+                int i = 0;
+                try {
+                    while (i < k) {
+                        Node<E> p = h.next;
+                        c.add(p.item);
+                        p.item = null;
+                        h.next = h;
+                        h = p;
+                        ++i;
+                    }
+                } finally {
+                    // Restore invariants even if c.add() threw
+                    if (i > 0) {
+                        head = h;
+                        int was = count.getAndAdd(-i);
+                        signalNotFull = (was == capacity);
+                        if (was > i)
+                            notEmpty.signal();
+                        n += i;
+                    }
+                }
+            } finally {
+                takeLock.unlock();
+                if (signalNotFull)
+                    signalNotFull();
+            }
+        }
+        return n;
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
@@ -857,6 +1055,156 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue.
+     *
+     * <p>The returned spliterator is weakly consistent in the same sense
+     * as {@link #iterator}, and reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#ORDERED}, and {@link Spliterator#NONNULL}.
+     * Elements are read under both locks in batches rather than one at a
+     * time; {@code trySplit} copies a growing batch of elements into an
+     * array that is traversed without further locking.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     * @since 1.8
+     */
+    public Spliterator<E> spliterator() {
+        return new LBQSpliterator<E>(this);
+    }
+
+    /**
+     * Returns the live successor of p, or the first node if p has been
+     * dequeued.  Called only while holding both locks.
+     */
+    Node<E> succ(Node<E> p) {
+        return (p == (p = p.next)) ? head.next : p;
+    }
+
+    /** A customized variant of Spliterators.IteratorSpliterator */
+    static final class LBQSpliterator<E>
+            extends Spliterators.AbstractSpliterator<E> {
+        static final int MAX_BATCH = 1 << 25;  // max batch array size;
+        static final int TRAVERSE_BATCH = 64;  // max elements per lock hold
+        final LinkedBlockingQueue<E> queue;
+        Node<E> current;    // current node; null until initialized
+        int batch;          // batch size for splits
+        boolean exhausted;  // true when no more nodes
+        long est;           // size estimate
+
+        LBQSpliterator(LinkedBlockingQueue<E> queue) {
+            super(0, 0);
+            this.queue = queue;
+            this.est = queue.size();
+        }
+
+        public long estimateSize() { return est; }
+
+        public Spliterator<E> trySplit() {
+            Node<E> h;
+            final LinkedBlockingQueue<E> q = this.queue;
+            int b = batch;
+            int n = (b <= 0) ? 1 : (b >= MAX_BATCH) ? MAX_BATCH : b + 1;
+            if (!exhausted &&
+                ((h = current) != null || (h = q.head.next) != null) &&
+                h.next != null) {
+                Object[] a = new Object[n];
+                int i = 0;
+                Node<E> p = current;
+                q.fullyLock();
+                try {
+                    if (p != null || (p = q.head.next) != null) {
+                        do {
+                            if ((a[i] = p.item) != null)
+                                ++i;
+                        } while ((p = q.succ(p)) != null && i < n);
+                    }
+                } finally {
+                    q.fullyUnlock();
+                }
+                if ((current = p) == null) {
+                    est = 0L;
+                    exhausted = true;
+                }
+                else if ((est -= i) < 0L)
+                    est = 0L;
+                if (i > 0) {
+                    batch = i;
+                    return Spliterators.spliterator
+                        (a, 0, i, Spliterator.ORDERED | Spliterator.NONNULL |
+                         Spliterator.CONCURRENT);
+                }
+            }
+            return null;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) throw new NullPointerException();
+            final LinkedBlockingQueue<E> q = this.queue;
+            if (!exhausted) {
+                exhausted = true;
+                Node<E> p = current;
+                current = null;
+                Object[] es = null;
+                int n, len = 0;
+                do {
+                    // Hold the locks only while gathering a batch
+                    n = 0;
+                    q.fullyLock();
+                    try {
+                        if (p == null)
+                            p = q.head.next;
+                        if (es == null) {
+                            for (Node<E> r = p; r != null; r = q.succ(r))
+                                if (r.item != null && ++len == TRAVERSE_BATCH)
+                                    break;
+                            es = new Object[len];
+                        }
+                        for (; p != null && n < len; p = q.succ(p))
+                            if ((es[n] = p.item) != null)
+                                n++;
+                    } finally {
+                        q.fullyUnlock();
+                    }
+                    for (int i = 0; i < n; i++) {
+                        @SuppressWarnings("unchecked") E e = (E) es[i];
+                        action.accept(e);
+                    }
+                } while (n > 0 && p != null);
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) throw new NullPointerException();
+            final LinkedBlockingQueue<E> q = this.queue;
+            if (!exhausted) {
+                E e = null;
+                q.fullyLock();
+                try {
+                    if (current == null)
+                        current = q.head.next;
+                    while (current != null && e == null) {
+                        e = current.item;
+                        current = q.succ(current);
+                    }
+                } finally {
+                    q.fullyUnlock();
+                }
+                if (current == null)
+                    exhausted = true;
+                if (e != null) {
+                    action.accept(e);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL |
+                Spliterator.CONCURRENT;
+        }
+    }
+
     /**
      * Save the state to a stream (that is, serialize it).
      *
@@ -342,6 +342,20 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      *    chained spins, reflecting longer paths typically required to
      *    unblock threads during phase changes.
      *
+     *    The front spin count is not fixed but adapted per queue
+     *    (field frontSpins, from which chained counts are derived) to
+     *    recent handoff latencies. A waiter that is matched late in
+     *    its spins raises the count a little. A waiter that blocks
+     *    and is then matched about as soon as it would have been by
+     *    spinning twice as long doubles it. A waiter that blocks and
+     *    waits longer than that, or gives up, halves it.  So spins
+     *    grow on hosts where handoffs are quick and shrink toward
+     *    MIN_FRONT_SPINS where they are not, as on oversubscribed
+     *    machines in which spinning mainly delays the threads that
+     *    would fulfill the waiter. The count is bounded by
+     *    MAX_FRONT_SPINS, which scales with the number of CPUs.
+     *    Updates are racy, which only makes the estimate noisier.
+     *
      *
      * ** Unlinking removed interior nodes **
      *
@@ -412,9 +426,9 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         Runtime.getRuntime().availableProcessors() > 1;
 
     /**
-     * The number of times to spin (with randomly interspersed calls
-     * to Thread.yield) on multiprocessor before blocking when a node
-     * is apparently the first waiter in the queue.  See above for
+     * The initial number of times to spin (with randomly interspersed
+     * calls to Thread.yield) on multiprocessor before blocking when a
+     * node is apparently the first waiter in the queue.  See above for
      * explanation. Must be a power of two. The value is empirically
      * derived -- it works pretty well across a variety of processors,
      * numbers of CPUs, and OSes.
@@ -422,14 +436,37 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     private static final int FRONT_SPINS   = 1 << 7;
 
     /**
-     * The number of times to spin before blocking when a node is
-     * preceded by another node that is apparently spinning.  Also
-     * serves as an increment to FRONT_SPINS on phase changes, and as
-     * base average frequency for yielding during spins. Must be a
-     * power of two.
+     * The base average frequency for yielding during spins. Must be
+     * a power of two. Chained and phase-change spins are derived
+     * from the adaptive front spin count in the same proportion.
      */
     private static final int CHAINED_SPINS = FRONT_SPINS >>> 1;
 
+    /** The number of CPUs, for bounding adaptive spins */
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The lower bound of adaptive front spins on multiprocessors.
+     */
+    private static final int MIN_FRONT_SPINS = CHAINED_SPINS >>> 2;
+
+    /**
+     * The upper bound of adaptive front spins. Scaled by the number
+     * of CPUs so that small hosts, on which spinning is most likely
+     * to steal cycles from the fulfilling thread, never spin much
+     * longer than the non-adaptive default.
+     */
+    private static final int MAX_FRONT_SPINS =
+        FRONT_SPINS * Math.max(1, Math.min(NCPU >>> 1, 8));
+
+    /**
+     * The number of nanoseconds added to the time spent spinning
+     * when judging whether a blocked waiter was matched soon enough
+     * that more spinning would have been better. Roughly the cost of
+     * a park and unpark.
+     */
+    private static final long PARK_NANOS = 1L << 14;
+
     /**
      * The maximum number of estimated removal failures (sweepVotes)
      * to tolerate before sweeping through the queue unlinking
@@ -564,6 +601,13 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     /** The number of apparent failures to unsplice removed nodes */
     private transient volatile int sweepVotes;
 
+    /**
+     * The current adaptive front spin count; zero on uniprocessors.
+     * Not volatile since it doesn't matter too much if different
+     * threads don't see updates.
+     */
+    private transient int frontSpins = MP ? FRONT_SPINS : 0;
+
     // CAS methods for fields
     private boolean casTail(Node cmp, Node val) {
         return UNSAFE.compareAndSwapObject(this, tailOffset, cmp, val);
@@ -698,6 +742,8 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         long lastTime = timed ? System.nanoTime() : 0L;
         Thread w = Thread.currentThread();
         int spins = -1; // initialized after first item and cancel checks
+        int budget = 0; // initial spins, if any, for adaptSpins
+        long spinTime = 0L, parkTime = 0L; // set only if budget > 0
         ThreadLocalRandom randomYields = null; // bound if needed
 
         for (;;) {
@@ -705,17 +751,23 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             if (item != e) {                  // matched
                 // assert item != s;
                 s.forgetContents();           // avoid garbage
+                if (budget > 0)
+                    adaptSpins(true, budget, spins, spinTime, parkTime);
                 return this.<E>cast(item);
             }
             if ((w.isInterrupted() || (timed && nanos <= 0)) &&
                     s.casItem(e, s)) {        // cancel
                 unsplice(pred, s);
+                if (budget > 0)
+                    adaptSpins(false, budget, spins, spinTime, parkTime);
                 return e;
             }
 
             if (spins < 0) {                  // establish spins at/near front
-                if ((spins = spinsFor(pred, s.isData)) > 0)
+                if ((spins = budget = spinsFor(pred, s.isData)) > 0) {
                     randomYields = ThreadLocalRandom.current();
+                    spinTime = System.nanoTime();
+                }
             }
             else if (spins > 0) {             // spin
                 --spins;
@@ -724,6 +776,8 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             }
             else if (s.waiter == null) {
                 s.waiter = w;                 // request unpark then recheck
+                if (budget > 0)
+                    parkTime = System.nanoTime();
             }
             else if (timed) {
                 long now = System.nanoTime();
@@ -741,18 +795,47 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * Returns spin/yield value for a node with given predecessor and
      * data mode. See above for explanation.
      */
-    private static int spinsFor(Node pred, boolean haveData) {
+    private int spinsFor(Node pred, boolean haveData) {
         if (MP && pred != null) {
+            int front = frontSpins;
             if (pred.isData != haveData)      // phase change
-                return FRONT_SPINS + CHAINED_SPINS;
+                return front + (front >>> 1);
             if (pred.isMatched())             // probably at front
-                return FRONT_SPINS;
+                return front;
             if (pred.waiter == null)          // pred apparently spinning
-                return CHAINED_SPINS;
+                return front >>> 1;
         }
         return 0;
     }
 
+    /**
+     * Adjusts frontSpins after a wait that started with the given
+     * number of spins. See above for explanation.
+     *
+     * @param matched true if the waiter was matched, false if it gave up
+     * @param budget the initial number of spins
+     * @param spins the number of spins left when the wait ended
+     * @param spinTime the time spinning started
+     * @param parkTime the time the waiter prepared to block, or zero
+     * if it never did
+     */
+    private void adaptSpins(boolean matched, int budget, int spins,
+                            long spinTime, long parkTime) {
+        int front = frontSpins, f;
+        if (parkTime == 0L) {                 // did not block
+            if (!matched || spins >= (budget >>> 1))
+                return;                       // spins were ample
+            f = Math.min(MAX_FRONT_SPINS, front + (front >>> 2));
+        }
+        else if (matched &&
+                 System.nanoTime() - parkTime < parkTime - spinTime + PARK_NANOS)
+            f = Math.min(MAX_FRONT_SPINS, front << 1);
+        else
+            f = Math.max(MIN_FRONT_SPINS, front >>> 1);
+        if (f != front)
+            frontSpins = f;
+    }
+
     /* -------------- Traversal methods -------------- */
 
     /**
@@ -1319,6 +1402,7 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     private void readObject(java.io.ObjectInputStream s)
         throws java.io.IOException, ClassNotFoundException {
         s.defaultReadObject();
+        frontSpins = MP ? FRONT_SPINS : 0;
         for (;;) {
             @SuppressWarnings("unchecked") E item = (E) s.readObject();
             if (item == null)
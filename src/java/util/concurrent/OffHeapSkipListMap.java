@@ -0,0 +1,2286 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import java.io.Closeable;
+import java.io.IOError;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A scalable concurrent {@link ConcurrentNavigableMap} implementation
+ * that keeps its keys and values outside the Java heap, either in
+ * direct memory or in a memory-mapped file.  The map is sorted
+ * according to the {@linkplain Comparable natural ordering} of its
+ * keys, or by a {@link Comparator} provided at map creation time.
+ *
+ * <p>Keys and values are converted to and from bytes by {@link
+ * Serializer}s supplied when the map is created, and mappings are
+ * stored as records in large buffers ("segments").  Apart from these
+ * segments, the map holds no per-entry objects, so a very large map
+ * adds little to garbage collection work.  The flip side is that
+ * {@link #get get} and the other retrieval methods return freshly
+ * deserialized copies, and that comparing keys during a search
+ * deserializes the stored keys it meets.  Serializers for
+ * {@link Serializer#LONG Long}, {@link Serializer#STRING String} and
+ * {@link Serializer#BYTES byte[]} are provided.
+ *
+ * <p>A map created by {@link #open open} lives in a file, which it
+ * extends one segment at a time as needed.  When the file already
+ * holds a map, {@code open} resumes using it directly, without reading
+ * or rebuilding its contents.  Every update becomes visible in the
+ * file's mapped pages before it is visible to other threads, so the
+ * file always holds a well-formed map, even if the process is killed;
+ * {@link #force} additionally writes the pages to the storage device.
+ * The file records neither the serializers nor the ordering, which
+ * must be the same each time the file is opened.
+ *
+ * <p>As in {@link ConcurrentSkipListMap}, search, insertion and removal
+ * take expected average <i>log(n)</i> time and run concurrently without
+ * locking.  Space is never reused within a map: removing a mapping or
+ * replacing its value leaves the old records in place, and a map whose
+ * contents change heavily should periodically be copied into a new one.
+ *
+ * <p>Iterators are <i>weakly consistent</i>, and all
+ * <tt>Map.Entry</tt> pairs returned by methods in this class and its
+ * views are snapshots that do not support <tt>Entry.setValue</tt>.  The
+ * <tt>size</tt> method is not a constant-time operation, and bulk
+ * operations are not atomic, as for {@code ConcurrentSkipListMap}.
+ * This class does not permit the use of <tt>null</tt> keys or values.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @since 1.8
+ */
+public class OffHeapSkipListMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentNavigableMap<K,V>, Closeable {
+    /*
+     * The structure is the lock-free skip list of Herlihy and Shavit
+     * ("The Art of Multiprocessor Programming", ch. 14), with towers of
+     * next pointers kept in the nodes themselves, and with offsets into
+     * the segments in place of references.  Offsets are longs; the
+     * high bits select a segment and the low bits a position in it.
+     * Records never span segments, and all of them are 8-byte aligned,
+     * which leaves the low bit of each next pointer free to serve as
+     * the deletion mark.
+     *
+     * Layout of segment 0, which starts with the header:
+     *
+     *   0  long  MAGIC
+     *   8  int   segment shift
+     *  12  int   MAX_LEVEL
+     *  16  long  allocation top (CASed by allocate)
+     *  24  long  offset of the head node
+     *
+     * A node is:
+     *
+     *   0  long  offset of its value record, 0 once removed (CASed)
+     *   8  int   level, the number of next pointers
+     *  12  int   length of the serialized key
+     *  16  long[level] next pointers, low bit set once marked (CASed)
+     *   .  key bytes
+     *
+     * and a value record is an int length followed by the value bytes.
+     * Metadata is accessed with Unsafe at absolute addresses obtained
+     * from the segments' DirectBuffer addresses, in native byte order;
+     * serialized keys and values go through the segment ByteBuffers,
+     * always by absolute index so the buffers can be shared.
+     *
+     * As in ConcurrentSkipListMap, a mapping is removed when its value
+     * is CASed to 0, which is the linearization point of removal.  The
+     * remover (or any thread that meets the node with value 0) then
+     * marks the node's next pointers from the top level down, after
+     * which no node can be linked after it, and find() unlinks marked
+     * nodes level by level as it traverses.  An insertion links the
+     * node at level 0, which is its linearization point, and then at
+     * the upper levels, refreshing its own next pointers and giving up
+     * as soon as it finds them marked.  Read-only traversals step over
+     * marked nodes without unlinking them.
+     *
+     * Because nothing is ever freed, a traversal may safely continue
+     * from a node that has been unlinked: its next pointers are frozen
+     * by their marks and still lead forward in key order.  All node
+     * contents are written before the CAS that publishes the node, and
+     * new segments are published (via the volatile segments field)
+     * before any record inside them is allocated, so a thread that
+     * reads an offset from a volatile next or value field can read
+     * what it refers to.
+     */
+
+    /**
+     * Converts objects to and from bytes stored in an
+     * {@link OffHeapSkipListMap}.  Serializers access the buffers they
+     * are given only through absolute (indexed) get and put methods,
+     * and must be safe for use by multiple threads at once.
+     *
+     * @param <T> the type of objects serialized
+     */
+    public interface Serializer<T> {
+        /**
+         * Returns the number of bytes {@link #write} uses for the given
+         * object.
+         *
+         * @param t the object
+         * @return its serialized length
+         */
+        int size(T t);
+
+        /**
+         * Writes the given object as exactly {@link #size size(t)}
+         * bytes, starting at the given index of the buffer.
+         *
+         * @param t the object
+         * @param buf the buffer
+         * @param index the index of the first byte to write
+         */
+        void write(T t, ByteBuffer buf, int index);
+
+        /**
+         * Reads an object written by {@link #write}.
+         *
+         * @param buf the buffer
+         * @param index the index of the first byte to read
+         * @param length the number of bytes written for the object
+         * @return the object
+         */
+        T read(ByteBuffer buf, int index, int length);
+
+        /** Serializes {@code Long}s as 8 big-endian bytes. */
+        Serializer<Long> LONG = new Serializer<Long>() {
+            public int size(Long t) {
+                return 8;
+            }
+            public void write(Long t, ByteBuffer buf, int index) {
+                buf.putLong(index, t.longValue());
+            }
+            public Long read(ByteBuffer buf, int index, int length) {
+                return Long.valueOf(buf.getLong(index));
+            }
+        };
+
+        /**
+         * Serializes byte arrays as their contents.  Byte arrays are not
+         * {@code Comparable}, so a map with byte array keys needs a
+         * comparator.
+         */
+        Serializer<byte[]> BYTES = new Serializer<byte[]>() {
+            public int size(byte[] t) {
+                return t.length;
+            }
+            public void write(byte[] t, ByteBuffer buf, int index) {
+                for (int i = 0; i < t.length; ++i)
+                    buf.put(index + i, t[i]);
+            }
+            public byte[] read(ByteBuffer buf, int index, int length) {
+                byte[] t = new byte[length];
+                for (int i = 0; i < length; ++i)
+                    t[i] = buf.get(index + i);
+                return t;
+            }
+        };
+
+        /** Serializes {@code String}s in UTF-8. */
+        Serializer<String> STRING = new Serializer<String>() {
+            private final Charset utf8 = Charset.forName("UTF-8");
+            public int size(String t) {
+                return t.getBytes(utf8).length;
+            }
+            public void write(String t, ByteBuffer buf, int index) {
+                BYTES.write(t.getBytes(utf8), buf, index);
+            }
+            public String read(ByteBuffer buf, int index, int length) {
+                return new String(BYTES.read(buf, index, length), utf8);
+            }
+        };
+    }
+
+    /** Identifies a map file: "OHSLMAP1" */
+    private static final long MAGIC = 0x4f48534c4d415031L;
+
+    /** Header field offsets */
+    private static final int SHIFT_FIELD = 8;
+    private static final int LEVELS_FIELD = 12;
+    private static final int TOP_FIELD = 16;
+    private static final int HEAD_FIELD = 24;
+    private static final int HEADER_SIZE = 32;
+
+    /** Node field offsets */
+    private static final int VALUE = 0;
+    private static final int LEVEL = 8;
+    private static final int KEY_LENGTH = 12;
+    private static final int NEXT = 16;
+
+    /** The mark bit of a next pointer */
+    private static final long MARK = 1L;
+
+    /**
+     * The number of levels.  Levels are chosen with probability 1/4
+     * per level, which suits any size that fits in memory.
+     */
+    private static final int MAX_LEVEL = 16;
+
+    /** Default segment size for maps in direct memory */
+    private static final int DEFAULT_DIRECT_SEGMENT_SIZE = 1 << 24;
+
+    /** Default segment size for maps in files */
+    private static final int DEFAULT_FILE_SEGMENT_SIZE = 1 << 30;
+
+    /** The smallest permitted segment size */
+    private static final int MIN_SEGMENT_SIZE = 1 << 12;
+
+    /**
+     * The segments in use, replaced as a whole when the map grows.
+     */
+    static final class Segments {
+        final ByteBuffer[] buffers;
+        final long[] addresses;
+        Segments(ByteBuffer[] buffers, long[] addresses) {
+            this.buffers = buffers;
+            this.addresses = addresses;
+        }
+    }
+
+    /**
+     * The comparator used to maintain order in this map, or null
+     * if using natural ordering.
+     */
+    private final Comparator<? super K> comparator;
+
+    /** Serializer for keys */
+    private final Serializer<K> keySerializer;
+
+    /** Serializer for values */
+    private final Serializer<V> valueSerializer;
+
+    /** The file holding the map, or null if in direct memory */
+    private final FileChannel channel;
+
+    /** log2 of the segment size */
+    private final int shift;
+
+    /** The segment size */
+    private final int segmentSize;
+
+    /** Address of the header, at the start of segment 0 */
+    private final long header;
+
+    /** Offset of the head node */
+    private final long head;
+
+    /** The segments; written only under growLock */
+    private volatile Segments segments;
+
+    /** Lock serializing the creation of segments */
+    private final Object growLock = new Object();
+
+    /** Set by close */
+    private volatile boolean closed;
+
+    /** Lazily initialized views */
+    private transient SubMap<K,V> ascendingView;
+    private transient SubMap<K,V> descendingView;
+
+    /**
+     * Constructs a new, empty map in direct memory, sorted according to
+     * the {@linkplain Comparable natural ordering} of the keys.
+     *
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapSkipListMap(Serializer<K> keySerializer,
+                              Serializer<V> valueSerializer) {
+        this(keySerializer, valueSerializer, null,
+             DEFAULT_DIRECT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs a new, empty map in direct memory, sorted according to
+     * the specified comparator.
+     *
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @param comparator the comparator that will be used to order this
+     *        map.  If <tt>null</tt>, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapSkipListMap(Serializer<K> keySerializer,
+                              Serializer<V> valueSerializer,
+                              Comparator<? super K> comparator) {
+        this(keySerializer, valueSerializer, comparator,
+             DEFAULT_DIRECT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs a new, empty map in direct memory, sorted according to
+     * the specified comparator, that allocates direct buffers of the
+     * given size as it grows.  No serialized key or value may be larger
+     * than about the segment size.
+     *
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @param comparator the comparator that will be used to order this
+     *        map.  If <tt>null</tt>, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @param segmentSize the size of each buffer, a power of two
+     *        between 2<sup>12</sup> and 2<sup>30</sup>
+     * @throws NullPointerException if either serializer is null
+     * @throws IllegalArgumentException if the segment size is not a
+     *         power of two in range
+     */
+    public OffHeapSkipListMap(Serializer<K> keySerializer,
+                              Serializer<V> valueSerializer,
+                              Comparator<? super K> comparator,
+                              int segmentSize) {
+        this(keySerializer, valueSerializer, comparator, null,
+             checkSegmentSize(segmentSize), false);
+    }
+
+    /**
+     * Opens the map held in the given file, creating the file and an
+     * empty map in it if the file does not exist or is empty.  The map
+     * is sorted according to the specified comparator, which, like the
+     * serializers, must be equivalent to the one used when the map was
+     * created.
+     *
+     * @param file the file
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @param comparator the comparator that will be used to order this
+     *        map.  If <tt>null</tt>, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @return the map
+     * @throws IOException if the file cannot be opened, or is not
+     *         empty and does not hold a map
+     * @throws NullPointerException if the file or either serializer
+     *         is null
+     */
+    public static <K,V> OffHeapSkipListMap<K,V> open(Path file,
+                                                     Serializer<K> keySerializer,
+                                                     Serializer<V> valueSerializer,
+                                                     Comparator<? super K> comparator)
+        throws IOException {
+        return open(file, keySerializer, valueSerializer, comparator,
+                    DEFAULT_FILE_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the map held in the given file, as by {@link
+     * #open(Path,Serializer,Serializer,Comparator)}, using the given
+     * segment size if a new map is created.  An existing map keeps the
+     * segment size it was created with.  The file grows one segment at
+     * a time, and no serialized key or value may be larger than about
+     * the segment size.
+     *
+     * @param file the file
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @param comparator the comparator that will be used to order this
+     *        map.  If <tt>null</tt>, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @param segmentSize the segment size for a new map, a power of
+     *        two between 2<sup>12</sup> and 2<sup>30</sup>
+     * @return the map
+     * @throws IOException if the file cannot be opened, or is not
+     *         empty and does not hold a map
+     * @throws NullPointerException if the file or either serializer
+     *         is null
+     * @throws IllegalArgumentException if the segment size is not a
+     *         power of two in range
+     */
+    public static <K,V> OffHeapSkipListMap<K,V> open(Path file,
+                                                     Serializer<K> keySerializer,
+                                                     Serializer<V> valueSerializer,
+                                                     Comparator<? super K> comparator,
+                                                     int segmentSize)
+        throws IOException {
+        int shift = checkSegmentSize(segmentSize);
+        if (keySerializer == null || valueSerializer == null)
+            throw new NullPointerException();
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ,
+                                          StandardOpenOption.WRITE);
+        boolean done = false;
+        try {
+            boolean existing = ch.size() > 0;
+            if (existing)
+                shift = readShift(ch);
+            OffHeapSkipListMap<K,V> m = new OffHeapSkipListMap<K,V>
+                (keySerializer, valueSerializer, comparator, ch, shift,
+                 existing);
+            done = true;
+            return m;
+        } catch (IOError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw e;
+        } finally {
+            if (!done)
+                ch.close();
+        }
+    }
+
+    private OffHeapSkipListMap(Serializer<K> keySerializer,
+                               Serializer<V> valueSerializer,
+                               Comparator<? super K> comparator,
+                               FileChannel channel, int shift,
+                               boolean existing) {
+        if (keySerializer == null || valueSerializer == null)
+            throw new NullPointerException();
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.comparator = comparator;
+        this.channel = channel;
+        this.shift = shift;
+        this.segmentSize = 1 << shift;
+        this.segments = new Segments(new ByteBuffer[0], new long[0]);
+        if (existing) {
+            Segments s = grow(1);
+            header = s.addresses[0];
+            long top = UNSAFE.getLongVolatile(null, header + TOP_FIELD);
+            if (top > HEADER_SIZE)
+                grow((int) ((top - 1) >>> shift) + 1);
+            head = UNSAFE.getLong(null, header + HEAD_FIELD);
+        } else {
+            Segments s = grow(1);
+            header = s.addresses[0];
+            head = HEADER_SIZE;
+            long h = header + HEADER_SIZE;
+            UNSAFE.putLong(null, h + VALUE, MARK); // never removed
+            UNSAFE.putInt(null, h + LEVEL, MAX_LEVEL);
+            UNSAFE.putInt(null, h + KEY_LENGTH, 0);
+            for (int i = 0; i < MAX_LEVEL; ++i)
+                UNSAFE.putLong(null, h + NEXT + (i << 3), 0L);
+            UNSAFE.putInt(null, header + SHIFT_FIELD, shift);
+            UNSAFE.putInt(null, header + LEVELS_FIELD, MAX_LEVEL);
+            UNSAFE.putLong(null, header + TOP_FIELD,
+                           HEADER_SIZE + NEXT + (MAX_LEVEL << 3));
+            UNSAFE.putLong(null, header + HEAD_FIELD, head);
+            UNSAFE.putLongVolatile(null, header, MAGIC);
+        }
+    }
+
+    /**
+     * Returns log2 of the given segment size, checking it is in range.
+     */
+    private static int checkSegmentSize(int segmentSize) {
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > (1 << 30) ||
+            (segmentSize & (segmentSize - 1)) != 0)
+            throw new IllegalArgumentException("Bad segment size");
+        return Integer.numberOfTrailingZeros(segmentSize);
+    }
+
+    /**
+     * Reads and validates the header of an existing map file,
+     * returning its segment shift.
+     */
+    private static int readShift(FileChannel ch) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE)
+            .order(java.nio.ByteOrder.nativeOrder());
+        while (b.hasRemaining())
+            if (ch.read(b, b.position()) < 0)
+                break;
+        if (b.hasRemaining() || b.getLong(0) != MAGIC ||
+            b.getInt(LEVELS_FIELD) != MAX_LEVEL)
+            throw new IOException("Not an OffHeapSkipListMap file");
+        int shift = b.getInt(SHIFT_FIELD);
+        long top = b.getLong(TOP_FIELD);
+        if (shift < 12 || shift > 30 || top < HEADER_SIZE ||
+            top > ch.size())
+            throw new IOException("Corrupt OffHeapSkipListMap file");
+        return shift;
+    }
+
+    /* ---------------- Storage -------------- */
+
+    /**
+     * Ensures there are at least n segments, returning the segments.
+     */
+    private Segments grow(int n) {
+        synchronized (growLock) {
+            Segments s = segments;
+            int len = s.buffers.length;
+            if (len >= n)
+                return s;
+            ByteBuffer[] bufs = Arrays.copyOf(s.buffers, n);
+            long[] addrs = Arrays.copyOf(s.addresses, n);
+            for (int i = len; i < n; ++i) {
+                ByteBuffer b;
+                if (channel == null)
+                    b = ByteBuffer.allocateDirect(segmentSize);
+                else {
+                    try {
+                        b = channel.map(FileChannel.MapMode.READ_WRITE,
+                                        (long) i << shift, segmentSize);
+                    } catch (IOException ex) {
+                        throw new IOError(ex);
+                    }
+                }
+                bufs[i] = b;
+                addrs[i] = ((DirectBuffer) b).address();
+            }
+            return segments = new Segments(bufs, addrs);
+        }
+    }
+
+    /**
+     * Allocates size bytes, rounded up to a multiple of 8, within a
+     * single segment, and returns their offset.
+     */
+    private long allocate(int size) {
+        if (closed)
+            throw new IllegalStateException("Map is closed");
+        long n = (size + 7L) & ~7L;
+        if (n > segmentSize)
+            throw new IllegalArgumentException("Entry too large");
+        final long topAddress = header + TOP_FIELD;
+        for (;;) {
+            long top = UNSAFE.getLongVolatile(null, topAddress);
+            long start = top, end = top + n;
+            if (((end - 1) >>> shift) != (top >>> shift)) {
+                start = ((top >>> shift) + 1) << shift;
+                end = start + n;
+            }
+            int needed = (int) ((end - 1) >>> shift) + 1;
+            if (needed > segments.buffers.length)
+                grow(needed);
+            if (UNSAFE.compareAndSwapLong(null, topAddress, top, end))
+                return start;
+        }
+    }
+
+    /** Returns the address of the given offset */
+    private long address(long off) {
+        return segments.addresses[(int) (off >>> shift)] +
+            (off & (segmentSize - 1));
+    }
+
+    private long next(long n, int level) {
+        return UNSAFE.getLongVolatile(null, address(n) + NEXT + (level << 3));
+    }
+
+    private boolean casNext(long n, int level, long cmp, long val) {
+        return UNSAFE.compareAndSwapLong(null, address(n) + NEXT + (level << 3),
+                                         cmp, val);
+    }
+
+    /** Returns the value record of n, or 0 if n has been removed */
+    long value(long n) {
+        return UNSAFE.getLongVolatile(null, address(n) + VALUE);
+    }
+
+    private boolean casValue(long n, long cmp, long val) {
+        return UNSAFE.compareAndSwapLong(null, address(n) + VALUE, cmp, val);
+    }
+
+    /** Returns the successor of n at level 0, ignoring its mark */
+    long successor(long n) {
+        return next(n, 0) & ~MARK;
+    }
+
+    /** Deserializes the key of node n */
+    K key(long n) {
+        Segments s = segments;
+        int seg = (int) (n >>> shift);
+        long a = s.addresses[seg] + (n & (segmentSize - 1));
+        int level = UNSAFE.getInt(null, a + LEVEL);
+        int length = UNSAFE.getInt(null, a + KEY_LENGTH);
+        int index = (int) (n & (segmentSize - 1)) + NEXT + (level << 3);
+        return keySerializer.read(s.buffers[seg], index, length);
+    }
+
+    /** Deserializes the value of value record r */
+    V readValue(long r) {
+        Segments s = segments;
+        int seg = (int) (r >>> shift);
+        long a = s.addresses[seg] + (r & (segmentSize - 1));
+        int length = UNSAFE.getInt(null, a);
+        int index = (int) (r & (segmentSize - 1)) + 4;
+        return valueSerializer.read(s.buffers[seg], index, length);
+    }
+
+    /** Writes value into a new value record */
+    private long newValue(V value) {
+        int length = valueSerializer.size(value);
+        long r = allocate(4 + length);
+        UNSAFE.putInt(null, address(r), length);
+        valueSerializer.write(value, segments.buffers[(int) (r >>> shift)],
+                              (int) (r & (segmentSize - 1)) + 4);
+        return r;
+    }
+
+    /** Writes a new, unlinked node */
+    private long newNode(K key, long value, int level) {
+        int length = keySerializer.size(key);
+        long n = allocate(NEXT + (level << 3) + length);
+        long a = address(n);
+        UNSAFE.putLong(null, a + VALUE, value);
+        UNSAFE.putInt(null, a + LEVEL, level);
+        UNSAFE.putInt(null, a + KEY_LENGTH, length);
+        keySerializer.write(key, segments.buffers[(int) (n >>> shift)],
+                            (int) (n & (segmentSize - 1)) + NEXT + (level << 3));
+        return n;
+    }
+
+    /**
+     * Returns a random level between 1 and MAX_LEVEL, each level
+     * being a quarter as likely as the one below.
+     */
+    private static int randomLevel() {
+        int r = ThreadLocalRandom.current().nextInt();
+        return (Integer.numberOfTrailingZeros(r | (1 << 30)) >>> 1) + 1;
+    }
+
+    /* ---------------- Comparison utilities -------------- */
+
+    /**
+     * Compares using comparator or natural ordering.
+     */
+    @SuppressWarnings("unchecked")
+    int compare(K k1, K k2) throws ClassCastException {
+        Comparator<? super K> cmp = comparator;
+        if (cmp != null)
+            return cmp.compare(k1, k2);
+        else
+            return ((Comparable<? super K>)k1).compareTo(k2);
+    }
+
+    /* ---------------- Traversal -------------- */
+
+    /**
+     * Finds the predecessors and successors of key at all levels,
+     * unlinking marked nodes met along the way.  Returns true if
+     * succs[0] holds key; that node may have been removed.
+     */
+    private boolean find(K key, long[] preds, long[] succs) {
+        retry:
+        for (;;) {
+            long pred = head;
+            int c = 1;
+            for (int level = MAX_LEVEL - 1; level >= 0; --level) {
+                long curr = next(pred, level) & ~MARK;
+                c = 1;
+                while (curr != 0L) {
+                    long succ = next(curr, level);
+                    if ((succ & MARK) != 0L) { // unlink removed node
+                        if (!casNext(pred, level, curr, succ & ~MARK))
+                            continue retry;
+                        curr = succ & ~MARK;
+                    }
+                    else if ((c = compare(key, key(curr))) > 0) {
+                        pred = curr;
+                        curr = succ;
+                    }
+                    else
+                        break;
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return succs[0] != 0L && c == 0;
+        }
+    }
+
+    /**
+     * Returns the node holding key, which may have been removed, or 0
+     * if none.  Unlike find, does not unlink marked nodes.
+     */
+    private long findNode(Object okey) {
+        if (okey == null)
+            throw new NullPointerException();
+        @SuppressWarnings("unchecked") K key = (K) okey;
+        long pred = head;
+        for (int level = MAX_LEVEL - 1; level >= 0; --level) {
+            long curr = next(pred, level) & ~MARK;
+            while (curr != 0L) {
+                long succ = next(curr, level);
+                if ((succ & MARK) != 0L)
+                    curr = succ & ~MARK;
+                else {
+                    int c = compare(key, key(curr));
+                    if (c == 0)
+                        return curr;
+                    if (c < 0)
+                        break;
+                    pred = curr;
+                    curr = succ;
+                }
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the last node whose key is less than key, or less than or
+     * equal to it if inclusive, or the head if there is none.  The node
+     * may have been removed.
+     */
+    private long findPredecessor(K key, boolean inclusive) {
+        long pred = head;
+        for (int level = MAX_LEVEL - 1; level >= 0; --level) {
+            long curr = next(pred, level) & ~MARK;
+            while (curr != 0L) {
+                long succ = next(curr, level);
+                if ((succ & MARK) != 0L)
+                    curr = succ & ~MARK;
+                else {
+                    int c = compare(key, key(curr));
+                    if (c < 0 || (c == 0 && !inclusive))
+                        break;
+                    pred = curr;
+                    curr = succ;
+                }
+            }
+        }
+        return pred;
+    }
+
+    /**
+     * Returns n, or the first node after it, that has not been
+     * removed, or 0 if none.
+     */
+    long live(long n) {
+        while (n != 0L && value(n) == 0L)
+            n = successor(n);
+        return n;
+    }
+
+    /**
+     * Marks all next pointers of a removed node, top down, so that no
+     * node can be linked after it.
+     */
+    private void markNext(long n) {
+        for (int level = UNSAFE.getInt(null, address(n) + LEVEL) - 1;
+             level >= 0; --level) {
+            for (;;) {
+                long succ = next(n, level);
+                if ((succ & MARK) != 0L ||
+                    casNext(n, level, succ, succ | MARK))
+                    break;
+            }
+        }
+    }
+
+    /* ---------------- Insertion and removal -------------- */
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     *
+     * @param key the key
+     * @param value the value that must be associated with key
+     * @param onlyIfAbsent if should not insert if already present
+     * @return the old value, or null if newly inserted
+     */
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        long[] preds = new long[MAX_LEVEL];
+        long[] succs = new long[MAX_LEVEL];
+        long r = 0L;         // value record, written once
+        long node = 0L;      // new node, written once
+        int level = 0;
+        for (;;) {
+            if (find(key, preds, succs)) {
+                long n = succs[0];
+                long v = value(n);
+                if (v == 0L)          // help finish removal, then retry
+                    markNext(n);
+                else if (onlyIfAbsent)
+                    return readValue(v);
+                else {
+                    if (r == 0L)
+                        r = newValue(value);
+                    if (casValue(n, v, r))
+                        return readValue(v);
+                }
+                continue;
+            }
+            if (r == 0L)
+                r = newValue(value);
+            if (node == 0L)
+                node = newNode(key, r, level = randomLevel());
+            long a = address(node);
+            for (int i = 0; i < level; ++i)
+                UNSAFE.putLong(null, a + NEXT + (i << 3), succs[i]);
+            if (casNext(preds[0], 0, succs[0], node)) {
+                linkUpperLevels(key, node, level, preds, succs);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Links a node already inserted at level 0 into the higher levels
+     * of its tower, stopping if it is removed meanwhile.
+     */
+    private void linkUpperLevels(K key, long node, int level,
+                                 long[] preds, long[] succs) {
+        for (int i = 1; i < level; ++i) {
+            for (;;) {
+                long succ = succs[i];
+                long nn = next(node, i);
+                if ((nn & MARK) != 0L)
+                    return;
+                if (nn != succ && !casNext(node, i, nn, succ))
+                    continue;
+                if (casNext(preds[i], i, succ, node))
+                    break;
+                if (!find(key, preds, succs) || succs[0] != node)
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Main deletion method.  Removes the mapping for key if it is
+     * present and, if value is non-null, mapped to a value equal to it.
+     *
+     * @param okey the key
+     * @param value if non-null, the value that must be associated
+     *        with key
+     * @return the removed value, or null if not found
+     */
+    final V doRemove(Object okey, Object value) {
+        if (okey == null)
+            throw new NullPointerException();
+        @SuppressWarnings("unchecked") K key = (K) okey;
+        long[] preds = new long[MAX_LEVEL];
+        long[] succs = new long[MAX_LEVEL];
+        for (;;) {
+            if (!find(key, preds, succs))
+                return null;
+            long n = succs[0];
+            long v = value(n);
+            if (v == 0L) {
+                markNext(n);
+                return null;
+            }
+            V old = readValue(v);
+            if (value != null && !value.equals(old))
+                return null;
+            if (casValue(n, v, 0L)) {
+                markNext(n);
+                find(key, preds, succs); // unlink
+                return old;
+            }
+        }
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    // Control values OR'ed as arguments to findNear
+
+    static final int EQ = 1;
+    static final int LT = 2;
+    static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Utility for ceiling, floor, lower, higher methods.
+     * @param key the key
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @return nearest node fitting relation, or 0 if no such
+     */
+    long findNear(K key, int rel) {
+        if (key == null)
+            throw new NullPointerException();
+        if ((rel & LT) == 0)
+            return live(successor(findPredecessor(key, (rel & EQ) == 0)));
+        for (boolean inclusive = (rel & EQ) != 0;;) {
+            long p = findPredecessor(key, inclusive);
+            if (p == head)
+                return 0L;
+            if (value(p) != 0L)
+                return p;
+            key = key(p); // removed; look before it
+            inclusive = false;
+        }
+    }
+
+    /**
+     * Returns the first node that has not been removed, or 0 if empty.
+     */
+    long findFirst() {
+        return live(successor(head));
+    }
+
+    /**
+     * Returns the last node that has not been removed, or 0 if empty.
+     */
+    long findLast() {
+        long pred = head;
+        for (int level = MAX_LEVEL - 1; level >= 0; --level) {
+            long curr = next(pred, level) & ~MARK;
+            while (curr != 0L) {
+                long succ = next(curr, level);
+                if ((succ & MARK) == 0L)
+                    pred = curr;
+                curr = succ & ~MARK;
+            }
+        }
+        if (pred == head)
+            return 0L;
+        return (value(pred) != 0L) ? pred : findNear(key(pred), LT);
+    }
+
+    /**
+     * Returns a snapshot entry for node n, or null if it has been
+     * removed.
+     */
+    Map.Entry<K,V> entry(long n) {
+        long v = value(n);
+        if (v == 0L)
+            return null;
+        return new AbstractMap.SimpleImmutableEntry<K,V>(key(n), readValue(v));
+    }
+
+    /**
+     * Returns entry for the node nearest key, or null if none.
+     */
+    private Map.Entry<K,V> getNear(K key, int rel) {
+        for (;;) {
+            long n = findNear(key, rel);
+            if (n == 0L)
+                return null;
+            Map.Entry<K,V> e = entry(n);
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Removes the first or last mapping, returning it, or null if empty.
+     */
+    private Map.Entry<K,V> removeEnd(boolean last) {
+        for (;;) {
+            long n = last ? findLast() : findFirst();
+            if (n == 0L)
+                return null;
+            K k = key(n);
+            long v = value(n);
+            if (v != 0L && casValue(n, v, 0L)) {
+                markNext(n);
+                find(k, new long[MAX_LEVEL], new long[MAX_LEVEL]); // unlink
+                return new AbstractMap.SimpleImmutableEntry<K,V>(k, readValue(v));
+            }
+        }
+    }
+
+    /* ---------------- Map API methods -------------- */
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        long n = findNode(key);
+        return n != 0L && value(n) != 0L;
+    }
+
+    /**
+     * Returns a copy of the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        long n = findNode(key);
+        if (n != 0L) {
+            long v = value(n);
+            if (v != 0L)
+                return readValue(v);
+        }
+        return null;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         <tt>null</tt> if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the serialized key or value
+     *         does not fit in a segment
+     * @throws IllegalStateException if this map has been closed
+     * @throws IOError if the map file cannot be extended
+     */
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         <tt>null</tt> if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size, and deserializes every value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if a mapping to <tt>value</tt> exists;
+     *         <tt>false</tt> otherwise
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (long n = findFirst(); n != 0L; n = successor(n)) {
+            long v = value(n);
+            if (v != 0L && value.equals(readValue(v)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If this map
+     * contains more than <tt>Integer.MAX_VALUE</tt> elements, it
+     * returns <tt>Integer.MAX_VALUE</tt>.
+     *
+     * <p>Beware that, unlike in most collections, this method is
+     * <em>NOT</em> a constant-time operation.
+     *
+     * @return the number of elements in this map
+     */
+    public int size() {
+        long count = 0;
+        for (long n = findFirst(); n != 0L; n = successor(n)) {
+            if (value(n) != 0L)
+                ++count;
+        }
+        return (count >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) count;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findFirst() == 0L;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The space they use is
+     * not reclaimed.
+     */
+    public void clear() {
+        while (removeEnd(false) != null)
+            ;
+    }
+
+    /* ---------------- ConcurrentMap API methods -------------- */
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or <tt>null</tt> if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the serialized key or value
+     *         does not fit in a segment
+     * @throws IllegalStateException if this map has been closed
+     * @throws IOError if the map file cannot be extended
+     */
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        if (value == null)
+            return false;
+        return doRemove(key, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if any of the arguments are null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        long n = findNode(key);
+        if (n == 0L)
+            return false;
+        long r = 0L;
+        for (;;) {
+            long v = value(n);
+            if (v == 0L || !oldValue.equals(readValue(v)))
+                return false;
+            if (r == 0L)
+                r = newValue(newValue);
+            if (casValue(n, v, r))
+                return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or <tt>null</tt> if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public V replace(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        long n = findNode(key);
+        if (n == 0L)
+            return null;
+        long r = 0L;
+        for (;;) {
+            long v = value(n);
+            if (v == 0L)
+                return null;
+            if (r == 0L)
+                r = newValue(value);
+            if (casValue(n, v, r))
+                return readValue(v);
+        }
+    }
+
+    /* ---------------- Storage management -------------- */
+
+    /**
+     * Forces any changes to a map held in a file to be written to the
+     * storage device containing it.  Has no effect on a map in direct
+     * memory.
+     *
+     * @see MappedByteBuffer#force
+     */
+    public void force() {
+        if (channel != null) {
+            for (ByteBuffer b : segments.buffers)
+                ((MappedByteBuffer) b).force();
+        }
+    }
+
+    /**
+     * Closes this map, {@linkplain #force forcing} changes to its file
+     * and closing the file.  Mappings may still be read after closing,
+     * as the segments are released only when the map is garbage
+     * collected, but operations that add mappings or replace values
+     * throw {@code IllegalStateException}.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (channel != null) {
+                force();
+                channel.close();
+            }
+        }
+    }
+
+    /* ------ SortedMap API methods ------ */
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        long n = findFirst();
+        if (n == 0L)
+            throw new NoSuchElementException();
+        return key(n);
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        long n = findLast();
+        if (n == 0L)
+            throw new NoSuchElementException();
+        return key(n);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey,
+                                              boolean fromInclusive,
+                                              K toKey,
+                                              boolean toInclusive) {
+        if (fromKey == null || toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey,
+                                               boolean inclusive) {
+        if (toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, null, false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey,
+                                               boolean inclusive) {
+        if (fromKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, inclusive, null, false, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * strictly less than the given key, or <tt>null</tt> if there is
+     * no such key. The returned entry does <em>not</em> support the
+     * <tt>Entry.setValue</tt> method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return getNear(key, LT);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K lowerKey(K key) {
+        long n = findNear(key, LT);
+        return (n == 0L) ? null : key(n);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * less than or equal to the given key, or <tt>null</tt> if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the <tt>Entry.setValue</tt> method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return getNear(key, LT|EQ);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K floorKey(K key) {
+        long n = findNear(key, LT|EQ);
+        return (n == 0L) ? null : key(n);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * greater than or equal to the given key, or <tt>null</tt> if
+     * there is no such entry. The returned entry does <em>not</em>
+     * support the <tt>Entry.setValue</tt> method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return getNear(key, GT|EQ);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K ceilingKey(K key) {
+        long n = findNear(key, GT|EQ);
+        return (n == 0L) ? null : key(n);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * strictly greater than the given key, or <tt>null</tt> if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the <tt>Entry.setValue</tt> method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return getNear(key, GT);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K higherKey(K key) {
+        long n = findNear(key, GT);
+        return (n == 0L) ? null : key(n);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least
+     * key in this map, or <tt>null</tt> if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the <tt>Entry.setValue</tt> method.
+     */
+    public Map.Entry<K,V> firstEntry() {
+        for (;;) {
+            long n = findFirst();
+            if (n == 0L)
+                return null;
+            Map.Entry<K,V> e = entry(n);
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest
+     * key in this map, or <tt>null</tt> if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the <tt>Entry.setValue</tt> method.
+     */
+    public Map.Entry<K,V> lastEntry() {
+        for (;;) {
+            long n = findLast();
+            if (n == 0L)
+                return null;
+            Map.Entry<K,V> e = entry(n);
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the least key in this map, or <tt>null</tt> if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the <tt>Entry.setValue</tt> method.
+     */
+    public Map.Entry<K,V> pollFirstEntry() {
+        return removeEnd(false);
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the greatest key in this map, or <tt>null</tt> if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the <tt>Entry.setValue</tt> method.
+     */
+    public Map.Entry<K,V> pollLastEntry() {
+        return removeEnd(true);
+    }
+
+    /* ---------------- Views -------------- */
+
+    private SubMap<K,V> ascending() {
+        SubMap<K,V> m = ascendingView;
+        return (m != null) ? m : (ascendingView = new SubMap<K,V>
+                                  (this, null, false, null, false, false));
+    }
+
+    /**
+     * Returns a {@link NavigableSet} view of the keys contained in this
+     * map, in ascending order.  The set is backed by the map, so
+     * changes to the map are reflected in the set, and vice-versa.  It
+     * supports element removal, but not the <tt>add</tt> or
+     * <tt>addAll</tt> operations.  Its iterator is a "weakly
+     * consistent" iterator that will never throw {@link
+     * ConcurrentModificationException}.
+     *
+     * @return a navigable set view of the keys in this map
+     */
+    public NavigableSet<K> keySet() {
+        return ascending().navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        return ascending().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in ascending order of the corresponding keys.  The
+     * collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  It supports element
+     * removal, but not the <tt>add</tt> or <tt>addAll</tt> operations.
+     * Its iterator is a "weakly consistent" iterator.
+     */
+    public Collection<V> values() {
+        return ascending().values();
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map,
+     * in ascending key order.  The set is backed by the map, so changes
+     * to the map are reflected in the set, and vice-versa.  It supports
+     * element removal, but not the <tt>add</tt> or <tt>addAll</tt>
+     * operations.  Its iterator is a "weakly consistent" iterator, and
+     * the entries it returns are snapshots that do not support
+     * <tt>setValue</tt>.
+     *
+     * @return a set view of the mappings contained in this map,
+     *         sorted in ascending key order
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        return ascending().entrySet();
+    }
+
+    public ConcurrentNavigableMap<K,V> descendingMap() {
+        SubMap<K,V> m = descendingView;
+        return (m != null) ? m : (descendingView = new SubMap<K,V>
+                                  (this, null, false, null, false, true));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    static final <E> List<E> toList(Collection<E> c) {
+        // Using size() here would be a pessimization.
+        List<E> list = new ArrayList<E>();
+        for (E e : c)
+            list.add(e);
+        return list;
+    }
+
+    static final class KeySet<E>
+            extends AbstractSet<E> implements NavigableSet<E> {
+        private final SubMap<E,?> m;
+        KeySet(SubMap<E,?> map) { m = map; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public boolean remove(Object o) { return m.remove(o) != null; }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public Iterator<E> iterator() { return m.keyIterator(); }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused)   {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+        public NavigableSet<E> subSet(E fromElement,
+                                      boolean fromInclusive,
+                                      E toElement,
+                                      boolean toInclusive) {
+            return m.subMap(fromElement, fromInclusive,
+                            toElement,   toInclusive).navigableKeySet();
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return m.headMap(toElement, inclusive).navigableKeySet();
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return m.tailMap(fromElement, inclusive).navigableKeySet();
+        }
+        public NavigableSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public NavigableSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public NavigableSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return m.descendingMap().navigableKeySet();
+        }
+    }
+
+    static final class Values<E> extends AbstractCollection<E> {
+        private final SubMap<?,E> m;
+        Values(SubMap<?,E> map) { m = map; }
+        public Iterator<E> iterator() { return m.valueIterator(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public int size() { return m.size(); }
+        public boolean contains(Object o) { return m.containsValue(o); }
+        public void clear() { m.clear(); }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+    }
+
+    static final class EntrySet<K1,V1> extends AbstractSet<Map.Entry<K1,V1>> {
+        private final SubMap<K1,V1> m;
+        EntrySet(SubMap<K1,V1> map) { m = map; }
+        public Iterator<Map.Entry<K1,V1>> iterator() {
+            return m.entryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            V1 v = m.get(e.getKey());
+            return v != null && v.equals(e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return m.remove(e.getKey(), e.getValue());
+        }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public int size() { return m.size(); }
+        public void clear() { m.clear(); }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused)   {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+    }
+
+    /**
+     * Views of a key range of an {@link OffHeapSkipListMap}, possibly
+     * in descending order.  Instances back the sub-map, descending
+     * and collection views of the map; mappings outside their range
+     * are ignored, and attempts to add mappings outside their ranges
+     * result in {@link IllegalArgumentException}.
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements ConcurrentNavigableMap<K,V> {
+        /** Underlying map */
+        private final OffHeapSkipListMap<K,V> m;
+        /** lower bound key, or null if from start */
+        private final K lo;
+        /** upper bound key, or null if to end */
+        private final K hi;
+        /** inclusion flag for lo */
+        private final boolean loInclusive;
+        /** inclusion flag for hi */
+        private final boolean hiInclusive;
+        /** direction */
+        private final boolean isDescending;
+
+        // Lazily initialized view holders
+        private transient KeySet<K> keySetView;
+        private transient Set<Map.Entry<K,V>> entrySetView;
+        private transient Collection<V> valuesView;
+
+        /**
+         * Creates a new submap, initializing all fields
+         */
+        SubMap(OffHeapSkipListMap<K,V> map,
+               K fromKey, boolean fromInclusive,
+               K toKey, boolean toInclusive,
+               boolean isDescending) {
+            if (fromKey != null && toKey != null &&
+                map.compare(fromKey, toKey) > 0)
+                throw new IllegalArgumentException("inconsistent range");
+            this.m = map;
+            this.lo = fromKey;
+            this.hi = toKey;
+            this.loInclusive = fromInclusive;
+            this.hiInclusive = toInclusive;
+            this.isDescending = isDescending;
+        }
+
+        /* ----------------  Utilities -------------- */
+
+        private boolean tooLow(K key) {
+            if (lo != null) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        private boolean tooHigh(K key) {
+            if (hi != null) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        private boolean inBounds(K key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        private void checkKeyBounds(K key) throws IllegalArgumentException {
+            if (key == null)
+                throw new NullPointerException();
+            if (!inBounds(key))
+                throw new IllegalArgumentException("key out of range");
+        }
+
+        /**
+         * Returns true if node n is not beyond the upper bound of range
+         */
+        private boolean isBeforeEnd(long n) {
+            return n != 0L && (hi == null || !tooHigh(m.key(n)));
+        }
+
+        /**
+         * Returns lowest node. This node might not be in range, so
+         * most usages need to check bounds
+         */
+        private long loNode() {
+            if (lo == null)
+                return m.findFirst();
+            else if (loInclusive)
+                return m.findNear(lo, GT|EQ);
+            else
+                return m.findNear(lo, GT);
+        }
+
+        /**
+         * Returns highest node. This node might not be in range, so
+         * most usages need to check bounds
+         */
+        private long hiNode() {
+            if (hi == null)
+                return m.findLast();
+            else if (hiInclusive)
+                return m.findNear(hi, LT|EQ);
+            else
+                return m.findNear(hi, LT);
+        }
+
+        /**
+         * Returns lowest absolute key (ignoring directonality)
+         */
+        private K lowestKey() {
+            long n = loNode();
+            if (n != 0L) {
+                K k = m.key(n);
+                if (!tooHigh(k))
+                    return k;
+            }
+            throw new NoSuchElementException();
+        }
+
+        /**
+         * Returns highest absolute key (ignoring directonality)
+         */
+        private K highestKey() {
+            long n = hiNode();
+            if (n != 0L) {
+                K k = m.key(n);
+                if (!tooLow(k))
+                    return k;
+            }
+            throw new NoSuchElementException();
+        }
+
+        private Map.Entry<K,V> lowestEntry() {
+            for (;;) {
+                long n = loNode();
+                if (!isBeforeEnd(n))
+                    return null;
+                Map.Entry<K,V> e = m.entry(n);
+                if (e != null)
+                    return e;
+            }
+        }
+
+        private Map.Entry<K,V> highestEntry() {
+            for (;;) {
+                long n = hiNode();
+                if (n == 0L || tooLow(m.key(n)))
+                    return null;
+                Map.Entry<K,V> e = m.entry(n);
+                if (e != null)
+                    return e;
+            }
+        }
+
+        private Map.Entry<K,V> removeLowest() {
+            for (;;) {
+                long n = loNode();
+                if (n == 0L)
+                    return null;
+                K k = m.key(n);
+                if (!inBounds(k))
+                    return null;
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+        }
+
+        private Map.Entry<K,V> removeHighest() {
+            for (;;) {
+                long n = hiNode();
+                if (n == 0L)
+                    return null;
+                K k = m.key(n);
+                if (!inBounds(k))
+                    return null;
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+        }
+
+        /**
+         * Adjusts a relation for direction, and returns the nearest
+         * node within the range, or 0 if none.
+         */
+        private long findNear(K key, int rel) {
+            if (key == null)
+                throw new NullPointerException();
+            if (isDescending) { // adjust relation for direction
+                if ((rel & LT) == 0)
+                    rel |= LT;
+                else
+                    rel &= ~LT;
+            }
+            long n;
+            if (tooLow(key))
+                n = ((rel & LT) != 0) ? 0L : loNode();
+            else if (tooHigh(key))
+                n = ((rel & LT) != 0) ? hiNode() : 0L;
+            else
+                n = m.findNear(key, rel);
+            return (n != 0L && inBounds(m.key(n))) ? n : 0L;
+        }
+
+        private Map.Entry<K,V> getNearEntry(K key, int rel) {
+            for (;;) {
+                long n = findNear(key, rel);
+                if (n == 0L)
+                    return null;
+                Map.Entry<K,V> e = m.entry(n);
+                if (e != null)
+                    return e;
+            }
+        }
+
+        private K getNearKey(K key, int rel) {
+            long n = findNear(key, rel);
+            return (n == 0L) ? null : m.key(n);
+        }
+
+        /* ----------------  Map API methods -------------- */
+
+        @SuppressWarnings("unchecked")
+        public boolean containsKey(Object key) {
+            if (key == null) throw new NullPointerException();
+            K k = (K)key;
+            return inBounds(k) && m.containsKey(k);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            if (key == null) throw new NullPointerException();
+            K k = (K)key;
+            return ((!inBounds(k)) ? null : m.get(k));
+        }
+
+        public V put(K key, V value) {
+            checkKeyBounds(key);
+            return m.put(key, value);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V remove(Object key) {
+            K k = (K)key;
+            return (!inBounds(k)) ? null : m.remove(k);
+        }
+
+        public int size() {
+            long count = 0;
+            for (long n = loNode(); isBeforeEnd(n); n = m.successor(n)) {
+                if (m.value(n) != 0L)
+                    ++count;
+            }
+            return count >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+        }
+
+        public boolean isEmpty() {
+            return !isBeforeEnd(loNode());
+        }
+
+        public boolean containsValue(Object value) {
+            if (value == null)
+                throw new NullPointerException();
+            for (long n = loNode(); isBeforeEnd(n); n = m.successor(n)) {
+                long v = m.value(n);
+                if (v != 0L && value.equals(m.readValue(v)))
+                    return true;
+            }
+            return false;
+        }
+
+        public void clear() {
+            for (long n = loNode(); isBeforeEnd(n); n = m.successor(n)) {
+                if (m.value(n) != 0L)
+                    m.remove(m.key(n));
+            }
+        }
+
+        /* ----------------  ConcurrentMap API methods -------------- */
+
+        public V putIfAbsent(K key, V value) {
+            checkKeyBounds(key);
+            return m.putIfAbsent(key, value);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object key, Object value) {
+            K k = (K)key;
+            return inBounds(k) && m.remove(k, value);
+        }
+
+        public boolean replace(K key, V oldValue, V newValue) {
+            checkKeyBounds(key);
+            return m.replace(key, oldValue, newValue);
+        }
+
+        public V replace(K key, V value) {
+            checkKeyBounds(key);
+            return m.replace(key, value);
+        }
+
+        /* ----------------  SortedMap API methods -------------- */
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> cmp = m.comparator();
+            if (isDescending)
+                return Collections.reverseOrder(cmp);
+            else
+                return cmp;
+        }
+
+        /**
+         * Utility to create submaps, where given bounds override
+         * unbounded(null) ones and/or are checked against bounded ones.
+         */
+        private SubMap<K,V> newSubMap(K fromKey,
+                                      boolean fromInclusive,
+                                      K toKey,
+                                      boolean toInclusive) {
+            if (isDescending) { // flip senses
+                K tk = fromKey;
+                fromKey = toKey;
+                toKey = tk;
+                boolean ti = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = ti;
+            }
+            if (lo != null) {
+                if (fromKey == null) {
+                    fromKey = lo;
+                    fromInclusive = loInclusive;
+                }
+                else {
+                    int c = m.compare(fromKey, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            if (hi != null) {
+                if (toKey == null) {
+                    toKey = hi;
+                    toInclusive = hiInclusive;
+                }
+                else {
+                    int c = m.compare(toKey, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            return new SubMap<K,V>(m, fromKey, fromInclusive,
+                                   toKey, toInclusive, isDescending);
+        }
+
+        public SubMap<K,V> subMap(K fromKey,
+                                  boolean fromInclusive,
+                                  K toKey,
+                                  boolean toInclusive) {
+            if (fromKey == null || toKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        public SubMap<K,V> headMap(K toKey,
+                                   boolean inclusive) {
+            if (toKey == null)
+                throw new NullPointerException();
+            return newSubMap(null, false, toKey, inclusive);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey,
+                                   boolean inclusive) {
+            if (fromKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, inclusive, null, false);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SubMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public SubMap<K,V> descendingMap() {
+            return new SubMap<K,V>(m, lo, loInclusive,
+                                   hi, hiInclusive, !isDescending);
+        }
+
+        /* ----------------  Relational methods -------------- */
+
+        public Map.Entry<K,V> ceilingEntry(K key) {
+            return getNearEntry(key, GT|EQ);
+        }
+
+        public K ceilingKey(K key) {
+            return getNearKey(key, GT|EQ);
+        }
+
+        public Map.Entry<K,V> lowerEntry(K key) {
+            return getNearEntry(key, LT);
+        }
+
+        public K lowerKey(K key) {
+            return getNearKey(key, LT);
+        }
+
+        public Map.Entry<K,V> floorEntry(K key) {
+            return getNearEntry(key, LT|EQ);
+        }
+
+        public K floorKey(K key) {
+            return getNearKey(key, LT|EQ);
+        }
+
+        public Map.Entry<K,V> higherEntry(K key) {
+            return getNearEntry(key, GT);
+        }
+
+        public K higherKey(K key) {
+            return getNearKey(key, GT);
+        }
+
+        public K firstKey() {
+            return isDescending ? highestKey() : lowestKey();
+        }
+
+        public K lastKey() {
+            return isDescending ? lowestKey() : highestKey();
+        }
+
+        public Map.Entry<K,V> firstEntry() {
+            return isDescending ? highestEntry() : lowestEntry();
+        }
+
+        public Map.Entry<K,V> lastEntry() {
+            return isDescending ? lowestEntry() : highestEntry();
+        }
+
+        public Map.Entry<K,V> pollFirstEntry() {
+            return isDescending ? removeHighest() : removeLowest();
+        }
+
+        public Map.Entry<K,V> pollLastEntry() {
+            return isDescending ? removeLowest() : removeHighest();
+        }
+
+        /* ---------------- Submap Views -------------- */
+
+        public NavigableSet<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> navigableKeySet() {
+            KeySet<K> ks = keySetView;
+            return (ks != null) ? ks : (keySetView = new KeySet<K>(this));
+        }
+
+        public Collection<V> values() {
+            Collection<V> vs = valuesView;
+            return (vs != null) ? vs : (valuesView = new Values<V>(this));
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySet<K,V>(this));
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        Iterator<K> keyIterator() {
+            return new SubMapKeyIterator();
+        }
+
+        Iterator<V> valueIterator() {
+            return new SubMapValueIterator();
+        }
+
+        Iterator<Map.Entry<K,V>> entryIterator() {
+            return new SubMapEntryIterator();
+        }
+
+        /**
+         * Iterator over the nodes of the range.  Keys and values are
+         * read when the node is reached, so that each returned pair
+         * is a snapshot.
+         */
+        abstract class SubMapIter<T> implements Iterator<T> {
+            /** the key of the last node returned by next() */
+            K lastReturned;
+            /** the next node to return from next(), or 0 */
+            long next;
+            /** key and value of next */
+            K nextKey;
+            V nextValue;
+
+            SubMapIter() {
+                long n = isDescending ? hiNode() : loNode();
+                if (n != 0L && !inBounds(m.key(n)))
+                    n = 0L;
+                setNext(n);
+            }
+
+            /**
+             * Sets next to n, skipping forward or backward past n if it
+             * is removed before its value is read.
+             */
+            private void setNext(long n) {
+                for (;;) {
+                    if (n == 0L)
+                        break;
+                    K k = m.key(n);
+                    if (isDescending ? tooLow(k) : tooHigh(k)) {
+                        n = 0L;
+                        break;
+                    }
+                    long v = m.value(n);
+                    if (v != 0L) {
+                        nextKey = k;
+                        nextValue = m.readValue(v);
+                        break;
+                    }
+                    n = isDescending ? m.findNear(k, LT) : m.successor(n);
+                }
+                next = n;
+                if (n == 0L) {
+                    nextKey = null;
+                    nextValue = null;
+                }
+            }
+
+            public final boolean hasNext() {
+                return next != 0L;
+            }
+
+            final void advance() {
+                if (next == 0L)
+                    throw new NoSuchElementException();
+                lastReturned = nextKey;
+                if (isDescending)
+                    setNext(m.findNear(lastReturned, LT));
+                else
+                    setNext(m.successor(next));
+            }
+
+            public void remove() {
+                K l = lastReturned;
+                if (l == null)
+                    throw new IllegalStateException();
+                m.remove(l);
+                lastReturned = null;
+            }
+        }
+
+        final class SubMapValueIterator extends SubMapIter<V> {
+            public V next() {
+                V v = nextValue;
+                advance();
+                return v;
+            }
+        }
+
+        final class SubMapKeyIterator extends SubMapIter<K> {
+            public K next() {
+                K k = nextKey;
+                advance();
+                return k;
+            }
+        }
+
+        final class SubMapEntryIterator extends SubMapIter<Map.Entry<K,V>> {
+            public Map.Entry<K,V> next() {
+                K k = nextKey;
+                V v = nextValue;
+                advance();
+                return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -520,6 +520,96 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         return offer(e); // never need to block
     }
 
+    /**
+     * Inserts all of the elements of the specified collection into this
+     * priority queue.  The lock is acquired, and waiting takers are
+     * woken, once for the whole collection rather than once per
+     * element.  As the queue is unbounded, this method will never
+     * block.
+     *
+     * <p>If an element cannot be compared with the elements already
+     * in the queue, the elements of the collection that precede it
+     * remain inserted.
+     *
+     * @param c the collection of elements to insert
+     * @throws ClassCastException if an element of the specified
+     *         collection cannot be compared with elements currently in
+     *         the priority queue according to the priority queue's ordering
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     */
+    public void putAll(Collection<? extends E> c) {
+        insertAll(c); // never need to block
+    }
+
+    /**
+     * Inserts all of the elements of the specified collection into this
+     * priority queue, as by {@link #putAll}.  As the queue is unbounded,
+     * this method will never block or insert fewer than all of the
+     * elements.
+     *
+     * @param c the collection of elements to insert
+     * @param timeout This parameter is ignored as the method never blocks
+     * @param unit This parameter is ignored as the method never blocks
+     * @return the number of elements inserted, which is the size of the
+     *         specified collection
+     * @throws ClassCastException if an element of the specified
+     *         collection cannot be compared with elements currently in
+     *         the priority queue according to the priority queue's ordering
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the specified collection is
+     *         this queue
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit) {
+        return insertAll(c); // never need to block
+    }
+
+    /**
+     * Mechanics for putAll and offerAll.
+     */
+    private int insertAll(Collection<? extends E> c) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        int len = a.length;
+        for (int i = 0; i < len; ++i)
+            if (a[i] == null)
+                throw new NullPointerException();
+        if (len == 0)
+            return 0;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        int n, cap;
+        Object[] array;
+        while ((cap = (array = queue).length) - (n = size) < len)
+            tryGrow(array, cap);
+        try {
+            Comparator<? super E> cmp = comparator;
+            for (int i = 0; i < len; ++i) {
+                @SuppressWarnings("unchecked") E e = (E) a[i];
+                if (cmp == null)
+                    siftUpComparable(n, e, array);
+                else
+                    siftUpUsingComparator(n, e, array, cmp);
+                size = ++n;
+            }
+            if (len == 1)
+                notEmpty.signal();
+            else
+                notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return len;
+    }
+
     public E poll() {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -779,6 +869,70 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Removes elements from this queue and adds them to the given
+     * collection, waiting if necessary up to the specified wait time
+     * until at least {@code minElements} have been transferred.  All
+     * elements available when the lock is acquired are transferred
+     * together, up to {@code maxElements} in total; once at least
+     * {@code minElements} have been transferred, this method returns
+     * without waiting for more.
+     *
+     * <p>If interrupted while waiting, the elements transferred before
+     * the interruption remain in the given collection.  Failure
+     * behavior when adding to the collection is as for {@link
+     * #drainTo(Collection, int)}.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int n = 0;
+            while (n < maxElements) {
+                if (size == 0) {
+                    if (n >= minElements || nanos <= 0)
+                        break;
+                    nanos = notEmpty.awaitNanos(nanos);
+                    continue;
+                }
+                for (int k = Math.min(maxElements - n, size); k > 0; --k) {
+                    @SuppressWarnings("unchecked") E e = (E) queue[0];
+                    c.add(e); // In this order, in case add() throws.
+                    dequeue();
+                    ++n;
+                }
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Atomically removes all of the elements from this queue.
      * The queue will be empty after this call returns.
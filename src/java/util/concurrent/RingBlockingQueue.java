@@ -0,0 +1,891 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a
+ * preallocated ring of slots, in which producers and consumers never
+ * exclude one another.  This queue orders elements FIFO
+ * (first-in-first-out).  The <em>head</em> of the queue is that
+ * element that has been on the queue the longest time.  The
+ * <em>tail</em> of the queue is that element that has been on the
+ * queue the shortest time.
+ *
+ * <p>Each slot carries a sequence number telling producers and
+ * consumers whether it is ready to be filled or emptied.  The head and
+ * tail positions are advanced by compare-and-set on separately padded
+ * counters, so {@link #offer(Object) offer} and {@link #poll() poll}
+ * neither lock nor allocate, and a producer and a consumer touch
+ * common memory only in the slot they hand over.  Threads block, in
+ * {@link #put put}, {@link #take take} and the timed
+ * {@code offer} and {@code poll}, only while the queue is full or
+ * empty; only those waiting threads and the threads that wake them
+ * take a lock.  This makes the queue well suited to handing off tasks
+ * to a {@link ThreadPoolExecutor} under heavy contention, where an
+ * {@link ArrayBlockingQueue} serializes all producers and consumers on
+ * one lock and a {@link LinkedBlockingQueue} allocates a node per
+ * element.  Waiting threads are not ordered fairly.
+ *
+ * <p>Removing an interior element, by {@link #remove(Object)} or by
+ * an iterator, clears its slot; the cleared slot still counts against
+ * the capacity of the queue until consumers reach it.  Iterators are
+ * <i>weakly consistent</i>: they return the elements present when the
+ * iterator was created, may reflect later removals, and never throw
+ * {@link java.util.ConcurrentModificationException
+ * ConcurrentModificationException}.  The {@code size} method returns
+ * an estimate while the queue is being modified.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code RingBlockingQueue}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code RingBlockingQueue} in another thread.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class RingBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>, java.io.Serializable {
+    private static final long serialVersionUID = 2793716472937641289L;
+
+    /*
+     * The ring follows the bounded multi-producer multi-consumer queue
+     * of Dmitry Vyukov.  Positions increase forever; position p uses
+     * slot index(p).  The sequence number of a slot tells which
+     * operation may use it next:
+     *
+     *   sequence == 2 * p      empty, may be filled at position p
+     *   sequence == 2 * p + 1  filled, may be emptied at position p
+     *
+     * (Vyukov's original uses p and p + 1, which cannot tell a full
+     * slot from an empty one of the next lap when capacity is one.)
+     * A producer reads tail position t and the sequence of its slot.
+     * If that is empty(t), it claims the slot by CASing tail from t to
+     * t + 1, stores the item, and publishes it by setting the sequence
+     * to full(t).  If the sequence is behind, the slot still holds the
+     * element of the previous lap and the queue is full.  Consumers
+     * mirror this at head position h, releasing the slot for the next
+     * lap by setting its sequence to empty(h + capacity).
+     *
+     * Interior removal CASes the item of a filled slot to null.  A
+     * consumer empties its claimed slot by CASing the item to null as
+     * well, so exactly one of them gets the element; a consumer that
+     * finds a cleared slot skips it.  The "removed" count of cleared,
+     * not yet skipped slots keeps size() from counting them.
+     *
+     * Blocking uses a lock and two conditions that only waiting
+     * threads, and the threads that signal them, ever touch.  A
+     * waiter increments its waiter count under the lock and then
+     * retries before awaiting; an operation that makes progress
+     * publishes the slot with a volatile write and then reads the
+     * opposite waiter count.  Because both sides write before they
+     * read, either the waiter sees the change or the other thread sees
+     * the waiter and signals it under the lock.
+     */
+
+    /** The capacity bound */
+    private final int capacity;
+
+    /** capacity - 1 if capacity is a power of two, else -1 */
+    private transient int mask;
+
+    /** The queued items */
+    private transient Object[] items;
+
+    /** The sequence number of each slot */
+    private transient long[] sequences;
+
+    /** Position of the next element to take */
+    private transient Position head;
+
+    /** Position of the next slot to fill */
+    private transient Position tail;
+
+    /** Number of slots cleared by interior removal and not yet taken */
+    private transient AtomicInteger removed;
+
+    /** Lock held by waiting threads and by threads signalling them */
+    private transient ReentrantLock lock;
+
+    /** Wait queue for waiting takes */
+    private transient Condition notEmpty;
+
+    /** Wait queue for waiting puts */
+    private transient Condition notFull;
+
+    /** Number of threads waiting in take or timed poll */
+    private transient volatile int takeWaiters;
+
+    /** Number of threads waiting in put or timed offer */
+    private transient volatile int putWaiters;
+
+    /**
+     * A position counter, padded to avoid sharing a cache line with
+     * the other counter or with other objects.
+     */
+    static final class Position {
+        volatile long p0, p1, p2, p3, p4, p5, p6;
+        volatile long value;
+        volatile long q0, q1, q2, q3, q4, q5, q6;
+
+        final boolean cas(long cmp, long val) {
+            return UNSAFE.compareAndSwapLong(this, valueOffset, cmp, val);
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long valueOffset;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Position.class;
+                valueOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("value"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * Creates a {@code RingBlockingQueue} with the given (fixed)
+     * capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public RingBlockingQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        initialize();
+    }
+
+    /**
+     * Creates a {@code RingBlockingQueue} with the given (fixed)
+     * capacity, initially containing the elements of the given
+     * collection, added in traversal order of the collection's
+     * iterator.
+     *
+     * @param capacity the capacity of this queue
+     * @param c the collection of elements to initially contain
+     * @throws IllegalArgumentException if {@code capacity} is less than
+     *         {@code c.size()}, or less than 1.
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public RingBlockingQueue(int capacity, Collection<? extends E> c) {
+        this(capacity);
+        for (E e : c) {
+            checkNotNull(e);
+            if (!offer(e))
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private void initialize() {
+        int n = capacity;
+        mask = ((n & (n - 1)) == 0) ? n - 1 : -1;
+        items = new Object[n];
+        long[] seqs = new long[n];
+        for (int i = 0; i < n; ++i)
+            seqs[i] = empty(i);
+        sequences = seqs;
+        head = new Position();
+        tail = new Position();
+        removed = new AtomicInteger();
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+        notFull = lock.newCondition();
+    }
+
+    /**
+     * Throws NullPointerException if argument is null.
+     *
+     * @param v the element
+     */
+    private static void checkNotNull(Object v) {
+        if (v == null)
+            throw new NullPointerException();
+    }
+
+    // Slot access
+
+    private int index(long pos) {
+        int m = mask;
+        return (m >= 0) ? (int) pos & m : (int) (pos % capacity);
+    }
+
+    /** Sequence of a slot that may be filled at position pos */
+    private static long empty(long pos) {
+        return pos << 1;
+    }
+
+    /** Sequence of a slot that may be emptied at position pos */
+    private static long full(long pos) {
+        return (pos << 1) | 1L;
+    }
+
+    private long sequenceAt(int i) {
+        return UNSAFE.getLongVolatile(sequences, ((long) i << LSHIFT) + LBASE);
+    }
+
+    private void setSequence(int i, long seq) {
+        UNSAFE.putLongVolatile(sequences, ((long) i << LSHIFT) + LBASE, seq);
+    }
+
+    private Object itemAt(int i) {
+        return UNSAFE.getObjectVolatile(items, ((long) i << ASHIFT) + ABASE);
+    }
+
+    private void setItem(int i, Object x) {
+        UNSAFE.putOrderedObject(items, ((long) i << ASHIFT) + ABASE, x);
+    }
+
+    private boolean casItem(int i, Object cmp, Object val) {
+        return UNSAFE.compareAndSwapObject(items, ((long) i << ASHIFT) + ABASE,
+                                           cmp, val);
+    }
+
+    /**
+     * Inserts e at the tail if there is a free slot, without signalling.
+     */
+    private boolean tryOffer(Object e) {
+        final Position tail = this.tail;
+        for (;;) {
+            long t = tail.value;
+            int i = index(t);
+            long d = sequenceAt(i) - empty(t);
+            if (d == 0) {
+                if (tail.cas(t, t + 1)) {
+                    setItem(i, e);
+                    setSequence(i, full(t));
+                    return true;
+                }
+            }
+            else if (d < 0)
+                return false;
+        }
+    }
+
+    /**
+     * Removes the head element if there is one, without signalling.
+     */
+    @SuppressWarnings("unchecked")
+    private E tryPoll() {
+        final Position head = this.head;
+        for (;;) {
+            long h = head.value;
+            int i = index(h);
+            long d = sequenceAt(i) - full(h);
+            if (d == 0) {
+                if (head.cas(h, h + 1)) {
+                    Object x = itemAt(i);
+                    if (x != null && !casItem(i, x, null))
+                        x = null;
+                    setSequence(i, empty(h + capacity));
+                    if (x != null)
+                        return (E) x;
+                    removed.decrementAndGet(); // skipped a cleared slot
+                    signalNotFull();
+                }
+            }
+            else if (d < 0)
+                return null;
+        }
+    }
+
+    /**
+     * Signals a waiting take, if any.
+     */
+    private void signalNotEmpty() {
+        if (takeWaiters != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Signals a waiting put, if any.
+     */
+    private void signalNotFull() {
+        if (putWaiters != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and throwing an
+     * {@code IllegalStateException} if this queue is full.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws IllegalStateException if this queue is full
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        return super.add(e);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.  This method is generally preferable to
+     * method {@link #add}, which can fail to insert an element only by
+     * throwing an exception.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        checkNotNull(e);
+        if (!tryOffer(e))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        if (!tryOffer(e)) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++putWaiters;
+                try {
+                    while (!tryOffer(e))
+                        notFull.await();
+                } finally {
+                    --putWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotEmpty();
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+
+        checkNotNull(e);
+        if (!tryOffer(e)) {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++putWaiters;
+                try {
+                    while (!tryOffer(e)) {
+                        if (nanos <= 0)
+                            return false;
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    --putWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns
+     * {@code null} if this queue is empty.  Never blocks.
+     *
+     * @return the head of this queue, or {@code null} if this queue
+     *         is empty
+     */
+    public E poll() {
+        E x = tryPoll();
+        if (x != null)
+            signalNotFull();
+        return x;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting if
+     * necessary until an element becomes available.
+     *
+     * @return the head of this queue
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        E x = tryPoll();
+        if (x == null) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++takeWaiters;
+                try {
+                    while ((x = tryPoll()) == null)
+                        notEmpty.await();
+                } finally {
+                    --takeWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotFull();
+        return x;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting up to the
+     * specified wait time if necessary for an element to become
+     * available.
+     *
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the head of this queue, or {@code null} if the
+     *         specified waiting time elapses before an element is
+     *         available
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x = tryPoll();
+        if (x == null) {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++takeWaiters;
+                try {
+                    while ((x = tryPoll()) == null) {
+                        if (nanos <= 0)
+                            return null;
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                } finally {
+                    --takeWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        signalNotFull();
+        return x;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or
+     * returns {@code null} if this queue is empty.
+     *
+     * @return the head of this queue, or {@code null} if this queue
+     *         is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long h = head.value, t = tail.value;
+        for (long p = h; p < t && p - h < capacity; ++p) {
+            int i = index(p);
+            if (sequenceAt(i) == full(p)) {
+                Object x = itemAt(i);
+                if (x != null && sequenceAt(i) == full(p))
+                    return (E) x;
+            }
+        }
+        return null;
+    }
+
+    // this doc comment is overridden to remove the reference to collections
+    // greater in size than Integer.MAX_VALUE
+    /**
+     * Returns the number of elements in this queue.  The result is
+     * exact while the queue is not being modified, and otherwise an
+     * estimate.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long h = head.value;
+        long n = tail.value - h - removed.get();
+        return (n <= 0) ? 0 : (n >= capacity) ? capacity : (int) n;
+    }
+
+    // this doc comment is a modified copy of the inherited doc comment,
+    // without the reference to unlimited queues.
+    /**
+     * Returns the number of additional elements that this queue can ideally
+     * (in the absence of memory or resource constraints) accept without
+     * blocking.  Slots cleared by interior removal are not available
+     * until consumers reach them.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to insert
+     * an element will succeed by inspecting {@code remainingCapacity}
+     * because it may be the case that another thread is about to
+     * insert or remove an element.
+     */
+    public int remainingCapacity() {
+        long h = head.value;
+        long n = capacity - (tail.value - h);
+        return (n <= 0) ? 0 : (n >= capacity) ? capacity : (int) n;
+    }
+
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Callback for traverse, which passes each element present and its
+     * position, from head to tail, until visit returns true.
+     */
+    private abstract static class SlotVisitor {
+        abstract boolean visit(Object x, long pos);
+    }
+
+    private void traverse(SlotVisitor v) {
+        long h = head.value, t = tail.value;
+        for (long p = h; p < t && p - h < capacity; ++p) {
+            int i = index(p);
+            if (sequenceAt(i) == full(p)) {
+                Object x = itemAt(i);
+                if (x != null && sequenceAt(i) == full(p) && v.visit(x, p))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Clears the slot at position pos if it still holds x.
+     */
+    private boolean removeAt(long pos, Object x) {
+        int i = index(pos);
+        if (sequenceAt(i) == full(pos) && casItem(i, x, null)) {
+            removed.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.
+     * Returns {@code true} if this queue contained the specified element
+     * (or equivalently, if this queue changed as a result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(final Object o) {
+        if (o == null) return false;
+        final boolean[] result = new boolean[1];
+        traverse(new SlotVisitor() {
+            boolean visit(Object x, long pos) {
+                return o.equals(x) && (result[0] = removeAt(pos, x));
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(final Object o) {
+        if (o == null) return false;
+        final boolean[] result = new boolean[1];
+        traverse(new SlotVisitor() {
+            boolean visit(Object x, long pos) {
+                return result[0] = o.equals(x);
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Returns the elements and their positions, in proper sequence.
+     */
+    private ArrayList<Object> snapshot(final ArrayList<Long> positions) {
+        final ArrayList<Object> list = new ArrayList<Object>();
+        traverse(new SlotVisitor() {
+            boolean visit(Object x, long pos) {
+                list.add(x);
+                if (positions != null)
+                    positions.add(pos);
+                return false;
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue, in
+     * proper sequence.
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this queue.  (In other words, this method must allocate
+     * a new array).  The caller is thus free to modify the returned array.
+     *
+     * <p>This method acts as bridge between array-based and collection-based
+     * APIs.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        return snapshot(null).toArray();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue, in
+     * proper sequence; the runtime type of the returned array is that of
+     * the specified array.  If the queue fits in the specified array, it
+     * is returned therein.  Otherwise, a new array is allocated with the
+     * runtime type of the specified array and the size of this queue.
+     *
+     * <p>If this queue fits in the specified array with room to spare
+     * (i.e., the array has more elements than this queue), the element in
+     * the array immediately following the end of the queue is set to
+     * {@code null}.
+     *
+     * @param a the array into which the elements of the queue are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this queue
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this queue
+     * @throws NullPointerException if the specified array is null
+     */
+    public <T> T[] toArray(T[] a) {
+        return snapshot(null).toArray(a);
+    }
+
+    /**
+     * Atomically removes all of the elements from this queue.  The
+     * queue will be empty after this call returns, unless elements are
+     * concurrently added.
+     */
+    public void clear() {
+        while (poll() != null)
+            ;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        E x;
+        while (n < maxElements && (x = tryPoll()) != null) {
+            c.add(x);
+            ++n;
+        }
+        if (n > 0 && putWaiters != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper sequence.
+     * The elements will be returned in order from first (head) to last (tail).
+     *
+     * <p>The returned {@code Iterator} is a "weakly consistent" iterator
+     * that will never throw {@link java.util.ConcurrentModificationException
+     * ConcurrentModificationException}.  It returns the elements present
+     * when it was created; its {@code remove} method removes the last
+     * returned element if it is still in the queue.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements Iterator<E> {
+        private final ArrayList<Long> positions = new ArrayList<Long>();
+        private final ArrayList<Object> elements = snapshot(positions);
+        private int cursor;
+        private int lastRet = -1;
+
+        public boolean hasNext() {
+            return cursor < elements.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= elements.size())
+                throw new NoSuchElementException();
+            lastRet = cursor++;
+            return (E) elements.get(lastRet);
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeAt(positions.get(lastRet), elements.get(lastRet));
+            lastRet = -1;
+        }
+    }
+
+    /**
+     * Saves the state to a stream (that is, serializes it).
+     *
+     * @serialData The capacity is emitted (int), followed by all of
+     * its elements (each an {@code Object}) in the proper order,
+     * followed by a null
+     * @param s the stream
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+
+        // Write out capacity
+        s.defaultWriteObject();
+
+        // Write out all elements in the proper order.
+        for (Object x : snapshot(null))
+            s.writeObject(x);
+
+        // Use trailing null as sentinel
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in capacity
+        s.defaultReadObject();
+        if (capacity <= 0)
+            throw new java.io.InvalidObjectException("Bad capacity");
+        initialize();
+
+        // Read in all elements and place in queue
+        for (;;) {
+            Object item = s.readObject();
+            if (item == null)
+                break;
+            if (!tryOffer(item))
+                throw new java.io.InvalidObjectException("Too many elements");
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    private static final long LBASE;
+    private static final int LSHIFT;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            ABASE = UNSAFE.arrayBaseOffset(Object[].class);
+            int scale = UNSAFE.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            LBASE = UNSAFE.arrayBaseOffset(long[].class);
+            scale = UNSAFE.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            LSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -138,6 +138,24 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
      * throughput. And on less busy ones, the amount of spinning is
      * small enough not to be noticeable.
      *
+     * The number of spins is adapted per transferer to recent
+     * handoff latencies (see Transferer.adaptSpins): it grows when
+     * waiters are fulfilled near the end of their spins or shortly
+     * after blocking, and shrinks when they block for longer or give
+     * up, within bounds that scale with the number of CPUs. This
+     * keeps spinning from stealing cycles from fulfilling threads on
+     * small or oversubscribed hosts while letting large hosts avoid
+     * blocking at all when producers and consumers are close.
+     *
+     * In the (unfair) stack, threads that lose a CAS of head also try
+     * to meet a thread of complementary mode in a small elimination
+     * arena before retrying, as in the elimination backoff stack of
+     * Hendler, Shavit and Yerushalmi ("A Scalable Lock-free Stack
+     * Algorithm", SPAA 2004). Such a pair hands off without touching
+     * the stack at all, which spreads contention away from head.  An
+     * eliminated pair need not be the pair the stack would have
+     * matched, so this is not done in fair mode.
+     *
      * Cleaning is done in different ways in queues vs stacks.  For
      * queues, we can almost always remove a node immediately in O(1)
      * time (modulo retries for consistency checks) when it is
@@ -178,6 +196,54 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
          *         by checking Thread.interrupted.
          */
         abstract Object transfer(Object e, boolean timed, long nanos);
+
+        /**
+         * The current adaptive number of spins for untimed waits;
+         * timed waits use 1/16 as many. Not volatile since it doesn't
+         * matter too much if different threads don't see updates.
+         */
+        int spinLimit = maxUntimedSpins;
+
+        /**
+         * Returns the number of times to spin before blocking.
+         */
+        final int spinsFor(boolean timed) {
+            int n = spinLimit;
+            return timed ? n >>> 4 : n;
+        }
+
+        /**
+         * Adjusts spinLimit after a wait that started with the given
+         * number of spins: slightly up if the waiter was fulfilled
+         * after using more than half of them; doubled if it blocked
+         * but was fulfilled about as soon as spinning twice as long
+         * would have caught; halved if it blocked for longer or gave
+         * up.
+         *
+         * @param matched true if fulfilled, false if cancelled
+         * @param budget the initial number of spins
+         * @param spins the number of spins left when the wait ended
+         * @param spinTime the time spinning started
+         * @param parkTime the time the waiter prepared to block, or
+         * zero if it never did
+         */
+        final void adaptSpins(boolean matched, int budget, int spins,
+                              long spinTime, long parkTime) {
+            int n = spinLimit, m;
+            if (parkTime == 0L) {             // did not block
+                if (!matched || spins >= (budget >>> 1))
+                    return;                   // spins were ample
+                m = Math.min(MAX_SPINS, n + (n >>> 2));
+            }
+            else if (matched &&
+                     System.nanoTime() - parkTime <
+                     parkTime - spinTime + PARK_NANOS)
+                m = Math.min(MAX_SPINS, n << 1);
+            else
+                m = Math.max(MIN_SPINS, n >>> 1);
+            if (m != n)
+                spinLimit = m;
+        }
     }
 
     /** The number of CPUs, for spin control */
@@ -199,6 +265,45 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
      */
     static final int maxUntimedSpins = maxTimedSpins * 16;
 
+    /*
+     * Despite their names, maxTimedSpins and maxUntimedSpins are now
+     * only the initial spin counts; see Transferer.adaptSpins.
+     */
+
+    /**
+     * The lower bound of adaptive untimed spins on multiprocessors.
+     */
+    static final int MIN_SPINS = maxUntimedSpins >>> 2;
+
+    /**
+     * The upper bound of adaptive untimed spins. Scaled by the number
+     * of CPUs so that small hosts never spin much longer than the
+     * initial count.
+     */
+    static final int MAX_SPINS =
+        maxUntimedSpins * Math.max(1, Math.min(NCPUS >>> 1, 8));
+
+    /**
+     * The number of nanoseconds added to the time spent spinning when
+     * judging whether a blocked waiter was fulfilled soon enough that
+     * more spinning would have been better. Roughly the cost of a
+     * park and unpark.
+     */
+    static final long PARK_NANOS = 1L << 14;
+
+    /**
+     * The number of slots in the elimination arena of the stack; zero
+     * on uniprocessors, where waiting in the arena could not succeed.
+     */
+    static final int ARENA_SIZE =
+        (NCPUS < 2) ? 0 : Math.min(32, Math.max(1, NCPUS >>> 1));
+
+    /**
+     * The number of times a thread spins in the elimination arena
+     * waiting for a partner before withdrawing.
+     */
+    static final int ARENA_SPINS = maxTimedSpins * 4;
+
     /**
      * The number of nanoseconds for which it is faster to spin
      * rather than to use timed park. A rough estimate suffices.
@@ -346,6 +451,7 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 
             SNode s = null; // constructed/reused as needed
             int mode = (e == null) ? REQUEST : DATA;
+            Object x;       // item from elimination, if any
 
             for (;;) {
                 SNode h = head;
@@ -364,11 +470,16 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
                         if ((h = head) != null && h.next == s)
                             casHead(h, s.next);     // help s's fulfiller
                         return (mode == REQUEST) ? m.item : s.item;
-                    }
+                    } else if ((x = eliminate(s, e, mode, true)) != null)
+                        return x;                   // met in arena
                 } else if (!isFulfilling(h.mode)) { // try to fulfill
                     if (h.isCancelled())            // already cancelled
                         casHead(h, h.next);         // pop and retry
-                    else if (casHead(h, s=snode(s, e, h, FULFILLING|mode))) {
+                    else if (!casHead(h, s=snode(s, e, h, FULFILLING|mode))) {
+                        boolean canWait = !timed || nanos > 0;
+                        if ((x = eliminate(s, e, mode, canWait)) != null)
+                            return x;               // met in arena
+                    } else {
                         for (;;) { // loop until matched or waiters disappear
                             SNode m = s.next;       // m is s's match
                             if (m == null) {        // all waiters are gone
@@ -399,6 +510,52 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
             }
         }
 
+        /** Elimination arena; lazily created upon first contention */
+        volatile AtomicReferenceArray<SNode> arena;
+
+        /**
+         * Tries to hand off with a thread of complementary mode in the
+         * elimination arena after losing a race to CAS head: fulfills
+         * a node found in a random slot, or, if canWait, occupies the
+         * slot for a few spins waiting to be fulfilled. Nodes in the
+         * arena are never cancelled, so a node removed from its slot
+         * is always matched by the thread that removed it.
+         *
+         * @param s the node to reuse, if non-null; it must not be
+         * on the stack
+         * @param e the item, or null for a take
+         * @param mode REQUEST or DATA
+         * @param canWait true if may wait in the arena
+         * @return the item received or given, or null if none
+         */
+        Object eliminate(SNode s, Object e, int mode, boolean canWait) {
+            if (ARENA_SIZE == 0)
+                return null;
+            AtomicReferenceArray<SNode> a = arena;
+            if (a == null)
+                arena = a = new AtomicReferenceArray<SNode>(ARENA_SIZE);
+            int i = ThreadLocalRandom.current().nextInt(ARENA_SIZE);
+            SNode q = a.get(i);
+            if (q != null) {                        // try to fulfill q
+                if (q.mode == mode || !a.compareAndSet(i, q, null))
+                    return null;
+                q.tryMatch(snode(s, e, null, mode));
+                return (mode == REQUEST) ? q.item : e;
+            }
+            if (!canWait ||
+                !a.compareAndSet(i, null, s = snode(s, e, null, mode)))
+                return null;
+            int spins = ARENA_SPINS;
+            while (spins > 0 && s.match == null)
+                --spins;
+            if (s.match == null && a.compareAndSet(i, s, null))
+                return null;                        // withdrawn
+            SNode m;
+            while ((m = s.match) == null)           // partner is matching
+                Thread.yield();
+            return (mode == REQUEST) ? m.item : e;
+        }
+
         /**
          * Spins/blocks until node s is matched by a fulfill operation.
          *
@@ -433,14 +590,19 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
             long lastTime = timed ? System.nanoTime() : 0;
             Thread w = Thread.currentThread();
             SNode h = head;
-            int spins = (shouldSpin(s) ?
-                         (timed ? maxTimedSpins : maxUntimedSpins) : 0);
+            int spins = (shouldSpin(s) ? spinsFor(timed) : 0);
+            int budget = spins;
+            long spinTime = (budget > 0) ? System.nanoTime() : 0L;
+            long parkTime = 0L;
             for (;;) {
                 if (w.isInterrupted())
                     s.tryCancel();
                 SNode m = s.match;
-                if (m != null)
+                if (m != null) {
+                    if (budget > 0)
+                        adaptSpins(m != s, budget, spins, spinTime, parkTime);
                     return m;
+                }
                 if (timed) {
                     long now = System.nanoTime();
                     nanos -= now - lastTime;
@@ -452,8 +614,11 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
                 }
                 if (spins > 0)
                     spins = shouldSpin(s) ? (spins-1) : 0;
-                else if (s.waiter == null)
+                else if (s.waiter == null) {
                     s.waiter = w; // establish waiter so can park next iter
+                    if (budget > 0)
+                        parkTime = System.nanoTime();
+                }
                 else if (!timed)
                     LockSupport.park(this);
                 else if (nanos > spinForTimeoutThreshold)
@@ -738,14 +903,19 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
             /* Same idea as TransferStack.awaitFulfill */
             long lastTime = timed ? System.nanoTime() : 0;
             Thread w = Thread.currentThread();
-            int spins = ((head.next == s) ?
-                         (timed ? maxTimedSpins : maxUntimedSpins) : 0);
+            int spins = ((head.next == s) ? spinsFor(timed) : 0);
+            int budget = spins;
+            long spinTime = (budget > 0) ? System.nanoTime() : 0L;
+            long parkTime = 0L;
             for (;;) {
                 if (w.isInterrupted())
                     s.tryCancel(e);
                 Object x = s.item;
-                if (x != e)
+                if (x != e) {
+                    if (budget > 0)
+                        adaptSpins(x != s, budget, spins, spinTime, parkTime);
                     return x;
+                }
                 if (timed) {
                     long now = System.nanoTime();
                     nanos -= now - lastTime;
@@ -757,8 +927,11 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
                 }
                 if (spins > 0)
                     --spins;
-                else if (s.waiter == null)
+                else if (s.waiter == null) {
                     s.waiter = w;
+                    if (budget > 0)
+                        parkTime = System.nanoTime();
+                }
                 else if (!timed)
                     LockSupport.park(this);
                 else if (nanos > spinForTimeoutThreshold)
@@ -0,0 +1,928 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.*;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps delayed tasks in a
+ * hierarchical hashed timing wheel, for workloads that schedule very
+ * large numbers of timeouts, most of which are cancelled before they
+ * expire.  Scheduling and cancelling a task take constant time
+ * regardless of how many tasks are pending, compared with the
+ * logarithmic cost of the heap used by {@link ScheduledThreadPoolExecutor}
+ * and {@link java.util.Timer}; the price is that time is measured in
+ * whole <em>ticks</em> of a duration fixed at construction.
+ *
+ * <p>A task never runs before its delay has elapsed, and normally runs
+ * within one tick after it.  Tasks that expire in the same tick run in
+ * no particular order.  A tick of a few milliseconds suits request
+ * timeouts and similar deadlines that do not need finer precision; the
+ * timer thread wakes once per tick only while tasks are pending.
+ *
+ * <p>A single timer thread, created on first use by the
+ * {@link ThreadFactory} given at construction, advances the wheel.
+ * Submitting and cancelling threads never block on it: new and
+ * cancelled tasks are handed over through non-blocking queues and are
+ * taken into account at the next tick.  When a tick expires tasks, they
+ * are passed in batches of up to 64 to the <em>dispatcher</em>
+ * {@link Executor}, so that a burst of timeouts costs one hand-off per
+ * batch rather than one per task.  If no dispatcher is given, expired
+ * tasks run in the timer thread itself, which is suitable only for
+ * short tasks.  Tasks whose batch is rejected by the dispatcher are
+ * cancelled.
+ *
+ * <p>Successive executions of a periodic task scheduled via
+ * {@link #scheduleAtFixedRate} or {@link #scheduleWithFixedDelay} do not
+ * overlap.  If any execution of a periodic task throws an exception,
+ * subsequent executions are suppressed.
+ *
+ * <p>After {@link #shutdown}, no new tasks are accepted; delayed tasks
+ * already scheduled still run when they expire, and periodic tasks are
+ * cancelled, as for a {@code ScheduledThreadPoolExecutor} with default
+ * policies.  {@link #shutdownNow} returns the tasks that have not yet
+ * expired.  The executor terminates once the timer thread has exited and
+ * all dispatched batches have completed; it does not shut down the
+ * dispatcher.
+ *
+ * @since 1.8
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+    /*
+     * Overview:
+     *
+     * Time is counted in ticks since construction.  The wheel has a
+     * number of levels, each an array of 2^wheelBits slots.  A task
+     * due at tick d while the wheel stands at tick t (d > t) is kept
+     * at the level L holding the highest group of wheelBits bits in
+     * which d and t differ, in the slot given by that group of d.
+     * Level 0 thus holds tasks due within the current revolution, one
+     * slot per tick; level 1 holds tasks due within the current
+     * revolution of level 1, one slot per 2^wheelBits ticks, and so on,
+     * with enough levels to cover any nanoTime-based deadline.
+     *
+     * Advancing to tick t first "cascades" each level L >= 1 whose
+     * lower L groups of t have just wrapped to zero, from the highest
+     * such level down: the tasks in slot (t >>> wheelBits*L) of that
+     * level now agree with t in group L, so reinserting them moves
+     * them to lower levels (or expires them).  Then every task in slot
+     * t of level 0 is due at exactly t and expires.  Each task is
+     * moved at most once per level, so insertion and expiry are
+     * amortized constant time; slots are doubly-linked lists, so
+     * removal is constant time too.
+     *
+     * The wheel is only touched while holding mainLock, which the
+     * timer thread takes once per tick and otherwise only shutdown
+     * methods take.  Scheduling threads push new tasks onto the
+     * submissions queue and cancelling threads push cancelled tasks
+     * onto the cancellations queue; the timer thread drains both at
+     * each tick.  While the wheel and both queues are empty the timer
+     * thread parks without a timeout, setting "idle" so that the next
+     * submission unparks it.
+     *
+     * Run states follow ThreadPoolExecutor: RUNNING -> SHUTDOWN ->
+     * STOP -> TERMINATED, where TERMINATED is reached once the timer
+     * thread has exited and no dispatched batch is outstanding.
+     */
+
+    private static final int RUNNING    = 0;
+    private static final int SHUTDOWN   = 1;
+    private static final int STOP       = 2;
+    private static final int TERMINATED = 3;
+
+    /** Default number of slots per level */
+    private static final int DEFAULT_TICKS_PER_WHEEL = 256;
+
+    /** Largest number of slots per level */
+    private static final int MAXIMUM_TICKS_PER_WHEEL = 1 << 16;
+
+    /** Largest number of tasks handed to the dispatcher as one batch */
+    private static final int DISPATCH_BATCH = 64;
+
+    /**
+     * Largest delay or period in nanoseconds, about 146 years, which
+     * keeps all deadline arithmetic free of overflow.
+     */
+    private static final long MAX_DELAY = Long.MAX_VALUE >> 1;
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final ThreadFactory threadFactory;
+    private final Executor dispatcher;
+
+    /** nanoTime at construction; tick 0 */
+    private final long startNanos;
+
+    /** Tasks awaiting insertion into the wheel */
+    private final ConcurrentLinkedQueue<WheelTask<?>> submissions =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** Cancelled tasks awaiting removal from the wheel */
+    private final ConcurrentLinkedQueue<WheelTask<?>> cancellations =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** Number of batches handed to the dispatcher and not yet done */
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    /** Guards the wheel and run state transitions */
+    private final ReentrantLock mainLock = new ReentrantLock();
+
+    /** Wait condition to support awaitTermination */
+    private final Condition termination = mainLock.newCondition();
+
+    /** Slot lists per level, each level created on first use */
+    private final WheelTask<?>[][] wheel;
+
+    /** Current tick; guarded by mainLock */
+    private long tick;
+
+    /** Number of tasks in the wheel; guarded by mainLock */
+    private int size;
+
+    private volatile int runState;
+
+    /** True once the timer thread has exited or can no longer start */
+    private volatile boolean timerDone;
+
+    /** True while the timer thread is parked with nothing to do */
+    private volatile boolean idle;
+
+    private volatile Thread timer;
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * tick duration that runs expired tasks in its timer thread.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit) {
+        this(tickDuration, unit, DEFAULT_TICKS_PER_WHEEL,
+             Executors.defaultThreadFactory(), null);
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * tick duration that passes expired tasks to the given dispatcher.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param dispatcher the executor that runs batches of expired tasks
+     * @throws IllegalArgumentException if {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} or {@code dispatcher}
+     *         is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit,
+                                        Executor dispatcher) {
+        this(tickDuration, unit, DEFAULT_TICKS_PER_WHEEL,
+             Executors.defaultThreadFactory(), checkDispatcher(dispatcher));
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * parameters.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param ticksPerWheel the number of slots in each level of the
+     *        wheel, rounded up to a power of two.  Larger values move
+     *        tasks between levels less often at the cost of memory.
+     * @param threadFactory the factory to use to create the timer thread
+     * @param dispatcher the executor that runs batches of expired tasks,
+     *        or {@code null} to run them in the timer thread
+     * @throws IllegalArgumentException if {@code tickDuration <= 0}, or
+     *         {@code ticksPerWheel <= 0} or greater than 65536
+     * @throws NullPointerException if {@code unit} or
+     *         {@code threadFactory} is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit,
+                                        int ticksPerWheel,
+                                        ThreadFactory threadFactory,
+                                        Executor dispatcher) {
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        if (tickDuration <= 0 || ticksPerWheel <= 0 ||
+            ticksPerWheel > MAXIMUM_TICKS_PER_WHEEL)
+            throw new IllegalArgumentException();
+        int n = 2;
+        while (n < ticksPerWheel)
+            n <<= 1;
+        this.tickNanos = Math.min(unit.toNanos(tickDuration), MAX_DELAY);
+        this.wheelBits = Integer.numberOfTrailingZeros(n);
+        this.wheelMask = n - 1;
+        this.wheel = new WheelTask<?>[(63 + wheelBits - 1) / wheelBits][];
+        this.threadFactory = threadFactory;
+        this.dispatcher = dispatcher;
+        this.startNanos = System.nanoTime();
+    }
+
+    private static Executor checkDispatcher(Executor dispatcher) {
+        if (dispatcher == null)
+            throw new NullPointerException();
+        return dispatcher;
+    }
+
+    /**
+     * Returns the duration of a tick in the given time unit.
+     *
+     * @param unit the time unit of the result
+     * @return the tick duration
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private class WheelTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** Links within a wheel slot; guarded by mainLock */
+        WheelTask<?> prev, next;
+
+        /** Level and slot holding this task, level -1 if none */
+        int level = -1, slot;
+
+        WheelTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+        }
+
+        WheelTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            long d = (other instanceof WheelTask)
+                ? time - ((WheelTask<?>) other).time
+                : (getDelay(TimeUnit.NANOSECONDS) -
+                   other.getDelay(TimeUnit.NANOSECONDS));
+            return (d == 0) ? 0 : ((d < 0) ? -1 : 1);
+        }
+
+        /**
+         * Returns true if this is a periodic (not a one-shot) action.
+         *
+         * @return true if periodic
+         */
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        /**
+         * Returns the tick at which this task expires.
+         */
+        long deadlineTick() {
+            long d = time - startNanos;
+            if (d <= 0)
+                return 0L;
+            long t = d / tickNanos;
+            return (d % tickNanos == 0) ? t : t + 1;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && runState < STOP)
+                cancellations.offer(this);
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reset/requeue if periodic.
+         */
+        public void run() {
+            int rs = runState;
+            boolean periodic = isPeriodic();
+            if (rs >= STOP || (periodic && rs != RUNNING))
+                cancel(false);
+            else if (!periodic)
+                super.run();
+            else if (super.runAndReset()) {
+                if (period > 0)
+                    time += period;
+                else
+                    time = System.nanoTime() - period;
+                reschedulePeriodic(this);
+            }
+        }
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.
+     */
+    private static long triggerTime(long delay, TimeUnit unit) {
+        long d = unit.toNanos(delay);
+        return System.nanoTime() + ((d < 0) ? 0 : Math.min(d, MAX_DELAY));
+    }
+
+    private static long periodNanos(long period, TimeUnit unit) {
+        return Math.min(unit.toNanos(period), MAX_DELAY);
+    }
+
+    /**
+     * Hands a new task to the timer thread, starting it if necessary.
+     */
+    private void delayedExecute(WheelTask<?> task) {
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        submissions.offer(task);
+        if (runState != RUNNING && submissions.remove(task))
+            throw new RejectedExecutionException();
+        Thread t = timer;
+        if (t != null) {
+            if (idle)
+                LockSupport.unpark(t);
+            return;
+        }
+        boolean started = false;
+        try {
+            started = startTimer();
+        } finally {
+            if (!started && submissions.remove(task))
+                throw new RejectedExecutionException();
+        }
+    }
+
+    /**
+     * Requeues a periodic task after an execution, unless shut down.
+     */
+    private void reschedulePeriodic(WheelTask<?> task) {
+        if (runState == RUNNING) {
+            submissions.offer(task);
+            if (runState == RUNNING || !submissions.remove(task)) {
+                Thread t = timer;
+                if (t != null && idle)
+                    LockSupport.unpark(t);
+                return;
+            }
+        }
+        task.cancel(false);
+    }
+
+    /**
+     * Starts the timer thread unless already started, returning false
+     * if it cannot run because of shutdown or a null thread.
+     */
+    private boolean startTimer() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (timer != null)
+                return true;
+            if (runState != RUNNING)
+                return false;
+            return newTimer();
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Creates and starts a timer thread, returning false if the thread
+     * factory fails to create one.  Call only under mainLock.
+     */
+    private boolean newTimer() {
+        Thread t = threadFactory.newThread(new Runnable() {
+            public void run() { runTimer(); }
+        });
+        if (t == null)
+            return false;
+        timerDone = false;
+        timer = t;
+        t.start();
+        return true;
+    }
+
+    /**
+     * Called by a timer thread that is exiting abruptly.  Starts a
+     * replacement unless stopping, so that tasks already in the wheel
+     * still run; otherwise clears the timer so that the next submission
+     * starts one.
+     */
+    private void replaceTimer() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            timer = null;
+            if (runState >= STOP || !newTimer())
+                timerDone = true;
+        } finally {
+            mainLock.unlock();
+        }
+        tryTerminate();
+    }
+
+    // Wheel maintenance, all under mainLock
+
+    private void link(WheelTask<?> task, int level, int slot) {
+        WheelTask<?>[] slots = wheel[level];
+        if (slots == null)
+            wheel[level] = slots = new WheelTask<?>[wheelMask + 1];
+        WheelTask<?> head = slots[slot];
+        task.level = level;
+        task.slot = slot;
+        task.prev = null;
+        task.next = head;
+        if (head != null)
+            head.prev = task;
+        slots[slot] = task;
+        ++size;
+    }
+
+    private void unlink(WheelTask<?> task) {
+        WheelTask<?> p = task.prev, n = task.next;
+        if (p == null)
+            wheel[task.level][task.slot] = n;
+        else
+            p.next = n;
+        if (n != null)
+            n.prev = p;
+        task.prev = task.next = null;
+        task.level = -1;
+        --size;
+    }
+
+    /**
+     * Places the task in the wheel, or adds it to expired if it is due.
+     */
+    private void insert(WheelTask<?> task, List<WheelTask<?>> expired) {
+        long d = task.deadlineTick(), t = tick;
+        if (d <= t)
+            expired.add(task);
+        else {
+            int level = (63 - Long.numberOfLeadingZeros(d ^ t)) / wheelBits;
+            link(task, level, (int)(d >>> (wheelBits * level)) & wheelMask);
+        }
+    }
+
+    /**
+     * Advances the wheel by one tick, adding expired tasks to expired.
+     */
+    private void advance(List<WheelTask<?>> expired) {
+        long t = ++tick;
+        for (int level = wheel.length - 1; level > 0; --level) {
+            int shift = wheelBits * level;
+            if ((t & ((1L << shift) - 1)) == 0 && wheel[level] != null)
+                cascade(wheel[level], (int)(t >>> shift) & wheelMask, expired);
+        }
+        if (wheel[0] != null) {
+            WheelTask<?>[] slots = wheel[0];
+            int slot = (int)t & wheelMask;
+            for (WheelTask<?> p = slots[slot]; p != null; ) {
+                WheelTask<?> n = p.next;
+                p.prev = p.next = null;
+                p.level = -1;
+                --size;
+                expired.add(p);
+                p = n;
+            }
+            slots[slot] = null;
+        }
+    }
+
+    private void cascade(WheelTask<?>[] slots, int slot,
+                         List<WheelTask<?>> expired) {
+        WheelTask<?> p = slots[slot];
+        slots[slot] = null;
+        while (p != null) {
+            WheelTask<?> n = p.next;
+            p.prev = p.next = null;
+            p.level = -1;
+            --size;
+            insert(p, expired);
+            p = n;
+        }
+    }
+
+    /**
+     * Removes all tasks from the wheel, adding those selected to c.
+     * If periodicOnly, only periodic tasks are removed.
+     */
+    private void removeFromWheel(boolean periodicOnly,
+                                 Collection<? super WheelTask<?>> c) {
+        for (WheelTask<?>[] slots : wheel) {
+            if (slots == null)
+                continue;
+            for (int i = 0; i < slots.length; ++i) {
+                for (WheelTask<?> p = slots[i]; p != null; ) {
+                    WheelTask<?> n = p.next;
+                    if (!periodicOnly || p.isPeriodic()) {
+                        unlink(p);
+                        c.add(p);
+                    }
+                    p = n;
+                }
+            }
+        }
+    }
+
+    // The timer thread
+
+    /**
+     * Main loop of the timer thread: once per tick, applies pending
+     * cancellations and submissions, advances the wheel to the current
+     * time, and dispatches the tasks that expired.
+     */
+    private void runTimer() {
+        final ReentrantLock mainLock = this.mainLock;
+        List<WheelTask<?>> expired = new ArrayList<WheelTask<?>>();
+        boolean completedAbruptly = true;
+        try {
+            for (;;) {
+                boolean done, empty;
+                mainLock.lock();
+                try {
+                    if (runState >= STOP)
+                        break;
+                    long now = (System.nanoTime() - startNanos) / tickNanos;
+                    if (size == 0 && now > tick)
+                        tick = now; // nothing can expire in between
+                    WheelTask<?> task;
+                    while ((task = cancellations.poll()) != null) {
+                        if (task.level >= 0)
+                            unlink(task);
+                    }
+                    while ((task = submissions.poll()) != null) {
+                        if (task.isCancelled())
+                            continue;
+                        if (task.isPeriodic() && runState != RUNNING)
+                            task.cancel(false);
+                        else
+                            insert(task, expired);
+                    }
+                    while (tick < now)
+                        advance(expired);
+                    empty = size == 0;
+                    done = empty && runState != RUNNING &&
+                        submissions.isEmpty();
+                } finally {
+                    mainLock.unlock();
+                }
+                dispatch(expired);
+                expired.clear();
+                if (done)
+                    break;
+                awaitNextTick(empty);
+            }
+            completedAbruptly = false;
+        } finally {
+            if (completedAbruptly)
+                replaceTimer();
+            else {
+                timerDone = true;
+                tryTerminate();
+            }
+        }
+    }
+
+    /**
+     * Waits for the start of the next tick or, if the wheel is empty,
+     * for a new submission or shutdown.
+     */
+    private void awaitNextTick(boolean empty) {
+        if (empty) {
+            idle = true;
+            if (submissions.isEmpty() && runState == RUNNING)
+                LockSupport.park(this);
+            idle = false;
+        } else {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long nanos;
+            while ((nanos = deadline - System.nanoTime()) > 0 &&
+                   runState < STOP)
+                LockSupport.parkNanos(this, nanos);
+        }
+        Thread.interrupted(); // clear any interrupt left by a task
+    }
+
+    /**
+     * Runs the expired tasks in the timer thread, or hands them to the
+     * dispatcher in batches.
+     */
+    private void dispatch(List<WheelTask<?>> expired) {
+        int n = expired.size();
+        Executor executor = dispatcher;
+        if (executor == null) {
+            for (int i = 0; i < n; ++i)
+                expired.get(i).run();
+            return;
+        }
+        for (int i = 0; i < n; i += DISPATCH_BATCH) {
+            int m = Math.min(DISPATCH_BATCH, n - i);
+            WheelTask<?>[] tasks = new WheelTask<?>[m];
+            for (int j = 0; j < m; ++j)
+                tasks[j] = expired.get(i + j);
+            outstanding.incrementAndGet();
+            try {
+                executor.execute(new Batch(tasks));
+            } catch (Throwable ex) {
+                outstanding.decrementAndGet();
+                for (WheelTask<?> task : tasks)
+                    task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A batch of expired tasks run by the dispatcher.
+     */
+    private final class Batch implements Runnable {
+        private final WheelTask<?>[] tasks;
+        Batch(WheelTask<?>[] tasks) { this.tasks = tasks; }
+        public void run() {
+            try {
+                for (WheelTask<?> task : tasks)
+                    task.run();
+            } finally {
+                if (outstanding.decrementAndGet() == 0)
+                    tryTerminate();
+            }
+        }
+    }
+
+    /**
+     * Transitions to TERMINATED state if shut down, the timer thread
+     * has exited, and no batch is outstanding.
+     */
+    private void tryTerminate() {
+        if (runState == RUNNING || !timerDone || outstanding.get() != 0)
+            return;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState != TERMINATED && outstanding.get() == 0) {
+                runState = TERMINATED;
+                termination.signalAll();
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    // ScheduledExecutorService methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        WheelTask<Void> t = new WheelTask<Void>(command, null,
+                                                triggerTime(delay, unit), 0);
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        WheelTask<V> t = new WheelTask<V>(callable, triggerTime(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        WheelTask<Void> t =
+            new WheelTask<Void>(command, null, triggerTime(initialDelay, unit),
+                                periodNanos(period, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        WheelTask<Void> t =
+            new WheelTask<Void>(command, null, triggerTime(initialDelay, unit),
+                                -periodNanos(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} at the next tick.  This has effect
+     * equivalent to
+     * {@link #schedule(Runnable,long,TimeUnit) schedule(command, 0, anyUnit)}.
+     *
+     * @throws RejectedExecutionException if the task cannot be
+     *         accepted for execution because the executor has been
+     *         shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    // Override AbstractExecutorService methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        if (task == null)
+            throw new NullPointerException();
+        WheelTask<T> t = new WheelTask<T>(task, result, System.nanoTime(), 0);
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * delayed tasks are executed when they expire, but periodic tasks
+     * are cancelled and no new tasks will be accepted.  Invocation has
+     * no additional effect if already shut down.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     */
+    public void shutdown() {
+        List<WheelTask<?>> periodic = new ArrayList<WheelTask<?>>();
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState == RUNNING)
+                runState = SHUTDOWN;
+            removeFromWheel(true, periodic);
+            if (timer == null)
+                timerDone = true;
+        } finally {
+            mainLock.unlock();
+        }
+        for (WheelTask<?> task : periodic)
+            task.cancel(false);
+        Thread t = timer;
+        if (t != null)
+            LockSupport.unpark(t);
+        tryTerminate();
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  These tasks are removed from the
+     * wheel upon return from this method.
+     *
+     * <p>This method does not wait for actively executing tasks to
+     * terminate.  Use {@link #awaitTermination awaitTermination} to
+     * do that.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks.  This implementation
+     * interrupts the timer thread, so any task running in it that
+     * fails to respond to interrupts may never terminate; tasks in
+     * batches already handed to the dispatcher are cancelled rather
+     * than run.
+     *
+     * @return list of tasks that never commenced execution.
+     *         Each element of this list is a {@link ScheduledFuture},
+     *         including those tasks submitted using {@code execute},
+     *         which are for scheduling purposes used as the basis of a
+     *         zero-delay {@code ScheduledFuture}.
+     */
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState < STOP)
+                runState = STOP;
+            removeFromWheel(false, tasks);
+            WheelTask<?> task;
+            while ((task = submissions.poll()) != null) {
+                if (!task.isCancelled())
+                    tasks.add(task);
+            }
+            cancellations.clear();
+            if (timer == null)
+                timerDone = true;
+        } finally {
+            mainLock.unlock();
+        }
+        Thread t = timer;
+        if (t != null)
+            t.interrupt();
+        tryTerminate();
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return runState == TERMINATED;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            for (;;) {
+                if (runState == TERMINATED)
+                    return true;
+                if (nanos <= 0)
+                    return false;
+                nanos = termination.awaitNanos(nanos);
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+}
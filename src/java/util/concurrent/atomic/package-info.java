@@ -171,6 +171,15 @@
  * used for example, to represent version numbers corresponding to
  * series of updates.
  *
+ * <p>Classes {@link java.util.concurrent.atomic.LongAdder},
+ * {@link java.util.concurrent.atomic.DoubleAdder},
+ * {@link java.util.concurrent.atomic.LongAccumulator} and
+ * {@link java.util.concurrent.atomic.DoubleAccumulator} spread updates
+ * of a single logical value across a dynamically grown set of padded
+ * cells, so that heavily contended counters and statistics do not
+ * serialize on one variable.  Reads ({@code sum}, {@code get}) combine
+ * the cells and are not atomic snapshots.
+ *
  * <p>Atomic classes are designed primarily as building blocks for
  * implementing non-blocking data structures and related infrastructure
  * classes.  The {@code compareAndSet} method is not a general
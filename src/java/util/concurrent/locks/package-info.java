@@ -52,6 +52,12 @@
  * it covers most standard usage contexts.  But programmers may create
  * their own implementations to cover nonstandard requirements.
  *
+ * <p>The {@link java.util.concurrent.locks.StampedLock} class provides
+ * a non-reentrant capability-based alternative with read, write and
+ * optimistic read modes.  Optimistic reads return a stamp without
+ * writing to shared memory, and are later checked with {@code
+ * validate}; stamps may also be converted between modes.
+ *
  * <p>The {@link java.util.concurrent.locks.Condition} interface
  * describes condition variables that may be associated with Locks.
  * These are similar in usage to the implicit monitors accessed using
@@ -74,6 +74,10 @@
  * that possesses a {@code run} method that upon execution,
  * sets its results.
  *
+ * A {@link java.util.concurrent.CompletionStage} is a stage of a
+ * possibly asynchronous computation whose dependent actions are
+ * triggered by its completion rather than by a waiting thread.
+ *
  * <p>
  *
  * <b>Implementations.</b>
@@ -92,6 +96,11 @@
  * assists in coordinating the processing of groups of
  * asynchronous tasks.
  *
+ * <p>Class {@link java.util.concurrent.CompletableFuture} is a
+ * {@code Future} that may be explicitly completed and used as a
+ * {@code CompletionStage}, chaining dependent functions and actions
+ * without blocking.
+ *
  * <p>Class {@link java.util.concurrent.ForkJoinPool} provides an
  * Executor primarily designed for processing instances of {@link
  * java.util.concurrent.ForkJoinTask} and its subclasses.  These
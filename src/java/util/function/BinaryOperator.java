@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.function;
+
+/**
+ * Represents an operation upon two operands of the same type, producing a
+ * result of the same type as the operands.  This is a specialization of
+ * {@link BiFunction} for the case where the operands and the result are all
+ * of the same type.
+ *
+ * @param <T> the type of the operands and result of the operator
+ *
+ * @since 1.8
+ */
+public interface BinaryOperator<T> extends BiFunction<T, T, T> {
+}
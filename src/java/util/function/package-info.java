@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+/**
+ * <em>Functional interfaces</em> provide target types for the
+ * callback arguments of bulk and composite operations in the
+ * collection and concurrency libraries, such as
+ * {@link java.util.concurrent.ConcurrentHashMap#forEach(long, BiConsumer)}.
+ * Each interface has a single abstract method, called the
+ * <em>functional method</em> for that interface, to which the
+ * callback's arguments and result types are matched.
+ *
+ * <p>The interfaces in this package follow an extensible naming
+ * convention:
+ *
+ * <ul>
+ *     <li>There are several basic function shapes, including
+ *     {@link java.util.function.Function} (unary function from
+ *     {@code T} to {@code R}), {@link java.util.function.Consumer}
+ *     (unary function from {@code T} to {@code void}) and
+ *     {@link java.util.function.BiFunction} (binary function from
+ *     {@code T} and {@code U} to {@code R}).</li>
+ *
+ *     <li>Primitive specializations are named after the primitive type
+ *     they produce or operate on, as in
+ *     {@link java.util.function.ToLongBiFunction} or
+ *     {@link java.util.function.LongBinaryOperator}, and avoid boxing
+ *     when accumulating numeric results.</li>
+ * </ul>
+ *
+ * @since 1.8
+ */
+package java.util.function;
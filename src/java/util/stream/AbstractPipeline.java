@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Abstract base class for "pipeline" classes, which are the core
+ * implementations of the Stream interface and its primitive specializations.
+ * Manages construction and evaluation of stream pipelines.
+ *
+ * <p>An {@code AbstractPipeline} represents an initial portion of a stream
+ * pipeline, encapsulating a stream source and zero or more intermediate
+ * operations.  The individual {@code AbstractPipeline} objects are often
+ * referred to as <em>stages</em>, where each stage describes either the stream
+ * source or an intermediate operation.
+ *
+ * <p>A concrete intermediate stage is generally built from an
+ * {@code AbstractPipeline}, a shape-specific pipeline class which extends it
+ * (e.g., {@code IntPipeline}) which is also abstract, and an operation-specific
+ * concrete class which extends that.  {@code AbstractPipeline} contains most of
+ * the mechanics of evaluating the pipeline, and implements methods that will be
+ * used by the operation; the shape-specific classes add helper methods for
+ * dealing with collection of results into the appropriate shape-specific
+ * containers.
+ *
+ * <p>After chaining a new intermediate operation, or executing a terminal
+ * operation, the stream is considered to be consumed, and no more intermediate
+ * or terminal operations are permitted on this stream instance.
+ *
+ * <p>For sequential streams, and parallel streams without stateful
+ * intermediate operations, pipeline evaluation is done in a single pass that
+ * "jams" all the operations together: each element of the source is pushed
+ * through a chain of {@link Sink}s, one per stage.  For parallel streams with
+ * stateful operations, execution is divided into segments, where each
+ * stateful operation marks the end of a segment, and each segment is
+ * evaluated separately and the result used as the input to the next
+ * segment.  In all cases, the source data is not consumed until a terminal
+ * operation begins.
+ *
+ * @param <E_IN>  type of input elements
+ * @param <E_OUT> type of output elements
+ * @param <S> type of the subclass implementing {@code BaseStream}
+ * @since 1.8
+ */
+abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>> {
+    private static final String MSG_STREAM_LINKED =
+        "stream has already been operated upon";
+    private static final String MSG_CONSUMED = "source already consumed";
+
+    /**
+     * Backlink to the head of the pipeline chain (self if this is the source
+     * stage).
+     */
+    private final AbstractPipeline<?, ?, ?> sourceStage;
+
+    /**
+     * The "upstream" pipeline, or null if this is the source stage.
+     */
+    private final AbstractPipeline<?, ?, ?> previousStage;
+
+    /**
+     * The next stage in the pipeline, or null if this is the last stage.
+     * Effectively final at the point of linking to the next pipeline.
+     */
+    private AbstractPipeline<?, ?, ?> nextStage;
+
+    /**
+     * The number of intermediate operations between this pipeline object
+     * and the stream source if sequential, or the previous stateful if
+     * parallel.  Valid at the point of pipeline preparation for evaluation.
+     */
+    private int depth;
+
+    /**
+     * The source spliterator. Only valid for the head pipeline, and set to
+     * null when the pipeline is consumed.
+     */
+    private Spliterator<?> sourceSpliterator;
+
+    /**
+     * True if this pipeline has been linked or consumed
+     */
+    private boolean linkedOrConsumed;
+
+    /**
+     * True if pipeline is parallel, otherwise the pipeline is sequential; only
+     * valid for the source stage.
+     */
+    private boolean parallel;
+
+    /**
+     * Constructor for the head of a stream pipeline.
+     *
+     * @param source {@code Spliterator} describing the stream source
+     * @param parallel {@code true} if the pipeline is parallel
+     */
+    AbstractPipeline(Spliterator<?> source, boolean parallel) {
+        this.previousStage = null;
+        this.sourceSpliterator = source;
+        this.sourceStage = this;
+        this.depth = 0;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Constructor for appending an intermediate operation stage onto an
+     * existing pipeline.
+     *
+     * @param previousStage the upstream pipeline stage
+     * @throws IllegalStateException if the upstream stage has already been
+     *         linked or consumed
+     */
+    AbstractPipeline(AbstractPipeline<?, E_IN, ?> previousStage) {
+        if (previousStage.linkedOrConsumed)
+            throw new IllegalStateException(MSG_STREAM_LINKED);
+        previousStage.linkedOrConsumed = true;
+        previousStage.nextStage = this;
+
+        this.previousStage = previousStage;
+        this.sourceStage = previousStage.sourceStage;
+        this.depth = previousStage.depth + 1;
+    }
+
+    // Terminal evaluation methods
+
+    /**
+     * Evaluate the pipeline with a terminal operation to produce a result.
+     *
+     * @param <R> the type of result
+     * @param terminalOp the terminal operation to be applied to the pipeline.
+     * @return the result
+     * @throws IllegalStateException if this stage has already been linked
+     *         or consumed
+     */
+    final <R> R evaluate(TerminalOp<E_OUT, R> terminalOp) {
+        if (linkedOrConsumed)
+            throw new IllegalStateException(MSG_STREAM_LINKED);
+        linkedOrConsumed = true;
+
+        return isParallel()
+               ? terminalOp.evaluateParallel(this, sourceSpliterator())
+               : terminalOp.evaluateSequential(this, sourceSpliterator());
+    }
+
+    /**
+     * Implements {@link BaseStream#spliterator()}: returns the source
+     * spliterator if this is the source stage, and otherwise a spliterator
+     * that lazily applies the intermediate operations of this pipeline as
+     * it is traversed.
+     *
+     * @throws IllegalStateException if this stage has already been linked
+     *         or consumed
+     */
+    @SuppressWarnings("unchecked")
+    final Spliterator<E_OUT> spliteratorForStream() {
+        if (linkedOrConsumed)
+            throw new IllegalStateException(MSG_STREAM_LINKED);
+        linkedOrConsumed = true;
+
+        Spliterator<?> spliterator = sourceSpliterator();
+        if (depth == 0)
+            return (Spliterator<E_OUT>) spliterator;
+        return wrap(spliterator, isParallel());
+    }
+
+    /**
+     * Get the source spliterator for this pipeline stage, consuming the
+     * source.  For a parallel pipeline, the stateful stages are evaluated
+     * first, from the source on: the output of each becomes the source of
+     * the segment following it, and the depths are reset so that
+     * {@link #wrapSink} stops at the last stateful stage.
+     *
+     * @throws IllegalStateException if the source has been consumed
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Spliterator<?> sourceSpliterator() {
+        Spliterator<?> spliterator = sourceStage.sourceSpliterator;
+        if (spliterator == null)
+            throw new IllegalStateException(MSG_CONSUMED);
+        sourceStage.sourceSpliterator = null;
+
+        if (isParallel()) {
+            int depth = 1;
+            for (AbstractPipeline u = sourceStage, p = sourceStage.nextStage;
+                 u != this;
+                 u = p, p = p.nextStage) {
+                if (p.opIsStateful()) {
+                    depth = 0;
+                    spliterator = p.opEvaluateParallelLazy(u, spliterator);
+                }
+                p.depth = depth++;
+            }
+        }
+        return spliterator;
+    }
+
+    // BaseStream
+
+    /**
+     * Implements {@link BaseStream#isParallel()}.
+     */
+    public final boolean isParallel() {
+        return sourceStage.parallel;
+    }
+
+    /**
+     * Implements {@link BaseStream#sequential()}.
+     */
+    @SuppressWarnings("unchecked")
+    public final S sequential() {
+        sourceStage.parallel = false;
+        return (S) this;
+    }
+
+    /**
+     * Implements {@link BaseStream#parallel()}.
+     */
+    @SuppressWarnings("unchecked")
+    public final S parallel() {
+        sourceStage.parallel = true;
+        return (S) this;
+    }
+
+    /**
+     * Implements {@link BaseStream#unordered()}.  Encounter order is not
+     * tracked, so all streams are treated as ordered and this stream is
+     * returned.
+     */
+    @SuppressWarnings("unchecked")
+    public final S unordered() {
+        return (S) this;
+    }
+
+    // Evaluation helpers used by the operations
+
+    /**
+     * Returns the shape of the stage from which the current segment of the
+     * pipeline takes its elements: the source, or in parallel, the last
+     * stateful stage.
+     */
+    final StreamShape getSourceShape() {
+        AbstractPipeline<?, ?, ?> p = this;
+        while (p.depth > 0)
+            p = p.previousStage;
+        return p.getOutputShape();
+    }
+
+    /**
+     * Returns whether any stage of the current segment of the pipeline
+     * may short-circuit, requiring the source to be traversed with
+     * {@code tryAdvance} between cancellation checks.
+     */
+    final boolean isShortCircuit() {
+        for (AbstractPipeline<?, ?, ?> p = this; p.depth > 0; p = p.previousStage) {
+            if (p.opIsShortCircuit())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes a {@code Sink} that accepts elements of the output type of this
+     * stage, and wraps it with a {@code Sink} that accepts elements of the
+     * input type of the current segment of the pipeline, and implements all
+     * the intermediate operations of this segment, delivering the result
+     * into the provided {@code Sink}.
+     *
+     * @param sink the {@code Sink} to receive the results
+     * @return a {@code Sink} that implements the pipeline stages and sends
+     *         results to the provided {@code Sink}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
+        if (sink == null)
+            throw new NullPointerException();
+        Sink s = sink;
+        for (AbstractPipeline p = this; p.depth > 0; p = p.previousStage)
+            s = p.opWrapSink(s);
+        return (Sink<P_IN>) s;
+    }
+
+    /**
+     * Pushes elements obtained from the {@code Spliterator} into the
+     * provided {@code Sink}.  If the pipeline or the terminal operation
+     * may short-circuit, the elements are pushed one at a time and the
+     * sink is checked for cancellation before each.
+     *
+     * @param wrappedSink the destination {@code Sink}
+     * @param spliterator the source {@code Spliterator}
+     * @param shortCircuit whether the terminal operation may short-circuit
+     */
+    final <P_IN> void copyInto(Sink<P_IN> wrappedSink,
+                               Spliterator<P_IN> spliterator,
+                               boolean shortCircuit) {
+        StreamShape shape = getSourceShape();
+        wrappedSink.begin(spliterator.getExactSizeIfKnown());
+        if (!shortCircuit && !isShortCircuit())
+            forEachRemaining(shape, spliterator, wrappedSink);
+        else {
+            while (!wrappedSink.cancellationRequested() &&
+                   tryAdvance(shape, spliterator, wrappedSink))
+                ;
+        }
+        wrappedSink.end();
+    }
+
+    /**
+     * Applies the pipeline stages described by this stage to the provided
+     * {@code Spliterator} and sends the results to the provided {@code Sink}.
+     *
+     * @param sink the {@code Sink} to receive the results
+     * @param spliterator the spliterator describing the source input to
+     *        process
+     * @param shortCircuit whether the terminal operation may short-circuit
+     * @return the sink
+     */
+    final <P_IN, SINK extends Sink<E_OUT>> SINK wrapAndCopyInto(SINK sink,
+                                                            Spliterator<P_IN> spliterator,
+                                                            boolean shortCircuit) {
+        copyInto(this.<P_IN>wrapSink(sink), spliterator, shortCircuit);
+        return sink;
+    }
+
+    /**
+     * Pushes all remaining elements of a spliterator of the given shape into
+     * a sink, using the primitive {@code forEachRemaining} method for
+     * primitive shapes.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static void forEachRemaining(StreamShape shape, Spliterator spliterator,
+                                 Sink sink) {
+        switch (shape) {
+            case REFERENCE:
+                spliterator.forEachRemaining(sink);
+                break;
+            case INT_VALUE:
+                ((Spliterator.OfInt) spliterator).forEachRemaining((IntConsumer) sink);
+                break;
+            case LONG_VALUE:
+                ((Spliterator.OfLong) spliterator).forEachRemaining((LongConsumer) sink);
+                break;
+            case DOUBLE_VALUE:
+                ((Spliterator.OfDouble) spliterator)
+                    .forEachRemaining((DoubleConsumer) sink);
+                break;
+            default:
+                throw new IllegalStateException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Pushes the next element, if any, of a spliterator of the given shape
+     * into a sink, using the primitive {@code tryAdvance} method for
+     * primitive shapes.
+     *
+     * @return {@code false} if no elements remained
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static boolean tryAdvance(StreamShape shape, Spliterator spliterator,
+                              Sink sink) {
+        switch (shape) {
+            case REFERENCE:
+                return spliterator.tryAdvance(sink);
+            case INT_VALUE:
+                return ((Spliterator.OfInt) spliterator).tryAdvance((IntConsumer) sink);
+            case LONG_VALUE:
+                return ((Spliterator.OfLong) spliterator).tryAdvance((LongConsumer) sink);
+            case DOUBLE_VALUE:
+                return ((Spliterator.OfDouble) spliterator)
+                    .tryAdvance((DoubleConsumer) sink);
+            default:
+                throw new IllegalStateException("Unknown shape " + shape);
+        }
+    }
+
+    // Shape-specific abstract methods, implemented by XxxPipeline classes
+
+    /**
+     * Get the output shape of the pipeline.
+     *
+     * @return the output shape
+     */
+    abstract StreamShape getOutputShape();
+
+    /**
+     * Create a spliterator that wraps a source spliterator, compatible with
+     * this stream shape, and operations of this pipeline stage.
+     *
+     * @param spliterator the source spliterator of the current segment
+     * @param isParallel whether the spliterator may be split
+     * @return the wrapping spliterator compatible with this shape
+     */
+    abstract <P_IN> Spliterator<E_OUT> wrap(Spliterator<P_IN> spliterator,
+                                            boolean isParallel);
+
+    // Op-specific methods, implemented by the operation classes
+
+    /**
+     * Returns whether this operation is stateful or not.  If it is stateful,
+     * then the method
+     * {@link #opEvaluateParallelLazy(AbstractPipeline, Spliterator)} must be
+     * overridden.
+     *
+     * @return {@code true} if this operation is stateful
+     */
+    boolean opIsStateful() {
+        return false;
+    }
+
+    /**
+     * Returns whether this operation may stop accepting elements before its
+     * input is exhausted, as {@code limit} does.
+     *
+     * @return {@code true} if this operation may short-circuit
+     */
+    boolean opIsShortCircuit() {
+        return false;
+    }
+
+    /**
+     * Accepts a {@code Sink} which will receive the results of this operation,
+     * and return a {@code Sink} which accepts elements of the input type of
+     * this operation and which performs the operation, passing the results to
+     * the provided {@code Sink}.
+     *
+     * @param sink sink to which elements should be sent after processing
+     * @return a sink which accepts elements, perform the operation upon
+     *         each element, and passes the results (if any) to the provided
+     *         {@code Sink}.
+     */
+    abstract Sink<E_IN> opWrapSink(Sink<E_OUT> sink);
+
+    /**
+     * Returns a {@code Spliterator} describing a parallel evaluation of the
+     * operation, using the specified pipeline helper and spliterator for the
+     * upstream segment.  Only called on stateful operations.
+     *
+     * <p>The default implementation collects the output of the upstream
+     * segment in parallel, in encounter order, then passes it through the
+     * sink of this operation and returns a spliterator over the result.
+     *
+     * @param helper the pipeline stage preceding this operation
+     * @param spliterator the source {@code Spliterator} of the upstream
+     *        segment
+     * @return a {@code Spliterator} describing the result of the evaluation
+     */
+    <P_IN> Spliterator<E_OUT> opEvaluateParallelLazy(AbstractPipeline<?, E_IN, ?> helper,
+                                                     Spliterator<P_IN> spliterator) {
+        Nodes.Builder<E_IN> input = Nodes.collect(helper, spliterator, true);
+        Nodes.Builder<E_OUT> output = Nodes.builder(getOutputShape(), -1);
+        input.copyInto(opWrapSink(output));
+        return output.spliterator();
+    }
+}
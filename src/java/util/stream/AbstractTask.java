@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Abstract base class for most fork-join tasks used to implement stream ops.
+ * Manages splitting logic, tracking of child tasks, and intermediate results.
+ * Each task is associated with a {@link Spliterator} that describes the portion
+ * of the input associated with the subtree rooted at this task.
+ *
+ * <p>Tasks split their spliterator until its estimated size is no larger
+ * than the target size computed by the root, which aims at about four leaf
+ * tasks per thread of the {@link ForkJoinPool#commonPool() common pool}.
+ * At each split, the right half is forked and the left half computed in the
+ * current thread, and the results of the two halves are combined in
+ * encounter order.  Tasks are started with {@link #invoke}, so the caller
+ * takes part in the computation; subtasks forked by a thread that is not
+ * a pool worker are run in the common pool.
+ *
+ * @param <P_IN> Type of elements input to the pipeline
+ * @param <P_OUT> Type of elements output from the pipeline
+ * @param <R> Type of intermediate result, which may be different from
+ *        operation result type
+ * @param <K> Type of parent, child and sibling tasks
+ * @since 1.8
+ */
+@SuppressWarnings("serial")
+abstract class AbstractTask<P_IN, P_OUT, R,
+                            K extends AbstractTask<P_IN, P_OUT, R, K>>
+        extends RecursiveTask<R> {
+
+    /**
+     * Default target factor of leaf tasks for parallel decomposition.
+     * To allow load balancing, we over-partition, currently to approximately
+     * four tasks per processor, which enables others to help out
+     * if leaf tasks are uneven or some processors are otherwise busy.
+     */
+    static final int LEAF_TARGET =
+        Math.max(ForkJoinPool.getCommonPoolParallelism(), 1) << 2;
+
+    /** The parent task, or null if this is the root */
+    protected final K parent;
+
+    /** The pipeline helper, common to all tasks in a computation */
+    protected final AbstractPipeline<?, P_OUT, ?> helper;
+
+    /**
+     * The spliterator for the portion of the input associated with the subtree
+     * rooted at this task
+     */
+    protected final Spliterator<P_IN> spliterator;
+
+    /** Target leaf size, common to all tasks in a computation */
+    protected final long targetSize;
+
+    /**
+     * The left and right children, set when this task is split, or null
+     * for a leaf
+     */
+    protected K leftChild, rightChild;
+
+    /**
+     * Constructor for root nodes.
+     *
+     * @param helper The {@code AbstractPipeline} describing the stream
+     *        pipeline up to this operation
+     * @param spliterator The {@code Spliterator} describing the source for
+     *        this pipeline
+     */
+    protected AbstractTask(AbstractPipeline<?, P_OUT, ?> helper,
+                           Spliterator<P_IN> spliterator) {
+        this.parent = null;
+        this.helper = helper;
+        this.spliterator = spliterator;
+        this.targetSize = suggestTargetSize(spliterator.estimateSize());
+    }
+
+    /**
+     * Constructor for non-root nodes.
+     *
+     * @param parent this node's parent task
+     * @param spliterator {@code Spliterator} describing the subtree rooted at
+     *        this node, obtained by splitting the parent {@code Spliterator}
+     */
+    protected AbstractTask(K parent,
+                           Spliterator<P_IN> spliterator) {
+        this.parent = parent;
+        this.helper = parent.helper;
+        this.spliterator = spliterator;
+        this.targetSize = parent.targetSize;
+    }
+
+    /**
+     * Returns a suggested target leaf size based on the initial size estimate.
+     *
+     * @return suggested target leaf size
+     */
+    static long suggestTargetSize(long sizeEstimate) {
+        long est = sizeEstimate / LEAF_TARGET;
+        return est > 0L ? est : 1L;
+    }
+
+    /**
+     * Constructs a new node of type K whose parent is the receiver; must call
+     * the AbstractTask(K, Spliterator) constructor with the receiver and the
+     * provided Spliterator.
+     *
+     * @param spliterator {@code Spliterator} describing the subtree rooted at
+     *        this node, obtained by splitting the parent {@code Spliterator}
+     * @return newly constructed child node
+     */
+    protected abstract K makeChild(Spliterator<P_IN> spliterator);
+
+    /**
+     * Computes the result associated with a leaf node, that is, one whose
+     * spliterator is not split further.
+     *
+     * @return the computed result of a leaf node
+     */
+    protected abstract R doLeaf();
+
+    /**
+     * Combines the results of the two halves of a split, the left one
+     * preceding the right one in encounter order.  Either may be the
+     * {@linkplain #getEmptyResult() empty result} of a cancelled task.
+     *
+     * @return the combined result
+     */
+    protected abstract R combine(R left, R right);
+
+    /**
+     * Returns whether the computation has been cancelled, in which case
+     * tasks not yet started return the empty result.  The default returns
+     * {@code false}; short-circuiting operations override it.
+     */
+    protected boolean taskCanceled() {
+        return false;
+    }
+
+    /**
+     * Returns the result of a task that was cancelled before it started.
+     * The default returns {@code null}.
+     */
+    protected R getEmptyResult() {
+        return null;
+    }
+
+    /**
+     * Decides whether or not to split a task further or compute it
+     * directly.  If computing directly, calls {@code doLeaf}, otherwise
+     * forks a task for the right half of the split, computes the left
+     * half, and combines the two results.
+     */
+    @Override
+    protected R compute() {
+        if (taskCanceled())
+            return getEmptyResult();
+        Spliterator<P_IN> rs = spliterator, ls;
+        if (rs.estimateSize() > targetSize && (ls = rs.trySplit()) != null) {
+            K l = leftChild = makeChild(ls);
+            K r = rightChild = makeChild(rs);
+            r.fork();
+            R left = l.compute();
+            return combine(left, r.join());
+        }
+        return doLeaf();
+    }
+}
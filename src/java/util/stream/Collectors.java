@@ -0,0 +1,1438 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Implementations of {@link Collector} that implement various useful reduction
+ * operations, such as accumulating elements into collections, summarizing
+ * elements according to various criteria, etc.
+ *
+ * <p>The following are examples of using the predefined collectors to perform
+ * common mutable reduction tasks:
+ *
+ * <pre>{@code
+ *     // Accumulate names into a List
+ *     List<String> names = Collections.stream(people)
+ *                                     .map(nameOf)
+ *                                     .collect(Collectors.<String>toList());
+ *
+ *     // Group people by city
+ *     Map<String, List<Person>> byCity
+ *         = Collections.stream(people)
+ *                      .collect(Collectors.groupingBy(cityOf));
+ * }</pre>
+ *
+ * <p>Unless otherwise stated, the methods of this class throw a
+ * {@code NullPointerException} if any of their arguments are null.
+ *
+ * @since 1.8
+ */
+public final class Collectors {
+
+    static final Set<Collector.Characteristics> CH_ID
+        = Collections.unmodifiableSet(
+            EnumSet.of(Collector.Characteristics.IDENTITY_FINISH));
+    static final Set<Collector.Characteristics> CH_UNORDERED_ID
+        = Collections.unmodifiableSet(
+            EnumSet.of(Collector.Characteristics.UNORDERED,
+                       Collector.Characteristics.IDENTITY_FINISH));
+    static final Set<Collector.Characteristics> CH_NOID
+        = Collections.emptySet();
+
+    private Collectors() { }
+
+    /**
+     * Constructs an {@code IllegalStateException} with appropriate message.
+     *
+     * @param k the duplicate key
+     * @param u 1st value to be accumulated/merged
+     * @param v 2nd value to be accumulated/merged
+     */
+    private static IllegalStateException duplicateKeyException(
+            Object k, Object u, Object v) {
+        return new IllegalStateException(String.format(
+            "Duplicate key %s (attempted merging values %s and %s)",
+            k, u, v));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <I, R> Function<I, R> castingIdentity() {
+        return (Function<I, R>) CASTING_IDENTITY;
+    }
+
+    private static final Function<Object, Object> CASTING_IDENTITY =
+        new Function<Object, Object>() {
+            public Object apply(Object i) {
+                return i;
+            }
+        };
+
+    /**
+     * Associates the merged value with the key, as if by
+     * {@code m.put(key, old == null ? value : remapping.apply(old, value))},
+     * removing the mapping instead if the merged value is {@code null}.
+     */
+    private static <K, V> void merge(Map<K, V> m, K key, V value,
+                                     BinaryOperator<V> remapping) {
+        V old = m.get(key);
+        V v = (old == null) ? value : remapping.apply(old, value);
+        if (v == null)
+            m.remove(key);
+        else
+            m.put(key, v);
+    }
+
+    /**
+     * Returns the value to which the key is mapped, first mapping it to a
+     * new container from the supplier if absent.
+     */
+    private static <K, A> A containerFor(Map<K, A> m, K key,
+                                         Supplier<A> downstreamSupplier) {
+        A container = m.get(key);
+        if (container == null) {
+            container = downstreamSupplier.get();
+            m.put(key, container);
+        }
+        return container;
+    }
+
+    /**
+     * Simple implementation class for {@code Collector}.
+     *
+     * @param <T> the type of elements to be collected
+     * @param <A> the type of the intermediate accumulation
+     * @param <R> the type of the result
+     */
+    static class CollectorImpl<T, A, R> implements Collector<T, A, R> {
+        private final Supplier<A> supplier;
+        private final BiConsumer<A, T> accumulator;
+        private final BinaryOperator<A> combiner;
+        private final Function<A, R> finisher;
+        private final Set<Characteristics> characteristics;
+
+        CollectorImpl(Supplier<A> supplier,
+                      BiConsumer<A, T> accumulator,
+                      BinaryOperator<A> combiner,
+                      Function<A, R> finisher,
+                      Set<Characteristics> characteristics) {
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.finisher = finisher;
+            this.characteristics = characteristics;
+        }
+
+        CollectorImpl(Supplier<A> supplier,
+                      BiConsumer<A, T> accumulator,
+                      BinaryOperator<A> combiner,
+                      Set<Characteristics> characteristics) {
+            this(supplier, accumulator, combiner,
+                 Collectors.<A, R>castingIdentity(), characteristics);
+        }
+
+        @Override
+        public BiConsumer<A, T> accumulator() {
+            return accumulator;
+        }
+
+        @Override
+        public Supplier<A> supplier() {
+            return supplier;
+        }
+
+        @Override
+        public BinaryOperator<A> combiner() {
+            return combiner;
+        }
+
+        @Override
+        public Function<A, R> finisher() {
+            return finisher;
+        }
+
+        @Override
+        public Set<Characteristics> characteristics() {
+            return characteristics;
+        }
+    }
+
+    /**
+     * Returns a new {@code Collector} described by the given {@code supplier},
+     * {@code accumulator}, and {@code combiner} functions.  The resulting
+     * {@code Collector} has the {@code Collector.Characteristics.IDENTITY_FINISH}
+     * characteristic.
+     *
+     * @param <T> the type of input elements for the new collector
+     * @param <R> the type of intermediate accumulation result, and final
+     *        result, for the new collector
+     * @param supplier the supplier function for the new collector
+     * @param accumulator the accumulator function for the new collector
+     * @param combiner the combiner function for the new collector
+     * @param characteristics the collector characteristics for the new
+     *        collector
+     * @return the new {@code Collector}
+     */
+    public static <T, R>
+    Collector<T, R, R> of(Supplier<R> supplier,
+                          BiConsumer<R, T> accumulator,
+                          BinaryOperator<R> combiner,
+                          Collector.Characteristics... characteristics) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+        Objects.requireNonNull(combiner);
+        Objects.requireNonNull(characteristics);
+        Set<Collector.Characteristics> cs = (characteristics.length == 0)
+            ? CH_ID
+            : Collections.unmodifiableSet(
+                EnumSet.of(Collector.Characteristics.IDENTITY_FINISH,
+                           characteristics));
+        return new CollectorImpl<T, R, R>(supplier, accumulator, combiner, cs);
+    }
+
+    /**
+     * Returns a new {@code Collector} described by the given {@code supplier},
+     * {@code accumulator}, {@code combiner}, and {@code finisher} functions.
+     *
+     * @param <T> the type of input elements for the new collector
+     * @param <A> the intermediate accumulation type of the new collector
+     * @param <R> the final result type of the new collector
+     * @param supplier the supplier function for the new collector
+     * @param accumulator the accumulator function for the new collector
+     * @param combiner the combiner function for the new collector
+     * @param finisher the finisher function for the new collector
+     * @param characteristics the collector characteristics for the new
+     *        collector
+     * @return the new {@code Collector}
+     */
+    public static <T, A, R>
+    Collector<T, A, R> of(Supplier<A> supplier,
+                          BiConsumer<A, T> accumulator,
+                          BinaryOperator<A> combiner,
+                          Function<A, R> finisher,
+                          Collector.Characteristics... characteristics) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+        Objects.requireNonNull(combiner);
+        Objects.requireNonNull(finisher);
+        Objects.requireNonNull(characteristics);
+        Set<Collector.Characteristics> cs = CH_NOID;
+        if (characteristics.length > 0) {
+            cs = EnumSet.noneOf(Collector.Characteristics.class);
+            Collections.addAll(cs, characteristics);
+            cs = Collections.unmodifiableSet(cs);
+        }
+        return new CollectorImpl<T, A, R>(supplier, accumulator, combiner, finisher, cs);
+    }
+
+    // Collections
+
+    /**
+     * Returns a {@code Collector} that accumulates the input elements into a
+     * new {@code Collection}, in encounter order.  The {@code Collection} is
+     * created by the provided factory.
+     *
+     * @param <T> the type of the input elements
+     * @param <C> the type of the resulting {@code Collection}
+     * @param collectionFactory a {@code Supplier} which returns a new, empty
+     *        {@code Collection} of the appropriate type
+     * @return a {@code Collector} which collects all the input elements into a
+     *         {@code Collection}, in encounter order
+     */
+    public static <T, C extends Collection<T>>
+    Collector<T, C, C> toCollection(Supplier<C> collectionFactory) {
+        return new CollectorImpl<T, C, C>(
+            Objects.requireNonNull(collectionFactory),
+            new BiConsumer<C, T>() {
+                public void accept(C c, T t) {
+                    c.add(t);
+                }
+            },
+            new BinaryOperator<C>() {
+                public C apply(C left, C right) {
+                    left.addAll(right);
+                    return left;
+                }
+            },
+            CH_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates the input elements into a
+     * new {@code List}.  There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code List} returned; if more
+     * control over the returned {@code List} is required, use
+     * {@link #toCollection(Supplier)}.
+     *
+     * @param <T> the type of the input elements
+     * @return a {@code Collector} which collects all the input elements into a
+     *         {@code List}, in encounter order
+     */
+    public static <T> Collector<T, ?, List<T>> toList() {
+        return toCollection(new Supplier<List<T>>() {
+            public List<T> get() {
+                return new ArrayList<T>();
+            }
+        });
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates the input elements into a
+     * new {@code Set}.  There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Set} returned; if more
+     * control over the returned {@code Set} is required, use
+     * {@link #toCollection(Supplier)}.
+     *
+     * <p>This is an {@link Collector.Characteristics#UNORDERED unordered}
+     * Collector.
+     *
+     * @param <T> the type of the input elements
+     * @return a {@code Collector} which collects all the input elements into a
+     *         {@code Set}
+     */
+    public static <T> Collector<T, ?, Set<T>> toSet() {
+        return new CollectorImpl<T, Set<T>, Set<T>>(
+            new Supplier<Set<T>>() {
+                public Set<T> get() {
+                    return new HashSet<T>();
+                }
+            },
+            new BiConsumer<Set<T>, T>() {
+                public void accept(Set<T> set, T t) {
+                    set.add(t);
+                }
+            },
+            new BinaryOperator<Set<T>>() {
+                public Set<T> apply(Set<T> left, Set<T> right) {
+                    left.addAll(right);
+                    return left;
+                }
+            },
+            CH_UNORDERED_ID);
+    }
+
+    // Strings
+
+    /**
+     * Returns a {@code Collector} that concatenates the input elements into a
+     * {@code String}, in encounter order.
+     *
+     * @return a {@code Collector} that concatenates the input elements into a
+     *         {@code String}, in encounter order
+     */
+    public static Collector<CharSequence, ?, String> joining() {
+        return new CollectorImpl<CharSequence, StringBuilder, String>(
+            new Supplier<StringBuilder>() {
+                public StringBuilder get() {
+                    return new StringBuilder();
+                }
+            },
+            new BiConsumer<StringBuilder, CharSequence>() {
+                public void accept(StringBuilder sb, CharSequence s) {
+                    sb.append(s);
+                }
+            },
+            new BinaryOperator<StringBuilder>() {
+                public StringBuilder apply(StringBuilder left, StringBuilder right) {
+                    return left.append(right);
+                }
+            },
+            new Function<StringBuilder, String>() {
+                public String apply(StringBuilder sb) {
+                    return sb.toString();
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that concatenates the input elements,
+     * separated by the specified delimiter, in encounter order.
+     *
+     * @param delimiter the delimiter to be used between each element
+     * @return a {@code Collector} which concatenates CharSequence elements,
+     *         separated by the specified delimiter, in encounter order
+     */
+    public static Collector<CharSequence, ?, String> joining(CharSequence delimiter) {
+        return joining(delimiter, "", "");
+    }
+
+    /**
+     * Returns a {@code Collector} that concatenates the input elements,
+     * separated by the specified delimiter, with the specified prefix and
+     * suffix, in encounter order.
+     *
+     * @param delimiter the delimiter to be used between each element
+     * @param  prefix the sequence of characters to be used at the beginning
+     *         of the joined result
+     * @param  suffix the sequence of characters to be used at the end
+     *         of the joined result
+     * @return a {@code Collector} which concatenates CharSequence elements,
+     *         separated by the specified delimiter, in encounter order
+     */
+    public static Collector<CharSequence, ?, String> joining(final CharSequence delimiter,
+                                                             final CharSequence prefix,
+                                                             final CharSequence suffix) {
+        Objects.requireNonNull(delimiter);
+        Objects.requireNonNull(prefix);
+        Objects.requireNonNull(suffix);
+        // The container holds the joined elements without prefix or suffix,
+        // or null if no element has been accumulated
+        return new CollectorImpl<CharSequence, StringBuilder[], String>(
+            new Supplier<StringBuilder[]>() {
+                public StringBuilder[] get() {
+                    return new StringBuilder[1];
+                }
+            },
+            new BiConsumer<StringBuilder[], CharSequence>() {
+                public void accept(StringBuilder[] a, CharSequence s) {
+                    if (a[0] == null)
+                        a[0] = new StringBuilder();
+                    else
+                        a[0].append(delimiter);
+                    a[0].append(s);
+                }
+            },
+            new BinaryOperator<StringBuilder[]>() {
+                public StringBuilder[] apply(StringBuilder[] left,
+                                             StringBuilder[] right) {
+                    if (left[0] == null)
+                        return right;
+                    if (right[0] != null)
+                        left[0].append(delimiter).append(right[0]);
+                    return left;
+                }
+            },
+            new Function<StringBuilder[], String>() {
+                public String apply(StringBuilder[] a) {
+                    StringBuilder sb = new StringBuilder().append(prefix);
+                    if (a[0] != null)
+                        sb.append(a[0]);
+                    return sb.append(suffix).toString();
+                }
+            },
+            CH_NOID);
+    }
+
+    // Adapters
+
+    /**
+     * Adapts a {@code Collector} accepting elements of type {@code U} to one
+     * accepting elements of type {@code T} by applying a mapping function to
+     * each input element before accumulation.
+     *
+     * @param <T> the type of the input elements
+     * @param <U> type of elements accepted by downstream collector
+     * @param <A> intermediate accumulation type of the downstream collector
+     * @param <R> result type of collector
+     * @param mapper a function to be applied to the input elements
+     * @param downstream a collector which will accept mapped values
+     * @return a collector which applies the mapping function to the input
+     *         elements and provides the mapped results to the downstream
+     *         collector
+     */
+    public static <T, U, A, R>
+    Collector<T, ?, R> mapping(final Function<? super T, ? extends U> mapper,
+                               Collector<? super U, A, R> downstream) {
+        Objects.requireNonNull(mapper);
+        final BiConsumer<A, ? super U> downstreamAccumulator = downstream.accumulator();
+        return new CollectorImpl<T, A, R>(
+            downstream.supplier(),
+            new BiConsumer<A, T>() {
+                public void accept(A r, T t) {
+                    accept0(downstreamAccumulator, r, mapper.apply(t));
+                }
+            },
+            downstream.combiner(), downstream.finisher(),
+            downstream.characteristics());
+    }
+
+    /**
+     * Adapts a {@code Collector} to perform an additional finishing
+     * transformation.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> intermediate accumulation type of the downstream collector
+     * @param <R> result type of the downstream collector
+     * @param <RR> result type of the resulting collector
+     * @param downstream a collector
+     * @param finisher a function to be applied to the final result of the
+     *        downstream collector
+     * @return a collector which performs the action of the downstream
+     *         collector, followed by an additional finishing step
+     */
+    public static <T, A, R, RR>
+    Collector<T, A, RR> collectingAndThen(Collector<T, A, R> downstream,
+                                          final Function<R, RR> finisher) {
+        Objects.requireNonNull(finisher);
+        Set<Collector.Characteristics> characteristics = downstream.characteristics();
+        if (characteristics.contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            if (characteristics.size() == 1)
+                characteristics = CH_NOID;
+            else {
+                characteristics = EnumSet.copyOf(characteristics);
+                characteristics.remove(Collector.Characteristics.IDENTITY_FINISH);
+                characteristics = Collections.unmodifiableSet(characteristics);
+            }
+        }
+        final Function<A, R> downstreamFinisher = downstream.finisher();
+        return new CollectorImpl<T, A, RR>(
+            downstream.supplier(), downstream.accumulator(), downstream.combiner(),
+            new Function<A, RR>() {
+                public RR apply(A a) {
+                    return finisher.apply(downstreamFinisher.apply(a));
+                }
+            },
+            characteristics);
+    }
+
+    /**
+     * Invokes a wildcard-typed accumulator, capturing its element type.
+     */
+    @SuppressWarnings("unchecked")
+    private static <A, U> void accept0(BiConsumer<A, U> accumulator,
+                                       A container, Object value) {
+        accumulator.accept(container, (U) value);
+    }
+
+    // Reductions
+
+    /**
+     * Returns a {@code Collector} accepting elements of type {@code T} that
+     * counts the number of input elements.  If no elements are present, the
+     * result is 0.
+     *
+     * @param <T> the type of the input elements
+     * @return a {@code Collector} that counts the input elements
+     */
+    public static <T> Collector<T, ?, Long> counting() {
+        return summingLong(new ToLongFunction<T>() {
+            public long applyAsLong(T e) {
+                return 1L;
+            }
+        });
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the minimal element according
+     * to a given {@code Comparator}, described as an {@code Optional<T>}.
+     *
+     * @param <T> the type of the input elements
+     * @param comparator a {@code Comparator} for comparing elements
+     * @return a {@code Collector} that produces the minimal value
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    minBy(final Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+        return reducing(new BinaryOperator<T>() {
+            public T apply(T a, T b) {
+                return (comparator.compare(a, b) <= 0) ? a : b;
+            }
+        });
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the maximal element according
+     * to a given {@code Comparator}, described as an {@code Optional<T>}.
+     *
+     * @param <T> the type of the input elements
+     * @param comparator a {@code Comparator} for comparing elements
+     * @return a {@code Collector} that produces the maximal value
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    maxBy(final Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+        return reducing(new BinaryOperator<T>() {
+            public T apply(T a, T b) {
+                return (comparator.compare(a, b) >= 0) ? a : b;
+            }
+        });
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the sum of a int-valued
+     * function applied to the input elements.  If no elements are present,
+     * the result is 0.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} that produces the sum of a derived property
+     */
+    public static <T> Collector<T, ?, Integer>
+    summingInt(final ToIntFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<T, int[], Integer>(
+            new Supplier<int[]>() {
+                public int[] get() {
+                    return new int[1];
+                }
+            },
+            new BiConsumer<int[], T>() {
+                public void accept(int[] a, T t) {
+                    a[0] += mapper.applyAsInt(t);
+                }
+            },
+            new BinaryOperator<int[]>() {
+                public int[] apply(int[] a, int[] b) {
+                    a[0] += b[0];
+                    return a;
+                }
+            },
+            new Function<int[], Integer>() {
+                public Integer apply(int[] a) {
+                    return a[0];
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the sum of a long-valued
+     * function applied to the input elements.  If no elements are present,
+     * the result is 0.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} that produces the sum of a derived property
+     */
+    public static <T> Collector<T, ?, Long>
+    summingLong(final ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        return new CollectorImpl<T, long[], Long>(
+            new Supplier<long[]>() {
+                public long[] get() {
+                    return new long[1];
+                }
+            },
+            new BiConsumer<long[], T>() {
+                public void accept(long[] a, T t) {
+                    a[0] += mapper.applyAsLong(t);
+                }
+            },
+            new BinaryOperator<long[]>() {
+                public long[] apply(long[] a, long[] b) {
+                    a[0] += b[0];
+                    return a;
+                }
+            },
+            new Function<long[], Long>() {
+                public Long apply(long[] a) {
+                    return a[0];
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the sum of a double-valued
+     * function applied to the input elements.  If no elements are present,
+     * the result is 0.
+     *
+     * <p>The sum is computed with compensated summation, which reduces the
+     * error bound of the result compared to a simple summation; the order
+     * in which the values are added may still affect the result.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} that produces the sum of a derived property
+     */
+    public static <T> Collector<T, ?, Double>
+    summingDouble(final ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        // a[0] and a[1] hold the compensated sum, a[2] the simple sum
+        return new CollectorImpl<T, double[], Double>(
+            new Supplier<double[]>() {
+                public double[] get() {
+                    return new double[3];
+                }
+            },
+            new BiConsumer<double[], T>() {
+                public void accept(double[] a, T t) {
+                    double val = mapper.applyAsDouble(t);
+                    sumWithCompensation(a, val);
+                    a[2] += val;
+                }
+            },
+            new BinaryOperator<double[]>() {
+                public double[] apply(double[] a, double[] b) {
+                    sumWithCompensation(a, b[0]);
+                    sumWithCompensation(a, -b[1]);
+                    a[2] += b[2];
+                    return a;
+                }
+            },
+            new Function<double[], Double>() {
+                public Double apply(double[] a) {
+                    return computeFinalSum(a);
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Incorporate a new double value using Kahan summation /
+     * compensated summation.
+     *
+     * <p>The high-order bits of the sum are in {@code intermediateSum[0]},
+     * the negative of the low-order bits in {@code intermediateSum[1]}; any
+     * additional elements are application-specific.
+     *
+     * @param intermediateSum the high-order and low-order words of the
+     *        intermediate sum
+     * @param value the name value to be included in the running sum
+     * @return the updated array
+     */
+    static double[] sumWithCompensation(double[] intermediateSum, double value) {
+        double tmp = value - intermediateSum[1];
+        double sum = intermediateSum[0];
+        double velvel = sum + tmp; // Little wolf of rounding error
+        intermediateSum[1] = (velvel - sum) - tmp;
+        intermediateSum[0] = velvel;
+        return intermediateSum;
+    }
+
+    /**
+     * If the compensated sum is spuriously NaN from accumulating one or more
+     * same-signed infinite values, return the correctly-signed infinity
+     * stored in the simple sum, which is the last element of the array.
+     */
+    static double computeFinalSum(double[] summands) {
+        // Better error bounds to add both terms as the final sum
+        double tmp = summands[0] - summands[1];
+        double simpleSum = summands[summands.length - 1];
+        if (Double.isNaN(tmp) && Double.isInfinite(simpleSum))
+            return simpleSum;
+        else
+            return tmp;
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the arithmetic mean of an
+     * int-valued function applied to the input elements.  If no elements
+     * are present, the result is 0.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the property to be averaged
+     * @return a {@code Collector} that produces the average of a derived
+     *         property
+     */
+    public static <T> Collector<T, ?, Double>
+    averagingInt(final ToIntFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        // a[0] holds the sum, a[1] the count
+        return new CollectorImpl<T, long[], Double>(
+            new Supplier<long[]>() {
+                public long[] get() {
+                    return new long[2];
+                }
+            },
+            new BiConsumer<long[], T>() {
+                public void accept(long[] a, T t) {
+                    a[0] += mapper.applyAsInt(t);
+                    a[1]++;
+                }
+            },
+            new BinaryOperator<long[]>() {
+                public long[] apply(long[] a, long[] b) {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    return a;
+                }
+            },
+            new Function<long[], Double>() {
+                public Double apply(long[] a) {
+                    return (a[1] == 0) ? 0.0d : (double) a[0] / a[1];
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the arithmetic mean of an
+     * long-valued function applied to the input elements.  If no elements
+     * are present, the result is 0.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the property to be averaged
+     * @return a {@code Collector} that produces the average of a derived
+     *         property
+     */
+    public static <T> Collector<T, ?, Double>
+    averagingLong(final ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        // a[0] holds the sum, a[1] the count
+        return new CollectorImpl<T, long[], Double>(
+            new Supplier<long[]>() {
+                public long[] get() {
+                    return new long[2];
+                }
+            },
+            new BiConsumer<long[], T>() {
+                public void accept(long[] a, T t) {
+                    a[0] += mapper.applyAsLong(t);
+                    a[1]++;
+                }
+            },
+            new BinaryOperator<long[]>() {
+                public long[] apply(long[] a, long[] b) {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    return a;
+                }
+            },
+            new Function<long[], Double>() {
+                public Double apply(long[] a) {
+                    return (a[1] == 0) ? 0.0d : (double) a[0] / a[1];
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the arithmetic mean of a
+     * double-valued function applied to the input elements.  If no elements
+     * are present, the result is 0.
+     *
+     * <p>The sum is computed with compensated summation, as for
+     * {@link #summingDouble(ToDoubleFunction)}.
+     *
+     * @param <T> the type of the input elements
+     * @param mapper a function extracting the property to be averaged
+     * @return a {@code Collector} that produces the average of a derived
+     *         property
+     */
+    public static <T> Collector<T, ?, Double>
+    averagingDouble(final ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        // a[0] and a[1] hold the compensated sum, a[2] the count and a[3]
+        // the simple sum
+        return new CollectorImpl<T, double[], Double>(
+            new Supplier<double[]>() {
+                public double[] get() {
+                    return new double[4];
+                }
+            },
+            new BiConsumer<double[], T>() {
+                public void accept(double[] a, T t) {
+                    double val = mapper.applyAsDouble(t);
+                    sumWithCompensation(a, val);
+                    a[2]++;
+                    a[3] += val;
+                }
+            },
+            new BinaryOperator<double[]>() {
+                public double[] apply(double[] a, double[] b) {
+                    sumWithCompensation(a, b[0]);
+                    sumWithCompensation(a, -b[1]);
+                    a[2] += b[2];
+                    a[3] += b[3];
+                    return a;
+                }
+            },
+            new Function<double[], Double>() {
+                public Double apply(double[] a) {
+                    return (a[2] == 0) ? 0.0d : (computeFinalSum(a) / a[2]);
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} which performs a reduction of its
+     * input elements under a specified {@code BinaryOperator} using the
+     * provided identity.
+     *
+     * @param <T> element type for the input and output of the reduction
+     * @param identity the identity value for the reduction (also, the value
+     *        that is returned when there are no input elements)
+     * @param op a {@code BinaryOperator<T>} used to reduce the input elements
+     * @return a {@code Collector} which implements the reduction operation
+     *
+     * @see #reducing(BinaryOperator)
+     * @see #reducing(Object, Function, BinaryOperator)
+     */
+    public static <T> Collector<T, ?, T>
+    reducing(T identity, BinaryOperator<T> op) {
+        Function<T, T> mapper = castingIdentity();
+        return reducing(identity, mapper, op);
+    }
+
+    /**
+     * Returns a {@code Collector} which performs a reduction of its
+     * input elements under a specified {@code BinaryOperator}.  The result
+     * is described as an {@code Optional<T>}.
+     *
+     * @param <T> element type for the input and output of the reduction
+     * @param op a {@code BinaryOperator<T>} used to reduce the input elements
+     * @return a {@code Collector} which implements the reduction operation
+     *
+     * @see #reducing(Object, BinaryOperator)
+     * @see #reducing(Object, Function, BinaryOperator)
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    reducing(final BinaryOperator<T> op) {
+        Objects.requireNonNull(op);
+        return new CollectorImpl<T, OptionalBox<T>, Optional<T>>(
+            new Supplier<OptionalBox<T>>() {
+                public OptionalBox<T> get() {
+                    return new OptionalBox<T>(op);
+                }
+            },
+            new BiConsumer<OptionalBox<T>, T>() {
+                public void accept(OptionalBox<T> box, T t) {
+                    box.accept(t);
+                }
+            },
+            new BinaryOperator<OptionalBox<T>>() {
+                public OptionalBox<T> apply(OptionalBox<T> a, OptionalBox<T> b) {
+                    if (b.present)
+                        a.accept(b.value);
+                    return a;
+                }
+            },
+            new Function<OptionalBox<T>, Optional<T>>() {
+                public Optional<T> apply(OptionalBox<T> a) {
+                    return Optional.ofNullable(a.value);
+                }
+            },
+            CH_NOID);
+    }
+
+    /**
+     * Container for {@link #reducing(BinaryOperator)}, holding the reduction
+     * of the elements accepted so far, if any.
+     */
+    private static final class OptionalBox<T> {
+        final BinaryOperator<T> op;
+        T value;
+        boolean present;
+
+        OptionalBox(BinaryOperator<T> op) {
+            this.op = op;
+        }
+
+        void accept(T t) {
+            if (present) {
+                value = op.apply(value, t);
+            }
+            else {
+                value = t;
+                present = true;
+            }
+        }
+    }
+
+    /**
+     * Returns a {@code Collector} which performs a reduction of its
+     * input elements under a specified mapping function and
+     * {@code BinaryOperator}.  This is a generalization of
+     * {@link #reducing(Object, BinaryOperator)} which allows a transformation
+     * of the elements before reduction.
+     *
+     * @param <T> the type of the input elements
+     * @param <U> the type of the mapped values
+     * @param identity the identity value for the reduction (also, the value
+     *        that is returned when there are no input elements)
+     * @param mapper a mapping function to apply to each input value
+     * @param op a {@code BinaryOperator<U>} used to reduce the mapped values
+     * @return a {@code Collector} implementing the map-reduce operation
+     *
+     * @see #reducing(Object, BinaryOperator)
+     * @see #reducing(BinaryOperator)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, U>
+    Collector<T, ?, U> reducing(final U identity,
+                                final Function<? super T, ? extends U> mapper,
+                                final BinaryOperator<U> op) {
+        Objects.requireNonNull(mapper);
+        Objects.requireNonNull(op);
+        return new CollectorImpl<T, Object[], U>(
+            new Supplier<Object[]>() {
+                public Object[] get() {
+                    return new Object[] { identity };
+                }
+            },
+            new BiConsumer<Object[], T>() {
+                public void accept(Object[] a, T t) {
+                    a[0] = op.apply((U) a[0], mapper.apply(t));
+                }
+            },
+            new BinaryOperator<Object[]>() {
+                public Object[] apply(Object[] a, Object[] b) {
+                    a[0] = op.apply((U) a[0], (U) b[0]);
+                    return a;
+                }
+            },
+            new Function<Object[], U>() {
+                public U apply(Object[] a) {
+                    return (U) a[0];
+                }
+            },
+            CH_NOID);
+    }
+
+    // Grouping
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T}, grouping elements according to a
+     * classification function, and returning the results in a {@code Map}.
+     *
+     * <p>The classification function maps elements to some key type {@code K}.
+     * The collector produces a {@code Map<K, List<T>>} whose keys are the
+     * values resulting from applying the classification function to the input
+     * elements, and whose corresponding values are {@code List}s containing the
+     * input elements which map to the associated key under the classification
+     * function.
+     *
+     * <p>There are no guarantees on the type, mutability, serializability, or
+     * thread-safety of the {@code Map} or {@code List} objects returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #groupingBy(Function, Supplier, Collector)
+     */
+    public static <T, K> Collector<T, ?, Map<K, List<T>>>
+    groupingBy(Function<? super T, ? extends K> classifier) {
+        return groupingBy(classifier, Collectors.<T>toList());
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to a
+     * classification function, and then performing a reduction operation on
+     * the values associated with a given key using the specified downstream
+     * {@code Collector}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function)
+     * @see #groupingBy(Function, Supplier, Collector)
+     */
+    public static <T, K, A, D>
+    Collector<T, ?, Map<K, D>> groupingBy(Function<? super T, ? extends K> classifier,
+                                          Collector<? super T, A, D> downstream) {
+        return groupingBy(classifier, new Supplier<Map<K, D>>() {
+            public Map<K, D> get() {
+                return new HashMap<K, D>();
+            }
+        }, downstream);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to a
+     * classification function, and then performing a reduction operation on
+     * the values associated with a given key using the specified downstream
+     * {@code Collector}.  The {@code Map} produced by the Collector is created
+     * with the supplied factory function.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param <M> the type of the resulting {@code Map}
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapFactory a function which, when called, produces a new empty
+     *        {@code Map} of the desired type
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #groupingBy(Function)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, K, D, A, M extends Map<K, D>>
+    Collector<T, ?, M> groupingBy(final Function<? super T, ? extends K> classifier,
+                                  Supplier<M> mapFactory,
+                                  Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Objects.requireNonNull(mapFactory);
+        final Supplier<A> downstreamSupplier = downstream.supplier();
+        final BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BiConsumer<Map<K, A>, T> accumulator = new BiConsumer<Map<K, A>, T>() {
+            public void accept(Map<K, A> m, T t) {
+                K key = Objects.requireNonNull(classifier.apply(t),
+                                               "element cannot be mapped to a null key");
+                A container = containerFor(m, key, downstreamSupplier);
+                accept0(downstreamAccumulator, container, t);
+            }
+        };
+        BinaryOperator<Map<K, A>> merger =
+            Collectors.<K, A, Map<K, A>>mapMerger(downstream.combiner());
+        Supplier<Map<K, A>> mangledFactory =
+            (Supplier<Map<K, A>>) (Supplier<?>) mapFactory;
+
+        if (downstream.characteristics()
+                .contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return new CollectorImpl<T, Map<K, A>, M>(mangledFactory, accumulator, merger,
+                                                      CH_ID);
+        }
+        else {
+            final Function<A, D> downstreamFinisher = downstream.finisher();
+            Function<Map<K, A>, M> finisher = new Function<Map<K, A>, M>() {
+                public M apply(Map<K, A> intermediate) {
+                    for (Map.Entry<K, A> e : intermediate.entrySet()) {
+                        Map.Entry<K, Object> raw =
+                            (Map.Entry<K, Object>) (Map.Entry<K, ?>) e;
+                        raw.setValue(downstreamFinisher.apply(e.getValue()));
+                    }
+                    return (M) intermediate;
+                }
+            };
+            return new CollectorImpl<T, Map<K, A>, M>(mangledFactory, accumulator, merger,
+                                                      finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * {@code BinaryOperator<Map>} that merges the contents of its right
+     * argument into its left argument, using the provided merge function to
+     * handle duplicate keys.
+     *
+     * @param <K> type of the map keys
+     * @param <V> type of the map values
+     * @param <M> type of the map
+     * @param mergeFunction a merge function suitable for
+     *        {@link #toMap(Function, Function, BinaryOperator)}
+     * @return a merge function for two maps
+     */
+    private static <K, V, M extends Map<K, V>>
+    BinaryOperator<M> mapMerger(final BinaryOperator<V> mergeFunction) {
+        return new BinaryOperator<M>() {
+            public M apply(M m1, M m2) {
+                for (Map.Entry<K, V> e : m2.entrySet())
+                    merge(m1, e.getKey(), e.getValue(), mergeFunction);
+                return m1;
+            }
+        };
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements according
+     * to a {@code Predicate}, and organizes them into a
+     * {@code Map<Boolean, List<T>>}.
+     *
+     * There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param predicate a predicate used for classifying input elements
+     * @return a {@code Collector} implementing the partitioning operation
+     *
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Boolean, List<T>>>
+    partitioningBy(Predicate<? super T> predicate) {
+        return partitioningBy(predicate, Collectors.<T>toList());
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements according
+     * to a {@code Predicate}, reduces the values in each partition according to
+     * another {@code Collector}, and organizes them into a
+     * {@code Map<Boolean, D>} whose values are the result of the downstream
+     * reduction.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param predicate a predicate used for classifying input elements
+     * @param downstream a {@code Collector} implementing the downstream
+     *        reduction
+     * @return a {@code Collector} implementing the cascaded partitioning
+     *         operation
+     *
+     * @see #partitioningBy(Predicate)
+     */
+    public static <T, D, A> Collector<T, ?, Map<Boolean, D>>
+    partitioningBy(final Predicate<? super T> predicate,
+                   Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(predicate);
+        final Supplier<A> downstreamSupplier = downstream.supplier();
+        final BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        final BinaryOperator<A> op = downstream.combiner();
+        Supplier<Partition<A>> supplier = new Supplier<Partition<A>>() {
+            public Partition<A> get() {
+                return new Partition<A>(downstreamSupplier.get(),
+                                        downstreamSupplier.get());
+            }
+        };
+        BiConsumer<Partition<A>, T> accumulator = new BiConsumer<Partition<A>, T>() {
+            public void accept(Partition<A> result, T t) {
+                accept0(downstreamAccumulator,
+                        predicate.test(t) ? result.forTrue : result.forFalse, t);
+            }
+        };
+        BinaryOperator<Partition<A>> merger = new BinaryOperator<Partition<A>>() {
+            public Partition<A> apply(Partition<A> left, Partition<A> right) {
+                return new Partition<A>(op.apply(left.forTrue, right.forTrue),
+                                        op.apply(left.forFalse, right.forFalse));
+            }
+        };
+        if (downstream.characteristics()
+                .contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return new CollectorImpl<T, Partition<A>, Map<Boolean, D>>(
+                supplier, accumulator, merger, CH_ID);
+        }
+        else {
+            final Function<A, D> downstreamFinisher = downstream.finisher();
+            Function<Partition<A>, Map<Boolean, D>> finisher =
+                new Function<Partition<A>, Map<Boolean, D>>() {
+                    public Map<Boolean, D> apply(Partition<A> par) {
+                        return new Partition<D>(downstreamFinisher.apply(par.forTrue),
+                                                downstreamFinisher.apply(par.forFalse));
+                    }
+                };
+            return new CollectorImpl<T, Partition<A>, Map<Boolean, D>>(
+                supplier, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    // Maps
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into a
+     * {@code Map} whose keys and values are the result of applying the provided
+     * mapping functions to the input elements.
+     *
+     * <p>If the mapped keys contain duplicates (according to
+     * {@link Object#equals(Object)}), an {@code IllegalStateException} is
+     * thrown when the collection operation is performed.  If the mapped keys
+     * may have duplicates, use {@link #toMap(Function, Function, BinaryOperator)}
+     * instead.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the output type of the key mapping function
+     * @param <U> the output type of the value mapping function
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @return a {@code Collector} which collects elements into a {@code Map}
+     *         whose keys and values are the result of applying mapping
+     *         functions to the input elements
+     *
+     * @see #toMap(Function, Function, BinaryOperator)
+     * @see #toMap(Function, Function, BinaryOperator, Supplier)
+     */
+    public static <T, K, U>
+    Collector<T, ?, Map<K, U>> toMap(final Function<? super T, ? extends K> keyMapper,
+                                     final Function<? super T, ? extends U> valueMapper) {
+        Objects.requireNonNull(keyMapper);
+        Objects.requireNonNull(valueMapper);
+        return new CollectorImpl<T, Map<K, U>, Map<K, U>>(
+            new Supplier<Map<K, U>>() {
+                public Map<K, U> get() {
+                    return new HashMap<K, U>();
+                }
+            },
+            new BiConsumer<Map<K, U>, T>() {
+                public void accept(Map<K, U> map, T element) {
+                    putUnique(map, keyMapper.apply(element),
+                              Objects.requireNonNull(valueMapper.apply(element)));
+                }
+            },
+            new BinaryOperator<Map<K, U>>() {
+                public Map<K, U> apply(Map<K, U> m1, Map<K, U> m2) {
+                    for (Map.Entry<K, U> e : m2.entrySet())
+                        putUnique(m1, e.getKey(), e.getValue());
+                    return m1;
+                }
+            },
+            CH_ID);
+    }
+
+    /**
+     * Maps the key to the non-null value, throwing
+     * {@code IllegalStateException} if the key is already mapped.
+     */
+    private static <K, V> void putUnique(Map<K, V> map, K k, V v) {
+        V u = map.put(k, v);
+        if (u != null)
+            throw duplicateKeyException(k, u, v);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into a
+     * {@code Map} whose keys and values are the result of applying the provided
+     * mapping functions to the input elements.
+     *
+     * <p>If the mapped keys contain duplicates (according to
+     * {@link Object#equals(Object)}), the value mapping function is applied to
+     * each equal element, and the results are merged using the provided
+     * merging function.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the output type of the key mapping function
+     * @param <U> the output type of the value mapping function
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @param mergeFunction a merge function, used to resolve collisions between
+     *        values associated with the same key
+     * @return a {@code Collector} which collects elements into a {@code Map}
+     *         whose keys are the result of applying a key mapping function to
+     *         the input elements, and whose values are the result of applying
+     *         a value mapping function to all input elements equal to the key
+     *         and combining them using the merge function
+     *
+     * @see #toMap(Function, Function)
+     * @see #toMap(Function, Function, BinaryOperator, Supplier)
+     */
+    public static <T, K, U>
+    Collector<T, ?, Map<K, U>> toMap(Function<? super T, ? extends K> keyMapper,
+                                     Function<? super T, ? extends U> valueMapper,
+                                     BinaryOperator<U> mergeFunction) {
+        return toMap(keyMapper, valueMapper, mergeFunction, new Supplier<Map<K, U>>() {
+            public Map<K, U> get() {
+                return new HashMap<K, U>();
+            }
+        });
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into a
+     * {@code Map} whose keys and values are the result of applying the provided
+     * mapping functions to the input elements.
+     *
+     * <p>If the mapped keys contain duplicates (according to
+     * {@link Object#equals(Object)}), the value mapping function is applied to
+     * each equal element, and the results are merged using the provided
+     * merging function.  The {@code Map} is created by a provided supplier
+     * function.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the output type of the key mapping function
+     * @param <U> the output type of the value mapping function
+     * @param <M> the type of the resulting {@code Map}
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @param mergeFunction a merge function, used to resolve collisions between
+     *        values associated with the same key
+     * @param mapSupplier a function which returns a new, empty {@code Map} into
+     *        which the results will be inserted
+     * @return a {@code Collector} which collects elements into a {@code Map}
+     *         whose keys are the result of applying a key mapping function to
+     *         the input elements, and whose values are the result of applying
+     *         a value mapping function to all input elements equal to the key
+     *         and combining them using the merge function
+     *
+     * @see #toMap(Function, Function)
+     * @see #toMap(Function, Function, BinaryOperator)
+     */
+    public static <T, K, U, M extends Map<K, U>>
+    Collector<T, ?, M> toMap(final Function<? super T, ? extends K> keyMapper,
+                             final Function<? super T, ? extends U> valueMapper,
+                             final BinaryOperator<U> mergeFunction,
+                             Supplier<M> mapSupplier) {
+        Objects.requireNonNull(keyMapper);
+        Objects.requireNonNull(valueMapper);
+        Objects.requireNonNull(mergeFunction);
+        Objects.requireNonNull(mapSupplier);
+        BiConsumer<M, T> accumulator = new BiConsumer<M, T>() {
+            public void accept(M map, T element) {
+                merge(map, keyMapper.apply(element), valueMapper.apply(element),
+                      mergeFunction);
+            }
+        };
+        return new CollectorImpl<T, M, M>(mapSupplier, accumulator,
+                                          Collectors.<K, U, M>mapMerger(mergeFunction),
+                                          CH_ID);
+    }
+
+    /**
+     * Implementation class used by partitioningBy.
+     */
+    private static final class Partition<T>
+            extends AbstractMap<Boolean, T>
+            implements Map<Boolean, T> {
+        final T forTrue;
+        final T forFalse;
+
+        Partition(T forTrue, T forFalse) {
+            this.forTrue = forTrue;
+            this.forFalse = forFalse;
+        }
+
+        @Override
+        public Set<Map.Entry<Boolean, T>> entrySet() {
+            return new AbstractSet<Map.Entry<Boolean, T>>() {
+                @Override
+                public Iterator<Map.Entry<Boolean, T>> iterator() {
+                    Map.Entry<Boolean, T> falseEntry =
+                        new SimpleImmutableEntry<Boolean, T>(false, forFalse);
+                    Map.Entry<Boolean, T> trueEntry =
+                        new SimpleImmutableEntry<Boolean, T>(true, forTrue);
+                    return Arrays.asList(falseEntry, trueEntry).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return 2;
+                }
+            };
+        }
+    }
+}
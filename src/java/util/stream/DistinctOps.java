@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Factory methods for transforming streams into duplicate-free streams, using
+ * {@link Object#equals(Object)} to determine equality.  Primitive elements
+ * are compared as their boxed values.
+ *
+ * <p>The first occurrence of each element in encounter order is kept.  In
+ * parallel, the upstream output is collected in parallel and then
+ * de-duplicated in order.
+ *
+ * @since 1.8
+ */
+final class DistinctOps {
+
+    private DistinctOps() { }
+
+    /**
+     * Appends a "distinct" operation to the provided stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream) {
+        return new ReferencePipeline.StatefulOp<T, T>(upstream) {
+            @Override
+            Sink<T> opWrapSink(Sink<T> sink) {
+                return new DistinctSink<T>(sink);
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream.
+     *
+     * @param upstream a {@code IntStream}
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream) {
+        return new IntPipeline.StatefulOp<Integer>(upstream) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Integer> sink) {
+                return new DistinctSink<Integer>(sink);
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream.
+     *
+     * @param upstream a {@code LongStream}
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream) {
+        return new LongPipeline.StatefulOp<Long>(upstream) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Long> sink) {
+                return new DistinctSink<Long>(sink);
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream.
+     *
+     * @param upstream a {@code DoubleStream}
+     */
+    static DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream) {
+        return new DoublePipeline.StatefulOp<Double>(upstream) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Double> sink) {
+                return new DistinctSink<Double>(sink);
+            }
+        };
+    }
+
+    /**
+     * {@code Sink} passing on the first occurrence of each element, for
+     * streams of any shape.
+     */
+    private static final class DistinctSink<T> extends Sink.Chained<T, T> {
+        private Set<Object> seen;
+
+        DistinctSink(Sink<? super T> downstream) {
+            super(downstream);
+        }
+
+        @Override
+        void begin(long size) {
+            seen = new HashSet<Object>();
+            downstream.begin(-1);
+        }
+
+        @Override
+        void end() {
+            seen = null;
+            downstream.end();
+        }
+
+        @Override
+        public void accept(T t) {
+            if (seen.add(t))
+                downstream.accept(t);
+        }
+
+        @Override
+        public void accept(int value) {
+            if (seen.add(value))
+                downstream.accept(value);
+        }
+
+        @Override
+        public void accept(long value) {
+            if (seen.add(value))
+                downstream.accept(value);
+        }
+
+        @Override
+        public void accept(double value) {
+            if (seen.add(value))
+                downstream.accept(value);
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Abstract base class for an intermediate pipeline stage or pipeline source
+ * stage of a {@link DoubleStream}, whose elements are of type {@code double}.
+ *
+ * @param <E_IN> type of elements in the upstream source
+ * @since 1.8
+ */
+abstract class DoublePipeline<E_IN>
+        extends AbstractPipeline<E_IN, Double, DoubleStream>
+        implements DoubleStream {
+
+    /**
+     * Constructor for the head of a stream pipeline.
+     *
+     * @param source {@code Spliterator} describing the stream source
+     * @param parallel {@code true} if the pipeline is parallel
+     */
+    DoublePipeline(Spliterator<?> source, boolean parallel) {
+        super(source, parallel);
+    }
+
+    /**
+     * Constructor for appending an intermediate operation onto an existing
+     * pipeline.
+     *
+     * @param upstream the upstream element source
+     */
+    DoublePipeline(AbstractPipeline<?, E_IN, ?> upstream) {
+        super(upstream);
+    }
+
+    // Shape-specific methods
+
+    @Override
+    final StreamShape getOutputShape() {
+        return StreamShape.DOUBLE_VALUE;
+    }
+
+    @Override
+    final <P_IN> Spliterator<Double> wrap(Spliterator<P_IN> spliterator,
+                                          boolean isParallel) {
+        return new StreamSpliterators.DoubleWrappingSpliterator<P_IN>(
+            this, spliterator, isParallel);
+    }
+
+    // BaseStream
+
+    @Override
+    public final Iterator<Double> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public final Spliterator.OfDouble spliterator() {
+        return (Spliterator.OfDouble) spliteratorForStream();
+    }
+
+    // Stateless intermediate ops from DoubleStream
+
+    @Override
+    public final Stream<Double> boxed() {
+        return mapToObj(new DoubleFunction<Double>() {
+            public Double apply(double value) {
+                return Double.valueOf(value);
+            }
+        });
+    }
+
+    @Override
+    public final DoubleStream map(final DoubleUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<Double>(this) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Double, Double>(sink) {
+                    @Override
+                    public void accept(double t) {
+                        downstream.accept(mapper.applyAsDouble(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final <U> Stream<U> mapToObj(final DoubleFunction<? extends U> mapper) {
+        Objects.requireNonNull(mapper);
+        return new ReferencePipeline.StatelessOp<Double, U>(this) {
+            @Override
+            Sink<Double> opWrapSink(Sink<U> sink) {
+                return new Sink.Chained<Double, U>(sink) {
+                    @Override
+                    public void accept(double t) {
+                        downstream.accept(mapper.apply(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final IntStream mapToInt(final DoubleToIntFunction mapper) {
+        Objects.requireNonNull(mapper);
+        return new IntPipeline.StatelessOp<Double>(this) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Integer> sink) {
+                return new Sink.Chained<Double, Integer>(sink) {
+                    @Override
+                    public void accept(double t) {
+                        downstream.accept(mapper.applyAsInt(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final LongStream mapToLong(final DoubleToLongFunction mapper) {
+        Objects.requireNonNull(mapper);
+        return new LongPipeline.StatelessOp<Double>(this) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<Double, Long>(sink) {
+                    @Override
+                    public void accept(double t) {
+                        downstream.accept(mapper.applyAsLong(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream flatMap(
+            final DoubleFunction<? extends DoubleStream> mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<Double>(this) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Double, Double>(sink) {
+                    final DoubleConsumer pusher = new DoubleConsumer() {
+                        public void accept(double value) {
+                            downstream.accept(value);
+                        }
+                    };
+
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(double t) {
+                        DoubleStream result = mapper.apply(t);
+                        if (result != null)
+                            result.sequential().forEach(pusher);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream filter(final DoublePredicate predicate) {
+        Objects.requireNonNull(predicate);
+        return new StatelessOp<Double>(this) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Double, Double>(sink) {
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(double t) {
+                        if (predicate.test(t))
+                            downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream peek(final DoubleConsumer consumer) {
+        Objects.requireNonNull(consumer);
+        return new StatelessOp<Double>(this) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Double, Double>(sink) {
+                    @Override
+                    public void accept(double t) {
+                        consumer.accept(t);
+                        downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    // Stateful intermediate ops from DoubleStream
+
+    @Override
+    public final DoubleStream limit(long maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException(Long.toString(maxSize));
+        return SliceOps.makeDouble(this, 0, maxSize);
+    }
+
+    @Override
+    public final DoubleStream skip(long startInclusive) {
+        if (startInclusive < 0)
+            throw new IllegalArgumentException(Long.toString(startInclusive));
+        if (startInclusive == 0)
+            return this;
+        else
+            return SliceOps.makeDouble(this, startInclusive, -1);
+    }
+
+    @Override
+    public final DoubleStream sorted() {
+        return SortedOps.makeDouble(this);
+    }
+
+    @Override
+    public final DoubleStream distinct() {
+        return DistinctOps.makeDouble(this);
+    }
+
+    // Terminal ops from DoubleStream
+
+    @Override
+    public void forEach(DoubleConsumer action) {
+        evaluate(ForEachOps.makeDouble(action, false));
+    }
+
+    @Override
+    public void forEachOrdered(DoubleConsumer action) {
+        evaluate(ForEachOps.makeDouble(action, true));
+    }
+
+    @Override
+    public final double[] toArray() {
+        Nodes.Builder<Double> builder = evaluate(Nodes.<Double>collectOp());
+        return ((Nodes.DoubleBuilder) builder).asArray();
+    }
+
+    @Override
+    public final double sum() {
+        // summation[0] and summation[1] hold the compensated sum, see
+        // Collectors.sumWithCompensation; summation[2] holds the simple sum
+        double[] summation = collect(new Supplier<double[]>() {
+            public double[] get() {
+                return new double[3];
+            }
+        }, new ObjDoubleConsumer<double[]>() {
+            public void accept(double[] ll, double d) {
+                Collectors.sumWithCompensation(ll, d);
+                ll[2] += d;
+            }
+        }, new BiConsumer<double[], double[]>() {
+            public void accept(double[] ll, double[] rr) {
+                Collectors.sumWithCompensation(ll, rr[0]);
+                Collectors.sumWithCompensation(ll, -rr[1]);
+                ll[2] += rr[2];
+            }
+        });
+        return Collectors.computeFinalSum(summation);
+    }
+
+    @Override
+    public final OptionalDouble min() {
+        return reduce(new DoubleBinaryOperator() {
+            public double applyAsDouble(double left, double right) {
+                return Math.min(left, right);
+            }
+        });
+    }
+
+    @Override
+    public final OptionalDouble max() {
+        return reduce(new DoubleBinaryOperator() {
+            public double applyAsDouble(double left, double right) {
+                return Math.max(left, right);
+            }
+        });
+    }
+
+    @Override
+    public final OptionalDouble average() {
+        // avg[0] and avg[1] hold the compensated sum, avg[2] the count and
+        // avg[3] the simple sum
+        double[] avg = collect(new Supplier<double[]>() {
+            public double[] get() {
+                return new double[4];
+            }
+        }, new ObjDoubleConsumer<double[]>() {
+            public void accept(double[] ll, double d) {
+                ll[2]++;
+                Collectors.sumWithCompensation(ll, d);
+                ll[3] += d;
+            }
+        }, new BiConsumer<double[], double[]>() {
+            public void accept(double[] ll, double[] rr) {
+                Collectors.sumWithCompensation(ll, rr[0]);
+                Collectors.sumWithCompensation(ll, -rr[1]);
+                ll[2] += rr[2];
+                ll[3] += rr[3];
+            }
+        });
+        return avg[2] > 0
+               ? OptionalDouble.of(Collectors.computeFinalSum(avg) / avg[2])
+               : OptionalDouble.empty();
+    }
+
+    @Override
+    public final long count() {
+        return mapToLong(new DoubleToLongFunction() {
+            public long applyAsLong(double e) {
+                return 1L;
+            }
+        }).sum();
+    }
+
+    @Override
+    public final double reduce(double identity, DoubleBinaryOperator op) {
+        return evaluate(ReduceOps.makeDouble(identity, op));
+    }
+
+    @Override
+    public final OptionalDouble reduce(DoubleBinaryOperator op) {
+        return evaluate(ReduceOps.makeDouble(op));
+    }
+
+    @Override
+    public final <R> R collect(Supplier<R> resultFactory,
+                               ObjDoubleConsumer<R> accumulator,
+                               final BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(combiner);
+        BinaryOperator<R> operator = new BinaryOperator<R>() {
+            public R apply(R left, R right) {
+                combiner.accept(left, right);
+                return left;
+            }
+        };
+        return evaluate(ReduceOps.makeDouble(resultFactory, accumulator, operator));
+    }
+
+    @Override
+    public final boolean anyMatch(DoublePredicate predicate) {
+        return evaluate(MatchOps.makeDouble(predicate, MatchOps.MatchKind.ANY));
+    }
+
+    @Override
+    public final boolean allMatch(DoublePredicate predicate) {
+        return evaluate(MatchOps.makeDouble(predicate, MatchOps.MatchKind.ALL));
+    }
+
+    @Override
+    public final boolean noneMatch(DoublePredicate predicate) {
+        return evaluate(MatchOps.makeDouble(predicate, MatchOps.MatchKind.NONE));
+    }
+
+    @Override
+    public final OptionalDouble findFirst() {
+        return evaluate(FindOps.makeDouble(true));
+    }
+
+    @Override
+    public final OptionalDouble findAny() {
+        return evaluate(FindOps.makeDouble(false));
+    }
+
+    //
+
+    /**
+     * Source stage of a DoubleStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    static class Head<E_IN> extends DoublePipeline<E_IN> {
+        /**
+         * Constructor for the source stage of a DoubleStream.
+         *
+         * @param source {@code Spliterator} describing the stream source
+         * @param parallel {@code true} if the pipeline is parallel
+         */
+        Head(Spliterator<?> source, boolean parallel) {
+            super(source, parallel);
+        }
+
+        @Override
+        final Sink<E_IN> opWrapSink(Sink<Double> sink) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Base class for a stateless intermediate stage of a DoubleStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    abstract static class StatelessOp<E_IN> extends DoublePipeline<E_IN> {
+        /**
+         * Construct a new DoubleStream by appending a stateless intermediate
+         * operation to an existing stream.
+         *
+         * @param upstream the upstream pipeline stage
+         */
+        StatelessOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+    }
+
+    /**
+     * Base class for a stateful intermediate stage of a DoubleStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    abstract static class StatefulOp<E_IN> extends DoublePipeline<E_IN> {
+        /**
+         * Construct a new DoubleStream by appending a stateful intermediate
+         * operation to an existing stream.
+         *
+         * @param upstream the upstream pipeline stage
+         */
+        StatefulOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+
+        @Override
+        final boolean opIsStateful() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Factory for instances of a short-circuiting {@code TerminalOp} that searches
+ * for an element in a stream pipeline, and terminates when it finds one.
+ * Supported variants include find-first (find the first element in the
+ * encounter order) and find-any (find any element, may not be the first in
+ * encounter order.)
+ *
+ * @since 1.8
+ */
+final class FindOps {
+
+    private FindOps() { }
+
+    /**
+     * Constructs a {@code TerminalOp} for streams of objects.
+     *
+     * @param <T> the type of elements of the stream
+     * @param mustFindFirst whether the {@code TerminalOp} must produce the
+     *        first element in the encounter order
+     * @return a {@code TerminalOp} implementing the find operation
+     */
+    static <T> TerminalOp<T, Optional<T>> makeRef(boolean mustFindFirst) {
+        return new FindOp<T, Optional<T>>(mustFindFirst, Optional.<T>empty()) {
+            @Override
+            FindSink<T, Optional<T>> makeSink() {
+                return new FindSink<T, Optional<T>>() {
+                    T value;
+
+                    @Override
+                    public void accept(T t) {
+                        if (!hasValue) {
+                            hasValue = true;
+                            value = t;
+                        }
+                    }
+
+                    @Override
+                    Optional<T> get() {
+                        return hasValue ? Optional.of(value) : null;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} for streams of {@code int} values.
+     *
+     * @param mustFindFirst whether the {@code TerminalOp} must produce the
+     *        first element in the encounter order
+     * @return a {@code TerminalOp} implementing the find operation
+     */
+    static TerminalOp<Integer, OptionalInt> makeInt(boolean mustFindFirst) {
+        return new FindOp<Integer, OptionalInt>(mustFindFirst, OptionalInt.empty()) {
+            @Override
+            FindSink<Integer, OptionalInt> makeSink() {
+                return new FindSink<Integer, OptionalInt>() {
+                    int value;
+
+                    @Override
+                    public void accept(int t) {
+                        if (!hasValue) {
+                            hasValue = true;
+                            value = t;
+                        }
+                    }
+
+                    @Override
+                    OptionalInt get() {
+                        return hasValue ? OptionalInt.of(value) : null;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} for streams of {@code long} values.
+     *
+     * @param mustFindFirst whether the {@code TerminalOp} must produce the
+     *        first element in the encounter order
+     * @return a {@code TerminalOp} implementing the find operation
+     */
+    static TerminalOp<Long, OptionalLong> makeLong(boolean mustFindFirst) {
+        return new FindOp<Long, OptionalLong>(mustFindFirst, OptionalLong.empty()) {
+            @Override
+            FindSink<Long, OptionalLong> makeSink() {
+                return new FindSink<Long, OptionalLong>() {
+                    long value;
+
+                    @Override
+                    public void accept(long t) {
+                        if (!hasValue) {
+                            hasValue = true;
+                            value = t;
+                        }
+                    }
+
+                    @Override
+                    OptionalLong get() {
+                        return hasValue ? OptionalLong.of(value) : null;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} for streams of {@code double} values.
+     *
+     * @param mustFindFirst whether the {@code TerminalOp} must produce the
+     *        first element in the encounter order
+     * @return a {@code TerminalOp} implementing the find operation
+     */
+    static TerminalOp<Double, OptionalDouble> makeDouble(boolean mustFindFirst) {
+        return new FindOp<Double, OptionalDouble>(mustFindFirst, OptionalDouble.empty()) {
+            @Override
+            FindSink<Double, OptionalDouble> makeSink() {
+                return new FindSink<Double, OptionalDouble>() {
+                    double value;
+
+                    @Override
+                    public void accept(double t) {
+                        if (!hasValue) {
+                            hasValue = true;
+                            value = t;
+                        }
+                    }
+
+                    @Override
+                    OptionalDouble get() {
+                        return hasValue ? OptionalDouble.of(value) : null;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * A short-circuiting {@code TerminalOp} that searches for an element in a
+     * stream pipeline, and terminates when it finds one.  Implements both
+     * find-first (find the first element in the encounter order) and
+     * find-any (find any element, may not be the first in encounter order.)
+     *
+     * @param <T> the output type of the stream pipeline
+     * @param <O> the result type of the find operation, typically an optional
+     *        type
+     */
+    static abstract class FindOp<T, O> extends TerminalOp<T, O> {
+        final boolean mustFindFirst;
+        final O emptyValue;
+
+        /**
+         * Constructs a {@code FindOp}.
+         *
+         * @param mustFindFirst if true, must find the first element in
+         *        encounter order, otherwise can find any element
+         * @param emptyValue result value corresponding to "found nothing"
+         */
+        FindOp(boolean mustFindFirst, O emptyValue) {
+            this.mustFindFirst = mustFindFirst;
+            this.emptyValue = emptyValue;
+        }
+
+        /**
+         * Creates a sink recording the first element it accepts.
+         */
+        abstract FindSink<T, O> makeSink();
+
+        @Override
+        boolean isShortCircuit() {
+            return true;
+        }
+
+        @Override
+        <S> O evaluateSequential(AbstractPipeline<?, T, ?> helper,
+                                 Spliterator<S> spliterator) {
+            O result = helper.wrapAndCopyInto(makeSink(), spliterator, true).get();
+            return result != null ? result : emptyValue;
+        }
+
+        @Override
+        <P_IN> O evaluateParallel(AbstractPipeline<?, T, ?> helper,
+                                  Spliterator<P_IN> spliterator) {
+            FindSink<T, O> sink =
+                new FindTask<P_IN, T, O>(this, helper, spliterator).invoke();
+            O result = (sink == null) ? null : sink.get();
+            return result != null ? result : emptyValue;
+        }
+    }
+
+    /**
+     * Implementation of {@code Sink} which implements the find operation,
+     * recording the first element it accepts.  Subclasses record the element
+     * for the shape.
+     *
+     * @param <T> The type of input element
+     * @param <O> The result type, typically an optional type
+     */
+    static abstract class FindSink<T, O> extends Sink<T> {
+        boolean hasValue;
+
+        @Override
+        boolean cancellationRequested() {
+            return hasValue;
+        }
+
+        /**
+         * Returns the result describing the element found, or {@code null}
+         * if no element was accepted.
+         */
+        abstract O get();
+    }
+
+    /**
+     * {@code ForkJoinTask} implementing parallel short-circuiting search.  For
+     * find-any, once a leaf finds an element, tasks that have not yet started
+     * are cancelled.  For find-first, a leaf that finds an element cancels
+     * the tasks following it in encounter order, which could only find
+     * later elements, and the result of the leftmost leaf that found an
+     * element is kept.  Cancellation also bounds the splitting of an
+     * infinite source.
+     *
+     * @param <P_IN> Input element type to the stream pipeline
+     * @param <P_OUT> Output element type from the stream pipeline
+     * @param <O> Result type from the find operation
+     */
+    @SuppressWarnings("serial")
+    static final class FindTask<P_IN, P_OUT, O>
+            extends AbstractTask<P_IN, P_OUT, FindSink<P_OUT, O>,
+                                 FindTask<P_IN, P_OUT, O>> {
+        private final FindOp<P_OUT, O> op;
+        private final AtomicBoolean found;
+        private volatile boolean cancelled;
+
+        FindTask(FindOp<P_OUT, O> op,
+                 AbstractPipeline<?, P_OUT, ?> helper,
+                 Spliterator<P_IN> spliterator) {
+            super(helper, spliterator);
+            this.op = op;
+            this.found = new AtomicBoolean();
+        }
+
+        FindTask(FindTask<P_IN, P_OUT, O> parent, Spliterator<P_IN> spliterator) {
+            super(parent, spliterator);
+            this.op = parent.op;
+            this.found = parent.found;
+        }
+
+        @Override
+        protected FindTask<P_IN, P_OUT, O> makeChild(Spliterator<P_IN> spliterator) {
+            return new FindTask<P_IN, P_OUT, O>(this, spliterator);
+        }
+
+        @Override
+        protected boolean taskCanceled() {
+            if (!op.mustFindFirst)
+                return found.get();
+            for (FindTask<P_IN, P_OUT, O> t = this; t != null; t = t.parent) {
+                if (t.cancelled)
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected FindSink<P_OUT, O> doLeaf() {
+            FindSink<P_OUT, O> sink =
+                helper.wrapAndCopyInto(op.makeSink(), spliterator, true);
+            if (sink.hasValue) {
+                if (op.mustFindFirst)
+                    cancelLaterTasks();
+                else
+                    found.set(true);
+            }
+            return sink;
+        }
+
+        /**
+         * Cancels all tasks which succeed this one in the encounter order:
+         * the right sibling of each ancestor of which this task descends
+         * from the left child.
+         */
+        private void cancelLaterTasks() {
+            for (FindTask<P_IN, P_OUT, O> node = this, p = parent;
+                 p != null;
+                 node = p, p = p.parent) {
+                if (p.leftChild == node)
+                    p.rightChild.cancelled = true;
+            }
+        }
+
+        @Override
+        protected FindSink<P_OUT, O> combine(FindSink<P_OUT, O> left,
+                                             FindSink<P_OUT, O> right) {
+            return (left != null && left.hasValue) ? left : right;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Factory for creating instances of {@code TerminalOp} that perform an
+ * action for every element of a stream.  Supported variants include unordered
+ * traversal (elements are provided to the {@code Consumer} as soon as they are
+ * available), and ordered traversal (elements are provided to the
+ * {@code Consumer} in encounter order.)
+ *
+ * <p>Elements are provided to the {@code Consumer} on whatever thread and in
+ * whatever order they become available.  For ordered traversals, it is
+ * guaranteed that processing an element <em>happens-before</em> processing
+ * subsequent elements in the encounter order.
+ *
+ * <p>Exceptions occurring as a result of sending an element to the
+ * {@code Consumer} will be relayed to the caller and traversal will be
+ * prematurely terminated.
+ *
+ * @since 1.8
+ */
+final class ForEachOps {
+
+    private ForEachOps() { }
+
+    /**
+     * Constructs a {@code TerminalOp} that perform an action for every element
+     * of a stream.
+     *
+     * @param <T> the type of the stream elements
+     * @param action the {@code Consumer} that receives all elements of a
+     *        stream
+     * @param ordered whether an ordered traversal is requested
+     * @return the {@code TerminalOp} instance
+     */
+    static <T> TerminalOp<T, Void> makeRef(final Consumer<? super T> action,
+                                           boolean ordered) {
+        if (action == null)
+            throw new NullPointerException();
+        return new ForEachOp<T>(ordered) {
+            @Override
+            public void accept(T t) {
+                action.accept(t);
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that perform an action for every element
+     * of an {@code IntStream}.
+     *
+     * @param action the {@code IntConsumer} that receives all elements of a
+     *        stream
+     * @param ordered whether an ordered traversal is requested
+     * @return the {@code TerminalOp} instance
+     */
+    static TerminalOp<Integer, Void> makeInt(final IntConsumer action,
+                                             boolean ordered) {
+        if (action == null)
+            throw new NullPointerException();
+        return new ForEachOp<Integer>(ordered) {
+            @Override
+            public void accept(int t) {
+                action.accept(t);
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that perform an action for every element
+     * of an {@code LongStream}.
+     *
+     * @param action the {@code LongConsumer} that receives all elements of a
+     *        stream
+     * @param ordered whether an ordered traversal is requested
+     * @return the {@code TerminalOp} instance
+     */
+    static TerminalOp<Long, Void> makeLong(final LongConsumer action,
+                                           boolean ordered) {
+        if (action == null)
+            throw new NullPointerException();
+        return new ForEachOp<Long>(ordered) {
+            @Override
+            public void accept(long t) {
+                action.accept(t);
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that perform an action for every element
+     * of an {@code DoubleStream}.
+     *
+     * @param action the {@code DoubleConsumer} that receives all elements of a
+     *        stream
+     * @param ordered whether an ordered traversal is requested
+     * @return the {@code TerminalOp} instance
+     */
+    static TerminalOp<Double, Void> makeDouble(final DoubleConsumer action,
+                                               boolean ordered) {
+        if (action == null)
+            throw new NullPointerException();
+        return new ForEachOp<Double>(ordered) {
+            @Override
+            public void accept(double t) {
+                action.accept(t);
+            }
+        };
+    }
+
+    /**
+     * A {@code TerminalOp} that evaluates a stream pipeline and sends the
+     * output to itself as a {@code Sink}; it has no state, so a single
+     * instance receives the output of all parallel tasks.  Subclasses
+     * implement the {@code accept} method of the shape and invoke the
+     * action.
+     *
+     * <p>An ordered parallel evaluation first collects the output of the
+     * pipeline in parallel, in encounter order, and then passes it to the
+     * action in a single thread.
+     *
+     * @param <T> the output type of the stream pipeline
+     */
+    static abstract class ForEachOp<T> extends TerminalOp<T, Void> {
+        private final Sink<T> sink;
+        private final boolean ordered;
+
+        protected ForEachOp(boolean ordered) {
+            this.ordered = ordered;
+            this.sink = new Sink<T>() {
+                @Override
+                public void accept(T t) {
+                    ForEachOp.this.accept(t);
+                }
+
+                @Override
+                public void accept(int value) {
+                    ForEachOp.this.accept(value);
+                }
+
+                @Override
+                public void accept(long value) {
+                    ForEachOp.this.accept(value);
+                }
+
+                @Override
+                public void accept(double value) {
+                    ForEachOp.this.accept(value);
+                }
+            };
+        }
+
+        /** Accepts an element of a stream of objects. */
+        public void accept(T t) {
+            throw new IllegalStateException("called wrong accept method");
+        }
+
+        /** Accepts an element of an {@code IntStream}. */
+        public void accept(int value) {
+            throw new IllegalStateException("called wrong accept method");
+        }
+
+        /** Accepts an element of a {@code LongStream}. */
+        public void accept(long value) {
+            throw new IllegalStateException("called wrong accept method");
+        }
+
+        /** Accepts an element of a {@code DoubleStream}. */
+        public void accept(double value) {
+            throw new IllegalStateException("called wrong accept method");
+        }
+
+        @Override
+        <S> Void evaluateSequential(AbstractPipeline<?, T, ?> helper,
+                                    Spliterator<S> spliterator) {
+            helper.wrapAndCopyInto(sink, spliterator, false);
+            return null;
+        }
+
+        @Override
+        <S> Void evaluateParallel(AbstractPipeline<?, T, ?> helper,
+                                  Spliterator<S> spliterator) {
+            if (ordered)
+                Nodes.collect(helper, spliterator, true).copyInto(sink);
+            else
+                new ForEachTask<S, T>(helper, spliterator, sink).invoke();
+            return null;
+        }
+    }
+
+    /**
+     * A {@code ForkJoinTask} for performing a parallel for-each operation.
+     */
+    @SuppressWarnings("serial")
+    static final class ForEachTask<S, T>
+            extends AbstractTask<S, T, Void, ForEachTask<S, T>> {
+        private final Sink<T> sink;
+
+        ForEachTask(AbstractPipeline<?, T, ?> helper,
+                    Spliterator<S> spliterator,
+                    Sink<T> sink) {
+            super(helper, spliterator);
+            this.sink = sink;
+        }
+
+        ForEachTask(ForEachTask<S, T> parent, Spliterator<S> spliterator) {
+            super(parent, spliterator);
+            this.sink = parent.sink;
+        }
+
+        @Override
+        protected ForEachTask<S, T> makeChild(Spliterator<S> spliterator) {
+            return new ForEachTask<S, T>(this, spliterator);
+        }
+
+        @Override
+        protected Void doLeaf() {
+            helper.wrapAndCopyInto(sink, spliterator, false);
+            return null;
+        }
+
+        @Override
+        protected Void combine(Void left, Void right) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Abstract base class for an intermediate pipeline stage or pipeline source
+ * stage of an {@link IntStream}, whose elements are of type {@code int}.
+ *
+ * @param <E_IN> type of elements in the upstream source
+ * @since 1.8
+ */
+abstract class IntPipeline<E_IN>
+        extends AbstractPipeline<E_IN, Integer, IntStream>
+        implements IntStream {
+
+    /**
+     * Constructor for the head of a stream pipeline.
+     *
+     * @param source {@code Spliterator} describing the stream source
+     * @param parallel {@code true} if the pipeline is parallel
+     */
+    IntPipeline(Spliterator<?> source, boolean parallel) {
+        super(source, parallel);
+    }
+
+    /**
+     * Constructor for appending an intermediate operation onto an existing
+     * pipeline.
+     *
+     * @param upstream the upstream element source
+     */
+    IntPipeline(AbstractPipeline<?, E_IN, ?> upstream) {
+        super(upstream);
+    }
+
+    // Shape-specific methods
+
+    @Override
+    final StreamShape getOutputShape() {
+        return StreamShape.INT_VALUE;
+    }
+
+    @Override
+    final <P_IN> Spliterator<Integer> wrap(Spliterator<P_IN> spliterator,
+                                           boolean isParallel) {
+        return new StreamSpliterators.IntWrappingSpliterator<P_IN>(
+            this, spliterator, isParallel);
+    }
+
+    // BaseStream
+
+    @Override
+    public final Iterator<Integer> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public final Spliterator.OfInt spliterator() {
+        return (Spliterator.OfInt) spliteratorForStream();
+    }
+
+    // Stateless intermediate ops from IntStream
+
+    @Override
+    public final Stream<Integer> boxed() {
+        return mapToObj(new IntFunction<Integer>() {
+            public Integer apply(int value) {
+                return Integer.valueOf(value);
+            }
+        });
+    }
+
+    @Override
+    public final IntStream map(final IntUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Integer> sink) {
+                return new Sink.Chained<Integer, Integer>(sink) {
+                    @Override
+                    public void accept(int t) {
+                        downstream.accept(mapper.applyAsInt(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final <U> Stream<U> mapToObj(final IntFunction<? extends U> mapper) {
+        Objects.requireNonNull(mapper);
+        return new ReferencePipeline.StatelessOp<Integer, U>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<U> sink) {
+                return new Sink.Chained<Integer, U>(sink) {
+                    @Override
+                    public void accept(int t) {
+                        downstream.accept(mapper.apply(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final LongStream mapToLong(final IntToLongFunction mapper) {
+        Objects.requireNonNull(mapper);
+        return new LongPipeline.StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<Integer, Long>(sink) {
+                    @Override
+                    public void accept(int t) {
+                        downstream.accept(mapper.applyAsLong(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream mapToDouble(final IntToDoubleFunction mapper) {
+        Objects.requireNonNull(mapper);
+        return new DoublePipeline.StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Integer, Double>(sink) {
+                    @Override
+                    public void accept(int t) {
+                        downstream.accept(mapper.applyAsDouble(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final IntStream flatMap(final IntFunction<? extends IntStream> mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Integer> sink) {
+                return new Sink.Chained<Integer, Integer>(sink) {
+                    final IntConsumer pusher = new IntConsumer() {
+                        public void accept(int value) {
+                            downstream.accept(value);
+                        }
+                    };
+
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        IntStream result = mapper.apply(t);
+                        if (result != null)
+                            result.sequential().forEach(pusher);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final LongStream asLongStream() {
+        return new LongPipeline.StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<Integer, Long>(sink) {
+                    @Override
+                    public void accept(int t) {
+                        downstream.accept((long) t);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream asDoubleStream() {
+        return new DoublePipeline.StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Integer, Double>(sink) {
+                    @Override
+                    public void accept(int t) {
+                        downstream.accept((double) t);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final IntStream filter(final IntPredicate predicate) {
+        Objects.requireNonNull(predicate);
+        return new StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Integer> sink) {
+                return new Sink.Chained<Integer, Integer>(sink) {
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        if (predicate.test(t))
+                            downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final IntStream peek(final IntConsumer consumer) {
+        Objects.requireNonNull(consumer);
+        return new StatelessOp<Integer>(this) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Integer> sink) {
+                return new Sink.Chained<Integer, Integer>(sink) {
+                    @Override
+                    public void accept(int t) {
+                        consumer.accept(t);
+                        downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    // Stateful intermediate ops from IntStream
+
+    @Override
+    public final IntStream limit(long maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException(Long.toString(maxSize));
+        return SliceOps.makeInt(this, 0, maxSize);
+    }
+
+    @Override
+    public final IntStream skip(long startInclusive) {
+        if (startInclusive < 0)
+            throw new IllegalArgumentException(Long.toString(startInclusive));
+        if (startInclusive == 0)
+            return this;
+        else
+            return SliceOps.makeInt(this, startInclusive, -1);
+    }
+
+    @Override
+    public final IntStream sorted() {
+        return SortedOps.makeInt(this);
+    }
+
+    @Override
+    public final IntStream distinct() {
+        return DistinctOps.makeInt(this);
+    }
+
+    // Terminal ops from IntStream
+
+    @Override
+    public void forEach(IntConsumer action) {
+        evaluate(ForEachOps.makeInt(action, false));
+    }
+
+    @Override
+    public void forEachOrdered(IntConsumer action) {
+        evaluate(ForEachOps.makeInt(action, true));
+    }
+
+    @Override
+    public final int[] toArray() {
+        Nodes.Builder<Integer> builder = evaluate(Nodes.<Integer>collectOp());
+        return ((Nodes.IntBuilder) builder).asArray();
+    }
+
+    @Override
+    public final int sum() {
+        return reduce(0, new IntBinaryOperator() {
+            public int applyAsInt(int left, int right) {
+                return left + right;
+            }
+        });
+    }
+
+    @Override
+    public final OptionalInt min() {
+        return reduce(new IntBinaryOperator() {
+            public int applyAsInt(int left, int right) {
+                return Math.min(left, right);
+            }
+        });
+    }
+
+    @Override
+    public final OptionalInt max() {
+        return reduce(new IntBinaryOperator() {
+            public int applyAsInt(int left, int right) {
+                return Math.max(left, right);
+            }
+        });
+    }
+
+    @Override
+    public final OptionalDouble average() {
+        // avg[0] holds the count, avg[1] the sum
+        long[] avg = collect(new Supplier<long[]>() {
+            public long[] get() {
+                return new long[2];
+            }
+        }, new ObjIntConsumer<long[]>() {
+            public void accept(long[] ll, int i) {
+                ll[0]++;
+                ll[1] += i;
+            }
+        }, new BiConsumer<long[], long[]>() {
+            public void accept(long[] ll, long[] rr) {
+                ll[0] += rr[0];
+                ll[1] += rr[1];
+            }
+        });
+        return avg[0] > 0
+               ? OptionalDouble.of((double) avg[1] / avg[0])
+               : OptionalDouble.empty();
+    }
+
+    @Override
+    public final long count() {
+        return mapToLong(new IntToLongFunction() {
+            public long applyAsLong(int e) {
+                return 1L;
+            }
+        }).sum();
+    }
+
+    @Override
+    public final int reduce(int identity, IntBinaryOperator op) {
+        return evaluate(ReduceOps.makeInt(identity, op));
+    }
+
+    @Override
+    public final OptionalInt reduce(IntBinaryOperator op) {
+        return evaluate(ReduceOps.makeInt(op));
+    }
+
+    @Override
+    public final <R> R collect(Supplier<R> resultFactory,
+                               ObjIntConsumer<R> accumulator,
+                               final BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(combiner);
+        BinaryOperator<R> operator = new BinaryOperator<R>() {
+            public R apply(R left, R right) {
+                combiner.accept(left, right);
+                return left;
+            }
+        };
+        return evaluate(ReduceOps.makeInt(resultFactory, accumulator, operator));
+    }
+
+    @Override
+    public final boolean anyMatch(IntPredicate predicate) {
+        return evaluate(MatchOps.makeInt(predicate, MatchOps.MatchKind.ANY));
+    }
+
+    @Override
+    public final boolean allMatch(IntPredicate predicate) {
+        return evaluate(MatchOps.makeInt(predicate, MatchOps.MatchKind.ALL));
+    }
+
+    @Override
+    public final boolean noneMatch(IntPredicate predicate) {
+        return evaluate(MatchOps.makeInt(predicate, MatchOps.MatchKind.NONE));
+    }
+
+    @Override
+    public final OptionalInt findFirst() {
+        return evaluate(FindOps.makeInt(true));
+    }
+
+    @Override
+    public final OptionalInt findAny() {
+        return evaluate(FindOps.makeInt(false));
+    }
+
+    //
+
+    /**
+     * Source stage of an IntStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    static class Head<E_IN> extends IntPipeline<E_IN> {
+        /**
+         * Constructor for the source stage of an IntStream.
+         *
+         * @param source {@code Spliterator} describing the stream source
+         * @param parallel {@code true} if the pipeline is parallel
+         */
+        Head(Spliterator<?> source, boolean parallel) {
+            super(source, parallel);
+        }
+
+        @Override
+        final Sink<E_IN> opWrapSink(Sink<Integer> sink) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Base class for a stateless intermediate stage of an IntStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    abstract static class StatelessOp<E_IN> extends IntPipeline<E_IN> {
+        /**
+         * Construct a new IntStream by appending a stateless intermediate
+         * operation to an existing stream.
+         *
+         * @param upstream the upstream pipeline stage
+         */
+        StatelessOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+    }
+
+    /**
+     * Base class for a stateful intermediate stage of an IntStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    abstract static class StatefulOp<E_IN> extends IntPipeline<E_IN> {
+        /**
+         * Construct a new IntStream by appending a stateful intermediate
+         * operation to an existing stream.
+         *
+         * @param upstream the upstream pipeline stage
+         */
+        StatefulOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+
+        @Override
+        final boolean opIsStateful() {
+            return true;
+        }
+    }
+}
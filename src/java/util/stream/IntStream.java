@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Iterator;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A sequence of primitive {@code int} elements supporting sequential and
+ * parallel bulk operations.  Streams support lazy intermediate operations
+ * (transforming a stream to another stream) such as {@code filter} and
+ * {@code map}, and terminal operations (consuming the contents of a stream
+ * to produce a result or side-effect), such as {@code forEach},
+ * {@code findFirst}, and {@code iterator}.  Once an operation has been
+ * performed on a stream, it is considered <em>consumed</em> and no longer
+ * usable for other operations.
+ *
+ * <p>This is the {@code int} primitive specialization of {@link Stream};
+ * it carries its elements without boxing.  Its {@code iterator()} method
+ * boxes each element to {@code Integer}.
+ *
+ * @since 1.8
+ * @see <a href="package-summary.html">java.util.stream</a>
+ */
+public interface IntStream extends BaseStream<Integer, IntStream> {
+
+    /**
+     * Returns a stream consisting of the elements of this stream that match
+     * the given predicate.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @param predicate a non-interfering, stateless predicate to apply to
+     *        each element to determine if it should be included
+     * @return the new stream
+     */
+    IntStream filter(IntPredicate predicate);
+
+    /**
+     * Returns a stream consisting of the results of applying the given
+     * function to the elements of this stream.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @param mapper a non-interfering, stateless function to apply to each
+     *        element
+     * @return the new stream
+     */
+    IntStream map(IntUnaryOperator mapper);
+
+    /**
+     * Returns an object-valued {@code Stream} consisting of the results of
+     * applying the given function to the elements of this stream.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @param <U> the element type of the new stream
+     * @param mapper a non-interfering, stateless function to apply to each
+     *        element
+     * @return the new stream
+     */
+    <U> Stream<U> mapToObj(IntFunction<? extends U> mapper);
+
+    /**
+     * Returns a {@code LongStream} consisting of the results of applying the
+     * given function to the elements of this stream.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @param mapper a non-interfering, stateless function to apply to each
+     *        element
+     * @return the new stream
+     */
+    LongStream mapToLong(IntToLongFunction mapper);
+
+    /**
+     * Returns a {@code DoubleStream} consisting of the results of applying the
+     * given function to the elements of this stream.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @param mapper a non-interfering, stateless function to apply to each
+     *        element
+     * @return the new stream
+     */
+    DoubleStream mapToDouble(IntToDoubleFunction mapper);
+
+    /**
+     * Returns a stream consisting of the results of replacing each element of
+     * this stream with the contents of the stream produced by applying the
+     * provided mapping function to each element.  If the result of the mapping
+     * function is {@code null}, this is treated as if the result is an empty
+     * stream.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @param mapper a non-interfering, stateless function to apply to
+     *        each element which produces {@code IntStream} of new values
+     * @return the new stream
+     */
+    IntStream flatMap(IntFunction<? extends IntStream> mapper);
+
+    /**
+     * Returns a stream consisting of the distinct elements of this stream.
+     *
+     * <p>This is a stateful intermediate operation.
+     *
+     * @return the new stream
+     */
+    IntStream distinct();
+
+    /**
+     * Returns a stream consisting of the elements of this stream in sorted
+     * order.
+     *
+     * <p>This is a stateful intermediate operation.
+     *
+     * @return the new stream
+     */
+    IntStream sorted();
+
+    /**
+     * Returns a stream consisting of the elements of this stream, additionally
+     * performing the provided action on each element as elements are consumed
+     * from the resulting stream.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @param consumer a non-interfering action to perform on the elements as
+     *        they are consumed from the stream
+     * @return the new stream
+     */
+    IntStream peek(IntConsumer consumer);
+
+    /**
+     * Returns a stream consisting of the elements of this stream, truncated
+     * to be no longer than {@code maxSize} in length.
+     *
+     * <p>This is a short-circuiting stateful intermediate operation.
+     *
+     * @param maxSize the number of elements the stream should be limited to
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxSize} is negative
+     */
+    IntStream limit(long maxSize);
+
+    /**
+     * Returns a stream consisting of the remaining elements of this stream
+     * after discarding the first {@code startInclusive} elements of the stream.
+     * If this stream contains fewer than {@code startInclusive} elements then an
+     * empty stream will be returned.
+     *
+     * <p>This is a stateful intermediate operation.
+     *
+     * @param startInclusive the number of leading elements to skip
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code startInclusive} is negative
+     */
+    IntStream skip(long startInclusive);
+
+    /**
+     * Returns a {@code LongStream} consisting of the elements of this stream,
+     * converted to {@code long}.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @return a {@code LongStream} consisting of the elements of this stream,
+     *         converted to {@code long}
+     */
+    LongStream asLongStream();
+
+    /**
+     * Returns a {@code DoubleStream} consisting of the elements of this stream,
+     * converted to {@code double}.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @return a {@code DoubleStream} consisting of the elements of this stream,
+     *         converted to {@code double}
+     */
+    DoubleStream asDoubleStream();
+
+    /**
+     * Returns a {@code Stream} consisting of the elements of this stream,
+     * each boxed to {@code Integer}.
+     *
+     * <p>This is an intermediate operation.
+     *
+     * @return a {@code Stream} consisting of the elements of this stream,
+     *         each boxed to {@code Integer}
+     */
+    Stream<Integer> boxed();
+
+    /**
+     * Performs an action for each element of this stream.
+     *
+     * <p>This is a terminal operation.
+     *
+     * <p>For parallel stream pipelines, this operation does <em>not</em>
+     * guarantee to respect the encounter order of the stream, as doing so
+     * would sacrifice the benefit of parallelism.  For any given element, the
+     * action may be performed at whatever time and in whatever thread the
+     * library chooses.  If the action accesses shared state, it is
+     * responsible for providing the required synchronization.
+     *
+     * @param action a non-interfering action to perform on the elements
+     */
+    void forEach(IntConsumer action);
+
+    /**
+     * Performs an action for each element of this stream, guaranteeing that
+     * each element is processed in encounter order for streams that have a
+     * defined encounter order.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @param action a non-interfering action to perform on the elements
+     * @see #forEach(IntConsumer)
+     */
+    void forEachOrdered(IntConsumer action);
+
+    /**
+     * Returns an array containing the elements of this stream.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return an array containing the elements of this stream
+     */
+    int[] toArray();
+
+    /**
+     * Performs a reduction on the elements of this stream, using the provided
+     * identity value and an associative accumulation function, and returns the
+     * reduced value.  This is equivalent to:
+     * <pre>{@code
+     *     int result = identity;
+     *     for (int element : this stream)
+     *         result = accumulator.apply(result, element)
+     *     return result;
+     * }</pre>
+     *
+     * but is not constrained to execute sequentially.
+     *
+     * <p>The {@code identity} value must be an identity for the accumulator
+     * function, and the {@code accumulator} function must be an associative
+     * function.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @param identity the identity value for the accumulating function
+     * @param op an associative non-interfering, stateless function for
+     *        combining two values
+     * @return the result of the reduction
+     * @see #sum()
+     * @see #min()
+     * @see #max()
+     * @see #average()
+     */
+    int reduce(int identity, IntBinaryOperator op);
+
+    /**
+     * Performs a reduction on the elements of this stream, using an
+     * associative accumulation function, and returns an {@code OptionalInt}
+     * describing the reduced value, if any.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @param op an associative non-interfering, stateless function for
+     *        combining two values
+     * @return the result of the reduction
+     * @see #reduce(int, IntBinaryOperator)
+     */
+    OptionalInt reduce(IntBinaryOperator op);
+
+    /**
+     * Performs a mutable reduction operation on the elements of this stream.
+     * A mutable reduction is one in which the reduced value is a mutable value
+     * holder, such as an {@code ArrayList}, and elements are incorporated by
+     * updating the state of the result, rather than by replacing the result.
+     * This produces a result equivalent to:
+     * <pre>{@code
+     *     R result = resultFactory.get();
+     *     for (int element : this stream)
+     *         accumulator.accept(result, element);
+     *     return result;
+     * }</pre>
+     *
+     * <p>Like {@link #reduce(int, IntBinaryOperator)}, {@code collect}
+     * operations can be parallelized without requiring additional
+     * synchronization.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @param <R> type of the result
+     * @param resultFactory a function that creates a new result container.
+     *        For a parallel execution, this function may be called
+     *        multiple times and must return a fresh value each time.
+     * @param accumulator an associative non-interfering, stateless function
+     *        for incorporating an additional element into a result
+     * @param combiner an associative non-interfering, stateless function
+     *        for combining two values, which must be compatible with the
+     *        accumulator function
+     * @return the result of the reduction
+     * @see Stream#collect(Supplier, BiConsumer, BiConsumer)
+     */
+    <R> R collect(Supplier<R> resultFactory,
+                  ObjIntConsumer<R> accumulator,
+                  BiConsumer<R, R> combiner);
+
+    /**
+     * Returns the sum of elements in this stream.  This is a special case
+     * of a reduction.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return the sum of elements in this stream
+     */
+    int sum();
+
+    /**
+     * Returns an {@code OptionalInt} describing the minimum element of this
+     * stream, or an empty optional if this stream is empty.  This is a special
+     * case of a reduction.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return an {@code OptionalInt} containing the minimum element of this
+     *         stream, or an empty {@code OptionalInt} if the stream is empty
+     */
+    OptionalInt min();
+
+    /**
+     * Returns an {@code OptionalInt} describing the maximum element of this
+     * stream, or an empty optional if this stream is empty.  This is a special
+     * case of a reduction.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return an {@code OptionalInt} containing the maximum element of this
+     *         stream, or an empty {@code OptionalInt} if the stream is empty
+     */
+    OptionalInt max();
+
+    /**
+     * Returns the count of elements in this stream.  This is a special case of
+     * a reduction.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return the count of elements in this stream
+     */
+    long count();
+
+    /**
+     * Returns an {@code OptionalDouble} describing the average of elements of
+     * this stream, or an empty optional if this stream is empty.  This is a
+     * special case of a reduction.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return an {@code OptionalDouble} containing the average element of this
+     *         stream, or an empty optional if the stream is empty
+     */
+    OptionalDouble average();
+
+    /**
+     * Returns whether any elements of this stream match the provided
+     * predicate.  May not evaluate the predicate on all elements if not
+     * necessary for determining the result.
+     *
+     * <p>This is a short-circuiting terminal operation.
+     *
+     * @param predicate a non-interfering, stateless predicate to apply to
+     *        elements of this stream
+     * @return {@code true} if any elements of the stream match the provided
+     *         predicate otherwise {@code false}
+     */
+    boolean anyMatch(IntPredicate predicate);
+
+    /**
+     * Returns whether all elements of this stream match the provided
+     * predicate.  May not evaluate the predicate on all elements if not
+     * necessary for determining the result.
+     *
+     * <p>This is a short-circuiting terminal operation.
+     *
+     * @param predicate a non-interfering, stateless predicate to apply to
+     *        elements of this stream
+     * @return {@code true} if all elements of the stream match the provided
+     *         predicate otherwise {@code false}
+     */
+    boolean allMatch(IntPredicate predicate);
+
+    /**
+     * Returns whether no elements of this stream match the provided
+     * predicate.  May not evaluate the predicate on all elements if not
+     * necessary for determining the result.
+     *
+     * <p>This is a short-circuiting terminal operation.
+     *
+     * @param predicate a non-interfering, stateless predicate to apply to
+     *        elements of this stream
+     * @return {@code true} if none elements of the stream match the provided
+     *         predicate otherwise {@code false}
+     */
+    boolean noneMatch(IntPredicate predicate);
+
+    /**
+     * Returns an {@link OptionalInt} describing the first element of this
+     * stream (in the encounter order), or an empty {@code OptionalInt} if the
+     * stream is empty.  If the stream has no encounter order, then any element
+     * may be returned.
+     *
+     * <p>This is a short-circuiting terminal operation.
+     *
+     * @return an {@code OptionalInt} describing the first element of this stream,
+     *         or an empty {@code OptionalInt} if the stream is empty
+     */
+    OptionalInt findFirst();
+
+    /**
+     * Returns an {@link OptionalInt} describing some element of the stream,
+     * or an empty {@code OptionalInt} if the stream is empty.
+     *
+     * <p>This is a short-circuiting terminal operation.
+     *
+     * <p>The behavior of this operation is explicitly nondeterministic; it is
+     * free to select any element in the stream.  This is to allow for maximal
+     * performance in parallel operations; the cost is that multiple invocations
+     * on the same source may not return the same result.  (If the first element
+     * in the encounter order is desired, use {@link #findFirst()} instead.)
+     *
+     * @return an {@code OptionalInt} describing some element of this stream, or
+     *         an empty {@code OptionalInt} if the stream is empty
+     * @see #findFirst()
+     */
+    OptionalInt findAny();
+
+    /**
+     * Returns an iterator for the elements of this stream, each boxed to
+     * {@code Integer}.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return the element iterator for this stream
+     */
+    Iterator<Integer> iterator();
+
+    /**
+     * Returns a spliterator for the elements of this stream.
+     *
+     * <p>This is a terminal operation.
+     *
+     * @return the element spliterator for this stream
+     */
+    Spliterator.OfInt spliterator();
+}
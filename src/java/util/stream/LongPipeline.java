@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Abstract base class for an intermediate pipeline stage or pipeline source
+ * stage of a {@link LongStream}, whose elements are of type {@code long}.
+ *
+ * @param <E_IN> type of elements in the upstream source
+ * @since 1.8
+ */
+abstract class LongPipeline<E_IN>
+        extends AbstractPipeline<E_IN, Long, LongStream>
+        implements LongStream {
+
+    /**
+     * Constructor for the head of a stream pipeline.
+     *
+     * @param source {@code Spliterator} describing the stream source
+     * @param parallel {@code true} if the pipeline is parallel
+     */
+    LongPipeline(Spliterator<?> source, boolean parallel) {
+        super(source, parallel);
+    }
+
+    /**
+     * Constructor for appending an intermediate operation onto an existing
+     * pipeline.
+     *
+     * @param upstream the upstream element source
+     */
+    LongPipeline(AbstractPipeline<?, E_IN, ?> upstream) {
+        super(upstream);
+    }
+
+    // Shape-specific methods
+
+    @Override
+    final StreamShape getOutputShape() {
+        return StreamShape.LONG_VALUE;
+    }
+
+    @Override
+    final <P_IN> Spliterator<Long> wrap(Spliterator<P_IN> spliterator,
+                                        boolean isParallel) {
+        return new StreamSpliterators.LongWrappingSpliterator<P_IN>(
+            this, spliterator, isParallel);
+    }
+
+    // BaseStream
+
+    @Override
+    public final Iterator<Long> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public final Spliterator.OfLong spliterator() {
+        return (Spliterator.OfLong) spliteratorForStream();
+    }
+
+    // Stateless intermediate ops from LongStream
+
+    @Override
+    public final Stream<Long> boxed() {
+        return mapToObj(new LongFunction<Long>() {
+            public Long apply(long value) {
+                return Long.valueOf(value);
+            }
+        });
+    }
+
+    @Override
+    public final LongStream map(final LongUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<Long>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<Long, Long>(sink) {
+                    @Override
+                    public void accept(long t) {
+                        downstream.accept(mapper.applyAsLong(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final <U> Stream<U> mapToObj(final LongFunction<? extends U> mapper) {
+        Objects.requireNonNull(mapper);
+        return new ReferencePipeline.StatelessOp<Long, U>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<U> sink) {
+                return new Sink.Chained<Long, U>(sink) {
+                    @Override
+                    public void accept(long t) {
+                        downstream.accept(mapper.apply(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final IntStream mapToInt(final LongToIntFunction mapper) {
+        Objects.requireNonNull(mapper);
+        return new IntPipeline.StatelessOp<Long>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Integer> sink) {
+                return new Sink.Chained<Long, Integer>(sink) {
+                    @Override
+                    public void accept(long t) {
+                        downstream.accept(mapper.applyAsInt(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream mapToDouble(final LongToDoubleFunction mapper) {
+        Objects.requireNonNull(mapper);
+        return new DoublePipeline.StatelessOp<Long>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Long, Double>(sink) {
+                    @Override
+                    public void accept(long t) {
+                        downstream.accept(mapper.applyAsDouble(t));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final LongStream flatMap(final LongFunction<? extends LongStream> mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<Long>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<Long, Long>(sink) {
+                    final LongConsumer pusher = new LongConsumer() {
+                        public void accept(long value) {
+                            downstream.accept(value);
+                        }
+                    };
+
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        LongStream result = mapper.apply(t);
+                        if (result != null)
+                            result.sequential().forEach(pusher);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream asDoubleStream() {
+        return new DoublePipeline.StatelessOp<Long>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<Long, Double>(sink) {
+                    @Override
+                    public void accept(long t) {
+                        downstream.accept((double) t);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final LongStream filter(final LongPredicate predicate) {
+        Objects.requireNonNull(predicate);
+        return new StatelessOp<Long>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<Long, Long>(sink) {
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        if (predicate.test(t))
+                            downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final LongStream peek(final LongConsumer consumer) {
+        Objects.requireNonNull(consumer);
+        return new StatelessOp<Long>(this) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<Long, Long>(sink) {
+                    @Override
+                    public void accept(long t) {
+                        consumer.accept(t);
+                        downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    // Stateful intermediate ops from LongStream
+
+    @Override
+    public final LongStream limit(long maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException(Long.toString(maxSize));
+        return SliceOps.makeLong(this, 0, maxSize);
+    }
+
+    @Override
+    public final LongStream skip(long startInclusive) {
+        if (startInclusive < 0)
+            throw new IllegalArgumentException(Long.toString(startInclusive));
+        if (startInclusive == 0)
+            return this;
+        else
+            return SliceOps.makeLong(this, startInclusive, -1);
+    }
+
+    @Override
+    public final LongStream sorted() {
+        return SortedOps.makeLong(this);
+    }
+
+    @Override
+    public final LongStream distinct() {
+        return DistinctOps.makeLong(this);
+    }
+
+    // Terminal ops from LongStream
+
+    @Override
+    public void forEach(LongConsumer action) {
+        evaluate(ForEachOps.makeLong(action, false));
+    }
+
+    @Override
+    public void forEachOrdered(LongConsumer action) {
+        evaluate(ForEachOps.makeLong(action, true));
+    }
+
+    @Override
+    public final long[] toArray() {
+        Nodes.Builder<Long> builder = evaluate(Nodes.<Long>collectOp());
+        return ((Nodes.LongBuilder) builder).asArray();
+    }
+
+    @Override
+    public final long sum() {
+        return reduce(0, new LongBinaryOperator() {
+            public long applyAsLong(long left, long right) {
+                return left + right;
+            }
+        });
+    }
+
+    @Override
+    public final OptionalLong min() {
+        return reduce(new LongBinaryOperator() {
+            public long applyAsLong(long left, long right) {
+                return Math.min(left, right);
+            }
+        });
+    }
+
+    @Override
+    public final OptionalLong max() {
+        return reduce(new LongBinaryOperator() {
+            public long applyAsLong(long left, long right) {
+                return Math.max(left, right);
+            }
+        });
+    }
+
+    @Override
+    public final OptionalDouble average() {
+        // avg[0] holds the count, avg[1] the sum
+        long[] avg = collect(new Supplier<long[]>() {
+            public long[] get() {
+                return new long[2];
+            }
+        }, new ObjLongConsumer<long[]>() {
+            public void accept(long[] ll, long i) {
+                ll[0]++;
+                ll[1] += i;
+            }
+        }, new BiConsumer<long[], long[]>() {
+            public void accept(long[] ll, long[] rr) {
+                ll[0] += rr[0];
+                ll[1] += rr[1];
+            }
+        });
+        return avg[0] > 0
+               ? OptionalDouble.of((double) avg[1] / avg[0])
+               : OptionalDouble.empty();
+    }
+
+    @Override
+    public final long count() {
+        return map(new LongUnaryOperator() {
+            public long applyAsLong(long e) {
+                return 1L;
+            }
+        }).sum();
+    }
+
+    @Override
+    public final long reduce(long identity, LongBinaryOperator op) {
+        return evaluate(ReduceOps.makeLong(identity, op));
+    }
+
+    @Override
+    public final OptionalLong reduce(LongBinaryOperator op) {
+        return evaluate(ReduceOps.makeLong(op));
+    }
+
+    @Override
+    public final <R> R collect(Supplier<R> resultFactory,
+                               ObjLongConsumer<R> accumulator,
+                               final BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(combiner);
+        BinaryOperator<R> operator = new BinaryOperator<R>() {
+            public R apply(R left, R right) {
+                combiner.accept(left, right);
+                return left;
+            }
+        };
+        return evaluate(ReduceOps.makeLong(resultFactory, accumulator, operator));
+    }
+
+    @Override
+    public final boolean anyMatch(LongPredicate predicate) {
+        return evaluate(MatchOps.makeLong(predicate, MatchOps.MatchKind.ANY));
+    }
+
+    @Override
+    public final boolean allMatch(LongPredicate predicate) {
+        return evaluate(MatchOps.makeLong(predicate, MatchOps.MatchKind.ALL));
+    }
+
+    @Override
+    public final boolean noneMatch(LongPredicate predicate) {
+        return evaluate(MatchOps.makeLong(predicate, MatchOps.MatchKind.NONE));
+    }
+
+    @Override
+    public final OptionalLong findFirst() {
+        return evaluate(FindOps.makeLong(true));
+    }
+
+    @Override
+    public final OptionalLong findAny() {
+        return evaluate(FindOps.makeLong(false));
+    }
+
+    //
+
+    /**
+     * Source stage of a LongStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    static class Head<E_IN> extends LongPipeline<E_IN> {
+        /**
+         * Constructor for the source stage of a LongStream.
+         *
+         * @param source {@code Spliterator} describing the stream source
+         * @param parallel {@code true} if the pipeline is parallel
+         */
+        Head(Spliterator<?> source, boolean parallel) {
+            super(source, parallel);
+        }
+
+        @Override
+        final Sink<E_IN> opWrapSink(Sink<Long> sink) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Base class for a stateless intermediate stage of a LongStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    abstract static class StatelessOp<E_IN> extends LongPipeline<E_IN> {
+        /**
+         * Construct a new LongStream by appending a stateless intermediate
+         * operation to an existing stream.
+         *
+         * @param upstream the upstream pipeline stage
+         */
+        StatelessOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+    }
+
+    /**
+     * Base class for a stateful intermediate stage of a LongStream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @since 1.8
+     */
+    abstract static class StatefulOp<E_IN> extends LongPipeline<E_IN> {
+        /**
+         * Construct a new LongStream by appending a stateful intermediate
+         * operation to an existing stream.
+         *
+         * @param upstream the upstream pipeline stage
+         */
+        StatefulOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+
+        @Override
+        final boolean opIsStateful() {
+            return true;
+        }
+    }
+}
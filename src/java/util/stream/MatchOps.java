@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Factory for instances of a short-circuiting {@code TerminalOp} that implement
+ * quantified predicate matching on the elements of a stream. Supported variants
+ * include match-all, match-any, and match-none.
+ *
+ * @since 1.8
+ */
+final class MatchOps {
+
+    private MatchOps() { }
+
+    /**
+     * Enum describing quantified match options -- all match, any match, none
+     * match.
+     */
+    enum MatchKind {
+        /** Do any elements match the predicate? */
+        ANY(true, true),
+
+        /** Do all elements match the predicate? */
+        ALL(false, false),
+
+        /** Do no elements match the predicate? */
+        NONE(true, false);
+
+        private final boolean stopOnPredicateMatches;
+        private final boolean shortCircuitResult;
+
+        private MatchKind(boolean stopOnPredicateMatches,
+                          boolean shortCircuitResult) {
+            this.stopOnPredicateMatches = stopOnPredicateMatches;
+            this.shortCircuitResult = shortCircuitResult;
+        }
+    }
+
+    /**
+     * Constructs a quantified predicate matcher for a Stream.
+     *
+     * @param <T> the type of stream elements
+     * @param predicate the {@code Predicate} to apply to stream elements
+     * @param matchKind the kind of quantified match (all, any, none)
+     * @return a {@code TerminalOp} implementing the desired quantified match
+     *         criteria
+     */
+    static <T> TerminalOp<T, Boolean> makeRef(final Predicate<? super T> predicate,
+                                              final MatchKind matchKind) {
+        if (predicate == null || matchKind == null)
+            throw new NullPointerException();
+        return new MatchOp<T>(matchKind) {
+            @Override
+            MatchSink<T> makeSink() {
+                return new MatchSink<T>(matchKind) {
+                    @Override
+                    public void accept(T t) {
+                        if (!stop &&
+                            predicate.test(t) == matchKind.stopOnPredicateMatches) {
+                            stop = true;
+                            value = matchKind.shortCircuitResult;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Constructs a quantified predicate matcher for an {@code IntStream}.
+     *
+     * @param predicate the {@code IntPredicate} to apply to stream elements
+     * @param matchKind the kind of quantified match (all, any, none)
+     * @return a {@code TerminalOp} implementing the desired quantified match
+     *         criteria
+     */
+    static TerminalOp<Integer, Boolean> makeInt(final IntPredicate predicate,
+                                                final MatchKind matchKind) {
+        if (predicate == null || matchKind == null)
+            throw new NullPointerException();
+        return new MatchOp<Integer>(matchKind) {
+            @Override
+            MatchSink<Integer> makeSink() {
+                return new MatchSink<Integer>(matchKind) {
+                    @Override
+                    public void accept(int t) {
+                        if (!stop &&
+                            predicate.test(t) == matchKind.stopOnPredicateMatches) {
+                            stop = true;
+                            value = matchKind.shortCircuitResult;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Constructs a quantified predicate matcher for an {@code LongStream}.
+     *
+     * @param predicate the {@code LongPredicate} to apply to stream elements
+     * @param matchKind the kind of quantified match (all, any, none)
+     * @return a {@code TerminalOp} implementing the desired quantified match
+     *         criteria
+     */
+    static TerminalOp<Long, Boolean> makeLong(final LongPredicate predicate,
+                                              final MatchKind matchKind) {
+        if (predicate == null || matchKind == null)
+            throw new NullPointerException();
+        return new MatchOp<Long>(matchKind) {
+            @Override
+            MatchSink<Long> makeSink() {
+                return new MatchSink<Long>(matchKind) {
+                    @Override
+                    public void accept(long t) {
+                        if (!stop &&
+                            predicate.test(t) == matchKind.stopOnPredicateMatches) {
+                            stop = true;
+                            value = matchKind.shortCircuitResult;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Constructs a quantified predicate matcher for an {@code DoubleStream}.
+     *
+     * @param predicate the {@code DoublePredicate} to apply to stream elements
+     * @param matchKind the kind of quantified match (all, any, none)
+     * @return a {@code TerminalOp} implementing the desired quantified match
+     *         criteria
+     */
+    static TerminalOp<Double, Boolean> makeDouble(final DoublePredicate predicate,
+                                                  final MatchKind matchKind) {
+        if (predicate == null || matchKind == null)
+            throw new NullPointerException();
+        return new MatchOp<Double>(matchKind) {
+            @Override
+            MatchSink<Double> makeSink() {
+                return new MatchSink<Double>(matchKind) {
+                    @Override
+                    public void accept(double t) {
+                        if (!stop &&
+                            predicate.test(t) == matchKind.stopOnPredicateMatches) {
+                            stop = true;
+                            value = matchKind.shortCircuitResult;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * A short-circuiting {@code TerminalOp} that evaluates a predicate on the
+     * elements of a stream and determines whether all, any or none of those
+     * elements match the predicate.
+     *
+     * @param <T> the output type of the stream pipeline
+     */
+    static abstract class MatchOp<T> extends TerminalOp<T, Boolean> {
+        final MatchKind matchKind;
+
+        MatchOp(MatchKind matchKind) {
+            this.matchKind = matchKind;
+        }
+
+        /**
+         * Creates a sink evaluating the predicate for this operation.
+         */
+        abstract MatchSink<T> makeSink();
+
+        @Override
+        boolean isShortCircuit() {
+            return true;
+        }
+
+        @Override
+        <S> Boolean evaluateSequential(AbstractPipeline<?, T, ?> helper,
+                                       Spliterator<S> spliterator) {
+            return helper.wrapAndCopyInto(makeSink(), spliterator, true).value;
+        }
+
+        @Override
+        <S> Boolean evaluateParallel(AbstractPipeline<?, T, ?> helper,
+                                     Spliterator<S> spliterator) {
+            return new MatchTask<S, T>(this, helper, spliterator).invoke();
+        }
+    }
+
+    /**
+     * Boolean specific terminal sink to avoid the boxing costs when returning
+     * results.  Subclasses implement the shape-specific functionality.
+     *
+     * @param <T> The output type of the stream pipeline
+     */
+    static abstract class MatchSink<T> extends Sink<T> {
+        boolean stop;
+        boolean value;
+
+        MatchSink(MatchKind matchKind) {
+            value = !matchKind.shortCircuitResult;
+        }
+
+        @Override
+        boolean cancellationRequested() {
+            return stop;
+        }
+    }
+
+    /**
+     * ForkJoinTask implementation to implement a parallel short-circuiting
+     * quantified match.  Once a leaf finds the short-circuit result, tasks
+     * that have not yet started are cancelled.
+     *
+     * @param <P_IN> the type of source elements for the pipeline
+     * @param <P_OUT> the type of output elements for the pipeline
+     */
+    @SuppressWarnings("serial")
+    static final class MatchTask<P_IN, P_OUT>
+            extends AbstractTask<P_IN, P_OUT, Boolean, MatchTask<P_IN, P_OUT>> {
+        private final MatchOp<P_OUT> op;
+        private final AtomicBoolean matched;
+
+        MatchTask(MatchOp<P_OUT> op, AbstractPipeline<?, P_OUT, ?> helper,
+                  Spliterator<P_IN> spliterator) {
+            super(helper, spliterator);
+            this.op = op;
+            this.matched = new AtomicBoolean();
+        }
+
+        MatchTask(MatchTask<P_IN, P_OUT> parent, Spliterator<P_IN> spliterator) {
+            super(parent, spliterator);
+            this.op = parent.op;
+            this.matched = parent.matched;
+        }
+
+        @Override
+        protected MatchTask<P_IN, P_OUT> makeChild(Spliterator<P_IN> spliterator) {
+            return new MatchTask<P_IN, P_OUT>(this, spliterator);
+        }
+
+        @Override
+        protected boolean taskCanceled() {
+            return matched.get();
+        }
+
+        @Override
+        protected Boolean getEmptyResult() {
+            return op.matchKind.shortCircuitResult;
+        }
+
+        @Override
+        protected Boolean doLeaf() {
+            boolean b = helper.wrapAndCopyInto(op.makeSink(), spliterator, true).value;
+            if (b == op.matchKind.shortCircuitResult)
+                matched.set(true);
+            return b;
+        }
+
+        @Override
+        protected Boolean combine(Boolean left, Boolean right) {
+            return (left.booleanValue() == op.matchKind.shortCircuitResult)
+                   ? left : right;
+        }
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntFunction;
+
+/**
+ * Growable buffers holding the elements produced by a pipeline, and the
+ * operations that evaluate a pipeline into one.
+ *
+ * <p>A {@link Builder} is a {@link Sink} that appends every element it
+ * accepts, and is used wherever a stage must see all of its input before
+ * producing output: {@code toArray}, the stateful operations
+ * {@code sorted} and {@code distinct} when evaluated in parallel, and
+ * {@code forEachOrdered} in parallel.  In a parallel evaluation each leaf
+ * task fills its own builder and the builders of sibling tasks are
+ * concatenated in encounter order.
+ *
+ * @since 1.8
+ */
+final class Nodes {
+
+    private Nodes() {
+        throw new Error("no instances");
+    }
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    static final String BAD_SIZE = "Stream size exceeds max array size";
+
+    /**
+     * Minimum capacity of a builder with no size information.
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Returns the capacity to grow a buffer of the given capacity to, so
+     * that it holds at least {@code minCapacity} elements.
+     *
+     * @throws IllegalArgumentException if {@code minCapacity} exceeds the
+     *         maximum array size
+     */
+    static int newCapacity(int oldCapacity, long minCapacity) {
+        if (minCapacity > MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException(BAD_SIZE);
+        long newCapacity = oldCapacity + (oldCapacity >> 1) + MIN_CAPACITY;
+        if (newCapacity < minCapacity)
+            newCapacity = minCapacity;
+        else if (newCapacity > MAX_ARRAY_SIZE)
+            newCapacity = MAX_ARRAY_SIZE;
+        return (int) newCapacity;
+    }
+
+    /**
+     * Produces a builder for elements of the given shape.
+     *
+     * @param shape the shape of the elements
+     * @param exactSizeIfKnown the exact number of elements the builder will
+     *        hold, if known, otherwise {@code -1}
+     * @return a new builder
+     * @throws IllegalArgumentException if {@code exactSizeIfKnown} exceeds
+     *         the maximum array size
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Builder<T> builder(StreamShape shape, long exactSizeIfKnown) {
+        switch (shape) {
+            case REFERENCE:
+                return new RefBuilder<T>(exactSizeIfKnown);
+            case INT_VALUE:
+                return (Builder<T>) new IntBuilder(exactSizeIfKnown);
+            case LONG_VALUE:
+                return (Builder<T>) new LongBuilder(exactSizeIfKnown);
+            case DOUBLE_VALUE:
+                return (Builder<T>) new DoubleBuilder(exactSizeIfKnown);
+            default:
+                throw new IllegalStateException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Evaluates the pipeline described by {@code helper} over the given
+     * spliterator, collecting its output into a builder.
+     *
+     * @param helper the pipeline stage whose output is collected
+     * @param spliterator the source spliterator, or a spliterator over the
+     *        output of the last stateful stage
+     * @param parallel whether to evaluate in parallel
+     * @return a builder holding the output elements in encounter order
+     */
+    static <P_IN, P_OUT> Builder<P_OUT> collect(AbstractPipeline<?, P_OUT, ?> helper,
+                                                Spliterator<P_IN> spliterator,
+                                                boolean parallel) {
+        if (parallel)
+            return new CollectorTask<P_IN, P_OUT>(helper, spliterator).invoke();
+        Builder<P_OUT> builder = builder(helper.getOutputShape(), -1);
+        return helper.wrapAndCopyInto(builder, spliterator, false);
+    }
+
+    /**
+     * Returns a terminal operation that collects the output of a pipeline
+     * into a builder.
+     */
+    static <T> TerminalOp<T, Builder<T>> collectOp() {
+        return new TerminalOp<T, Builder<T>>() {
+            @Override
+            <P_IN> Builder<T> evaluateSequential(AbstractPipeline<?, T, ?> helper,
+                                                 Spliterator<P_IN> spliterator) {
+                return collect(helper, spliterator, false);
+            }
+
+            @Override
+            <P_IN> Builder<T> evaluateParallel(AbstractPipeline<?, T, ?> helper,
+                                               Spliterator<P_IN> spliterator) {
+                return collect(helper, spliterator, true);
+            }
+        };
+    }
+
+    /**
+     * Task collecting the output of each leaf into a builder and
+     * concatenating the builders of the two halves of a split.
+     */
+    @SuppressWarnings("serial")
+    static final class CollectorTask<P_IN, P_OUT>
+            extends AbstractTask<P_IN, P_OUT, Builder<P_OUT>,
+                                 CollectorTask<P_IN, P_OUT>> {
+        CollectorTask(AbstractPipeline<?, P_OUT, ?> helper,
+                      Spliterator<P_IN> spliterator) {
+            super(helper, spliterator);
+        }
+
+        CollectorTask(CollectorTask<P_IN, P_OUT> parent,
+                      Spliterator<P_IN> spliterator) {
+            super(parent, spliterator);
+        }
+
+        @Override
+        protected CollectorTask<P_IN, P_OUT> makeChild(Spliterator<P_IN> spliterator) {
+            return new CollectorTask<P_IN, P_OUT>(this, spliterator);
+        }
+
+        @Override
+        protected Builder<P_OUT> doLeaf() {
+            Builder<P_OUT> builder = builder(helper.getOutputShape(), -1);
+            return helper.wrapAndCopyInto(builder, spliterator, false);
+        }
+
+        @Override
+        protected Builder<P_OUT> combine(Builder<P_OUT> left,
+                                         Builder<P_OUT> right) {
+            if (left.count() == 0)
+                return right;
+            left.appendAll(right);
+            return left;
+        }
+    }
+
+    /**
+     * A growable buffer of elements, which is also a {@code Sink} appending
+     * the elements it accepts.  {@code begin} only reserves capacity, so a
+     * builder may be filled by several consecutive traversals.
+     */
+    static abstract class Builder<T> extends Sink<T> {
+        /** The number of elements held */
+        int count;
+
+        /**
+         * Returns the number of elements held.
+         */
+        final long count() {
+            return count;
+        }
+
+        /**
+         * Discards all elements.
+         */
+        final void clear() {
+            count = 0;
+        }
+
+        /**
+         * Reserves capacity for {@code size} more elements, if known.  The
+         * size passed on by upstream stages that preserve the number of
+         * elements is exact, so a builder is usually allocated only once.
+         */
+        @Override
+        final void begin(long size) {
+            if (size > 0)
+                ensureCapacity(count + size);
+        }
+
+        /**
+         * Ensures capacity for at least {@code minCapacity} elements.
+         *
+         * @throws IllegalArgumentException if {@code minCapacity} exceeds
+         *         the maximum array size
+         */
+        abstract void ensureCapacity(long minCapacity);
+
+        /**
+         * Appends all elements of another builder of the same shape.
+         */
+        abstract void appendAll(Builder<T> other);
+
+        /**
+         * Returns a spliterator over the elements held, which must not be
+         * modified while the spliterator is in use.
+         */
+        abstract Spliterator<T> spliterator();
+
+        /**
+         * Pushes the elements held into the given sink, in order, stopping
+         * early if the sink requests cancellation.  The sink's {@code begin}
+         * and {@code end} methods are invoked around the elements.
+         */
+        abstract void copyInto(Sink<? super T> sink);
+
+        /**
+         * Sorts the elements held.  Reference elements are sorted according
+         * to the given comparator, or their natural ordering if it is
+         * {@code null}; primitive elements are sorted in ascending numerical
+         * order and the comparator is ignored.
+         *
+         * @param comparator the comparator, or {@code null}
+         * @param parallel whether to use {@code Arrays.parallelSort}
+         */
+        abstract void sort(Comparator<? super T> comparator, boolean parallel);
+    }
+
+    /**
+     * Builder of object references.
+     */
+    static final class RefBuilder<T> extends Builder<T> {
+        Object[] array;
+
+        RefBuilder(long exactSizeIfKnown) {
+            if (exactSizeIfKnown > MAX_ARRAY_SIZE)
+                throw new IllegalArgumentException(BAD_SIZE);
+            array = new Object[exactSizeIfKnown >= 0
+                               ? (int) exactSizeIfKnown : MIN_CAPACITY];
+        }
+
+        @Override
+        void ensureCapacity(long minCapacity) {
+            if (minCapacity > array.length)
+                array = Arrays.copyOf(array, newCapacity(array.length, minCapacity));
+        }
+
+        @Override
+        public void accept(T t) {
+            if (count == array.length)
+                ensureCapacity(count + 1L);
+            array[count++] = t;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            return (T) array[index];
+        }
+
+        @Override
+        void appendAll(Builder<T> other) {
+            RefBuilder<T> b = (RefBuilder<T>) other;
+            ensureCapacity((long) count + b.count);
+            System.arraycopy(b.array, 0, array, count, b.count);
+            count += b.count;
+        }
+
+        @Override
+        Spliterator<T> spliterator() {
+            return Spliterators.spliterator(array, 0, count,
+                                            Spliterator.ORDERED);
+        }
+
+        @Override
+        void copyInto(Sink<? super T> sink) {
+            sink.begin(count);
+            for (int i = 0; i < count && !sink.cancellationRequested(); i++)
+                sink.accept(get(i));
+            sink.end();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void sort(Comparator<? super T> comparator, boolean parallel) {
+            T[] a = (T[]) array;
+            if (parallel)
+                Arrays.parallelSort(a, 0, count, comparator);
+            else
+                Arrays.sort(a, 0, count, comparator);
+        }
+
+        /**
+         * Returns the elements held in an array allocated by the given
+         * generator.
+         */
+        <A> A[] asArray(IntFunction<A[]> generator) {
+            A[] result = generator.apply(count);
+            if (result.length < count)
+                throw new IllegalStateException("Generated array too small");
+            System.arraycopy(array, 0, result, 0, count);
+            return result;
+        }
+    }
+
+    /**
+     * Builder of {@code int} values.
+     */
+    static final class IntBuilder extends Builder<Integer> {
+        int[] array;
+
+        IntBuilder(long exactSizeIfKnown) {
+            if (exactSizeIfKnown > MAX_ARRAY_SIZE)
+                throw new IllegalArgumentException(BAD_SIZE);
+            array = new int[exactSizeIfKnown >= 0
+                            ? (int) exactSizeIfKnown : MIN_CAPACITY];
+        }
+
+        @Override
+        void ensureCapacity(long minCapacity) {
+            if (minCapacity > array.length)
+                array = Arrays.copyOf(array, newCapacity(array.length, minCapacity));
+        }
+
+        @Override
+        public void accept(int value) {
+            if (count == array.length)
+                ensureCapacity(count + 1L);
+            array[count++] = value;
+        }
+
+        int get(int index) {
+            return array[index];
+        }
+
+        @Override
+        void appendAll(Builder<Integer> other) {
+            IntBuilder b = (IntBuilder) other;
+            ensureCapacity((long) count + b.count);
+            System.arraycopy(b.array, 0, array, count, b.count);
+            count += b.count;
+        }
+
+        @Override
+        Spliterator.OfInt spliterator() {
+            return Spliterators.spliterator(array, 0, count,
+                                            Spliterator.ORDERED);
+        }
+
+        @Override
+        void copyInto(Sink<? super Integer> sink) {
+            sink.begin(count);
+            for (int i = 0; i < count && !sink.cancellationRequested(); i++)
+                sink.accept(array[i]);
+            sink.end();
+        }
+
+        @Override
+        void sort(Comparator<? super Integer> comparator, boolean parallel) {
+            if (parallel)
+                Arrays.parallelSort(array, 0, count);
+            else
+                Arrays.sort(array, 0, count);
+        }
+
+        /**
+         * Returns the elements held in a new array.
+         */
+        int[] asArray() {
+            return (array.length == count) ? array : Arrays.copyOf(array, count);
+        }
+    }
+
+    /**
+     * Builder of {@code long} values.
+     */
+    static final class LongBuilder extends Builder<Long> {
+        long[] array;
+
+        LongBuilder(long exactSizeIfKnown) {
+            if (exactSizeIfKnown > MAX_ARRAY_SIZE)
+                throw new IllegalArgumentException(BAD_SIZE);
+            array = new long[exactSizeIfKnown >= 0
+                             ? (int) exactSizeIfKnown : MIN_CAPACITY];
+        }
+
+        @Override
+        void ensureCapacity(long minCapacity) {
+            if (minCapacity > array.length)
+                array = Arrays.copyOf(array, newCapacity(array.length, minCapacity));
+        }
+
+        @Override
+        public void accept(long value) {
+            if (count == array.length)
+                ensureCapacity(count + 1L);
+            array[count++] = value;
+        }
+
+        long get(int index) {
+            return array[index];
+        }
+
+        @Override
+        void appendAll(Builder<Long> other) {
+            LongBuilder b = (LongBuilder) other;
+            ensureCapacity((long) count + b.count);
+            System.arraycopy(b.array, 0, array, count, b.count);
+            count += b.count;
+        }
+
+        @Override
+        Spliterator.OfLong spliterator() {
+            return Spliterators.spliterator(array, 0, count,
+                                            Spliterator.ORDERED);
+        }
+
+        @Override
+        void copyInto(Sink<? super Long> sink) {
+            sink.begin(count);
+            for (int i = 0; i < count && !sink.cancellationRequested(); i++)
+                sink.accept(array[i]);
+            sink.end();
+        }
+
+        @Override
+        void sort(Comparator<? super Long> comparator, boolean parallel) {
+            if (parallel)
+                Arrays.parallelSort(array, 0, count);
+            else
+                Arrays.sort(array, 0, count);
+        }
+
+        /**
+         * Returns the elements held in a new array.
+         */
+        long[] asArray() {
+            return (array.length == count) ? array : Arrays.copyOf(array, count);
+        }
+    }
+
+    /**
+     * Builder of {@code double} values.
+     */
+    static final class DoubleBuilder extends Builder<Double> {
+        double[] array;
+
+        DoubleBuilder(long exactSizeIfKnown) {
+            if (exactSizeIfKnown > MAX_ARRAY_SIZE)
+                throw new IllegalArgumentException(BAD_SIZE);
+            array = new double[exactSizeIfKnown >= 0
+                               ? (int) exactSizeIfKnown : MIN_CAPACITY];
+        }
+
+        @Override
+        void ensureCapacity(long minCapacity) {
+            if (minCapacity > array.length)
+                array = Arrays.copyOf(array, newCapacity(array.length, minCapacity));
+        }
+
+        @Override
+        public void accept(double value) {
+            if (count == array.length)
+                ensureCapacity(count + 1L);
+            array[count++] = value;
+        }
+
+        double get(int index) {
+            return array[index];
+        }
+
+        @Override
+        void appendAll(Builder<Double> other) {
+            DoubleBuilder b = (DoubleBuilder) other;
+            ensureCapacity((long) count + b.count);
+            System.arraycopy(b.array, 0, array, count, b.count);
+            count += b.count;
+        }
+
+        @Override
+        Spliterator.OfDouble spliterator() {
+            return Spliterators.spliterator(array, 0, count,
+                                            Spliterator.ORDERED);
+        }
+
+        @Override
+        void copyInto(Sink<? super Double> sink) {
+            sink.begin(count);
+            for (int i = 0; i < count && !sink.cancellationRequested(); i++)
+                sink.accept(array[i]);
+            sink.end();
+        }
+
+        @Override
+        void sort(Comparator<? super Double> comparator, boolean parallel) {
+            if (parallel)
+                Arrays.parallelSort(array, 0, count);
+            else
+                Arrays.sort(array, 0, count);
+        }
+
+        /**
+         * Returns the elements held in a new array.
+         */
+        double[] asArray() {
+            return (array.length == count) ? array : Arrays.copyOf(array, count);
+        }
+    }
+}
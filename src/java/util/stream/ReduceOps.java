@@ -0,0 +1,763 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Factory for creating instances of {@code TerminalOp} that implement
+ * reductions.
+ *
+ * @since 1.8
+ */
+final class ReduceOps {
+
+    private ReduceOps() { }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * reference values.
+     *
+     * @param <T> the type of the input elements
+     * @param <U> the type of the result
+     * @param seed the identity element for the reduction
+     * @param reducer the accumulating function that incorporates an additional
+     *        input element into the result
+     * @param combiner the combining function that combines two intermediate
+     *        results
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static <T, U> TerminalOp<T, U> makeRef(final U seed,
+                                           final BiFunction<U, ? super T, U> reducer,
+                                           final BinaryOperator<U> combiner) {
+        if (reducer == null || combiner == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<T, U, ReducingSink> {
+            U state;
+
+            @Override
+            void begin(long size) {
+                state = seed;
+            }
+
+            @Override
+            public void accept(T t) {
+                state = reducer.apply(state, t);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                state = combiner.apply(state, other.state);
+            }
+
+            @Override
+            U get() {
+                return state;
+            }
+        }
+        return new ReduceOp<T, U, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * reference values producing an optional reference result.
+     *
+     * @param <T> The type of the input elements, and the type of the result
+     * @param operator The reducing function
+     * @return A {@code TerminalOp} implementing the reduction
+     */
+    static <T> TerminalOp<T, Optional<T>> makeRef(final BinaryOperator<T> operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<T, Optional<T>, ReducingSink> {
+            private boolean empty;
+            private T state;
+
+            @Override
+            void begin(long size) {
+                empty = true;
+                state = null;
+            }
+
+            @Override
+            public void accept(T t) {
+                if (empty) {
+                    empty = false;
+                    state = t;
+                } else {
+                    state = operator.apply(state, t);
+                }
+            }
+
+            @Override
+            Optional<T> get() {
+                return empty ? Optional.<T>empty() : Optional.of(state);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                if (!other.empty)
+                    accept(other.state);
+            }
+        }
+        return new ReduceOp<T, Optional<T>, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a mutable reduce on
+     * reference values.
+     *
+     * @param <T> the type of the input elements
+     * @param <I> the type of the intermediate reduction result
+     * @param collector a {@code Collector} defining the reduction
+     * @return a {@code TerminalOp} implementing the reduction, whose result
+     *         is the intermediate result; the caller applies the finisher
+     */
+    static <T, I> TerminalOp<T, I> makeRef(Collector<? super T, I, ?> collector) {
+        final Supplier<I> supplier = collector.supplier();
+        final BiConsumer<I, ? super T> accumulator = collector.accumulator();
+        final BinaryOperator<I> combiner = collector.combiner();
+        class ReducingSink extends AccumulatingSink<T, I, ReducingSink> {
+            I state;
+
+            @Override
+            void begin(long size) {
+                state = supplier.get();
+            }
+
+            @Override
+            public void accept(T t) {
+                accumulator.accept(state, t);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                state = combiner.apply(state, other.state);
+            }
+
+            @Override
+            I get() {
+                return state;
+            }
+        }
+        return new ReduceOp<T, I, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a mutable reduce on
+     * reference values.
+     *
+     * @param <T> the type of the input elements
+     * @param <R> the type of the result
+     * @param seedFactory a factory to produce a new base accumulator
+     * @param accumulator a function to incorporate an element into an
+     *        accumulator
+     * @param reducer a function to combine an accumulator into another
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static <T, R> TerminalOp<T, R> makeRef(final Supplier<R> seedFactory,
+                                           final BiConsumer<R, ? super T> accumulator,
+                                           final BiConsumer<R, R> reducer) {
+        if (seedFactory == null || accumulator == null || reducer == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<T, R, ReducingSink> {
+            R state;
+
+            @Override
+            void begin(long size) {
+                state = seedFactory.get();
+            }
+
+            @Override
+            public void accept(T t) {
+                accumulator.accept(state, t);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                reducer.accept(state, other.state);
+            }
+
+            @Override
+            R get() {
+                return state;
+            }
+        }
+        return new ReduceOp<T, R, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * {@code int} values.
+     *
+     * @param identity the identity for the combining function
+     * @param operator the combining function
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static TerminalOp<Integer, Integer> makeInt(final int identity,
+                                                final IntBinaryOperator operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Integer, Integer, ReducingSink> {
+            private int state;
+
+            @Override
+            void begin(long size) {
+                state = identity;
+            }
+
+            @Override
+            public void accept(int t) {
+                state = operator.applyAsInt(state, t);
+            }
+
+            @Override
+            Integer get() {
+                return state;
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                accept(other.state);
+            }
+        }
+        return new ReduceOp<Integer, Integer, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * {@code int} values, producing an optional {@code int} result.
+     *
+     * @param operator the combining function
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static TerminalOp<Integer, OptionalInt> makeInt(final IntBinaryOperator operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Integer, OptionalInt, ReducingSink> {
+            private boolean empty;
+            private int state;
+
+            @Override
+            void begin(long size) {
+                empty = true;
+                state = 0;
+            }
+
+            @Override
+            public void accept(int t) {
+                if (empty) {
+                    empty = false;
+                    state = t;
+                }
+                else {
+                    state = operator.applyAsInt(state, t);
+                }
+            }
+
+            @Override
+            OptionalInt get() {
+                return empty ? OptionalInt.empty() : OptionalInt.of(state);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                if (!other.empty)
+                    accept(other.state);
+            }
+        }
+        return new ReduceOp<Integer, OptionalInt, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a mutable reduce on
+     * {@code int} values.
+     *
+     * @param <R> the type of the result
+     * @param supplier a factory to produce a new accumulator of the result type
+     * @param accumulator a function to incorporate an int into an
+     *        accumulator
+     * @param combiner a function to combine an accumulator into another
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static <R> TerminalOp<Integer, R> makeInt(final Supplier<R> supplier,
+                                              final ObjIntConsumer<R> accumulator,
+                                              final BinaryOperator<R> combiner) {
+        if (supplier == null || accumulator == null || combiner == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Integer, R, ReducingSink> {
+            R state;
+
+            @Override
+            void begin(long size) {
+                state = supplier.get();
+            }
+
+            @Override
+            public void accept(int t) {
+                accumulator.accept(state, t);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                state = combiner.apply(state, other.state);
+            }
+
+            @Override
+            R get() {
+                return state;
+            }
+        }
+        return new ReduceOp<Integer, R, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * {@code long} values.
+     *
+     * @param identity the identity for the combining function
+     * @param operator the combining function
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static TerminalOp<Long, Long> makeLong(final long identity,
+                                           final LongBinaryOperator operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Long, Long, ReducingSink> {
+            private long state;
+
+            @Override
+            void begin(long size) {
+                state = identity;
+            }
+
+            @Override
+            public void accept(long t) {
+                state = operator.applyAsLong(state, t);
+            }
+
+            @Override
+            Long get() {
+                return state;
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                accept(other.state);
+            }
+        }
+        return new ReduceOp<Long, Long, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * {@code long} values, producing an optional {@code long} result.
+     *
+     * @param operator the combining function
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static TerminalOp<Long, OptionalLong> makeLong(final LongBinaryOperator operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Long, OptionalLong, ReducingSink> {
+            private boolean empty;
+            private long state;
+
+            @Override
+            void begin(long size) {
+                empty = true;
+                state = 0;
+            }
+
+            @Override
+            public void accept(long t) {
+                if (empty) {
+                    empty = false;
+                    state = t;
+                }
+                else {
+                    state = operator.applyAsLong(state, t);
+                }
+            }
+
+            @Override
+            OptionalLong get() {
+                return empty ? OptionalLong.empty() : OptionalLong.of(state);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                if (!other.empty)
+                    accept(other.state);
+            }
+        }
+        return new ReduceOp<Long, OptionalLong, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a mutable reduce on
+     * {@code long} values.
+     *
+     * @param <R> the type of the result
+     * @param supplier a factory to produce a new accumulator of the result type
+     * @param accumulator a function to incorporate an long into an
+     *        accumulator
+     * @param combiner a function to combine an accumulator into another
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static <R> TerminalOp<Long, R> makeLong(final Supplier<R> supplier,
+                                            final ObjLongConsumer<R> accumulator,
+                                            final BinaryOperator<R> combiner) {
+        if (supplier == null || accumulator == null || combiner == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Long, R, ReducingSink> {
+            R state;
+
+            @Override
+            void begin(long size) {
+                state = supplier.get();
+            }
+
+            @Override
+            public void accept(long t) {
+                accumulator.accept(state, t);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                state = combiner.apply(state, other.state);
+            }
+
+            @Override
+            R get() {
+                return state;
+            }
+        }
+        return new ReduceOp<Long, R, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * {@code double} values.
+     *
+     * @param identity the identity for the combining function
+     * @param operator the combining function
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static TerminalOp<Double, Double> makeDouble(final double identity,
+                                                 final DoubleBinaryOperator operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Double, Double, ReducingSink> {
+            private double state;
+
+            @Override
+            void begin(long size) {
+                state = identity;
+            }
+
+            @Override
+            public void accept(double t) {
+                state = operator.applyAsDouble(state, t);
+            }
+
+            @Override
+            Double get() {
+                return state;
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                accept(other.state);
+            }
+        }
+        return new ReduceOp<Double, Double, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a functional reduce on
+     * {@code double} values, producing an optional {@code double} result.
+     *
+     * @param operator the combining function
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static TerminalOp<Double, OptionalDouble> makeDouble(
+            final DoubleBinaryOperator operator) {
+        if (operator == null)
+            throw new NullPointerException();
+        class ReducingSink
+                extends AccumulatingSink<Double, OptionalDouble, ReducingSink> {
+            private boolean empty;
+            private double state;
+
+            @Override
+            void begin(long size) {
+                empty = true;
+                state = 0;
+            }
+
+            @Override
+            public void accept(double t) {
+                if (empty) {
+                    empty = false;
+                    state = t;
+                }
+                else {
+                    state = operator.applyAsDouble(state, t);
+                }
+            }
+
+            @Override
+            OptionalDouble get() {
+                return empty ? OptionalDouble.empty() : OptionalDouble.of(state);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                if (!other.empty)
+                    accept(other.state);
+            }
+        }
+        return new ReduceOp<Double, OptionalDouble, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * Constructs a {@code TerminalOp} that implements a mutable reduce on
+     * {@code double} values.
+     *
+     * @param <R> the type of the result
+     * @param supplier a factory to produce a new accumulator of the result type
+     * @param accumulator a function to incorporate an double into an
+     *        accumulator
+     * @param combiner a function to combine an accumulator into another
+     * @return a {@code TerminalOp} implementing the reduction
+     */
+    static <R> TerminalOp<Double, R> makeDouble(final Supplier<R> supplier,
+                                                final ObjDoubleConsumer<R> accumulator,
+                                                final BinaryOperator<R> combiner) {
+        if (supplier == null || accumulator == null || combiner == null)
+            throw new NullPointerException();
+        class ReducingSink extends AccumulatingSink<Double, R, ReducingSink> {
+            R state;
+
+            @Override
+            void begin(long size) {
+                state = supplier.get();
+            }
+
+            @Override
+            public void accept(double t) {
+                accumulator.accept(state, t);
+            }
+
+            @Override
+            void combine(ReducingSink other) {
+                state = combiner.apply(state, other.state);
+            }
+
+            @Override
+            R get() {
+                return state;
+            }
+        }
+        return new ReduceOp<Double, R, ReducingSink>() {
+            @Override
+            ReducingSink makeSink() {
+                return new ReducingSink();
+            }
+        };
+    }
+
+    /**
+     * A {@code Sink} that implements an associative reducing operation on
+     * the elements of its input, and can merge its result with that of
+     * another sink of the same kind.  The accumulated state is reset by
+     * {@code begin}.
+     *
+     * @param <T> the type of input element to the combining operation
+     * @param <R> the result type
+     * @param <K> type of the {@code AccumulatingSink}.
+     */
+    static abstract class AccumulatingSink<T, R, K extends AccumulatingSink<T, R, K>>
+            extends Sink<T> {
+        /**
+         * Merges the state of another sink, whose input followed the input of
+         * this sink in encounter order, into this one.
+         */
+        abstract void combine(K other);
+
+        /**
+         * Returns the result of the reduction.
+         */
+        abstract R get();
+    }
+
+    /**
+     * A {@code TerminalOp} that evaluates a stream pipeline and sends the
+     * output into an {@code AccumulatingSink}, which performs a reduce
+     * operation.  The {@code AccumulatingSink} must represent an associative
+     * reducing operation.
+     *
+     * @param <T> the output type of the stream pipeline
+     * @param <R> the result type of the reducing operation
+     * @param <S> the type of the {@code AccumulatingSink}
+     */
+    static abstract class ReduceOp<T, R, S extends AccumulatingSink<T, R, S>>
+            extends TerminalOp<T, R> {
+        /**
+         * Create a {@code AccumulatingSink} for this reduction, with an
+         * empty state.
+         *
+         * @return the sink
+         */
+        abstract S makeSink();
+
+        @Override
+        <P_IN> R evaluateSequential(AbstractPipeline<?, T, ?> helper,
+                                    Spliterator<P_IN> spliterator) {
+            return helper.wrapAndCopyInto(makeSink(), spliterator, false).get();
+        }
+
+        @Override
+        <P_IN> R evaluateParallel(AbstractPipeline<?, T, ?> helper,
+                                  Spliterator<P_IN> spliterator) {
+            return new ReduceTask<P_IN, T, R, S>(this, helper, spliterator)
+                .invoke().get();
+        }
+    }
+
+    /**
+     * A {@code ForkJoinTask} for performing a parallel reduce operation.
+     */
+    @SuppressWarnings("serial")
+    static final class ReduceTask<P_IN, P_OUT, R, S extends AccumulatingSink<P_OUT, R, S>>
+            extends AbstractTask<P_IN, P_OUT, S, ReduceTask<P_IN, P_OUT, R, S>> {
+        private final ReduceOp<P_OUT, R, S> op;
+
+        ReduceTask(ReduceOp<P_OUT, R, S> op,
+                   AbstractPipeline<?, P_OUT, ?> helper,
+                   Spliterator<P_IN> spliterator) {
+            super(helper, spliterator);
+            this.op = op;
+        }
+
+        ReduceTask(ReduceTask<P_IN, P_OUT, R, S> parent,
+                   Spliterator<P_IN> spliterator) {
+            super(parent, spliterator);
+            this.op = parent.op;
+        }
+
+        @Override
+        protected ReduceTask<P_IN, P_OUT, R, S> makeChild(Spliterator<P_IN> spliterator) {
+            return new ReduceTask<P_IN, P_OUT, R, S>(this, spliterator);
+        }
+
+        @Override
+        protected S doLeaf() {
+            return helper.wrapAndCopyInto(op.makeSink(), spliterator, false);
+        }
+
+        @Override
+        protected S combine(S left, S right) {
+            left.combine(right);
+            return left;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Abstract base class for an intermediate pipeline stage or pipeline source
+ * stage of a {@link Stream}, whose elements are of type {@code P_OUT}.
+ *
+ * @param <P_IN> type of elements in the upstream source
+ * @param <P_OUT> type of elements produced by this stage
+ *
+ * @since 1.8
+ */
+abstract class ReferencePipeline<P_IN, P_OUT>
+        extends AbstractPipeline<P_IN, P_OUT, Stream<P_OUT>>
+        implements Stream<P_OUT> {
+
+    /**
+     * Constructor for the head of a stream pipeline.
+     *
+     * @param source {@code Spliterator} describing the stream source
+     * @param parallel {@code true} if the pipeline is parallel
+     */
+    ReferencePipeline(Spliterator<?> source, boolean parallel) {
+        super(source, parallel);
+    }
+
+    /**
+     * Constructor for appending an intermediate operation onto an existing
+     * pipeline.
+     *
+     * @param upstream the upstream element source.
+     */
+    ReferencePipeline(AbstractPipeline<?, P_IN, ?> upstream) {
+        super(upstream);
+    }
+
+    // Shape-specific methods
+
+    @Override
+    final StreamShape getOutputShape() {
+        return StreamShape.REFERENCE;
+    }
+
+    @Override
+    final <P_IN> Spliterator<P_OUT> wrap(Spliterator<P_IN> spliterator,
+                                         boolean isParallel) {
+        return new StreamSpliterators.WrappingSpliterator<P_IN, P_OUT>(
+            this, spliterator, isParallel);
+    }
+
+    // BaseStream
+
+    @Override
+    public final Iterator<P_OUT> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public final Spliterator<P_OUT> spliterator() {
+        return spliteratorForStream();
+    }
+
+    // Stateless intermediate operations from Stream
+
+    @Override
+    public final Stream<P_OUT> filter(final Predicate<? super P_OUT> predicate) {
+        Objects.requireNonNull(predicate);
+        return new StatelessOp<P_OUT, P_OUT>(this) {
+            @Override
+            Sink<P_OUT> opWrapSink(Sink<P_OUT> sink) {
+                return new Sink.Chained<P_OUT, P_OUT>(sink) {
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(P_OUT u) {
+                        if (predicate.test(u))
+                            downstream.accept(u);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final <R> Stream<R> map(final Function<? super P_OUT, ? extends R> mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<P_OUT, R>(this) {
+            @Override
+            Sink<P_OUT> opWrapSink(Sink<R> sink) {
+                return new Sink.Chained<P_OUT, R>(sink) {
+                    @Override
+                    public void accept(P_OUT u) {
+                        downstream.accept(mapper.apply(u));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final IntStream mapToInt(final ToIntFunction<? super P_OUT> mapper) {
+        Objects.requireNonNull(mapper);
+        return new IntPipeline.StatelessOp<P_OUT>(this) {
+            @Override
+            Sink<P_OUT> opWrapSink(Sink<Integer> sink) {
+                return new Sink.Chained<P_OUT, Integer>(sink) {
+                    @Override
+                    public void accept(P_OUT u) {
+                        downstream.accept(mapper.applyAsInt(u));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final LongStream mapToLong(final ToLongFunction<? super P_OUT> mapper) {
+        Objects.requireNonNull(mapper);
+        return new LongPipeline.StatelessOp<P_OUT>(this) {
+            @Override
+            Sink<P_OUT> opWrapSink(Sink<Long> sink) {
+                return new Sink.Chained<P_OUT, Long>(sink) {
+                    @Override
+                    public void accept(P_OUT u) {
+                        downstream.accept(mapper.applyAsLong(u));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final DoubleStream mapToDouble(final ToDoubleFunction<? super P_OUT> mapper) {
+        Objects.requireNonNull(mapper);
+        return new DoublePipeline.StatelessOp<P_OUT>(this) {
+            @Override
+            Sink<P_OUT> opWrapSink(Sink<Double> sink) {
+                return new Sink.Chained<P_OUT, Double>(sink) {
+                    @Override
+                    public void accept(P_OUT u) {
+                        downstream.accept(mapper.applyAsDouble(u));
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final <R> Stream<R> flatMap(
+            final Function<? super P_OUT, ? extends Stream<? extends R>> mapper) {
+        Objects.requireNonNull(mapper);
+        return new StatelessOp<P_OUT, R>(this) {
+            @Override
+            Sink<P_OUT> opWrapSink(Sink<R> sink) {
+                return new Sink.Chained<P_OUT, R>(sink) {
+                    final Consumer<R> pusher = new Consumer<R>() {
+                        public void accept(R r) {
+                            downstream.accept(r);
+                        }
+                    };
+
+                    @Override
+                    void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(P_OUT u) {
+                        Stream<? extends R> result = mapper.apply(u);
+                        if (result != null)
+                            result.sequential().forEach(pusher);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public final Stream<P_OUT> peek(final Consumer<? super P_OUT> consumer) {
+        Objects.requireNonNull(consumer);
+        return new StatelessOp<P_OUT, P_OUT>(this) {
+            @Override
+            Sink<P_OUT> opWrapSink(Sink<P_OUT> sink) {
+                return new Sink.Chained<P_OUT, P_OUT>(sink) {
+                    @Override
+                    public void accept(P_OUT u) {
+                        consumer.accept(u);
+                        downstream.accept(u);
+                    }
+                };
+            }
+        };
+    }
+
+    // Stateful intermediate operations from Stream
+
+    @Override
+    public final Stream<P_OUT> distinct() {
+        return DistinctOps.makeRef(this);
+    }
+
+    @Override
+    public final Stream<P_OUT> sorted() {
+        return SortedOps.makeRef(this, null);
+    }
+
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator) {
+        return SortedOps.makeRef(this, Objects.requireNonNull(comparator));
+    }
+
+    @Override
+    public final Stream<P_OUT> limit(long maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException(Long.toString(maxSize));
+        return SliceOps.makeRef(this, 0, maxSize);
+    }
+
+    @Override
+    public final Stream<P_OUT> skip(long startInclusive) {
+        if (startInclusive < 0)
+            throw new IllegalArgumentException(Long.toString(startInclusive));
+        if (startInclusive == 0)
+            return this;
+        else
+            return SliceOps.makeRef(this, startInclusive, -1);
+    }
+
+    // Terminal operations from Stream
+
+    @Override
+    public void forEach(Consumer<? super P_OUT> action) {
+        evaluate(ForEachOps.makeRef(action, false));
+    }
+
+    @Override
+    public void forEachOrdered(Consumer<? super P_OUT> action) {
+        evaluate(ForEachOps.makeRef(action, true));
+    }
+
+    @Override
+    public final Object[] toArray() {
+        return toArray(new IntFunction<Object[]>() {
+            public Object[] apply(int size) {
+                return new Object[size];
+            }
+        });
+    }
+
+    @Override
+    public final <A> A[] toArray(IntFunction<A[]> generator) {
+        Objects.requireNonNull(generator);
+        Nodes.Builder<P_OUT> builder = evaluate(Nodes.<P_OUT>collectOp());
+        return ((Nodes.RefBuilder<P_OUT>) builder).asArray(generator);
+    }
+
+    @Override
+    public final P_OUT reduce(P_OUT identity, BinaryOperator<P_OUT> accumulator) {
+        return evaluate(ReduceOps.<P_OUT, P_OUT>makeRef(identity, accumulator,
+                                                        accumulator));
+    }
+
+    @Override
+    public final Optional<P_OUT> reduce(BinaryOperator<P_OUT> accumulator) {
+        return evaluate(ReduceOps.makeRef(accumulator));
+    }
+
+    @Override
+    public final <R> R reduce(R identity, BiFunction<R, ? super P_OUT, R> accumulator,
+                              BinaryOperator<R> combiner) {
+        return evaluate(ReduceOps.<P_OUT, R>makeRef(identity, accumulator, combiner));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final <R, A> R collect(Collector<? super P_OUT, A, R> collector) {
+        A container;
+        Set<Collector.Characteristics> characteristics = collector.characteristics();
+        if (isParallel()
+                && characteristics.contains(Collector.Characteristics.CONCURRENT)
+                && characteristics.contains(Collector.Characteristics.UNORDERED)) {
+            final A c = container = collector.supplier().get();
+            final BiConsumer<A, ? super P_OUT> accumulator = collector.accumulator();
+            forEach(new Consumer<P_OUT>() {
+                public void accept(P_OUT u) {
+                    accumulator.accept(c, u);
+                }
+            });
+        }
+        else {
+            container = evaluate(ReduceOps.<P_OUT, A>makeRef(collector));
+        }
+        return characteristics.contains(Collector.Characteristics.IDENTITY_FINISH)
+               ? (R) container
+               : collector.finisher().apply(container);
+    }
+
+    @Override
+    public final <R> R collect(Supplier<R> supplier,
+                               BiConsumer<R, ? super P_OUT> accumulator,
+                               BiConsumer<R, R> combiner) {
+        return evaluate(ReduceOps.<P_OUT, R>makeRef(supplier, accumulator, combiner));
+    }
+
+    @Override
+    public final Optional<P_OUT> max(final Comparator<? super P_OUT> comparator) {
+        Objects.requireNonNull(comparator);
+        return reduce(new BinaryOperator<P_OUT>() {
+            public P_OUT apply(P_OUT a, P_OUT b) {
+                return (comparator.compare(a, b) >= 0) ? a : b;
+            }
+        });
+    }
+
+    @Override
+    public final Optional<P_OUT> min(final Comparator<? super P_OUT> comparator) {
+        Objects.requireNonNull(comparator);
+        return reduce(new BinaryOperator<P_OUT>() {
+            public P_OUT apply(P_OUT a, P_OUT b) {
+                return (comparator.compare(a, b) <= 0) ? a : b;
+            }
+        });
+    }
+
+    @Override
+    public final long count() {
+        return mapToLong(new ToLongFunction<P_OUT>() {
+            public long applyAsLong(P_OUT e) {
+                return 1L;
+            }
+        }).sum();
+    }
+
+    @Override
+    public final boolean anyMatch(Predicate<? super P_OUT> predicate) {
+        return evaluate(MatchOps.makeRef(predicate, MatchOps.MatchKind.ANY));
+    }
+
+    @Override
+    public final boolean allMatch(Predicate<? super P_OUT> predicate) {
+        return evaluate(MatchOps.makeRef(predicate, MatchOps.MatchKind.ALL));
+    }
+
+    @Override
+    public final boolean noneMatch(Predicate<? super P_OUT> predicate) {
+        return evaluate(MatchOps.makeRef(predicate, MatchOps.MatchKind.NONE));
+    }
+
+    @Override
+    public final Optional<P_OUT> findFirst() {
+        return evaluate(FindOps.<P_OUT>makeRef(true));
+    }
+
+    @Override
+    public final Optional<P_OUT> findAny() {
+        return evaluate(FindOps.<P_OUT>makeRef(false));
+    }
+
+    //
+
+    /**
+     * Source stage of a ReferencePipeline.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @param <E_OUT> type of elements produced by this stage
+     * @since 1.8
+     */
+    static class Head<E_IN, E_OUT> extends ReferencePipeline<E_IN, E_OUT> {
+        /**
+         * Constructor for the source stage of a Stream.
+         *
+         * @param source {@code Spliterator} describing the stream source
+         * @param parallel {@code true} if the pipeline is parallel
+         */
+        Head(Spliterator<?> source, boolean parallel) {
+            super(source, parallel);
+        }
+
+        @Override
+        final Sink<E_IN> opWrapSink(Sink<E_OUT> sink) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Base class for a stateless intermediate stage of a Stream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @param <E_OUT> type of elements produced by this stage
+     * @since 1.8
+     */
+    abstract static class StatelessOp<E_IN, E_OUT>
+            extends ReferencePipeline<E_IN, E_OUT> {
+        /**
+         * Construct a new Stream by appending a stateless intermediate
+         * operation to an existing stream.
+         *
+         * @param upstream The upstream pipeline stage
+         */
+        StatelessOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+    }
+
+    /**
+     * Base class for a stateful intermediate stage of a Stream.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @param <E_OUT> type of elements produced by this stage
+     * @since 1.8
+     */
+    abstract static class StatefulOp<E_IN, E_OUT>
+            extends ReferencePipeline<E_IN, E_OUT> {
+        /**
+         * Construct a new Stream by appending a stateful intermediate operation
+         * to an existing stream.
+         *
+         * @param upstream The upstream pipeline stage
+         */
+        StatefulOp(AbstractPipeline<?, E_IN, ?> upstream) {
+            super(upstream);
+        }
+
+        @Override
+        final boolean opIsStateful() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A receiver of values flowing through the stages of a stream pipeline, with
+ * additional methods to manage size information and control flow.  Before
+ * calling the {@code accept()} method on a {@code Sink} for the first time,
+ * you must first call the {@code begin()} method to inform it that data is
+ * coming (optionally informing the sink how much data is coming), and after
+ * all data has been sent, you must call the {@code end()} method.  After
+ * calling {@code end()}, you should not call {@code accept()} without again
+ * calling {@code begin()}.  {@code Sink} also offers a mechanism by which the
+ * sink can cooperatively signal that it does not wish to receive any more
+ * data (the {@code cancellationRequested()} method), which a source can poll
+ * before sending more data to the {@code Sink}.
+ *
+ * <p>A stream pipeline consists of a source, zero or more intermediate stages
+ * (such as filtering or mapping), and a terminal stage, such as reduction or
+ * for-each.  Rather than pulling elements through the stages, the source
+ * pushes each element into a chain of sinks, one per stage, each of which
+ * passes its result on to the {@code downstream} sink of the next stage.
+ *
+ * <p>A sink carries either reference or primitive values; a sink for an
+ * {@code int} pipeline overrides {@link #accept(int)} and is sent values
+ * only through that method, so no boxing takes place.  Rather than separate
+ * specializations, this class implements all of {@code Consumer},
+ * {@code IntConsumer}, {@code LongConsumer} and {@code DoubleConsumer}, and
+ * each {@code accept} method not overridden by a sink throws
+ * {@code IllegalStateException}.  As a result, passing a sink to an
+ * overloaded method such as {@code Spliterator.OfInt.forEachRemaining}
+ * requires a cast to select the intended overload.
+ *
+ * @param <T> type of elements for value streams
+ * @since 1.8
+ */
+abstract class Sink<T> implements Consumer<T>, IntConsumer, LongConsumer,
+                                   DoubleConsumer {
+    /**
+     * Resets the sink state to receive a fresh data set.  This must be called
+     * before sending any data to the sink.  After calling {@link #end()},
+     * you may call this method to reset the sink for another calculation.
+     *
+     * @param size The exact size of the data to be pushed downstream, if
+     *        known or {@code -1} if unknown or infinite.
+     */
+    void begin(long size) {}
+
+    /**
+     * Indicates that all elements have been pushed.  If the {@code Sink} is
+     * stateful, it should send any stored state downstream at this time, and
+     * should clear any accumulated state (and associated resources).
+     */
+    void end() {}
+
+    /**
+     * Indicates that this {@code Sink} does not wish to receive any more data.
+     *
+     * @return true if cancellation is requested
+     */
+    boolean cancellationRequested() {
+        return false;
+    }
+
+    public void accept(T value) {
+        throw new IllegalStateException("called wrong accept method");
+    }
+
+    public void accept(int value) {
+        throw new IllegalStateException("called wrong accept method");
+    }
+
+    public void accept(long value) {
+        throw new IllegalStateException("called wrong accept method");
+    }
+
+    public void accept(double value) {
+        throw new IllegalStateException("called wrong accept method");
+    }
+
+    /**
+     * Abstract {@code Sink} implementation for creating chains of
+     * sinks.  The {@code begin}, {@code end}, and
+     * {@code cancellationRequested} methods are wired to chain to the
+     * downstream {@code Sink}.  This implementation takes a downstream
+     * {@code Sink} of unknown input shape and produces a {@code Sink<T>}.
+     * The implementation of the {@code accept()} method for the input
+     * shape must call the correct {@code accept()} method on the
+     * downstream {@code Sink}.
+     */
+    static abstract class Chained<T, E_OUT> extends Sink<T> {
+        protected final Sink<? super E_OUT> downstream;
+
+        Chained(Sink<? super E_OUT> downstream) {
+            if (downstream == null)
+                throw new NullPointerException();
+            this.downstream = downstream;
+        }
+
+        @Override
+        void begin(long size) {
+            downstream.begin(size);
+        }
+
+        @Override
+        void end() {
+            downstream.end();
+        }
+
+        @Override
+        boolean cancellationRequested() {
+            return downstream.cancellationRequested();
+        }
+    }
+}
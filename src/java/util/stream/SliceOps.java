@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Spliterator;
+
+/**
+ * Factory for instances of a short-circuiting stateful intermediate operations
+ * that produce subsequences of their input stream.
+ *
+ * <p>A slice stage is a barrier in parallel pipelines.  If the source is
+ * {@link Spliterator#SIZED sized}, and hence finite, the upstream output is
+ * collected in parallel and then sliced.  Otherwise the upstream is traversed
+ * sequentially and only until the limit is reached, so that slicing an
+ * infinite stream terminates.
+ *
+ * @since 1.8
+ */
+final class SliceOps {
+
+    private SliceOps() { }
+
+    /**
+     * Calculates the sliced size given the current size, number of elements
+     * skip, and the number of elements to limit.
+     *
+     * @param size the current size
+     * @param skip the number of elements to skip, assumed to be >= 0
+     * @param limit the number of elements to limit, assumed to be >= 0, with
+     *        a value of {@code Long.MAX_VALUE} if there is no limit
+     * @return the sliced size, or {@code -1} if unknown
+     */
+    private static long calcSize(long size, long skip, long limit) {
+        return size >= 0 ? Math.max(0, Math.min(size - skip, limit)) : -1;
+    }
+
+    /**
+     * Appends a "slice" operation to the provided stream.  The slice operation
+     * may be skip-only, limit-only, or skip-and-limit.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param skip the number of elements to skip.  Must be >= 0.
+     * @param limit the maximum size of the resulting stream, or -1 if no limit
+     *        is to be imposed
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                 final long skip, final long limit) {
+        if (skip < 0)
+            throw new IllegalArgumentException("Skip must be non-negative: " + skip);
+        return new ReferencePipeline.StatefulOp<T, T>(upstream) {
+            @Override
+            boolean opIsShortCircuit() {
+                return limit != -1;
+            }
+
+            @Override
+            Sink<T> opWrapSink(Sink<T> sink) {
+                return new SliceSink<T>(sink, skip, limit);
+            }
+
+            @Override
+            <P_IN> Spliterator<T> opEvaluateParallelLazy(
+                    AbstractPipeline<?, T, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                if (spliterator.hasCharacteristics(Spliterator.SIZED))
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                return sliceSequentially(this, helper, spliterator);
+            }
+        };
+    }
+
+    /**
+     * Appends a "slice" operation to the provided stream.  The slice operation
+     * may be skip-only, limit-only, or skip-and-limit.
+     *
+     * @param upstream a {@code IntStream}
+     * @param skip the number of elements to skip.  Must be >= 0.
+     * @param limit the maximum size of the resulting stream, or -1 if no limit
+     *        is to be imposed
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                             final long skip, final long limit) {
+        if (skip < 0)
+            throw new IllegalArgumentException("Skip must be non-negative: " + skip);
+        return new IntPipeline.StatefulOp<Integer>(upstream) {
+            @Override
+            boolean opIsShortCircuit() {
+                return limit != -1;
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(Sink<Integer> sink) {
+                return new SliceSink<Integer>(sink, skip, limit);
+            }
+
+            @Override
+            <P_IN> Spliterator<Integer> opEvaluateParallelLazy(
+                    AbstractPipeline<?, Integer, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                if (spliterator.hasCharacteristics(Spliterator.SIZED))
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                return sliceSequentially(this, helper, spliterator);
+            }
+        };
+    }
+
+    /**
+     * Appends a "slice" operation to the provided stream.  The slice operation
+     * may be skip-only, limit-only, or skip-and-limit.
+     *
+     * @param upstream a {@code LongStream}
+     * @param skip the number of elements to skip.  Must be >= 0.
+     * @param limit the maximum size of the resulting stream, or -1 if no limit
+     *        is to be imposed
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream,
+                               final long skip, final long limit) {
+        if (skip < 0)
+            throw new IllegalArgumentException("Skip must be non-negative: " + skip);
+        return new LongPipeline.StatefulOp<Long>(upstream) {
+            @Override
+            boolean opIsShortCircuit() {
+                return limit != -1;
+            }
+
+            @Override
+            Sink<Long> opWrapSink(Sink<Long> sink) {
+                return new SliceSink<Long>(sink, skip, limit);
+            }
+
+            @Override
+            <P_IN> Spliterator<Long> opEvaluateParallelLazy(
+                    AbstractPipeline<?, Long, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                if (spliterator.hasCharacteristics(Spliterator.SIZED))
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                return sliceSequentially(this, helper, spliterator);
+            }
+        };
+    }
+
+    /**
+     * Appends a "slice" operation to the provided stream.  The slice operation
+     * may be skip-only, limit-only, or skip-and-limit.
+     *
+     * @param upstream a {@code DoubleStream}
+     * @param skip the number of elements to skip.  Must be >= 0.
+     * @param limit the maximum size of the resulting stream, or -1 if no limit
+     *        is to be imposed
+     */
+    static DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream,
+                                   final long skip, final long limit) {
+        if (skip < 0)
+            throw new IllegalArgumentException("Skip must be non-negative: " + skip);
+        return new DoublePipeline.StatefulOp<Double>(upstream) {
+            @Override
+            boolean opIsShortCircuit() {
+                return limit != -1;
+            }
+
+            @Override
+            Sink<Double> opWrapSink(Sink<Double> sink) {
+                return new SliceSink<Double>(sink, skip, limit);
+            }
+
+            @Override
+            <P_IN> Spliterator<Double> opEvaluateParallelLazy(
+                    AbstractPipeline<?, Double, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                if (spliterator.hasCharacteristics(Spliterator.SIZED))
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                return sliceSequentially(this, helper, spliterator);
+            }
+        };
+    }
+
+    /**
+     * Evaluates a slice stage over the output of the upstream segment
+     * sequentially, traversing the source only until the limit is reached,
+     * and returns a spliterator over the result.
+     */
+    static <P_IN, T> Spliterator<T> sliceSequentially(AbstractPipeline<T, T, ?> stage,
+                                                      AbstractPipeline<?, T, ?> helper,
+                                                      Spliterator<P_IN> spliterator) {
+        Nodes.Builder<T> builder = Nodes.builder(stage.getOutputShape(), -1);
+        helper.wrapAndCopyInto(stage.opWrapSink(builder), spliterator, true);
+        return builder.spliterator();
+    }
+
+    /**
+     * {@code Sink} skipping the leading elements and passing on at most
+     * {@code limit} elements, for streams of any shape.  Requests
+     * cancellation once the limit is reached.
+     */
+    private static final class SliceSink<T> extends Sink.Chained<T, T> {
+        private final long skip;
+        private final long limit;
+        private long n;
+        private long m;
+
+        SliceSink(Sink<? super T> downstream, long skip, long limit) {
+            super(downstream);
+            this.skip = skip;
+            this.limit = limit >= 0 ? limit : Long.MAX_VALUE;
+        }
+
+        @Override
+        void begin(long size) {
+            n = skip;
+            m = limit;
+            downstream.begin(calcSize(size, skip, limit));
+        }
+
+        /**
+         * Returns whether the next element is to be passed on, counting it
+         * towards the skip or limit.
+         */
+        private boolean take() {
+            if (n == 0) {
+                if (m > 0) {
+                    m--;
+                    return true;
+                }
+            }
+            else {
+                n--;
+            }
+            return false;
+        }
+
+        @Override
+        public void accept(T t) {
+            if (take())
+                downstream.accept(t);
+        }
+
+        @Override
+        public void accept(int value) {
+            if (take())
+                downstream.accept(value);
+        }
+
+        @Override
+        public void accept(long value) {
+            if (take())
+                downstream.accept(value);
+        }
+
+        @Override
+        public void accept(double value) {
+            if (take())
+                downstream.accept(value);
+        }
+
+        @Override
+        boolean cancellationRequested() {
+            return m == 0 || downstream.cancellationRequested();
+        }
+    }
+}
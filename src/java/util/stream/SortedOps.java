@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+
+/**
+ * Factory methods for transforming streams into sorted streams.
+ *
+ * <p>Sequentially, a sorting stage buffers its input in a {@link Nodes.Builder}
+ * sized from the upstream size when it is known, sorts the buffer when the
+ * input ends, and then pushes the elements downstream, stopping early if a
+ * downstream stage such as {@code limit} requests cancellation.  In parallel,
+ * the upstream output is collected in parallel and sorted with
+ * {@link java.util.Arrays#parallelSort(int[]) Arrays.parallelSort}.
+ *
+ * @since 1.8
+ */
+final class SortedOps {
+
+    private SortedOps() { }
+
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by, or {@code null}
+     *        for the natural ordering of the elements
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                 final Comparator<? super T> comparator) {
+        return new ReferencePipeline.StatefulOp<T, T>(upstream) {
+            @Override
+            Sink<T> opWrapSink(Sink<T> sink) {
+                return new SortingSink<T>(sink, StreamShape.REFERENCE, comparator);
+            }
+
+            @Override
+            <P_IN> Spliterator<T> opEvaluateParallelLazy(
+                    AbstractPipeline<?, T, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                return sortInParallel(helper, spliterator, comparator);
+            }
+        };
+    }
+
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param upstream a {@code IntStream}
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream) {
+        return new IntPipeline.StatefulOp<Integer>(upstream) {
+            @Override
+            Sink<Integer> opWrapSink(Sink<Integer> sink) {
+                return new SortingSink<Integer>(sink, StreamShape.INT_VALUE, null);
+            }
+
+            @Override
+            <P_IN> Spliterator<Integer> opEvaluateParallelLazy(
+                    AbstractPipeline<?, Integer, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                return sortInParallel(helper, spliterator, null);
+            }
+        };
+    }
+
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param upstream a {@code LongStream}
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream) {
+        return new LongPipeline.StatefulOp<Long>(upstream) {
+            @Override
+            Sink<Long> opWrapSink(Sink<Long> sink) {
+                return new SortingSink<Long>(sink, StreamShape.LONG_VALUE, null);
+            }
+
+            @Override
+            <P_IN> Spliterator<Long> opEvaluateParallelLazy(
+                    AbstractPipeline<?, Long, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                return sortInParallel(helper, spliterator, null);
+            }
+        };
+    }
+
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param upstream a {@code DoubleStream}
+     */
+    static DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream) {
+        return new DoublePipeline.StatefulOp<Double>(upstream) {
+            @Override
+            Sink<Double> opWrapSink(Sink<Double> sink) {
+                return new SortingSink<Double>(sink, StreamShape.DOUBLE_VALUE, null);
+            }
+
+            @Override
+            <P_IN> Spliterator<Double> opEvaluateParallelLazy(
+                    AbstractPipeline<?, Double, ?> helper,
+                    Spliterator<P_IN> spliterator) {
+                return sortInParallel(helper, spliterator, null);
+            }
+        };
+    }
+
+    /**
+     * Collects the output of the upstream segment in parallel, sorts it in
+     * parallel, and returns a spliterator over the result.
+     */
+    static <P_IN, T> Spliterator<T> sortInParallel(AbstractPipeline<?, T, ?> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   Comparator<? super T> comparator) {
+        Nodes.Builder<T> builder = Nodes.collect(helper, spliterator, true);
+        builder.sort(comparator, true);
+        return builder.spliterator();
+    }
+
+    /**
+     * {@code Sink} for implementing sort on streams of any shape.  The
+     * elements are buffered in a builder of the shape, sorted when the
+     * upstream ends and then pushed downstream.
+     */
+    private static final class SortingSink<T> extends Sink.Chained<T, T> {
+        private final StreamShape shape;
+        private final Comparator<? super T> comparator;
+        private Nodes.Builder<T> builder;
+
+        SortingSink(Sink<? super T> downstream, StreamShape shape,
+                    Comparator<? super T> comparator) {
+            super(downstream);
+            this.shape = shape;
+            this.comparator = comparator;
+        }
+
+        @Override
+        void begin(long size) {
+            if (size >= Nodes.MAX_ARRAY_SIZE)
+                throw new IllegalArgumentException(Nodes.BAD_SIZE);
+            builder = Nodes.builder(shape, size);
+        }
+
+        @Override
+        void end() {
+            builder.sort(comparator, false);
+            builder.copyInto(downstream);
+            builder = null;
+        }
+
+        /**
+         * Records nothing and returns {@code false}: all upstream elements
+         * must be seen before any element can be pushed downstream.
+         */
+        @Override
+        boolean cancellationRequested() {
+            return false;
+        }
+
+        @Override
+        public void accept(T t) {
+            builder.accept(t);
+        }
+
+        @Override
+        public void accept(int value) {
+            builder.accept(value);
+        }
+
+        @Override
+        public void accept(long value) {
+            builder.accept(value);
+        }
+
+        @Override
+        public void accept(double value) {
+            builder.accept(value);
+        }
+    }
+}
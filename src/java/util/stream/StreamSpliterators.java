@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator implementations for wrapping and delegating spliterators, used
+ * in the implementation of the {@link BaseStream#spliterator()} method.
+ *
+ * @since 1.8
+ */
+final class StreamSpliterators {
+
+    private StreamSpliterators() {
+        throw new Error("no instances");
+    }
+
+    /**
+     * Abstract wrapping spliterator that binds to the spliterator of a
+     * pipeline helper on first operation.
+     *
+     * <p>This spliterator is not late-binding and will bind to the source
+     * spliterator when first operated on.
+     *
+     * <p>A wrapping spliterator produced from a sequential stream
+     * cannot be split if there are stateful operations present.
+     */
+    private abstract static class AbstractWrappingSpliterator<P_IN, P_OUT>
+            implements Spliterator<P_OUT> {
+
+        /**
+         * True if this spliterator supports splitting
+         */
+        final boolean isParallel;
+
+        final AbstractPipeline<?, P_OUT, ?> ph;
+
+        /**
+         * The source spliterator
+         */
+        final Spliterator<P_IN> spliterator;
+
+        /**
+         * Sink chain for the downstream stages of the pipeline, ultimately
+         * leading to the buffer. Used during partial traversal.
+         */
+        Sink<P_IN> bufferSink;
+
+        /**
+         * Next element to consume from the buffer, used during partial
+         * traversal
+         */
+        long nextToConsume;
+
+        /**
+         * Buffer into which elements are pushed.  Used during partial
+         * traversal.
+         */
+        Nodes.Builder<P_OUT> buffer;
+
+        /**
+         * True if full traversal has occurred (with possible cancellation).
+         * If doing a partial traversal, there may be still elements in buffer.
+         */
+        boolean finished;
+
+        /**
+         * Construct an AbstractWrappingSpliterator from a source Spliterator.
+         */
+        AbstractWrappingSpliterator(AbstractPipeline<?, P_OUT, ?> ph,
+                                    Spliterator<P_IN> spliterator,
+                                    boolean parallel) {
+            this.ph = ph;
+            this.spliterator = spliterator;
+            this.isParallel = parallel;
+        }
+
+        /**
+         * Get the element at the given index of the buffer and pass it to
+         * the consumer.
+         */
+        abstract void consumeBuffered(Object consumer, int index);
+
+        /**
+         * Invokes the shape-specific constructor with the provided
+         * spliterator.
+         */
+        abstract AbstractWrappingSpliterator<P_IN, P_OUT> wrap(Spliterator<P_IN> s);
+
+        /**
+         * Called before advancing to set up the buffer and the sink chain
+         * feeding it.  The terminal sink ignores the size hint passed to
+         * {@code begin}, so that the buffer only ever holds the elements
+         * produced by a single advance of the source.
+         */
+        private void init() {
+            final Nodes.Builder<P_OUT> b = Nodes.builder(ph.getOutputShape(), -1);
+            buffer = b;
+            bufferSink = ph.wrapSink(new Sink<P_OUT>() {
+                @Override
+                public void accept(P_OUT t) {
+                    b.accept(t);
+                }
+
+                @Override
+                public void accept(int value) {
+                    b.accept(value);
+                }
+
+                @Override
+                public void accept(long value) {
+                    b.accept(value);
+                }
+
+                @Override
+                public void accept(double value) {
+                    b.accept(value);
+                }
+            });
+        }
+
+        /**
+         * Get an element from the source, pushing it into the sink chain,
+         * setting up the buffer if needed
+         *
+         * @return whether there are elements to consume from the buffer
+         */
+        final boolean doAdvance() {
+            boolean hasNext;
+            if (buffer == null) {
+                if (finished)
+                    return false;
+
+                init();
+                nextToConsume = 0;
+                bufferSink.begin(spliterator.getExactSizeIfKnown());
+                return fillBuffer();
+            }
+            else {
+                ++nextToConsume;
+                hasNext = nextToConsume < buffer.count();
+                if (!hasNext) {
+                    nextToConsume = 0;
+                    buffer.clear();
+                    hasNext = fillBuffer();
+                }
+            }
+            return hasNext;
+        }
+
+        /**
+         * If the buffer is empty, push elements into the sink chain until
+         * the source is empty or cancellation is requested.
+         *
+         * @return whether there are elements to consume from the buffer
+         */
+        private boolean fillBuffer() {
+            StreamShape shape = ph.getSourceShape();
+            while (buffer.count() == 0) {
+                if (bufferSink.cancellationRequested()
+                    || !AbstractPipeline.tryAdvance(shape, spliterator, bufferSink)) {
+                    if (finished)
+                        return false;
+                    else {
+                        bufferSink.end(); // might trigger more elements
+                        finished = true;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Advances to the next element, if any, passing it to the given
+         * shape-specific consumer.
+         */
+        final boolean advance(Object consumer) {
+            boolean hasNext = doAdvance();
+            if (hasNext)
+                consumeBuffered(consumer, (int) nextToConsume);
+            return hasNext;
+        }
+
+        /**
+         * Traverses the remaining elements, pushing them into the given
+         * sink.  If no partial traversal has taken place the whole pipeline
+         * is run directly into the sink; otherwise the remaining elements
+         * are consumed one at a time through the buffer.
+         */
+        final void traverse(Sink<P_OUT> sink, Object consumer) {
+            if (buffer == null && !finished) {
+                ph.wrapAndCopyInto(sink, spliterator, false);
+                finished = true;
+            }
+            else {
+                do { } while (advance(consumer));
+            }
+        }
+
+        @Override
+        public Spliterator<P_OUT> trySplit() {
+            if (isParallel && buffer == null && !finished) {
+                Spliterator<P_IN> split = spliterator.trySplit();
+                return (split == null) ? null : wrap(split);
+            }
+            else
+                return null;
+        }
+
+        @Override
+        public final long estimateSize() {
+            return spliterator.estimateSize();
+        }
+
+        @Override
+        public final long getExactSizeIfKnown() {
+            return -1;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>Only the encounter order of the source is reported, since the
+         * intermediate operations may change the size of the stream and the
+         * nature of its elements.
+         */
+        @Override
+        public final int characteristics() {
+            return spliterator.characteristics() & Spliterator.ORDERED;
+        }
+
+        @Override
+        public final boolean hasCharacteristics(int characteristics) {
+            return (characteristics() & characteristics) == characteristics;
+        }
+
+        @Override
+        public Comparator<? super P_OUT> getComparator() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public final String toString() {
+            return String.format("%s[%s]", getClass().getName(), spliterator);
+        }
+    }
+
+    static final class WrappingSpliterator<P_IN, P_OUT>
+            extends AbstractWrappingSpliterator<P_IN, P_OUT> {
+
+        WrappingSpliterator(AbstractPipeline<?, P_OUT, ?> ph,
+                            Spliterator<P_IN> spliterator,
+                            boolean parallel) {
+            super(ph, spliterator, parallel);
+        }
+
+        @Override
+        WrappingSpliterator<P_IN, P_OUT> wrap(Spliterator<P_IN> s) {
+            return new WrappingSpliterator<P_IN, P_OUT>(ph, s, isParallel);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void consumeBuffered(Object consumer, int index) {
+            ((Consumer<? super P_OUT>) consumer).accept(
+                ((Nodes.RefBuilder<P_OUT>) buffer).get(index));
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super P_OUT> consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            return advance(consumer);
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super P_OUT> consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            traverse(new Sink<P_OUT>() {
+                @Override
+                public void accept(P_OUT t) {
+                    consumer.accept(t);
+                }
+            }, consumer);
+        }
+    }
+
+    static final class IntWrappingSpliterator<P_IN>
+            extends AbstractWrappingSpliterator<P_IN, Integer>
+            implements Spliterator.OfInt {
+
+        IntWrappingSpliterator(AbstractPipeline<?, Integer, ?> ph,
+                              Spliterator<P_IN> spliterator,
+                              boolean parallel) {
+            super(ph, spliterator, parallel);
+        }
+
+        @Override
+        IntWrappingSpliterator<P_IN> wrap(Spliterator<P_IN> s) {
+            return new IntWrappingSpliterator<P_IN>(ph, s, isParallel);
+        }
+
+        @Override
+        void consumeBuffered(Object consumer, int index) {
+            ((IntConsumer) consumer).accept(((Nodes.IntBuilder) buffer).get(index));
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            return (Spliterator.OfInt) super.trySplit();
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            return advance(consumer);
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            traverse(new Sink<Integer>() {
+                @Override
+                public void accept(int value) {
+                    consumer.accept(value);
+                }
+            }, consumer);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Integer> action) {
+            return tryAdvance(asIntConsumer(action));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Integer> action) {
+            forEachRemaining(asIntConsumer(action));
+        }
+    }
+
+    static final class LongWrappingSpliterator<P_IN>
+            extends AbstractWrappingSpliterator<P_IN, Long>
+            implements Spliterator.OfLong {
+
+        LongWrappingSpliterator(AbstractPipeline<?, Long, ?> ph,
+                               Spliterator<P_IN> spliterator,
+                               boolean parallel) {
+            super(ph, spliterator, parallel);
+        }
+
+        @Override
+        LongWrappingSpliterator<P_IN> wrap(Spliterator<P_IN> s) {
+            return new LongWrappingSpliterator<P_IN>(ph, s, isParallel);
+        }
+
+        @Override
+        void consumeBuffered(Object consumer, int index) {
+            ((LongConsumer) consumer).accept(((Nodes.LongBuilder) buffer).get(index));
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            return (Spliterator.OfLong) super.trySplit();
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            return advance(consumer);
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            traverse(new Sink<Long>() {
+                @Override
+                public void accept(long value) {
+                    consumer.accept(value);
+                }
+            }, consumer);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            return tryAdvance(asLongConsumer(action));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Long> action) {
+            forEachRemaining(asLongConsumer(action));
+        }
+    }
+
+    static final class DoubleWrappingSpliterator<P_IN>
+            extends AbstractWrappingSpliterator<P_IN, Double>
+            implements Spliterator.OfDouble {
+
+        DoubleWrappingSpliterator(AbstractPipeline<?, Double, ?> ph,
+                                 Spliterator<P_IN> spliterator,
+                                 boolean parallel) {
+            super(ph, spliterator, parallel);
+        }
+
+        @Override
+        DoubleWrappingSpliterator<P_IN> wrap(Spliterator<P_IN> s) {
+            return new DoubleWrappingSpliterator<P_IN>(ph, s, isParallel);
+        }
+
+        @Override
+        void consumeBuffered(Object consumer, int index) {
+            ((DoubleConsumer) consumer).accept(((Nodes.DoubleBuilder) buffer).get(index));
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            return (Spliterator.OfDouble) super.trySplit();
+        }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            return advance(consumer);
+        }
+
+        @Override
+        public void forEachRemaining(final DoubleConsumer consumer) {
+            if (consumer == null)
+                throw new NullPointerException();
+            traverse(new Sink<Double>() {
+                @Override
+                public void accept(double value) {
+                    consumer.accept(value);
+                }
+            }, consumer);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Double> action) {
+            return tryAdvance(asDoubleConsumer(action));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Double> action) {
+            forEachRemaining(asDoubleConsumer(action));
+        }
+    }
+
+    // Adapters from boxed to primitive consumers
+
+    static IntConsumer asIntConsumer(final Consumer<? super Integer> action) {
+        if (action instanceof IntConsumer)
+            return (IntConsumer) action;
+        if (action == null)
+            throw new NullPointerException();
+        return new IntConsumer() {
+            public void accept(int value) {
+                action.accept(value);
+            }
+        };
+    }
+
+    static LongConsumer asLongConsumer(final Consumer<? super Long> action) {
+        if (action instanceof LongConsumer)
+            return (LongConsumer) action;
+        if (action == null)
+            throw new NullPointerException();
+        return new LongConsumer() {
+            public void accept(long value) {
+                action.accept(value);
+            }
+        };
+    }
+
+    static DoubleConsumer asDoubleConsumer(final Consumer<? super Double> action) {
+        if (action instanceof DoubleConsumer)
+            return (DoubleConsumer) action;
+        if (action == null)
+            throw new NullPointerException();
+        return new DoubleConsumer() {
+            public void accept(double value) {
+                action.accept(value);
+            }
+        };
+    }
+}
@@ -0,0 +1,786 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class consists exclusively of static methods that create or combine
+ * streams: empty streams, streams of given values, infinite streams
+ * generated by a function, ranges of integral values, and the
+ * concatenation of two streams.
+ *
+ * <p>The methods of this class all throw a {@code NullPointerException}
+ * if the arguments provided to them are null, unless otherwise noted.
+ *
+ * @since 1.8
+ */
+public final class Streams {
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private Streams() {}
+
+    // Empty streams
+
+    /**
+     * Returns an empty sequential {@code Stream}.
+     *
+     * @param <T> the type of stream elements
+     * @return an empty sequential stream
+     */
+    public static <T> Stream<T> emptyStream() {
+        return StreamSupport.stream(Spliterators.<T>emptySpliterator(), false);
+    }
+
+    /**
+     * Returns an empty sequential {@code IntStream}.
+     *
+     * @return an empty sequential stream
+     */
+    public static IntStream emptyIntStream() {
+        return StreamSupport.intStream(Spliterators.emptyIntSpliterator(), false);
+    }
+
+    /**
+     * Returns an empty sequential {@code LongStream}.
+     *
+     * @return an empty sequential stream
+     */
+    public static LongStream emptyLongStream() {
+        return StreamSupport.longStream(Spliterators.emptyLongSpliterator(), false);
+    }
+
+    /**
+     * Returns an empty sequential {@code DoubleStream}.
+     *
+     * @return an empty sequential stream
+     */
+    public static DoubleStream emptyDoubleStream() {
+        return StreamSupport.doubleStream(Spliterators.emptyDoubleSpliterator(),
+                                          false);
+    }
+
+    // Streams of values
+
+    /**
+     * Returns a sequential {@code Stream} containing a single element.
+     *
+     * @param <T> the type of stream elements
+     * @param t the single element
+     * @return a singleton sequential stream
+     */
+    public static <T> Stream<T> of(T t) {
+        Object[] a = { t };
+        return StreamSupport.stream(
+            Spliterators.<T>spliterator(a, Spliterator.ORDERED | Spliterator.IMMUTABLE),
+            false);
+    }
+
+    /**
+     * Returns a sequential ordered {@code Stream} whose elements are the
+     * specified values.
+     *
+     * @param <T> the type of stream elements
+     * @param values the elements of the new stream
+     * @return the new stream
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // Creating a stream from an array is safe
+    public static <T> Stream<T> of(T... values) {
+        return Arrays.stream(values);
+    }
+
+    // Infinite streams
+
+    /**
+     * Returns an infinite sequential ordered {@code Stream} produced by
+     * iterative application of a function {@code f} to an initial element
+     * {@code seed}, producing a {@code Stream} consisting of {@code seed},
+     * {@code f(seed)}, {@code f(f(seed))}, etc.
+     *
+     * <p>An infinite stream must be bounded by a short-circuiting operation
+     * such as {@code limit} or {@code findFirst}.
+     *
+     * @param <T> the type of stream elements
+     * @param seed the initial element
+     * @param f a function to be applied to the previous element to produce
+     *        a new element
+     * @return a new sequential {@code Stream}
+     */
+    public static <T> Stream<T> iterate(final T seed, final UnaryOperator<T> f) {
+        Objects.requireNonNull(f);
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.IMMUTABLE) {
+            T t;
+            boolean started;
+
+            public boolean tryAdvance(Consumer<? super T> action) {
+                Objects.requireNonNull(action);
+                if (started)
+                    t = f.apply(t);
+                else {
+                    t = seed;
+                    started = true;
+                }
+                action.accept(t);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns an infinite sequential unordered {@code Stream} where each
+     * element is generated by the provided {@code Supplier}.  This is
+     * suitable for generating constant streams, streams of random elements,
+     * etc.
+     *
+     * @param <T> the type of stream elements
+     * @param s the {@code Supplier} of generated elements
+     * @return a new infinite sequential unordered {@code Stream}
+     */
+    public static <T> Stream<T> generate(final Supplier<T> s) {
+        Objects.requireNonNull(s);
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.IMMUTABLE) {
+            public boolean tryAdvance(Consumer<? super T> action) {
+                Objects.requireNonNull(action);
+                action.accept(s.get());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    // Ranges
+
+    /**
+     * Returns a sequential ordered {@code IntStream} from
+     * {@code startInclusive} (inclusive) to {@code endExclusive}
+     * (exclusive) by an incremental step of {@code 1}.
+     *
+     * @param startInclusive the (inclusive) initial value
+     * @param endExclusive the exclusive upper bound
+     * @return a sequential {@code IntStream} for the range of {@code int}
+     *         elements
+     */
+    public static IntStream intRange(int startInclusive, int endExclusive) {
+        if (startInclusive >= endExclusive)
+            return emptyIntStream();
+        return StreamSupport.intStream(
+            new RangeIntSpliterator(startInclusive, endExclusive, false), false);
+    }
+
+    /**
+     * Returns a sequential ordered {@code IntStream} from
+     * {@code startInclusive} (inclusive) to {@code endInclusive}
+     * (inclusive) by an incremental step of {@code 1}.
+     *
+     * @param startInclusive the (inclusive) initial value
+     * @param endInclusive the inclusive upper bound
+     * @return a sequential {@code IntStream} for the range of {@code int}
+     *         elements
+     */
+    public static IntStream intRangeClosed(int startInclusive, int endInclusive) {
+        if (startInclusive > endInclusive)
+            return emptyIntStream();
+        return StreamSupport.intStream(
+            new RangeIntSpliterator(startInclusive, endInclusive, true), false);
+    }
+
+    /**
+     * Returns a sequential ordered {@code LongStream} from
+     * {@code startInclusive} (inclusive) to {@code endExclusive}
+     * (exclusive) by an incremental step of {@code 1}.
+     *
+     * @param startInclusive the (inclusive) initial value
+     * @param endExclusive the exclusive upper bound
+     * @return a sequential {@code LongStream} for the range of {@code long}
+     *         elements
+     */
+    public static LongStream longRange(long startInclusive, long endExclusive) {
+        if (startInclusive >= endExclusive)
+            return emptyLongStream();
+        long size = endExclusive - startInclusive;
+        if (size < 0) {
+            // Size of range > Long.MAX_VALUE: split the range in two and
+            // concatenate the halves, each of which has a size that fits
+            long m = midpoint(startInclusive, endExclusive);
+            return concat(longRange(startInclusive, m), longRange(m, endExclusive));
+        }
+        return StreamSupport.longStream(
+            new RangeLongSpliterator(startInclusive, endExclusive, false), false);
+    }
+
+    /**
+     * Returns a sequential ordered {@code LongStream} from
+     * {@code startInclusive} (inclusive) to {@code endInclusive}
+     * (inclusive) by an incremental step of {@code 1}.
+     *
+     * @param startInclusive the (inclusive) initial value
+     * @param endInclusive the inclusive upper bound
+     * @return a sequential {@code LongStream} for the range of {@code long}
+     *         elements
+     */
+    public static LongStream longRangeClosed(long startInclusive, long endInclusive) {
+        if (startInclusive > endInclusive)
+            return emptyLongStream();
+        long size = endInclusive - startInclusive + 1;
+        if (size <= 0) {
+            // Size of range > Long.MAX_VALUE: split the range in two and
+            // concatenate the halves, each of which has a size that fits
+            long m = midpoint(startInclusive, endInclusive);
+            return concat(longRange(startInclusive, m),
+                          longRangeClosed(m, endInclusive));
+        }
+        return StreamSupport.longStream(
+            new RangeLongSpliterator(startInclusive, endInclusive, true), false);
+    }
+
+    /**
+     * Returns a value in {@code (a, b]} close to the mean of {@code a}
+     * and {@code b}, computed without overflow.
+     */
+    private static long midpoint(long a, long b) {
+        return (a & b) + ((a ^ b) >> 1) + 1;
+    }
+
+    // Concatenation
+
+    /**
+     * Creates a lazily concatenated {@code Stream} whose elements are all the
+     * elements of the first stream followed by all the elements of the
+     * second stream.  The resulting stream is ordered if both of the input
+     * streams are ordered, and parallel if either of the input streams is
+     * parallel.
+     *
+     * <p>Both input streams are consumed.
+     *
+     * @param <T> the type of stream elements
+     * @param a the first stream
+     * @param b the second stream
+     * @return the concatenation of the two input streams
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Stream<T> concat(Stream<? extends T> a, Stream<? extends T> b) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        Spliterator<T> split = new ConcatSpliterator.OfRef<T>(
+            (Spliterator<T>) a.spliterator(), (Spliterator<T>) b.spliterator());
+        return StreamSupport.stream(split, a.isParallel() || b.isParallel());
+    }
+
+    /**
+     * Creates a lazily concatenated {@code IntStream} whose elements are
+     * all the elements of the first stream followed by all the elements of
+     * the second stream.  The resulting stream is ordered if both of the
+     * input streams are ordered, and parallel if either of the input
+     * streams is parallel.
+     *
+     * <p>Both input streams are consumed.
+     *
+     * @param a the first stream
+     * @param b the second stream
+     * @return the concatenation of the two input streams
+     */
+    public static IntStream concat(IntStream a, IntStream b) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        Spliterator.OfInt split = new ConcatSpliterator.OfInt(
+            a.spliterator(), b.spliterator());
+        return StreamSupport.intStream(split, a.isParallel() || b.isParallel());
+    }
+
+    /**
+     * Creates a lazily concatenated {@code LongStream} whose elements are
+     * all the elements of the first stream followed by all the elements of
+     * the second stream.  The resulting stream is ordered if both of the
+     * input streams are ordered, and parallel if either of the input
+     * streams is parallel.
+     *
+     * <p>Both input streams are consumed.
+     *
+     * @param a the first stream
+     * @param b the second stream
+     * @return the concatenation of the two input streams
+     */
+    public static LongStream concat(LongStream a, LongStream b) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        Spliterator.OfLong split = new ConcatSpliterator.OfLong(
+            a.spliterator(), b.spliterator());
+        return StreamSupport.longStream(split, a.isParallel() || b.isParallel());
+    }
+
+    /**
+     * Creates a lazily concatenated {@code DoubleStream} whose elements are
+     * all the elements of the first stream followed by all the elements of
+     * the second stream.  The resulting stream is ordered if both of the
+     * input streams are ordered, and parallel if either of the input
+     * streams is parallel.
+     *
+     * <p>Both input streams are consumed.
+     *
+     * @param a the first stream
+     * @param b the second stream
+     * @return the concatenation of the two input streams
+     */
+    public static DoubleStream concat(DoubleStream a, DoubleStream b) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        Spliterator.OfDouble split = new ConcatSpliterator.OfDouble(
+            a.spliterator(), b.spliterator());
+        return StreamSupport.doubleStream(split, a.isParallel() || b.isParallel());
+    }
+
+    /**
+     * A {@code int} range spliterator.
+     */
+    static final class RangeIntSpliterator implements Spliterator.OfInt {
+        // Can never be greater than upTo, this avoids overflow if upper bound
+        // is Integer.MAX_VALUE
+        // All elements are traversed if from == upTo & last == 0
+        private int from;
+        private final int upTo;
+        // 1 if the range is closed and the last element has not been
+        // traversed, otherwise 0 if the range is open, or is a closed range
+        // and all elements have been traversed
+        private int last;
+
+        RangeIntSpliterator(int from, int upTo, boolean closed) {
+            this(from, upTo, closed ? 1 : 0);
+        }
+
+        private RangeIntSpliterator(int from, int upTo, int last) {
+            this.from = from;
+            this.upTo = upTo;
+            this.last = last;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer consumer) {
+            Objects.requireNonNull(consumer);
+
+            final int i = from;
+            if (i < upTo) {
+                from++;
+                consumer.accept(i);
+                return true;
+            }
+            else if (last > 0) {
+                last = 0;
+                consumer.accept(i);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer consumer) {
+            Objects.requireNonNull(consumer);
+
+            int i = from;
+            final int hUpTo = upTo;
+            int hLast = last;
+            from = upTo;
+            last = 0;
+            while (i < hUpTo) {
+                consumer.accept(i++);
+            }
+            if (hLast > 0) {
+                // Last element of closed range
+                consumer.accept(i);
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Integer> action) {
+            return tryAdvance(StreamSpliterators.asIntConsumer(action));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Integer> action) {
+            forEachRemaining(StreamSpliterators.asIntConsumer(action));
+        }
+
+        @Override
+        public long estimateSize() {
+            // Ensure ranges of size > Integer.MAX_VALUE report the correct size
+            return (long) upTo - from + last;
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED |
+                   Spliterator.IMMUTABLE | Spliterator.NONNULL |
+                   Spliterator.DISTINCT | Spliterator.SORTED;
+        }
+
+        @Override
+        public boolean hasCharacteristics(int characteristics) {
+            return (characteristics() & characteristics) == characteristics;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            long size = estimateSize();
+            if (size <= 1)
+                return null;
+            // Left split always has a half-open range
+            int mid = from + (int) (size / 2);
+            Spliterator.OfInt prefix = new RangeIntSpliterator(from, mid, 0);
+            from = mid;
+            return prefix;
+        }
+    }
+
+    /**
+     * A {@code long} range spliterator.
+     */
+    static final class RangeLongSpliterator implements Spliterator.OfLong {
+        // Can never be greater than upTo, this avoids overflow if upper bound
+        // is Long.MAX_VALUE
+        // All elements are traversed if from == upTo & last == 0
+        private long from;
+        private final long upTo;
+        // 1 if the range is closed and the last element has not been
+        // traversed, otherwise 0 if the range is open, or is a closed range
+        // and all elements have been traversed
+        private int last;
+
+        RangeLongSpliterator(long from, long upTo, boolean closed) {
+            this(from, upTo, closed ? 1 : 0);
+        }
+
+        private RangeLongSpliterator(long from, long upTo, int last) {
+            this.from = from;
+            this.upTo = upTo;
+            this.last = last;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer consumer) {
+            Objects.requireNonNull(consumer);
+
+            final long i = from;
+            if (i < upTo) {
+                from++;
+                consumer.accept(i);
+                return true;
+            }
+            else if (last > 0) {
+                last = 0;
+                consumer.accept(i);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer consumer) {
+            Objects.requireNonNull(consumer);
+
+            long i = from;
+            final long hUpTo = upTo;
+            int hLast = last;
+            from = upTo;
+            last = 0;
+            while (i < hUpTo) {
+                consumer.accept(i++);
+            }
+            if (hLast > 0) {
+                // Last element of closed range
+                consumer.accept(i);
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            return tryAdvance(StreamSpliterators.asLongConsumer(action));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Long> action) {
+            forEachRemaining(StreamSpliterators.asLongConsumer(action));
+        }
+
+        @Override
+        public long estimateSize() {
+            // Ensure ranges of size > Long.MAX_VALUE report the correct size
+            return upTo - from + last;
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED |
+                   Spliterator.IMMUTABLE | Spliterator.NONNULL |
+                   Spliterator.DISTINCT | Spliterator.SORTED;
+        }
+
+        @Override
+        public boolean hasCharacteristics(int characteristics) {
+            return (characteristics() & characteristics) == characteristics;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long size = estimateSize();
+            if (size <= 1)
+                return null;
+            // Left split always has a half-open range
+            long mid = from + (size / 2);
+            Spliterator.OfLong prefix = new RangeLongSpliterator(from, mid, 0);
+            from = mid;
+            return prefix;
+        }
+    }
+
+    /**
+     * A spliterator over the elements of one spliterator followed by those
+     * of another.  The first split hands off the first spliterator entire;
+     * further splits are delegated to the second.
+     */
+    abstract static class ConcatSpliterator<T, T_SPLITR extends Spliterator<T>>
+            implements Spliterator<T> {
+        final T_SPLITR aSpliterator;
+        final T_SPLITR bSpliterator;
+        // True when no split has occurred, otherwise false
+        boolean beforeSplit;
+        // Never read after splitting
+        final boolean unsized;
+
+        ConcatSpliterator(T_SPLITR aSpliterator, T_SPLITR bSpliterator) {
+            this.aSpliterator = aSpliterator;
+            this.bSpliterator = bSpliterator;
+            beforeSplit = true;
+            // The spliterator is known to be unsized before splitting if the
+            // sum of the estimates overflows.
+            unsized = aSpliterator.estimateSize() + bSpliterator.estimateSize() < 0;
+        }
+
+        @Override
+        public T_SPLITR trySplit() {
+            @SuppressWarnings("unchecked")
+            T_SPLITR ret = beforeSplit
+                           ? aSpliterator
+                           : (T_SPLITR) bSpliterator.trySplit();
+            beforeSplit = false;
+            return ret;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> consumer) {
+            boolean hasNext;
+            if (beforeSplit) {
+                hasNext = aSpliterator.tryAdvance(consumer);
+                if (!hasNext) {
+                    beforeSplit = false;
+                    hasNext = bSpliterator.tryAdvance(consumer);
+                }
+            }
+            else
+                hasNext = bSpliterator.tryAdvance(consumer);
+            return hasNext;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> consumer) {
+            if (beforeSplit)
+                aSpliterator.forEachRemaining(consumer);
+            bSpliterator.forEachRemaining(consumer);
+        }
+
+        @Override
+        public long estimateSize() {
+            if (beforeSplit) {
+                // If one or both estimates are Long.MAX_VALUE then the sum
+                // will either be Long.MAX_VALUE or overflow to a negative value
+                long size = aSpliterator.estimateSize() + bSpliterator.estimateSize();
+                return (size >= 0) ? size : Long.MAX_VALUE;
+            }
+            else {
+                return bSpliterator.estimateSize();
+            }
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return hasCharacteristics(Spliterator.SIZED) ? estimateSize() : -1;
+        }
+
+        @Override
+        public int characteristics() {
+            if (beforeSplit) {
+                // Concatenation loses DISTINCT and SORTED characteristics
+                return aSpliterator.characteristics() & bSpliterator.characteristics()
+                       & ~(Spliterator.DISTINCT | Spliterator.SORTED
+                           | (unsized ? Spliterator.SIZED | Spliterator.SUBSIZED : 0));
+            }
+            else {
+                return bSpliterator.characteristics();
+            }
+        }
+
+        @Override
+        public boolean hasCharacteristics(int characteristics) {
+            return (characteristics() & characteristics) == characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            if (beforeSplit)
+                throw new IllegalStateException();
+            return bSpliterator.getComparator();
+        }
+
+        static final class OfRef<T> extends ConcatSpliterator<T, Spliterator<T>> {
+            OfRef(Spliterator<T> aSpliterator, Spliterator<T> bSpliterator) {
+                super(aSpliterator, bSpliterator);
+            }
+        }
+
+        static final class OfInt
+                extends ConcatSpliterator<Integer, Spliterator.OfInt>
+                implements Spliterator.OfInt {
+            OfInt(Spliterator.OfInt aSpliterator, Spliterator.OfInt bSpliterator) {
+                super(aSpliterator, bSpliterator);
+            }
+
+            @Override
+            public boolean tryAdvance(IntConsumer consumer) {
+                boolean hasNext;
+                if (beforeSplit) {
+                    hasNext = aSpliterator.tryAdvance(consumer);
+                    if (!hasNext) {
+                        beforeSplit = false;
+                        hasNext = bSpliterator.tryAdvance(consumer);
+                    }
+                }
+                else
+                    hasNext = bSpliterator.tryAdvance(consumer);
+                return hasNext;
+            }
+
+            @Override
+            public void forEachRemaining(IntConsumer consumer) {
+                if (beforeSplit)
+                    aSpliterator.forEachRemaining(consumer);
+                bSpliterator.forEachRemaining(consumer);
+            }
+        }
+
+        static final class OfLong
+                extends ConcatSpliterator<Long, Spliterator.OfLong>
+                implements Spliterator.OfLong {
+            OfLong(Spliterator.OfLong aSpliterator, Spliterator.OfLong bSpliterator) {
+                super(aSpliterator, bSpliterator);
+            }
+
+            @Override
+            public boolean tryAdvance(LongConsumer consumer) {
+                boolean hasNext;
+                if (beforeSplit) {
+                    hasNext = aSpliterator.tryAdvance(consumer);
+                    if (!hasNext) {
+                        beforeSplit = false;
+                        hasNext = bSpliterator.tryAdvance(consumer);
+                    }
+                }
+                else
+                    hasNext = bSpliterator.tryAdvance(consumer);
+                return hasNext;
+            }
+
+            @Override
+            public void forEachRemaining(LongConsumer consumer) {
+                if (beforeSplit)
+                    aSpliterator.forEachRemaining(consumer);
+                bSpliterator.forEachRemaining(consumer);
+            }
+        }
+
+        static final class OfDouble
+                extends ConcatSpliterator<Double, Spliterator.OfDouble>
+                implements Spliterator.OfDouble {
+            OfDouble(Spliterator.OfDouble aSpliterator,
+                     Spliterator.OfDouble bSpliterator) {
+                super(aSpliterator, bSpliterator);
+            }
+
+            @Override
+            public boolean tryAdvance(DoubleConsumer consumer) {
+                boolean hasNext;
+                if (beforeSplit) {
+                    hasNext = aSpliterator.tryAdvance(consumer);
+                    if (!hasNext) {
+                        beforeSplit = false;
+                        hasNext = bSpliterator.tryAdvance(consumer);
+                    }
+                }
+                else
+                    hasNext = bSpliterator.tryAdvance(consumer);
+                return hasNext;
+            }
+
+            @Override
+            public void forEachRemaining(DoubleConsumer consumer) {
+                if (beforeSplit)
+                    aSpliterator.forEachRemaining(consumer);
+                bSpliterator.forEachRemaining(consumer);
+            }
+        }
+    }
+}
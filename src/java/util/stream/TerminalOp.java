@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Spliterator;
+
+/**
+ * An operation in a stream pipeline that takes a stream as input and produces
+ * a result or side-effect.  A {@code TerminalOp} has an input type and a
+ * result type, and may be <em>short-circuiting</em>, producing its result
+ * without consuming all of its input.
+ *
+ * <p>A {@code TerminalOp} must provide a sequential and parallel
+ * implementation of the operation relative to a given stream source and set of
+ * intermediate operations.
+ *
+ * @param <E_IN> the type of input elements
+ * @param <R>    the type of the result
+ * @since 1.8
+ */
+abstract class TerminalOp<E_IN, R> {
+
+    /**
+     * Returns whether the operation may produce its result before consuming
+     * all of its input, in which case the source is traversed one element at
+     * a time and the sink polled for cancellation.
+     *
+     * <p>The default returns {@code false}.
+     *
+     * @return {@code true} if the operation may short-circuit
+     */
+    boolean isShortCircuit() {
+        return false;
+    }
+
+    /**
+     * Performs a sequential evaluation of the operation using the specified
+     * pipeline stage and source spliterator.
+     *
+     * @param helper the pipeline stage whose output this operation consumes
+     * @param spliterator the source spliterator
+     * @return the result of the evaluation
+     */
+    abstract <P_IN> R evaluateSequential(AbstractPipeline<?, E_IN, ?> helper,
+                                         Spliterator<P_IN> spliterator);
+
+    /**
+     * Performs a parallel evaluation of the operation using the specified
+     * pipeline stage and source spliterator.
+     *
+     * <p>The default performs a sequential evaluation of the operation using
+     * the specified {@code AbstractPipeline}.
+     *
+     * @param helper the pipeline stage whose output this operation consumes
+     * @param spliterator the source spliterator
+     * @return the result of the evaluation
+     */
+    <P_IN> R evaluateParallel(AbstractPipeline<?, E_IN, ?> helper,
+                              Spliterator<P_IN> spliterator) {
+        return evaluateSequential(helper, spliterator);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/**
+ * Classes to support functional-style operations on streams of elements,
+ * such as map-reduce transformations on collections.  For example:
+ *
+ * <pre>{@code
+ *     int sumOfWeights = Collections.stream(blocks)
+ *                                   .filter(isRed)
+ *                                   .mapToInt(weightOf)
+ *                                   .sum();
+ * }</pre>
+ *
+ * <p>Here we use {@code blocks}, which might be a {@code Collection}, as a
+ * source for a stream, and then perform a filter-map-reduce on the stream
+ * to obtain the sum of the weights of the red blocks.
+ *
+ * <h2>Streams</h2>
+ *
+ * <p>A stream is not a data structure; it conveys elements from a source,
+ * such as an array, a collection or a generator function, through a
+ * <em>pipeline</em> of computational operations.  Streams are obtained
+ * from {@link java.util.Collections#stream(java.util.Collection)},
+ * {@link java.util.Arrays#stream(Object[])}, the static factories in
+ * {@link java.util.stream.Streams}, or, for any
+ * {@link java.util.Spliterator}, from
+ * {@link java.util.stream.StreamSupport}.
+ *
+ * <p>Stream operations are divided into <em>intermediate</em> and
+ * <em>terminal</em> operations.  Intermediate operations, such as
+ * {@code filter} and {@code map}, return a new stream and are always
+ * <em>lazy</em>: they do not traverse the source, but record the
+ * operation to be performed when a terminal operation, such as
+ * {@code forEach} or {@code reduce}, is invoked.  All stages of a
+ * pipeline are then evaluated in a single pass over the source, element
+ * by element; no intermediate collections are materialized except by the
+ * <em>stateful</em> operations {@code sorted} and {@code distinct}, which
+ * must see their whole input.  <em>Short-circuiting</em> operations, such
+ * as {@code limit}, {@code findFirst} and {@code anyMatch}, stop the
+ * traversal as soon as their result is known, which permits operating on
+ * infinite sources.  Once a terminal operation is performed the stream
+ * is consumed; a stream may be traversed only once, and reusing it throws
+ * {@code IllegalStateException}.
+ *
+ * <p>The specializations {@link java.util.stream.IntStream},
+ * {@link java.util.stream.LongStream} and
+ * {@link java.util.stream.DoubleStream} carry primitive elements without
+ * boxing and add numeric reductions such as {@code sum} and
+ * {@code average}.
+ *
+ * <h2>Parallelism</h2>
+ *
+ * <p>A stream pipeline may execute sequentially or in parallel, as chosen
+ * by {@link java.util.stream.BaseStream#parallel()} and
+ * {@link java.util.stream.BaseStream#sequential()} or by the factory that
+ * created it.  Parallel pipelines split the source with
+ * {@link java.util.Spliterator#trySplit()} and evaluate the pieces as
+ * tasks in the {@link java.util.concurrent.ForkJoinPool#commonPool()
+ * common pool}, combining partial results in encounter order.  Except
+ * for operations identified as explicitly nondeterministic, such as
+ * {@code findAny()}, whether a stream executes sequentially or in
+ * parallel does not change the result of the computation, provided the
+ * behavioral parameters are <em>non-interfering</em> (they do not modify
+ * the source) and, in general, <em>stateless</em>.
+ *
+ * <h2>Reduction</h2>
+ *
+ * <p>Reductions combine the elements of a stream into a single summary
+ * result, either a value ({@code reduce}, {@code sum}, {@code max}) or a
+ * mutable container such as a {@code List} or {@code StringBuilder}
+ * ({@code collect}).  The {@link java.util.stream.Collector} interface
+ * describes mutable reductions, and {@link java.util.stream.Collectors}
+ * provides implementations of many common ones, including grouping and
+ * partitioning.  Associativity of the combining functions allows
+ * reductions to be evaluated in parallel without further synchronization.
+ *
+ * @since 1.8
+ */
+package java.util.stream;